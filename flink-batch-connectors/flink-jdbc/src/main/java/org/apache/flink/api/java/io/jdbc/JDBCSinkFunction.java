@@ -0,0 +1,489 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.api.java.io.jdbc;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.flink.api.table.Row;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.runtime.state.FunctionInitializationContext;
+import org.apache.flink.runtime.state.FunctionSnapshotContext;
+import org.apache.flink.streaming.api.checkpoint.CheckpointedFunction;
+import org.apache.flink.streaming.api.functions.sink.RichSinkFunction;
+import org.apache.flink.util.MathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sink function that writes the rows of a stream into a database in batches.
+ * The sink has to be configured using the supplied JDBCSinkFunctionBuilder.
+ *
+ * <p>A batch is written once it reached the configured batch size, once the configured batch
+ * interval passed, and on every checkpoint. A checkpoint only completes after all batches
+ * that were started before it have been written, so no records are lost on failures.
+ *
+ * <p>If key fields are configured, the rows of a batch are deduplicated by these fields, and
+ * only the last row for each key is written. Together with an upsert statement (such as
+ * {@code MERGE} or {@code INSERT ... ON DUPLICATE KEY UPDATE}), the sink is idempotent: rows
+ * that are replayed after a failure overwrite their earlier versions, which gives
+ * exactly-once results in the database.
+ *
+ * <p>The batches are written by a pool of connections, so several batches can be in flight
+ * at the same time. Each row is assigned to a connection by the hash of its key, and each
+ * connection writes at most one batch at a time, in the order of the batches. All versions of a
+ * key are therefore written by the same connection in the order in which they arrived, so an
+ * older version never overwrites a newer one. If the connection of a batch is still busy, the
+ * sink blocks until it is available. Without key fields, the rows are spread over the
+ * connections by their position in the batch.
+ *
+ * @see DriverManager
+ */
+public class JDBCSinkFunction extends RichSinkFunction<Row> implements CheckpointedFunction {
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger LOG = LoggerFactory.getLogger(JDBCSinkFunction.class);
+
+	private String username;
+	private String password;
+	private String drivername;
+	private String dbURL;
+	private String query;
+	private int[] typesArray;
+	private int[] keyFields;
+	private int batchSize = 5000;
+	private long batchIntervalMs = 0;
+	private int connectionPoolSize = 1;
+
+	/** Counts the rows of the current batch, used as the key if no key fields are set */
+	private transient long batchCount;
+
+	/** The statements of the connections, each with its part of the current batch */
+	private transient List<StatementHolder> statements;
+
+	/** Executes the batch writes */
+	private transient ExecutorService writeExecutor;
+
+	/** Writes the current batch when the batch interval passed */
+	private transient ScheduledExecutorService flushScheduler;
+
+	/** Guards the current batch against concurrent access by the flush scheduler */
+	private transient Object batchLock;
+
+	/** Set by the writer threads and the flush scheduler when a batch could not be written */
+	private transient volatile Throwable asyncException;
+
+	public JDBCSinkFunction() {
+	}
+
+	/**
+	 * Connects to the target database and initializes the prepared statements.
+	 *
+	 * @param parameters The configuration of the function.
+	 * @throws IllegalArgumentException Thrown, if the connections could not be opened.
+	 */
+	@Override
+	public void open(Configuration parameters) throws Exception {
+		batchCount = 0;
+		batchLock = new Object();
+		statements = new ArrayList<>(connectionPoolSize);
+
+		try {
+			Class.forName(drivername);
+			for (int i = 0; i < connectionPoolSize; i++) {
+				Connection dbConn = username == null ?
+					DriverManager.getConnection(dbURL) :
+					DriverManager.getConnection(dbURL, username, password);
+				StatementHolder holder = new StatementHolder(dbConn);
+				statements.add(holder);
+				holder.upload = dbConn.prepareStatement(query);
+			}
+		} catch (SQLException sqe) {
+			closeStatements();
+			throw new IllegalArgumentException("open() failed.", sqe);
+		} catch (ClassNotFoundException cnfe) {
+			closeStatements();
+			throw new IllegalArgumentException("JDBC driver class not found.", cnfe);
+		}
+
+		writeExecutor = Executors.newFixedThreadPool(connectionPoolSize);
+
+		if (batchIntervalMs > 0) {
+			final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+			flushScheduler = scheduler;
+			scheduler.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					synchronized (batchLock) {
+						if (asyncException != null || statements == null) {
+							return;
+						}
+						try {
+							flush();
+						} catch (InterruptedException e) {
+							// interrupted by close(), which writes the remaining rows itself
+							if (!scheduler.isShutdown()) {
+								asyncException = e;
+							}
+						} catch (Throwable t) {
+							asyncException = t;
+						}
+					}
+				}
+			}, batchIntervalMs, batchIntervalMs, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Adds a row to the current batch, and writes the batch if it is full.
+	 *
+	 * @param row The row to write to the database.
+	 * @throws IOException Thrown, if a previous batch could not be written.
+	 */
+	@Override
+	public void invoke(Row row) throws Exception {
+		checkAsyncException();
+
+		synchronized (batchLock) {
+			Object key = keyFields == null ? Long.valueOf(batchCount) : extractKey(row);
+			int connection = MathUtils.murmurHash(key.hashCode()) % statements.size();
+			// copy the row, it might be reused by the caller
+			statements.get(connection).batch.put(key, copyRow(row));
+			batchCount++;
+
+			if (batchRows() >= batchSize) {
+				flush();
+			}
+		}
+	}
+
+	/**
+	 * Writes the current batch and waits until all batches in flight have been written.
+	 */
+	@Override
+	public void snapshotState(FunctionSnapshotContext context) throws Exception {
+		checkAsyncException();
+
+		synchronized (batchLock) {
+			flush();
+		}
+		waitForPendingBatches();
+
+		checkAsyncException();
+	}
+
+	@Override
+	public void initializeState(FunctionInitializationContext context) throws Exception {
+		// nothing to restore, all rows are written before a checkpoint completes
+	}
+
+	/**
+	 * Writes the remaining rows and closes all resources of this instance.
+	 *
+	 * @throws IOException Thrown, if a batch could not be written.
+	 */
+	@Override
+	public void close() throws Exception {
+		try {
+			if (flushScheduler != null) {
+				flushScheduler.shutdownNow();
+				flushScheduler.awaitTermination(batchIntervalMs, TimeUnit.MILLISECONDS);
+			}
+			if (statements != null && asyncException == null) {
+				synchronized (batchLock) {
+					flush();
+				}
+				waitForPendingBatches();
+			}
+		} finally {
+			if (writeExecutor != null) {
+				writeExecutor.shutdownNow();
+			}
+			closeStatements();
+			flushScheduler = null;
+			writeExecutor = null;
+		}
+
+		checkAsyncException();
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Hands the rows of the current batch over to their connections and starts a new batch.
+	 * Must be called while holding the batch lock. Blocks while a connection still writes its
+	 * previous batch, so that the batches of a connection are written one after another.
+	 */
+	private void flush() throws InterruptedException {
+		for (final StatementHolder holder : statements) {
+			if (holder.batch.isEmpty()) {
+				continue;
+			}
+
+			holder.available.acquire();
+			final Collection<Row> rows = holder.batch.values();
+			holder.batch = new LinkedHashMap<>();
+
+			writeExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						for (Row row : rows) {
+							JDBCUtils.setRecordToStatement(holder.upload, typesArray, row);
+							holder.upload.addBatch();
+						}
+						holder.upload.executeBatch();
+					} catch (Throwable t) {
+						LOG.error("Error while writing a batch of {} rows.", rows.size(), t);
+						asyncException = t;
+						try {
+							holder.upload.clearBatch();
+						} catch (SQLException se) {
+							LOG.info("Batch couldn't be cleared - " + se.getMessage());
+						}
+					} finally {
+						holder.available.release();
+					}
+				}
+			});
+		}
+		batchCount = 0;
+	}
+
+	/**
+	 * Blocks until no batch is in flight anymore, by acquiring every connection once.
+	 */
+	private void waitForPendingBatches() throws InterruptedException {
+		for (StatementHolder holder : statements) {
+			holder.available.acquire();
+			holder.available.release();
+		}
+	}
+
+	private int batchRows() {
+		int rows = 0;
+		for (StatementHolder holder : statements) {
+			rows += holder.batch.size();
+		}
+		return rows;
+	}
+
+	private void checkAsyncException() throws IOException {
+		Throwable t = asyncException;
+		if (t != null) {
+			throw new IOException("Writing records to the database failed.", t);
+		}
+	}
+
+	private Object extractKey(Row row) {
+		Object[] key = new Object[keyFields.length];
+		for (int i = 0; i < keyFields.length; i++) {
+			key[i] = row.productElement(keyFields[i]);
+		}
+		return Arrays.asList(key);
+	}
+
+	private static Row copyRow(Row row) {
+		Row copy = new Row(row.productArity());
+		for (int i = 0; i < row.productArity(); i++) {
+			copy.setField(i, row.productElement(i));
+		}
+		return copy;
+	}
+
+	private void closeStatements() {
+		if (statements == null) {
+			return;
+		}
+		for (StatementHolder holder : statements) {
+			holder.close();
+		}
+		statements = null;
+	}
+
+	/**
+	 * A connection of the pool together with its prepared statement and the rows of the
+	 * current batch that are assigned to it.
+	 */
+	private static final class StatementHolder {
+
+		private final Connection dbConn;
+
+		/** Held while the connection writes a batch */
+		private final Semaphore available = new Semaphore(1);
+
+		private PreparedStatement upload;
+
+		/** The rows of the current batch, by their key or by their position in the batch */
+		private Map<Object, Row> batch = new LinkedHashMap<>();
+
+		StatementHolder(Connection dbConn) {
+			this.dbConn = dbConn;
+		}
+
+		void close() {
+			try {
+				if (upload != null) {
+					upload.close();
+				}
+			} catch (SQLException se) {
+				LOG.info("Statement couldn't be closed - " + se.getMessage());
+			}
+			try {
+				dbConn.close();
+			} catch (SQLException se) {
+				LOG.info("Connection couldn't be closed - " + se.getMessage());
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	public static JDBCSinkFunctionBuilder buildJDBCSinkFunction() {
+		return new JDBCSinkFunctionBuilder();
+	}
+
+	public static class JDBCSinkFunctionBuilder {
+		private final JDBCSinkFunction sink;
+
+		protected JDBCSinkFunctionBuilder() {
+			this.sink = new JDBCSinkFunction();
+		}
+
+		public JDBCSinkFunctionBuilder setUsername(String username) {
+			sink.username = username;
+			return this;
+		}
+
+		public JDBCSinkFunctionBuilder setPassword(String password) {
+			sink.password = password;
+			return this;
+		}
+
+		public JDBCSinkFunctionBuilder setDrivername(String drivername) {
+			sink.drivername = drivername;
+			return this;
+		}
+
+		public JDBCSinkFunctionBuilder setDBUrl(String dbURL) {
+			sink.dbURL = dbURL;
+			return this;
+		}
+
+		/**
+		 * Sets the insert or upsert statement. The statement has one parameter for each field
+		 * of the written rows.
+		 */
+		public JDBCSinkFunctionBuilder setQuery(String query) {
+			sink.query = query;
+			return this;
+		}
+
+		public JDBCSinkFunctionBuilder setSqlTypes(int[] typesArray) {
+			sink.typesArray = typesArray;
+			return this;
+		}
+
+		/**
+		 * Sets the fields of the primary key. Rows of the same batch with the same key are
+		 * deduplicated, only the last of them is written.
+		 */
+		public JDBCSinkFunctionBuilder setKeyFields(int... keyFields) {
+			sink.keyFields = keyFields;
+			return this;
+		}
+
+		/**
+		 * Sets the number of rows after which a batch is written.
+		 */
+		public JDBCSinkFunctionBuilder setBatchSize(int batchSize) {
+			sink.batchSize = batchSize;
+			return this;
+		}
+
+		/**
+		 * Sets the time after which a batch is written, even if it is not full. A value of 0
+		 * disables time-based writing.
+		 */
+		public JDBCSinkFunctionBuilder setBatchIntervalMs(long batchIntervalMs) {
+			sink.batchIntervalMs = batchIntervalMs;
+			return this;
+		}
+
+		/**
+		 * Sets the number of connections, which is the maximum number of batches in flight.
+		 * Each key is always written by the same connection.
+		 */
+		public JDBCSinkFunctionBuilder setConnectionPoolSize(int connectionPoolSize) {
+			sink.connectionPoolSize = connectionPoolSize;
+			return this;
+		}
+
+		/**
+		 * Finalizes the configuration and checks validity.
+		 *
+		 * @return Configured JDBCSinkFunction
+		 */
+		public JDBCSinkFunction finish() {
+			if (sink.username == null) {
+				LOG.info("Username was not supplied separately.");
+			}
+			if (sink.password == null) {
+				LOG.info("Password was not supplied separately.");
+			}
+			if (sink.dbURL == null) {
+				throw new IllegalArgumentException("No database URL supplied.");
+			}
+			if (sink.query == null) {
+				throw new IllegalArgumentException("No query supplied");
+			}
+			if (sink.drivername == null) {
+				throw new IllegalArgumentException("No driver supplied");
+			}
+			if (sink.batchSize <= 0) {
+				throw new IllegalArgumentException("The batch size must be positive.");
+			}
+			if (sink.batchIntervalMs < 0) {
+				throw new IllegalArgumentException("The batch interval must not be negative.");
+			}
+			if (sink.connectionPoolSize <= 0) {
+				throw new IllegalArgumentException("The connection pool size must be positive.");
+			}
+			if (sink.keyFields != null && sink.keyFields.length == 0) {
+				sink.keyFields = null;
+			}
+
+			return sink;
+		}
+	}
+}
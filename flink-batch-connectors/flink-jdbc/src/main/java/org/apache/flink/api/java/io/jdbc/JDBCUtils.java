@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.api.java.io.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.apache.flink.api.table.Row;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Utility methods shared by the JDBC output format and the JDBC sink function.
+ */
+class JDBCUtils {
+
+	private static final Logger LOG = LoggerFactory.getLogger(JDBCUtils.class);
+
+	/**
+	 * Sets the fields of a row as the parameters of a prepared statement.
+	 *
+	 * WARNING: this may fail when no column types specified (because a best effort approach is attempted in order to
+	 * insert a null value but it's not guaranteed that the JDBC driver handles PreparedStatement.setObject(pos, null))
+	 *
+	 * @param upload The prepared statement whose parameters are set.
+	 * @param typesArray The SQL types of the columns, or null if the types are unknown.
+	 * @param row The record to set to the statement.
+	 * @throws SQLException Thrown, if a parameter could not be set.
+	 */
+	static void setRecordToStatement(PreparedStatement upload, int[] typesArray, Row row) throws SQLException {
+		if (typesArray == null ) {
+			// no types provided
+			for (int index = 0; index < row.productArity(); index++) {
+				LOG.warn("Unknown column type for column %s. Best effort approach to set its value: %s.", index + 1, row.productElement(index));
+				upload.setObject(index + 1, row.productElement(index));
+			}
+		} else {
+			// types provided
+			for (int index = 0; index < row.productArity(); index++) {
+
+				if (row.productElement(index) == null) {
+					upload.setNull(index + 1, typesArray[index]);
+				} else {
+					// casting values as suggested by http://docs.oracle.com/javase/1.5.0/docs/guide/jdbc/getstart/mapping.html
+					switch (typesArray[index]) {
+						case java.sql.Types.NULL:
+							upload.setNull(index + 1, typesArray[index]);
+							break;
+						case java.sql.Types.BOOLEAN:
+						case java.sql.Types.BIT:
+							upload.setBoolean(index + 1, (boolean) row.productElement(index));
+							break;
+						case java.sql.Types.CHAR:
+						case java.sql.Types.NCHAR:
+						case java.sql.Types.VARCHAR:
+						case java.sql.Types.LONGVARCHAR:
+						case java.sql.Types.LONGNVARCHAR:
+							upload.setString(index + 1, (String) row.productElement(index));
+							break;
+						case java.sql.Types.TINYINT:
+							upload.setByte(index + 1, (byte) row.productElement(index));
+							break;
+						case java.sql.Types.SMALLINT:
+							upload.setShort(index + 1, (short) row.productElement(index));
+							break;
+						case java.sql.Types.INTEGER:
+							upload.setInt(index + 1, (int) row.productElement(index));
+							break;
+						case java.sql.Types.BIGINT:
+							upload.setLong(index + 1, (long) row.productElement(index));
+							break;
+						case java.sql.Types.REAL:
+							upload.setFloat(index + 1, (float) row.productElement(index));
+							break;
+						case java.sql.Types.FLOAT:
+						case java.sql.Types.DOUBLE:
+							upload.setDouble(index + 1, (double) row.productElement(index));
+							break;
+						case java.sql.Types.DECIMAL:
+						case java.sql.Types.NUMERIC:
+							upload.setBigDecimal(index + 1, (java.math.BigDecimal) row.productElement(index));
+							break;
+						case java.sql.Types.DATE:
+							upload.setDate(index + 1, (java.sql.Date) row.productElement(index));
+							break;
+						case java.sql.Types.TIME:
+							upload.setTime(index + 1, (java.sql.Time) row.productElement(index));
+							break;
+						case java.sql.Types.TIMESTAMP:
+							upload.setTimestamp(index + 1, (java.sql.Timestamp) row.productElement(index));
+							break;
+						case java.sql.Types.BINARY:
+						case java.sql.Types.VARBINARY:
+						case java.sql.Types.LONGVARBINARY:
+							upload.setBytes(index + 1, (byte[]) row.productElement(index));
+							break;
+						default:
+							upload.setObject(index + 1, row.productElement(index));
+							LOG.warn("Unmanaged sql type (%s) for column %s. Best effort approach to set its value: %s.",
+								typesArray[index], index + 1, row.productElement(index));
+							// case java.sql.Types.SQLXML
+							// case java.sql.Types.ARRAY:
+							// case java.sql.Types.JAVA_OBJECT:
+							// case java.sql.Types.BLOB:
+							// case java.sql.Types.CLOB:
+							// case java.sql.Types.NCLOB:
+							// case java.sql.Types.DATALINK:
+							// case java.sql.Types.DISTINCT:
+							// case java.sql.Types.OTHER:
+							// case java.sql.Types.REF:
+							// case java.sql.Types.ROWID:
+							// case java.sql.Types.STRUC
+					}
+				}
+			}
+		}
+	}
+
+	private JDBCUtils() {
+	}
+}
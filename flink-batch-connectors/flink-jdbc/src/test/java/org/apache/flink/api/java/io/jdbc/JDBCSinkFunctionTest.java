@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.api.java.io.jdbc;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.apache.flink.api.table.Row;
+import org.apache.flink.configuration.Configuration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JDBCSinkFunctionTest extends JDBCTestBase {
+
+	private JDBCSinkFunction sink;
+
+	@After
+	public void tearDown() throws Exception {
+		if (sink != null) {
+			try {
+				sink.close();
+			} catch (IOException e) {
+				// expected for the tests with failing batches
+			}
+		}
+		sink = null;
+
+		try (
+			Connection dbConn = DriverManager.getConnection(DB_URL);
+			Statement stat = dbConn.createStatement()
+		) {
+			stat.executeUpdate("DELETE FROM " + OUTPUT_TABLE);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIncompleteConfiguration() {
+		JDBCSinkFunction.buildJDBCSinkFunction()
+				.setDrivername(DRIVER_CLASS)
+				.setQuery(String.format(INSERT_TEMPLATE, OUTPUT_TABLE))
+				.finish();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidQuery() throws Exception {
+		sink = JDBCSinkFunction.buildJDBCSinkFunction()
+				.setDrivername(DRIVER_CLASS)
+				.setDBUrl(DB_URL)
+				.setQuery("iamnotsql")
+				.finish();
+		sink.open(new Configuration());
+	}
+
+	@Test
+	public void testFlushOnSnapshot() throws Exception {
+		sink = JDBCSinkFunction.buildJDBCSinkFunction()
+				.setDrivername(DRIVER_CLASS)
+				.setDBUrl(DB_URL)
+				.setQuery(String.format(INSERT_TEMPLATE, OUTPUT_TABLE))
+				.setBatchSize(100)
+				.setConnectionPoolSize(2)
+				.finish();
+		sink.open(new Configuration());
+
+		for (Object[] record : testData) {
+			sink.invoke(toRow(record));
+		}
+		Assert.assertEquals(0, countOutputRows());
+
+		sink.snapshotState(null);
+		Assert.assertEquals(testData.length, countOutputRows());
+	}
+
+	@Test
+	public void testFlushOnBatchSize() throws Exception {
+		sink = JDBCSinkFunction.buildJDBCSinkFunction()
+				.setDrivername(DRIVER_CLASS)
+				.setDBUrl(DB_URL)
+				.setQuery(String.format(INSERT_TEMPLATE, OUTPUT_TABLE))
+				.setBatchSize(3)
+				.setConnectionPoolSize(3)
+				.finish();
+		sink.open(new Configuration());
+
+		for (Object[] record : testData) {
+			sink.invoke(toRow(record));
+		}
+		sink.close();
+		sink = null;
+
+		Assert.assertEquals(testData.length, countOutputRows());
+	}
+
+	@Test
+	public void testFlushOnBatchInterval() throws Exception {
+		sink = JDBCSinkFunction.buildJDBCSinkFunction()
+				.setDrivername(DRIVER_CLASS)
+				.setDBUrl(DB_URL)
+				.setQuery(String.format(INSERT_TEMPLATE, OUTPUT_TABLE))
+				.setBatchSize(100)
+				.setBatchIntervalMs(10)
+				.finish();
+		sink.open(new Configuration());
+
+		for (Object[] record : testData) {
+			sink.invoke(toRow(record));
+		}
+
+		long deadline = System.currentTimeMillis() + 30000;
+		while (countOutputRows() < testData.length && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Assert.assertEquals(testData.length, countOutputRows());
+	}
+
+	@Test
+	public void testDeduplicationByKey() throws Exception {
+		sink = JDBCSinkFunction.buildJDBCSinkFunction()
+				.setDrivername(DRIVER_CLASS)
+				.setDBUrl(DB_URL)
+				.setQuery(String.format(INSERT_TEMPLATE, OUTPUT_TABLE))
+				.setKeyFields(0)
+				.setBatchSize(100)
+				.finish();
+		sink.open(new Configuration());
+
+		// the same key twice within a batch would violate the primary key without deduplication
+		Object[] updated = testData[0].clone();
+		updated[1] = "Java public for experts";
+		sink.invoke(toRow(testData[0]));
+		sink.invoke(toRow(testData[1]));
+		sink.invoke(toRow(updated));
+		sink.snapshotState(null);
+
+		Assert.assertEquals(2, countOutputRows());
+		try (
+			Connection dbConn = DriverManager.getConnection(DB_URL);
+			PreparedStatement statement = dbConn.prepareStatement(SELECT_ALL_NEWBOOKS + " WHERE id = 1001");
+			ResultSet resultSet = statement.executeQuery()
+		) {
+			Assert.assertTrue(resultSet.next());
+			Assert.assertEquals("Java public for experts", resultSet.getString(2));
+		}
+	}
+
+	/**
+	 * Writes many versions of the same key in batches of one row over several connections.
+	 * The last version has to win, even though the batches are written concurrently.
+	 */
+	@Test
+	public void testVersionsOfKeyAreWrittenInOrder() throws Exception {
+		try (
+			Connection dbConn = DriverManager.getConnection(DB_URL);
+			Statement stat = dbConn.createStatement()
+		) {
+			stat.executeUpdate("INSERT INTO " + OUTPUT_TABLE + " (id, title) VALUES (1001, 'initial')");
+		}
+
+		sink = JDBCSinkFunction.buildJDBCSinkFunction()
+				.setDrivername(DRIVER_CLASS)
+				.setDBUrl(DB_URL)
+				.setQuery("UPDATE " + OUTPUT_TABLE + " SET title = ? WHERE id = ?")
+				.setKeyFields(1)
+				.setBatchSize(1)
+				.setConnectionPoolSize(4)
+				.finish();
+		sink.open(new Configuration());
+
+		final int numVersions = 200;
+		for (int i = 0; i < numVersions; i++) {
+			Row row = new Row(2);
+			row.setField(0, "version " + i);
+			row.setField(1, 1001);
+			sink.invoke(row);
+		}
+		sink.snapshotState(null);
+
+		try (
+			Connection dbConn = DriverManager.getConnection(DB_URL);
+			PreparedStatement statement = dbConn.prepareStatement(SELECT_ALL_NEWBOOKS + " WHERE id = 1001");
+			ResultSet resultSet = statement.executeQuery()
+		) {
+			Assert.assertTrue(resultSet.next());
+			Assert.assertEquals("version " + (numVersions - 1), resultSet.getString(2));
+		}
+	}
+
+	/**
+	 * Closing the sink interrupts the flush scheduler, which must not fail the final flush.
+	 */
+	@Test
+	public void testCloseWithBatchInterval() throws Exception {
+		sink = JDBCSinkFunction.buildJDBCSinkFunction()
+				.setDrivername(DRIVER_CLASS)
+				.setDBUrl(DB_URL)
+				.setQuery(String.format(INSERT_TEMPLATE, OUTPUT_TABLE))
+				.setBatchSize(1)
+				.setBatchIntervalMs(1)
+				.setConnectionPoolSize(1)
+				.finish();
+		sink.open(new Configuration());
+
+		for (Object[] record : testData) {
+			sink.invoke(toRow(record));
+		}
+		sink.close();
+		sink = null;
+
+		Assert.assertEquals(testData.length, countOutputRows());
+	}
+
+	@Test(expected = IOException.class)
+	public void testFailedBatchIsReported() throws Exception {
+		sink = JDBCSinkFunction.buildJDBCSinkFunction()
+				.setDrivername(DRIVER_CLASS)
+				.setDBUrl(DB_URL)
+				.setQuery(String.format(INSERT_TEMPLATE, OUTPUT_TABLE))
+				.setBatchSize(100)
+				.finish();
+		sink.open(new Configuration());
+
+		sink.invoke(toRow(testData[0]));
+		sink.snapshotState(null);
+
+		// a plain insert of the same key fails
+		sink.invoke(toRow(testData[0]));
+		sink.snapshotState(null);
+	}
+
+	private static Row toRow(Object[] record) {
+		Row row = new Row(record.length);
+		for (int i = 0; i < record.length; i++) {
+			row.setField(i, record[i]);
+		}
+		return row;
+	}
+
+	private static int countOutputRows() throws SQLException {
+		try (
+			Connection dbConn = DriverManager.getConnection(DB_URL);
+			PreparedStatement statement = dbConn.prepareStatement("SELECT COUNT(*) FROM " + OUTPUT_TABLE);
+			ResultSet resultSet = statement.executeQuery()
+		) {
+			resultSet.next();
+			return resultSet.getInt(1);
+		}
+	}
+}
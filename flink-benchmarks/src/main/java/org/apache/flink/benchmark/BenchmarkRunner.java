@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.benchmark;
+
+import org.apache.flink.runtime.util.EnvironmentInformation;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and writes the results as JSON, so that the results of different
+ * versions can be collected and compared.
+ *
+ * <p>Usage: {@code java -jar benchmarks.jar [<result file> [<benchmark regex>]]}
+ *
+ * <p>The result file defaults to {@code jmh-result-<flink version>.json} in the working
+ * directory. The regular expression selects the benchmarks to run and defaults to all
+ * benchmarks. The standard JMH command line is available through {@code org.openjdk.jmh.Main}.
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws RunnerException {
+		String resultFile = args.length > 0 ?
+			args[0] :
+			"jmh-result-" + EnvironmentInformation.getVersion() + ".json";
+
+		String include = args.length > 1 ?
+			args[1] :
+			BenchmarkRunner.class.getPackage().getName() + ".*";
+
+		Options options = new OptionsBuilder()
+			.include(include)
+			.resultFormat(ResultFormatType.JSON)
+			.result(resultFile)
+			.build();
+
+		new Runner(options).run();
+	}
+}
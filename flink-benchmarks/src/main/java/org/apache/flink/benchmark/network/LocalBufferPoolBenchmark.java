@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.benchmark.network;
+
+import org.apache.flink.benchmark.BenchmarkBase;
+import org.apache.flink.core.memory.MemoryType;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferPool;
+import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+
+/**
+ * Benchmarks requesting buffers from and recycling them to a
+ * {@link org.apache.flink.runtime.io.network.buffer.LocalBufferPool}.
+ *
+ * <p>The buffer pool is shared by all benchmark threads. The multi-threaded benchmark measures
+ * the contention on the pool, like between a task thread that requests buffers and the network
+ * threads that recycle them.
+ */
+@State(Scope.Benchmark)
+public class LocalBufferPoolBenchmark extends BenchmarkBase {
+
+	private static final int BUFFER_SIZE = 32768;
+
+	/** The number of buffers of the local pool, each benchmark thread holds at most this many */
+	private static final int NUM_BUFFERS = 16;
+
+	private NetworkBufferPool networkBufferPool;
+
+	private BufferPool bufferPool;
+
+	private Buffer[] buffers;
+
+	@Setup
+	public void setup() throws IOException {
+		networkBufferPool = new NetworkBufferPool(NUM_BUFFERS * 4, BUFFER_SIZE, MemoryType.HEAP);
+		bufferPool = networkBufferPool.createBufferPool(NUM_BUFFERS, true);
+		buffers = new Buffer[NUM_BUFFERS];
+	}
+
+	@TearDown
+	public void tearDown() {
+		bufferPool.lazyDestroy();
+		networkBufferPool.destroy();
+	}
+
+	@Benchmark
+	public void requestAndRecycle() throws IOException {
+		requestBuffer().recycle();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void requestAndRecycleConcurrently() throws IOException {
+		requestBuffer().recycle();
+	}
+
+	/**
+	 * Requests all buffers of the pool before recycling them, like a task whose output is
+	 * back-pressured.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(NUM_BUFFERS)
+	public void requestAllAndRecycle() throws IOException {
+		for (int i = 0; i < NUM_BUFFERS; i++) {
+			buffers[i] = requestBuffer();
+		}
+		for (int i = 0; i < NUM_BUFFERS; i++) {
+			buffers[i].recycle();
+			buffers[i] = null;
+		}
+	}
+
+	private Buffer requestBuffer() throws IOException {
+		Buffer buffer = bufferPool.requestBuffer();
+		if (buffer == null) {
+			throw new IllegalStateException("The buffer pool is exhausted.");
+		}
+		return buffer;
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.benchmark.network;
+
+import org.apache.flink.api.common.typeutils.base.array.BytePrimitiveArraySerializer;
+import org.apache.flink.benchmark.BenchmarkBase;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.io.network.api.serialization.AdaptiveSpanningRecordDeserializer;
+import org.apache.flink.runtime.io.network.api.serialization.RecordDeserializer;
+import org.apache.flink.runtime.io.network.api.serialization.RecordSerializer;
+import org.apache.flink.runtime.io.network.api.serialization.SpanningRecordSerializer;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
+import org.apache.flink.runtime.plugable.NonReusingDeserializationDelegate;
+import org.apache.flink.runtime.plugable.SerializationDelegate;
+import org.apache.flink.streaming.runtime.streamrecord.StreamElement;
+import org.apache.flink.streaming.runtime.streamrecord.StreamElementSerializer;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Benchmarks the {@link SpanningRecordSerializer} and the {@link AdaptiveSpanningRecordDeserializer}
+ * the way the stream tasks use them: stream records are written into network buffers, and each
+ * full buffer is handed to the deserializer, like a local input channel does.
+ *
+ * <p>Large records span several buffers, which exercises the spanning code paths of both sides.
+ */
+@State(Scope.Thread)
+public class RecordSerializationBenchmark extends BenchmarkBase {
+
+	private static final int RECORDS_PER_INVOCATION = 10_000;
+
+	/** The size of the network buffers, the default of the task managers */
+	private static final int BUFFER_SIZE = 32768;
+
+	/** The size of the payload of each record in bytes */
+	@Param({"16", "512", "65536"})
+	public int recordSize;
+
+	private RecordSerializer<SerializationDelegate<StreamElement>> serializer;
+
+	private RecordDeserializer<NonReusingDeserializationDelegate<StreamElement>> deserializer;
+
+	private SerializationDelegate<StreamElement> serializationDelegate;
+
+	private NonReusingDeserializationDelegate<StreamElement> deserializationDelegate;
+
+	private Buffer buffer;
+
+	private StreamRecord<byte[]> record;
+
+	@Setup
+	public void setup() throws IOException {
+		StreamElementSerializer<byte[]> elementSerializer =
+			new StreamElementSerializer<>(BytePrimitiveArraySerializer.INSTANCE);
+
+		serializer = new SpanningRecordSerializer<>();
+		deserializer = new AdaptiveSpanningRecordDeserializer<>();
+		serializationDelegate = new SerializationDelegate<>(elementSerializer);
+		deserializationDelegate = new NonReusingDeserializationDelegate<>(elementSerializer);
+
+		byte[] payload = new byte[recordSize];
+		new Random(42).nextBytes(payload);
+		record = new StreamRecord<>(payload, 1L);
+
+		buffer = new Buffer(MemorySegmentFactory.allocateUnpooledSegment(BUFFER_SIZE), FreeingBufferRecycler.INSTANCE);
+		serializer.setNextBuffer(buffer);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RECORDS_PER_INVOCATION)
+	public void serializeAndDeserialize(Blackhole blackhole) throws IOException {
+		for (int i = 0; i < RECORDS_PER_INVOCATION; i++) {
+			serializationDelegate.setInstance(record);
+
+			RecordSerializer.SerializationResult result = serializer.addRecord(serializationDelegate);
+			while (result.isFullBuffer()) {
+				consumeBuffer(serializer.getCurrentBuffer(), blackhole);
+				result = serializer.setNextBuffer(resetBuffer());
+			}
+		}
+
+		// flush the partially filled buffer, like the record writer does at the end of a batch
+		consumeBuffer(serializer.getCurrentBuffer(), blackhole);
+		serializer.clearCurrentBuffer();
+		serializer.setNextBuffer(resetBuffer());
+	}
+
+	private void consumeBuffer(Buffer buffer, Blackhole blackhole) throws IOException {
+		deserializer.setNextMemorySegment(buffer.getMemorySegment(), buffer.getSize());
+
+		// the deserializer copies a partial record at the end of the buffer, so that the
+		// buffer can be reused afterwards
+		while (deserializer.getNextRecord(deserializationDelegate).isFullRecord()) {
+			blackhole.consume(deserializationDelegate.getInstance());
+		}
+	}
+
+	private Buffer resetBuffer() {
+		buffer.setSize(BUFFER_SIZE);
+		return buffer;
+	}
+}
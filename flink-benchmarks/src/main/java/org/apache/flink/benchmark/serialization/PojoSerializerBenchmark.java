@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.benchmark.serialization;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.java.typeutils.PojoTypeInfo;
+import org.apache.flink.api.java.typeutils.TypeExtractor;
+import org.apache.flink.benchmark.BenchmarkBase;
+import org.apache.flink.runtime.util.DataInputDeserializer;
+import org.apache.flink.runtime.util.DataOutputSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+
+/**
+ * Benchmarks the {@link org.apache.flink.api.java.typeutils.runtime.PojoSerializer} with a POJO
+ * that has fields of primitive, String, array and nested POJO types.
+ */
+@State(Scope.Thread)
+public class PojoSerializerBenchmark extends BenchmarkBase {
+
+	private TypeSerializer<Order> serializer;
+
+	private Order order;
+
+	private Order reuse;
+
+	private DataOutputSerializer output;
+
+	private DataInputDeserializer input;
+
+	private byte[] serializedOrder;
+
+	@Setup
+	public void setup() throws IOException {
+		TypeInformation<Order> typeInfo = TypeExtractor.createTypeInfo(Order.class);
+		if (!(typeInfo instanceof PojoTypeInfo)) {
+			throw new IllegalStateException("The benchmark type is not analyzed as a POJO: " + typeInfo);
+		}
+
+		serializer = typeInfo.createSerializer(new ExecutionConfig());
+
+		order = new Order();
+		order.id = 42L;
+		order.customer = "customer-4711";
+		order.quantity = 17;
+		order.price = 99.95;
+		order.express = true;
+		order.itemIds = new long[] {1L, 2L, 3L, 5L, 8L, 13L, 21L, 34L};
+		order.shippingAddress = new Address();
+		order.shippingAddress.street = "Main Street 1";
+		order.shippingAddress.city = "Berlin";
+		order.shippingAddress.zipCode = 10115;
+
+		reuse = serializer.createInstance();
+
+		output = new DataOutputSerializer(256);
+		serializer.serialize(order, output);
+		serializedOrder = output.getCopyOfBuffer();
+
+		input = new DataInputDeserializer();
+	}
+
+	@Benchmark
+	public int serialize() throws IOException {
+		output.clear();
+		serializer.serialize(order, output);
+		return output.length();
+	}
+
+	@Benchmark
+	public Order deserialize() throws IOException {
+		input.setBuffer(serializedOrder, 0, serializedOrder.length);
+		return serializer.deserialize(input);
+	}
+
+	@Benchmark
+	public Order deserializeWithReuse() throws IOException {
+		input.setBuffer(serializedOrder, 0, serializedOrder.length);
+		return serializer.deserialize(reuse, input);
+	}
+
+	@Benchmark
+	public Order copy() {
+		return serializer.copy(order);
+	}
+
+	// ------------------------------------------------------------------------
+	//  benchmark types
+	// ------------------------------------------------------------------------
+
+	/**
+	 * The POJO that is serialized.
+	 */
+	public static class Order {
+
+		public long id;
+
+		public String customer;
+
+		public int quantity;
+
+		public double price;
+
+		public boolean express;
+
+		public long[] itemIds;
+
+		public Address shippingAddress;
+
+		public Order() {}
+	}
+
+	/**
+	 * A POJO that is nested in the serialized POJO.
+	 */
+	public static class Address {
+
+		public String street;
+
+		public String city;
+
+		public int zipCode;
+
+		public Address() {}
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.benchmark.state;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.api.common.state.ListState;
+import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.base.LongSerializer;
+import org.apache.flink.benchmark.BenchmarkBase;
+import org.apache.flink.contrib.streaming.state.RocksDBStateBackend;
+import org.apache.flink.runtime.operators.testutils.DummyEnvironment;
+import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
+import org.apache.flink.runtime.state.AbstractStateBackend;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.runtime.state.memory.MemoryStateBackend;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Benchmarks the access to value, list and map state of the keyed state backends.
+ *
+ * <p>The states are populated for a fixed set of keys before the measurement. Each operation
+ * switches to a random key of the set before it accesses the state, like an operator that
+ * processes the records of many keys.
+ */
+@State(Scope.Thread)
+public class KeyedStateBackendBenchmark extends BenchmarkBase {
+
+	private static final int NUM_KEYS = 100_000;
+
+	private static final int NUM_KEY_GROUPS = 128;
+
+	/** The number of entries of the map state of each key */
+	private static final int MAP_ENTRIES_PER_KEY = 16;
+
+	/** The keyed state backend that is benchmarked */
+	@Param({"HEAP", "ROCKSDB"})
+	public StateBackendType backendType;
+
+	private File tempDirectory;
+
+	private AbstractKeyedStateBackend<Long> backend;
+
+	private ValueState<Long> valueState;
+
+	private ListState<Long> listState;
+
+	private MapState<Long, Long> mapState;
+
+	private long[] keys;
+
+	private int nextKeyIndex;
+
+	@Setup
+	public void setup() throws Exception {
+		tempDirectory = Files.createTempDirectory("flink-state-benchmark").toFile();
+
+		AbstractStateBackend stateBackend;
+		switch (backendType) {
+			case HEAP:
+				stateBackend = new MemoryStateBackend();
+				break;
+			case ROCKSDB:
+				RocksDBStateBackend rocksDBStateBackend =
+					new RocksDBStateBackend(new File(tempDirectory, "checkpoints").toURI());
+				rocksDBStateBackend.setDbStoragePath(new File(tempDirectory, "db").getAbsolutePath());
+				stateBackend = rocksDBStateBackend;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown state backend type " + backendType);
+		}
+
+		DummyEnvironment env = new DummyEnvironment("benchmark", 1, 0);
+		backend = stateBackend.createKeyedStateBackend(
+			env,
+			new JobID(),
+			"benchmark_op",
+			LongSerializer.INSTANCE,
+			NUM_KEY_GROUPS,
+			new KeyGroupRange(0, NUM_KEY_GROUPS - 1),
+			env.getTaskKvStateRegistry());
+
+		valueState = backend.getPartitionedState(
+			VoidNamespace.INSTANCE,
+			VoidNamespaceSerializer.INSTANCE,
+			new ValueStateDescriptor<>("value", LongSerializer.INSTANCE, null));
+
+		listState = backend.getPartitionedState(
+			VoidNamespace.INSTANCE,
+			VoidNamespaceSerializer.INSTANCE,
+			new ListStateDescriptor<>("list", LongSerializer.INSTANCE));
+
+		mapState = backend.getPartitionedState(
+			VoidNamespace.INSTANCE,
+			VoidNamespaceSerializer.INSTANCE,
+			new MapStateDescriptor<>("map", LongSerializer.INSTANCE, LongSerializer.INSTANCE));
+
+		// access the keys in a random order that is the same for all backends
+		Random random = new Random(42);
+		keys = new long[NUM_KEYS];
+		for (int i = 0; i < NUM_KEYS; i++) {
+			keys[i] = random.nextLong();
+		}
+
+		for (long key : keys) {
+			backend.setCurrentKey(key);
+			valueState.update(key);
+			listState.add(key);
+			for (long mapKey = 0; mapKey < MAP_ENTRIES_PER_KEY; mapKey++) {
+				mapState.put(mapKey, key);
+			}
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		backend.dispose();
+		FileUtils.deleteDirectory(tempDirectory);
+	}
+
+	@Benchmark
+	public Long valueGet() throws Exception {
+		backend.setCurrentKey(nextKey());
+		return valueState.value();
+	}
+
+	@Benchmark
+	public void valueUpdate() throws Exception {
+		long key = nextKey();
+		backend.setCurrentKey(key);
+		valueState.update(key);
+	}
+
+	@Benchmark
+	public void listAdd() throws Exception {
+		long key = nextKey();
+		backend.setCurrentKey(key);
+		listState.add(key);
+	}
+
+	@Benchmark
+	public Long mapGet() throws Exception {
+		long key = nextKey();
+		backend.setCurrentKey(key);
+		return mapState.get(key & (MAP_ENTRIES_PER_KEY - 1));
+	}
+
+	@Benchmark
+	public void mapPut() throws Exception {
+		long key = nextKey();
+		backend.setCurrentKey(key);
+		mapState.put(key & (MAP_ENTRIES_PER_KEY - 1), key);
+	}
+
+	private long nextKey() {
+		long key = keys[nextKeyIndex];
+		nextKeyIndex = nextKeyIndex + 1 < NUM_KEYS ? nextKeyIndex + 1 : 0;
+		return key;
+	}
+
+	/**
+	 * The keyed state backends that are benchmarked.
+	 */
+	public enum StateBackendType {
+		HEAP,
+		ROCKSDB
+	}
+}
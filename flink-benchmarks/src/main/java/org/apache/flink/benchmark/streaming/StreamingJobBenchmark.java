@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.benchmark.streaming;
+
+import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.common.functions.RichMapFunction;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.base.LongSerializer;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.benchmark.BenchmarkBase;
+import org.apache.flink.configuration.ConfigConstants;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.runtime.minicluster.LocalFlinkMiniCluster;
+import org.apache.flink.runtime.state.memory.MemoryStateBackend;
+import org.apache.flink.streaming.api.CheckpointingMode;
+import org.apache.flink.streaming.api.TimeCharacteristic;
+import org.apache.flink.streaming.api.checkpoint.ListCheckpointed;
+import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+import org.apache.flink.streaming.api.functions.sink.DiscardingSink;
+import org.apache.flink.streaming.api.functions.source.RichParallelSourceFunction;
+import org.apache.flink.streaming.api.functions.timestamps.AscendingTimestampExtractor;
+import org.apache.flink.streaming.api.windowing.time.Time;
+import org.apache.flink.streaming.util.TestStreamEnvironment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * End-to-end throughput benchmarks of streaming jobs on a local mini cluster.
+ *
+ * <p>Each invocation runs a complete job with a bounded, parallel source. The scores therefore
+ * include the deployment of the job, which is small compared to the processing of the records.
+ * The scores are records per millisecond, summed over all parallel source instances.
+ */
+@State(Scope.Benchmark)
+@OperationsPerInvocation(StreamingJobBenchmark.RECORDS_PER_INVOCATION)
+public class StreamingJobBenchmark extends BenchmarkBase {
+
+	static final int RECORDS_PER_INVOCATION = 4_000_000;
+
+	private static final int PARALLELISM = 4;
+
+	private static final int NUM_KEYS = 1000;
+
+	private LocalFlinkMiniCluster cluster;
+
+	@Setup
+	public void startCluster() throws Exception {
+		Configuration config = new Configuration();
+		config.setInteger(ConfigConstants.LOCAL_NUMBER_TASK_MANAGER, 1);
+		config.setInteger(ConfigConstants.TASK_MANAGER_NUM_TASK_SLOTS, PARALLELISM);
+		config.setLong(ConfigConstants.TASK_MANAGER_MEMORY_SIZE_KEY, 256L);
+
+		cluster = new LocalFlinkMiniCluster(config, false);
+		cluster.start();
+	}
+
+	@TearDown
+	public void stopCluster() throws Exception {
+		if (cluster != null) {
+			cluster.stop();
+			cluster = null;
+		}
+	}
+
+	/**
+	 * Shuffles the records by key into a rolling aggregation.
+	 */
+	@Benchmark
+	public void keyBy() throws Exception {
+		StreamExecutionEnvironment env = createEnvironment();
+
+		env.addSource(new LongSource(RECORDS_PER_INVOCATION / PARALLELISM))
+			.keyBy(new ModuloKeySelector())
+			.reduce(new SumReducer())
+			.addSink(new DiscardingSink<Long>());
+
+		env.execute("keyBy benchmark");
+	}
+
+	/**
+	 * Aggregates the records in tumbling event time windows per key.
+	 */
+	@Benchmark
+	public void tumblingWindow() throws Exception {
+		StreamExecutionEnvironment env = createEnvironment();
+		env.setStreamTimeCharacteristic(TimeCharacteristic.EventTime);
+
+		env.addSource(new LongSource(RECORDS_PER_INVOCATION / PARALLELISM))
+			.assignTimestampsAndWatermarks(new IndexTimestampExtractor())
+			.keyBy(new ModuloKeySelector())
+			.timeWindow(Time.milliseconds(10_000))
+			.reduce(new SumReducer())
+			.addSink(new DiscardingSink<Long>());
+
+		env.execute("window benchmark");
+	}
+
+	/**
+	 * Runs frequent exactly-once checkpoints while the records pass two shuffles, so that the
+	 * keyed operators align the barriers of their input channels.
+	 */
+	@Benchmark
+	public void checkpointAlignment() throws Exception {
+		StreamExecutionEnvironment env = createEnvironment();
+		env.enableCheckpointing(50, CheckpointingMode.EXACTLY_ONCE);
+
+		env.addSource(new LongSource(RECORDS_PER_INVOCATION / PARALLELISM))
+			.keyBy(new ModuloKeySelector())
+			.map(new CountingMapper())
+			.keyBy(new ModuloKeySelector())
+			.reduce(new SumReducer())
+			.addSink(new DiscardingSink<Long>());
+
+		env.execute("checkpoint alignment benchmark");
+	}
+
+	private StreamExecutionEnvironment createEnvironment() {
+		StreamExecutionEnvironment env = new TestStreamEnvironment(cluster, PARALLELISM);
+		env.getConfig().disableSysoutLogging();
+		env.setStateBackend(new MemoryStateBackend());
+		return env;
+	}
+
+	// ------------------------------------------------------------------------
+	//  functions
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Emits the given number of ascending longs per parallel instance. The position is
+	 * checkpointed, so that the source takes part in the checkpoints.
+	 */
+	private static class LongSource extends RichParallelSourceFunction<Long> implements ListCheckpointed<Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long numRecords;
+
+		private long nextRecord;
+
+		private volatile boolean running = true;
+
+		LongSource(long numRecords) {
+			this.numRecords = numRecords;
+		}
+
+		@Override
+		public void run(SourceContext<Long> ctx) throws Exception {
+			final Object lock = ctx.getCheckpointLock();
+
+			while (running && nextRecord < numRecords) {
+				synchronized (lock) {
+					ctx.collect(nextRecord++);
+				}
+			}
+		}
+
+		@Override
+		public void cancel() {
+			running = false;
+		}
+
+		@Override
+		public List<Long> snapshotState(long checkpointId, long timestamp) throws Exception {
+			return Collections.singletonList(nextRecord);
+		}
+
+		@Override
+		public void restoreState(List<Long> state) throws Exception {
+			nextRecord = state.isEmpty() ? 0 : state.get(0);
+		}
+	}
+
+	private static class ModuloKeySelector implements KeySelector<Long, Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Long getKey(Long value) throws Exception {
+			return value % NUM_KEYS;
+		}
+	}
+
+	private static class SumReducer implements ReduceFunction<Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Long reduce(Long value1, Long value2) throws Exception {
+			return value1 + value2;
+		}
+	}
+
+	private static class IndexTimestampExtractor extends AscendingTimestampExtractor<Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public long extractAscendingTimestamp(Long element) {
+			return element;
+		}
+	}
+
+	/**
+	 * Counts the records per key in keyed state, so that the checkpoints contain keyed state.
+	 */
+	private static class CountingMapper extends RichMapFunction<Long, Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		private transient ValueState<Long> count;
+
+		@Override
+		public void open(Configuration parameters) throws Exception {
+			count = getRuntimeContext().getState(
+				new ValueStateDescriptor<>("count", LongSerializer.INSTANCE, 0L));
+		}
+
+		@Override
+		public Long map(Long value) throws Exception {
+			long newCount = count.value() + 1;
+			count.update(newCount);
+			return newCount;
+		}
+	}
+}
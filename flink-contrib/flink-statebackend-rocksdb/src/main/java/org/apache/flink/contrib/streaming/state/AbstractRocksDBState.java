@@ -53,7 +53,7 @@ public abstract class AbstractRocksDBState<K, N, S extends State, SD extends Sta
 	private static final Logger LOG = LoggerFactory.getLogger(AbstractRocksDBState.class);
 
 	/** Serializer for the namespace */
-	private final TypeSerializer<N> namespaceSerializer;
+	protected final TypeSerializer<N> namespaceSerializer;
 
 	/** The current namespace, which the next value methods will refer to */
 	private N currentNamespace;
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.api.common.functions.AggregateFunction;
+import org.apache.flink.api.common.state.AggregatingState;
+import org.apache.flink.api.common.state.AggregatingStateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.state.MergeableKvState;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteOptions;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * {@link AggregatingState} implementation that stores state in RocksDB. The database holds
+ * the serialized accumulators of the {@link AggregateFunction}.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <IN> The type of the values added to the state.
+ * @param <ACC> The type of the accumulator that the state stores.
+ * @param <OUT> The type of the values returned from the state.
+ */
+public class RocksDBAggregatingState<K, N, IN, ACC, OUT>
+	extends AbstractRocksDBState<K, N, AggregatingState<IN, OUT>, AggregatingStateDescriptor<IN, ACC, OUT>, ACC>
+	implements AggregatingState<IN, OUT>, MergeableKvState<N> {
+
+	/** Serializer for the accumulators */
+	private final TypeSerializer<ACC> accumulatorSerializer;
+
+	/** User-specified aggregate function */
+	private final AggregateFunction<IN, ACC, OUT> aggFunction;
+
+	/**
+	 * We disable writes to the write-ahead-log here. We can't have these in the base class
+	 * because JNI segfaults for some reason if they are.
+	 */
+	private final WriteOptions writeOptions;
+
+	/**
+	 * Creates a new {@code RocksDBAggregatingState}.
+	 *
+	 * @param namespaceSerializer The serializer for the namespace.
+	 * @param stateDesc The state identifier for the state. This contains name
+	 *                     and can create a default state value.
+	 */
+	public RocksDBAggregatingState(ColumnFamilyHandle columnFamily,
+			TypeSerializer<N> namespaceSerializer,
+			AggregatingStateDescriptor<IN, ACC, OUT> stateDesc,
+			RocksDBKeyedStateBackend<K> backend) {
+
+		super(columnFamily, namespaceSerializer, stateDesc, backend);
+		this.accumulatorSerializer = stateDesc.getSerializer();
+		this.aggFunction = stateDesc.getAggregateFunction();
+
+		writeOptions = new WriteOptions();
+		writeOptions.setDisableWAL(true);
+	}
+
+	@Override
+	public OUT get() {
+		try {
+			writeCurrentKeyWithGroupAndNamespace();
+			byte[] key = keySerializationStream.toByteArray();
+			byte[] valueBytes = backend.db.get(columnFamily, key);
+			if (valueBytes == null) {
+				return null;
+			}
+			return aggFunction.getResult(deserializeAccumulator(valueBytes));
+		} catch (IOException|RocksDBException e) {
+			throw new RuntimeException("Error while retrieving data from RocksDB", e);
+		}
+	}
+
+	@Override
+	public void add(IN value) {
+		if (value == null) {
+			clear();
+			return;
+		}
+
+		try {
+			writeCurrentKeyWithGroupAndNamespace();
+			byte[] key = keySerializationStream.toByteArray();
+			byte[] valueBytes = backend.db.get(columnFamily, key);
+
+			ACC accumulator = valueBytes == null ?
+				aggFunction.createAccumulator() :
+				deserializeAccumulator(valueBytes);
+
+			aggFunction.add(value, accumulator);
+			putAccumulator(key, accumulator);
+		} catch (Exception e) {
+			throw new RuntimeException("Error while adding data to RocksDB", e);
+		}
+	}
+
+	@Override
+	public void mergeNamespaces(N target, Collection<N> sources) {
+		if (sources == null || sources.isEmpty()) {
+			return;
+		}
+
+		final K key = backend.getCurrentKey();
+		final int keyGroup = backend.getCurrentKeyGroupIndex();
+
+		try {
+			ACC merged = null;
+
+			for (N source : sources) {
+				writeKeyWithGroupAndNamespace(keyGroup, key, source);
+				byte[] sourceKey = keySerializationStream.toByteArray();
+				byte[] valueBytes = backend.db.get(columnFamily, sourceKey);
+
+				if (valueBytes != null) {
+					backend.db.remove(columnFamily, writeOptions, sourceKey);
+
+					ACC accumulator = deserializeAccumulator(valueBytes);
+					merged = merged == null ? accumulator : aggFunction.merge(merged, accumulator);
+				}
+			}
+
+			if (merged != null) {
+				writeKeyWithGroupAndNamespace(keyGroup, key, target);
+				byte[] targetKey = keySerializationStream.toByteArray();
+				byte[] valueBytes = backend.db.get(columnFamily, targetKey);
+
+				if (valueBytes != null) {
+					merged = aggFunction.merge(deserializeAccumulator(valueBytes), merged);
+				}
+
+				putAccumulator(targetKey, merged);
+			}
+		} catch (Exception e) {
+			throw new RuntimeException("Error while merging state in RocksDB", e);
+		}
+	}
+
+	private ACC deserializeAccumulator(byte[] valueBytes) throws IOException {
+		return accumulatorSerializer.deserialize(new DataInputViewStreamWrapper(new ByteArrayInputStream(valueBytes)));
+	}
+
+	private void putAccumulator(byte[] key, ACC accumulator) throws IOException, RocksDBException {
+		keySerializationStream.reset();
+		accumulatorSerializer.serialize(accumulator, new DataOutputViewStreamWrapper(keySerializationStream));
+		backend.db.put(columnFamily, writeOptions, key, keySerializationStream.toByteArray());
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.streaming.api.operators.AbstractInternalTimerService;
+import org.apache.flink.streaming.api.operators.InternalTimerQueue;
+import org.apache.flink.streaming.api.operators.InternalTimerService;
+import org.apache.flink.streaming.api.operators.KeyContext;
+import org.apache.flink.streaming.runtime.tasks.ProcessingTimeService;
+import org.apache.flink.util.Preconditions;
+
+/**
+ * {@link InternalTimerService} that stores its timers in RocksDB, in two
+ * {@link RocksDBTimerQueue RocksDBTimerQueues}. The timers are checkpointed with the state of the
+ * {@link RocksDBKeyedStateBackend}.
+ *
+ * @param <K> Type of the keys to which timers are scoped.
+ * @param <N> Type of the namespace to which timers are scoped.
+ */
+public class RocksDBInternalTimerService<K, N> extends AbstractInternalTimerService<K, N> {
+
+	/** The prefix of the names of the column families of the timers */
+	static final String TIMER_STATE_PREFIX = "_timer_state/";
+
+	/** The name of the timer service, unique within the operator */
+	private final String name;
+
+	/** Backend that holds the RocksDB instance in which the timers are stored */
+	private final RocksDBKeyedStateBackend<?> backend;
+
+	// Variables to be set when the service is started.
+
+	private RocksDBTimerQueue<K, N> processingTimeTimersQueue;
+
+	private RocksDBTimerQueue<K, N> eventTimeTimersQueue;
+
+	public RocksDBInternalTimerService(
+			String name,
+			RocksDBKeyedStateBackend<?> backend,
+			KeyContext keyContext,
+			ProcessingTimeService processingTimeService) {
+
+		super(keyContext, processingTimeService);
+
+		this.name = Preconditions.checkNotNull(name);
+		this.backend = Preconditions.checkNotNull(backend);
+	}
+
+	@Override
+	protected InternalTimerQueue<K, N> getProcessingTimeTimersQueue() {
+		return processingTimeTimersQueue;
+	}
+
+	@Override
+	protected InternalTimerQueue<K, N> getEventTimeTimersQueue() {
+		return eventTimeTimersQueue;
+	}
+
+	@Override
+	protected void initializeTimerQueues(TypeSerializer<K> keySerializer, TypeSerializer<N> namespaceSerializer) {
+		this.processingTimeTimersQueue = backend.createTimerQueue(
+				TIMER_STATE_PREFIX + "processing_" + name, keySerializer, namespaceSerializer);
+
+		this.eventTimeTimersQueue = backend.createTimerQueue(
+				TIMER_STATE_PREFIX + "event_" + name, keySerializer, namespaceSerializer);
+	}
+}
@@ -19,10 +19,14 @@ package org.apache.flink.contrib.streaming.state;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.flink.api.common.JobID;
+import org.apache.flink.api.common.state.AggregatingState;
+import org.apache.flink.api.common.state.AggregatingStateDescriptor;
 import org.apache.flink.api.common.state.FoldingState;
 import org.apache.flink.api.common.state.FoldingStateDescriptor;
 import org.apache.flink.api.common.state.ListState;
 import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
 import org.apache.flink.api.common.state.ReducingState;
 import org.apache.flink.api.common.state.ReducingStateDescriptor;
 import org.apache.flink.api.common.state.StateDescriptor;
@@ -40,15 +44,25 @@ import org.apache.flink.runtime.io.async.AbstractAsyncIOCallable;
 import org.apache.flink.runtime.io.async.AsyncStoppableTaskWithCallback;
 import org.apache.flink.runtime.query.TaskKvStateRegistry;
 import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
+import org.apache.flink.runtime.state.CheckpointListener;
 import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.ClosableRegistry;
 import org.apache.flink.runtime.state.DoneFuture;
+import org.apache.flink.runtime.state.IncrementalKeyGroupsStateHandle;
 import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
 import org.apache.flink.runtime.state.KeyGroupsStateHandle;
+import org.apache.flink.runtime.state.StateUtil;
 import org.apache.flink.runtime.state.StreamStateHandle;
 import org.apache.flink.runtime.util.SerializableObject;
+import org.apache.flink.streaming.api.operators.AbstractInternalTimerService;
+import org.apache.flink.streaming.api.operators.InternalTimerServiceFactory;
+import org.apache.flink.streaming.api.operators.KeyContext;
+import org.apache.flink.streaming.runtime.tasks.ProcessingTimeService;
+import org.apache.flink.util.IOUtils;
 import org.apache.flink.util.InstantiationUtil;
 import org.apache.flink.util.Preconditions;
+import org.rocksdb.Checkpoint;
 import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.ColumnFamilyOptions;
@@ -63,14 +77,23 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.concurrent.GuardedBy;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
 import java.util.concurrent.RunnableFuture;
 
 /**
@@ -79,16 +102,23 @@ import java.util.concurrent.RunnableFuture;
  * checkpointing. This state backend can store very large state that exceeds memory and spills
  * to disk. Except for the snapshotting, this class should be accessed as if it is not threadsafe.
  */
-public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
+public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K>
+		implements CheckpointListener, InternalTimerServiceFactory {
 
 	private static final Logger LOG = LoggerFactory.getLogger(RocksDBKeyedStateBackend.class);
 
+	/** The file name suffix of the immutable sst files of RocksDB, which are shared between incremental snapshots */
+	private static final String SST_FILE_SUFFIX = ".sst";
+
 	/** Operator identifier that is used to uniqueify the RocksDB storage path. */
 	private final String operatorIdentifier;
 
 	/** JobID for uniquifying backup paths. */
 	private final JobID jobId;
 
+	/** The options from the options factory, cached */
+	private final DBOptions dbOptions;
+
 	/** The options from the options factory, cached */
 	private final ColumnFamilyOptions columnOptions;
 
@@ -122,6 +152,20 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 	/** Number of bytes required to prefix the key groups. */
 	private final int keyGroupPrefixBytes;
 
+	/** Whether snapshots only upload the sst files that were not part of the last completed checkpoint */
+	private final boolean enableIncrementalCheckpointing;
+
+	/** The uploaded sst files of the incremental snapshots, by checkpoint id */
+	private final SortedMap<Long, Map<String, StreamStateHandle>> materializedSstFiles = new TreeMap<>();
+
+	/** The id of the last completed checkpoint, of which the sst files can be reused */
+	@GuardedBy("materializedSstFiles")
+	private long lastCompletedCheckpointId = -1;
+
+	/** The id of the checkpoint of the last incremental snapshot that was taken */
+	@GuardedBy("materializedSstFiles")
+	private long lastSnapshotCheckpointId = -1;
+
 	public RocksDBKeyedStateBackend(
 			JobID jobId,
 			String operatorIdentifier,
@@ -132,14 +176,17 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			TaskKvStateRegistry kvStateRegistry,
 			TypeSerializer<K> keySerializer,
 			int numberOfKeyGroups,
-			KeyGroupRange keyGroupRange
+			KeyGroupRange keyGroupRange,
+			boolean enableIncrementalCheckpointing
 	) throws Exception {
 
 		super(kvStateRegistry, keySerializer, userCodeClassLoader, numberOfKeyGroups, keyGroupRange);
 
 		this.operatorIdentifier = operatorIdentifier;
 		this.jobId = jobId;
+		this.dbOptions = dbOptions;
 		this.columnOptions = columnFamilyOptions;
+		this.enableIncrementalCheckpointing = enableIncrementalCheckpointing;
 
 		this.instanceBasePath = instanceBasePath;
 		this.instanceRocksDBPath = new File(instanceBasePath, "db");
@@ -186,6 +233,7 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			TypeSerializer<K> keySerializer,
 			int numberOfKeyGroups,
 			KeyGroupRange keyGroupRange,
+			boolean enableIncrementalCheckpointing,
 			Collection<KeyGroupsStateHandle> restoreState
 	) throws Exception {
 
@@ -198,7 +246,8 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			kvStateRegistry,
 			keySerializer,
 			numberOfKeyGroups,
-			keyGroupRange);
+			keyGroupRange,
+			enableIncrementalCheckpointing);
 
 		LOG.info("Initializing RocksDB keyed state backend from snapshot.");
 
@@ -206,8 +255,36 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			LOG.debug("Restoring snapshot from state handles: {}.", restoreState);
 		}
 
-		RocksDBRestoreOperation restoreOperation = new RocksDBRestoreOperation(this);
-		restoreOperation.doRestore(restoreState);
+		if (containsIncrementalStateHandles(restoreState)) {
+			RocksDBIncrementalRestoreOperation restoreOperation = new RocksDBIncrementalRestoreOperation(this);
+			restoreOperation.doRestore(restoreState);
+		} else {
+			RocksDBRestoreOperation restoreOperation = new RocksDBRestoreOperation(this);
+			restoreOperation.doRestore(restoreState);
+		}
+	}
+
+	/**
+	 * Checks whether the given state handles are handles of incremental snapshots. Incremental
+	 * and full snapshots can not be restored together.
+	 */
+	private static boolean containsIncrementalStateHandles(Collection<KeyGroupsStateHandle> stateHandles) {
+		boolean hasIncremental = false;
+		boolean hasFull = false;
+
+		for (KeyGroupsStateHandle stateHandle : stateHandles) {
+			if (stateHandle instanceof IncrementalKeyGroupsStateHandle) {
+				hasIncremental = true;
+			} else if (stateHandle != null) {
+				hasFull = true;
+			}
+		}
+
+		if (hasIncremental && hasFull) {
+			throw new IllegalStateException("Cannot restore from a mix of incremental and full snapshots.");
+		}
+
+		return hasIncremental;
 	}
 
 	/**
@@ -272,6 +349,10 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			return new DoneFuture<>(null);
 		}
 
+		if (enableIncrementalCheckpointing) {
+			return snapshotIncrementally(checkpointId, timestamp, streamFactory);
+		}
+
 		final RocksDBSnapshotOperation snapshotOperation = new RocksDBSnapshotOperation(this, streamFactory);
 		// hold the db lock while operation on the db to guard us against async db disposal
 		synchronized (dbDisposeLock) {
@@ -332,6 +413,111 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		return AsyncStoppableTaskWithCallback.from(ioCallable);
 	}
 
+	private RunnableFuture<KeyGroupsStateHandle> snapshotIncrementally(
+			final long checkpointId,
+			final long timestamp,
+			final CheckpointStreamFactory streamFactory) throws Exception {
+
+		long startTime = System.currentTimeMillis();
+
+		final RocksDBIncrementalSnapshotOperation snapshotOperation =
+				new RocksDBIncrementalSnapshotOperation(this, streamFactory, checkpointId, timestamp);
+
+		// hold the db lock while operation on the db to guard us against async db disposal
+		synchronized (dbDisposeLock) {
+			if (db != null) {
+				snapshotOperation.takeSnapshot();
+			} else {
+				throw new IOException("RocksDB closed.");
+			}
+		}
+
+		// the asynchronous part only reads the local files of the RocksDB checkpoint, not the db
+		AbstractAsyncIOCallable<KeyGroupsStateHandle, ClosableRegistry> ioCallable =
+				new AbstractAsyncIOCallable<KeyGroupsStateHandle, ClosableRegistry>() {
+
+					@Override
+					public ClosableRegistry openIOHandle() throws Exception {
+						ClosableRegistry snapshotStreamRegistry = new ClosableRegistry();
+						cancelStreamRegistry.registerClosable(snapshotStreamRegistry);
+						return snapshotStreamRegistry;
+					}
+
+					@Override
+					public KeyGroupsStateHandle performOperation() throws Exception {
+						long startTime = System.currentTimeMillis();
+
+						KeyGroupsStateHandle stateHandle;
+						try {
+							stateHandle = snapshotOperation.materializeSnapshot(getIoHandle());
+						} finally {
+							cancelStreamRegistry.unregisterClosable(getIoHandle());
+						}
+
+						LOG.info("Incremental RocksDB snapshot (" + streamFactory + ", asynchronous part) in thread " +
+								Thread.currentThread() + " took " + (System.currentTimeMillis() - startTime) + " ms.");
+
+						return stateHandle;
+					}
+
+					@Override
+					public void done() {
+						snapshotOperation.releaseResources();
+					}
+				};
+
+		LOG.info("Incremental RocksDB snapshot (" + streamFactory + ", synchronous part) in thread " +
+				Thread.currentThread() + " took " + (System.currentTimeMillis() - startTime) + " ms.");
+
+		return AsyncStoppableTaskWithCallback.from(ioCallable);
+	}
+
+	/**
+	 * Returns the uploaded sst files that an incremental snapshot for the given checkpoint can
+	 * reuse, and records that a snapshot for the checkpoint is taken.
+	 *
+	 * <p>The files of the last completed checkpoint are only reused if no other snapshot was taken
+	 * since then. Otherwise, a checkpoint that is completed in the meantime could subsume the last
+	 * completed checkpoint and release the files before the new snapshot references them.
+	 */
+	private Map<String, StreamStateHandle> getReusableSstFiles(long checkpointId) {
+		synchronized (materializedSstFiles) {
+			Map<String, StreamStateHandle> reusableSstFiles = null;
+
+			if (lastCompletedCheckpointId == lastSnapshotCheckpointId) {
+				reusableSstFiles = materializedSstFiles.get(lastCompletedCheckpointId);
+			}
+
+			lastSnapshotCheckpointId = checkpointId;
+
+			return reusableSstFiles == null ?
+					new HashMap<String, StreamStateHandle>() :
+					new HashMap<>(reusableSstFiles);
+		}
+	}
+
+	private void addMaterializedSstFiles(long checkpointId, Map<String, StreamStateHandle> sstFiles) {
+		synchronized (materializedSstFiles) {
+			materializedSstFiles.put(checkpointId, sstFiles);
+		}
+	}
+
+	@Override
+	public void notifyCheckpointComplete(long completedCheckpointId) throws Exception {
+		if (!enableIncrementalCheckpointing) {
+			return;
+		}
+
+		synchronized (materializedSstFiles) {
+			if (completedCheckpointId > lastCompletedCheckpointId) {
+				lastCompletedCheckpointId = completedCheckpointId;
+
+				// the files of older checkpoints are never reused again
+				materializedSstFiles.headMap(completedCheckpointId).clear();
+			}
+		}
+	}
+
 	/**
 	 * Encapsulates the process to perform a snapshot of a RocksDBKeyedStateBackend.
 	 */
@@ -718,6 +904,434 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		}
 	}
 
+	/**
+	 * Encapsulates the process to perform an incremental snapshot of a RocksDBKeyedStateBackend.
+	 *
+	 * <p>The synchronous part creates a RocksDB checkpoint in the local instance directory, which
+	 * hard links the immutable sst files of the db. The asynchronous part uploads the files of the
+	 * RocksDB checkpoint, except for the sst files that were already uploaded for the last
+	 * completed checkpoint, and writes the meta data of the k/v states.
+	 */
+	static final class RocksDBIncrementalSnapshotOperation {
+
+		private final RocksDBKeyedStateBackend<?> stateBackend;
+		private final CheckpointStreamFactory checkpointStreamFactory;
+		private final long checkpointId;
+		private final long checkpointTimestamp;
+
+		/** The local directory of the RocksDB checkpoint */
+		private File localCheckpointDirectory;
+
+		/** The state descriptors of all k/v states at the time of the snapshot */
+		private List<StateDescriptor<?, ?>> stateDescriptors;
+
+		/** The uploaded sst files that this snapshot can reuse, by file name */
+		private Map<String, StreamStateHandle> reusableSstFiles;
+
+		/** The files that were uploaded by this snapshot, discarded if the snapshot fails */
+		private final List<StreamStateHandle> uploadedStateHandles = new ArrayList<>();
+
+		RocksDBIncrementalSnapshotOperation(
+				RocksDBKeyedStateBackend<?> stateBackend,
+				CheckpointStreamFactory checkpointStreamFactory,
+				long checkpointId,
+				long checkpointTimestamp) {
+
+			this.stateBackend = stateBackend;
+			this.checkpointStreamFactory = checkpointStreamFactory;
+			this.checkpointId = checkpointId;
+			this.checkpointTimestamp = checkpointTimestamp;
+		}
+
+		/**
+		 * 1) Create the RocksDB checkpoint in the local instance directory. Must be called
+		 * while holding the db lock.
+		 */
+		void takeSnapshot() throws Exception {
+			stateDescriptors = new ArrayList<>(stateBackend.kvStateInformation.size());
+			for (Tuple2<ColumnFamilyHandle, StateDescriptor<?, ?>> column : stateBackend.kvStateInformation.values()) {
+				stateDescriptors.add(column.f1);
+			}
+
+			reusableSstFiles = stateBackend.getReusableSstFiles(checkpointId);
+
+			localCheckpointDirectory = new File(stateBackend.instanceBasePath, "chk-" + checkpointId);
+			if (localCheckpointDirectory.exists()) {
+				FileUtils.deleteDirectory(localCheckpointDirectory);
+			}
+
+			Checkpoint checkpoint = Checkpoint.create(stateBackend.db);
+			try {
+				checkpoint.createCheckpoint(localCheckpointDirectory.getAbsolutePath());
+			} finally {
+				checkpoint.dispose();
+			}
+		}
+
+		/**
+		 * 2) Upload the files of the RocksDB checkpoint and the meta data of the k/v states.
+		 *
+		 * @param snapshotStreamRegistry The registry in which the opened streams are registered,
+		 *                               so that closing it cancels the upload.
+		 * @return The state handle of the incremental snapshot.
+		 */
+		KeyGroupsStateHandle materializeSnapshot(ClosableRegistry snapshotStreamRegistry) throws Exception {
+			Preconditions.checkNotNull(localCheckpointDirectory, "No ongoing snapshot to materialize.");
+
+			try {
+				File[] files = localCheckpointDirectory.listFiles();
+				if (files == null) {
+					throw new IOException("Could not list the files of the local RocksDB checkpoint " +
+							localCheckpointDirectory + '.');
+				}
+
+				Map<String, StreamStateHandle> sharedState = new HashMap<>();
+				Map<String, StreamStateHandle> privateState = new HashMap<>();
+				Set<String> createdSharedState = new HashSet<>();
+
+				for (File file : files) {
+					checkInterrupted();
+
+					String fileName = file.getName();
+					if (fileName.endsWith(SST_FILE_SUFFIX)) {
+						StreamStateHandle stateHandle = reusableSstFiles.get(fileName);
+						if (stateHandle == null) {
+							stateHandle = uploadLocalFile(file, snapshotStreamRegistry);
+							createdSharedState.add(fileName);
+						}
+						sharedState.put(fileName, stateHandle);
+					} else {
+						privateState.put(fileName, uploadLocalFile(file, snapshotStreamRegistry));
+					}
+				}
+
+				StreamStateHandle metaStateHandle = writeMetaData(snapshotStreamRegistry);
+
+				stateBackend.addMaterializedSstFiles(checkpointId, sharedState);
+
+				return new IncrementalKeyGroupsStateHandle(
+						stateBackend.keyGroupRange,
+						checkpointId,
+						metaStateHandle,
+						sharedState,
+						privateState,
+						createdSharedState);
+
+			} catch (Exception e) {
+				// the uploaded files are not referenced by any snapshot
+				try {
+					StateUtil.bestEffortDiscardAllStateObjects(uploadedStateHandles);
+				} catch (Exception discardException) {
+					e.addSuppressed(discardException);
+				}
+				throw e;
+			}
+		}
+
+		/**
+		 * 3) Delete the local RocksDB checkpoint.
+		 */
+		void releaseResources() {
+			if (localCheckpointDirectory != null) {
+				try {
+					FileUtils.deleteDirectory(localCheckpointDirectory);
+				} catch (IOException e) {
+					LOG.warn("Could not delete the local RocksDB checkpoint " + localCheckpointDirectory + '.', e);
+				}
+			}
+		}
+
+		private StreamStateHandle uploadLocalFile(File file, ClosableRegistry snapshotStreamRegistry) throws Exception {
+			CheckpointStreamFactory.CheckpointStateOutputStream outStream = checkpointStreamFactory
+					.createCheckpointStateOutputStream(checkpointId, checkpointTimestamp);
+
+			snapshotStreamRegistry.registerClosable(outStream);
+			try (InputStream inStream = new FileInputStream(file)) {
+				IOUtils.copyBytes(inStream, outStream, false);
+				return closeAndGetHandle(outStream);
+			} finally {
+				snapshotStreamRegistry.unregisterClosable(outStream);
+				outStream.close();
+			}
+		}
+
+		private StreamStateHandle writeMetaData(ClosableRegistry snapshotStreamRegistry) throws Exception {
+			CheckpointStreamFactory.CheckpointStateOutputStream outStream = checkpointStreamFactory
+					.createCheckpointStateOutputStream(checkpointId, checkpointTimestamp);
+
+			snapshotStreamRegistry.registerClosable(outStream);
+			try {
+				DataOutputView outputView = new DataOutputViewStreamWrapper(outStream);
+
+				// the key group range of the backend, to detect rescaling on restore
+				outputView.writeInt(stateBackend.keyGroupRange.getStartKeyGroup());
+				outputView.writeInt(stateBackend.keyGroupRange.getEndKeyGroup());
+
+				outputView.writeInt(stateDescriptors.size());
+				for (StateDescriptor<?, ?> stateDescriptor : stateDescriptors) {
+					InstantiationUtil.serializeObject(outStream, stateDescriptor);
+				}
+
+				return closeAndGetHandle(outStream);
+			} finally {
+				snapshotStreamRegistry.unregisterClosable(outStream);
+				outStream.close();
+			}
+		}
+
+		private StreamStateHandle closeAndGetHandle(
+				CheckpointStreamFactory.CheckpointStateOutputStream outStream) throws IOException {
+
+			StreamStateHandle stateHandle = outStream.closeAndGetHandle();
+			if (stateHandle == null) {
+				throw new IOException("Output stream returned null on close.");
+			}
+			uploadedStateHandles.add(stateHandle);
+			return stateHandle;
+		}
+
+		private static void checkInterrupted() throws InterruptedException {
+			if (Thread.currentThread().isInterrupted()) {
+				throw new InterruptedException("Snapshot canceled.");
+			}
+		}
+	}
+
+	/**
+	 * Encapsulates the process of restoring a RocksDBKeyedStateBackend from incremental snapshots.
+	 *
+	 * <p>If the backend restores exactly one snapshot of the same key group range, the files of the
+	 * snapshot are downloaded into the instance directory and opened as the db of the backend. The
+	 * sst files of that snapshot are reused by the next incremental snapshot. Otherwise, for
+	 * example after rescaling, each snapshot is opened in a temporary directory and the entries of
+	 * the key groups of the backend are copied into the db of the backend.
+	 */
+	static final class RocksDBIncrementalRestoreOperation {
+
+		private final RocksDBKeyedStateBackend<?> stateBackend;
+
+		RocksDBIncrementalRestoreOperation(RocksDBKeyedStateBackend<?> stateBackend) {
+			this.stateBackend = Preconditions.checkNotNull(stateBackend);
+		}
+
+		/**
+		 * Restores all key-groups data that is referenced by the passed incremental state handles.
+		 *
+		 * @param keyGroupsStateHandles List of all key groups state handles that shall be restored.
+		 */
+		void doRestore(Collection<KeyGroupsStateHandle> keyGroupsStateHandles) throws Exception {
+			List<IncrementalKeyGroupsStateHandle> stateHandles = new ArrayList<>(keyGroupsStateHandles.size());
+			for (KeyGroupsStateHandle keyGroupsStateHandle : keyGroupsStateHandles) {
+				if (keyGroupsStateHandle != null) {
+					stateHandles.add((IncrementalKeyGroupsStateHandle) keyGroupsStateHandle);
+				}
+			}
+
+			if (stateHandles.size() == 1) {
+				IncrementalKeyGroupsStateHandle stateHandle = stateHandles.get(0);
+				RestoredMetaData metaData = readMetaData(stateHandle);
+
+				if (stateBackend.keyGroupRange.equals(metaData.keyGroupRange)) {
+					restoreInstance(stateHandle, metaData);
+					return;
+				}
+			}
+
+			for (IncrementalKeyGroupsStateHandle stateHandle : stateHandles) {
+				restoreKeyGroupsFromTemporaryInstance(stateHandle);
+			}
+		}
+
+		/**
+		 * Replaces the db of the backend with the db of the given snapshot.
+		 */
+		private void restoreInstance(
+				IncrementalKeyGroupsStateHandle stateHandle,
+				RestoredMetaData metaData) throws Exception {
+
+			// the backend does not have any k/v states yet, only its initial empty db
+			stateBackend.db.dispose();
+			stateBackend.db = null;
+			FileUtils.deleteDirectory(stateBackend.instanceRocksDBPath);
+
+			downloadFiles(stateHandle, stateBackend.instanceRocksDBPath);
+
+			List<ColumnFamilyDescriptor> columnFamilyDescriptors = createColumnFamilyDescriptors(metaData);
+			List<ColumnFamilyHandle> columnFamilyHandles = new ArrayList<>(columnFamilyDescriptors.size());
+
+			stateBackend.db = RocksDB.open(
+					stateBackend.dbOptions,
+					stateBackend.instanceRocksDBPath.getAbsolutePath(),
+					columnFamilyDescriptors,
+					columnFamilyHandles);
+
+			// the first handle belongs to the default column family
+			for (int i = 0; i < metaData.stateDescriptors.size(); ++i) {
+				StateDescriptor<?, ?> stateDescriptor = metaData.stateDescriptors.get(i);
+				stateBackend.kvStateInformation.put(
+						stateDescriptor.getName(),
+						new Tuple2<ColumnFamilyHandle, StateDescriptor<?, ?>>(
+								columnFamilyHandles.get(i + 1), stateDescriptor));
+			}
+
+			synchronized (stateBackend.materializedSstFiles) {
+				stateBackend.materializedSstFiles.put(
+						stateHandle.getCheckpointId(), new HashMap<>(stateHandle.getSharedState()));
+				stateBackend.lastCompletedCheckpointId = stateHandle.getCheckpointId();
+				stateBackend.lastSnapshotCheckpointId = stateHandle.getCheckpointId();
+			}
+		}
+
+		/**
+		 * Opens the db of the given snapshot in a temporary directory and copies the entries of
+		 * the key groups of the backend into the db of the backend.
+		 */
+		private void restoreKeyGroupsFromTemporaryInstance(IncrementalKeyGroupsStateHandle stateHandle) throws Exception {
+			RestoredMetaData metaData = readMetaData(stateHandle);
+
+			File restoreInstancePath = new File(stateBackend.instanceBasePath, "restore-" + UUID.randomUUID());
+			try {
+				downloadFiles(stateHandle, restoreInstancePath);
+
+				List<ColumnFamilyDescriptor> columnFamilyDescriptors = createColumnFamilyDescriptors(metaData);
+				List<ColumnFamilyHandle> columnFamilyHandles = new ArrayList<>(columnFamilyDescriptors.size());
+
+				RocksDB restoreDb = RocksDB.open(
+						stateBackend.dbOptions,
+						restoreInstancePath.getAbsolutePath(),
+						columnFamilyDescriptors,
+						columnFamilyHandles);
+
+				try {
+					for (int i = 0; i < metaData.stateDescriptors.size(); ++i) {
+						ColumnFamilyHandle targetColumnFamily = getOrCreateColumnFamily(metaData.stateDescriptors.get(i));
+
+						RocksIterator iterator = restoreDb.newIterator(columnFamilyHandles.get(i + 1));
+						try {
+							for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+								byte[] key = iterator.key();
+								if (stateBackend.keyGroupRange.contains(getKeyGroup(key))) {
+									stateBackend.db.put(targetColumnFamily, key, iterator.value());
+								}
+							}
+						} finally {
+							iterator.dispose();
+						}
+					}
+				} finally {
+					for (ColumnFamilyHandle columnFamilyHandle : columnFamilyHandles) {
+						columnFamilyHandle.dispose();
+					}
+					restoreDb.dispose();
+				}
+			} finally {
+				FileUtils.deleteDirectory(restoreInstancePath);
+			}
+		}
+
+		private ColumnFamilyHandle getOrCreateColumnFamily(StateDescriptor<?, ?> stateDescriptor) throws RocksDBException {
+			Tuple2<ColumnFamilyHandle, StateDescriptor<?, ?>> columnFamily =
+					stateBackend.kvStateInformation.get(stateDescriptor.getName());
+
+			if (columnFamily == null) {
+				ColumnFamilyDescriptor columnFamilyDescriptor = new ColumnFamilyDescriptor(
+						stateDescriptor.getName().getBytes(), stateBackend.columnOptions);
+
+				columnFamily = new Tuple2<ColumnFamilyHandle, StateDescriptor<?, ?>>(
+						stateBackend.db.createColumnFamily(columnFamilyDescriptor), stateDescriptor);
+
+				stateBackend.kvStateInformation.put(stateDescriptor.getName(), columnFamily);
+			}
+
+			return columnFamily.f0;
+		}
+
+		private List<ColumnFamilyDescriptor> createColumnFamilyDescriptors(RestoredMetaData metaData) {
+			List<ColumnFamilyDescriptor> columnFamilyDescriptors = new ArrayList<>(metaData.stateDescriptors.size() + 1);
+			columnFamilyDescriptors.add(new ColumnFamilyDescriptor("default".getBytes()));
+			for (StateDescriptor<?, ?> stateDescriptor : metaData.stateDescriptors) {
+				columnFamilyDescriptors.add(new ColumnFamilyDescriptor(
+						stateDescriptor.getName().getBytes(), stateBackend.columnOptions));
+			}
+			return columnFamilyDescriptors;
+		}
+
+		private int getKeyGroup(byte[] key) {
+			int result = 0;
+			//big endian decode
+			for (int i = 0; i < stateBackend.keyGroupPrefixBytes; ++i) {
+				result <<= 8;
+				result |= (key[i] & 0xFF);
+			}
+			return result;
+		}
+
+		private RestoredMetaData readMetaData(IncrementalKeyGroupsStateHandle stateHandle) throws Exception {
+			FSDataInputStream inStream = stateHandle.getMetaStateHandle().openInputStream();
+			stateBackend.cancelStreamRegistry.registerClosable(inStream);
+			try {
+				DataInputView inputView = new DataInputViewStreamWrapper(inStream);
+
+				int startKeyGroup = inputView.readInt();
+				int endKeyGroup = inputView.readInt();
+
+				int numStates = inputView.readInt();
+				List<StateDescriptor<?, ?>> stateDescriptors = new ArrayList<>(numStates);
+				for (int i = 0; i < numStates; ++i) {
+					stateDescriptors.add((StateDescriptor<?, ?>) InstantiationUtil.deserializeObject(
+							inStream, stateBackend.userCodeClassLoader));
+				}
+
+				return new RestoredMetaData(new KeyGroupRange(startKeyGroup, endKeyGroup), stateDescriptors);
+			} finally {
+				stateBackend.cancelStreamRegistry.unregisterClosable(inStream);
+				inStream.close();
+			}
+		}
+
+		private void downloadFiles(IncrementalKeyGroupsStateHandle stateHandle, File targetDirectory) throws Exception {
+			if (!targetDirectory.mkdirs()) {
+				throw new IOException("Could not create the directory " + targetDirectory + '.');
+			}
+
+			for (Map.Entry<String, StreamStateHandle> file : stateHandle.getSharedState().entrySet()) {
+				downloadFile(file.getValue(), new File(targetDirectory, file.getKey()));
+			}
+
+			for (Map.Entry<String, StreamStateHandle> file : stateHandle.getPrivateState().entrySet()) {
+				downloadFile(file.getValue(), new File(targetDirectory, file.getKey()));
+			}
+		}
+
+		private void downloadFile(StreamStateHandle stateHandle, File targetFile) throws Exception {
+			FSDataInputStream inStream = stateHandle.openInputStream();
+			stateBackend.cancelStreamRegistry.registerClosable(inStream);
+			try (OutputStream outStream = new FileOutputStream(targetFile)) {
+				IOUtils.copyBytes(inStream, outStream, false);
+			} finally {
+				stateBackend.cancelStreamRegistry.unregisterClosable(inStream);
+				inStream.close();
+			}
+		}
+
+		/**
+		 * The meta data of an incremental snapshot.
+		 */
+		private static final class RestoredMetaData {
+
+			/** The key group range of the backend that took the snapshot */
+			final KeyGroupRange keyGroupRange;
+
+			/** The state descriptors of the k/v states, in the order of the column families */
+			final List<StateDescriptor<?, ?>> stateDescriptors;
+
+			RestoredMetaData(KeyGroupRange keyGroupRange, List<StateDescriptor<?, ?>> stateDescriptors) {
+				this.keyGroupRange = keyGroupRange;
+				this.stateDescriptors = stateDescriptors;
+			}
+		}
+	}
+
 	// ------------------------------------------------------------------------
 	//  State factories
 	// ------------------------------------------------------------------------
@@ -784,6 +1398,15 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		return new RocksDBReducingState<>(columnFamily, namespaceSerializer,  stateDesc, this);
 	}
 
+	@Override
+	protected <N, IN, ACC, OUT> AggregatingState<IN, OUT> createAggregatingState(TypeSerializer<N> namespaceSerializer,
+			AggregatingStateDescriptor<IN, ACC, OUT> stateDesc) throws Exception {
+
+		ColumnFamilyHandle columnFamily = getColumnFamily(stateDesc);
+
+		return new RocksDBAggregatingState<>(columnFamily, namespaceSerializer, stateDesc, this);
+	}
+
 	@Override
 	protected <N, T, ACC> FoldingState<T, ACC> createFoldingState(TypeSerializer<N> namespaceSerializer,
 			FoldingStateDescriptor<T, ACC> stateDesc) throws Exception {
@@ -793,6 +1416,43 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		return new RocksDBFoldingState<>(columnFamily, namespaceSerializer, stateDesc, this);
 	}
 
+	@Override
+	protected <N, UK, UV> MapState<UK, UV> createMapState(TypeSerializer<N> namespaceSerializer,
+			MapStateDescriptor<UK, UV> stateDesc) throws Exception {
+
+		ColumnFamilyHandle columnFamily = getColumnFamily(stateDesc);
+
+		return new RocksDBMapState<>(columnFamily, namespaceSerializer, stateDesc, this);
+	}
+
+	// ------------------------------------------------------------------------
+	//  timers
+	// ------------------------------------------------------------------------
+
+	@Override
+	public <KT, N> AbstractInternalTimerService<KT, N> createInternalTimerService(
+			String name,
+			KeyContext keyContext,
+			ProcessingTimeService processingTimeService) {
+
+		return new RocksDBInternalTimerService<>(name, this, keyContext, processingTimeService);
+	}
+
+	/**
+	 * Creates a queue of timers that is stored in the column family with the given name. The
+	 * queue contains the timers of that column family that were restored, if any.
+	 */
+	<KT, N> RocksDBTimerQueue<KT, N> createTimerQueue(
+			String name,
+			TypeSerializer<KT> keySerializer,
+			TypeSerializer<N> namespaceSerializer) {
+
+		ColumnFamilyHandle columnFamily = getColumnFamily(
+				new RocksDBTimerQueue.TimerStateDescriptor<>(name, keySerializer, namespaceSerializer));
+
+		return new RocksDBTimerQueue<>(this, columnFamily, keySerializer, namespaceSerializer);
+	}
+
 	/**
 	 * Wraps a RocksDB iterator to cache it's current key and assign an id for the key/value state to the iterator.
 	 * Used by #MergeIterator.
@@ -0,0 +1,510 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.core.memory.ByteArrayOutputStreamWithPos;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.query.netty.message.KvStateRequestSerializer;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.util.Preconditions;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteOptions;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link MapState} implementation that stores state in RocksDB.
+ *
+ * <p>Each user key-value pair is stored as an individual entry in RocksDB. The RocksDB key of
+ * an entry is the serialized key group, key and namespace, followed by the serialized user key.
+ * Reading or modifying a single user key therefore only accesses a single RocksDB entry, and
+ * the mappings of the current key and namespace are iterated with a prefix scan. The values are
+ * prefixed by a null marker, so that null values can be stored.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <UK> The type of the keys in the map state.
+ * @param <UV> The type of the values in the map state.
+ */
+public class RocksDBMapState<K, N, UK, UV>
+	extends AbstractRocksDBState<K, N, MapState<UK, UV>, MapStateDescriptor<UK, UV>, Map<UK, UV>>
+	implements MapState<UK, UV> {
+
+	/** The number of mappings that an iterator loads from RocksDB at once */
+	private static final int CACHE_SIZE_LIMIT = 128;
+
+	/** Serializer for the keys and values */
+	private final TypeSerializer<UK> userKeySerializer;
+	private final TypeSerializer<UV> userValueSerializer;
+
+	/**
+	 * We disable writes to the write-ahead-log here. We can't have these in the base class
+	 * because JNI segfaults for some reason if they are.
+	 */
+	private final WriteOptions writeOptions;
+
+	/** Stream to which the user values are serialized */
+	private final ByteArrayOutputStreamWithPos valueSerializationStream;
+	private final DataOutputViewStreamWrapper valueSerializationDataOutputView;
+
+	/**
+	 * Creates a new {@code RocksDBMapState}.
+	 *
+	 * @param namespaceSerializer The serializer for the namespace.
+	 * @param stateDesc The state identifier for the state.
+	 */
+	public RocksDBMapState(ColumnFamilyHandle columnFamily,
+			TypeSerializer<N> namespaceSerializer,
+			MapStateDescriptor<UK, UV> stateDesc,
+			RocksDBKeyedStateBackend<K> backend) {
+
+		super(columnFamily, namespaceSerializer, stateDesc, backend);
+
+		this.userKeySerializer = stateDesc.getKeySerializer();
+		this.userValueSerializer = stateDesc.getValueSerializer();
+
+		this.valueSerializationStream = new ByteArrayOutputStreamWithPos(128);
+		this.valueSerializationDataOutputView = new DataOutputViewStreamWrapper(valueSerializationStream);
+
+		writeOptions = new WriteOptions();
+		writeOptions.setDisableWAL(true);
+	}
+
+	// ------------------------------------------------------------------------
+	//  MapState Implementation
+	// ------------------------------------------------------------------------
+
+	@Override
+	public UV get(UK userKey) throws IOException, RocksDBException {
+		byte[] rawKeyBytes = serializeUserKeyWithCurrentKeyAndNamespace(userKey);
+		byte[] rawValueBytes = backend.db.get(columnFamily, rawKeyBytes);
+
+		return (rawValueBytes == null ? null : deserializeUserValue(rawValueBytes));
+	}
+
+	@Override
+	public void put(UK userKey, UV userValue) throws IOException, RocksDBException {
+		byte[] rawKeyBytes = serializeUserKeyWithCurrentKeyAndNamespace(userKey);
+		byte[] rawValueBytes = serializeUserValue(userValue);
+
+		backend.db.put(columnFamily, writeOptions, rawKeyBytes, rawValueBytes);
+	}
+
+	@Override
+	public void putAll(Map<UK, UV> map) throws IOException, RocksDBException {
+		if (map == null) {
+			return;
+		}
+
+		for (Map.Entry<UK, UV> entry : map.entrySet()) {
+			put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	@Override
+	public void remove(UK userKey) throws IOException, RocksDBException {
+		byte[] rawKeyBytes = serializeUserKeyWithCurrentKeyAndNamespace(userKey);
+
+		backend.db.remove(columnFamily, writeOptions, rawKeyBytes);
+	}
+
+	@Override
+	public boolean contains(UK userKey) throws IOException, RocksDBException {
+		byte[] rawKeyBytes = serializeUserKeyWithCurrentKeyAndNamespace(userKey);
+		byte[] rawValueBytes = backend.db.get(columnFamily, rawKeyBytes);
+
+		return (rawValueBytes != null);
+	}
+
+	@Override
+	public Iterable<Map.Entry<UK, UV>> entries() throws IOException {
+		final byte[] prefixBytes = serializeCurrentKeyAndNamespace();
+
+		return new Iterable<Map.Entry<UK, UV>>() {
+			@Override
+			public Iterator<Map.Entry<UK, UV>> iterator() {
+				return new RocksDBMapIterator<Map.Entry<UK, UV>>(prefixBytes) {
+					@Override
+					public Map.Entry<UK, UV> next() {
+						return nextEntry();
+					}
+				};
+			}
+		};
+	}
+
+	@Override
+	public Iterable<UK> keys() throws IOException {
+		final byte[] prefixBytes = serializeCurrentKeyAndNamespace();
+
+		return new Iterable<UK>() {
+			@Override
+			public Iterator<UK> iterator() {
+				return new RocksDBMapIterator<UK>(prefixBytes) {
+					@Override
+					public UK next() {
+						return nextEntry().getKey();
+					}
+				};
+			}
+		};
+	}
+
+	@Override
+	public Iterable<UV> values() throws IOException {
+		final byte[] prefixBytes = serializeCurrentKeyAndNamespace();
+
+		return new Iterable<UV>() {
+			@Override
+			public Iterator<UV> iterator() {
+				return new RocksDBMapIterator<UV>(prefixBytes) {
+					@Override
+					public UV next() {
+						return nextEntry().getValue();
+					}
+				};
+			}
+		};
+	}
+
+	@Override
+	public Iterator<Map.Entry<UK, UV>> iterator() throws IOException {
+		return entries().iterator();
+	}
+
+	@Override
+	public void clear() {
+		try {
+			byte[] prefixBytes = serializeCurrentKeyAndNamespace();
+
+			RocksIterator iterator = backend.db.newIterator(columnFamily);
+			try {
+				iterator.seek(prefixBytes);
+				while (iterator.isValid()) {
+					byte[] rawKeyBytes = iterator.key();
+					if (!startsWith(rawKeyBytes, prefixBytes)) {
+						break;
+					}
+
+					backend.db.remove(columnFamily, writeOptions, rawKeyBytes);
+					iterator.next();
+				}
+			} finally {
+				iterator.dispose();
+			}
+		} catch (IOException | RocksDBException e) {
+			throw new RuntimeException("Error while removing entries from RocksDB", e);
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public byte[] getSerializedValue(byte[] serializedKeyAndNamespace) throws Exception {
+		Preconditions.checkNotNull(serializedKeyAndNamespace, "Serialized key and namespace");
+
+		Tuple2<K, N> des = KvStateRequestSerializer.deserializeKeyAndNamespace(
+				serializedKeyAndNamespace,
+				backend.getKeySerializer(),
+				namespaceSerializer);
+
+		int keyGroup = KeyGroupRangeAssignment.assignToKeyGroup(des.f0, backend.getNumberOfKeyGroups());
+		writeKeyWithGroupAndNamespace(keyGroup, des.f0, des.f1);
+		byte[] prefixBytes = keySerializationStream.toByteArray();
+
+		Map<UK, UV> result = new HashMap<>();
+
+		RocksIterator iterator = backend.db.newIterator(columnFamily);
+		try {
+			iterator.seek(prefixBytes);
+			while (iterator.isValid() && startsWith(iterator.key(), prefixBytes)) {
+				result.put(
+						deserializeUserKey(iterator.key(), prefixBytes.length),
+						deserializeUserValue(iterator.value()));
+				iterator.next();
+			}
+		} finally {
+			iterator.dispose();
+		}
+
+		return result.isEmpty() ? null : KvStateRequestSerializer.serializeValue(result, stateDesc.getSerializer());
+	}
+
+	// ------------------------------------------------------------------------
+	//  Serialization Methods
+	// ------------------------------------------------------------------------
+
+	private byte[] serializeCurrentKeyAndNamespace() throws IOException {
+		writeCurrentKeyWithGroupAndNamespace();
+
+		return keySerializationStream.toByteArray();
+	}
+
+	private byte[] serializeUserKeyWithCurrentKeyAndNamespace(UK userKey) throws IOException {
+		writeCurrentKeyWithGroupAndNamespace();
+		userKeySerializer.serialize(userKey, keySerializationDateDataOutputView);
+
+		return keySerializationStream.toByteArray();
+	}
+
+	private byte[] serializeUserValue(UV userValue) throws IOException {
+		valueSerializationStream.reset();
+
+		if (userValue == null) {
+			valueSerializationDataOutputView.writeBoolean(true);
+		} else {
+			valueSerializationDataOutputView.writeBoolean(false);
+			userValueSerializer.serialize(userValue, valueSerializationDataOutputView);
+		}
+
+		return valueSerializationStream.toByteArray();
+	}
+
+	private UK deserializeUserKey(byte[] rawKeyBytes, int prefixLength) throws IOException {
+		ByteArrayInputStream bais = new ByteArrayInputStream(
+				rawKeyBytes, prefixLength, rawKeyBytes.length - prefixLength);
+
+		return userKeySerializer.deserialize(new DataInputViewStreamWrapper(bais));
+	}
+
+	private UV deserializeUserValue(byte[] rawValueBytes) throws IOException {
+		DataInputViewStreamWrapper in = new DataInputViewStreamWrapper(new ByteArrayInputStream(rawValueBytes));
+
+		boolean isNull = in.readBoolean();
+
+		return isNull ? null : userValueSerializer.deserialize(in);
+	}
+
+	private static boolean startsWith(byte[] bytes, byte[] prefixBytes) {
+		if (bytes.length < prefixBytes.length) {
+			return false;
+		}
+
+		for (int i = 0; i < prefixBytes.length; ++i) {
+			if (bytes[i] != prefixBytes[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	// ------------------------------------------------------------------------
+	//  Internal Classes
+	// ------------------------------------------------------------------------
+
+	/**
+	 * A map entry in RocksDBMapState. The user key and value are deserialized lazily, and
+	 * updates and removals are written through to RocksDB.
+	 */
+	private class RocksDBMapEntry implements Map.Entry<UK, UV> {
+
+		/** The raw bytes of the RocksDB key, including the prefix of key group, key and namespace */
+		private final byte[] rawKeyBytes;
+
+		/** The raw bytes of the value, null if the entry was removed */
+		private byte[] rawValueBytes;
+
+		private final int prefixLength;
+
+		private boolean deleted;
+
+		private UK userKey;
+
+		private UV userValue;
+
+		RocksDBMapEntry(byte[] rawKeyBytes, byte[] rawValueBytes, int prefixLength) {
+			this.rawKeyBytes = rawKeyBytes;
+			this.rawValueBytes = rawValueBytes;
+			this.prefixLength = prefixLength;
+		}
+
+		void remove() {
+			deleted = true;
+			rawValueBytes = null;
+
+			try {
+				backend.db.remove(columnFamily, writeOptions, rawKeyBytes);
+			} catch (RocksDBException e) {
+				throw new RuntimeException("Error while removing data from RocksDB.", e);
+			}
+		}
+
+		@Override
+		public UK getKey() {
+			if (userKey == null) {
+				try {
+					userKey = deserializeUserKey(rawKeyBytes, prefixLength);
+				} catch (IOException e) {
+					throw new RuntimeException("Error while deserializing the user key.", e);
+				}
+			}
+
+			return userKey;
+		}
+
+		@Override
+		public UV getValue() {
+			if (deleted) {
+				return null;
+			}
+
+			if (userValue == null) {
+				try {
+					userValue = deserializeUserValue(rawValueBytes);
+				} catch (IOException e) {
+					throw new RuntimeException("Error while deserializing the user value.", e);
+				}
+			}
+
+			return userValue;
+		}
+
+		@Override
+		public UV setValue(UV value) {
+			if (deleted) {
+				throw new IllegalStateException("The value has already been deleted.");
+			}
+
+			UV oldValue = getValue();
+
+			try {
+				userValue = value;
+				rawValueBytes = serializeUserValue(value);
+
+				backend.db.put(columnFamily, writeOptions, rawKeyBytes, rawValueBytes);
+			} catch (IOException | RocksDBException e) {
+				throw new RuntimeException("Error while putting data into RocksDB.", e);
+			}
+
+			return oldValue;
+		}
+	}
+
+	/**
+	 * An iterator over the mappings of the current key and namespace. The mappings are loaded
+	 * from RocksDB in batches of at most {@link #CACHE_SIZE_LIMIT} entries, so that no native
+	 * RocksDB iterator is held open between calls.
+	 */
+	private abstract class RocksDBMapIterator<T> implements Iterator<T> {
+
+		/** The prefix bytes of the key group, key and namespace of the iterated mappings */
+		private final byte[] prefixBytes;
+
+		/** Whether all mappings with the prefix have been loaded */
+		private boolean expired = false;
+
+		/** The mappings loaded from RocksDB that were not yet returned */
+		private final List<RocksDBMapEntry> cacheEntries = new ArrayList<>();
+
+		private int cacheIndex = 0;
+
+		/** The last mapping returned by the iterator, the target of {@link #remove()} */
+		private RocksDBMapEntry currentEntry;
+
+		RocksDBMapIterator(byte[] prefixBytes) {
+			this.prefixBytes = prefixBytes;
+		}
+
+		@Override
+		public boolean hasNext() {
+			loadCache();
+
+			return (cacheIndex < cacheEntries.size());
+		}
+
+		@Override
+		public void remove() {
+			if (currentEntry == null || currentEntry.deleted) {
+				throw new IllegalStateException("The remove operation must be called after a valid next operation.");
+			}
+
+			currentEntry.remove();
+		}
+
+		final RocksDBMapEntry nextEntry() {
+			loadCache();
+
+			if (cacheIndex == cacheEntries.size()) {
+				throw new NoSuchElementException();
+			}
+
+			currentEntry = cacheEntries.get(cacheIndex);
+			cacheIndex++;
+
+			return currentEntry;
+		}
+
+		private void loadCache() {
+			if (cacheIndex < cacheEntries.size() || expired) {
+				return;
+			}
+
+			// the last loaded mapping is the seek target of the next batch and is skipped
+			byte[] startBytes;
+			boolean skipFirst;
+			if (cacheEntries.isEmpty()) {
+				startBytes = prefixBytes;
+				skipFirst = false;
+			} else {
+				startBytes = cacheEntries.get(cacheEntries.size() - 1).rawKeyBytes;
+				skipFirst = true;
+			}
+
+			cacheEntries.clear();
+			cacheIndex = 0;
+
+			RocksIterator iterator = backend.db.newIterator(columnFamily);
+			try {
+				iterator.seek(startBytes);
+
+				if (skipFirst && iterator.isValid() && Arrays.equals(iterator.key(), startBytes)) {
+					iterator.next();
+				}
+
+				while (iterator.isValid() && cacheEntries.size() < CACHE_SIZE_LIMIT) {
+					byte[] rawKeyBytes = iterator.key();
+					if (!startsWith(rawKeyBytes, prefixBytes)) {
+						break;
+					}
+
+					cacheEntries.add(new RocksDBMapEntry(rawKeyBytes, iterator.value(), prefixBytes.length));
+					iterator.next();
+				}
+
+				expired = cacheEntries.size() < CACHE_SIZE_LIMIT;
+			} finally {
+				iterator.dispose();
+			}
+		}
+	}
+}
@@ -96,6 +96,9 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 	/** The options factory to create the RocksDB options in the cluster */
 	private OptionsFactory optionsFactory;
 
+	/** Whether snapshots only upload the files that changed since the last completed checkpoint */
+	private boolean enableIncrementalCheckpointing;
+
 	/** The options from the options factory, cached */
 	private transient DBOptions dbOptions;
 	private transient ColumnFamilyOptions columnOptions;
@@ -248,7 +251,8 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 				kvStateRegistry,
 				keySerializer,
 				numberOfKeyGroups,
-				keyGroupRange);
+				keyGroupRange,
+				enableIncrementalCheckpointing);
 	}
 
 	@Override
@@ -276,6 +280,7 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 				keySerializer,
 				numberOfKeyGroups,
 				keyGroupRange,
+				enableIncrementalCheckpointing,
 				restoredState);
 	}
 
@@ -352,6 +357,31 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 		}
 	}
 
+	/**
+	 * Enables or disables incremental checkpoints. With incremental checkpoints, a snapshot only
+	 * uploads the RocksDB sst files that were created since the last completed checkpoint and
+	 * references the files of earlier checkpoints that are still part of the database. Files that
+	 * are shared between checkpoints are deleted once no retained checkpoint references them.
+	 *
+	 * <p>Incremental checkpoints are disabled by default, in which case every snapshot writes the
+	 * complete state.
+	 *
+	 * @param enableIncrementalCheckpointing True to take incremental snapshots, false to take
+	 *                                       full snapshots.
+	 */
+	public void setIncrementalCheckpointsEnabled(boolean enableIncrementalCheckpointing) {
+		this.enableIncrementalCheckpointing = enableIncrementalCheckpointing;
+	}
+
+	/**
+	 * Returns whether the backend takes incremental snapshots.
+	 *
+	 * @see #setIncrementalCheckpointsEnabled(boolean)
+	 */
+	public boolean isIncrementalCheckpointsEnabled() {
+		return enableIncrementalCheckpointing;
+	}
+
 	// ------------------------------------------------------------------------
 	//  Parametrize with RocksDB Options
 	// ------------------------------------------------------------------------
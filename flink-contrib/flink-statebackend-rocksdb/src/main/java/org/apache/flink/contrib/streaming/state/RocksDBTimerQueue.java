@@ -0,0 +1,553 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.api.common.state.State;
+import org.apache.flink.api.common.state.StateBackend;
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.base.VoidSerializer;
+import org.apache.flink.core.memory.ByteArrayOutputStreamWithPos;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.streaming.api.operators.InternalTimer;
+import org.apache.flink.streaming.api.operators.InternalTimerQueue;
+import org.apache.flink.util.Preconditions;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteOptions;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * An {@link InternalTimerQueue} that stores the timers in a column family of the RocksDB instance
+ * of a {@link RocksDBKeyedStateBackend}. Because the timers are part of the data base, they are
+ * included in the (asynchronous and incremental) snapshots of the backend.
+ *
+ * <p>The keys of the column family start with the key group of the timer, followed by the
+ * timestamp, the key and the namespace. The timestamp is written with a flipped sign bit, so that
+ * the timers of each key group are sorted by timestamp. The values are empty.
+ *
+ * <p>For each key group, the queue caches the first timers of the key group on the heap. The
+ * cached timers are the first timers in the order of RocksDB, so all queue operations on the
+ * head of a key group are served from the cache, and the cache is only reloaded from RocksDB
+ * once it ran empty. The heads of the key groups are kept in a sorted set to find the overall
+ * head of the queue.
+ *
+ * @param <K> Type of the keys to which timers are scoped.
+ * @param <N> Type of the namespace to which timers are scoped.
+ */
+public class RocksDBTimerQueue<K, N> implements InternalTimerQueue<K, N> {
+
+	/** The maximum number of timers that are cached per key group */
+	static final int CACHE_SIZE_PER_KEY_GROUP = 32;
+
+	/** The number of timers that the iterator loads at a time */
+	private static final int ITERATOR_BATCH_SIZE = 128;
+
+	/** Compares byte arrays lexicographically, like RocksDB does */
+	private static final Comparator<byte[]> LEXICOGRAPHIC_BYTE_COMPARATOR = new Comparator<byte[]>() {
+		@Override
+		public int compare(byte[] o1, byte[] o2) {
+			return compareBytes(o1, o2, 0);
+		}
+	};
+
+	/** Backend that holds the RocksDB instance in which the timers are stored */
+	private final RocksDBKeyedStateBackend<?> backend;
+
+	/** The column family that holds the timers of this queue */
+	private final ColumnFamilyHandle columnFamily;
+
+	private final TypeSerializer<K> keySerializer;
+
+	private final TypeSerializer<N> namespaceSerializer;
+
+	/** The number of bytes of the key group prefix of the RocksDB keys */
+	private final int keyGroupPrefixBytes;
+
+	/** The key group range of the backend */
+	private final KeyGroupRange keyGroupRange;
+
+	/** The cached timers of each local key group */
+	private final KeyGroupTimers[] timersByKeyGroup;
+
+	/** The key groups with cached timers, sorted by the first cached timer */
+	private final TreeSet<KeyGroupTimers> keyGroupsByHead;
+
+	/** We disable writes to the write-ahead-log here */
+	private final WriteOptions writeOptions;
+
+	private final ByteArrayOutputStreamWithPos keySerializationStream;
+	private final DataOutputView keySerializationDataOutputView;
+
+	@SuppressWarnings("unchecked")
+	public RocksDBTimerQueue(
+			RocksDBKeyedStateBackend<?> backend,
+			ColumnFamilyHandle columnFamily,
+			TypeSerializer<K> keySerializer,
+			TypeSerializer<N> namespaceSerializer) {
+
+		this.backend = Preconditions.checkNotNull(backend);
+		this.columnFamily = Preconditions.checkNotNull(columnFamily);
+		this.keySerializer = Preconditions.checkNotNull(keySerializer);
+		this.namespaceSerializer = Preconditions.checkNotNull(namespaceSerializer);
+
+		this.keyGroupPrefixBytes = backend.getKeyGroupPrefixBytes();
+		this.keyGroupRange = backend.getKeyGroupRange();
+
+		this.writeOptions = new WriteOptions();
+		this.writeOptions.setDisableWAL(true);
+
+		this.keySerializationStream = new ByteArrayOutputStreamWithPos(128);
+		this.keySerializationDataOutputView = new DataOutputViewStreamWrapper(keySerializationStream);
+
+		this.keyGroupsByHead = new TreeSet<>(new Comparator<KeyGroupTimers>() {
+			@Override
+			public int compare(KeyGroupTimers o1, KeyGroupTimers o2) {
+				// skip the key group prefix, the timers are ordered by timestamp first
+				int cmp = compareBytes(o1.cache.firstKey(), o2.cache.firstKey(), keyGroupPrefixBytes);
+				return cmp != 0 ? cmp : Integer.compare(o1.keyGroup, o2.keyGroup);
+			}
+		});
+
+		// load the timers that were restored with the backend, if any
+		this.timersByKeyGroup = new RocksDBTimerQueue.KeyGroupTimers[keyGroupRange.getNumberOfKeyGroups()];
+		for (int i = 0; i < timersByKeyGroup.length; ++i) {
+			KeyGroupTimers timers = new KeyGroupTimers(keyGroupRange.getStartKeyGroup() + i);
+			timersByKeyGroup[i] = timers;
+
+			timers.loadCache();
+			addToHeads(timers);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  queue operations
+	// ------------------------------------------------------------------------
+
+	@Override
+	public boolean add(InternalTimer<K, N> timer) {
+		try {
+			KeyGroupTimers timers = getTimersForKeyGroup(timer);
+			byte[] key = serializeTimer(timers.keyGroup, timer);
+
+			if (timers.isInCachedRange(key)) {
+				if (timers.cache.containsKey(key)) {
+					return false;
+				}
+
+				backend.db.put(columnFamily, writeOptions, key, new byte[0]);
+
+				removeFromHeads(timers);
+				timers.cache.put(key, timer);
+				if (timers.cache.size() > CACHE_SIZE_PER_KEY_GROUP) {
+					// the evicted timer remains in RocksDB
+					timers.cache.pollLastEntry();
+					timers.allCached = false;
+				}
+				addToHeads(timers);
+			} else {
+				if (backend.db.get(columnFamily, key) != null) {
+					return false;
+				}
+
+				backend.db.put(columnFamily, writeOptions, key, new byte[0]);
+			}
+
+			return true;
+		} catch (IOException | RocksDBException e) {
+			throw new RuntimeException("Error while adding timer to RocksDB", e);
+		}
+	}
+
+	@Override
+	public boolean remove(InternalTimer<K, N> timer) {
+		try {
+			KeyGroupTimers timers = getTimersForKeyGroup(timer);
+			byte[] key = serializeTimer(timers.keyGroup, timer);
+
+			if (timers.isInCachedRange(key)) {
+				if (!timers.cache.containsKey(key)) {
+					return false;
+				}
+
+				backend.db.remove(columnFamily, writeOptions, key);
+
+				removeFromHeads(timers);
+				timers.cache.remove(key);
+				timers.loadCacheIfEmpty();
+				addToHeads(timers);
+			} else {
+				if (backend.db.get(columnFamily, key) == null) {
+					return false;
+				}
+
+				backend.db.remove(columnFamily, writeOptions, key);
+			}
+
+			return true;
+		} catch (IOException | RocksDBException e) {
+			throw new RuntimeException("Error while removing timer from RocksDB", e);
+		}
+	}
+
+	@Override
+	public InternalTimer<K, N> peek() {
+		return keyGroupsByHead.isEmpty() ? null : keyGroupsByHead.first().cache.firstEntry().getValue();
+	}
+
+	@Override
+	public InternalTimer<K, N> poll() {
+		KeyGroupTimers timers = keyGroupsByHead.pollFirst();
+		if (timers == null) {
+			return null;
+		}
+
+		Map.Entry<byte[], InternalTimer<K, N>> head = timers.cache.pollFirstEntry();
+
+		try {
+			backend.db.remove(columnFamily, writeOptions, head.getKey());
+		} catch (RocksDBException e) {
+			throw new RuntimeException("Error while removing timer from RocksDB", e);
+		}
+
+		timers.loadCacheIfEmpty();
+		addToHeads(timers);
+
+		return head.getValue();
+	}
+
+	/**
+	 * Returns the number of timers in the queue. This iterates over all timers in RocksDB.
+	 */
+	@Override
+	public int size() {
+		int size = 0;
+
+		RocksIterator iterator = backend.db.newIterator(columnFamily);
+		try {
+			iterator.seekToFirst();
+			while (iterator.isValid()) {
+				size++;
+				iterator.next();
+			}
+		} finally {
+			iterator.dispose();
+		}
+
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return keyGroupsByHead.isEmpty();
+	}
+
+	/**
+	 * Returns an iterator over all timers in RocksDB, in no particular order. The timers are
+	 * loaded in batches, the queue must not be modified while it is iterated.
+	 */
+	@Override
+	public Iterator<InternalTimer<K, N>> iterator() {
+		return new TimerIterator();
+	}
+
+	// ------------------------------------------------------------------------
+	//  key groups
+	// ------------------------------------------------------------------------
+
+	private KeyGroupTimers getTimersForKeyGroup(InternalTimer<K, N> timer) {
+		int keyGroup = KeyGroupRangeAssignment.assignToKeyGroup(timer.getKey(), backend.getNumberOfKeyGroups());
+		int localIdx = keyGroup - keyGroupRange.getStartKeyGroup();
+		if (localIdx < 0 || localIdx >= timersByKeyGroup.length) {
+			throw new IllegalArgumentException("Key Group " + keyGroup + " does not belong to the local range.");
+		}
+		return timersByKeyGroup[localIdx];
+	}
+
+	private void removeFromHeads(KeyGroupTimers timers) {
+		// the set can only compare key groups with cached timers
+		if (!timers.cache.isEmpty()) {
+			keyGroupsByHead.remove(timers);
+		}
+	}
+
+	private void addToHeads(KeyGroupTimers timers) {
+		if (!timers.cache.isEmpty()) {
+			keyGroupsByHead.add(timers);
+		}
+	}
+
+	/**
+	 * The cached timers of a key group. The cache holds the first timers of the key group in the
+	 * order of RocksDB. If not all timers of the key group are cached, the cache is never empty.
+	 */
+	private final class KeyGroupTimers {
+
+		final int keyGroup;
+
+		/** The prefix of all RocksDB keys of this key group */
+		final byte[] prefix;
+
+		/** The first timers of the key group, by their RocksDB keys */
+		final TreeMap<byte[], InternalTimer<K, N>> cache = new TreeMap<>(LEXICOGRAPHIC_BYTE_COMPARATOR);
+
+		/** Whether all timers of the key group are cached */
+		boolean allCached;
+
+		KeyGroupTimers(int keyGroup) {
+			this.keyGroup = keyGroup;
+			this.prefix = new byte[keyGroupPrefixBytes];
+			for (int i = 0; i < keyGroupPrefixBytes; ++i) {
+				prefix[i] = (byte) (keyGroup >>> ((keyGroupPrefixBytes - i - 1) << 3));
+			}
+		}
+
+		/**
+		 * Returns whether a timer with the given RocksDB key belongs into the cache, i.e. whether
+		 * it does not come after the cached timers while there are timers that are not cached.
+		 */
+		boolean isInCachedRange(byte[] key) {
+			return allCached || LEXICOGRAPHIC_BYTE_COMPARATOR.compare(key, cache.lastKey()) <= 0;
+		}
+
+		void loadCacheIfEmpty() {
+			if (cache.isEmpty() && !allCached) {
+				loadCache();
+			}
+		}
+
+		/**
+		 * Loads the first timers of the key group from RocksDB into the cache.
+		 */
+		void loadCache() {
+			cache.clear();
+
+			RocksIterator iterator = backend.db.newIterator(columnFamily);
+			try {
+				iterator.seek(prefix);
+				while (iterator.isValid() && startsWith(iterator.key(), prefix)) {
+					if (cache.size() == CACHE_SIZE_PER_KEY_GROUP) {
+						allCached = false;
+						return;
+					}
+
+					byte[] key = iterator.key();
+					cache.put(key, deserializeTimer(key));
+					iterator.next();
+				}
+
+				allCached = true;
+			} catch (IOException e) {
+				throw new RuntimeException("Error while loading timers from RocksDB", e);
+			} finally {
+				iterator.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Iterates over all timers of the column family, in batches of {@link #ITERATOR_BATCH_SIZE}.
+	 */
+	private final class TimerIterator implements Iterator<InternalTimer<K, N>> {
+
+		private final List<byte[]> batch = new ArrayList<>(ITERATOR_BATCH_SIZE);
+
+		private int batchIndex;
+
+		private boolean expired;
+
+		@Override
+		public boolean hasNext() {
+			loadBatch();
+			return batchIndex < batch.size();
+		}
+
+		@Override
+		public InternalTimer<K, N> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			try {
+				return deserializeTimer(batch.get(batchIndex++));
+			} catch (IOException e) {
+				throw new RuntimeException("Error while reading timer from RocksDB", e);
+			}
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		private void loadBatch() {
+			if (batchIndex < batch.size() || expired) {
+				return;
+			}
+
+			// the last loaded key is the seek target of the next batch and is skipped
+			byte[] lastKey = batch.isEmpty() ? null : batch.get(batch.size() - 1);
+
+			batch.clear();
+			batchIndex = 0;
+
+			RocksIterator iterator = backend.db.newIterator(columnFamily);
+			try {
+				if (lastKey == null) {
+					iterator.seekToFirst();
+				} else {
+					iterator.seek(lastKey);
+					if (iterator.isValid() && Arrays.equals(iterator.key(), lastKey)) {
+						iterator.next();
+					}
+				}
+
+				while (iterator.isValid() && batch.size() < ITERATOR_BATCH_SIZE) {
+					batch.add(iterator.key());
+					iterator.next();
+				}
+
+				expired = batch.size() < ITERATOR_BATCH_SIZE;
+			} finally {
+				iterator.dispose();
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  serialization
+	// ------------------------------------------------------------------------
+
+	private byte[] serializeTimer(int keyGroup, InternalTimer<K, N> timer) throws IOException {
+		keySerializationStream.reset();
+
+		for (int i = keyGroupPrefixBytes; --i >= 0;) {
+			keySerializationDataOutputView.writeByte(keyGroup >>> (i << 3));
+		}
+
+		// flip the sign bit, so that the unsigned byte order is the order of the timestamps
+		keySerializationDataOutputView.writeLong(timer.getTimestamp() ^ Long.MIN_VALUE);
+		keySerializer.serialize(timer.getKey(), keySerializationDataOutputView);
+		namespaceSerializer.serialize(timer.getNamespace(), keySerializationDataOutputView);
+
+		return keySerializationStream.toByteArray();
+	}
+
+	private InternalTimer<K, N> deserializeTimer(byte[] key) throws IOException {
+		DataInputViewStreamWrapper in = new DataInputViewStreamWrapper(
+				new ByteArrayInputStream(key, keyGroupPrefixBytes, key.length - keyGroupPrefixBytes));
+
+		long timestamp = in.readLong() ^ Long.MIN_VALUE;
+		K timerKey = keySerializer.deserialize(in);
+		N namespace = namespaceSerializer.deserialize(in);
+
+		return new InternalTimer<>(timestamp, timerKey, namespace);
+	}
+
+	private static int compareBytes(byte[] a, byte[] b, int offset) {
+		int length = Math.min(a.length, b.length);
+		for (int i = offset; i < length; ++i) {
+			int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		return a.length - b.length;
+	}
+
+	private static boolean startsWith(byte[] bytes, byte[] prefixBytes) {
+		if (bytes.length < prefixBytes.length) {
+			return false;
+		}
+
+		for (int i = 0; i < prefixBytes.length; ++i) {
+			if (bytes[i] != prefixBytes[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * The descriptor of the column family of a {@link RocksDBTimerQueue}. The descriptor is part
+	 * of the meta data of the snapshots of the backend and is compared with the descriptor of the
+	 * queue when the timer service is started after a restore.
+	 */
+	static final class TimerStateDescriptor<K, N> extends StateDescriptor<State, Void> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final TypeSerializer<K> keySerializer;
+
+		private final TypeSerializer<N> namespaceSerializer;
+
+		TimerStateDescriptor(String name, TypeSerializer<K> keySerializer, TypeSerializer<N> namespaceSerializer) {
+			super(name, VoidSerializer.INSTANCE, null);
+
+			this.keySerializer = Preconditions.checkNotNull(keySerializer);
+			this.namespaceSerializer = Preconditions.checkNotNull(namespaceSerializer);
+		}
+
+		@Override
+		public State bind(StateBackend stateBackend) throws Exception {
+			throw new UnsupportedOperationException("Timers can not be accessed as state.");
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+
+			TimerStateDescriptor<?, ?> that = (TimerStateDescriptor<?, ?>) o;
+
+			return name.equals(that.name) &&
+					keySerializer.equals(that.keySerializer) &&
+					namespaceSerializer.equals(that.namespaceSerializer);
+		}
+
+		@Override
+		public int hashCode() {
+			return name.hashCode();
+		}
+	}
+}
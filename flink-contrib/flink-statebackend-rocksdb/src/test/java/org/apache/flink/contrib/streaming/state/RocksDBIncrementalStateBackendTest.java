@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.IncrementalKeyGroupsStateHandle;
+import org.apache.flink.runtime.state.SharedStateRegistry;
+import org.apache.flink.runtime.state.StateBackendTestBase;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.runtime.state.filesystem.FsStateBackend;
+import org.apache.flink.util.OperatingSystem;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the partitioned state part of {@link RocksDBStateBackend} with incremental
+ * checkpoints.
+ */
+public class RocksDBIncrementalStateBackendTest extends StateBackendTestBase<RocksDBStateBackend> {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Before
+	public void checkOperatingSystem() {
+		Assume.assumeTrue("This test can't run successfully on Windows.", !OperatingSystem.isWindows());
+	}
+
+	@Override
+	protected RocksDBStateBackend getStateBackend() throws IOException {
+		String dbPath = tempFolder.newFolder().getAbsolutePath();
+		String checkpointPath = tempFolder.newFolder().toURI().toString();
+		RocksDBStateBackend backend = new RocksDBStateBackend(checkpointPath, new FsStateBackend(checkpointPath));
+		backend.setDbStoragePath(dbPath);
+		backend.setIncrementalCheckpointsEnabled(true);
+		return backend;
+	}
+
+	/**
+	 * Tests that a snapshot reuses the sst files of the last completed checkpoint and that the
+	 * shared files are only discarded once no registered snapshot references them anymore.
+	 */
+	@Test
+	public void testSharedSstFilesAreReused() throws Exception {
+		CheckpointStreamFactory streamFactory = createStreamFactory();
+		RocksDBKeyedStateBackend<Integer> backend =
+				(RocksDBKeyedStateBackend<Integer>) createKeyedBackend(IntSerializer.INSTANCE);
+
+		ValueStateDescriptor<String> kvId = new ValueStateDescriptor<>("id", String.class, null);
+		kvId.initializeSerializerUnlessSet(new ExecutionConfig());
+
+		ValueState<String> state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+
+		for (int key = 0; key < 100; ++key) {
+			backend.setCurrentKey(key);
+			state.update("a" + key);
+		}
+
+		IncrementalKeyGroupsStateHandle snapshot1 =
+				(IncrementalKeyGroupsStateHandle) runSnapshot(backend.snapshot(1L, 1L, streamFactory));
+		assertFalse(snapshot1.getSharedState().isEmpty());
+		backend.notifyCheckpointComplete(1L);
+
+		for (int key = 0; key < 100; key += 2) {
+			backend.setCurrentKey(key);
+			state.update("b" + key);
+		}
+
+		IncrementalKeyGroupsStateHandle snapshot2 =
+				(IncrementalKeyGroupsStateHandle) runSnapshot(backend.snapshot(2L, 2L, streamFactory));
+
+		// the sst files of the first snapshot are immutable and still part of the db
+		for (Map.Entry<String, StreamStateHandle> file : snapshot1.getSharedState().entrySet()) {
+			assertSame(file.getValue(), snapshot2.getSharedState().get(file.getKey()));
+		}
+		assertTrue(snapshot2.getSharedState().size() > snapshot1.getSharedState().size());
+
+		backend.dispose();
+
+		SharedStateRegistry registry = new SharedStateRegistry();
+		snapshot1.registerSharedState(registry);
+		snapshot2.registerSharedState(registry);
+
+		// discarding the first snapshot retains the files that the second one references
+		snapshot1.discardState();
+		for (StreamStateHandle stateHandle : snapshot1.getSharedState().values()) {
+			assertEquals(1, registry.getReferenceCount(stateHandle));
+		}
+
+		backend = (RocksDBKeyedStateBackend<Integer>) restoreKeyedBackend(IntSerializer.INSTANCE, snapshot2);
+		ValueState<String> restored = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+
+		for (int key = 0; key < 100; ++key) {
+			backend.setCurrentKey(key);
+			assertEquals((key % 2 == 0 ? "b" : "a") + key, restored.value());
+		}
+
+		// the restored backend reuses the files of the restored snapshot
+		IncrementalKeyGroupsStateHandle snapshot3 =
+				(IncrementalKeyGroupsStateHandle) runSnapshot(backend.snapshot(3L, 3L, streamFactory));
+		for (Map.Entry<String, StreamStateHandle> file : snapshot2.getSharedState().entrySet()) {
+			assertSame(file.getValue(), snapshot3.getSharedState().get(file.getKey()));
+		}
+
+		backend.dispose();
+
+		snapshot3.registerSharedState(registry);
+		snapshot2.discardState();
+		snapshot3.discardState();
+		assertEquals(0, registry.getNumberOfRegisteredHandles());
+	}
+
+	/**
+	 * Tests that a snapshot does not reuse any files if another snapshot was taken after the last
+	 * completed checkpoint, because that snapshot could subsume the completed checkpoint.
+	 */
+	@Test
+	public void testNoReuseAfterPendingSnapshot() throws Exception {
+		CheckpointStreamFactory streamFactory = createStreamFactory();
+		RocksDBKeyedStateBackend<Integer> backend =
+				(RocksDBKeyedStateBackend<Integer>) createKeyedBackend(IntSerializer.INSTANCE);
+
+		ValueStateDescriptor<String> kvId = new ValueStateDescriptor<>("id", String.class, null);
+		kvId.initializeSerializerUnlessSet(new ExecutionConfig());
+
+		ValueState<String> state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+		backend.setCurrentKey(1);
+		state.update("1");
+
+		IncrementalKeyGroupsStateHandle snapshot1 =
+				(IncrementalKeyGroupsStateHandle) runSnapshot(backend.snapshot(1L, 1L, streamFactory));
+		runSnapshot(backend.snapshot(2L, 2L, streamFactory));
+		backend.notifyCheckpointComplete(1L);
+
+		IncrementalKeyGroupsStateHandle snapshot3 =
+				(IncrementalKeyGroupsStateHandle) runSnapshot(backend.snapshot(3L, 3L, streamFactory));
+
+		for (Map.Entry<String, StreamStateHandle> file : snapshot1.getSharedState().entrySet()) {
+			StreamStateHandle stateHandle = snapshot3.getSharedState().get(file.getKey());
+			assertTrue(stateHandle != null && !stateHandle.equals(file.getValue()));
+		}
+
+		backend.dispose();
+	}
+}
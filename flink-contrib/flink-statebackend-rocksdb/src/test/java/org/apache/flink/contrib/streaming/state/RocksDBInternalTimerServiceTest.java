@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.runtime.state.AbstractStateBackend;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.runtime.state.filesystem.FsStateBackend;
+import org.apache.flink.runtime.state.memory.MemoryStateBackend;
+import org.apache.flink.streaming.api.operators.AbstractStreamOperator;
+import org.apache.flink.streaming.api.operators.InternalTimer;
+import org.apache.flink.streaming.api.operators.InternalTimerService;
+import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
+import org.apache.flink.streaming.api.operators.Triggerable;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.tasks.OperatorStateHandles;
+import org.apache.flink.streaming.util.KeyedOneInputStreamOperatorTestHarness;
+import org.apache.flink.util.OperatingSystem;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that operators store their timers in RocksDB when they run with the
+ * {@link RocksDBStateBackend}.
+ */
+public class RocksDBInternalTimerServiceTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Before
+	public void checkOperatingSystem() {
+		Assume.assumeTrue("This test can't run successfully on Windows.", !OperatingSystem.isWindows());
+	}
+
+	/**
+	 * Tests that the timers of an operator are stored in RocksDB and restored from a snapshot
+	 * of the backend.
+	 */
+	@Test
+	public void testSnapshotAndRestore() throws Exception {
+		TimerOperator operator = new TimerOperator();
+		KeyedOneInputStreamOperatorTestHarness<Integer, Integer, Long> harness =
+			createHarness(operator, createStateBackend());
+		harness.open();
+
+		harness.processElement(new StreamRecord<>(3));
+		harness.processElement(new StreamRecord<>(1));
+		harness.processElement(new StreamRecord<>(2));
+
+		assertTrue(operator.timerService instanceof RocksDBInternalTimerService);
+
+		harness.processWatermark(1);
+		assertEquals(Arrays.asList(1L), operator.firedTimers);
+
+		OperatorStateHandles snapshot = harness.snapshot(0L, 0L);
+		harness.close();
+
+		operator = new TimerOperator();
+		harness = createHarness(operator, createStateBackend());
+		harness.setup();
+		harness.initializeState(snapshot);
+		harness.open();
+
+		harness.processElement(new StreamRecord<>(4));
+		harness.processWatermark(10);
+
+		assertEquals(Arrays.asList(2L, 3L, 4L), operator.firedTimers);
+		harness.close();
+	}
+
+	/**
+	 * Tests that timers that were checkpointed by the operator, because the job ran with a heap
+	 * backend, are moved to RocksDB when the job is restored with the RocksDB backend.
+	 */
+	@Test
+	public void testRestoreFromHeapTimers() throws Exception {
+		TimerOperator operator = new TimerOperator();
+		KeyedOneInputStreamOperatorTestHarness<Integer, Integer, Long> harness =
+			createHarness(operator, new MemoryStateBackend());
+		harness.open();
+
+		harness.processElement(new StreamRecord<>(2));
+		harness.processElement(new StreamRecord<>(1));
+
+		OperatorStateHandles snapshot = harness.snapshot(0L, 0L);
+		harness.close();
+
+		operator = new TimerOperator();
+		harness = createHarness(operator, createStateBackend());
+		harness.setup();
+		harness.initializeState(snapshot);
+		harness.open();
+
+		assertTrue(operator.timerService instanceof RocksDBInternalTimerService);
+
+		harness.processWatermark(10);
+		assertEquals(Arrays.asList(1L, 2L), operator.firedTimers);
+
+		// the timers are now stored in RocksDB only
+		harness.processElement(new StreamRecord<>(20));
+		snapshot = harness.snapshot(1L, 1L);
+		harness.close();
+
+		operator = new TimerOperator();
+		harness = createHarness(operator, createStateBackend());
+		harness.setup();
+		harness.initializeState(snapshot);
+		harness.open();
+
+		harness.processWatermark(20);
+		assertEquals(Arrays.asList(20L), operator.firedTimers);
+		harness.close();
+	}
+
+	// ------------------------------------------------------------------------
+
+	private RocksDBStateBackend createStateBackend() throws Exception {
+		String dbPath = tempFolder.newFolder().getAbsolutePath();
+		String checkpointPath = tempFolder.newFolder().toURI().toString();
+		RocksDBStateBackend backend = new RocksDBStateBackend(checkpointPath, new FsStateBackend(checkpointPath));
+		backend.setDbStoragePath(dbPath);
+		return backend;
+	}
+
+	private static KeyedOneInputStreamOperatorTestHarness<Integer, Integer, Long> createHarness(
+			TimerOperator operator,
+			AbstractStateBackend stateBackend) throws Exception {
+
+		KeyedOneInputStreamOperatorTestHarness<Integer, Integer, Long> harness =
+			new KeyedOneInputStreamOperatorTestHarness<>(
+				operator,
+				new KeySelector<Integer, Integer>() {
+					@Override
+					public Integer getKey(Integer value) throws Exception {
+						return value;
+					}
+				},
+				BasicTypeInfo.INT_TYPE_INFO,
+				16,
+				1,
+				0);
+
+		harness.setStateBackend(stateBackend);
+		return harness;
+	}
+
+	/**
+	 * Registers an event time timer at the value of each element and records the fired timers.
+	 */
+	private static class TimerOperator extends AbstractStreamOperator<Long>
+			implements OneInputStreamOperator<Integer, Long>, Triggerable<Integer, VoidNamespace> {
+
+		private static final long serialVersionUID = 1L;
+
+		private transient InternalTimerService<VoidNamespace> timerService;
+
+		private transient List<Long> firedTimers;
+
+		@Override
+		public void open() throws Exception {
+			super.open();
+
+			firedTimers = new ArrayList<>();
+			timerService = getInternalTimerService(
+				"test-timers",
+				IntSerializer.INSTANCE,
+				VoidNamespaceSerializer.INSTANCE,
+				this);
+		}
+
+		@Override
+		public void processElement(StreamRecord<Integer> element) throws Exception {
+			timerService.registerEventTimeTimer(VoidNamespace.INSTANCE, element.getValue());
+		}
+
+		@Override
+		public void onEventTime(InternalTimer<Integer, VoidNamespace> timer) throws Exception {
+			assertEquals(timer.getKey(), getCurrentKey());
+			firedTimers.add(timer.getTimestamp());
+		}
+
+		@Override
+		public void onProcessingTime(InternalTimer<Integer, VoidNamespace> timer) throws Exception {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.runtime.operators.testutils.DummyEnvironment;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.state.KeyGroupsStateHandle;
+import org.apache.flink.runtime.state.filesystem.FsStateBackend;
+import org.apache.flink.streaming.api.operators.InternalTimer;
+import org.apache.flink.util.OperatingSystem;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.RunnableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link RocksDBTimerQueue}.
+ */
+public class RocksDBTimerQueueTest {
+
+	private static final int NUM_KEY_GROUPS = 10;
+
+	private static final String QUEUE_NAME = "_timer_state/event_test";
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Before
+	public void checkOperatingSystem() {
+		Assume.assumeTrue("This test can't run successfully on Windows.", !OperatingSystem.isWindows());
+	}
+
+	/**
+	 * Tests adding, removing and polling timers against a reference, with enough timers per key
+	 * group that the caches of the key groups are evicted and reloaded.
+	 */
+	@Test
+	public void testAddRemovePollAgainstReference() throws Exception {
+		RocksDBKeyedStateBackend<Integer> backend = createBackend(new KeyGroupRange(0, NUM_KEY_GROUPS - 1));
+
+		try {
+			RocksDBTimerQueue<Integer, String> queue = createQueue(backend);
+			Set<InternalTimer<Integer, String>> reference = new HashSet<>();
+
+			Random random = new Random(42);
+
+			for (int i = 0; i < 20_000; ++i) {
+				InternalTimer<Integer, String> timer =
+					new InternalTimer<>(random.nextInt(2000) - 1000, random.nextInt(50), random.nextBoolean() ? "a" : "b");
+
+				int operation = random.nextInt(10);
+				if (operation < 5) {
+					assertEquals(reference.add(timer), queue.add(timer));
+				} else if (operation < 8) {
+					assertEquals(reference.remove(timer), queue.remove(timer));
+				} else {
+					InternalTimer<Integer, String> head = queue.poll();
+					if (reference.isEmpty()) {
+						assertNull(head);
+					} else {
+						assertEquals(minTimestamp(reference), head.getTimestamp());
+						assertTrue(reference.remove(head));
+					}
+				}
+
+				assertEquals(reference.isEmpty(), queue.isEmpty());
+			}
+
+			assertEquals(reference.size(), queue.size());
+			assertEquals(reference, toSet(queue));
+
+			// drain the queue in order
+			long lastTimestamp = Long.MIN_VALUE;
+			InternalTimer<Integer, String> timer;
+			while ((timer = queue.poll()) != null) {
+				assertTrue(timer.getTimestamp() >= lastTimestamp);
+				assertTrue(reference.remove(timer));
+				lastTimestamp = timer.getTimestamp();
+			}
+
+			assertTrue(reference.isEmpty());
+			assertEquals(0, queue.size());
+		} finally {
+			backend.dispose();
+		}
+	}
+
+	/**
+	 * Tests that the timers are part of the snapshots of the backend and that they are split
+	 * by key group when the backend is restored with a different key group range.
+	 */
+	@Test
+	public void testSnapshotAndRescalingRestore() throws Exception {
+		RocksDBStateBackend stateBackend = createStateBackend();
+		CheckpointStreamFactory streamFactory = stateBackend.createStreamFactory(new JobID(), "test_op");
+
+		Set<InternalTimer<Integer, String>> timers = new HashSet<>();
+		for (int key = 0; key < 100; ++key) {
+			for (int timestamp = 0; timestamp < 5; ++timestamp) {
+				timers.add(new InternalTimer<>(timestamp * 10 + key % 7, key, "ns"));
+			}
+		}
+
+		KeyGroupsStateHandle snapshot;
+		RocksDBKeyedStateBackend<Integer> backend = createBackend(new KeyGroupRange(0, NUM_KEY_GROUPS - 1));
+		try {
+			RocksDBTimerQueue<Integer, String> queue = createQueue(backend);
+			for (InternalTimer<Integer, String> timer : timers) {
+				assertTrue(queue.add(timer));
+			}
+
+			snapshot = runSnapshot(backend.snapshot(1L, 1L, streamFactory));
+		} finally {
+			backend.dispose();
+		}
+
+		KeyGroupRange[] ranges = {new KeyGroupRange(0, 4), new KeyGroupRange(5, NUM_KEY_GROUPS - 1)};
+		Set<InternalTimer<Integer, String>> restored = new HashSet<>();
+
+		for (KeyGroupRange range : ranges) {
+			RocksDBKeyedStateBackend<Integer> restoredBackend = restoreBackend(range, snapshot);
+			try {
+				RocksDBTimerQueue<Integer, String> queue = createQueue(restoredBackend);
+
+				long lastTimestamp = Long.MIN_VALUE;
+				InternalTimer<Integer, String> timer;
+				while ((timer = queue.poll()) != null) {
+					int keyGroup = KeyGroupRangeAssignment.assignToKeyGroup(timer.getKey(), NUM_KEY_GROUPS);
+					assertTrue(range.contains(keyGroup));
+					assertTrue(timer.getTimestamp() >= lastTimestamp);
+					assertTrue(restored.add(timer));
+					lastTimestamp = timer.getTimestamp();
+				}
+			} finally {
+				restoredBackend.dispose();
+			}
+		}
+
+		assertEquals(timers, restored);
+	}
+
+	// ------------------------------------------------------------------------
+
+	private RocksDBStateBackend createStateBackend() throws Exception {
+		String dbPath = tempFolder.newFolder().getAbsolutePath();
+		String checkpointPath = tempFolder.newFolder().toURI().toString();
+		RocksDBStateBackend backend = new RocksDBStateBackend(checkpointPath, new FsStateBackend(checkpointPath));
+		backend.setDbStoragePath(dbPath);
+		return backend;
+	}
+
+	private RocksDBKeyedStateBackend<Integer> createBackend(KeyGroupRange keyGroupRange) throws Exception {
+		DummyEnvironment env = new DummyEnvironment("test", 1, 0);
+		return (RocksDBKeyedStateBackend<Integer>) createStateBackend().createKeyedStateBackend(
+				env,
+				new JobID(),
+				"test_op",
+				IntSerializer.INSTANCE,
+				NUM_KEY_GROUPS,
+				keyGroupRange,
+				env.getTaskKvStateRegistry());
+	}
+
+	private RocksDBKeyedStateBackend<Integer> restoreBackend(
+			KeyGroupRange keyGroupRange,
+			KeyGroupsStateHandle snapshot) throws Exception {
+
+		DummyEnvironment env = new DummyEnvironment("test", 1, 0);
+		return (RocksDBKeyedStateBackend<Integer>) createStateBackend().restoreKeyedStateBackend(
+				env,
+				new JobID(),
+				"test_op",
+				IntSerializer.INSTANCE,
+				NUM_KEY_GROUPS,
+				keyGroupRange,
+				Collections.singletonList(snapshot.getKeyGroupIntersection(keyGroupRange)),
+				env.getTaskKvStateRegistry());
+	}
+
+	private static RocksDBTimerQueue<Integer, String> createQueue(RocksDBKeyedStateBackend<Integer> backend) {
+		return backend.createTimerQueue(QUEUE_NAME, IntSerializer.INSTANCE, StringSerializer.INSTANCE);
+	}
+
+	private static KeyGroupsStateHandle runSnapshot(RunnableFuture<KeyGroupsStateHandle> snapshot) throws Exception {
+		if (!snapshot.isDone()) {
+			snapshot.run();
+		}
+		return snapshot.get();
+	}
+
+	private static long minTimestamp(Set<InternalTimer<Integer, String>> timers) {
+		long min = Long.MAX_VALUE;
+		for (InternalTimer<Integer, String> timer : timers) {
+			min = Math.min(min, timer.getTimestamp());
+		}
+		return min;
+	}
+
+	private static Set<InternalTimer<Integer, String>> toSet(Iterable<InternalTimer<Integer, String>> timers) {
+		List<InternalTimer<Integer, String>> list = new ArrayList<>();
+		for (InternalTimer<Integer, String> timer : timers) {
+			list.add(timer);
+		}
+		Set<InternalTimer<Integer, String>> set = new HashSet<>(list);
+		assertEquals(list.size(), set.size());
+		return set;
+	}
+}
@@ -346,6 +346,10 @@ public abstract class FileInputFormat<OT> extends RichInputFormat<OT, FileInputS
 		this.filesFilter = Preconditions.checkNotNull(filesFilter, "Files filter should not be null");
 	}
 
+	public FilePathFilter getFilesFilter() {
+		return filesFilter;
+	}
+
 	// --------------------------------------------------------------------------------------------
 	//  Pre-flight: Configuration, Splits, Sampling
 	// --------------------------------------------------------------------------------------------
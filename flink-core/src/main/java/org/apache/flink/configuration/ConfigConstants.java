@@ -224,6 +224,20 @@ public final class ConfigConstants {
 	 */
 	public static final String TASK_MANAGER_NETWORK_NUM_BUFFERS_KEY = "taskmanager.network.numberOfBuffers";
 
+	/**
+	 * The config parameter defining the number of exclusive network buffers of each remote input
+	 * channel. The buffers are announced as credit to the producer and need to be at least one.
+	 */
+	@PublicEvolving
+	public static final String TASK_MANAGER_NETWORK_BUFFERS_PER_CHANNEL_KEY = "taskmanager.network.memory.buffers-per-channel";
+
+	/**
+	 * The config parameter defining the number of floating network buffers of each input gate,
+	 * which are shared by the remote input channels of the gate for their backlog.
+	 */
+	@PublicEvolving
+	public static final String TASK_MANAGER_NETWORK_FLOATING_BUFFERS_PER_GATE_KEY = "taskmanager.network.memory.floating-buffers-per-gate";
+
 	/**
 	 * Config parameter defining the size of memory buffers used by the network stack and the memory manager.
 	 */
@@ -278,6 +292,21 @@ public final class ConfigConstants {
 	@PublicEvolving
 	public static final String TASK_CANCELLATION_INTERVAL_MILLIS = "task.cancellation-interval";
 
+	/**
+	 * The maximum number of bytes that a task buffers in memory during the alignment of an
+	 * exactly-once checkpoint, before it spills the data of the blocked input channels to disk.
+	 * The memory is taken from the managed memory of the TaskManager.
+	 */
+	@PublicEvolving
+	public static final String TASK_CHECKPOINT_ALIGNMENT_MEMORY = "task.checkpoint.alignment.memory";
+
+	/**
+	 * The maximum number of bytes that a task buffers during the alignment of an exactly-once
+	 * checkpoint. If the alignment buffers more data, the task declines the checkpoint.
+	 */
+	@PublicEvolving
+	public static final String TASK_CHECKPOINT_ALIGNMENT_MAX_SIZE = "task.checkpoint.alignment.max-size";
+
 	// --------------------------- Runtime Algorithms -------------------------------
 	
 	/**
@@ -1039,6 +1068,16 @@ public final class ConfigConstants {
 	 */
 	public static final int DEFAULT_TASK_MANAGER_NETWORK_NUM_BUFFERS = 2048;
 
+	/**
+	 * Default number of exclusive network buffers of each remote input channel.
+	 */
+	public static final int DEFAULT_TASK_MANAGER_NETWORK_BUFFERS_PER_CHANNEL = 2;
+
+	/**
+	 * Default number of floating network buffers of each input gate.
+	 */
+	public static final int DEFAULT_TASK_MANAGER_NETWORK_FLOATING_BUFFERS_PER_GATE = 8;
+
 	/**
 	 * Default size of memory segments in the network stack and the memory manager.
 	 */
@@ -1090,6 +1129,16 @@ public final class ConfigConstants {
 	 * */
 	public static final long DEFAULT_TASK_CANCELLATION_INTERVAL_MILLIS = 30000;
 
+	/**
+	 * By default, the checkpoint alignment spills all blocked data to disk.
+	 */
+	public static final long DEFAULT_TASK_CHECKPOINT_ALIGNMENT_MEMORY = 0L;
+
+	/**
+	 * By default, the checkpoint alignment is not limited (-1).
+	 */
+	public static final long DEFAULT_TASK_CHECKPOINT_ALIGNMENT_MAX_SIZE = -1L;
+
 	// ------------------------ Runtime Algorithms ------------------------
 	
 	/**
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.api.common.typeutils.base;
+
+import org.apache.flink.api.common.typeutils.SerializerTestBase;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A test for the {@link MapSerializer}.
+ */
+public class MapSerializerTest extends SerializerTestBase<Map<Long, String>> {
+
+	@Override
+	protected TypeSerializer<Map<Long, String>> createSerializer() {
+		return new MapSerializer<>(LongSerializer.INSTANCE, StringSerializer.INSTANCE);
+	}
+
+	@Override
+	protected int getLength() {
+		return -1;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	protected Class<Map<Long, String>> getTypeClass() {
+		return (Class<Map<Long, String>>) (Class<?>) HashMap.class;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	protected Map<Long, String>[] getTestData() {
+		final Random rnd = new Random(123654789);
+
+		// empty maps
+		final Map<Long, String> map1 = new HashMap<>();
+
+		// single element maps
+		final Map<Long, String> map2 = new HashMap<>();
+		map2.put(12345L, "12345L");
+
+		// longer maps, including a null value
+		final Map<Long, String> map3 = new HashMap<>();
+		for (int i = 0; i < rnd.nextInt(200); ++i) {
+			map3.put(rnd.nextLong(), Long.toString(rnd.nextLong()));
+		}
+		map3.put(42L, null);
+
+		final Map<Long, String> map4 = new HashMap<>();
+		for (int i = 0; i < 1000; ++i) {
+			map4.put((long) i, "value" + i);
+		}
+
+		return (Map<Long, String>[]) new Map[] {
+				map1, map2, map3, map4
+		};
+	}
+}
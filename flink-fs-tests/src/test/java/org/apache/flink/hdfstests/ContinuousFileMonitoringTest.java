@@ -19,6 +19,7 @@
 package org.apache.flink.hdfstests;
 
 import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.functions.RuntimeContext;
 import org.apache.flink.api.common.typeinfo.TypeInformation;
 import org.apache.flink.api.java.io.TextInputFormat;
 import org.apache.flink.api.java.tuple.Tuple2;
@@ -26,11 +27,13 @@ import org.apache.flink.api.java.typeutils.TypeExtractor;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.core.fs.FileInputSplit;
 import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.state.StreamStateHandle;
 import org.apache.flink.api.common.io.FilePathFilter;
 import org.apache.flink.streaming.api.TimeCharacteristic;
 import org.apache.flink.streaming.api.functions.source.ContinuousFileMonitoringFunction;
 import org.apache.flink.streaming.api.functions.source.ContinuousFileReaderOperator;
 import org.apache.flink.streaming.api.functions.source.FileProcessingMode;
+import org.apache.flink.streaming.api.functions.source.IncrementalFileDiscovery;
 import org.apache.flink.streaming.api.functions.source.SourceFunction;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
@@ -42,10 +45,12 @@ import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.mockito.Mockito;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -342,6 +347,80 @@ public class ContinuousFileMonitoringTest {
 		}
 	}
 
+	@Test
+	public void testFileReadingOperatorWithMultipleReaderThreads() throws Exception {
+		Set<org.apache.hadoop.fs.Path> filesCreated = new HashSet<>();
+		Set<String> expectedLines = new HashSet<>();
+		for(int i = 0; i < NO_OF_FILES; i++) {
+			Tuple2<org.apache.hadoop.fs.Path, String> file = fillWithData(hdfsURI, "file", i, "This is test line.");
+			filesCreated.add(file.f0);
+			Collections.addAll(expectedLines, file.f1.split("\n"));
+		}
+
+		TextInputFormat format = new TextInputFormat(new Path(hdfsURI));
+		TypeInformation<String> typeInfo = TypeExtractor.getInputFormatTypes(format);
+
+		ContinuousFileReaderOperator<String, ?> reader = new ContinuousFileReaderOperator<>(format, 3);
+		reader.setOutputType(typeInfo, new ExecutionConfig());
+
+		OneInputStreamOperatorTestHarness<FileInputSplit, String> tester =
+			new OneInputStreamOperatorTestHarness<>(reader);
+		tester.setTimeCharacteristic(TimeCharacteristic.EventTime);
+		tester.open();
+
+		FileInputSplit[] splits = format.createInputSplits(
+			reader.getRuntimeContext().getNumberOfParallelSubtasks());
+
+		for(FileInputSplit split: splits) {
+			tester.processElement(new StreamRecord<>(split));
+		}
+
+		// take a snapshot while the splits are read, together with the lines emitted so far
+		List<String> actualLines = new ArrayList<>();
+		StreamStateHandle snapshot;
+		synchronized (tester.getCheckpointLock()) {
+			snapshot = tester.snapshotLegacy(0L, 0L);
+			collectLines(tester.getOutput(), actualLines);
+		}
+
+		synchronized (tester.getCheckpointLock()) {
+			tester.close();
+		}
+
+		// a restored reader reads exactly the lines that were not emitted before the snapshot
+		TextInputFormat restoredFormat = new TextInputFormat(new Path(hdfsURI));
+		ContinuousFileReaderOperator<String, ?> restoredReader = new ContinuousFileReaderOperator<>(restoredFormat, 3);
+		restoredReader.setOutputType(typeInfo, new ExecutionConfig());
+
+		OneInputStreamOperatorTestHarness<FileInputSplit, String> restoredTester =
+			new OneInputStreamOperatorTestHarness<>(restoredReader);
+		restoredTester.setTimeCharacteristic(TimeCharacteristic.EventTime);
+		restoredTester.setup();
+		restoredTester.restore(snapshot);
+		restoredTester.open();
+
+		synchronized (restoredTester.getCheckpointLock()) {
+			restoredTester.close();
+		}
+		collectLines(restoredTester.getOutput(), actualLines);
+
+		Assert.assertEquals(expectedLines.size(), actualLines.size());
+		Assert.assertEquals(expectedLines, new HashSet<>(actualLines));
+
+		for(org.apache.hadoop.fs.Path file: filesCreated) {
+			hdfs.delete(file, false);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void collectLines(Collection<Object> output, List<String> lines) {
+		for (Object element : output) {
+			if (element instanceof StreamRecord) {
+				lines.add(((StreamRecord<String>) element).getValue());
+			}
+		}
+	}
+
 	private static class PathFilter extends FilePathFilter {
 
 		@Override
@@ -485,6 +564,72 @@ public class ContinuousFileMonitoringTest {
 		}
 	}
 
+	@Test
+	public void testIncrementalDiscoveryOfLateFiles() throws Exception {
+		final Set<String> uniqFilesFound = new HashSet<>();
+		Set<org.apache.hadoop.fs.Path> filesCreated = new HashSet<>();
+
+		// create all files but the first one, with increasing modification times
+		final long baseModificationTime = System.currentTimeMillis() - 60 * 60 * 1000;
+		for (int i = 1; i < NO_OF_FILES; i++) {
+			Tuple2<org.apache.hadoop.fs.Path, String> file = fillWithData(hdfsURI, "file", i, "This is test line.");
+			hdfs.setTimes(file.f0, baseModificationTime + i * 1000, -1);
+			filesCreated.add(file.f0);
+		}
+
+		TextInputFormat format = new TextInputFormat(new Path(hdfsURI));
+		format.setFilesFilter(FilePathFilter.createDefaultFilter());
+		final ContinuousFileMonitoringFunction<String> monitoringFunction =
+			new ContinuousFileMonitoringFunction<>(format, hdfsURI,
+				FileProcessingMode.PROCESS_CONTINUOUSLY, 1, INTERVAL);
+		monitoringFunction.setIncrementalDiscovery(new IncrementalFileDiscovery(60 * 1000).setListingParallelism(2));
+		monitoringFunction.setRuntimeContext(Mockito.mock(RuntimeContext.class));
+		Mockito.when(monitoringFunction.getRuntimeContext().getUserCodeClassLoader())
+			.thenReturn(getClass().getClassLoader());
+
+		Thread t = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					monitoringFunction.open(new Configuration());
+					monitoringFunction.run(new TestingSourceContext(monitoringFunction, uniqFilesFound));
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		});
+		t.start();
+
+		while (true) {
+			synchronized (uniqFilesFound) {
+				if (uniqFilesFound.size() == NO_OF_FILES - 1) {
+					break;
+				}
+			}
+			Thread.sleep(INTERVAL);
+		}
+
+		// the first file arrives late, with the oldest modification time of all files
+		Tuple2<org.apache.hadoop.fs.Path, String> lateFile = fillWithData(hdfsURI, "file", 0, "This is test line.");
+		hdfs.setTimes(lateFile.f0, baseModificationTime, -1);
+		filesCreated.add(lateFile.f0);
+
+		// the source context cancels the source when it has seen all files
+		synchronized (uniqFilesFound) {
+			while (uniqFilesFound.size() < NO_OF_FILES) {
+				uniqFilesFound.wait();
+			}
+		}
+		t.join();
+
+		Assert.assertEquals(NO_OF_FILES, uniqFilesFound.size());
+		Assert.assertTrue(uniqFilesFound.contains(lateFile.f0.toString()));
+
+		for(org.apache.hadoop.fs.Path file: filesCreated) {
+			hdfs.delete(file, false);
+		}
+	}
+
 	// -------------		End of Tests
 
 	private int getLineNo(String line) {
@@ -577,6 +722,10 @@ public class ContinuousFileMonitoringTest {
 		public void emitWatermark(Watermark mark) {
 		}
 
+		@Override
+		public void markAsTemporarilyIdle() {
+		}
+
 		@Override
 		public Object getCheckpointLock() {
 			return lock;
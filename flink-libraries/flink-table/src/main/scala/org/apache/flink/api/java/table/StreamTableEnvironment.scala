@@ -17,7 +17,10 @@
  */
 package org.apache.flink.api.java.table
 
+import java.lang.{Boolean => JBoolean}
+
 import org.apache.flink.api.common.typeinfo.TypeInformation
+import org.apache.flink.api.java.tuple.{Tuple2 => JTuple2}
 import org.apache.flink.api.java.typeutils.TypeExtractor
 import org.apache.flink.api.table.{TableConfig, Table}
 import org.apache.flink.api.table.expressions.ExpressionParser
@@ -164,4 +167,42 @@ class StreamTableEnvironment(
     translate[T](table)(typeInfo)
   }
 
+  /**
+    * Converts the given [[Table]] into a [[DataStream]] of change messages of a specified
+    * record type. A continuously updated [[Table]], such as the result of a non-windowed grouped
+    * aggregation, can only be converted into a stream of change messages.
+    *
+    * The [[JBoolean]] flag of a change message is true if the record is inserted and false if
+    * the record is retracted. The fields of the [[Table]] are mapped to the fields of the records
+    * in the same way as by [[toDataStream()]].
+    *
+    * @param table The [[Table]] to convert.
+    * @param clazz The class of the type of the records of the resulting [[DataStream]].
+    * @tparam T The type of the records of the resulting [[DataStream]].
+    * @return The converted [[DataStream]].
+    */
+  def toRetractStream[T](table: Table, clazz: Class[T]): DataStream[JTuple2[JBoolean, T]] = {
+    translateToRetractStream[T](table)(TypeExtractor.createTypeInfo(clazz))
+  }
+
+  /**
+    * Converts the given [[Table]] into a [[DataStream]] of change messages of a specified
+    * record type. A continuously updated [[Table]], such as the result of a non-windowed grouped
+    * aggregation, can only be converted into a stream of change messages.
+    *
+    * The [[JBoolean]] flag of a change message is true if the record is inserted and false if
+    * the record is retracted. The fields of the [[Table]] are mapped to the fields of the records
+    * in the same way as by [[toDataStream()]].
+    *
+    * @param table The [[Table]] to convert.
+    * @param typeInfo The [[TypeInformation]] of the records of the resulting [[DataStream]].
+    * @tparam T The type of the records of the resulting [[DataStream]].
+    * @return The converted [[DataStream]].
+    */
+  def toRetractStream[T](
+      table: Table,
+      typeInfo: TypeInformation[T]): DataStream[JTuple2[JBoolean, T]] = {
+    translateToRetractStream[T](table)(typeInfo)
+  }
+
 }
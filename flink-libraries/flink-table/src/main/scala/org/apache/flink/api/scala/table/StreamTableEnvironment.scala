@@ -18,6 +18,7 @@
 package org.apache.flink.api.scala.table
 
 import org.apache.flink.api.common.typeinfo.TypeInformation
+import org.apache.flink.api.scala._
 import org.apache.flink.api.table.{TableConfig, Table}
 import org.apache.flink.api.table.expressions.Expression
 import org.apache.flink.streaming.api.scala.{StreamExecutionEnvironment, DataStream}
@@ -142,4 +143,22 @@ class StreamTableEnvironment(
     asScalaStream(translate(table))
   }
 
+  /**
+    * Converts the given [[Table]] into a [[DataStream]] of change messages of a specified
+    * record type. A continuously updated [[Table]], such as the result of a non-windowed grouped
+    * aggregation, can only be converted into a stream of change messages.
+    *
+    * The Boolean flag of a change message is true if the record is inserted and false if the
+    * record is retracted. The fields of the [[Table]] are mapped to the fields of the records in
+    * the same way as by [[toDataStream()]].
+    *
+    * @param table The [[Table]] to convert.
+    * @tparam T The type of the records of the resulting [[DataStream]].
+    * @return The converted [[DataStream]].
+    */
+  def toRetractStream[T: TypeInformation](table: Table): DataStream[(Boolean, T)] = {
+    asScalaStream(translateToRetractStream[T](table))
+      .map(message => (message.f0.booleanValue(), message.f1))
+  }
+
 }
@@ -58,5 +58,17 @@ class TableConversions(table: Table) {
     }
   }
 
-}
+  /** Converts the [[Table]] to a [[DataStream]] of change messages of the specified type. */
+  def toRetractStream[T: TypeInformation]: DataStream[(Boolean, T)] = {
 
+    table.tableEnv match {
+      case tEnv: ScalaStreamTableEnv =>
+        tEnv.toRetractStream(table)
+      case _ =>
+        throw new TableException(
+          "Only tables that originate from Scala DataStreams " +
+            "can be converted to Scala DataStreams.")
+    }
+  }
+
+}
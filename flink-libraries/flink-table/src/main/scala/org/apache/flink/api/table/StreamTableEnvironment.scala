@@ -18,6 +18,7 @@
 
 package org.apache.flink.api.table
 
+import java.lang.{Boolean => JBoolean}
 import java.util.concurrent.atomic.AtomicInteger
 
 import org.apache.calcite.plan.RelOptPlanner.CannotPlanException
@@ -25,12 +26,15 @@ import org.apache.calcite.plan.RelOptUtil
 import org.apache.calcite.rel.RelNode
 import org.apache.calcite.sql2rel.RelDecorrelator
 import org.apache.calcite.tools.{Programs, RuleSet}
-import org.apache.flink.api.common.typeinfo.TypeInformation
+import org.apache.flink.api.common.typeinfo.{BasicTypeInfo, TypeInformation}
+import org.apache.flink.api.java.tuple.{Tuple2 => JTuple2}
+import org.apache.flink.api.java.typeutils.TupleTypeInfo
 import org.apache.flink.api.table.expressions.Expression
 import org.apache.flink.api.table.plan.logical.{CatalogNode, LogicalRelNode}
 import org.apache.flink.api.table.plan.nodes.datastream.{DataStreamConvention, DataStreamRel}
 import org.apache.flink.api.table.plan.rules.FlinkRuleSets
-import org.apache.flink.api.table.sinks.{StreamTableSink, TableSink}
+import org.apache.flink.api.table.runtime.InsertMessageMapper
+import org.apache.flink.api.table.sinks.{StreamTableSink, TableSink, UpsertStreamTableSink}
 import org.apache.flink.api.table.plan.schema.{TableSourceTable, DataStreamTable}
 import org.apache.flink.api.table.sources.StreamTableSource
 import org.apache.flink.streaming.api.datastream.DataStream
@@ -194,11 +198,25 @@ abstract class StreamTableEnvironment(
         val result: DataStream[T] = translate(table)(outputType)
         // Give the DataSet to the TableSink to emit it.
         streamSink.emitDataStream(result)
+      case upsertSink: UpsertStreamTableSink[_] =>
+        writeToUpsertSink(table, upsertSink)
       case _ =>
         throw new TableException("StreamTableSink required to emit streaming Table")
     }
   }
 
+  private def writeToUpsertSink[T](table: Table, sink: UpsertStreamTableSink[T]): Unit = {
+    validateType(sink.getRecordType)
+
+    val dataStreamPlan = optimize(table.getRelNode).asInstanceOf[DataStreamRel]
+    // the key fields are unknown (null) if the plan does not forward them
+    sink.setKeyFields(dataStreamPlan.getUpdateKeys.orNull)
+    // translate the Table into a DataStream of change messages with the type of the records
+    // that the TableSink expects.
+    val result = translatePlanToRetractStream(dataStreamPlan)(sink.getRecordType)
+    sink.emitDataStream(result)
+  }
+
   /**
     * Registers a [[DataStream]] as a table under a given name in the [[TableEnvironment]]'s
     * catalog.
@@ -295,6 +313,9 @@ abstract class StreamTableEnvironment(
    val dataStreamPlan = optimize(table.getRelNode)
 
     dataStreamPlan match {
+      case node: DataStreamRel if node.producesUpdates =>
+        throw TableException("The Table is continuously updated and cannot be converted " +
+          "into an append-only DataStream. Please convert it into a retract stream.")
       case node: DataStreamRel =>
         node.translateToPlan(
           this,
@@ -305,6 +326,46 @@ abstract class StreamTableEnvironment(
 
   }
 
+  /**
+    * Translates a [[Table]] into a [[DataStream]] of change messages.
+    *
+    * The [[JBoolean]] flag of a change message is true for an inserted record and false for a
+    * retracted record. The records of an append-only [[Table]] are all inserted.
+    *
+    * @param table The root node of the relational expression tree.
+    * @param tpe The [[TypeInformation]] of the records of the resulting [[DataStream]].
+    * @tparam A The type of the records of the resulting [[DataStream]].
+    * @return The [[DataStream]] of change messages that corresponds to the translated [[Table]].
+    */
+  protected def translateToRetractStream[A](table: Table)
+      (implicit tpe: TypeInformation[A]): DataStream[JTuple2[JBoolean, A]] = {
+
+    validateType(tpe)
+
+    optimize(table.getRelNode) match {
+      case node: DataStreamRel => translatePlanToRetractStream(node)(tpe)
+      case _ => ???
+    }
+  }
+
+  private def translatePlanToRetractStream[A](node: DataStreamRel)
+      (implicit tpe: TypeInformation[A]): DataStream[JTuple2[JBoolean, A]] = {
+
+    val result = node.translateToPlan(this, Some(tpe.asInstanceOf[TypeInformation[Any]]))
+
+    if (node.producesUpdates) {
+      result.asInstanceOf[DataStream[JTuple2[JBoolean, A]]]
+    } else {
+      val messageType = new TupleTypeInfo[JTuple2[JBoolean, A]](
+        BasicTypeInfo.BOOLEAN_TYPE_INFO,
+        result.getType)
+      result
+        .asInstanceOf[DataStream[A]]
+        .map(new InsertMessageMapper[A](messageType))
+        .name("to insert messages")
+    }
+  }
+
   /**
     * Returns the AST of the specified Table API and SQL queries and the execution plan to compute
     * the result of the given [[Table]].
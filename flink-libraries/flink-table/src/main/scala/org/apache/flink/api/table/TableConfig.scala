@@ -45,6 +45,18 @@ class TableConfig {
     */
   private var calciteConfig = CalciteConfig.DEFAULT
 
+  /**
+    * Defines the minimum time in milliseconds that the state of an idle key is retained by
+    * non-windowed streaming operators. 0 means that state is never cleaned up.
+    */
+  private var minIdleStateRetentionTime: Long = 0L
+
+  /**
+    * Defines the maximum time in milliseconds that the state of an idle key is retained by
+    * non-windowed streaming operators. 0 means that state is never cleaned up.
+    */
+  private var maxIdleStateRetentionTime: Long = 0L
+
   /**
    * Sets the timezone for date/time/timestamp conversions.
    */
@@ -100,6 +112,38 @@ class TableConfig {
   def setCalciteConfig(calciteConfig: CalciteConfig): Unit = {
     this.calciteConfig = calciteConfig
   }
+
+  /**
+    * Returns the minimum time in milliseconds that the state of an idle key is retained by
+    * non-windowed streaming operators, such as a non-windowed grouped aggregation.
+    */
+  def getMinIdleStateRetentionTime: Long = minIdleStateRetentionTime
+
+  /**
+    * Returns the maximum time in milliseconds that the state of an idle key is retained by
+    * non-windowed streaming operators, such as a non-windowed grouped aggregation.
+    */
+  def getMaxIdleStateRetentionTime: Long = maxIdleStateRetentionTime
+
+  /**
+    * Sets the time interval in milliseconds for which the state of an idle key is retained by
+    * non-windowed streaming operators, such as a non-windowed grouped aggregation. The state of
+    * a key that was not updated for at least the minimum time is cleaned up at the latest after
+    * the maximum time. A later record with the same key starts again with empty state.
+    *
+    * The difference between minimum and maximum time allows operators to register fewer
+    * cleanup timers. Setting both times to 0 disables the cleanup, which is the default.
+    *
+    * @param minTime The minimum time in milliseconds that the state of an idle key is retained.
+    * @param maxTime The maximum time in milliseconds that the state of an idle key is retained.
+    */
+  def setIdleStateRetentionTime(minTime: Long, maxTime: Long): Unit = {
+    require(minTime >= 0, "minTime must not be negative.")
+    require(maxTime >= minTime, "maxTime must not be smaller than minTime.")
+    require(minTime > 0 || maxTime == 0, "minTime must be positive if maxTime is set.")
+    this.minIdleStateRetentionTime = minTime
+    this.maxIdleStateRetentionTime = maxTime
+  }
 }
 
 object TableConfig {
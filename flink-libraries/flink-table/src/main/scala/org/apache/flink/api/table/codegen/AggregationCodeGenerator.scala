@@ -0,0 +1,493 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.api.table.codegen
+
+import org.apache.flink.api.common.typeinfo.BasicTypeInfo._
+import org.apache.flink.api.common.typeinfo.TypeInformation
+import org.apache.flink.api.table.codegen.CodeGenUtils.{boxedTypeTermForTypeInfo, newName, primitiveTypeTermForTypeInfo}
+import org.apache.flink.api.table.codegen.Indenter.toISC
+import org.apache.flink.api.table.runtime.aggregate._
+
+/**
+  * Generates [[GeneratedAggregations]] which compute the whole list of aggregates of an
+  * aggregation operator.
+  *
+  * The generated code keeps the accumulators of the built-in aggregates in (primitive) member
+  * fields and unrolls the loops over the aggregates, the group keys, and the output fields.
+  */
+object AggregationCodeGenerator {
+
+  /**
+    * Code of a single aggregate within [[GeneratedAggregations]].
+    *
+    * @param fields declarations of the accumulator fields
+    * @param prepare code to set the intermediate value of an input Row
+    * @param reset code to reset the accumulators
+    * @param accumulate code to merge an intermediate value into the accumulators
+    * @param setAccumulators code to set the accumulators as intermediate value
+    * @param result expression of the boxed final aggregate value
+    */
+  private case class AggregateCode(
+      fields: Seq[String],
+      prepare: String,
+      reset: String,
+      accumulate: String,
+      setAccumulators: String,
+      result: String)
+
+  private val inputTerm = "input"
+  private val intermediateTerm = "intermediate"
+  private val outputTerm = "output"
+  private val rowTypeTerm = "org.apache.flink.api.table.Row"
+
+  /**
+    * Generates the [[GeneratedAggregations]] for a list of aggregates.
+    *
+    * @param name The name prefix of the generated class.
+    * @param aggregates The aggregate functions.
+    * @param aggFields The index of the aggregated field in the input Row for each aggregate.
+    * @param groupings The indexes of the group keys in the input Row.
+    * @param groupKeysMapping The index mapping of group keys between intermediate aggregate Row
+    *                         and output Row.
+    * @param aggregateMapping The index mapping between aggregate function list and aggregated
+    *                         value index in output Row.
+    * @return The generated aggregations, or None if code cannot be generated for an aggregate.
+    */
+  def generateAggregations(
+      name: String,
+      aggregates: Array[Aggregate[_ <: Any]],
+      aggFields: Array[Int],
+      groupings: Array[Int],
+      groupKeysMapping: Array[(Int, Int)],
+      aggregateMapping: Array[(Int, Int)])
+    : Option[GeneratedAggregationsFunction] = {
+
+    // the intermediate values of the aggregates follow the group keys
+    val offsets = aggregates.scanLeft(groupings.length)(_ + _.intermediateDataType.length)
+
+    val aggregateCodes = aggregates.indices.map { i =>
+      generateAggregate(aggregates(i), i, aggFields(i), offsets(i))
+    }
+
+    if (aggregateCodes.forall(_.isDefined)) {
+      Some(generateClass(
+        newName(name),
+        aggregateCodes.map(_.get),
+        groupings,
+        groupKeysMapping,
+        aggregateMapping))
+    } else {
+      None
+    }
+  }
+
+  private def generateClass(
+      className: String,
+      aggregateCodes: Seq[AggregateCode],
+      groupings: Array[Int],
+      groupKeysMapping: Array[(Int, Int)],
+      aggregateMapping: Array[(Int, Int)])
+    : GeneratedAggregationsFunction = {
+
+    val prepareGroupKeys = groupings.zipWithIndex.map {
+      case (inputIndex, index) =>
+        s"$intermediateTerm.setField($index, $inputTerm.productElement($inputIndex));"
+    }
+
+    val setGroupKeys = groupKeysMapping.map {
+      case (after, previous) =>
+        s"$outputTerm.setField($after, $intermediateTerm.productElement($previous));"
+    }
+
+    val setResults = aggregateMapping.map {
+      case (after, previous) =>
+        s"$outputTerm.setField($after, ${aggregateCodes(previous).result});"
+    }
+
+    val code = j"""
+      public class $className
+          extends ${classOf[GeneratedAggregations].getCanonicalName} {
+
+        ${aggregateCodes.flatMap(_.fields).mkString("\n")}
+
+        public $className() throws Exception {
+          resetAccumulators();
+        }
+
+        @Override
+        public void prepare($rowTypeTerm $inputTerm, $rowTypeTerm $intermediateTerm) {
+          ${prepareGroupKeys.mkString("\n")}
+          ${aggregateCodes.map(_.prepare).mkString("\n")}
+        }
+
+        @Override
+        public void resetAccumulators() {
+          ${aggregateCodes.map(_.reset).mkString("\n")}
+        }
+
+        @Override
+        public void accumulate($rowTypeTerm $intermediateTerm) {
+          ${aggregateCodes.map(_.accumulate).mkString("\n")}
+        }
+
+        @Override
+        public void setAccumulators($rowTypeTerm $intermediateTerm) {
+          ${aggregateCodes.map(_.setAccumulators).mkString("\n")}
+        }
+
+        @Override
+        public void setGroupKeys($rowTypeTerm $intermediateTerm, $rowTypeTerm $outputTerm) {
+          ${setGroupKeys.mkString("\n")}
+        }
+
+        @Override
+        public void setAggregationResults($rowTypeTerm $outputTerm) {
+          ${setResults.mkString("\n")}
+        }
+      }
+    """.stripMargin
+
+    GeneratedAggregationsFunction(className, code)
+  }
+
+  private def generateAggregate(
+      aggregate: Aggregate[_ <: Any],
+      index: Int,
+      field: Int,
+      offset: Int)
+    : Option[AggregateCode] = aggregate match {
+
+    case _: CountAggregate =>
+      Some(generateCount(index, field, offset))
+
+    case sum: SumAggregate[_] =>
+      Some(generatePrimitiveSum(index, field, offset, sum.intermediateDataType(0)))
+
+    case _: DecimalSumAggregate =>
+      Some(generateDecimalSum(index, field, offset))
+
+    case _: ByteAvgAggregate =>
+      Some(generateAvg(index, field, offset, LongSum, boxCast("java.lang.Byte", "byte")))
+
+    case _: ShortAvgAggregate =>
+      Some(generateAvg(index, field, offset, LongSum, boxCast("java.lang.Short", "short")))
+
+    case _: IntAvgAggregate =>
+      Some(generateAvg(index, field, offset, LongSum, boxCast("java.lang.Integer", "int")))
+
+    case _: LongAvgAggregate =>
+      Some(generateAvg(index, field, offset, BigIntegerSum, boxCast("java.lang.Long", "long")))
+
+    case _: FloatAvgAggregate =>
+      Some(generateAvg(index, field, offset, DoubleSum, boxCast("java.lang.Float", "float")))
+
+    case _: DoubleAvgAggregate =>
+      Some(generateAvg(index, field, offset, DoubleSum, boxCast("java.lang.Double", "double")))
+
+    case _: DecimalAvgAggregate =>
+      Some(generateAvg(index, field, offset, DecimalSum, s => s))
+
+    case min: MinAggregate[_] =>
+      val tpe = min.intermediateDataType(0)
+      Some(generatePrimitiveMinMax(index, field, offset, tpe, isMin = true))
+
+    case max: MaxAggregate[_] =>
+      val tpe = max.intermediateDataType(0)
+      Some(generatePrimitiveMinMax(index, field, offset, tpe, isMin = false))
+
+    case _: DecimalMinAggregate =>
+      Some(generateDecimalMinMax(index, field, offset, isMin = true))
+
+    case _: DecimalMaxAggregate =>
+      Some(generateDecimalMinMax(index, field, offset, isMin = false))
+
+    case _ =>
+      None
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  private def boxCast(boxed: String, primitive: String): String => String =
+    s => s"$boxed.valueOf(($primitive) ($s))"
+
+  private def forwardValue(field: Int, offset: Int): String =
+    s"$intermediateTerm.setField($offset, $inputTerm.productElement($field));"
+
+  private def generateCount(index: Int, field: Int, offset: Int): AggregateCode = {
+    val count = s"count$index"
+    val partial = s"partial$index"
+
+    AggregateCode(
+      fields = Seq(s"private long $count;"),
+      prepare = s"$intermediateTerm.setField($offset, " +
+        s"java.lang.Long.valueOf($inputTerm.productElement($field) == null ? 0L : 1L));",
+      reset = s"$count = 0L;",
+      accumulate =
+        s"""
+          |Object $partial = $intermediateTerm.productElement($offset);
+          |if ($partial != null) {
+          |  $count += ((java.lang.Long) $partial).longValue();
+          |}
+          |""".stripMargin,
+      setAccumulators = s"$intermediateTerm.setField($offset, java.lang.Long.valueOf($count));",
+      result = s"java.lang.Long.valueOf($count)")
+  }
+
+  private def generatePrimitiveSum(
+      index: Int,
+      field: Int,
+      offset: Int,
+      tpe: TypeInformation[_])
+    : AggregateCode = {
+
+    val primitive = primitiveTypeTermForTypeInfo(tpe)
+    val boxed = boxedTypeTermForTypeInfo(tpe)
+    val sum = s"sum$index"
+    val sumIsNull = s"sumIsNull$index"
+    val partial = s"partial$index"
+    val value = s"value$index"
+    val result = s"($sumIsNull ? null : $boxed.valueOf($sum))"
+
+    AggregateCode(
+      fields = Seq(s"private $primitive $sum;", s"private boolean $sumIsNull;"),
+      prepare = forwardValue(field, offset),
+      reset = s"$sumIsNull = true;",
+      accumulate =
+        s"""
+          |Object $partial = $intermediateTerm.productElement($offset);
+          |if ($partial != null) {
+          |  $primitive $value = (($boxed) $partial).${primitive}Value();
+          |  if ($sumIsNull) {
+          |    $sum = $value;
+          |    $sumIsNull = false;
+          |  } else {
+          |    $sum = ($primitive) ($value + $sum);
+          |  }
+          |}
+          |""".stripMargin,
+      setAccumulators = s"$intermediateTerm.setField($offset, $result);",
+      result = result)
+  }
+
+  private def generateDecimalSum(index: Int, field: Int, offset: Int): AggregateCode = {
+    val sum = s"sum$index"
+    val partial = s"partial$index"
+
+    AggregateCode(
+      fields = Seq(s"private java.math.BigDecimal $sum;"),
+      prepare = forwardValue(field, offset),
+      reset = s"$sum = null;",
+      accumulate =
+        s"""
+          |Object $partial = $intermediateTerm.productElement($offset);
+          |if ($partial != null) {
+          |  $sum = $sum == null ?
+          |    (java.math.BigDecimal) $partial :
+          |    ((java.math.BigDecimal) $partial).add($sum);
+          |}
+          |""".stripMargin,
+      setAccumulators = s"$intermediateTerm.setField($offset, $sum);",
+      result = sum)
+  }
+
+  /**
+    * Describes how the partial sum of an average is computed.
+    *
+    * @param fieldType type term of the accumulator field
+    * @param zero the initial value of the accumulator
+    * @param box boxes an accumulator value into an intermediate value
+    * @param prepare converts a non-null input value into an intermediate value
+    * @param unbox converts an intermediate value into an accumulator value
+    * @param add adds two accumulator values
+    */
+  private case class AvgSum(
+      fieldType: String,
+      zero: String,
+      box: String => String,
+      prepare: String => String,
+      unbox: String => String,
+      add: (String, String) => String)
+
+  private val LongSum = AvgSum(
+    "long",
+    "0L",
+    s => s"java.lang.Long.valueOf($s)",
+    v => s"java.lang.Long.valueOf(((java.lang.Number) $v).longValue())",
+    p => s"((java.lang.Long) $p).longValue()",
+    (a, b) => s"checkedAdd($a, $b)")
+
+  private val DoubleSum = AvgSum(
+    "double",
+    "0.0d",
+    s => s"java.lang.Double.valueOf($s)",
+    v => s"java.lang.Double.valueOf(((java.lang.Number) $v).doubleValue())",
+    p => s"((java.lang.Double) $p).doubleValue()",
+    (a, b) => s"$a + $b")
+
+  private val BigIntegerSum = AvgSum(
+    "java.math.BigInteger",
+    "java.math.BigInteger.ZERO",
+    s => s,
+    v => s"java.math.BigInteger.valueOf(((java.lang.Long) $v).longValue())",
+    p => s"((java.math.BigInteger) $p)",
+    (a, b) => s"$a.add($b)")
+
+  private val DecimalSum = AvgSum(
+    "java.math.BigDecimal",
+    "java.math.BigDecimal.ZERO",
+    s => s,
+    v => s"((java.math.BigDecimal) $v)",
+    p => s"((java.math.BigDecimal) $p)",
+    (a, b) => s"$a.add($b)")
+
+  private def generateAvg(
+      index: Int,
+      field: Int,
+      offset: Int,
+      avgSum: AvgSum,
+      boxResult: String => String)
+    : AggregateCode = {
+
+    val sum = s"sum$index"
+    val count = s"count$index"
+    val value = s"value$index"
+    val countOffset = offset + 1
+
+    // the count of floating point averages is not checked for overflows, like in AvgAggregate
+    val addCount =
+      if (avgSum == DoubleSum) {
+        s"((java.lang.Long) $intermediateTerm.productElement($countOffset)).longValue() + $count"
+      } else {
+        s"checkedAdd(((java.lang.Long) $intermediateTerm.productElement($countOffset))" +
+          s".longValue(), $count)"
+      }
+
+    val average = avgSum match {
+      case BigIntegerSum => s"$sum.divide(java.math.BigInteger.valueOf($count)).longValue()"
+      case DecimalSum => s"$sum.divide(java.math.BigDecimal.valueOf($count))"
+      case _ => s"$sum / $count"
+    }
+
+    AggregateCode(
+      fields = Seq(s"private ${avgSum.fieldType} $sum;", s"private long $count;"),
+      prepare =
+        s"""
+          |Object $value = $inputTerm.productElement($field);
+          |if ($value == null) {
+          |  $intermediateTerm.setField($offset, ${avgSum.box(avgSum.zero)});
+          |  $intermediateTerm.setField($countOffset, java.lang.Long.valueOf(0L));
+          |} else {
+          |  $intermediateTerm.setField($offset, ${avgSum.prepare(value)});
+          |  $intermediateTerm.setField($countOffset, java.lang.Long.valueOf(1L));
+          |}
+          |""".stripMargin,
+      reset =
+        s"""
+          |$sum = ${avgSum.zero};
+          |$count = 0L;
+          |""".stripMargin,
+      accumulate =
+        s"""
+          |$sum = ${avgSum.add(avgSum.unbox(s"$intermediateTerm.productElement($offset)"), sum)};
+          |$count = $addCount;
+          |""".stripMargin,
+      setAccumulators =
+        s"""
+          |$intermediateTerm.setField($offset, ${avgSum.box(sum)});
+          |$intermediateTerm.setField($countOffset, java.lang.Long.valueOf($count));
+          |""".stripMargin,
+      result = s"($count == 0L ? null : ${boxResult(average)})")
+  }
+
+  private def generatePrimitiveMinMax(
+      index: Int,
+      field: Int,
+      offset: Int,
+      tpe: TypeInformation[_],
+      isMin: Boolean)
+    : AggregateCode = {
+
+    val primitive = primitiveTypeTermForTypeInfo(tpe)
+    val boxed = boxedTypeTermForTypeInfo(tpe)
+    val acc = if (isMin) s"min$index" else s"max$index"
+    val accIsNull = s"${acc}IsNull"
+    val partial = s"partial$index"
+    val value = s"value$index"
+    val result = s"($accIsNull ? null : $boxed.valueOf($acc))"
+
+    // compare like the Ordering of MinAggregate and MaxAggregate
+    val replaces = tpe match {
+      case FLOAT_TYPE_INFO | DOUBLE_TYPE_INFO | BOOLEAN_TYPE_INFO if isMin =>
+        s"$boxed.compare($value, $acc) < 0"
+      case FLOAT_TYPE_INFO | DOUBLE_TYPE_INFO | BOOLEAN_TYPE_INFO =>
+        s"$boxed.compare($value, $acc) > 0"
+      case _ if isMin =>
+        s"$value < $acc"
+      case _ =>
+        s"$value > $acc"
+    }
+
+    AggregateCode(
+      fields = Seq(s"private $primitive $acc;", s"private boolean $accIsNull;"),
+      prepare = forwardValue(field, offset),
+      reset = s"$accIsNull = true;",
+      accumulate =
+        s"""
+          |Object $partial = $intermediateTerm.productElement($offset);
+          |if ($partial != null) {
+          |  $primitive $value = (($boxed) $partial).${primitive}Value();
+          |  if ($accIsNull || $replaces) {
+          |    $acc = $value;
+          |    $accIsNull = false;
+          |  }
+          |}
+          |""".stripMargin,
+      setAccumulators = s"$intermediateTerm.setField($offset, $result);",
+      result = result)
+  }
+
+  private def generateDecimalMinMax(
+      index: Int,
+      field: Int,
+      offset: Int,
+      isMin: Boolean)
+    : AggregateCode = {
+
+    val acc = if (isMin) s"min$index" else s"max$index"
+    val partial = s"partial$index"
+    val value = s"value$index"
+    val replaces = if (isMin) s"$value.compareTo($acc) < 0" else s"$value.compareTo($acc) > 0"
+
+    AggregateCode(
+      fields = Seq(s"private java.math.BigDecimal $acc;"),
+      prepare = forwardValue(field, offset),
+      reset = s"$acc = null;",
+      accumulate =
+        s"""
+          |Object $partial = $intermediateTerm.productElement($offset);
+          |if ($partial != null) {
+          |  java.math.BigDecimal $value = (java.math.BigDecimal) $partial;
+          |  if ($acc == null || $replaces) {
+          |    $acc = $value;
+          |  }
+          |}
+          |""".stripMargin,
+      setAccumulators = s"$intermediateTerm.setField($offset, $acc);",
+      result = acc)
+  }
+}
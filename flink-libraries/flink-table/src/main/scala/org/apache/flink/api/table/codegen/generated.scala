@@ -41,3 +41,11 @@ object GeneratedExpression {
 }
 
 case class GeneratedFunction[T](name: String, returnType: TypeInformation[Any], code: String)
+
+/**
+  * Describes a generated [[org.apache.flink.api.table.runtime.aggregate.GeneratedAggregations]].
+  *
+  * @param name class name of the generated aggregations
+  * @param code code of the generated aggregations
+  */
+case class GeneratedAggregationsFunction(name: String, code: String)
@@ -221,8 +221,8 @@ case class Aggregate(
   }
 
   override def validate(tableEnv: TableEnvironment): LogicalNode = {
-    if (tableEnv.isInstanceOf[StreamTableEnvironment]) {
-      failValidation(s"Aggregate on stream tables is currently not supported.")
+    if (tableEnv.isInstanceOf[StreamTableEnvironment] && groupingExpressions.isEmpty) {
+      failValidation(s"Aggregate on stream tables is currently only supported with groupBy.")
     }
 
     val resolvedAggregate = super.validate(tableEnv).asInstanceOf[Aggregate]
@@ -19,34 +19,60 @@
 package org.apache.flink.api.table.plan.nodes.dataset
 
 import org.apache.calcite.plan._
-import org.apache.calcite.rel.RelNode
-import org.apache.calcite.rel.`type`.RelDataType
+import org.apache.calcite.rel.metadata.RelMetadataQuery
+import org.apache.calcite.rel.{RelNode, RelWriter}
 import org.apache.flink.api.common.typeinfo.TypeInformation
 import org.apache.flink.api.java.DataSet
 import org.apache.flink.api.table.BatchTableEnvironment
+import org.apache.flink.api.table.expressions.Expression
 import org.apache.flink.api.table.plan.schema.TableSourceTable
 import org.apache.flink.api.table.sources.BatchTableSource
 
-/** Flink RelNode to read data from an external source defined by a [[BatchTableSource]]. */
+import scala.collection.JavaConverters._
+
+/**
+  * Flink RelNode to read data from an external source defined by a [[BatchTableSource]].
+  *
+  * The row type of the scan is derived from the source, which might have been projected by
+  * the optimizer. The predicates that have been pushed into the source are part of the plan
+  * description, such that scans of differently filtered sources are not considered equal.
+  */
 class BatchTableSourceScan(
     cluster: RelOptCluster,
     traitSet: RelTraitSet,
     table: RelOptTable,
-    rowType: RelDataType)
-  extends BatchScan(cluster, traitSet, table, rowType) {
+    val tableSource: BatchTableSource[_],
+    val filterPredicates: Seq[Expression] = Seq())
+  extends BatchScan(
+    cluster,
+    traitSet,
+    table,
+    new TableSourceTable(tableSource).getRowType(cluster.getTypeFactory)) {
 
-  val tableSourceTable = getTable.unwrap(classOf[TableSourceTable])
-  val tableSource = tableSourceTable.tableSource.asInstanceOf[BatchTableSource[_]]
+  val tableSourceTable = new TableSourceTable(tableSource)
 
   override def copy(traitSet: RelTraitSet, inputs: java.util.List[RelNode]): RelNode = {
     new BatchTableSourceScan(
       cluster,
       traitSet,
       getTable,
-      getRowType
+      tableSource,
+      filterPredicates
     )
   }
 
+  override def computeSelfCost(planner: RelOptPlanner, metadata: RelMetadataQuery): RelOptCost = {
+    val rowCnt = metadata.getRowCount(this)
+    // sources read less data if they return fewer fields
+    planner.getCostFactory.makeCost(rowCnt, rowCnt, rowCnt * getRowType.getFieldCount)
+  }
+
+  override def explainTerms(pw: RelWriter): RelWriter = {
+    super.explainTerms(pw)
+      .item("fields", getRowType.getFieldNames.asScala.mkString(", "))
+      .itemIf("filter", filterPredicates.mkString(" && "), filterPredicates.nonEmpty)
+  }
+
   override def translateToPlan(
       tableEnv: BatchTableEnvironment,
       expectedType: Option[TypeInformation[Any]]): DataSet[Any] = {
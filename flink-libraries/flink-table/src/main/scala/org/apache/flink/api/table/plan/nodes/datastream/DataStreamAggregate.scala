@@ -109,6 +109,11 @@ class DataStreamAggregate(
     
     val config = tableEnv.getConfig
 
+    if (input.asInstanceOf[DataStreamRel].producesUpdates) {
+      throw new TableException("Window aggregations on updated tables are currently not " +
+        "supported.")
+    }
+
     val groupingKeys = grouping.indices.toArray
     // add grouping fields, position keys in the input, and input type
     val aggregateResult = AggregateUtil.createOperatorFunctionsForAggregates(
@@ -18,18 +18,25 @@
 
 package org.apache.flink.api.table.plan.nodes.datastream
 
+import java.lang.{Boolean => JBoolean}
+
 import org.apache.calcite.plan.{RelOptCluster, RelTraitSet}
 import org.apache.calcite.rel.`type`.RelDataType
 import org.apache.calcite.rel.{RelNode, RelWriter, SingleRel}
-import org.apache.calcite.rex.RexProgram
-import org.apache.flink.api.common.typeinfo.TypeInformation
+import org.apache.calcite.rex.{RexInputRef, RexProgram}
+import org.apache.flink.api.common.typeinfo.{BasicTypeInfo, TypeInformation}
+import org.apache.flink.api.java.tuple.{Tuple2 => JTuple2}
+import org.apache.flink.api.java.typeutils.TupleTypeInfo
 import org.apache.flink.api.table.StreamTableEnvironment
 import org.apache.flink.api.table.codegen.CodeGenerator
 import org.apache.flink.api.table.plan.nodes.FlinkCalc
+import org.apache.flink.api.table.runtime.UpdateFlatMapRunner
 import org.apache.flink.api.table.typeutils.TypeConverter._
 import org.apache.flink.api.common.functions.FlatMapFunction
 import org.apache.flink.streaming.api.datastream.DataStream
 
+import scala.collection.JavaConverters._
+
 /**
   * Flink RelNode which matches along with FlatMapOperator.
   *
@@ -39,7 +46,7 @@ class DataStreamCalc(
     traitSet: RelTraitSet,
     input: RelNode,
     rowRelDataType: RelDataType,
-    calcProgram: RexProgram,
+    private[flink] val calcProgram: RexProgram,
     ruleDescription: String)
   extends SingleRel(cluster, traitSet, input)
   with FlinkCalc
@@ -58,6 +65,30 @@ class DataStreamCalc(
     )
   }
 
+  override def producesUpdates: Boolean = getInput.asInstanceOf[DataStreamRel].producesUpdates
+
+  override def getUpdateKeys: Option[Array[String]] = {
+    getInput.asInstanceOf[DataStreamRel].getUpdateKeys.flatMap { inputKeys =>
+      val inFields = getInput.getRowType.getFieldNames.asScala
+      val outFields = getRowType.getFieldNames.asScala
+
+      // the names under which the input fields are forwarded
+      val forwardedFields = calcProgram.getProjectList.asScala.zipWithIndex.flatMap {
+        case (ref, outIndex) => calcProgram.expandLocalRef(ref) match {
+          case inputRef: RexInputRef => Some(inFields(inputRef.getIndex) -> outFields(outIndex))
+          case _ => None
+        }
+      }.toMap
+
+      // the keys are only known if all key fields are forwarded
+      if (inputKeys.forall(forwardedFields.contains)) {
+        Some(inputKeys.map(forwardedFields))
+      } else {
+        None
+      }
+    }
+  }
+
   override def toString: String = calcToString(calcProgram, getExpressionString)
 
   override def explainTerms(pw: RelWriter): RelWriter = {
@@ -76,17 +107,24 @@ class DataStreamCalc(
 
     val inputDataStream = getInput.asInstanceOf[DataStreamRel].translateToPlan(tableEnv)
 
+    // the records of an updating input are wrapped in change messages
+    val inputType = if (producesUpdates) {
+      inputDataStream.getType.asInstanceOf[TupleTypeInfo[_]].getTypeAt[Any](1)
+    } else {
+      inputDataStream.getType
+    }
+
     val returnType = determineReturnType(
       getRowType,
       expectedType,
       config.getNullCheck,
       config.getEfficientTypeUsage)
 
-    val generator = new CodeGenerator(config, false, inputDataStream.getType)
+    val generator = new CodeGenerator(config, false, inputType)
 
     val body = functionBody(
       generator,
-      inputDataStream.getType,
+      inputType,
       getRowType,
       calcProgram,
       config,
@@ -98,7 +136,17 @@ class DataStreamCalc(
       body,
       returnType)
 
-    val mapFunc = calcMapFunction(genFunction)
+    val mapFunc = if (producesUpdates) {
+      new UpdateFlatMapRunner[Any, Any](
+        genFunction.name,
+        genFunction.code,
+        new TupleTypeInfo[JTuple2[JBoolean, Any]](
+          BasicTypeInfo.BOOLEAN_TYPE_INFO,
+          genFunction.returnType))
+        .asInstanceOf[FlatMapFunction[Any, Any]]
+    } else {
+      calcMapFunction(genFunction)
+    }
     inputDataStream.flatMap(mapFunc).name(calcOpName(calcProgram, getExpressionString))
   }
 }
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.api.table.plan.nodes.datastream
+
+import java.lang.{Boolean => JBoolean}
+
+import org.apache.calcite.plan.{RelOptCluster, RelTraitSet}
+import org.apache.calcite.rel.`type`.RelDataType
+import org.apache.calcite.rel.core.AggregateCall
+import org.apache.calcite.rel.{RelNode, RelWriter, SingleRel}
+import org.apache.flink.api.common.functions.MapFunction
+import org.apache.flink.api.common.typeinfo.{BasicTypeInfo, TypeInformation}
+import org.apache.flink.api.java.tuple.{Tuple2 => JTuple2}
+import org.apache.flink.api.java.typeutils.TupleTypeInfo
+import org.apache.flink.api.table.codegen.CodeGenerator
+import org.apache.flink.api.table.plan.nodes.FlinkAggregate
+import org.apache.flink.api.table.runtime.UpdateMapRunner
+import org.apache.flink.api.table.runtime.aggregate.AggregateUtil
+import org.apache.flink.api.table.runtime.aggregate.AggregateUtil.CalcitePair
+import org.apache.flink.api.table.typeutils.{RowTypeInfo, TypeConverter}
+import org.apache.flink.api.table.{FlinkTypeFactory, Row, StreamTableEnvironment}
+import org.apache.flink.api.table.{TableConfig, TableException}
+import org.apache.flink.streaming.api.datastream.DataStream
+
+import scala.collection.JavaConverters._
+
+/**
+  * Flink RelNode for a non-windowed grouped aggregation on a stream.
+  *
+  * The aggregates of each group are continuously updated. The node produces updates, i.e., for
+  * every input record it retracts the previous result of the group (if any) and emits the new
+  * result.
+  */
+class DataStreamGroupAggregate(
+    cluster: RelOptCluster,
+    traitSet: RelTraitSet,
+    inputNode: RelNode,
+    namedAggregates: Seq[CalcitePair[AggregateCall, String]],
+    rowRelDataType: RelDataType,
+    inputType: RelDataType,
+    grouping: Array[Int])
+  extends SingleRel(cluster, traitSet, inputNode)
+  with FlinkAggregate
+  with DataStreamRel {
+
+  override def deriveRowType() = rowRelDataType
+
+  override def producesUpdates: Boolean = true
+
+  override def getUpdateKeys: Option[Array[String]] = {
+    // the group keys are forwarded with the same names
+    val inFields = inputType.getFieldNames.asScala
+    Some(grouping.map(inFields(_)))
+  }
+
+  override def copy(traitSet: RelTraitSet, inputs: java.util.List[RelNode]): RelNode = {
+    new DataStreamGroupAggregate(
+      cluster,
+      traitSet,
+      inputs.get(0),
+      namedAggregates,
+      getRowType,
+      inputType,
+      grouping)
+  }
+
+  override def toString: String = {
+    s"Aggregate(groupBy: (${groupingToString(inputType, grouping)}), " +
+      s"select: (${aggregationToString(inputType, grouping, getRowType, namedAggregates, Nil)}))"
+  }
+
+  override def explainTerms(pw: RelWriter): RelWriter = {
+    super.explainTerms(pw)
+      .item("groupBy", groupingToString(inputType, grouping))
+      .item("select", aggregationToString(
+        inputType,
+        grouping,
+        getRowType,
+        namedAggregates,
+        Nil))
+  }
+
+  override def translateToPlan(
+      tableEnv: StreamTableEnvironment,
+      expectedType: Option[TypeInformation[Any]])
+    : DataStream[Any] = {
+
+    val config = tableEnv.getConfig
+
+    if (input.asInstanceOf[DataStreamRel].producesUpdates) {
+      throw new TableException("Aggregations on updated tables are currently not supported.")
+    }
+
+    val groupingKeys = grouping.indices.toArray
+    val (mapFunction, groupAggregateFunction) =
+      AggregateUtil.createOperatorFunctionsForGroupAggregates(
+        namedAggregates,
+        inputType,
+        getRowType,
+        grouping,
+        config.getMinIdleStateRetentionTime,
+        config.getMaxIdleStateRetentionTime)
+
+    val inputDS = input.asInstanceOf[DataStreamRel].translateToPlan(
+      tableEnv,
+      // tell the input operator that this operator currently only supports Rows as input
+      Some(TypeConverter.DEFAULT_ROW_TYPE))
+
+    val aggString = aggregationToString(inputType, grouping, getRowType, namedAggregates, Nil)
+
+    val prepareOpName = s"prepare select: ($aggString)"
+    val aggOpName = s"groupBy: (${groupingToString(inputType, grouping)}), select: ($aggString)"
+
+    val result = inputDS
+      .map(mapFunction)
+      .name(prepareOpName)
+      .keyBy(groupingKeys: _*)
+      .flatMap(groupAggregateFunction)
+      .name(aggOpName)
+      .asInstanceOf[DataStream[Any]]
+
+    // if the expected type is not a Row, inject a mapper to convert the updated records
+    expectedType match {
+      case Some(typeInfo) if typeInfo.getTypeClass != classOf[Row] =>
+        val rowTypeInfo = new RowTypeInfo(getRowType.getFieldList.asScala
+          .map(field => FlinkTypeFactory.toTypeInfo(field.getType)))
+        val mapName = s"convert: (${getRowType.getFieldNames.asScala.toList.mkString(", ")})"
+        result.map(getUpdateConversionMapper(
+          config = config,
+          inputType = rowTypeInfo.asInstanceOf[TypeInformation[Any]],
+          expectedType = typeInfo))
+          .name(mapName)
+      case _ => result
+    }
+  }
+
+  private def getUpdateConversionMapper(
+      config: TableConfig,
+      inputType: TypeInformation[Any],
+      expectedType: TypeInformation[Any])
+    : MapFunction[Any, Any] = {
+
+    val generator = new CodeGenerator(config, false, inputType)
+    val conversion = generator.generateConverterResultExpression(
+      expectedType,
+      getRowType.getFieldNames.asScala)
+
+    val body =
+      s"""
+         |${conversion.code}
+         |return ${conversion.resultTerm};
+         |""".stripMargin
+
+    val genFunction = generator.generateFunction(
+      "DataStreamGroupAggregateConversion",
+      classOf[MapFunction[Any, Any]],
+      body,
+      expectedType)
+
+    new UpdateMapRunner[Any, Any](
+      genFunction.name,
+      genFunction.code,
+      new TupleTypeInfo[JTuple2[JBoolean, Any]](
+        BasicTypeInfo.BOOLEAN_TYPE_INFO,
+        genFunction.returnType))
+      .asInstanceOf[MapFunction[Any, Any]]
+  }
+}
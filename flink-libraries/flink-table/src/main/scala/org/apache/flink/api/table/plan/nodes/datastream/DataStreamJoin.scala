@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.api.table.plan.nodes.datastream
+
+import org.apache.calcite.plan.{RelOptCluster, RelTraitSet}
+import org.apache.calcite.rel.`type`.RelDataType
+import org.apache.calcite.rel.{BiRel, RelNode, RelWriter}
+import org.apache.calcite.rex.RexNode
+import org.apache.calcite.util.mapping.IntPair
+import org.apache.flink.api.common.functions.FlatJoinFunction
+import org.apache.flink.api.common.typeinfo.TypeInformation
+import org.apache.flink.api.java.tuple.Tuple
+import org.apache.flink.api.table.codegen.CodeGenerator
+import org.apache.flink.api.table.runtime.join.{TimeBoundedStreamInnerJoin, WindowBounds}
+import org.apache.flink.api.table.typeutils.TypeConverter.determineReturnType
+import org.apache.flink.api.table.typeutils.{RowTypeInfo, TypeConverter}
+import org.apache.flink.api.table.{FlinkTypeFactory, StreamTableEnvironment, TableException}
+import org.apache.flink.streaming.api.datastream.DataStream
+import org.apache.flink.streaming.api.functions.co.TimelyCoFlatMapFunction
+import org.apache.flink.streaming.api.operators.co.CoStreamTimelyFlatMap
+
+import scala.collection.JavaConverters._
+
+/**
+  * Flink RelNode for an inner join of two streams on equality predicates and a time-bounded
+  * window, e.g., `a.ts BETWEEN b.ts - INTERVAL '1' MINUTE AND b.ts + INTERVAL '1' MINUTE`.
+  *
+  * Both inputs are partitioned on the equality keys. The Rows of both inputs are kept in keyed
+  * state only as long as the window bounds require.
+  */
+class DataStreamJoin(
+    cluster: RelOptCluster,
+    traitSet: RelTraitSet,
+    leftNode: RelNode,
+    rightNode: RelNode,
+    rowRelDataType: RelDataType,
+    joinCondition: RexNode,
+    joinRowType: RelDataType,
+    keyPairs: List[IntPair],
+    windowBounds: WindowBounds,
+    ruleDescription: String)
+  extends BiRel(cluster, traitSet, leftNode, rightNode)
+  with DataStreamRel {
+
+  override def deriveRowType() = rowRelDataType
+
+  override def copy(traitSet: RelTraitSet, inputs: java.util.List[RelNode]): RelNode = {
+    new DataStreamJoin(
+      cluster,
+      traitSet,
+      inputs.get(0),
+      inputs.get(1),
+      getRowType,
+      joinCondition,
+      joinRowType,
+      keyPairs,
+      windowBounds,
+      ruleDescription)
+  }
+
+  override def toString: String = {
+    s"Join(where: ($joinConditionToString), join: ($joinSelectionToString))"
+  }
+
+  override def explainTerms(pw: RelWriter): RelWriter = {
+    super.explainTerms(pw)
+      .item("where", joinConditionToString)
+      .item("join", joinSelectionToString)
+      .item("joinType", "InnerJoin")
+  }
+
+  override def translateToPlan(
+      tableEnv: StreamTableEnvironment,
+      expectedType: Option[TypeInformation[Any]]): DataStream[Any] = {
+
+    val config = tableEnv.getConfig
+
+    if (left.asInstanceOf[DataStreamRel].producesUpdates ||
+        right.asInstanceOf[DataStreamRel].producesUpdates) {
+      throw new TableException("Joins on updated tables are currently not supported.")
+    }
+
+    val returnType = determineReturnType(
+      getRowType,
+      expectedType,
+      config.getNullCheck,
+      config.getEfficientTypeUsage)
+
+    // get the equality keys
+    val leftFields = left.getRowType.getFieldList
+    val rightFields = right.getRowType.getFieldList
+    keyPairs.foreach { pair =>
+      val leftKeyType = leftFields.get(pair.source).getType.getSqlTypeName
+      val rightKeyType = rightFields.get(pair.target).getType.getSqlTypeName
+      if (leftKeyType != rightKeyType) {
+        throw TableException(
+          "Equality join predicate on incompatible types.\n" +
+            s"\tLeft: ${left.toString},\n" +
+            s"\tRight: ${right.toString},\n" +
+            s"\tCondition: ($joinConditionToString)"
+        )
+      }
+    }
+    val leftKeys = keyPairs.map(_.source).toArray
+    val rightKeys = keyPairs.map(_.target).toArray
+
+    // the join operator currently only supports Rows as input
+    val leftDataStream = left.asInstanceOf[DataStreamRel].translateToPlan(
+      tableEnv,
+      Some(TypeConverter.DEFAULT_ROW_TYPE))
+    val rightDataStream = right.asInstanceOf[DataStreamRel].translateToPlan(
+      tableEnv,
+      Some(TypeConverter.DEFAULT_ROW_TYPE))
+
+    val generator = new CodeGenerator(
+      config,
+      false,
+      leftDataStream.getType,
+      Some(rightDataStream.getType))
+    val conversion = generator.generateConverterResultExpression(
+      returnType,
+      joinRowType.getFieldNames.asScala)
+
+    // evaluate the full condition, the operator only pre-selects Rows within the window
+    val condition = generator.generateExpression(joinCondition)
+    val body =
+      s"""
+         |${condition.code}
+         |if (${condition.resultTerm}) {
+         |  ${conversion.code}
+         |  ${generator.collectorTerm}.collect(${conversion.resultTerm});
+         |}
+         |""".stripMargin
+
+    val genFunction = generator.generateFunction(
+      ruleDescription,
+      classOf[FlatJoinFunction[Any, Any, Any]],
+      body,
+      returnType)
+
+    val joinFunction = new TimeBoundedStreamInnerJoin(
+      windowBounds,
+      toRowTypeInfo(left.getRowType),
+      toRowTypeInfo(right.getRowType),
+      genFunction.name,
+      genFunction.code,
+      genFunction.returnType)
+
+    val leftKeyedStream = leftDataStream.keyBy(leftKeys: _*)
+    val rightKeyedStream = rightDataStream.keyBy(rightKeys: _*)
+    val keySerializer = leftKeyedStream.getKeyType
+      .createSerializer(leftDataStream.getExecutionConfig)
+
+    val joinOpName = s"where: ($joinConditionToString), join: ($joinSelectionToString)"
+
+    leftKeyedStream
+      .connect(rightKeyedStream)
+      .transform(
+        joinOpName,
+        returnType,
+        new CoStreamTimelyFlatMap[Tuple, Any, Any, Any](
+          keySerializer,
+          joinFunction.asInstanceOf[TimelyCoFlatMapFunction[Any, Any, Any]]))
+  }
+
+  private def toRowTypeInfo(rowType: RelDataType): RowTypeInfo = {
+    new RowTypeInfo(rowType.getFieldList.asScala.map(f => FlinkTypeFactory.toTypeInfo(f.getType)))
+  }
+
+  private def joinSelectionToString: String = {
+    getRowType.getFieldNames.asScala.toList.mkString(", ")
+  }
+
+  private def joinConditionToString: String = {
+    val inFields = joinRowType.getFieldNames.asScala.toList
+    getExpressionString(joinCondition, inFields, None)
+  }
+}
@@ -41,5 +41,20 @@ trait DataStreamRel extends RelNode with FlinkRel {
     tableEnv: StreamTableEnvironment,
     expectedType: Option[TypeInformation[Any]] = None) : DataStream[Any]
 
+  /**
+    * Returns whether the Flink operator produces updates of previously emitted records.
+    *
+    * If true, [[translateToPlan()]] returns a DataStream of
+    * [[org.apache.flink.api.java.tuple.Tuple2]] where the first field is a
+    * [[java.lang.Boolean]] flag which is true for inserted and false for retracted records,
+    * and the second field is the record of the expected type.
+    */
+  def producesUpdates: Boolean = false
+
+  /**
+    * Returns the names of the fields which uniquely identify an updated record, if known.
+    */
+  def getUpdateKeys: Option[Array[String]] = None
+
 }
 
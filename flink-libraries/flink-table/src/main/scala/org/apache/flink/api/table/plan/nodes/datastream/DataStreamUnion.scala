@@ -22,7 +22,7 @@ import org.apache.calcite.plan.{RelOptCluster, RelTraitSet}
 import org.apache.calcite.rel.`type`.RelDataType
 import org.apache.calcite.rel.{RelNode, RelWriter, BiRel}
 import org.apache.flink.api.common.typeinfo.TypeInformation
-import org.apache.flink.api.table.StreamTableEnvironment
+import org.apache.flink.api.table.{StreamTableEnvironment, TableException}
 import org.apache.flink.streaming.api.datastream.DataStream
 
 import scala.collection.JavaConverters._
@@ -52,6 +52,10 @@ class DataStreamUnion(
     )
   }
 
+  override def producesUpdates: Boolean =
+    left.asInstanceOf[DataStreamRel].producesUpdates ||
+      right.asInstanceOf[DataStreamRel].producesUpdates
+
   override def explainTerms(pw: RelWriter): RelWriter = {
     super.explainTerms(pw).item("union", unionSelectionToString)
   }
@@ -64,6 +68,12 @@ class DataStreamUnion(
       tableEnv: StreamTableEnvironment,
       expectedType: Option[TypeInformation[Any]]): DataStream[Any] = {
 
+    if (left.asInstanceOf[DataStreamRel].producesUpdates !=
+        right.asInstanceOf[DataStreamRel].producesUpdates) {
+      throw new TableException("Union of an updated and an append-only table is currently " +
+        "not supported.")
+    }
+
     val leftDataSet = left.asInstanceOf[DataStreamRel].translateToPlan(tableEnv)
     val rightDataSet = right.asInstanceOf[DataStreamRel].translateToPlan(tableEnv)
     leftDataSet.union(rightDataSet)
@@ -107,7 +107,11 @@ object FlinkRuleSets {
     DataSetMinusRule.INSTANCE,
     DataSetSortRule.INSTANCE,
     DataSetValuesRule.INSTANCE,
-    BatchTableSourceScanRule.INSTANCE
+    BatchTableSourceScanRule.INSTANCE,
+
+    // push projections and filters into table sources
+    PushProjectIntoBatchTableSourceScanRule.INSTANCE,
+    PushFilterIntoBatchTableSourceScanRule.INSTANCE
   )
 
   /**
@@ -126,6 +130,13 @@ object FlinkRuleSets {
       ProjectCalcMergeRule.INSTANCE,
       CalcMergeRule.INSTANCE,
 
+      // push a filter into a join
+      FilterJoinRule.FILTER_ON_JOIN,
+      // push filter into the children of a join
+      FilterJoinRule.JOIN,
+      // push expressions of equi-join conditions into the join inputs
+      JoinPushExpressionsRule.INSTANCE,
+
       // prune empty results rules
       PruneEmptyRules.FILTER_INSTANCE,
       PruneEmptyRules.PROJECT_INSTANCE,
@@ -147,11 +158,17 @@ object FlinkRuleSets {
 
       // translate to DataStream nodes
       DataStreamAggregateRule.INSTANCE,
+      DataStreamGroupAggregateRule.INSTANCE,
+      DataStreamJoinRule.INSTANCE,
       DataStreamCalcRule.INSTANCE,
       DataStreamScanRule.INSTANCE,
       DataStreamUnionRule.INSTANCE,
       DataStreamValuesRule.INSTANCE,
-      StreamTableSourceScanRule.INSTANCE
+      StreamTableSourceScanRule.INSTANCE,
+
+      // push projections and filters into table sources
+      PushProjectIntoStreamTableSourceScanRule.INSTANCE,
+      PushFilterIntoStreamTableSourceScanRule.INSTANCE
   )
 
 }
@@ -61,7 +61,7 @@ class BatchTableSourceScanRule
       rel.getCluster,
       traitSet,
       scan.getTable,
-      rel.getRowType
+      scan.getTable.unwrap(classOf[TableSourceTable]).tableSource.asInstanceOf[BatchTableSource[_]]
     )
   }
 }
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.api.table.plan.rules.dataSet
+
+import java.util.{ArrayList => JArrayList}
+
+import org.apache.calcite.plan.RelOptRule.{none, operand}
+import org.apache.calcite.plan.{RelOptRule, RelOptRuleCall}
+import org.apache.flink.api.table.expressions.Expression
+import org.apache.flink.api.table.plan.nodes.dataset.{BatchTableSourceScan, DataSetCalc}
+import org.apache.flink.api.table.plan.rules.util.RexProgramExpressionExtractor._
+import org.apache.flink.api.table.sources.{BatchTableSource, FilterableTableSource}
+
+import scala.collection.JavaConversions._
+import scala.collection.JavaConverters._
+
+/**
+  * This rule tries to push the predicates of a [[DataSetCalc]] into a
+  * [[BatchTableSourceScan]] whose source is a [[FilterableTableSource]]. Predicates that cannot be
+  * converted into [[Expression]]s or that are not fully evaluated by the source remain in the
+  * [[DataSetCalc]].
+  */
+class PushFilterIntoBatchTableSourceScanRule
+  extends RelOptRule(
+    operand(classOf[DataSetCalc], operand(classOf[BatchTableSourceScan], none)),
+    "PushFilterIntoBatchTableSourceScanRule") {
+
+  /**
+    * Rule must only match if the [[DataSetCalc]] has a condition and the [[BatchTableSourceScan]]
+    * targets a [[FilterableTableSource]] which did not receive predicates yet.
+    */
+  override def matches(call: RelOptRuleCall): Boolean = {
+    val calc: DataSetCalc = call.rel(0).asInstanceOf[DataSetCalc]
+    val scan: BatchTableSourceScan = call.rel(1).asInstanceOf[BatchTableSourceScan]
+    calc.calcProgram.getCondition != null && (scan.tableSource match {
+      case source: FilterableTableSource[_] => !source.isFilterPushedDown
+      case _ => false
+    })
+  }
+
+  override def onMatch(call: RelOptRuleCall): Unit = {
+    val calc: DataSetCalc = call.rel(0).asInstanceOf[DataSetCalc]
+    val scan: BatchTableSourceScan = call.rel(1).asInstanceOf[BatchTableSourceScan]
+
+    val (predicates, unconvertedPredicates) =
+      extractPredicates(calc.calcProgram, scan.getRowType.getFieldNames)
+
+    if (predicates.nonEmpty) {
+      val originalTableSource = scan.tableSource.asInstanceOf[FilterableTableSource[_]]
+      // the source removes the predicates which it evaluates completely
+      val remainingPredicates = new JArrayList[Expression](predicates.map(_._1).asJava)
+      val newTableSource = originalTableSource.applyPredicate(remainingPredicates)
+
+      val newScan = new BatchTableSourceScan(
+        scan.getCluster,
+        scan.getTraitSet,
+        scan.getTable,
+        newTableSource.asInstanceOf[BatchTableSource[_]],
+        predicates.map(_._1))
+
+      val remainingRexNodes = predicates
+        .filter(p => remainingPredicates.contains(p._1))
+        .map(_._2) ++ unconvertedPredicates
+
+      val newCalcProgram = rewriteRexProgram(
+        calc.calcProgram,
+        remainingRexNodes,
+        calc.getCluster.getRexBuilder)
+
+      if (newCalcProgram.isTrivial &&
+          newScan.getRowType.getFieldNames == calc.getRowType.getFieldNames) {
+        // all predicates are evaluated by the source and the calc would only forward the fields
+        call.transformTo(newScan)
+      } else {
+        val newCalc = new DataSetCalc(
+          calc.getCluster,
+          calc.getTraitSet,
+          newScan,
+          calc.getRowType,
+          newCalcProgram,
+          description)
+        call.transformTo(newCalc)
+      }
+    }
+  }
+}
+
+object PushFilterIntoBatchTableSourceScanRule {
+  val INSTANCE: RelOptRule = new PushFilterIntoBatchTableSourceScanRule
+}
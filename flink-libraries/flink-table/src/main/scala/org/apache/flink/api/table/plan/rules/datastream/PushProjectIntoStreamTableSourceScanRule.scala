@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.api.table.plan.rules.datastream
+
+import org.apache.calcite.plan.RelOptRule.{none, operand}
+import org.apache.calcite.plan.{RelOptRule, RelOptRuleCall}
+import org.apache.flink.api.table.plan.nodes.datastream.{StreamTableSourceScan, DataStreamCalc}
+import org.apache.flink.api.table.plan.rules.util.RexProgramProjectExtractor._
+import org.apache.flink.api.table.sources.{StreamTableSource, ProjectableTableSource}
+
+/**
+  * This rule tries to push projections into a [[StreamTableSourceScan]] whose source is a
+  * [[ProjectableTableSource]]. The source only returns the fields which are accessed by the
+  * [[DataStreamCalc]], and the fields are not read at all if the source supports it.
+  */
+class PushProjectIntoStreamTableSourceScanRule
+  extends RelOptRule(
+    operand(classOf[DataStreamCalc], operand(classOf[StreamTableSourceScan], none)),
+    "PushProjectIntoStreamTableSourceScanRule") {
+
+  /** Rule must only match if the [[StreamTableSourceScan]] targets a [[ProjectableTableSource]] */
+  override def matches(call: RelOptRuleCall): Boolean = {
+    val scan: StreamTableSourceScan = call.rel(1).asInstanceOf[StreamTableSourceScan]
+    scan.tableSource match {
+      case _: ProjectableTableSource[_] => true
+      case _ => false
+    }
+  }
+
+  override def onMatch(call: RelOptRuleCall): Unit = {
+    val calc: DataStreamCalc = call.rel(0).asInstanceOf[DataStreamCalc]
+    val scan: StreamTableSourceScan = call.rel(1).asInstanceOf[StreamTableSourceScan]
+
+    val usedFields = extractRefInputFields(calc.calcProgram) match {
+      // a source must return at least one field, even if none is accessed
+      case Array() => Array(0)
+      case fields => fields
+    }
+
+    // only push the projection if it removes fields
+    if (usedFields.length < scan.getRowType.getFieldCount) {
+      val originalTableSource = scan.tableSource.asInstanceOf[ProjectableTableSource[_]]
+      val newTableSource = originalTableSource.projectFields(usedFields)
+      val newScan = new StreamTableSourceScan(
+        scan.getCluster,
+        scan.getTraitSet,
+        scan.getTable,
+        newTableSource.asInstanceOf[StreamTableSource[_]],
+        scan.filterPredicates)
+
+      val newCalcProgram = rewriteRexProgram(
+        calc.calcProgram,
+        newScan.getRowType,
+        usedFields,
+        calc.getCluster.getRexBuilder)
+
+      if (newCalcProgram.isTrivial &&
+          newScan.getRowType.getFieldNames == calc.getRowType.getFieldNames) {
+        // the calc would only forward the projected fields
+        call.transformTo(newScan)
+      } else {
+        val newCalc = new DataStreamCalc(
+          calc.getCluster,
+          calc.getTraitSet,
+          newScan,
+          calc.getRowType,
+          newCalcProgram,
+          description)
+        call.transformTo(newCalc)
+      }
+    }
+  }
+}
+
+object PushProjectIntoStreamTableSourceScanRule {
+  val INSTANCE: RelOptRule = new PushProjectIntoStreamTableSourceScanRule
+}
@@ -62,7 +62,7 @@ class StreamTableSourceScanRule
       rel.getCluster,
       traitSet,
       scan.getTable,
-      rel.getRowType
+      scan.getTable.unwrap(classOf[TableSourceTable]).tableSource.asInstanceOf[StreamTableSource[_]]
     )
   }
 }
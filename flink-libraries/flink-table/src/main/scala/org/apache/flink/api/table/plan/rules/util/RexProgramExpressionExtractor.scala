@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.api.table.plan.rules.util
+
+import java.math.{BigDecimal => JBigDecimal}
+
+import org.apache.calcite.plan.RelOptUtil
+import org.apache.calcite.rex._
+import org.apache.calcite.sql.SqlKind
+import org.apache.calcite.sql.`type`.SqlTypeName
+import org.apache.calcite.util.NlsString
+import org.apache.flink.api.common.typeinfo.BasicTypeInfo
+import org.apache.flink.api.table.FlinkTypeFactory
+import org.apache.flink.api.table.expressions._
+
+import scala.collection.JavaConversions._
+import scala.collection.JavaConverters._
+
+object RexProgramExpressionExtractor {
+
+  /**
+    * Splits the condition of the [[RexProgram]] into its conjunctive predicates and converts
+    * them into [[Expression]]s on the given input fields.
+    *
+    * @param rexProgram The program whose condition is split.
+    * @param inputFieldNames The names of the input fields of the program.
+    * @return The converted predicates, each paired with its original [[RexNode]], and the
+    *         predicates that could not be converted.
+    */
+  def extractPredicates(
+      rexProgram: RexProgram,
+      inputFieldNames: Seq[String]): (Seq[(Expression, RexNode)], Seq[RexNode]) = {
+
+    val condition = rexProgram.getCondition
+    if (condition == null) {
+      (Seq(), Seq())
+    } else {
+      val conjunctions = RelOptUtil.conjunctions(rexProgram.expandLocalRef(condition))
+      val converted = conjunctions.map(rex => (toExpression(rex, inputFieldNames), rex))
+      (
+        converted.filter(_._1.isDefined).map(c => (c._1.get, c._2)),
+        converted.filter(_._1.isEmpty).map(_._2)
+      )
+    }
+  }
+
+  /**
+    * Generates a new [[RexProgram]] with the projections of the given program and a condition
+    * which is the conjunction of the remaining predicates.
+    *
+    * @param rexProgram The original program.
+    * @param remainingPredicates The predicates which must still be evaluated by the program.
+    * @param rexBuilder The builder for the new program.
+    * @return A program with the projections of the original program and the remaining
+    *         predicates as condition.
+    */
+  def rewriteRexProgram(
+      rexProgram: RexProgram,
+      remainingPredicates: Seq[RexNode],
+      rexBuilder: RexBuilder): RexProgram = {
+
+    val projectExpressions = rexProgram.getProjectList.map(rexProgram.expandLocalRef)
+    val conditionExpression =
+      RexUtil.composeConjunction(rexBuilder, remainingPredicates.asJava, true)
+
+    RexProgram.create(
+      rexProgram.getInputRowType,
+      projectExpressions.asJava,
+      conditionExpression,
+      rexProgram.getOutputRowType,
+      rexBuilder)
+  }
+
+  /**
+    * Converts a [[RexNode]] into an [[Expression]] if it only consists of field references,
+    * basic literals, comparisons, null checks, and logical operators.
+    */
+  def toExpression(rexNode: RexNode, inputFieldNames: Seq[String]): Option[Expression] = {
+    rexNode match {
+      case inputRef: RexInputRef =>
+        Some(ResolvedFieldReference(
+          inputFieldNames(inputRef.getIndex),
+          FlinkTypeFactory.toTypeInfo(inputRef.getType)))
+
+      case literal: RexLiteral =>
+        toLiteral(literal)
+
+      case call: RexCall =>
+        val operands = call.getOperands.map(toExpression(_, inputFieldNames))
+        if (operands.exists(_.isEmpty)) {
+          None
+        } else {
+          toCall(call.getKind, operands.map(_.get))
+        }
+
+      case _ =>
+        None
+    }
+  }
+
+  private def toCall(kind: SqlKind, operands: Seq[Expression]): Option[Expression] = {
+    kind match {
+      case SqlKind.EQUALS => Some(EqualTo(operands.head, operands(1)))
+      case SqlKind.NOT_EQUALS => Some(NotEqualTo(operands.head, operands(1)))
+      case SqlKind.GREATER_THAN => Some(GreaterThan(operands.head, operands(1)))
+      case SqlKind.GREATER_THAN_OR_EQUAL => Some(GreaterThanOrEqual(operands.head, operands(1)))
+      case SqlKind.LESS_THAN => Some(LessThan(operands.head, operands(1)))
+      case SqlKind.LESS_THAN_OR_EQUAL => Some(LessThanOrEqual(operands.head, operands(1)))
+      case SqlKind.IS_NULL => Some(IsNull(operands.head))
+      case SqlKind.IS_NOT_NULL => Some(IsNotNull(operands.head))
+      case SqlKind.NOT => Some(Not(operands.head))
+      case SqlKind.AND => Some(operands.reduceLeft(And))
+      case SqlKind.OR => Some(operands.reduceLeft(Or))
+      case _ => None
+    }
+  }
+
+  private def toLiteral(literal: RexLiteral): Option[Expression] = {
+    val value = literal.getValue
+    if (value == null) {
+      return None
+    }
+
+    literal.getType.getSqlTypeName match {
+      case SqlTypeName.BOOLEAN =>
+        Some(Literal(value, BasicTypeInfo.BOOLEAN_TYPE_INFO))
+      case SqlTypeName.TINYINT =>
+        Some(Literal(value.asInstanceOf[JBigDecimal].byteValue(), BasicTypeInfo.BYTE_TYPE_INFO))
+      case SqlTypeName.SMALLINT =>
+        Some(Literal(value.asInstanceOf[JBigDecimal].shortValue(), BasicTypeInfo.SHORT_TYPE_INFO))
+      case SqlTypeName.INTEGER =>
+        Some(Literal(value.asInstanceOf[JBigDecimal].intValue(), BasicTypeInfo.INT_TYPE_INFO))
+      case SqlTypeName.BIGINT =>
+        Some(Literal(value.asInstanceOf[JBigDecimal].longValue(), BasicTypeInfo.LONG_TYPE_INFO))
+      case SqlTypeName.FLOAT =>
+        Some(Literal(value.asInstanceOf[JBigDecimal].floatValue(), BasicTypeInfo.FLOAT_TYPE_INFO))
+      case SqlTypeName.DOUBLE =>
+        Some(Literal(value.asInstanceOf[JBigDecimal].doubleValue(), BasicTypeInfo.DOUBLE_TYPE_INFO))
+      case SqlTypeName.DECIMAL =>
+        Some(Literal(value, BasicTypeInfo.BIG_DEC_TYPE_INFO))
+      case SqlTypeName.CHAR | SqlTypeName.VARCHAR =>
+        Some(Literal(value.asInstanceOf[NlsString].getValue, BasicTypeInfo.STRING_TYPE_INFO))
+      case _ =>
+        None
+    }
+  }
+}
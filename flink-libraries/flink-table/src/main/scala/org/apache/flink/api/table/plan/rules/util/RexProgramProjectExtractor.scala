@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.api.table.plan.rules.util
+
+import org.apache.calcite.rel.`type`.RelDataType
+import org.apache.calcite.rex._
+
+import scala.collection.JavaConversions._
+import scala.collection.JavaConverters._
+import scala.collection.mutable
+
+object RexProgramProjectExtractor {
+
+  /**
+    * Extracts the indexes of the input fields that are accessed by the projections and the
+    * condition of the [[RexProgram]].
+    *
+    * @param rexProgram The program to analyze.
+    * @return The sorted indexes of the accessed input fields.
+    */
+  def extractRefInputFields(rexProgram: RexProgram): Array[Int] = {
+    val visitor = new RefFieldsVisitor
+    // extract input fields from project expressions
+    rexProgram.getProjectList.foreach(exp => rexProgram.expandLocalRef(exp).accept(visitor))
+    // extract input fields from condition expression
+    val condition = rexProgram.getCondition
+    if (condition != null) {
+      rexProgram.expandLocalRef(condition).accept(visitor)
+    }
+    visitor.getFields
+  }
+
+  /**
+    * Generates a new [[RexProgram]] that reads from an input which only consists of the used
+    * input fields of the given program.
+    *
+    * @param rexProgram The original program.
+    * @param inputRowType The row type of the projected input.
+    * @param usedInputFields The indexes of the original input fields that the new input holds.
+    * @param rexBuilder The builder for the new program.
+    * @return A program with the same output as the original program on the projected input.
+    */
+  def rewriteRexProgram(
+      rexProgram: RexProgram,
+      inputRowType: RelDataType,
+      usedInputFields: Array[Int],
+      rexBuilder: RexBuilder): RexProgram = {
+
+    val inputRewriter = new InputRewriter(usedInputFields)
+    val newProjectExpressions = rexProgram.getProjectList
+      .map(exp => rexProgram.expandLocalRef(exp).accept(inputRewriter))
+    val newConditionExpression = Option(rexProgram.getCondition)
+      .map(cond => rexProgram.expandLocalRef(cond).accept(inputRewriter))
+      .orNull
+
+    RexProgram.create(
+      inputRowType,
+      newProjectExpressions.asJava,
+      newConditionExpression,
+      rexProgram.getOutputRowType,
+      rexBuilder)
+  }
+}
+
+/**
+  * A [[RexVisitor]] to extract the indexes of all accessed input fields.
+  */
+class RefFieldsVisitor extends RexVisitorImpl[Unit](true) {
+
+  private val fields = mutable.SortedSet[Int]()
+
+  def getFields: Array[Int] = fields.toArray
+
+  override def visitInputRef(inputRef: RexInputRef): Unit = fields += inputRef.getIndex
+}
+
+/**
+  * A [[RexShuttle]] to rewrite the index of accessed input fields.
+  *
+  * @param fields The indexes of the original input fields, in the order of the new input.
+  */
+class InputRewriter(fields: Array[Int]) extends RexShuttle {
+
+  /** old input fields ref index -> new input fields ref index mappings */
+  private val fieldMap: Map[Int, Int] = fields.zipWithIndex.toMap
+
+  override def visitInputRef(inputRef: RexInputRef): RexNode =
+    new RexInputRef(relNodeIndex(inputRef), inputRef.getType)
+
+  private def relNodeIndex(ref: RexInputRef): Int =
+    fieldMap.getOrElse(ref.getIndex,
+      throw new IllegalArgumentException("input field contains invalid index"))
+}
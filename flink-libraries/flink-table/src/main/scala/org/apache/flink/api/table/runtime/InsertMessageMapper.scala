@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.api.table.runtime
+
+import java.lang.{Boolean => JBoolean}
+
+import org.apache.flink.api.common.functions.MapFunction
+import org.apache.flink.api.common.typeinfo.TypeInformation
+import org.apache.flink.api.java.tuple.{Tuple2 => JTuple2}
+import org.apache.flink.api.java.typeutils.ResultTypeQueryable
+
+/**
+  * Wraps the records of an append-only stream into insert messages.
+  */
+class InsertMessageMapper[T](
+    @transient returnType: TypeInformation[JTuple2[JBoolean, T]])
+  extends MapFunction[T, JTuple2[JBoolean, T]]
+  with ResultTypeQueryable[JTuple2[JBoolean, T]] {
+
+  override def map(value: T): JTuple2[JBoolean, T] = new JTuple2[JBoolean, T](true, value)
+
+  override def getProducedType: TypeInformation[JTuple2[JBoolean, T]] = returnType
+}
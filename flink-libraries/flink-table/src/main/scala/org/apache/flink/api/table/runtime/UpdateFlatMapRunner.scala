@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.api.table.runtime
+
+import java.lang.{Boolean => JBoolean}
+
+import org.apache.flink.api.common.functions.{FlatMapFunction, RichFlatMapFunction}
+import org.apache.flink.api.common.typeinfo.TypeInformation
+import org.apache.flink.api.java.tuple.{Tuple2 => JTuple2}
+import org.apache.flink.api.java.typeutils.ResultTypeQueryable
+import org.apache.flink.configuration.Configuration
+import org.apache.flink.util.Collector
+import org.slf4j.LoggerFactory
+
+/**
+  * Applies a generated [[FlatMapFunction]] on the records of a stream of change messages. All
+  * records emitted for a message carry the change flag of the message.
+  */
+class UpdateFlatMapRunner[IN, OUT](
+    name: String,
+    code: String,
+    @transient returnType: TypeInformation[JTuple2[JBoolean, OUT]])
+  extends RichFlatMapFunction[JTuple2[JBoolean, IN], JTuple2[JBoolean, OUT]]
+  with ResultTypeQueryable[JTuple2[JBoolean, OUT]]
+  with FunctionCompiler[FlatMapFunction[IN, OUT]] {
+
+  val LOG = LoggerFactory.getLogger(this.getClass)
+
+  private var function: FlatMapFunction[IN, OUT] = null
+
+  private var collector: FlagCollector = null
+
+  override def open(parameters: Configuration): Unit = {
+    LOG.debug(s"Compiling FlatMapFunction: $name \n\n Code:\n$code")
+    val clazz = compile(getRuntimeContext.getUserCodeClassLoader, name, code)
+    LOG.debug("Instantiating FlatMapFunction.")
+    function = clazz.newInstance()
+    collector = new FlagCollector
+  }
+
+  override def flatMap(in: JTuple2[JBoolean, IN], out: Collector[JTuple2[JBoolean, OUT]]): Unit = {
+    collector.out = out
+    collector.output.f0 = in.f0
+    function.flatMap(in.f1, collector)
+  }
+
+  override def getProducedType: TypeInformation[JTuple2[JBoolean, OUT]] = returnType
+
+  /**
+    * Wraps the records emitted by the generated function into change messages.
+    */
+  private class FlagCollector extends Collector[OUT] {
+
+    var out: Collector[JTuple2[JBoolean, OUT]] = _
+
+    val output: JTuple2[JBoolean, OUT] = new JTuple2[JBoolean, OUT]()
+
+    override def collect(record: OUT): Unit = {
+      output.f1 = record
+      out.collect(output)
+    }
+
+    override def close(): Unit = out.close()
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.api.table.runtime
+
+import java.lang.{Boolean => JBoolean}
+
+import org.apache.flink.api.common.functions.{MapFunction, RichMapFunction}
+import org.apache.flink.api.common.typeinfo.TypeInformation
+import org.apache.flink.api.java.tuple.{Tuple2 => JTuple2}
+import org.apache.flink.api.java.typeutils.ResultTypeQueryable
+import org.apache.flink.configuration.Configuration
+import org.slf4j.LoggerFactory
+
+/**
+  * Applies a generated [[MapFunction]] on the records of a stream of change messages and
+  * forwards the change flag of each message.
+  */
+class UpdateMapRunner[IN, OUT](
+    name: String,
+    code: String,
+    @transient returnType: TypeInformation[JTuple2[JBoolean, OUT]])
+  extends RichMapFunction[JTuple2[JBoolean, IN], JTuple2[JBoolean, OUT]]
+  with ResultTypeQueryable[JTuple2[JBoolean, OUT]]
+  with FunctionCompiler[MapFunction[IN, OUT]] {
+
+  val LOG = LoggerFactory.getLogger(this.getClass)
+
+  private var function: MapFunction[IN, OUT] = null
+
+  private var output: JTuple2[JBoolean, OUT] = null
+
+  override def open(parameters: Configuration): Unit = {
+    LOG.debug(s"Compiling MapFunction: $name \n\n Code:\n$code")
+    val clazz = compile(getRuntimeContext.getUserCodeClassLoader, name, code)
+    LOG.debug("Instantiating MapFunction.")
+    function = clazz.newInstance()
+    output = new JTuple2[JBoolean, OUT]()
+  }
+
+  override def map(in: JTuple2[JBoolean, IN]): JTuple2[JBoolean, OUT] = {
+    output.f0 = in.f0
+    output.f1 = function.map(in.f1)
+    output
+  }
+
+  override def getProducedType: TypeInformation[JTuple2[JBoolean, OUT]] = returnType
+}
@@ -37,6 +37,7 @@ class AggregateAllTimeWindowFunction(
   private var collector: TimeWindowPropertyCollector = _
 
   override def open(parameters: Configuration): Unit = {
+    groupReduceFunction.setRuntimeContext(getRuntimeContext)
     groupReduceFunction.open(parameters)
     collector = new TimeWindowPropertyCollector(windowStartPos, windowEndPos)
   }
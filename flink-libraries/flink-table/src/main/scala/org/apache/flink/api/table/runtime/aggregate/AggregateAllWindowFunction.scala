@@ -31,6 +31,7 @@ class AggregateAllWindowFunction(groupReduceFunction: RichGroupReduceFunction[Ro
     extends RichAllWindowFunction[Row, Row, Window] {
 
   override def open(parameters: Configuration): Unit = {
+    groupReduceFunction.setRuntimeContext(getRuntimeContext)
     groupReduceFunction.open(parameters)
   }
 
@@ -17,6 +17,7 @@
  */
 package org.apache.flink.api.table.runtime.aggregate
 
+import java.lang.{Boolean => JBoolean}
 import java.util
 
 import org.apache.calcite.rel.`type`._
@@ -26,7 +27,10 @@ import org.apache.calcite.sql.`type`.SqlTypeName._
 import org.apache.calcite.sql.`type`.{SqlTypeFactoryImpl, SqlTypeName}
 import org.apache.calcite.sql.fun._
 import org.apache.flink.api.common.functions.{MapFunction, RichGroupReduceFunction}
-import org.apache.flink.api.common.typeinfo.TypeInformation
+import org.apache.flink.api.common.typeinfo.{BasicTypeInfo, TypeInformation}
+import org.apache.flink.api.java.tuple.{Tuple2 => JTuple2}
+import org.apache.flink.api.java.typeutils.TupleTypeInfo
+import org.apache.flink.api.table.codegen.AggregationCodeGenerator
 import org.apache.flink.api.table.typeutils.RowTypeInfo
 import org.apache.flink.api.table.{FlinkTypeFactory, Row, TableException}
 
@@ -60,6 +64,9 @@ object AggregateUtil {
    *                               sum(y) aggOffsetInRow = 4
    * }}}
    *
+   * If all aggregates are built-in aggregates that support partial aggregation, both functions
+   * run code which is generated for the whole list of aggregates, see
+   * [[org.apache.flink.api.table.codegen.AggregationCodeGenerator]].
    */
   def createOperatorFunctionsForAggregates(
       namedAggregates: Seq[CalcitePair[AggregateCall, String]],
@@ -77,10 +84,6 @@ object AggregateUtil {
     val mapReturnType: RowTypeInfo =
       createAggregateBufferDataType(groupings, aggregates, inputType)
 
-    val mapFunction = new AggregateMapFunction[Row, Row](
-        aggregates, aggFieldIndexes, groupings,
-        mapReturnType.asInstanceOf[RowTypeInfo]).asInstanceOf[MapFunction[Any, Row]]
-
     // the mapping relation between field index of intermediate aggregate Row and output Row.
     val groupingOffsetMapping = getGroupKeysMapping(inputType, outputType, groupings)
 
@@ -98,25 +101,111 @@ object AggregateUtil {
 
     val intermediateRowArity = groupings.length + aggregates.map(_.intermediateDataType.length).sum
 
-    val reduceGroupFunction =
-      if (allPartialAggregate) {
-        new AggregateReduceCombineFunction(
-          aggregates,
-          groupingOffsetMapping,
-          aggOffsetMapping,
+    // generate code for the whole list of aggregates, if all aggregates are supported
+    val generatedAggregations = AggregationCodeGenerator.generateAggregations(
+      "GeneratedAggregations",
+      aggregates,
+      aggFieldIndexes,
+      groupings,
+      groupingOffsetMapping,
+      aggOffsetMapping)
+
+    generatedAggregations match {
+      case Some(generated) if allPartialAggregate =>
+        val mapFunction = new GeneratedAggregateMapFunction(
+          generated.name,
+          generated.code,
           intermediateRowArity,
-          outputType.getFieldCount)
-      }
-      else {
-        new AggregateReduceGroupFunction(
-          aggregates,
-          groupingOffsetMapping,
-          aggOffsetMapping,
+          mapReturnType).asInstanceOf[MapFunction[Any, Row]]
+
+        val reduceGroupFunction = new GeneratedAggregateReduceFunction(
+          generated.name,
+          generated.code,
+          groupings.length,
           intermediateRowArity,
           outputType.getFieldCount)
-      }
 
-    (mapFunction, reduceGroupFunction)
+        (mapFunction, reduceGroupFunction)
+
+      case _ =>
+        val mapFunction = new AggregateMapFunction[Row, Row](
+            aggregates, aggFieldIndexes, groupings,
+            mapReturnType.asInstanceOf[RowTypeInfo]).asInstanceOf[MapFunction[Any, Row]]
+
+        val reduceGroupFunction =
+          if (allPartialAggregate) {
+            new AggregateReduceCombineFunction(
+              aggregates,
+              groupingOffsetMapping,
+              aggOffsetMapping,
+              intermediateRowArity,
+              outputType.getFieldCount)
+          }
+          else {
+            new AggregateReduceGroupFunction(
+              aggregates,
+              groupingOffsetMapping,
+              aggOffsetMapping,
+              intermediateRowArity,
+              outputType.getFieldCount)
+          }
+
+        (mapFunction, reduceGroupFunction)
+    }
+  }
+
+  /**
+   * Create Flink operator functions for a non-windowed grouped aggregation on a stream. It
+   * includes a [[org.apache.flink.api.common.functions.MapFunction]] which creates the
+   * intermediate aggregate Rows (in the same format as described in
+   * [[createOperatorFunctionsForAggregates()]]) and a [[GroupAggregateFunction]] which keeps
+   * the aggregate buffer of each group key in keyed state and emits updates of the result.
+   */
+  def createOperatorFunctionsForGroupAggregates(
+      namedAggregates: Seq[CalcitePair[AggregateCall, String]],
+      inputType: RelDataType,
+      outputType: RelDataType,
+      groupings: Array[Int],
+      minRetentionTime: Long,
+      maxRetentionTime: Long)
+    : (MapFunction[Any, Row], GroupAggregateFunction) = {
+
+    val (aggFieldIndexes, aggregates) =
+      transformToAggregateFunctions(namedAggregates.map(_.getKey), inputType, groupings.length)
+
+    val mapReturnType: RowTypeInfo =
+      createAggregateBufferDataType(groupings, aggregates, inputType)
+
+    val mapFunction = new AggregateMapFunction[Row, Row](
+        aggregates, aggFieldIndexes, groupings,
+        mapReturnType).asInstanceOf[MapFunction[Any, Row]]
+
+    val groupingOffsetMapping = getGroupKeysMapping(inputType, outputType, groupings)
+    val aggOffsetMapping = getAggregateMapping(namedAggregates, outputType)
+
+    if (groupingOffsetMapping.length != groupings.length ||
+        aggOffsetMapping.length != namedAggregates.length) {
+      throw new TableException("Could not find output field in input data type " +
+          "or aggregate functions.")
+    }
+
+    val outputRowType = new RowTypeInfo(
+      outputType.getFieldList.map(f => FlinkTypeFactory.toTypeInfo(f.getType)))
+    val returnType = new TupleTypeInfo[JTuple2[JBoolean, Row]](
+      BasicTypeInfo.BOOLEAN_TYPE_INFO,
+      outputRowType)
+
+    val groupAggregateFunction = new GroupAggregateFunction(
+      aggregates,
+      groupingOffsetMapping,
+      aggOffsetMapping,
+      mapReturnType,
+      outputType.getFieldCount,
+      minRetentionTime,
+      maxRetentionTime,
+      returnType)
+
+    (mapFunction, groupAggregateFunction)
   }
 
   private def transformToAggregateFunctions(
@@ -32,6 +32,7 @@ class AggregateWindowFunction(groupReduceFunction: RichGroupReduceFunction[Row,
   extends RichWindowFunction[Row, Row, Tuple, Window] {
 
   override def open(parameters: Configuration): Unit = {
+    groupReduceFunction.setRuntimeContext(getRuntimeContext)
     groupReduceFunction.open(parameters)
   }
 
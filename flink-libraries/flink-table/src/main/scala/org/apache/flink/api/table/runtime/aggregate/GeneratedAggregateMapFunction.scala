@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.api.table.runtime.aggregate
+
+import org.apache.flink.api.common.functions.RichMapFunction
+import org.apache.flink.api.common.typeinfo.TypeInformation
+import org.apache.flink.api.java.typeutils.ResultTypeQueryable
+import org.apache.flink.api.table.Row
+import org.apache.flink.api.table.runtime.FunctionCompiler
+import org.apache.flink.configuration.Configuration
+import org.slf4j.LoggerFactory
+
+/**
+  * Creates the intermediate aggregate Row of each input Row with code-generated
+  * [[GeneratedAggregations]].
+  *
+  * @param name The name of the generated class.
+  * @param code The code of the generated class.
+  * @param intermediateRowArity The arity of the intermediate aggregate Row.
+  * @param returnType The type of the intermediate aggregate Row.
+  */
+class GeneratedAggregateMapFunction(
+    name: String,
+    code: String,
+    private val intermediateRowArity: Int,
+    @transient private val returnType: TypeInformation[Row])
+  extends RichMapFunction[Row, Row]
+  with ResultTypeQueryable[Row]
+  with FunctionCompiler[GeneratedAggregations] {
+
+  val LOG = LoggerFactory.getLogger(this.getClass)
+
+  private var function: GeneratedAggregations = _
+  private var output: Row = _
+
+  override def open(config: Configuration): Unit = {
+    LOG.debug(s"Compiling GeneratedAggregations: $name \n\n Code:\n$code")
+    val clazz = compile(getRuntimeContext.getUserCodeClassLoader, name, code)
+    LOG.debug("Instantiating GeneratedAggregations.")
+    function = clazz.newInstance()
+    output = new Row(intermediateRowArity)
+  }
+
+  override def map(value: Row): Row = {
+    function.prepare(value, output)
+    output
+  }
+
+  override def getProducedType: TypeInformation[Row] = returnType
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.api.table.runtime.aggregate
+
+import java.lang.Iterable
+
+import org.apache.flink.api.common.functions.{CombineFunction, RichGroupReduceFunction}
+import org.apache.flink.api.table.Row
+import org.apache.flink.api.table.runtime.FunctionCompiler
+import org.apache.flink.configuration.Configuration
+import org.apache.flink.util.Collector
+import org.slf4j.LoggerFactory
+
+/**
+  * Merges grouped intermediate aggregate Rows with code-generated [[GeneratedAggregations]],
+  * which keep the accumulators in member fields instead of an aggregate buffer Row.
+  *
+  * @param name The name of the generated class.
+  * @param code The code of the generated class.
+  * @param groupKeyCount The number of group keys at the start of the intermediate aggregate Row.
+  * @param intermediateRowArity The arity of the intermediate aggregate Row.
+  * @param finalRowArity The arity of the output Row.
+  */
+class GeneratedAggregateReduceFunction(
+    name: String,
+    code: String,
+    private val groupKeyCount: Int,
+    private val intermediateRowArity: Int,
+    private val finalRowArity: Int)
+  extends RichGroupReduceFunction[Row, Row]
+  with CombineFunction[Row, Row]
+  with FunctionCompiler[GeneratedAggregations] {
+
+  val LOG = LoggerFactory.getLogger(this.getClass)
+
+  private var function: GeneratedAggregations = _
+  private var aggregateBuffer: Row = _
+  private var output: Row = _
+
+  override def open(config: Configuration): Unit = {
+    LOG.debug(s"Compiling GeneratedAggregations: $name \n\n Code:\n$code")
+    val clazz = compile(getRuntimeContext.getUserCodeClassLoader, name, code)
+    LOG.debug("Instantiating GeneratedAggregations.")
+    function = clazz.newInstance()
+    aggregateBuffer = new Row(intermediateRowArity)
+    output = new Row(finalRowArity)
+  }
+
+  /**
+    * Merges all grouped intermediate aggregate Rows into the accumulators and sets the group
+    * keys and the final aggregate values to the output Row.
+    *
+    * @param records Grouped intermediate aggregate Rows iterator.
+    * @param out The collector to hand results to.
+    */
+  override def reduce(records: Iterable[Row], out: Collector[Row]): Unit = {
+    val last = accumulate(records)
+
+    function.setGroupKeys(last, output)
+    function.setAggregationResults(output)
+
+    out.collect(output)
+  }
+
+  /**
+    * Merges all grouped intermediate aggregate Rows into a single intermediate aggregate Row.
+    *
+    * @param records Grouped intermediate aggregate Rows iterator.
+    * @return The combined intermediate aggregate Row.
+    */
+  override def combine(records: Iterable[Row]): Row = {
+    val last = accumulate(records)
+
+    // Set group keys to aggregateBuffer.
+    var i = 0
+    while (i < groupKeyCount) {
+      aggregateBuffer.setField(i, last.productElement(i))
+      i += 1
+    }
+    function.setAccumulators(aggregateBuffer)
+
+    aggregateBuffer
+  }
+
+  private def accumulate(records: Iterable[Row]): Row = {
+    function.resetAccumulators()
+
+    var last: Row = null
+    val iterator = records.iterator()
+    while (iterator.hasNext) {
+      last = iterator.next()
+      function.accumulate(last)
+    }
+    last
+  }
+}
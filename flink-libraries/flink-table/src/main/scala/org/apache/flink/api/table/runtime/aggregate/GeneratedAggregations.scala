@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.api.table.runtime.aggregate
+
+import com.google.common.math.LongMath
+import org.apache.flink.api.common.functions.Function
+import org.apache.flink.api.table.Row
+
+/**
+  * Base class for the code-generated computation of all aggregates of an aggregation operator.
+  *
+  * The intermediate aggregate Rows have the format that is described in
+  * [[AggregateUtil.createOperatorFunctionsForAggregates()]]. The generated class keeps one set
+  * of accumulators in (primitive) member fields, such that merging intermediate aggregate Rows
+  * does neither box values nor write to an aggregate buffer Row.
+  */
+abstract class GeneratedAggregations extends Function {
+
+  /**
+    * Sets the group keys and the intermediate aggregate values of a single input Row.
+    *
+    * @param input The input Row.
+    * @param intermediate The intermediate aggregate Row to set.
+    */
+  def prepare(input: Row, intermediate: Row): Unit
+
+  /**
+    * Resets the accumulators to the initial values of the aggregates.
+    */
+  def resetAccumulators(): Unit
+
+  /**
+    * Merges the intermediate aggregate values of a Row into the accumulators.
+    *
+    * @param intermediate The intermediate aggregate Row to merge.
+    */
+  def accumulate(intermediate: Row): Unit
+
+  /**
+    * Sets the accumulators as intermediate aggregate values of a Row.
+    *
+    * @param intermediate The intermediate aggregate Row to set.
+    */
+  def setAccumulators(intermediate: Row): Unit
+
+  /**
+    * Sets the group keys of an intermediate aggregate Row to the output Row.
+    *
+    * @param intermediate The intermediate aggregate Row that holds the group keys.
+    * @param output The output Row to set.
+    */
+  def setGroupKeys(intermediate: Row, output: Row): Unit
+
+  /**
+    * Sets the final aggregate values of the accumulators to the output Row.
+    *
+    * @param output The output Row to set.
+    */
+  def setAggregationResults(output: Row): Unit
+
+  /**
+    * Adds two longs and fails if the result overflows. Generated code calls this method
+    * instead of a library method, because library classes may be relocated in the runtime.
+    */
+  def checkedAdd(a: Long, b: Long): Long = LongMath.checkedAdd(a, b)
+}
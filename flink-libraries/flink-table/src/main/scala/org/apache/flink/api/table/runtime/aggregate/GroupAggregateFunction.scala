@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.api.table.runtime.aggregate
+
+import java.lang.{Boolean => JBoolean, Long => JLong}
+
+import org.apache.flink.api.common.state.{ValueState, ValueStateDescriptor}
+import org.apache.flink.api.common.typeinfo.{BasicTypeInfo, TypeInformation}
+import org.apache.flink.api.java.tuple.{Tuple2 => JTuple2}
+import org.apache.flink.api.java.typeutils.ResultTypeQueryable
+import org.apache.flink.api.table.Row
+import org.apache.flink.api.table.typeutils.RowTypeInfo
+import org.apache.flink.configuration.Configuration
+import org.apache.flink.streaming.api.TimeDomain
+import org.apache.flink.streaming.api.TimerService
+import org.apache.flink.streaming.api.functions.RichTimelyFlatMapFunction
+import org.apache.flink.util.{Collector, Preconditions}
+
+/**
+  * Computes a non-windowed grouped aggregation on a keyed stream of intermediate aggregate Rows.
+  *
+  * The aggregate buffer of each key is kept in keyed state. For every input Row, the buffer is
+  * updated and the new aggregated Row is emitted as an insert message. If a result was emitted
+  * for the key before, the previous result is retracted first.
+  *
+  * If an idle state retention time is configured, the state of a key that was not updated for
+  * the retention time is cleaned up by a processing-time timer. No retraction is emitted when
+  * the state of a key is cleaned up.
+  *
+  * @param aggregates The aggregate functions.
+  * @param groupKeysMapping The index mapping of group keys between intermediate aggregate Row
+  *                         and output Row.
+  * @param aggregateMapping The index mapping between aggregate function list and aggregated value
+  *                         index in output Row.
+  * @param intermediateRowType The type of the intermediate aggregate Row.
+  * @param finalRowArity The arity of the output Row.
+  * @param minRetentionTime The minimum time in milliseconds that the state of an idle key is
+  *                         retained, 0 if the state is never cleaned up.
+  * @param maxRetentionTime The maximum time in milliseconds that the state of an idle key is
+  *                         retained, 0 if the state is never cleaned up.
+  * @param returnType The type of the emitted change messages.
+  */
+class GroupAggregateFunction(
+    private val aggregates: Array[Aggregate[_ <: Any]],
+    private val groupKeysMapping: Array[(Int, Int)],
+    private val aggregateMapping: Array[(Int, Int)],
+    private val intermediateRowType: RowTypeInfo,
+    private val finalRowArity: Int,
+    private val minRetentionTime: Long,
+    private val maxRetentionTime: Long,
+    @transient private val returnType: TypeInformation[JTuple2[JBoolean, Row]])
+  extends RichTimelyFlatMapFunction[Row, JTuple2[JBoolean, Row]]
+  with ResultTypeQueryable[JTuple2[JBoolean, Row]] {
+
+  private var aggregateBufferState: ValueState[Row] = _
+  private var cleanupTimeState: ValueState[JLong] = _
+
+  private var retraction: JTuple2[JBoolean, Row] = _
+  private var insertion: JTuple2[JBoolean, Row] = _
+
+  override def open(config: Configuration) {
+    Preconditions.checkNotNull(aggregates)
+    Preconditions.checkNotNull(groupKeysMapping)
+
+    aggregateBufferState = getRuntimeContext.getState(
+      new ValueStateDescriptor[Row]("aggregateBuffer", intermediateRowType, null))
+
+    if (maxRetentionTime > 0) {
+      cleanupTimeState = getRuntimeContext.getState(
+        new ValueStateDescriptor[JLong]("cleanupTime", BasicTypeInfo.LONG_TYPE_INFO, null))
+    }
+
+    retraction = new JTuple2[JBoolean, Row](false, new Row(finalRowArity))
+    insertion = new JTuple2[JBoolean, Row](true, new Row(finalRowArity))
+  }
+
+  override def flatMap(
+      record: Row,
+      timerService: TimerService,
+      out: Collector[JTuple2[JBoolean, Row]]): Unit = {
+
+    var aggregateBuffer = aggregateBufferState.value()
+
+    if (aggregateBuffer == null) {
+      aggregateBuffer = new Row(intermediateRowArity)
+      aggregates.foreach(_.initiate(aggregateBuffer))
+    } else {
+      // retract the previous result of the key
+      setOutput(aggregateBuffer, retraction.f1)
+      out.collect(retraction)
+    }
+
+    // Merge the intermediate aggregate value into the buffer and keep the group keys.
+    aggregates.foreach(_.merge(record, aggregateBuffer))
+    groupKeysMapping.foreach {
+      case (_, previous) =>
+        aggregateBuffer.setField(previous, record.productElement(previous))
+    }
+    aggregateBufferState.update(aggregateBuffer)
+
+    setOutput(aggregateBuffer, insertion.f1)
+    out.collect(insertion)
+
+    if (maxRetentionTime > 0) {
+      registerCleanupTimer(timerService)
+    }
+  }
+
+  override def onTimer(
+      timestamp: Long,
+      timeDomain: TimeDomain,
+      timerService: TimerService,
+      out: Collector[JTuple2[JBoolean, Row]]): Unit = {
+
+    val cleanupTime = cleanupTimeState.value()
+    // only the latest registered timer of a key cleans up its state
+    if (cleanupTime != null && cleanupTime.longValue() == timestamp) {
+      aggregateBufferState.clear()
+      cleanupTimeState.clear()
+    }
+  }
+
+  override def getProducedType: TypeInformation[JTuple2[JBoolean, Row]] = returnType
+
+  private def intermediateRowArity: Int = intermediateRowType.getArity
+
+  private def setOutput(aggregateBuffer: Row, output: Row): Unit = {
+    // Set group keys value to final output.
+    groupKeysMapping.foreach {
+      case (after, previous) =>
+        output.setField(after, aggregateBuffer.productElement(previous))
+    }
+
+    // Evaluate final aggregate value and set to output.
+    aggregateMapping.foreach {
+      case (after, previous) =>
+        output.setField(after, aggregates(previous).evaluate(aggregateBuffer))
+    }
+  }
+
+  /**
+    * Registers a timer that cleans up the state of the current key after the maximum retention
+    * time. A new timer is only registered if the current cleanup time would expire before the
+    * minimum retention time, which bounds the number of timers per key.
+    */
+  private def registerCleanupTimer(timerService: TimerService): Unit = {
+    val currentTime = timerService.currentProcessingTime()
+    val cleanupTime = cleanupTimeState.value()
+
+    if (cleanupTime == null || currentTime + minRetentionTime > cleanupTime.longValue()) {
+      val newCleanupTime = currentTime + maxRetentionTime
+      timerService.registerProcessingTimeTimer(newCleanupTime)
+      cleanupTimeState.update(newCleanupTime)
+    }
+  }
+}
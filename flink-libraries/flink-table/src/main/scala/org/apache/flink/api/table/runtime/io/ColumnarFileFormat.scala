@@ -0,0 +1,400 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.api.table.runtime.io
+
+import java.io.IOException
+import java.lang.{Boolean => JBoolean, Byte => JByte, Character => JChar, Double => JDouble}
+import java.lang.{Float => JFloat, Integer => JInt, Long => JLong, Short => JShort}
+import java.math.{BigDecimal => JBigDecimal, BigInteger}
+import java.nio.charset.StandardCharsets
+import java.sql.{Date, Time, Timestamp}
+
+import org.apache.flink.api.common.typeinfo.{BasicTypeInfo, SqlTimeTypeInfo, TypeInformation}
+import org.apache.flink.api.table.typeutils.RowTypeInfo
+import org.apache.flink.core.fs.{FileInputSplit, FileSystem, Path}
+import org.apache.flink.core.memory.{DataInputView, DataInputViewStreamWrapper, DataOutputView}
+
+/**
+  * A simple columnar file format for [[org.apache.flink.api.table.Row]]s.
+  *
+  * A file holds a sequence of row groups followed by a footer. Within a row group, each field
+  * is stored in a separate column chunk, such that the fields of a row group can be read
+  * independently of each other. The footer holds the schema of the file, the offsets and
+  * lengths of all column chunks, and the min/max statistics of the chunks.
+  *
+  * {{{
+  *   file        := MAGIC version(int) rowGroup* footer footerOffset(long) MAGIC
+  *   rowGroup    := columnChunk*
+  *   columnChunk := nullMask value*   (one bit per row, values of non-null fields only)
+  *   footer      := schema numRowGroups(int) rowGroupMetadata*
+  *   schema      := numFields(int) (fieldName(UTF) columnType(byte))*
+  *   rowGroupMetadata := rowCount(int)
+  *                       (offset(long) length(int) nullCount(int) hasStats(boolean) [min max])*
+  * }}}
+  *
+  * The values are encoded by their [[ColumnType]] in the big-endian layout of
+  * [[java.io.DataOutput]], independent of the Flink type serializers. Files of a different
+  * [[ColumnarFileFormat.VERSION]] are rejected.
+  */
+object ColumnarFileFormat {
+
+  /** Magic number at the start and the end of a file */
+  val MAGIC: Int = 0x46434F4C
+
+  /** Version of the format, written after the leading magic number */
+  val VERSION: Int = 1
+
+  /** Number of bytes before the first row group: the magic number and the version */
+  val HEADER_LENGTH: Int = 8
+
+  /** Number of bytes after the footer: the footer offset and the magic number */
+  val TAIL_LENGTH: Int = 12
+
+  /** Default number of rows of a row group */
+  val DEFAULT_ROW_GROUP_SIZE: Int = 10000
+
+  /**
+    * Returns the column types of the fields of the given row type.
+    *
+    * @throws IllegalArgumentException if a field has a type that cannot be stored.
+    */
+  def columnTypes(rowType: RowTypeInfo): Array[ColumnType] = {
+    Array.tabulate(rowType.getArity) { i =>
+      val fieldType = rowType.getTypeAt(i)
+      ColumnType.forTypeInfo(fieldType).getOrElse(
+        throw new IllegalArgumentException(
+          s"Fields of type $fieldType cannot be stored in a columnar file."))
+    }
+  }
+
+  /** Returns the number of bytes of the null mask of a column chunk. */
+  def nullMaskLength(rowCount: Int): Int = (rowCount + 7) >>> 3
+
+  def writeHeader(out: DataOutputView): Unit = {
+    out.writeInt(MAGIC)
+    out.writeInt(VERSION)
+  }
+
+  def writeFooter(
+      out: DataOutputView,
+      schema: ColumnarSchema,
+      rowGroups: Seq[RowGroupMetadata]): Unit = {
+
+    out.writeInt(schema.columnTypes.length)
+    schema.fieldNames.zip(schema.columnTypes).foreach { case (name, columnType) =>
+      out.writeUTF(name)
+      out.writeByte(columnType.id)
+    }
+
+    out.writeInt(rowGroups.length)
+    rowGroups.foreach { rowGroup =>
+      out.writeInt(rowGroup.rowCount)
+      rowGroup.columns.zip(schema.columnTypes).foreach { case (column, columnType) =>
+        out.writeLong(column.offset)
+        out.writeInt(column.length)
+        out.writeInt(column.nullCount)
+        if (column.min != null) {
+          out.writeBoolean(true)
+          columnType.write(column.min, out)
+          columnType.write(column.max, out)
+        } else {
+          out.writeBoolean(false)
+        }
+      }
+    }
+  }
+
+  def readFooter(in: DataInputView): (ColumnarSchema, Array[RowGroupMetadata]) = {
+    val numFields = in.readInt()
+    val fieldNames = new Array[String](numFields)
+    val columnTypes = new Array[ColumnType](numFields)
+    var i = 0
+    while (i < numFields) {
+      fieldNames(i) = in.readUTF()
+      columnTypes(i) = ColumnType.forId(in.readByte())
+      i += 1
+    }
+
+    val rowGroups = Array.fill(in.readInt()) {
+      val rowCount = in.readInt()
+      val columns = columnTypes.map { columnType =>
+        val offset = in.readLong()
+        val length = in.readInt()
+        val nullCount = in.readInt()
+        if (in.readBoolean()) {
+          ColumnChunkMetadata(offset, length, nullCount, columnType.read(in), columnType.read(in))
+        } else {
+          ColumnChunkMetadata(offset, length, nullCount, null, null)
+        }
+      }
+      RowGroupMetadata(rowCount, columns)
+    }
+    (ColumnarSchema(fieldNames, columnTypes), rowGroups)
+  }
+
+  /** Reads the schema and the metadata of all row groups of the given file. */
+  def readMetadata(
+      fs: FileSystem,
+      file: Path,
+      fileLength: Long): (ColumnarSchema, Array[RowGroupMetadata]) = {
+
+    if (fileLength < HEADER_LENGTH + TAIL_LENGTH) {
+      throw new IOException(s"File $file is not a columnar file.")
+    }
+
+    val stream = fs.open(file)
+    try {
+      val in = new DataInputViewStreamWrapper(stream)
+      if (in.readInt() != MAGIC) {
+        throw new IOException(s"File $file is not a columnar file.")
+      }
+      val version = in.readInt()
+      if (version != VERSION) {
+        throw new IOException(s"File $file has version $version of the columnar format, " +
+          s"but only version $VERSION is supported.")
+      }
+
+      stream.seek(fileLength - TAIL_LENGTH)
+      val footerOffset = in.readLong()
+      if (in.readInt() != MAGIC) {
+        throw new IOException(s"File $file is not a complete columnar file.")
+      }
+      stream.seek(footerOffset)
+      readFooter(in)
+    } finally {
+      stream.close()
+    }
+  }
+
+  /**
+    * Reads the metadata of all row groups of the given file and checks that the file has the
+    * expected column types.
+    */
+  def readRowGroups(
+      fs: FileSystem,
+      file: Path,
+      fileLength: Long,
+      expectedTypes: Array[ColumnType]): Array[RowGroupMetadata] = {
+
+    val (schema, rowGroups) = readMetadata(fs, file, fileLength)
+    if (!schema.columnTypes.sameElements(expectedTypes)) {
+      throw new IOException(s"File $file has the schema $schema, but the column types " +
+        s"${expectedTypes.mkString("(", ", ", ")")} are expected.")
+    }
+    rowGroups
+  }
+}
+
+/**
+  * The schema of a columnar file.
+  *
+  * @param fieldNames The names of the fields.
+  * @param columnTypes The column types of the fields.
+  */
+case class ColumnarSchema(fieldNames: Array[String], columnTypes: Array[ColumnType]) {
+
+  /** Returns the types of the fields. */
+  def fieldTypes: Array[TypeInformation[_]] = columnTypes.map(_.typeInfo)
+
+  override def toString: String =
+    fieldNames.zip(columnTypes).map { case (n, t) => s"$n: $t" }.mkString("(", ", ", ")")
+}
+
+/**
+  * The encoding of the values of a column. The id of a column type is stored in the schema of
+  * a file and must never change.
+  *
+  * @param id The id of the column type in the file.
+  * @param typeInfo The type of the values.
+  */
+sealed abstract class ColumnType(val id: Byte, val typeInfo: TypeInformation[_])
+  extends Serializable {
+
+  def write(value: AnyRef, out: DataOutputView): Unit
+
+  def read(in: DataInputView): AnyRef
+
+  /** Returns a copy of the given value, if values of this type are mutable. */
+  def copy(value: AnyRef): AnyRef = value
+}
+
+object ColumnType {
+
+  case object BooleanColumn extends ColumnType(1, BasicTypeInfo.BOOLEAN_TYPE_INFO) {
+    override def write(value: AnyRef, out: DataOutputView): Unit =
+      out.writeBoolean(value.asInstanceOf[JBoolean].booleanValue())
+    override def read(in: DataInputView): AnyRef = JBoolean.valueOf(in.readBoolean())
+  }
+
+  case object ByteColumn extends ColumnType(2, BasicTypeInfo.BYTE_TYPE_INFO) {
+    override def write(value: AnyRef, out: DataOutputView): Unit =
+      out.writeByte(value.asInstanceOf[JByte].byteValue())
+    override def read(in: DataInputView): AnyRef = JByte.valueOf(in.readByte())
+  }
+
+  case object ShortColumn extends ColumnType(3, BasicTypeInfo.SHORT_TYPE_INFO) {
+    override def write(value: AnyRef, out: DataOutputView): Unit =
+      out.writeShort(value.asInstanceOf[JShort].shortValue())
+    override def read(in: DataInputView): AnyRef = JShort.valueOf(in.readShort())
+  }
+
+  case object IntColumn extends ColumnType(4, BasicTypeInfo.INT_TYPE_INFO) {
+    override def write(value: AnyRef, out: DataOutputView): Unit =
+      out.writeInt(value.asInstanceOf[JInt].intValue())
+    override def read(in: DataInputView): AnyRef = JInt.valueOf(in.readInt())
+  }
+
+  case object LongColumn extends ColumnType(5, BasicTypeInfo.LONG_TYPE_INFO) {
+    override def write(value: AnyRef, out: DataOutputView): Unit =
+      out.writeLong(value.asInstanceOf[JLong].longValue())
+    override def read(in: DataInputView): AnyRef = JLong.valueOf(in.readLong())
+  }
+
+  case object FloatColumn extends ColumnType(6, BasicTypeInfo.FLOAT_TYPE_INFO) {
+    override def write(value: AnyRef, out: DataOutputView): Unit =
+      out.writeFloat(value.asInstanceOf[JFloat].floatValue())
+    override def read(in: DataInputView): AnyRef = JFloat.valueOf(in.readFloat())
+  }
+
+  case object DoubleColumn extends ColumnType(7, BasicTypeInfo.DOUBLE_TYPE_INFO) {
+    override def write(value: AnyRef, out: DataOutputView): Unit =
+      out.writeDouble(value.asInstanceOf[JDouble].doubleValue())
+    override def read(in: DataInputView): AnyRef = JDouble.valueOf(in.readDouble())
+  }
+
+  case object CharColumn extends ColumnType(8, BasicTypeInfo.CHAR_TYPE_INFO) {
+    override def write(value: AnyRef, out: DataOutputView): Unit =
+      out.writeChar(value.asInstanceOf[JChar].charValue())
+    override def read(in: DataInputView): AnyRef = JChar.valueOf(in.readChar())
+  }
+
+  /** Strings are stored as the number of bytes followed by the UTF-8 encoded bytes. */
+  case object StringColumn extends ColumnType(9, BasicTypeInfo.STRING_TYPE_INFO) {
+    override def write(value: AnyRef, out: DataOutputView): Unit = {
+      val bytes = value.asInstanceOf[String].getBytes(StandardCharsets.UTF_8)
+      out.writeInt(bytes.length)
+      out.write(bytes)
+    }
+    override def read(in: DataInputView): AnyRef = {
+      val bytes = new Array[Byte](in.readInt())
+      in.readFully(bytes)
+      new String(bytes, StandardCharsets.UTF_8)
+    }
+  }
+
+  /** Decimals are stored as the scale followed by the two's-complement unscaled value. */
+  case object DecimalColumn extends ColumnType(10, BasicTypeInfo.BIG_DEC_TYPE_INFO) {
+    override def write(value: AnyRef, out: DataOutputView): Unit = {
+      val decimal = value.asInstanceOf[JBigDecimal]
+      val unscaled = decimal.unscaledValue().toByteArray
+      out.writeInt(decimal.scale())
+      out.writeInt(unscaled.length)
+      out.write(unscaled)
+    }
+    override def read(in: DataInputView): AnyRef = {
+      val scale = in.readInt()
+      val unscaled = new Array[Byte](in.readInt())
+      in.readFully(unscaled)
+      new JBigDecimal(new BigInteger(unscaled), scale)
+    }
+  }
+
+  /** Dates are stored as milliseconds since the epoch. */
+  case object DateColumn extends ColumnType(11, SqlTimeTypeInfo.DATE) {
+    override def write(value: AnyRef, out: DataOutputView): Unit =
+      out.writeLong(value.asInstanceOf[Date].getTime)
+    override def read(in: DataInputView): AnyRef = new Date(in.readLong())
+    override def copy(value: AnyRef): AnyRef = new Date(value.asInstanceOf[Date].getTime)
+  }
+
+  /** Times are stored as milliseconds since the epoch. */
+  case object TimeColumn extends ColumnType(12, SqlTimeTypeInfo.TIME) {
+    override def write(value: AnyRef, out: DataOutputView): Unit =
+      out.writeLong(value.asInstanceOf[Time].getTime)
+    override def read(in: DataInputView): AnyRef = new Time(in.readLong())
+    override def copy(value: AnyRef): AnyRef = new Time(value.asInstanceOf[Time].getTime)
+  }
+
+  /** Timestamps are stored as milliseconds since the epoch followed by the nanoseconds. */
+  case object TimestampColumn extends ColumnType(13, SqlTimeTypeInfo.TIMESTAMP) {
+    override def write(value: AnyRef, out: DataOutputView): Unit = {
+      val timestamp = value.asInstanceOf[Timestamp]
+      out.writeLong(timestamp.getTime)
+      out.writeInt(timestamp.getNanos)
+    }
+    override def read(in: DataInputView): AnyRef = {
+      val timestamp = new Timestamp(in.readLong())
+      timestamp.setNanos(in.readInt())
+      timestamp
+    }
+    override def copy(value: AnyRef): AnyRef = {
+      val timestamp = value.asInstanceOf[Timestamp]
+      val copy = new Timestamp(timestamp.getTime)
+      copy.setNanos(timestamp.getNanos)
+      copy
+    }
+  }
+
+  private val all: Array[ColumnType] = Array(
+    BooleanColumn, ByteColumn, ShortColumn, IntColumn, LongColumn, FloatColumn, DoubleColumn,
+    CharColumn, StringColumn, DecimalColumn, DateColumn, TimeColumn, TimestampColumn)
+
+  /** Returns the column type for values of the given type, if such values can be stored. */
+  def forTypeInfo(typeInfo: TypeInformation[_]): Option[ColumnType] =
+    all.find(_.typeInfo == typeInfo)
+
+  /** Returns the column type with the given id. */
+  def forId(id: Byte): ColumnType =
+    all.find(_.id == id).getOrElse(throw new IOException(s"Unknown column type $id."))
+}
+
+/**
+  * Describes a column chunk of a row group.
+  *
+  * @param offset The position of the chunk in the file.
+  * @param length The number of bytes of the chunk.
+  * @param nullCount The number of null values in the chunk.
+  * @param min The smallest non-null value, null if no statistics are available.
+  * @param max The largest non-null value, null if no statistics are available.
+  */
+case class ColumnChunkMetadata(offset: Long, length: Int, nullCount: Int, min: AnyRef, max: AnyRef)
+
+/**
+  * Describes a row group.
+  *
+  * @param rowCount The number of rows of the row group.
+  * @param columns The column chunks of all fields of the file.
+  */
+case class RowGroupMetadata(rowCount: Int, columns: Array[ColumnChunkMetadata])
+
+/**
+  * A [[FileInputSplit]] which covers a single row group of a columnar file.
+  */
+@SerialVersionUID(1L)
+class ColumnarInputSplit(
+    num: Int,
+    file: Path,
+    val rowGroup: RowGroupMetadata,
+    hosts: Array[String])
+  extends FileInputSplit(
+    num,
+    file,
+    rowGroup.columns.map(_.offset).min,
+    rowGroup.columns.map(_.length.toLong).sum,
+    hosts)
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.api.table.runtime.io
+
+import java.math.{BigDecimal => JBigDecimal}
+
+import org.apache.flink.api.table.runtime.io.MinMaxPredicate._
+
+/**
+  * A comparison of a field with a constant value which is evaluated on the min/max statistics
+  * of a column chunk. A row group can be skipped if none of its rows satisfies the predicate.
+  *
+  * @param field The index of the field in the file.
+  * @param comparison The comparison of the field value with the constant.
+  * @param value The constant value.
+  */
+@SerialVersionUID(1L)
+case class MinMaxPredicate(field: Int, comparison: Comparison, value: Any) {
+
+  /**
+    * Returns false if no row of a column chunk with the given statistics can satisfy the
+    * predicate, and true otherwise.
+    */
+  def mightMatch(column: ColumnChunkMetadata, rowCount: Int): Boolean = {
+    if (column.nullCount == rowCount) {
+      // comparisons with null are never true
+      false
+    } else if (column.min == null) {
+      // no statistics
+      true
+    } else {
+      (compare(column.min, value), compare(column.max, value)) match {
+        case (Some(minCmp), Some(maxCmp)) =>
+          comparison match {
+            case Equal => minCmp <= 0 && maxCmp >= 0
+            case Less => minCmp < 0
+            case LessOrEqual => minCmp <= 0
+            case Greater => maxCmp > 0
+            case GreaterOrEqual => maxCmp >= 0
+          }
+        case _ =>
+          // incomparable values
+          true
+      }
+    }
+  }
+}
+
+object MinMaxPredicate {
+
+  sealed trait Comparison
+  case object Equal extends Comparison
+  case object Less extends Comparison
+  case object LessOrEqual extends Comparison
+  case object Greater extends Comparison
+  case object GreaterOrEqual extends Comparison
+
+  /** Returns the comparison that holds if the operands of the given comparison are swapped. */
+  def swap(comparison: Comparison): Comparison = comparison match {
+    case Equal => Equal
+    case Less => Greater
+    case LessOrEqual => GreaterOrEqual
+    case Greater => Less
+    case GreaterOrEqual => LessOrEqual
+  }
+
+  private def compare(left: Any, right: Any): Option[Int] = (left, right) match {
+    case (l: Number, r: Number) =>
+      toBigDecimal(l).flatMap(lDec => toBigDecimal(r).map(rDec => lDec.compareTo(rDec)))
+    case (l: Comparable[_], r) if l.getClass == r.getClass =>
+      Some(l.asInstanceOf[Comparable[Any]].compareTo(r))
+    case _ =>
+      None
+  }
+
+  private def toBigDecimal(number: Number): Option[JBigDecimal] = number match {
+    case d: JBigDecimal => Some(d)
+    case d: java.lang.Double if d.isNaN || d.isInfinite => None
+    case f: java.lang.Float if f.isNaN || f.isInfinite => None
+    case n => Some(new JBigDecimal(n.toString))
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.api.table.runtime.io
+
+import java.io.EOFException
+
+import org.apache.flink.annotation.Internal
+import org.apache.flink.api.common.io.FileInputFormat
+import org.apache.flink.api.java.typeutils.ResultTypeQueryable
+import org.apache.flink.api.table.Row
+import org.apache.flink.api.table.runtime.io.ColumnarFileFormat._
+import org.apache.flink.api.table.typeutils.RowTypeInfo
+import org.apache.flink.core.fs.{FileInputSplit, FileStatus, FileSystem, Path}
+import org.apache.flink.runtime.util.DataInputDeserializer
+
+import scala.collection.mutable.ArrayBuffer
+
+/**
+  * Reads [[Row]]s from files of the [[ColumnarFileFormat]].
+  *
+  * Each row group of a file is a separate input split. Row groups whose statistics show that
+  * none of their rows satisfies the given predicates are not read at all. Of the remaining row
+  * groups, only the column chunks of the selected fields are read. The column chunks are kept
+  * in their encoded form and each row is decoded from them when it is requested. Files whose
+  * schema does not have the column types of the expected row type are rejected.
+  *
+  * @param filePath The path of the file or the directory of files to read.
+  * @param fileType The type of the rows in the files.
+  * @param selectedFields The indexes of the fields to return.
+  * @param predicates The predicates which are used to skip row groups. The predicates are not
+  *                   evaluated on single rows, i.e., rows of a row group that is read do not
+  *                   necessarily satisfy the predicates.
+  */
+@Internal
+@SerialVersionUID(1L)
+class RowColumnarInputFormat(
+    filePath: Path,
+    fileType: RowTypeInfo,
+    selectedFields: Array[Int],
+    predicates: Array[MinMaxPredicate] = Array())
+  extends FileInputFormat[Row](filePath)
+  with ResultTypeQueryable[Row] {
+
+  if (selectedFields.isEmpty) {
+    throw new IllegalArgumentException("At least one field must be selected.")
+  }
+
+  private val returnType = new RowTypeInfo(selectedFields.map(fileType.getTypeAt(_)))
+
+  private val fileColumnTypes = columnTypes(fileType)
+
+  private val selectedColumnTypes = selectedFields.map(fileColumnTypes(_))
+
+  def this(filePath: Path, fileType: RowTypeInfo) {
+    this(filePath, fileType, (0 until fileType.getArity).toArray)
+  }
+
+  /** The encoded column chunks of the selected fields, which start with their null masks */
+  @transient private var columnChunks: Array[Array[Byte]] = _
+  /** Readers of the values of the column chunks, which are positioned at the next value */
+  @transient private var columnReaders: Array[DataInputDeserializer] = _
+  @transient private var rowCount: Int = _
+  @transient private var nextRow: Int = _
+
+  override def getProducedType: RowTypeInfo = returnType
+
+  override def createInputSplits(minNumSplits: Int): Array[FileInputSplit] = {
+    val path = getFilePath
+    val fs = path.getFileSystem
+    val pathStatus = fs.getFileStatus(path)
+    val files = if (pathStatus.isDir) {
+      fs.listStatus(path).filter(f => !f.isDir && acceptFile(f)).sortBy(_.getPath.getName)
+    } else {
+      Array(pathStatus)
+    }
+
+    val splits = ArrayBuffer[FileInputSplit]()
+    files.foreach { file =>
+      val rowGroups = readRowGroups(fs, file.getPath, file.getLen, fileColumnTypes)
+      rowGroups
+        .filter(rowGroup => predicates.forall(p =>
+          p.mightMatch(rowGroup.columns(p.field), rowGroup.rowCount)))
+        .foreach { rowGroup =>
+          splits += new ColumnarInputSplit(
+            splits.length,
+            file.getPath,
+            rowGroup,
+            getHosts(fs, file, rowGroup))
+        }
+    }
+    splits.toArray
+  }
+
+  override def open(split: FileInputSplit): Unit = {
+    super.open(split)
+
+    val rowGroup = split.asInstanceOf[ColumnarInputSplit].rowGroup
+    rowCount = rowGroup.rowCount
+    nextRow = 0
+
+    val maskLength = nullMaskLength(rowCount)
+    columnChunks = selectedFields.map(field => readColumnChunk(rowGroup.columns(field)))
+    columnReaders = columnChunks.map { chunk =>
+      new DataInputDeserializer(chunk, maskLength, chunk.length - maskLength)
+    }
+  }
+
+  override def reachedEnd(): Boolean = nextRow >= rowCount
+
+  override def nextRecord(reuse: Row): Row = {
+    val row = if (reuse == null) new Row(selectedFields.length) else reuse
+    val maskByte = nextRow >>> 3
+    val maskBit = 1 << (nextRow & 7)
+    var i = 0
+    while (i < columnChunks.length) {
+      if ((columnChunks(i)(maskByte) & maskBit) == 0) {
+        row.setField(i, selectedColumnTypes(i).read(columnReaders(i)))
+      } else {
+        row.setField(i, null)
+      }
+      i += 1
+    }
+    nextRow += 1
+    row
+  }
+
+  override def close(): Unit = {
+    columnChunks = null
+    columnReaders = null
+    super.close()
+  }
+
+  private def readColumnChunk(column: ColumnChunkMetadata): Array[Byte] = {
+    val bytes = new Array[Byte](column.length)
+    stream.seek(column.offset)
+    var read = 0
+    while (read < bytes.length) {
+      val n = stream.read(bytes, read, bytes.length - read)
+      if (n < 0) {
+        throw new EOFException(s"Unexpected end of column chunk in ${currentSplit.getPath}.")
+      }
+      read += n
+    }
+    bytes
+  }
+
+  private def getHosts(
+      fs: FileSystem,
+      file: FileStatus,
+      rowGroup: RowGroupMetadata): Array[String] = {
+
+    val start = rowGroup.columns.map(_.offset).min
+    val blocks = fs.getFileBlockLocations(file, start, 1)
+    if (blocks != null && blocks.nonEmpty) blocks(0).getHosts else null
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.api.table.runtime.io
+
+import java.util.BitSet
+
+import org.apache.flink.annotation.Internal
+import org.apache.flink.api.common.io.FileOutputFormat
+import org.apache.flink.api.table.Row
+import org.apache.flink.api.table.runtime.io.ColumnarFileFormat._
+import org.apache.flink.api.table.typeutils.RowTypeInfo
+import org.apache.flink.core.fs.Path
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper
+import org.apache.flink.runtime.util.DataOutputSerializer
+
+import scala.collection.mutable.ArrayBuffer
+
+/**
+  * Writes [[Row]]s into files of the [[ColumnarFileFormat]].
+  *
+  * The rows are buffered column by column until a row group is complete. The schema of the file
+  * and the statistics of the row groups are written to the footer of the file, which is written
+  * when the format is closed.
+  *
+  * @param outputPath The path of the output file or directory.
+  * @param rowType The type of the written rows.
+  * @param fieldNames The names of the fields, which are stored in the schema of the file.
+  * @param rowGroupSize The number of rows of a row group.
+  */
+@Internal
+@SerialVersionUID(1L)
+class RowColumnarOutputFormat(
+    outputPath: Path,
+    rowType: RowTypeInfo,
+    fieldNames: Array[String],
+    rowGroupSize: Int)
+  extends FileOutputFormat[Row](outputPath) {
+
+  if (rowGroupSize <= 0) {
+    throw new IllegalArgumentException("Row group size must be greater than 0.")
+  }
+  if (fieldNames.length != rowType.getArity) {
+    throw new IllegalArgumentException("Number of field names and fields must be equal.")
+  }
+
+  def this(outputPath: Path, rowType: RowTypeInfo, rowGroupSize: Int) {
+    this(outputPath, rowType, rowType.getFieldNames, rowGroupSize)
+  }
+
+  def this(outputPath: Path, rowType: RowTypeInfo) {
+    this(outputPath, rowType, DEFAULT_ROW_GROUP_SIZE)
+  }
+
+  private val arity = rowType.getArity
+  private val schema = ColumnarSchema(fieldNames, columnTypes(rowType))
+
+  @transient private var out: DataOutputViewStreamWrapper = _
+
+  // buffers of the current row group
+  @transient private var columnBuffers: Array[DataOutputSerializer] = _
+  @transient private var nullMasks: Array[BitSet] = _
+  @transient private var nullCounts: Array[Int] = _
+  @transient private var minValues: Array[AnyRef] = _
+  @transient private var maxValues: Array[AnyRef] = _
+  @transient private var rowCount: Int = _
+
+  @transient private var rowGroups: ArrayBuffer[RowGroupMetadata] = _
+
+  override def open(taskNumber: Int, numTasks: Int): Unit = {
+    super.open(taskNumber, numTasks)
+
+    out = new DataOutputViewStreamWrapper(stream)
+    columnBuffers = Array.fill(arity)(new DataOutputSerializer(4096))
+    nullMasks = Array.fill(arity)(new BitSet(rowGroupSize))
+    nullCounts = new Array[Int](arity)
+    minValues = new Array[AnyRef](arity)
+    maxValues = new Array[AnyRef](arity)
+    rowCount = 0
+    rowGroups = ArrayBuffer()
+
+    writeHeader(out)
+  }
+
+  override def writeRecord(record: Row): Unit = {
+    var i = 0
+    while (i < arity) {
+      val value = record.productElement(i).asInstanceOf[AnyRef]
+      if (value == null) {
+        nullMasks(i).set(rowCount)
+        nullCounts(i) += 1
+      } else {
+        schema.columnTypes(i).write(value, columnBuffers(i))
+        updateStatistics(i, value)
+      }
+      i += 1
+    }
+
+    rowCount += 1
+    if (rowCount == rowGroupSize) {
+      writeRowGroup()
+    }
+  }
+
+  override def close(): Unit = {
+    if (stream != null) {
+      if (rowCount > 0) {
+        writeRowGroup()
+      }
+      val footerOffset = stream.getPos
+      writeFooter(out, schema, rowGroups)
+      out.writeLong(footerOffset)
+      out.writeInt(MAGIC)
+    }
+    super.close()
+  }
+
+  private def updateStatistics(field: Int, value: AnyRef): Unit = {
+    // the values of all column types are comparable
+    val comparable = value.asInstanceOf[Comparable[AnyRef]]
+    if (minValues(field) == null || comparable.compareTo(minValues(field)) < 0) {
+      minValues(field) = schema.columnTypes(field).copy(value)
+    }
+    if (maxValues(field) == null || comparable.compareTo(maxValues(field)) > 0) {
+      maxValues(field) = schema.columnTypes(field).copy(value)
+    }
+  }
+
+  private def writeRowGroup(): Unit = {
+    val maskLength = nullMaskLength(rowCount)
+
+    val columns = Array.tabulate(arity) { i =>
+      val offset = stream.getPos
+
+      // null mask, padded to the full length
+      val mask = nullMasks(i).toByteArray
+      out.write(mask)
+      out.write(new Array[Byte](maskLength - mask.length))
+      // values
+      out.write(columnBuffers(i).getByteArray, 0, columnBuffers(i).length())
+
+      val column = ColumnChunkMetadata(
+        offset,
+        maskLength + columnBuffers(i).length(),
+        nullCounts(i),
+        minValues(i),
+        maxValues(i))
+
+      columnBuffers(i).clear()
+      nullMasks(i).clear()
+      nullCounts(i) = 0
+      minValues(i) = null
+      maxValues(i) = null
+      column
+    }
+
+    rowGroups += RowGroupMetadata(rowCount, columns)
+    rowCount = 0
+  }
+}
@@ -90,7 +90,7 @@ class RowCsvInputFormat(
     }
     var i: Int = 0
     while (i < parsedValues.length) {
-      reuse.setField(i, parsedValues(i))
+      reuseRow.setField(i, parsedValues(i))
       i += 1
     }
     reuseRow
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.api.table.runtime.join
+
+import java.sql.Timestamp
+
+import org.apache.flink.api.common.functions.FlatJoinFunction
+import org.apache.flink.api.common.state.{ListState, ListStateDescriptor}
+import org.apache.flink.api.common.typeinfo.TypeInformation
+import org.apache.flink.api.java.typeutils.ResultTypeQueryable
+import org.apache.flink.api.table.Row
+import org.apache.flink.api.table.runtime.FunctionCompiler
+import org.apache.flink.api.table.typeutils.RowTypeInfo
+import org.apache.flink.configuration.Configuration
+import org.apache.flink.streaming.api.{TimeDomain, TimerService}
+import org.apache.flink.streaming.api.functions.co.RichTimelyCoFlatMapFunction
+import org.apache.flink.util.Collector
+import org.slf4j.LoggerFactory
+
+import scala.collection.JavaConverters._
+
+/**
+  * Joins two keyed streams of Rows on a time-bounded window. A left Row with time l is joined
+  * with all right Rows of the same key with time r such that
+  * `r + lowerBound <= l <= r + upperBound`.
+  *
+  * Rows are buffered in keyed state as long as they can be joined with future Rows of the other
+  * input, i.e., until the watermark passes `l - lowerBound` for left Rows and `r + upperBound`
+  * for right Rows. Event-time timers remove the expired Rows, such that the size of the state is
+  * proportional to the size of the join window and not to the history of the streams.
+  *
+  * Matching pairs of Rows are passed to a generated [[FlatJoinFunction]] which evaluates the
+  * full join condition and converts the joined Row into the result type.
+  *
+  * @param bounds The time attributes and bounds of the join window.
+  * @param leftType The type of the left input Rows.
+  * @param rightType The type of the right input Rows.
+  * @param name The name of the generated join function.
+  * @param code The code of the generated join function.
+  * @param returnType The type of the joined records.
+  */
+class TimeBoundedStreamInnerJoin(
+    private val bounds: WindowBounds,
+    private val leftType: RowTypeInfo,
+    private val rightType: RowTypeInfo,
+    private val name: String,
+    private val code: String,
+    @transient private val returnType: TypeInformation[Any])
+  extends RichTimelyCoFlatMapFunction[Row, Row, Any]
+  with ResultTypeQueryable[Any]
+  with FunctionCompiler[FlatJoinFunction[Row, Row, Any]] {
+
+  val LOG = LoggerFactory.getLogger(this.getClass)
+
+  private var joinFunction: FlatJoinFunction[Row, Row, Any] = _
+
+  private var leftRowsState: ListState[Row] = _
+  private var rightRowsState: ListState[Row] = _
+
+  override def open(config: Configuration): Unit = {
+    LOG.debug(s"Compiling FlatJoinFunction: $name \n\n Code:\n$code")
+    val clazz = compile(getRuntimeContext.getUserCodeClassLoader, name, code)
+    LOG.debug("Instantiating FlatJoinFunction.")
+    joinFunction = clazz.newInstance()
+
+    leftRowsState = getRuntimeContext.getListState(
+      new ListStateDescriptor[Row]("leftRows", leftType))
+    rightRowsState = getRuntimeContext.getListState(
+      new ListStateDescriptor[Row]("rightRows", rightType))
+  }
+
+  override def flatMap1(
+      leftRow: Row,
+      timerService: TimerService,
+      out: Collector[Any]): Unit = {
+
+    val leftTime = timeOf(leftRow, bounds.leftTimeIdx)
+    if (leftTime == null) {
+      // a Row without time does not satisfy the join condition
+      return
+    }
+
+    val rightRows = rightRowsState.get()
+    if (rightRows != null) {
+      val minRightTime = leftTime.longValue() - bounds.upperBound
+      val maxRightTime = leftTime.longValue() - bounds.lowerBound
+      rightRows.asScala.foreach { rightRow =>
+        val rightTime = timeOf(rightRow, bounds.rightTimeIdx).longValue()
+        if (rightTime >= minRightTime && rightTime <= maxRightTime) {
+          joinFunction.join(leftRow, rightRow, out)
+        }
+      }
+    }
+
+    // keep the Row only if it can be joined with Rows that did not arrive yet
+    val cleanupTime = leftTime.longValue() - bounds.lowerBound
+    if (cleanupTime > timerService.currentWatermark()) {
+      leftRowsState.add(leftRow)
+      timerService.registerEventTimeTimer(cleanupTime)
+    }
+  }
+
+  override def flatMap2(
+      rightRow: Row,
+      timerService: TimerService,
+      out: Collector[Any]): Unit = {
+
+    val rightTime = timeOf(rightRow, bounds.rightTimeIdx)
+    if (rightTime == null) {
+      // a Row without time does not satisfy the join condition
+      return
+    }
+
+    val leftRows = leftRowsState.get()
+    if (leftRows != null) {
+      val minLeftTime = rightTime.longValue() + bounds.lowerBound
+      val maxLeftTime = rightTime.longValue() + bounds.upperBound
+      leftRows.asScala.foreach { leftRow =>
+        val leftTime = timeOf(leftRow, bounds.leftTimeIdx).longValue()
+        if (leftTime >= minLeftTime && leftTime <= maxLeftTime) {
+          joinFunction.join(leftRow, rightRow, out)
+        }
+      }
+    }
+
+    // keep the Row only if it can be joined with Rows that did not arrive yet
+    val cleanupTime = rightTime.longValue() + bounds.upperBound
+    if (cleanupTime > timerService.currentWatermark()) {
+      rightRowsState.add(rightRow)
+      timerService.registerEventTimeTimer(cleanupTime)
+    }
+  }
+
+  override def onTimer(
+      timestamp: Long,
+      timeDomain: TimeDomain,
+      timerService: TimerService,
+      out: Collector[Any]): Unit = {
+
+    val watermark = timerService.currentWatermark()
+
+    removeExpiredRows(leftRowsState, watermark) { leftRow =>
+      timeOf(leftRow, bounds.leftTimeIdx).longValue() - bounds.lowerBound
+    }
+    removeExpiredRows(rightRowsState, watermark) { rightRow =>
+      timeOf(rightRow, bounds.rightTimeIdx).longValue() + bounds.upperBound
+    }
+  }
+
+  override def getProducedType: TypeInformation[Any] = returnType
+
+  /**
+    * Removes all Rows from the state whose cleanup time is not after the watermark.
+    */
+  private def removeExpiredRows(
+      rowsState: ListState[Row],
+      watermark: Long)(
+      cleanupTime: Row => Long): Unit = {
+
+    val rows = rowsState.get()
+    if (rows != null) {
+      val remainingRows = rows.asScala.filter(cleanupTime(_) > watermark).toList
+      rowsState.clear()
+      remainingRows.foreach(rowsState.add)
+    }
+  }
+
+  private def timeOf(row: Row, timeIdx: Int): java.lang.Long = {
+    val time = row.productElement(timeIdx).asInstanceOf[Timestamp]
+    if (time == null) null else time.getTime
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.api.table.runtime.join
+
+import java.math.{BigDecimal => JBigDecimal}
+
+import org.apache.calcite.plan.RelOptUtil
+import org.apache.calcite.rel.`type`.RelDataType
+import org.apache.calcite.rex.{RexCall, RexInputRef, RexLiteral, RexNode}
+import org.apache.calcite.sql.SqlKind
+import org.apache.calcite.sql.`type`.SqlTypeName
+
+import scala.collection.JavaConversions._
+
+/**
+  * The bounds of a time-bounded stream join.
+  *
+  * The join condition restricts the time attribute of the left input to the interval
+  * [rightTime + lowerBound, rightTime + upperBound].
+  *
+  * @param leftTimeIdx The index of the time attribute in the left input.
+  * @param rightTimeIdx The index of the time attribute in the right input.
+  * @param lowerBound The lower bound in milliseconds (inclusive).
+  * @param upperBound The upper bound in milliseconds (inclusive).
+  */
+case class WindowBounds(leftTimeIdx: Int, rightTimeIdx: Int, lowerBound: Long, upperBound: Long)
+
+object WindowJoinUtil {
+
+  /**
+    * Extracts the time bounds of a stream join from the non-equi part of its join condition.
+    *
+    * The condition must contain conjunctive predicates that compare a TIMESTAMP attribute of
+    * the left input with a TIMESTAMP attribute of the right input, each optionally shifted by a
+    * constant interval, for example `a.ts BETWEEN b.ts - INTERVAL '10' SECOND AND b.ts`.
+    * Both a lower and an upper bound must be given for the same pair of attributes.
+    *
+    * @param condition The non-equi part of the join condition.
+    * @param leftFieldCount The number of fields of the left input.
+    * @param inputType The row type of the join input, i.e., left and right fields.
+    * @return The bounds of the join window or None if the condition does not bound the join.
+    */
+  def extractWindowBounds(
+      condition: RexNode,
+      leftFieldCount: Int,
+      inputType: RelDataType)
+    : Option[WindowBounds] = {
+
+    // predicates of the form: leftTime - rightTime (>= | <=) constant
+    val predicates = RelOptUtil.conjunctions(condition)
+      .flatMap(extractTimePredicate(_, leftFieldCount, inputType))
+
+    val attributes = predicates.map(p => (p._1, p._2)).distinct
+    if (attributes.size != 1) {
+      // no bounds or bounds on different time attributes
+      return None
+    }
+
+    val lowerBounds = predicates.filter(_._3).map(_._4)
+    val upperBounds = predicates.filter(!_._3).map(_._4)
+    if (lowerBounds.isEmpty || upperBounds.isEmpty) {
+      return None
+    }
+
+    val (leftTimeIdx, rightTimeIdx) = attributes.head
+    Some(WindowBounds(
+      leftTimeIdx,
+      rightTimeIdx - leftFieldCount,
+      lowerBounds.max,
+      upperBounds.min))
+  }
+
+  /**
+    * Translates a comparison of two time attributes into a bound on the difference
+    * leftTime - rightTime.
+    *
+    * @return The index of the left and right time attribute, whether the bound is a lower bound,
+    *         and the bound in milliseconds.
+    */
+  private def extractTimePredicate(
+      predicate: RexNode,
+      leftFieldCount: Int,
+      inputType: RelDataType)
+    : Option[(Int, Int, Boolean, Long)] = {
+
+    val (isGreater, inclusive) = predicate.getKind match {
+      case SqlKind.GREATER_THAN => (true, false)
+      case SqlKind.GREATER_THAN_OR_EQUAL => (true, true)
+      case SqlKind.LESS_THAN => (false, false)
+      case SqlKind.LESS_THAN_OR_EQUAL => (false, true)
+      case _ => return None
+    }
+
+    val operands = predicate.asInstanceOf[RexCall].getOperands
+    val first = extractShiftedAttribute(operands.get(0), inputType)
+    val second = extractShiftedAttribute(operands.get(1), inputType)
+
+    (first, second) match {
+      case (Some((firstIdx, firstOffset)), Some((secondIdx, secondOffset))) =>
+        val firstIsLeft = firstIdx < leftFieldCount
+        val secondIsLeft = secondIdx < leftFieldCount
+        if (firstIsLeft == secondIsLeft) {
+          None
+        } else if (firstIsLeft) {
+          // l + firstOffset op r + secondOffset  =>  l - r op secondOffset - firstOffset
+          Some(toBound(firstIdx, secondIdx, isGreater, inclusive, secondOffset - firstOffset))
+        } else {
+          // r + firstOffset op l + secondOffset  =>  l - r reversed-op firstOffset - secondOffset
+          Some(toBound(secondIdx, firstIdx, !isGreater, inclusive, firstOffset - secondOffset))
+        }
+      case _ => None
+    }
+  }
+
+  private def toBound(
+      leftIdx: Int,
+      rightIdx: Int,
+      isLower: Boolean,
+      inclusive: Boolean,
+      bound: Long)
+    : (Int, Int, Boolean, Long) = {
+
+    // time attributes have millisecond precision
+    val inclusiveBound = if (inclusive) bound else if (isLower) bound + 1 else bound - 1
+    (leftIdx, rightIdx, isLower, inclusiveBound)
+  }
+
+  /**
+    * Extracts a TIMESTAMP attribute that is optionally shifted by a constant interval.
+    *
+    * @return The index of the attribute and the shift in milliseconds.
+    */
+  private def extractShiftedAttribute(
+      expr: RexNode,
+      inputType: RelDataType)
+    : Option[(Int, Long)] = expr match {
+
+    case ref: RexInputRef
+        if inputType.getFieldList.get(ref.getIndex).getType.getSqlTypeName ==
+          SqlTypeName.TIMESTAMP =>
+      Some((ref.getIndex, 0L))
+
+    case call: RexCall if call.getKind == SqlKind.PLUS =>
+      (call.getOperands.get(0), call.getOperands.get(1)) match {
+        case (attr, IntervalMillis(interval)) =>
+          extractShiftedAttribute(attr, inputType).map(a => (a._1, a._2 + interval))
+        case (IntervalMillis(interval), attr) =>
+          extractShiftedAttribute(attr, inputType).map(a => (a._1, a._2 + interval))
+        case _ => None
+      }
+
+    case call: RexCall if call.getKind == SqlKind.MINUS =>
+      (call.getOperands.get(0), call.getOperands.get(1)) match {
+        case (attr, IntervalMillis(interval)) =>
+          extractShiftedAttribute(attr, inputType).map(a => (a._1, a._2 - interval))
+        case _ => None
+      }
+
+    case _ => None
+  }
+
+  /**
+    * Matches a literal of a day-time interval type and extracts its value in milliseconds.
+    */
+  private object IntervalMillis {
+    def unapply(expr: RexNode): Option[Long] = expr match {
+      case literal: RexLiteral
+          if SqlTypeName.DAY_INTERVAL_TYPES.contains(literal.getType.getSqlTypeName) =>
+        Some(literal.getValue.asInstanceOf[JBigDecimal].longValue())
+      case _ => None
+    }
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.api.table.sinks
+
+import java.lang.{Boolean => JBoolean}
+
+import org.apache.flink.api.common.typeinfo.TypeInformation
+import org.apache.flink.api.java.tuple.{Tuple2 => JTuple2}
+import org.apache.flink.streaming.api.datastream.DataStream
+
+/** Defines an external [[TableSink]] to emit a streaming
+  * [[org.apache.flink.api.table.Table]] with updates, such as the result of a non-windowed
+  * grouped aggregation.
+  *
+  * The [[org.apache.flink.api.table.Table]] is emitted as a stream of change messages. The
+  * [[JBoolean]] flag of a message is true if the record is inserted or updated and false if the
+  * record is deleted. An update of a record is emitted as a delete message of the previous
+  * record followed by an insert message of the new record.
+  *
+  * The sink can apply the messages as upserts on the key fields that are set by
+  * [[setKeyFields()]].
+  *
+  * @tparam T Type of the records that this [[TableSink]] expects and supports.
+  */
+trait UpsertStreamTableSink[T] extends TableSink[JTuple2[JBoolean, T]] {
+
+  /**
+    * Configures the unique key fields of the [[org.apache.flink.api.table.Table]] to emit.
+    * The key fields are null if the [[org.apache.flink.api.table.Table]] has no known key.
+    *
+    * @param keys The names of the key fields of the table.
+    */
+  def setKeyFields(keys: Array[String]): Unit
+
+  /** Returns the type of the records that are carried by the change messages. */
+  def getRecordType: TypeInformation[T]
+
+  /** Emits the DataStream of change messages. */
+  def emitDataStream(dataStream: DataStream[JTuple2[JBoolean, T]]): Unit
+}
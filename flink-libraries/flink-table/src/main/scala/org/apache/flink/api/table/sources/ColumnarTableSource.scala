@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.api.table.sources
+
+import java.util.{List => JList}
+
+import org.apache.flink.api.common.typeinfo.TypeInformation
+import org.apache.flink.api.java.{DataSet, ExecutionEnvironment}
+import org.apache.flink.api.table.expressions._
+import org.apache.flink.api.table.runtime.io.MinMaxPredicate._
+import org.apache.flink.api.table.runtime.io.{MinMaxPredicate, RowColumnarInputFormat}
+import org.apache.flink.api.table.typeutils.RowTypeInfo
+import org.apache.flink.api.table.{Row, TableException}
+import org.apache.flink.core.fs.Path
+
+import scala.collection.JavaConversions._
+
+/**
+  * A [[BatchTableSource]] for files of the
+  * [[org.apache.flink.api.table.runtime.io.ColumnarFileFormat]], which can be written with the
+  * [[org.apache.flink.api.table.runtime.io.RowColumnarOutputFormat]].
+  *
+  * The source is a [[ProjectableTableSource]] and only reads the column chunks of the fields
+  * which are accessed by a query. It is also a [[FilterableTableSource]] and uses comparisons of
+  * fields with literals to skip row groups based on their min/max statistics. Since the
+  * remaining row groups may contain rows which do not satisfy the predicates, all predicates
+  * are still evaluated by the query.
+  *
+  * @param path The path to the file or directory of files.
+  * @param fieldNames The names of the table fields.
+  * @param fieldTypes The types of the table fields.
+  */
+class ColumnarTableSource(
+    path: String,
+    fieldNames: Array[String],
+    fieldTypes: Array[TypeInformation[_]])
+  extends BatchTableSource[Row]
+  with ProjectableTableSource[Row]
+  with FilterableTableSource[Row] {
+
+  if (fieldNames.length != fieldTypes.length) {
+    throw TableException("Number of field names and field types must be equal.")
+  }
+
+  /** The indexes of the fields of the file which are returned */
+  private var selectedFields: Array[Int] = fieldTypes.indices.toArray
+
+  /** The predicates on the fields of the file which are used to skip row groups */
+  private var predicates: Array[MinMaxPredicate] = Array()
+
+  private var filterPushedDown: Boolean = false
+
+  /**
+    * Returns the data of the table as a [[DataSet]] of [[Row]].
+    *
+    * NOTE: This method is for internal use only for defining a [[TableSource]].
+    *       Do not use it in Table API programs.
+    */
+  override def getDataSet(execEnv: ExecutionEnvironment): DataSet[Row] = {
+    val inputFormat = new RowColumnarInputFormat(
+      new Path(path),
+      new RowTypeInfo(fieldTypes),
+      selectedFields,
+      predicates)
+
+    execEnv.createInput(inputFormat, getReturnType)
+  }
+
+  /** Returns the types of the table fields. */
+  override def getFieldTypes: Array[TypeInformation[_]] = selectedFields.map(fieldTypes(_))
+
+  /** Returns the names of the table fields. */
+  override def getFieldsNames: Array[String] = selectedFields.map(fieldNames(_))
+
+  /** Returns the number of fields of the table. */
+  override def getNumberOfFields: Int = selectedFields.length
+
+  /** Returns the [[RowTypeInfo]] for the return type of the [[ColumnarTableSource]]. */
+  override def getReturnType: RowTypeInfo = new RowTypeInfo(getFieldTypes)
+
+  /**
+    * Returns a copy of the [[ColumnarTableSource]] which only reads and returns the given fields.
+    *
+    * @param fields The indexes of the fields to return.
+    * @return A copy of the [[ColumnarTableSource]] that projects its output.
+    */
+  override def projectFields(fields: Array[Int]): ColumnarTableSource = {
+    // the given indexes refer to the fields of this (possibly projected) source
+    copy(fields.map(selectedFields(_)), predicates, filterPushedDown)
+  }
+
+  /**
+    * Returns a copy of the [[ColumnarTableSource]] which skips row groups based on the given
+    * predicates. The predicates are not removed from the list because the source does not
+    * evaluate them on single rows.
+    *
+    * @param predicates The conjunctive predicates of the query.
+    * @return A copy of the [[ColumnarTableSource]] that skips row groups.
+    */
+  override def applyPredicate(predicates: JList[Expression]): ColumnarTableSource = {
+    val minMaxPredicates = predicates.flatMap(toMinMaxPredicates)
+    copy(selectedFields, this.predicates ++ minMaxPredicates, filterPushedDown = true)
+  }
+
+  override def isFilterPushedDown: Boolean = filterPushedDown
+
+  private def copy(
+      selectedFields: Array[Int],
+      predicates: Array[MinMaxPredicate],
+      filterPushedDown: Boolean): ColumnarTableSource = {
+
+    val source = new ColumnarTableSource(path, fieldNames, fieldTypes)
+    source.selectedFields = selectedFields
+    source.predicates = predicates
+    source.filterPushedDown = filterPushedDown
+    source
+  }
+
+  private def toMinMaxPredicates(expression: Expression): Seq[MinMaxPredicate] = {
+    expression match {
+      case And(left, right) =>
+        toMinMaxPredicates(left) ++ toMinMaxPredicates(right)
+      case EqualTo(left, right) =>
+        toMinMaxPredicate(left, Equal, right).toSeq
+      case LessThan(left, right) =>
+        toMinMaxPredicate(left, Less, right).toSeq
+      case LessThanOrEqual(left, right) =>
+        toMinMaxPredicate(left, LessOrEqual, right).toSeq
+      case GreaterThan(left, right) =>
+        toMinMaxPredicate(left, Greater, right).toSeq
+      case GreaterThanOrEqual(left, right) =>
+        toMinMaxPredicate(left, GreaterOrEqual, right).toSeq
+      case _ =>
+        Seq()
+    }
+  }
+
+  private def toMinMaxPredicate(
+      left: Expression,
+      comparison: Comparison,
+      right: Expression): Option[MinMaxPredicate] = {
+
+    (left, right) match {
+      case (field: ResolvedFieldReference, Literal(value, _)) =>
+        fieldIndex(field.name).map(MinMaxPredicate(_, comparison, value))
+      case (Literal(value, _), field: ResolvedFieldReference) =>
+        fieldIndex(field.name).map(MinMaxPredicate(_, swap(comparison), value))
+      case _ =>
+        None
+    }
+  }
+
+  /** Returns the index of the field in the file. */
+  private def fieldIndex(name: String): Option[Int] = {
+    val index = fieldNames.indexOf(name)
+    if (index >= 0 && selectedFields.contains(index)) Some(index) else None
+  }
+}
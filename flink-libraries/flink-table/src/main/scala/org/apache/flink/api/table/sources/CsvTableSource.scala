@@ -32,6 +32,10 @@ import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment
   * A [[BatchTableSource]] and [[StreamTableSource]] for simple CSV files with a
   * (logically) unlimited number of fields.
   *
+  * The source is a [[ProjectableTableSource]]. Fields which are not accessed by a query are
+  * skipped without being parsed and the remainder of a line after the last accessed field is
+  * not read at all.
+  *
   * @param path The path to the CSV file.
   * @param fieldNames The names of the table fields.
   * @param fieldTypes The types of the table fields.
@@ -53,7 +57,8 @@ class CsvTableSource(
     ignoreComments: String = null,
     lenient: Boolean = false)
   extends BatchTableSource[Row]
-  with StreamTableSource[Row] {
+  with StreamTableSource[Row]
+  with ProjectableTableSource[Row] {
 
   /**
     * A [[BatchTableSource]] and [[StreamTableSource]] for simple CSV files with a
@@ -71,7 +76,10 @@ class CsvTableSource(
     throw TableException("Number of field names and field types must be equal.")
   }
 
-  private val returnType = new RowTypeInfo(fieldTypes)
+  /** The indexes of the fields of the file which are returned, in ascending order */
+  private var selectedFields: Array[Int] = fieldTypes.indices.toArray
+
+  private var returnType = new RowTypeInfo(fieldTypes)
 
   /**
     * Returns the data of the table as a [[DataSet]] of [[Row]].
@@ -84,13 +92,13 @@ class CsvTableSource(
   }
 
   /** Returns the types of the table fields. */
-  override def getFieldTypes: Array[TypeInformation[_]] = fieldTypes
+  override def getFieldTypes: Array[TypeInformation[_]] = selectedFields.map(fieldTypes(_))
 
   /** Returns the names of the table fields. */
-  override def getFieldsNames: Array[String] = fieldNames
+  override def getFieldsNames: Array[String] = selectedFields.map(fieldNames(_))
 
   /** Returns the number of fields of the table. */
-  override def getNumberOfFields: Int = fieldNames.length
+  override def getNumberOfFields: Int = selectedFields.length
 
   /** Returns the [[RowTypeInfo]] for the return type of the [[CsvTableSource]]. */
   override def getReturnType: RowTypeInfo = returnType
@@ -105,8 +113,37 @@ class CsvTableSource(
     streamExecEnv.createInput(createCsvInput(), returnType)
   }
 
+  /**
+    * Returns a copy of the [[CsvTableSource]] which only parses and returns the given fields.
+    *
+    * @param fields The indexes of the fields to return, in ascending order.
+    * @return A copy of the [[CsvTableSource]] that projects its output.
+    */
+  override def projectFields(fields: Array[Int]): CsvTableSource = {
+    val source = new CsvTableSource(
+      path,
+      fieldNames,
+      fieldTypes,
+      fieldDelim,
+      rowDelim,
+      quoteCharacter,
+      ignoreFirstLine,
+      ignoreComments,
+      lenient)
+
+    // the given indexes refer to the fields of this (possibly projected) source
+    source.selectedFields = fields.map(selectedFields(_))
+    source.returnType = new RowTypeInfo(source.getFieldTypes)
+    source
+  }
+
   private def createCsvInput(): RowCsvInputFormat = {
-    val inputFormat = new RowCsvInputFormat(new Path(path), returnType, rowDelim, fieldDelim)
+    val inputFormat = new RowCsvInputFormat(
+      new Path(path),
+      returnType,
+      rowDelim,
+      fieldDelim,
+      selectedFields)
 
     inputFormat.setSkipFirstLineAsHeader(ignoreFirstLine)
     inputFormat.setLenient(lenient)
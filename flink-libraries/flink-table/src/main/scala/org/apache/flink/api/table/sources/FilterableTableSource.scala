@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.api.table.sources
+
+import java.util.{List => JList}
+
+import org.apache.flink.api.table.expressions.Expression
+
+/**
+  * Adds support for filter push-down to a [[TableSource]].
+  * A [[TableSource]] extending this interface is able to filter the records of the return table
+  * before they are handed to the query.
+  *
+  * @tparam T The return type of the [[FilterableTableSource]].
+  */
+trait FilterableTableSource[T] {
+
+  /**
+    * Creates a copy of the [[FilterableTableSource]] that applies the given predicates.
+    *
+    * The predicates are conjunctive, i.e., a record must satisfy all of them. The source removes
+    * the predicates that it fully evaluates from the list. The predicates that remain in the
+    * list are evaluated by the query, so the source may also use them to skip records on a best
+    * effort basis.
+    *
+    * @param predicates The conjunctive predicates of the query on the fields of this source.
+    * @return A copy of the [[FilterableTableSource]] that applies the accepted predicates.
+    */
+  def applyPredicate(predicates: JList[Expression]): FilterableTableSource[T]
+
+  /**
+    * Returns true if predicates have been offered to this [[FilterableTableSource]] by
+    * [[applyPredicate()]]. Predicates are only pushed into a source once.
+    */
+  def isFilterPushedDown: Boolean
+
+}
@@ -19,7 +19,9 @@
 package org.apache.flink.api.scala.batch
 
 import java.io.{File, FileOutputStream, OutputStreamWriter}
+import java.util.{List => JList}
 
+import org.apache.flink.api.common.functions.FilterFunction
 import org.apache.flink.api.common.io.GenericInputFormat
 import org.apache.flink.api.common.typeinfo.{BasicTypeInfo, TypeInformation}
 import org.apache.flink.api.java.{DataSet => JavaSet, ExecutionEnvironment => JavaExecEnv}
@@ -27,9 +29,14 @@ import org.apache.flink.api.scala.ExecutionEnvironment
 import org.apache.flink.api.scala.batch.utils.TableProgramsTestBase
 import org.apache.flink.api.scala.batch.utils.TableProgramsTestBase.TableConfigMode
 import org.apache.flink.api.scala.table._
-import org.apache.flink.api.table.sources.{BatchTableSource, CsvTableSource}
+import org.apache.flink.api.table.expressions.{Expression, LessThan, Literal, ResolvedFieldReference}
+import org.apache.flink.api.table.runtime.io.RowColumnarOutputFormat
+import org.apache.flink.api.table.sources.{BatchTableSource, ColumnarTableSource, CsvTableSource, FilterableTableSource}
 import org.apache.flink.api.table.typeutils.RowTypeInfo
 import org.apache.flink.api.table.{Row, TableEnvironment}
+import org.apache.flink.configuration.Configuration
+import org.apache.flink.core.fs.FileSystem.WriteMode
+import org.apache.flink.core.fs.Path
 import org.apache.flink.test.util.MultipleProgramsTestBase.TestExecutionMode
 import org.apache.flink.test.util.{MultipleProgramsTestBase, TestBaseUtils}
 import org.junit.Test
@@ -82,6 +89,116 @@ class TableSourceITCase(
   @Test
   def testCsvTableSource(): Unit = {
 
+    val env = ExecutionEnvironment.getExecutionEnvironment
+    val tEnv = TableEnvironment.getTableEnvironment(env, config)
+
+    tEnv.registerTableSource("csvTable", createCsvTableSource())
+    val results = tEnv.sql(
+      "SELECT last, sum(score), max(id) FROM csvTable GROUP BY last").collect()
+
+    val expected = Seq(
+      "Smith,102.52,7",
+      "Taylor,45.6,2",
+      "Miller,14.67,6",
+      "Williams,36.84,8").mkString("\n")
+    TestBaseUtils.compareResultAsText(results.asJava, expected)
+  }
+
+  @Test
+  def testProjectedCsvTableSource(): Unit = {
+
+    val env = ExecutionEnvironment.getExecutionEnvironment
+    val tEnv = TableEnvironment.getTableEnvironment(env, config)
+
+    tEnv.registerTableSource("csvTable", createCsvTableSource())
+    val results = tEnv
+      .scan("csvTable")
+      .where('score < 10)
+      .select('last, 'id)
+      .collect()
+
+    val expected = Seq(
+      "Miller,3",
+      "Smith,4",
+      "Miller,6",
+      "Williams,8").mkString("\n")
+    TestBaseUtils.compareResultAsText(results.asJava, expected)
+  }
+
+  @Test
+  def testCsvTableSourceWithoutAccessedFields(): Unit = {
+
+    val env = ExecutionEnvironment.getExecutionEnvironment
+    val tEnv = TableEnvironment.getTableEnvironment(env, config)
+
+    tEnv.registerTableSource("csvTable", createCsvTableSource())
+    val results = tEnv.sql("SELECT COUNT(*) FROM csvTable").collect()
+
+    val expected = "8"
+    TestBaseUtils.compareResultAsText(results.asJava, expected)
+  }
+
+  @Test
+  def testFilterableTableSource(): Unit = {
+
+    val env = ExecutionEnvironment.getExecutionEnvironment
+    val tEnv = TableEnvironment.getTableEnvironment(env, config)
+
+    tEnv.registerTableSource("MyTestTable", new TestFilterableTableSource())
+    val results = tEnv.sql(
+      "SELECT name, id FROM MyTestTable WHERE amount < 4 AND id > 16").collect()
+
+    val expected = Seq(
+      "Record_17,17", "Record_18,18", "Record_19,19", "Record_32,32").mkString("\n")
+    TestBaseUtils.compareResultAsText(results.asJava, expected)
+  }
+
+  @Test
+  def testColumnarTableSource(): Unit = {
+
+    val fieldTypes: Array[TypeInformation[_]] = Array(
+      BasicTypeInfo.STRING_TYPE_INFO,
+      BasicTypeInfo.LONG_TYPE_INFO,
+      BasicTypeInfo.INT_TYPE_INFO
+    )
+
+    val tempFile = File.createTempFile("columnar-test", "tmp")
+    tempFile.deleteOnExit()
+
+    // write 33 rows in row groups of 8 rows
+    val outputFormat = new RowColumnarOutputFormat(
+      new Path(tempFile.getAbsolutePath),
+      new RowTypeInfo(fieldTypes),
+      8)
+    outputFormat.setWriteMode(WriteMode.OVERWRITE)
+    outputFormat.configure(new Configuration)
+    outputFormat.open(0, 1)
+    val inputFormat = new GeneratingInputFormat(33)
+    while (!inputFormat.reachedEnd()) {
+      outputFormat.writeRecord(inputFormat.nextRecord(new Row(3)))
+    }
+    outputFormat.close()
+
+    val env = ExecutionEnvironment.getExecutionEnvironment
+    val tEnv = TableEnvironment.getTableEnvironment(env, config)
+
+    tEnv.registerTableSource(
+      "columnarTable",
+      new ColumnarTableSource(
+        tempFile.getAbsolutePath,
+        Array("name", "id", "amount"),
+        fieldTypes))
+
+    val results = tEnv.sql(
+      "SELECT name, amount FROM columnarTable WHERE id > 26 AND amount < 15").collect()
+
+    val expected = Seq(
+      "Record_27,11", "Record_28,12", "Record_29,13", "Record_30,14", "Record_32,0").mkString("\n")
+    TestBaseUtils.compareResultAsText(results.asJava, expected)
+  }
+
+  private def createCsvTableSource(): CsvTableSource = {
+
     val csvRecords = Seq(
       "First#Id#Score#Last",
       "Mike#1#12.3#Smith",
@@ -101,10 +218,7 @@ class TableSourceITCase(
     tmpWriter.write(csvRecords.mkString("$"))
     tmpWriter.close()
 
-    val env = ExecutionEnvironment.getExecutionEnvironment
-    val tEnv = TableEnvironment.getTableEnvironment(env, config)
-
-    val csvTable = new CsvTableSource(
+    new CsvTableSource(
       tempFile.getAbsolutePath,
       Array("first", "id", "score", "last"),
       Array(
@@ -118,17 +232,6 @@ class TableSourceITCase(
       ignoreFirstLine = true,
       ignoreComments = "%"
     )
-
-    tEnv.registerTableSource("csvTable", csvTable)
-    val results = tEnv.sql(
-      "SELECT last, sum(score), max(id) FROM csvTable GROUP BY last").collect()
-
-    val expected = Seq(
-      "Smith,102.52,7",
-      "Taylor,45.6,2",
-      "Miller,14.67,6",
-      "Williams,36.84,8").mkString("\n")
-    TestBaseUtils.compareResultAsText(results.asJava, expected)
   }
 
 }
@@ -159,6 +262,66 @@ class TestBatchTableSource extends BatchTableSource[Row] {
   override def getNumberOfFields: Int = 3
 }
 
+/**
+  * A [[FilterableTableSource]] which evaluates predicates of the form 'amount < literal and
+  * leaves all other predicates to the query.
+  */
+class TestFilterableTableSource(
+    amountBound: Option[Int] = None,
+    filterPushedDown: Boolean = false)
+  extends BatchTableSource[Row]
+  with FilterableTableSource[Row] {
+
+  val fieldTypes: Array[TypeInformation[_]] = Array(
+    BasicTypeInfo.STRING_TYPE_INFO,
+    BasicTypeInfo.LONG_TYPE_INFO,
+    BasicTypeInfo.INT_TYPE_INFO
+  )
+
+  override def applyPredicate(predicates: JList[Expression]): TestFilterableTableSource = {
+    var bound = amountBound
+    val iterator = predicates.iterator()
+    while (iterator.hasNext) {
+      iterator.next() match {
+        case LessThan(ResolvedFieldReference("amount", _), Literal(value: Int, _)) =>
+          bound = Some(bound.map(math.min(_, value)).getOrElse(value))
+          iterator.remove()
+        case _ =>
+      }
+    }
+    new TestFilterableTableSource(bound, filterPushedDown = true)
+  }
+
+  override def isFilterPushedDown: Boolean = filterPushedDown
+
+  /** Returns the data of the table as a [[org.apache.flink.api.java.DataSet]]. */
+  override def getDataSet(execEnv: JavaExecEnv): JavaSet[Row] = {
+    val input = execEnv.createInput(new GeneratingInputFormat(33), getReturnType)
+      .setParallelism(1)
+    amountBound match {
+      case Some(bound) => input.filter(new AmountFilter(bound)).setParallelism(1)
+      case None => input
+    }
+  }
+
+  /** Returns the types of the table fields. */
+  override def getFieldTypes: Array[TypeInformation[_]] = fieldTypes
+
+  /** Returns the names of the table fields. */
+  override def getFieldsNames: Array[String] = Array("name", "id", "amount")
+
+  /** Returns the [[TypeInformation]] for the return type. */
+  override def getReturnType: TypeInformation[Row] = new RowTypeInfo(fieldTypes)
+
+  /** Returns the number of fields of the table. */
+  override def getNumberOfFields: Int = 3
+}
+
+class AmountFilter(bound: Int) extends FilterFunction[Row] {
+
+  override def filter(value: Row): Boolean = value.productElement(2).asInstanceOf[Int] < bound
+}
+
 class GeneratingInputFormat(val num: Int) extends GenericInputFormat[Row] {
 
   var cnt = 0L
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.api.scala.stream.sql
+
+import java.sql.Timestamp
+
+import org.apache.flink.api.scala._
+import org.apache.flink.api.scala.stream.utils.StreamITCase
+import org.apache.flink.api.scala.table._
+import org.apache.flink.api.table.{Row, TableEnvironment, TableException}
+import org.apache.flink.streaming.api.TimeCharacteristic
+import org.apache.flink.streaming.api.scala.{DataStream, StreamExecutionEnvironment}
+import org.apache.flink.streaming.util.StreamingMultipleProgramsTestBase
+import org.junit.Assert._
+import org.junit._
+
+import scala.collection.mutable
+
+class JoinITCase extends StreamingMultipleProgramsTestBase {
+
+  /** test time-bounded inner join **/
+  @Test
+  def testTimeBoundedInnerJoin(): Unit = {
+
+    val env = StreamExecutionEnvironment.getExecutionEnvironment
+    env.setStreamTimeCharacteristic(TimeCharacteristic.EventTime)
+    val tEnv = TableEnvironment.getTableEnvironment(env)
+    StreamITCase.testResults = mutable.MutableList()
+
+    val sqlQuery = "SELECT t1.b, t2.e FROM T1 AS t1, T2 AS t2 " +
+      "WHERE t1.a = t2.d AND " +
+      "t1.ts BETWEEN t2.ts - INTERVAL '5' SECOND AND t2.ts + INTERVAL '1' SECOND"
+
+    tEnv.registerTable("T1", getLeftStream(env).toTable(tEnv).as('a, 'b, 'ts))
+    tEnv.registerTable("T2", getRightStream(env).toTable(tEnv).as('d, 'e, 'ts))
+
+    val result = tEnv.sql(sqlQuery).toDataStream[Row]
+    result.addSink(new StreamITCase.StringSink)
+    env.execute()
+
+    val expected = mutable.MutableList("L1,R1", "L4,R3")
+    assertEquals(expected.sorted, StreamITCase.testResults.sorted)
+  }
+
+  /** test time-bounded inner join with strict bounds and an additional predicate **/
+  @Test
+  def testTimeBoundedInnerJoinWithPredicate(): Unit = {
+
+    val env = StreamExecutionEnvironment.getExecutionEnvironment
+    env.setStreamTimeCharacteristic(TimeCharacteristic.EventTime)
+    val tEnv = TableEnvironment.getTableEnvironment(env)
+    StreamITCase.testResults = mutable.MutableList()
+
+    val sqlQuery = "SELECT t1.b, t2.e FROM T1 AS t1, T2 AS t2 " +
+      "WHERE t1.a = t2.d AND t2.e <> 'R3' AND " +
+      "t1.ts > t2.ts - INTERVAL '15' SECOND AND t1.ts < t2.ts"
+
+    tEnv.registerTable("T1", getLeftStream(env).toTable(tEnv).as('a, 'b, 'ts))
+    tEnv.registerTable("T2", getRightStream(env).toTable(tEnv).as('d, 'e, 'ts))
+
+    val result = tEnv.sql(sqlQuery).toDataStream[Row]
+    result.addSink(new StreamITCase.StringSink)
+    env.execute()
+
+    val expected = mutable.MutableList("L1,R1", "L3,R2")
+    assertEquals(expected.sorted, StreamITCase.testResults.sorted)
+  }
+
+  /** test that joins without time bounds are rejected **/
+  @Test(expected = classOf[TableException])
+  def testUnboundedJoin(): Unit = {
+
+    val env = StreamExecutionEnvironment.getExecutionEnvironment
+    val tEnv = TableEnvironment.getTableEnvironment(env)
+
+    val sqlQuery = "SELECT t1.b, t2.e FROM T1 AS t1, T2 AS t2 WHERE t1.a = t2.d"
+
+    tEnv.registerTable("T1", getLeftStream(env).toTable(tEnv).as('a, 'b, 'ts))
+    tEnv.registerTable("T2", getRightStream(env).toTable(tEnv).as('d, 'e, 'ts))
+
+    tEnv.sql(sqlQuery).toDataStream[Row]
+  }
+
+  private def getLeftStream(env: StreamExecutionEnvironment)
+    : DataStream[(Int, String, Timestamp)] = {
+
+    env.fromCollection(Seq(
+      (1, "L1", new Timestamp(1000L)),
+      (2, "L3", new Timestamp(2000L)),
+      (1, "L2", new Timestamp(6000L)),
+      (1, "L4", new Timestamp(20000L))))
+      .assignAscendingTimestamps(_._3.getTime)
+  }
+
+  private def getRightStream(env: StreamExecutionEnvironment)
+    : DataStream[(Int, String, Timestamp)] = {
+
+    env.fromCollection(Seq(
+      (1, "R1", new Timestamp(3000L)),
+      (2, "R2", new Timestamp(9000L)),
+      (1, "R3", new Timestamp(21000L))))
+      .assignAscendingTimestamps(_._3.getTime)
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.api.scala.stream.table
+
+import java.lang.{Boolean => JBoolean}
+
+import org.apache.flink.api.common.typeinfo.{BasicTypeInfo, TypeInformation}
+import org.apache.flink.api.java.tuple.{Tuple2 => JTuple2}
+import org.apache.flink.api.java.typeutils.TupleTypeInfo
+import org.apache.flink.api.scala._
+import org.apache.flink.api.scala.stream.utils.StreamITCase
+import org.apache.flink.api.scala.table._
+import org.apache.flink.api.table.sinks.{TableSink, UpsertStreamTableSink}
+import org.apache.flink.api.table.typeutils.RowTypeInfo
+import org.apache.flink.api.table.{Row, TableEnvironment, TableException}
+import org.apache.flink.streaming.api.datastream.DataStream
+import org.apache.flink.streaming.api.functions.sink.RichSinkFunction
+import org.apache.flink.streaming.api.scala.StreamExecutionEnvironment
+import org.apache.flink.streaming.util.StreamingMultipleProgramsTestBase
+import org.junit.Assert._
+import org.junit.Test
+
+import scala.collection.mutable
+
+class GroupAggregationsITCase extends StreamingMultipleProgramsTestBase {
+
+  val data = List(
+    (1L, 1, "Hi"),
+    (2L, 2, "Hello"),
+    (4L, 2, "Hello"),
+    (8L, 3, "Hello world"),
+    (16L, 3, "Hello world"))
+
+  @Test
+  def testNonWindowedGroupAggregation(): Unit = {
+    val env = StreamExecutionEnvironment.getExecutionEnvironment
+    val tEnv = TableEnvironment.getTableEnvironment(env)
+    StreamITCase.clear
+
+    val table = env.fromCollection(data).toTable(tEnv, 'long, 'int, 'string)
+
+    val results = table
+      .groupBy('string)
+      .select('string, 'int.count, 'long.sum)
+      .toRetractStream[Row]
+    results.addSink(new StreamITCase.RetractingSink)
+    env.execute()
+
+    // every update of a group retracts the previous result of the group
+    assertEquals(7, StreamITCase.testResults.size)
+
+    val expected = Seq("Hello world,2,24", "Hello,2,6", "Hi,1,1")
+    assertEquals(expected.sorted, StreamITCase.retractedResults.sorted)
+  }
+
+  @Test
+  def testFilterOnGroupAggregation(): Unit = {
+    val env = StreamExecutionEnvironment.getExecutionEnvironment
+    val tEnv = TableEnvironment.getTableEnvironment(env)
+    StreamITCase.clear
+
+    val table = env.fromCollection(data).toTable(tEnv, 'long, 'int, 'string)
+
+    val results = table
+      .groupBy('string)
+      .select('string, 'long.sum as 'sum)
+      .where('sum > 3)
+      .toRetractStream[Row]
+    results.addSink(new StreamITCase.RetractingSink)
+    env.execute()
+
+    val expected = Seq("Hello world,24", "Hello,6")
+    assertEquals(expected.sorted, StreamITCase.retractedResults.sorted)
+  }
+
+  @Test
+  def testGroupAggregationToUpsertSink(): Unit = {
+    val env = StreamExecutionEnvironment.getExecutionEnvironment
+    val tEnv = TableEnvironment.getTableEnvironment(env)
+    tEnv.getConfig.setIdleStateRetentionTime(60000L, 120000L)
+    GroupAggregationsITCase.upserts.clear()
+    GroupAggregationsITCase.keyFields = null
+
+    val table = env.fromCollection(data).toTable(tEnv, 'long, 'int, 'string)
+
+    table
+      .groupBy('string)
+      .select('long.sum as 'sum, 'string as 'key)
+      .writeToSink(new GroupAggregationsITCase.TestUpsertSink)
+    env.execute()
+
+    assertEquals(Seq("key"), GroupAggregationsITCase.keyFields.toSeq)
+
+    val expected = Map("Hello world" -> "24,Hello world", "Hello" -> "6,Hello", "Hi" -> "1,Hi")
+    assertEquals(expected, GroupAggregationsITCase.upserts.toMap)
+  }
+
+  @Test(expected = classOf[TableException])
+  def testGroupAggregationToAppendStream(): Unit = {
+    val env = StreamExecutionEnvironment.getExecutionEnvironment
+    val tEnv = TableEnvironment.getTableEnvironment(env)
+
+    env.fromCollection(data).toTable(tEnv, 'long, 'int, 'string)
+      .groupBy('string)
+      .select('string, 'int.count)
+      .toDataStream[Row]
+  }
+}
+
+object GroupAggregationsITCase {
+
+  val upserts = mutable.HashMap.empty[String, String]
+
+  var keyFields: Array[String] = _
+
+  /**
+    * Applies the change messages by the key field, which is the second field of the records.
+    */
+  final class TestUpsertSink extends UpsertStreamTableSink[Row] {
+
+    private var fieldNames: Array[String] = _
+    private var fieldTypes: Array[TypeInformation[_]] = _
+
+    override def setKeyFields(keys: Array[String]): Unit = {
+      keyFields = keys
+    }
+
+    override def getRecordType: TypeInformation[Row] = new RowTypeInfo(fieldTypes)
+
+    override def getOutputType: TypeInformation[JTuple2[JBoolean, Row]] =
+      new TupleTypeInfo[JTuple2[JBoolean, Row]](BasicTypeInfo.BOOLEAN_TYPE_INFO, getRecordType)
+
+    override def getFieldNames: Array[String] = fieldNames
+
+    override def getFieldTypes: Array[TypeInformation[_]] = fieldTypes
+
+    override def configure(
+        fieldNames: Array[String],
+        fieldTypes: Array[TypeInformation[_]]): TableSink[JTuple2[JBoolean, Row]] = {
+      val copy = new TestUpsertSink
+      copy.fieldNames = fieldNames
+      copy.fieldTypes = fieldTypes
+      copy
+    }
+
+    override def emitDataStream(dataStream: DataStream[JTuple2[JBoolean, Row]]): Unit = {
+      dataStream.addSink(new RichSinkFunction[JTuple2[JBoolean, Row]] {
+        override def invoke(value: JTuple2[JBoolean, Row]): Unit = {
+          val key = value.f1.productElement(1).toString
+          upserts.synchronized {
+            if (value.f0) {
+              upserts.put(key, value.f1.toString)
+            } else {
+              upserts.remove(key)
+            }
+          }
+        }
+      })
+    }
+  }
+}
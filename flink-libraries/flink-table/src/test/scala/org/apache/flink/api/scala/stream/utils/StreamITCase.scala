@@ -30,8 +30,11 @@ object StreamITCase {
 
   var testResults = mutable.MutableList.empty[String]
 
+  var retractedResults = mutable.ArrayBuffer.empty[String]
+
   def clear = {
     StreamITCase.testResults.clear()
+    StreamITCase.retractedResults.clear()
   }
 
   def compareWithList(expected: java.util.List[String]): Unit = {
@@ -46,4 +49,22 @@ object StreamITCase {
       }
     }
   }
+
+  /**
+    * Collects all change messages in testResults and applies them to retractedResults.
+    */
+  final class RetractingSink extends RichSinkFunction[(Boolean, Row)]() {
+    def invoke(value: (Boolean, Row)) {
+      testResults.synchronized {
+        testResults += value.toString
+        if (value._1) {
+          retractedResults += value._2.toString
+        } else {
+          val index = retractedResults.indexOf(value._2.toString)
+          assertTrue(s"Retracted record ${value._2} was not emitted before.", index >= 0)
+          retractedResults.remove(index)
+        }
+      }
+    }
+  }
 }
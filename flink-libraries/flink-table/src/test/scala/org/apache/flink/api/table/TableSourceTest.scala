@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.api.table
+
+import org.apache.flink.api.common.typeinfo.{BasicTypeInfo, TypeInformation}
+import org.apache.flink.api.scala.batch.TestFilterableTableSource
+import org.apache.flink.api.scala.table._
+import org.apache.flink.api.table.sources.CsvTableSource
+import org.apache.flink.api.table.utils.TableTestBase
+import org.apache.flink.api.table.utils.TableTestUtil._
+import org.junit.Test
+
+class TableSourceTest extends TableTestBase {
+
+  private val fieldNames = Array("first", "id", "score", "last")
+  private val fieldTypes: Array[TypeInformation[_]] = Array(
+    BasicTypeInfo.STRING_TYPE_INFO,
+    BasicTypeInfo.INT_TYPE_INFO,
+    BasicTypeInfo.DOUBLE_TYPE_INFO,
+    BasicTypeInfo.STRING_TYPE_INFO
+  )
+  private val csvTable = new CsvTableSource("/tmp/csv", fieldNames, fieldTypes)
+
+  @Test
+  def testBatchProjectableSourceScan(): Unit = {
+    val util = batchTestUtil()
+    util.tEnv.registerTableSource("csvTable", csvTable)
+
+    val result = util.tEnv
+      .scan("csvTable")
+      .select('last, 'id)
+
+    val expected = unaryNode(
+      "DataSetCalc",
+      "BatchTableSourceScan(table=[[csvTable]], fields=[id, last])",
+      term("select", "last", "id")
+    )
+    util.verifyTable(result, expected)
+  }
+
+  @Test
+  def testBatchProjectableSourceScanWithoutCalc(): Unit = {
+    val util = batchTestUtil()
+    util.tEnv.registerTableSource("csvTable", csvTable)
+
+    val result = util.tEnv
+      .scan("csvTable")
+      .select('id, 'last)
+
+    val expected = "BatchTableSourceScan(table=[[csvTable]], fields=[id, last])"
+    util.verifyTable(result, expected)
+  }
+
+  @Test
+  def testBatchFilterableSourceScan(): Unit = {
+    val util = batchTestUtil()
+    util.tEnv.registerTableSource("MyTable", new TestFilterableTableSource())
+
+    val result = util.tEnv
+      .scan("MyTable")
+      .where('amount < 4 && 'id > 16)
+      .select('name, 'id)
+
+    val expected = unaryNode(
+      "DataSetCalc",
+      "BatchTableSourceScan(table=[[MyTable]], fields=[name, id, amount], " +
+        "filter=['amount < 4 && 'id > 16])",
+      term("select", "name", "id"),
+      term("where", ">(id, 16)")
+    )
+    util.verifyTable(result, expected)
+  }
+
+  @Test
+  def testStreamProjectableSourceScan(): Unit = {
+    val util = streamTestUtil()
+    util.tEnv.registerTableSource("csvTable", csvTable)
+
+    val result = util.tEnv
+      .scan("csvTable")
+      .where('score < 10)
+      .select('last, 'id)
+
+    val expected = unaryNode(
+      "DataStreamCalc",
+      "StreamTableSourceScan(table=[[csvTable]], fields=[id, score, last])",
+      term("select", "last", "id"),
+      term("where", "<(score, 10)")
+    )
+    util.verifyTable(result, expected)
+  }
+}
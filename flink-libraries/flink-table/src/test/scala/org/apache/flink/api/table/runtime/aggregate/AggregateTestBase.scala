@@ -20,8 +20,10 @@ package org.apache.flink.api.table.runtime.aggregate
 
 import java.math.BigDecimal
 import org.apache.flink.api.table.Row
+import org.apache.flink.api.table.codegen.AggregationCodeGenerator
+import org.apache.flink.api.table.runtime.FunctionCompiler
 import org.junit.Test
-import org.junit.Assert.assertEquals
+import org.junit.Assert.{assertEquals, assertTrue}
 
 abstract class AggregateTestBase[T] {
 
@@ -64,13 +66,66 @@ abstract class AggregateTestBase[T] {
         finalAgg(rows)
       }
 
-      (expected, result) match {
-        case (e: BigDecimal, r: BigDecimal) =>
-          // BigDecimal.equals() value and scale but we are only interested in value.
-          assert(e.compareTo(r) == 0)
-        case _ =>
-          assertEquals(expected, result)
+      assertResult(expected, result)
+    }
+  }
+
+  @Test
+  def testGeneratedAggregate(): Unit = {
+
+    // the input Rows hold the aggregated value after the group keys
+    val generated = AggregationCodeGenerator.generateAggregations(
+      "TestAggregations",
+      Array(createAggregator()),
+      Array(offset),
+      (0 until offset).toArray,
+      Array(),
+      Array((0, 0)))
+    assertTrue("Code is not generated for the aggregate.", generated.isDefined)
+
+    val compiler = new FunctionCompiler[GeneratedAggregations] {}
+    val aggregations = compiler
+      .compile(getClass.getClassLoader, generated.get.name, generated.get.code)
+      .newInstance()
+
+    // iterate over input sets
+    for((vals, expected) <- inputValueSets.zip(expectedResults)) {
+
+      // prepare mapper
+      val rows: Seq[Row] = vals.map { v =>
+        val input = new Row(offset + 1)
+        input.setField(offset, v)
+        val row = createRow()
+        aggregations.prepare(input, row)
+        row
+      }
+
+      // combine both halves and merge the combined Rows
+      val (firstVals, secondVals) = rows.splitAt(rows.length / 2)
+      val combined = Seq(firstVals, secondVals).map { partialRows =>
+        aggregations.resetAccumulators()
+        partialRows.foreach(aggregations.accumulate)
+        val row = createRow()
+        aggregations.setAccumulators(row)
+        row
       }
+
+      aggregations.resetAccumulators()
+      combined.foreach(aggregations.accumulate)
+      val output = new Row(1)
+      aggregations.setAggregationResults(output)
+
+      assertResult(expected, output.productElement(0))
+    }
+  }
+
+  private def assertResult(expected: Any, result: Any): Unit = {
+    (expected, result) match {
+      case (e: BigDecimal, r: BigDecimal) =>
+        // BigDecimal.equals() value and scale but we are only interested in value.
+        assert(e.compareTo(r) == 0)
+      case _ =>
+        assertEquals(expected, result)
     }
   }
 
@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.api.table.runtime.io
+
+import java.io.{File, IOException, RandomAccessFile}
+import java.math.{BigDecimal => JBigDecimal}
+import java.sql.{Date, Time, Timestamp}
+
+import org.apache.flink.api.common.typeinfo.{BasicTypeInfo, SqlTimeTypeInfo, TypeInformation}
+import org.apache.flink.api.table.Row
+import org.apache.flink.api.table.runtime.io.ColumnType.{DoubleColumn, IntColumn, StringColumn}
+import org.apache.flink.api.table.runtime.io.MinMaxPredicate.{Equal, GreaterOrEqual, Less}
+import org.apache.flink.api.table.typeutils.RowTypeInfo
+import org.apache.flink.configuration.Configuration
+import org.apache.flink.core.fs.FileSystem.WriteMode
+import org.apache.flink.core.fs.Path
+import org.junit.Assert._
+import org.junit.Test
+
+import scala.collection.mutable.ArrayBuffer
+
+class RowColumnarInputFormatTest {
+
+  private val rowType = new RowTypeInfo(Seq(
+    BasicTypeInfo.INT_TYPE_INFO,
+    BasicTypeInfo.STRING_TYPE_INFO,
+    BasicTypeInfo.DOUBLE_TYPE_INFO))
+
+  // 25 rows in row groups of 10 rows
+  private val rows = (0 until 25).map { i =>
+    val row = new Row(3)
+    row.setField(0, i)
+    row.setField(1, if (i % 4 == 0) null else s"Name_$i")
+    row.setField(2, i * 0.5)
+    row
+  }
+
+  @Test
+  def testReadAllFields(): Unit = {
+    val path = writeFile(rows)
+    val format = new RowColumnarInputFormat(path, rowType)
+
+    val splits = format.createInputSplits(1)
+    assertEquals(3, splits.length)
+    assertEquals(rows.map(_.toString), readAll(format).map(_.toString))
+  }
+
+  @Test
+  def testReadSelectedFields(): Unit = {
+    val path = writeFile(rows)
+    val format = new RowColumnarInputFormat(path, rowType, Array(2, 1))
+
+    val expected = rows.map(r => s"${r.productElement(2)},${r.productElement(1)}")
+    assertEquals(expected, readAll(format).map(_.toString))
+  }
+
+  @Test
+  def testSkipRowGroups(): Unit = {
+    val path = writeFile(rows)
+
+    val lessFormat = new RowColumnarInputFormat(
+      path, rowType, Array(0), Array(MinMaxPredicate(0, Less, 5)))
+    assertEquals(1, lessFormat.createInputSplits(1).length)
+    assertEquals((0 until 10).map(_.toString), readAll(lessFormat).map(_.toString))
+
+    val greaterFormat = new RowColumnarInputFormat(
+      path, rowType, Array(0), Array(MinMaxPredicate(0, GreaterOrEqual, 20L)))
+    assertEquals((20 until 25).map(_.toString), readAll(greaterFormat).map(_.toString))
+
+    // strings are compared lexicographically, "Name_20" is in the range of the first row group
+    val equalFormat = new RowColumnarInputFormat(
+      path, rowType, Array(0), Array(MinMaxPredicate(1, Equal, "Name_20")))
+    assertEquals((0 until 10).map(_.toString), readAll(equalFormat).map(_.toString))
+
+    val noMatchFormat = new RowColumnarInputFormat(
+      path, rowType, Array(0), Array(MinMaxPredicate(2, Less, -1.0)))
+    assertEquals(0, noMatchFormat.createInputSplits(1).length)
+  }
+
+  @Test
+  def testReadDirectory(): Unit = {
+    val dir = File.createTempFile("columnar-test", "")
+    dir.delete()
+    dir.mkdir()
+    dir.deleteOnExit()
+    writeFile(rows.take(15), new Path(dir.getAbsolutePath, "1"))
+    writeFile(rows.drop(15), new Path(dir.getAbsolutePath, "2"))
+
+    val format = new RowColumnarInputFormat(new Path(dir.getAbsolutePath), rowType)
+    assertEquals(3, format.createInputSplits(1).length)
+    assertEquals(rows.map(_.toString), readAll(format).map(_.toString))
+  }
+
+  @Test
+  def testSchema(): Unit = {
+    val path = writeFile(rows)
+    val file = new File(path.toUri.getPath)
+    val (schema, rowGroups) =
+      ColumnarFileFormat.readMetadata(path.getFileSystem, path, file.length())
+
+    assertEquals(Seq("f0", "f1", "f2"), schema.fieldNames.toSeq)
+    assertEquals(Seq(IntColumn, StringColumn, DoubleColumn), schema.columnTypes.toSeq)
+    assertEquals(Seq(10, 10, 5), rowGroups.map(_.rowCount).toSeq)
+  }
+
+  @Test(expected = classOf[IOException])
+  def testRejectOtherSchema(): Unit = {
+    val path = writeFile(rows)
+    val otherType = new RowTypeInfo(Seq(
+      BasicTypeInfo.LONG_TYPE_INFO,
+      BasicTypeInfo.STRING_TYPE_INFO,
+      BasicTypeInfo.DOUBLE_TYPE_INFO))
+
+    new RowColumnarInputFormat(path, otherType).createInputSplits(1)
+  }
+
+  @Test
+  def testRejectOtherVersion(): Unit = {
+    val path = writeFile(rows)
+    val file = new RandomAccessFile(new File(path.toUri.getPath), "rw")
+    try {
+      file.seek(4)
+      file.writeInt(ColumnarFileFormat.VERSION + 1)
+    } finally {
+      file.close()
+    }
+
+    try {
+      new RowColumnarInputFormat(path, rowType).createInputSplits(1)
+      fail("A file of another version should be rejected.")
+    } catch {
+      case e: IOException => assertTrue(e.getMessage.contains("version"))
+    }
+  }
+
+  @Test
+  def testAllColumnTypes(): Unit = {
+    val fieldTypes: Seq[TypeInformation[_]] = Seq(
+      BasicTypeInfo.BOOLEAN_TYPE_INFO,
+      BasicTypeInfo.BYTE_TYPE_INFO,
+      BasicTypeInfo.SHORT_TYPE_INFO,
+      BasicTypeInfo.INT_TYPE_INFO,
+      BasicTypeInfo.LONG_TYPE_INFO,
+      BasicTypeInfo.FLOAT_TYPE_INFO,
+      BasicTypeInfo.DOUBLE_TYPE_INFO,
+      BasicTypeInfo.CHAR_TYPE_INFO,
+      BasicTypeInfo.STRING_TYPE_INFO,
+      BasicTypeInfo.BIG_DEC_TYPE_INFO,
+      SqlTimeTypeInfo.DATE,
+      SqlTimeTypeInfo.TIME,
+      SqlTimeTypeInfo.TIMESTAMP)
+    val allTypes = new RowTypeInfo(fieldTypes)
+
+    val timestamp = new Timestamp(1234567890123L)
+    timestamp.setNanos(123456789)
+    val values: Seq[Any] = Seq(
+      true, 1.toByte, 2.toShort, 3, 4L, 5.5f, 6.5, 'c', "Grüße", new JBigDecimal("-12.345"),
+      new Date(1234567890000L), new Time(45296000L), timestamp)
+
+    val row = new Row(values.length)
+    values.zipWithIndex.foreach { case (v, i) => row.setField(i, v) }
+    val nullRow = new Row(values.length)
+
+    val file = File.createTempFile("columnar-test", "tmp")
+    file.deleteOnExit()
+    val path = new Path(file.getAbsolutePath)
+    val outputFormat = new RowColumnarOutputFormat(path, allTypes, 10)
+    outputFormat.setWriteMode(WriteMode.OVERWRITE)
+    outputFormat.configure(new Configuration)
+    outputFormat.open(0, 1)
+    outputFormat.writeRecord(row)
+    outputFormat.writeRecord(nullRow)
+    outputFormat.close()
+
+    val result = readAll(new RowColumnarInputFormat(path, allTypes))
+    assertEquals(Seq(row.toString, nullRow.toString), result.map(_.toString))
+    assertEquals(timestamp, result.head.productElement(12))
+  }
+
+  @Test(expected = classOf[IllegalArgumentException])
+  def testUnsupportedType(): Unit = {
+    new RowColumnarOutputFormat(
+      new Path("/tmp/columnar-test"),
+      new RowTypeInfo(Seq(BasicTypeInfo.DATE_TYPE_INFO)))
+  }
+
+  private def writeFile(rows: Seq[Row]): Path = {
+    val file = File.createTempFile("columnar-test", "tmp")
+    file.deleteOnExit()
+    val path = new Path(file.getAbsolutePath)
+    writeFile(rows, path)
+    path
+  }
+
+  private def writeFile(rows: Seq[Row], path: Path): Unit = {
+    val format = new RowColumnarOutputFormat(path, rowType, 10)
+    format.setWriteMode(WriteMode.OVERWRITE)
+    format.configure(new Configuration)
+    format.open(0, 1)
+    rows.foreach(format.writeRecord)
+    format.close()
+  }
+
+  private def readAll(format: RowColumnarInputFormat): Seq[Row] = {
+    format.configure(new Configuration)
+    val result = ArrayBuffer[Row]()
+    format.createInputSplits(1).foreach { split =>
+      format.open(split)
+      while (!format.reachedEnd()) {
+        result += format.nextRecord(null)
+      }
+      format.close()
+    }
+    result
+  }
+}
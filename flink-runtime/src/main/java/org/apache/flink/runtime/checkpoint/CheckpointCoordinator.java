@@ -36,6 +36,7 @@ import org.apache.flink.runtime.messages.checkpoint.AcknowledgeCheckpoint;
 import org.apache.flink.runtime.messages.checkpoint.DeclineCheckpoint;
 import org.apache.flink.runtime.messages.checkpoint.NotifyCheckpointComplete;
 import org.apache.flink.runtime.messages.checkpoint.TriggerCheckpoint;
+import org.apache.flink.runtime.state.SharedStateRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -96,6 +97,11 @@ public class CheckpointCoordinator {
 	 * accessing this don't block the job manager actor and run asynchronously. */
 	private final CompletedCheckpointStore completedCheckpointStore;
 
+	/** Counts the references of pending and completed checkpoints to state that is shared
+	 * between checkpoints, such as the files of incremental snapshots. Replaced when the state
+	 * is restored */
+	private SharedStateRegistry sharedStateRegistry;
+
 	/** Default directory for persistent checkpoints; <code>null</code> if none configured. */
 	private final String checkpointDirectory;
 
@@ -196,6 +202,7 @@ public class CheckpointCoordinator {
 		this.pendingCheckpoints = new LinkedHashMap<>();
 		this.checkpointIdCounter = checkNotNull(checkpointIDCounter);
 		this.completedCheckpointStore = checkNotNull(completedCheckpointStore);
+		this.sharedStateRegistry = new SharedStateRegistry();
 		this.checkpointDirectory = checkpointDirectory;
 		this.recentPendingCheckpoints = new ArrayDeque<>(NUM_GHOST_CHECKPOINT_IDS);
 		this.statsTracker = checkNotNull(statsTracker);
@@ -566,7 +573,8 @@ public class CheckpointCoordinator {
 				isPendingCheckpoint = true;
 
 				LOG.info("Discarding checkpoint " + checkpointId
-						+ " because of checkpoint decline from task " + message.getTaskExecutionId());
+						+ " because of checkpoint decline from task " + message.getTaskExecutionId()
+						+ (message.getReason() != null ? ": " + message.getReason().message() : ""));
 
 				pendingCheckpoints.remove(checkpointId);
 				checkpoint.abortDeclined();
@@ -630,6 +638,10 @@ public class CheckpointCoordinator {
 		CompletedCheckpoint completed = null;
 		PendingCheckpoint checkpoint;
 
+		// The state of a message that no pending checkpoint accepts. It is not registered and
+		// nobody else discards it.
+		SubtaskState lateState = null;
+
 		// Flag indicating whether the ack message was for a known pending
 		// checkpoint.
 		boolean isPendingCheckpoint;
@@ -649,6 +661,12 @@ public class CheckpointCoordinator {
 				if (checkpoint.acknowledgeTask(
 						message.getTaskExecutionId(),
 						message.getSubtaskState())) {
+
+					// from now on, discarding the state releases its references to shared state
+					if (message.getSubtaskState() != null) {
+						message.getSubtaskState().registerSharedState(sharedStateRegistry);
+					}
+
 					if (checkpoint.isFullyAcknowledged()) {
 						completed = checkpoint.finalizeCheckpoint();
 
@@ -693,6 +711,17 @@ public class CheckpointCoordinator {
 				else {
 					isPendingCheckpoint = false;
 				}
+
+				lateState = message.getSubtaskState();
+			}
+		}
+
+		// discard the state of the late message outside the lock scope
+		if (lateState != null) {
+			try {
+				lateState.discardState();
+			} catch (Throwable t) {
+				LOG.warn("Could not discard the state of the late message for checkpoint " + checkpointId, t);
 			}
 		}
 
@@ -779,6 +808,15 @@ public class CheckpointCoordinator {
 			// Recover the checkpoints
 			completedCheckpointStore.recover();
 
+			// the recovered checkpoints reference shared state that must not be discarded. They may
+			// be copies of checkpoints that were registered when they were acknowledged, so the
+			// references are counted in a new registry to not count them twice
+			sharedStateRegistry = new SharedStateRegistry();
+
+			for (CompletedCheckpoint completedCheckpoint : completedCheckpointStore.getAllCheckpoints()) {
+				completedCheckpoint.registerSharedState(sharedStateRegistry);
+			}
+
 			// restore from the latest checkpoint
 			CompletedCheckpoint latest = completedCheckpointStore.getLatestCheckpoint();
 
@@ -831,6 +869,12 @@ public class CheckpointCoordinator {
 		return completedCheckpointStore;
 	}
 
+	public SharedStateRegistry getSharedStateRegistry() {
+		synchronized (lock) {
+			return sharedStateRegistry;
+		}
+	}
+
 	public CheckpointIDCounter getCheckpointIdCounter() {
 		return checkpointIdCounter;
 	}
@@ -36,7 +36,13 @@ public enum CheckpointDeclineReason {
 
 	NOT_ALL_REQUIRED_TASKS_RUNNING("Not all required tasks are currently running."),
 
-	EXCEPTION("An Exception occurred while triggering the checkpoint.");
+	EXCEPTION("An Exception occurred while triggering the checkpoint."),
+
+	TASK_NOT_READY("The task is not ready to take a checkpoint."),
+
+	ALIGNMENT_LIMIT_EXCEEDED("The checkpoint alignment of a task buffered more data than the configured maximum."),
+
+	CANCELLED_BY_UPSTREAM_TASK("An upstream task cancelled the checkpoint alignment.");
 
 	// ------------------------------------------------------------------------
 
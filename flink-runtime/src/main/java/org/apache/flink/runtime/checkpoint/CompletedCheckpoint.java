@@ -22,6 +22,7 @@ import org.apache.flink.api.common.JobID;
 import org.apache.flink.runtime.checkpoint.savepoint.SavepointStore;
 import org.apache.flink.runtime.jobgraph.JobStatus;
 import org.apache.flink.runtime.jobgraph.JobVertexID;
+import org.apache.flink.runtime.state.SharedStateRegistry;
 import org.apache.flink.runtime.state.StateUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -154,6 +155,20 @@ public class CompletedCheckpoint implements Serializable {
 		}
 	}
 
+	/**
+	 * Registers the shared state of all task states of this checkpoint in the given registry, so
+	 * that it is retained as long as this checkpoint is. Shared state that is already registered
+	 * in the registry is not registered again, shared state that is registered in another
+	 * registry is moved to the given registry.
+	 *
+	 * @param registry The registry that counts the references to shared state.
+	 */
+	public void registerSharedState(SharedStateRegistry registry) {
+		for (TaskState taskState : taskStates.values()) {
+			taskState.registerSharedState(registry);
+		}
+	}
+
 	public long getStateSize() throws IOException {
 		long result = 0L;
 
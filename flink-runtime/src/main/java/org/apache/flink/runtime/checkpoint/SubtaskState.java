@@ -19,8 +19,10 @@
 package org.apache.flink.runtime.checkpoint;
 
 import org.apache.flink.runtime.state.ChainedStateHandle;
+import org.apache.flink.runtime.state.IncrementalKeyGroupsStateHandle;
 import org.apache.flink.runtime.state.KeyGroupsStateHandle;
 import org.apache.flink.runtime.state.OperatorStateHandle;
+import org.apache.flink.runtime.state.SharedStateRegistry;
 import org.apache.flink.runtime.state.StateObject;
 import org.apache.flink.runtime.state.StateUtil;
 import org.apache.flink.runtime.state.StreamStateHandle;
@@ -166,6 +168,22 @@ public class SubtaskState implements StateObject {
 		this.duration = duration;
 	}
 
+	/**
+	 * Registers the shared state of all incremental keyed state snapshots in this subtask state.
+	 *
+	 * @param registry The registry that counts the references to shared state.
+	 */
+	public void registerSharedState(SharedStateRegistry registry) {
+		registerSharedStateNullSafe(managedKeyedState, registry);
+		registerSharedStateNullSafe(rawKeyedState, registry);
+	}
+
+	private static void registerSharedStateNullSafe(KeyGroupsStateHandle stateHandle, SharedStateRegistry registry) {
+		if (stateHandle instanceof IncrementalKeyGroupsStateHandle) {
+			((IncrementalKeyGroupsStateHandle) stateHandle).registerSharedState(registry);
+		}
+	}
+
 	// --------------------------------------------------------------------------------------------
 
 
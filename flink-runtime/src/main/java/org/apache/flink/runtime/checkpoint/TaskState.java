@@ -19,6 +19,7 @@
 package org.apache.flink.runtime.checkpoint;
 
 import org.apache.flink.runtime.jobgraph.JobVertexID;
+import org.apache.flink.runtime.state.SharedStateRegistry;
 import org.apache.flink.runtime.state.StateObject;
 import org.apache.flink.runtime.state.StateUtil;
 import org.apache.flink.util.Preconditions;
@@ -123,6 +124,19 @@ public class TaskState implements StateObject {
 		return false;
 	}
 
+	/**
+	 * Registers the shared state of all subtask states in the given registry.
+	 *
+	 * @param registry The registry that counts the references to shared state.
+	 */
+	public void registerSharedState(SharedStateRegistry registry) {
+		for (SubtaskState subtaskState : subtaskStates.values()) {
+			if (subtaskState != null) {
+				subtaskState.registerSharedState(registry);
+			}
+		}
+	}
+
 	@Override
 	public void discardState() throws Exception {
 		StateUtil.bestEffortDiscardAllStateObjects(subtaskStates.values());
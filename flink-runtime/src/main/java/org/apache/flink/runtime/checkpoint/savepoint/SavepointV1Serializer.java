@@ -23,6 +23,7 @@ import org.apache.flink.runtime.checkpoint.SubtaskState;
 import org.apache.flink.runtime.checkpoint.TaskState;
 import org.apache.flink.runtime.jobgraph.JobVertexID;
 import org.apache.flink.runtime.state.ChainedStateHandle;
+import org.apache.flink.runtime.state.IncrementalKeyGroupsStateHandle;
 import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
 import org.apache.flink.runtime.state.KeyGroupsStateHandle;
@@ -54,6 +55,7 @@ class SavepointV1Serializer implements SavepointSerializer<SavepointV1> {
 	private static final byte FILE_STREAM_STATE_HANDLE = 2;
 	private static final byte KEY_GROUPS_HANDLE = 3;
 	private static final byte PARTITIONABLE_OPERATOR_STATE_HANDLE = 4;
+	private static final byte INCREMENTAL_KEY_GROUPS_HANDLE = 5;
 
 
 	public static final SavepointV1Serializer INSTANCE = new SavepointV1Serializer();
@@ -214,7 +216,16 @@ class SavepointV1Serializer implements SavepointSerializer<SavepointV1> {
 	public static void serializeKeyGroupStateHandle(
 			KeyGroupsStateHandle stateHandle, DataOutputStream dos) throws IOException {
 
-		if (stateHandle != null) {
+		if (stateHandle instanceof IncrementalKeyGroupsStateHandle) {
+			IncrementalKeyGroupsStateHandle incrementalStateHandle = (IncrementalKeyGroupsStateHandle) stateHandle;
+			dos.writeByte(INCREMENTAL_KEY_GROUPS_HANDLE);
+			dos.writeInt(incrementalStateHandle.getKeyGroupRange().getStartKeyGroup());
+			dos.writeInt(incrementalStateHandle.getNumberOfKeyGroups());
+			dos.writeLong(incrementalStateHandle.getCheckpointId());
+			serializeStreamStateHandle(incrementalStateHandle.getMetaStateHandle(), dos);
+			serializeStreamStateHandleMap(incrementalStateHandle.getSharedState(), dos);
+			serializeStreamStateHandleMap(incrementalStateHandle.getPrivateState(), dos);
+		} else if (stateHandle != null) {
 			dos.writeByte(KEY_GROUPS_HANDLE);
 			dos.writeInt(stateHandle.getGroupRangeOffsets().getKeyGroupRange().getStartKeyGroup());
 			dos.writeInt(stateHandle.getNumberOfKeyGroups());
@@ -242,11 +253,43 @@ class SavepointV1Serializer implements SavepointSerializer<SavepointV1> {
 			KeyGroupRangeOffsets keyGroupRangeOffsets = new KeyGroupRangeOffsets(keyGroupRange, offsets);
 			StreamStateHandle stateHandle = deserializeStreamStateHandle(dis);
 			return new KeyGroupsStateHandle(keyGroupRangeOffsets, stateHandle);
+		} else if (INCREMENTAL_KEY_GROUPS_HANDLE == type) {
+			int startKeyGroup = dis.readInt();
+			int numKeyGroups = dis.readInt();
+			KeyGroupRange keyGroupRange = KeyGroupRange.of(startKeyGroup, startKeyGroup + numKeyGroups - 1);
+			long checkpointId = dis.readLong();
+			StreamStateHandle metaStateHandle = deserializeStreamStateHandle(dis);
+			Map<String, StreamStateHandle> sharedState = deserializeStreamStateHandleMap(dis);
+			Map<String, StreamStateHandle> privateState = deserializeStreamStateHandleMap(dis);
+			return new IncrementalKeyGroupsStateHandle(
+					keyGroupRange, checkpointId, metaStateHandle, sharedState, privateState);
 		} else {
 			throw new IllegalStateException("Reading invalid KeyGroupsStateHandle, type: " + type);
 		}
 	}
 
+	private static void serializeStreamStateHandleMap(
+			Map<String, StreamStateHandle> map, DataOutputStream dos) throws IOException {
+
+		dos.writeInt(map.size());
+		for (Map.Entry<String, StreamStateHandle> entry : map.entrySet()) {
+			dos.writeUTF(entry.getKey());
+			serializeStreamStateHandle(entry.getValue(), dos);
+		}
+	}
+
+	private static Map<String, StreamStateHandle> deserializeStreamStateHandleMap(
+			DataInputStream dis) throws IOException {
+
+		int mapSize = dis.readInt();
+		Map<String, StreamStateHandle> map = new HashMap<>(mapSize);
+		for (int i = 0; i < mapSize; ++i) {
+			String key = dis.readUTF();
+			map.put(key, deserializeStreamStateHandle(dis));
+		}
+		return map;
+	}
+
 	public static void serializeOperatorStateHandle(
 			OperatorStateHandle stateHandle, DataOutputStream dos) throws IOException {
 
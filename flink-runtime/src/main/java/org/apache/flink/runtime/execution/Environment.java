@@ -25,6 +25,7 @@ import org.apache.flink.configuration.Configuration;
 import org.apache.flink.core.fs.Path;
 import org.apache.flink.runtime.accumulators.AccumulatorRegistry;
 import org.apache.flink.runtime.broadcast.BroadcastVariableManager;
+import org.apache.flink.runtime.checkpoint.CheckpointDeclineReason;
 import org.apache.flink.runtime.checkpoint.CheckpointMetaData;
 import org.apache.flink.runtime.checkpoint.SubtaskState;
 import org.apache.flink.runtime.executiongraph.ExecutionAttemptID;
@@ -178,6 +179,15 @@ public interface Environment {
 			CheckpointMetaData checkpointMetaData,
 			SubtaskState subtaskState);
 
+	/**
+	 * Declines the checkpoint with the given checkpoint-ID, because the invokable cannot
+	 * take it. The checkpoint coordinator aborts the checkpoint.
+	 *
+	 * @param checkpointMetaData the meta data for this checkpoint
+	 * @param reason the reason why the checkpoint is declined
+	 */
+	void declineCheckpoint(CheckpointMetaData checkpointMetaData, CheckpointDeclineReason reason);
+
 	/**
 	 * Marks task execution failed for an external reason (a reason other than the task code itself
 	 * throwing an exception). If the task is already in a terminal state
@@ -41,6 +41,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 
+import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
 
 /**
@@ -73,6 +74,12 @@ public class NetworkEnvironment {
 
 	private final int partitionRequestMaxBackoff;
 
+	/** Number of exclusive network buffers of each remote input channel. */
+	private final int networkBuffersPerChannel;
+
+	/** Number of floating network buffers of each input gate. */
+	private final int floatingNetworkBuffersPerGate;
+
 	private boolean isShutdown;
 
 	public NetworkEnvironment(
@@ -84,7 +91,9 @@ public class NetworkEnvironment {
 		KvStateServer kvStateServer,
 		IOMode defaultIOMode,
 		int partitionRequestInitialBackoff,
-		int partitionRequestMaxBackoff) {
+		int partitionRequestMaxBackoff,
+		int networkBuffersPerChannel,
+		int floatingNetworkBuffersPerGate) {
 
 		this.networkBufferPool = checkNotNull(networkBufferPool);
 		this.connectionManager = checkNotNull(connectionManager);
@@ -99,6 +108,11 @@ public class NetworkEnvironment {
 		this.partitionRequestInitialBackoff = partitionRequestInitialBackoff;
 		this.partitionRequestMaxBackoff = partitionRequestMaxBackoff;
 
+		checkArgument(networkBuffersPerChannel >= 1, "Remote input channels require at least one exclusive buffer.");
+		checkArgument(floatingNetworkBuffersPerGate >= 1, "Input gates require at least one floating buffer.");
+		this.networkBuffersPerChannel = networkBuffersPerChannel;
+		this.floatingNetworkBuffersPerGate = floatingNetworkBuffersPerGate;
+
 		isShutdown = false;
 	}
 
@@ -134,6 +148,14 @@ public class NetworkEnvironment {
 		return partitionRequestMaxBackoff;
 	}
 
+	public int getNetworkBuffersPerChannel() {
+		return networkBuffersPerChannel;
+	}
+
+	public int getFloatingNetworkBuffersPerGate() {
+		return floatingNetworkBuffersPerGate;
+	}
+
 	public KvStateRegistry getKvStateRegistry() {
 		return kvStateRegistry;
 	}
@@ -200,8 +222,11 @@ public class NetworkEnvironment {
 				BufferPool bufferPool = null;
 
 				try {
-					bufferPool = networkBufferPool.createBufferPool(gate.getNumberOfInputChannels(), false);
+					// Remote channels receive into their exclusive buffers and share the
+					// floating buffers of the gate's pool for the backlog of the producers.
+					bufferPool = networkBufferPool.createBufferPool(floatingNetworkBuffersPerGate, false);
 					gate.setBufferPool(bufferPool);
+					gate.assignExclusiveSegments(networkBufferPool, networkBuffersPerChannel);
 				} catch (Throwable t) {
 					if (bufferPool != null) {
 						bufferPool.lazyDestroy();
@@ -21,6 +21,7 @@ package org.apache.flink.runtime.io.network.api.serialization;
 import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.core.memory.MemorySegmentFactory;
 import org.apache.flink.runtime.event.AbstractEvent;
+import org.apache.flink.runtime.io.network.api.CancelCheckpointMarker;
 import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
 import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
 import org.apache.flink.runtime.io.network.api.EndOfSuperstepEvent;
@@ -46,6 +47,8 @@ public class EventSerializer {
 	private static final int END_OF_SUPERSTEP_EVENT = 2;
 
 	private static final int OTHER_EVENT = 3;
+
+	private static final int CANCEL_CHECKPOINT_MARKER_EVENT = 4;
 	
 	// ------------------------------------------------------------------------
 	
@@ -66,6 +69,14 @@ public class EventSerializer {
 		else if (eventClass == EndOfSuperstepEvent.class) {
 			return ByteBuffer.wrap(new byte[] { 0, 0, 0, END_OF_SUPERSTEP_EVENT });
 		}
+		else if (eventClass == CancelCheckpointMarker.class) {
+			CancelCheckpointMarker marker = (CancelCheckpointMarker) event;
+
+			ByteBuffer buf = ByteBuffer.allocate(12);
+			buf.putInt(0, CANCEL_CHECKPOINT_MARKER_EVENT);
+			buf.putLong(4, marker.getCheckpointId());
+			return buf;
+		}
 		else {
 			try {
 				final DataOutputSerializer serializer = new DataOutputSerializer(128);
@@ -103,6 +114,10 @@ public class EventSerializer {
 			else if (type == END_OF_SUPERSTEP_EVENT) {
 				return EndOfSuperstepEvent.INSTANCE;
 			}
+			else if (type == CANCEL_CHECKPOINT_MARKER_EVENT) {
+				long id = buffer.getLong();
+				return new CancelCheckpointMarker(id);
+			}
 			else if (type == OTHER_EVENT) {
 				try {
 					final DataInputDeserializer deserializer = new DataInputDeserializer(buffer);
@@ -27,11 +27,15 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.Queue;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
+import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
 
 /**
@@ -50,7 +54,7 @@ public class NetworkBufferPool implements BufferPoolFactory {
 
 	private final int memorySegmentSize;
 
-	private final Queue<MemorySegment> availableMemorySegments;
+	private final BlockingQueue<MemorySegment> availableMemorySegments;
 
 	private volatile boolean isDestroyed;
 
@@ -132,6 +136,74 @@ public class NetworkBufferPool implements BufferPoolFactory {
 		availableMemorySegments.add(segment);
 	}
 
+	/**
+	 * Requests the given number of memory segments, which are exclusively owned by the caller
+	 * until they are returned via {@link #recycleMemorySegments(List)}. The segments count as
+	 * required buffers, like the required buffers of the local buffer pools.
+	 *
+	 * <p> The segments might still be in use by other buffer pools after the redistribution of
+	 * the buffers. In this case, the call blocks until the other pools have returned them.
+	 */
+	public List<MemorySegment> requestMemorySegments(int numRequiredBuffers) throws IOException {
+		checkArgument(numRequiredBuffers > 0, "The number of required buffers should be larger than 0.");
+
+		synchronized (factoryLock) {
+			if (isDestroyed) {
+				throw new IllegalStateException("Network buffer pool has already been destroyed.");
+			}
+
+			checkNumberOfRequiredBuffers(numRequiredBuffers);
+
+			this.numTotalRequiredBuffers += numRequiredBuffers;
+
+			redistributeBuffers();
+		}
+
+		final List<MemorySegment> segments = new ArrayList<MemorySegment>(numRequiredBuffers);
+
+		try {
+			while (segments.size() < numRequiredBuffers) {
+				if (isDestroyed) {
+					throw new IllegalStateException("Buffer pool is destroyed.");
+				}
+
+				final MemorySegment segment = availableMemorySegments.poll(2, TimeUnit.SECONDS);
+				if (segment != null) {
+					segments.add(segment);
+				}
+			}
+		}
+		catch (Throwable t) {
+			// Give back the segments we got and the reservation of the missing ones
+			synchronized (factoryLock) {
+				numTotalRequiredBuffers -= numRequiredBuffers - segments.size();
+			}
+			recycleMemorySegments(segments);
+
+			if (t instanceof IOException) {
+				throw (IOException) t;
+			} else {
+				throw new IOException(t.getMessage(), t);
+			}
+		}
+
+		return segments;
+	}
+
+	/**
+	 * Returns memory segments, which have been requested via {@link #requestMemorySegments(int)},
+	 * and redistributes the buffers among the local buffer pools.
+	 */
+	public void recycleMemorySegments(List<MemorySegment> segments) throws IOException {
+		synchronized (factoryLock) {
+			numTotalRequiredBuffers -= segments.size();
+
+			availableMemorySegments.addAll(segments);
+
+			redistributeBuffers();
+		}
+	}
+
 	public void destroy() {
 		synchronized (factoryLock) {
 			isDestroyed = true;
@@ -190,18 +262,7 @@ public class NetworkBufferPool implements BufferPoolFactory {
 				throw new IllegalStateException("Network buffer pool has already been destroyed.");
 			}
 
-			// Ensure that the number of required buffers can be satisfied.
-			// With dynamic memory management this should become obsolete.
-			if (numTotalRequiredBuffers + numRequiredBuffers > totalNumberOfMemorySegments) {
-				throw new IOException(String.format("Insufficient number of network buffers: " +
-								"required %d, but only %d available. The total number of network " +
-								"buffers is currently set to %d. You can increase this " +
-								"number by setting the configuration key '%s'.",
-						numRequiredBuffers,
-						totalNumberOfMemorySegments - numTotalRequiredBuffers,
-						totalNumberOfMemorySegments,
-						ConfigConstants.TASK_MANAGER_NETWORK_NUM_BUFFERS_KEY));
-			}
+			checkNumberOfRequiredBuffers(numRequiredBuffers);
 
 			this.numTotalRequiredBuffers += numRequiredBuffers;
 
@@ -264,6 +325,22 @@ public class NetworkBufferPool implements BufferPoolFactory {
 		}
 	}
 
+	// Must be called from synchronized block
+	private void checkNumberOfRequiredBuffers(int numRequiredBuffers) throws IOException {
+		// Ensure that the number of required buffers can be satisfied.
+		// With dynamic memory management this should become obsolete.
+		if (numTotalRequiredBuffers + numRequiredBuffers > totalNumberOfMemorySegments) {
+			throw new IOException(String.format("Insufficient number of network buffers: " +
+							"required %d, but only %d available. The total number of network " +
+							"buffers is currently set to %d. You can increase this " +
+							"number by setting the configuration key '%s'.",
+					numRequiredBuffers,
+					totalNumberOfMemorySegments - numTotalRequiredBuffers,
+					totalNumberOfMemorySegments,
+					ConfigConstants.TASK_MANAGER_NETWORK_NUM_BUFFERS_KEY));
+		}
+	}
+
 	// Must be called from synchronized block
 	private void redistributeBuffers() throws IOException {
 		int numManagedBufferPools = managedBufferPools.size();
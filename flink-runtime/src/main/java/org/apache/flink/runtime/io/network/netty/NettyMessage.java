@@ -44,6 +44,8 @@ import java.io.ObjectOutputStream;
 import java.nio.ByteBuffer;
 import java.util.List;
 
+import static org.apache.flink.util.Preconditions.checkArgument;
+
 /**
  * A simple and generic interface to serialize messages to Netty's buffer space.
  */
@@ -150,6 +152,9 @@ abstract class NettyMessage {
 			else if (msgId == CloseRequest.ID) {
 				decodedMsg = new CloseRequest();
 			}
+			else if (msgId == AddCredit.ID) {
+				decodedMsg = new AddCredit();
+			}
 			else {
 				throw new IllegalStateException("Received unknown message from producer: " + msg);
 			}
@@ -175,6 +180,9 @@ abstract class NettyMessage {
 
 		int sequenceNumber;
 
+		/** The number of buffers queued at the sender after this one */
+		int backlog;
+
 		// ---- Deserialization -----------------------------------------------
 
 		boolean isBuffer;
@@ -189,10 +197,11 @@ abstract class NettyMessage {
 			buffer = null;
 		}
 
-		public BufferResponse(Buffer buffer, int sequenceNumber, InputChannelID receiverId) {
+		public BufferResponse(Buffer buffer, int sequenceNumber, InputChannelID receiverId, int backlog) {
 			this.buffer = buffer;
 			this.sequenceNumber = sequenceNumber;
 			this.receiverId = receiverId;
+			this.backlog = backlog;
 		}
 
 		boolean isBuffer() {
@@ -220,7 +229,7 @@ abstract class NettyMessage {
 
 		@Override
 		ByteBuf write(ByteBufAllocator allocator) throws IOException {
-			int length = 16 + 4 + 1 + 4 + buffer.getSize();
+			int length = 16 + 4 + 4 + 1 + 4 + buffer.getSize();
 
 			ByteBuf result = null;
 			try {
@@ -228,6 +237,7 @@ abstract class NettyMessage {
 
 				receiverId.writeTo(result);
 				result.writeInt(sequenceNumber);
+				result.writeInt(backlog);
 				result.writeBoolean(buffer.isBuffer());
 				result.writeInt(buffer.getSize());
 				result.writeBytes(buffer.getNioBuffer());
@@ -252,6 +262,7 @@ abstract class NettyMessage {
 		void readFrom(ByteBuf buffer) {
 			receiverId = InputChannelID.fromByteBuf(buffer);
 			sequenceNumber = buffer.readInt();
+			backlog = buffer.readInt();
 			isBuffer = buffer.readBoolean();
 			size = buffer.readInt();
 
@@ -346,13 +357,17 @@ abstract class NettyMessage {
 
 		InputChannelID receiverId;
 
+		/** The number of buffers the receiver can initially accept */
+		int credit;
+
 		public PartitionRequest() {
 		}
 
-		PartitionRequest(ResultPartitionID partitionId, int queueIndex, InputChannelID receiverId) {
+		PartitionRequest(ResultPartitionID partitionId, int queueIndex, InputChannelID receiverId, int credit) {
 			this.partitionId = partitionId;
 			this.queueIndex = queueIndex;
 			this.receiverId = receiverId;
+			this.credit = credit;
 		}
 
 		@Override
@@ -360,12 +375,13 @@ abstract class NettyMessage {
 			ByteBuf result = null;
 
 			try {
-				result = allocateBuffer(allocator, ID, 16 + 16 + 4 + 16);
+				result = allocateBuffer(allocator, ID, 16 + 16 + 4 + 16 + 4);
 
 				partitionId.getPartitionId().writeTo(result);
 				partitionId.getProducerId().writeTo(result);
 				result.writeInt(queueIndex);
 				receiverId.writeTo(result);
+				result.writeInt(credit);
 
 				return result;
 			}
@@ -383,11 +399,12 @@ abstract class NettyMessage {
 			partitionId = new ResultPartitionID(IntermediateResultPartitionID.fromByteBuf(buffer), ExecutionAttemptID.fromByteBuf(buffer));
 			queueIndex = buffer.readInt();
 			receiverId = InputChannelID.fromByteBuf(buffer);
+			credit = buffer.readInt();
 		}
 
 		@Override
 		public String toString() {
-			return String.format("PartitionRequest(%s:%d)", partitionId, queueIndex);
+			return String.format("PartitionRequest(%s:%d:%d)", partitionId, queueIndex, credit);
 		}
 	}
 
@@ -517,4 +534,61 @@ abstract class NettyMessage {
 		void readFrom(ByteBuf buffer) throws Exception {
 		}
 	}
+
+	/**
+	 * Announces additional credit of the {@link InputChannel} identified by
+	 * {@link InputChannelID} to the producer.
+	 *
+	 * <p> Each credit allows the producer to send one more buffer to the input channel, which
+	 * has a free buffer to receive it.
+	 */
+	static class AddCredit extends NettyMessage {
+
+		final static byte ID = 6;
+
+		int credit;
+
+		InputChannelID receiverId;
+
+		public AddCredit() {
+		}
+
+		AddCredit(int credit, InputChannelID receiverId) {
+			checkArgument(credit > 0, "The announced credit should be greater than 0.");
+
+			this.credit = credit;
+			this.receiverId = receiverId;
+		}
+
+		@Override
+		ByteBuf write(ByteBufAllocator allocator) throws IOException {
+			ByteBuf result = null;
+
+			try {
+				result = allocateBuffer(allocator, ID, 4 + 16);
+				result.writeInt(credit);
+				receiverId.writeTo(result);
+
+				return result;
+			}
+			catch (Throwable t) {
+				if (result != null) {
+					result.release();
+				}
+
+				throw new IOException(t);
+			}
+		}
+
+		@Override
+		void readFrom(ByteBuf buffer) {
+			credit = buffer.readInt();
+			receiverId = InputChannelID.fromByteBuf(buffer);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("AddCredit(%s : %d)", receiverId, credit);
+		}
+	}
 }
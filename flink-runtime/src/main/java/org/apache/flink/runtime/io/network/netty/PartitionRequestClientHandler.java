@@ -19,34 +19,42 @@
 package org.apache.flink.runtime.io.network.netty;
 
 import com.google.common.collect.Maps;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.core.memory.MemorySegmentFactory;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
-import org.apache.flink.runtime.io.network.buffer.BufferProvider;
 import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
+import org.apache.flink.runtime.io.network.netty.NettyMessage.AddCredit;
 import org.apache.flink.runtime.io.network.netty.exception.LocalTransportException;
 import org.apache.flink.runtime.io.network.netty.exception.RemoteTransportException;
 import org.apache.flink.runtime.io.network.netty.exception.TransportException;
 import org.apache.flink.runtime.io.network.partition.PartitionNotFoundException;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannelID;
 import org.apache.flink.runtime.io.network.partition.consumer.RemoteInputChannel;
-import org.apache.flink.runtime.util.event.EventListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.SocketAddress;
 import java.util.ArrayDeque;
-import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
 
 import static org.apache.flink.util.Preconditions.checkState;
 
+/**
+ * Channel handler to read {@link NettyMessage.BufferResponse} and {@link NettyMessage.ErrorResponse}
+ * messages of the producer and to announce the credit of the input channels.
+ *
+ * <p> The producer only sends as many data buffers to an input channel as it has announced
+ * credit for. Therefore, each data buffer is copied into an available buffer of its input
+ * channel right away and the reading of the channel never has to be paused.
+ */
 class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter {
 
 	private static final Logger LOG = LoggerFactory.getLogger(PartitionRequestClientHandler.class);
@@ -55,11 +63,11 @@ class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter {
 
 	private final AtomicBoolean channelError = new AtomicBoolean(false);
 
-	private final BufferListenerTask bufferListener = new BufferListenerTask();
+	/** Input channels with credit to announce, only accessed by the network I/O thread */
+	private final ArrayDeque<RemoteInputChannel> inputChannelsWithCredit = new ArrayDeque<RemoteInputChannel>();
 
-	private final Queue<Object> stagedMessages = new ArrayDeque<Object>();
-
-	private final StagedMessagesHandlerTask stagedMessagesHandler = new StagedMessagesHandlerTask();
+	/** Writes the next credit announcement after the previous one has been written */
+	private final ChannelFutureListener writeListener = new WriteAndFlushNextMessageIfPossibleListener();
 
 	/**
 	 * Set of cancelled partition requests. A request is cancelled iff an input channel is cleared
@@ -95,6 +103,16 @@ class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter {
 		}
 	}
 
+	/**
+	 * Enqueues the input channel to announce its unannounced credit. Called by the threads,
+	 * which make buffers of the input channel available.
+	 */
+	void notifyCreditAvailable(RemoteInputChannel inputChannel) {
+		if (ctx != null) {
+			ctx.pipeline().fireUserEventTriggered(inputChannel);
+		}
+	}
+
 	// ------------------------------------------------------------------------
 	// Network events
 	// ------------------------------------------------------------------------
@@ -159,18 +177,40 @@ class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter {
 	@Override
 	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
 		try {
-			if (!bufferListener.hasStagedBufferOrEvent() && stagedMessages.isEmpty()) {
-				decodeMsg(msg, false);
-			}
-			else {
-				stagedMessages.add(msg);
-			}
+			decodeMsg(msg);
 		}
 		catch (Throwable t) {
 			notifyAllChannelsOfErrorAndClose(t);
 		}
 	}
 
+	/**
+	 * Triggers the announcement of the credit of an input channel, see
+	 * {@link #notifyCreditAvailable(RemoteInputChannel)}.
+	 */
+	@Override
+	public void userEventTriggered(ChannelHandlerContext ctx, Object msg) throws Exception {
+		if (msg instanceof RemoteInputChannel) {
+			boolean triggerWrite = inputChannelsWithCredit.isEmpty();
+
+			inputChannelsWithCredit.add((RemoteInputChannel) msg);
+
+			if (triggerWrite) {
+				writeAndFlushNextMessageIfPossible(ctx.channel());
+			}
+		}
+		else {
+			ctx.fireUserEventTriggered(msg);
+		}
+	}
+
+	@Override
+	public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+		writeAndFlushNextMessageIfPossible(ctx.channel());
+
+		super.channelWritabilityChanged(ctx);
+	}
+
 	private void notifyAllChannelsOfErrorAndClose(Throwable cause) {
 		if (channelError.compareAndSet(false, true)) {
 			try {
@@ -185,6 +225,7 @@ class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter {
 			}
 			finally {
 				inputChannels.clear();
+				inputChannelsWithCredit.clear();
 
 				if (ctx != null) {
 					ctx.close();
@@ -200,7 +241,7 @@ class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter {
 		super.channelReadComplete(ctx);
 	}
 
-	private boolean decodeMsg(Object msg, boolean isStagedBuffer) throws Throwable {
+	private void decodeMsg(Object msg) throws Throwable {
 		final Class<?> msgClazz = msg.getClass();
 
 		// ---- Buffer --------------------------------------------------------
@@ -213,10 +254,10 @@ class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter {
 
 				cancelRequestFor(bufferOrEvent.receiverId);
 
-				return true;
+				return;
 			}
 
-			return decodeBufferOrEvent(inputChannel, bufferOrEvent, isStagedBuffer);
+			decodeBufferOrEvent(inputChannel, bufferOrEvent);
 		}
 		// ---- Error ---------------------------------------------------------
 		else if (msgClazz == NettyMessage.ErrorResponse.class) {
@@ -247,52 +288,36 @@ class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter {
 		else {
 			throw new IllegalStateException("Received unknown message from producer: " + msg.getClass());
 		}
-
-		return true;
 	}
 
-	private boolean decodeBufferOrEvent(RemoteInputChannel inputChannel, NettyMessage.BufferResponse bufferOrEvent, boolean isStagedBuffer) throws Throwable {
-		boolean releaseNettyBuffer = true;
-
+	private void decodeBufferOrEvent(RemoteInputChannel inputChannel, NettyMessage.BufferResponse bufferOrEvent) throws Throwable {
 		try {
 			if (bufferOrEvent.isBuffer()) {
 				// ---- Buffer ------------------------------------------------
 
-				// Early return for empty buffers. Otherwise Netty's readBytes() throws an
-				// IndexOutOfBoundsException.
-				if (bufferOrEvent.getSize() == 0) {
-					inputChannel.onEmptyBuffer(bufferOrEvent.sequenceNumber);
-					return true;
-				}
-
-				BufferProvider bufferProvider = inputChannel.getBufferProvider();
+				// The producer has sent the buffer for a credit of the input channel, so
+				// there has to be an available buffer.
+				Buffer buffer = inputChannel.requestBuffer();
 
-				if (bufferProvider == null) {
+				if (buffer == null) {
 					// receiver has been cancelled/failed
 					cancelRequestFor(bufferOrEvent.receiverId);
-					return isStagedBuffer;
+					return;
 				}
 
-				while (true) {
-					Buffer buffer = bufferProvider.requestBuffer();
-
-					if (buffer != null) {
-						buffer.setSize(bufferOrEvent.getSize());
-						bufferOrEvent.getNettyBuffer().readBytes(buffer.getNioBuffer());
+				// Early return for empty buffers. Otherwise Netty's readBytes() throws an
+				// IndexOutOfBoundsException.
+				if (bufferOrEvent.getSize() == 0) {
+					buffer.recycle();
 
-						inputChannel.onBuffer(buffer, bufferOrEvent.sequenceNumber);
+					inputChannel.onEmptyBuffer(bufferOrEvent.sequenceNumber, bufferOrEvent.backlog);
+					return;
+				}
 
-						return true;
-					}
-					else if (bufferListener.waitForBuffer(bufferProvider, bufferOrEvent)) {
-						releaseNettyBuffer = false;
+				buffer.setSize(bufferOrEvent.getSize());
+				bufferOrEvent.getNettyBuffer().readBytes(buffer.getNioBuffer());
 
-						return false;
-					}
-					else if (bufferProvider.isDestroyed()) {
-						return isStagedBuffer;
-					}
-				}
+				inputChannel.onBuffer(buffer, bufferOrEvent.sequenceNumber, bufferOrEvent.backlog);
 			}
 			else {
 				// ---- Event -------------------------------------------------
@@ -303,182 +328,55 @@ class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter {
 				MemorySegment memSeg = MemorySegmentFactory.wrap(byteArray);
 				Buffer buffer = new Buffer(memSeg, FreeingBufferRecycler.INSTANCE, false);
 
-				inputChannel.onBuffer(buffer, bufferOrEvent.sequenceNumber);
-
-				return true;
+				inputChannel.onBuffer(buffer, bufferOrEvent.sequenceNumber, bufferOrEvent.backlog);
 			}
 		}
 		finally {
-			if (releaseNettyBuffer) {
-				bufferOrEvent.releaseBuffer();
-			}
-		}
-	}
-
-	private class AsyncErrorNotificationTask implements Runnable {
-
-		private final Throwable error;
-
-		public AsyncErrorNotificationTask(Throwable error) {
-			this.error = error;
-		}
-
-		@Override
-		public void run() {
-			notifyAllChannelsOfErrorAndClose(error);
+			bufferOrEvent.releaseBuffer();
 		}
 	}
 
 	/**
-	 * A buffer availability listener, which subscribes/unsubscribes the NIO
-	 * read event.
-	 * <p>
-	 * If no buffer is available, the channel read event will be unsubscribed
-	 * until one becomes available again.
-	 * <p>
-	 * After a buffer becomes available again, the buffer is handed over by
-	 * the thread calling {@link #onEvent(Buffer)} to the network I/O
-	 * thread, which then continues the processing of the staged buffer.
+	 * Announces the credit of the enqueued input channels, one {@link NettyMessage.AddCredit}
+	 * message at a time and only while the channel is writable.
 	 */
-	private class BufferListenerTask implements EventListener<Buffer>, Runnable {
-
-		private final AtomicReference<Buffer> availableBuffer = new AtomicReference<Buffer>();
-
-		private NettyMessage.BufferResponse stagedBufferResponse;
-
-		private boolean waitForBuffer(BufferProvider bufferProvider, NettyMessage.BufferResponse bufferResponse) {
-
-			stagedBufferResponse = bufferResponse;
-
-			if (bufferProvider.addListener(this)) {
-				if (ctx.channel().config().isAutoRead()) {
-					ctx.channel().config().setAutoRead(false);
-				}
-
-				return true;
-			}
-			else {
-				stagedBufferResponse = null;
-
-				return false;
-			}
+	private void writeAndFlushNextMessageIfPossible(Channel channel) {
+		if (channelError.get() || !channel.isWritable()) {
+			return;
 		}
 
-		private boolean hasStagedBufferOrEvent() {
-			return stagedBufferResponse != null;
-		}
+		RemoteInputChannel inputChannel;
 
-		// Called by the recycling thread (not network I/O thread)
-		@Override
-		public void onEvent(Buffer buffer) {
-			boolean success = false;
+		while ((inputChannel = inputChannelsWithCredit.poll()) != null) {
+			int credit = inputChannel.getAndResetUnannouncedCredit();
 
-			try {
-				if (buffer != null) {
-					if (availableBuffer.compareAndSet(null, buffer)) {
-						ctx.channel().eventLoop().execute(this);
+			// The credit might have been announced with a previous notification already
+			if (credit > 0 && !inputChannel.isReleased()) {
+				AddCredit msg = new AddCredit(credit, inputChannel.getInputChannelId());
 
-						success = true;
-					}
-					else {
-						throw new IllegalStateException("Received a buffer notification, " +
-								" but the previous one has not been handled yet.");
-					}
-				}
-				else {
-					// The buffer pool has been destroyed
-					stagedBufferResponse = null;
+				channel.writeAndFlush(msg).addListener(writeListener);
 
-					if (stagedMessages.isEmpty()) {
-						ctx.channel().config().setAutoRead(true);
-						ctx.channel().read();
-					}
-					else {
-						ctx.channel().eventLoop().execute(stagedMessagesHandler);
-					}
-				}
-			}
-			catch (Throwable t) {
-				ctx.channel().eventLoop().execute(new AsyncErrorNotificationTask(t));
-			}
-			finally {
-				if (!success) {
-					if (buffer != null) {
-						buffer.recycle();
-					}
-				}
+				return;
 			}
 		}
+	}
 
-		/**
-		 * Continues the decoding of a staged buffer after a buffer has become available again.
-		 * <p>
-		 * This task is executed by the network I/O thread.
-		 */
-		@Override
-		public void run() {
-			boolean success = false;
-
-			Buffer buffer = null;
+	// This listener is called after a credit announcement has been flushed. If
+	// successful, the listener triggers the next announcement.
+	private class WriteAndFlushNextMessageIfPossibleListener implements ChannelFutureListener {
 
+		@Override
+		public void operationComplete(ChannelFuture future) throws Exception {
 			try {
-				if ((buffer = availableBuffer.getAndSet(null)) == null) {
-					throw new IllegalStateException("Running buffer availability task w/o a buffer.");
+				if (future.isSuccess()) {
+					writeAndFlushNextMessageIfPossible(future.channel());
 				}
-
-				buffer.setSize(stagedBufferResponse.getSize());
-
-				stagedBufferResponse.getNettyBuffer().readBytes(buffer.getNioBuffer());
-				stagedBufferResponse.releaseBuffer();
-
-				RemoteInputChannel inputChannel = inputChannels.get(stagedBufferResponse.receiverId);
-
-				if (inputChannel != null) {
-					inputChannel.onBuffer(buffer, stagedBufferResponse.sequenceNumber);
-
-					success = true;
-				}
-				else {
-					cancelRequestFor(stagedBufferResponse.receiverId);
-				}
-
-				stagedBufferResponse = null;
-
-				if (stagedMessages.isEmpty()) {
-					ctx.channel().config().setAutoRead(true);
-					ctx.channel().read();
+				else if (future.cause() != null) {
+					notifyAllChannelsOfErrorAndClose(future.cause());
 				}
 				else {
-					ctx.channel().eventLoop().execute(stagedMessagesHandler);
-				}
-			}
-			catch (Throwable t) {
-				notifyAllChannelsOfErrorAndClose(t);
-			}
-			finally {
-				if (!success) {
-					if (buffer != null) {
-						buffer.recycle();
-					}
-				}
-			}
-		}
-	}
-
-	public class StagedMessagesHandlerTask implements Runnable {
-
-		@Override
-		public void run() {
-			try {
-				Object msg;
-				while ((msg = stagedMessages.poll()) != null) {
-					if (!decodeMsg(msg, true)) {
-						return;
-					}
+					notifyAllChannelsOfErrorAndClose(new IllegalStateException("Sending cancelled by user."));
 				}
-
-				ctx.channel().config().setAutoRead(true);
-				ctx.channel().read();
 			}
 			catch (Throwable t) {
 				notifyAllChannelsOfErrorAndClose(t);
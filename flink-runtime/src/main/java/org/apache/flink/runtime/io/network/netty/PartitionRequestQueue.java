@@ -36,15 +36,24 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayDeque;
-import java.util.Queue;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
+import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.runtime.io.network.netty.NettyMessage.AddCredit;
 import static org.apache.flink.runtime.io.network.netty.NettyMessage.BufferResponse;
 
 /**
  * A queue of partition queues, which listens for channel writability changed
  * events before writing and flushing {@link Buffer} instances.
+ *
+ * <p> The queue uses credit-based flow control: each partition queue is only
+ * scheduled for transfer, if its consumer has announced credit for it, so that a
+ * slow consumer does not block the other partition queues sharing the same TCP
+ * channel. Each credit allows sending one data buffer. Events do not consume credit,
+ * because the consumer does not need a buffer to receive them.
  */
 class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 
@@ -52,11 +61,13 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 
 	private final ChannelFutureListener writeListener = new WriteAndFlushNextMessageIfPossibleListener();
 
-	private final Queue<SequenceNumberingSubpartitionView> queue = new ArrayDeque<SequenceNumberingSubpartitionView>();
+	/** The partition queues, which have credit and are scheduled for transfer */
+	private final ArrayDeque<SequenceNumberingSubpartitionView> availableQueues = new ArrayDeque<SequenceNumberingSubpartitionView>();
 
-	private final Set<InputChannelID> released = Sets.newHashSet();
+	/** All partition queues of this channel, which have not been released yet */
+	private final Map<InputChannelID, SequenceNumberingSubpartitionView> allQueues = new HashMap<InputChannelID, SequenceNumberingSubpartitionView>();
 
-	private SequenceNumberingSubpartitionView currentPartitionQueue;
+	private final Set<InputChannelID> released = Sets.newHashSet();
 
 	private boolean fatalError;
 
@@ -71,8 +82,12 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 		super.channelRegistered(ctx);
 	}
 
-	public void enqueue(ResultSubpartitionView partitionQueue, InputChannelID receiverId) throws Exception {
-		ctx.pipeline().fireUserEventTriggered(new SequenceNumberingSubpartitionView(partitionQueue, receiverId));
+	public void enqueue(ResultSubpartitionView partitionQueue, InputChannelID receiverId, int initialCredit) throws Exception {
+		ctx.pipeline().fireUserEventTriggered(new SequenceNumberingSubpartitionView(partitionQueue, receiverId, initialCredit));
+	}
+
+	public void addCredit(InputChannelID receiverId, int credit) {
+		ctx.pipeline().fireUserEventTriggered(new AddCredit(credit, receiverId));
 	}
 
 	public void cancel(InputChannelID receiverId) {
@@ -88,12 +103,28 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 	@Override
 	public void userEventTriggered(ChannelHandlerContext ctx, Object msg) throws Exception {
 		if (msg.getClass() == SequenceNumberingSubpartitionView.class) {
-			boolean triggerWrite = queue.isEmpty();
+			// A new partition queue or a data notification of a known one
+			SequenceNumberingSubpartitionView partitionQueue = (SequenceNumberingSubpartitionView) msg;
 
-			queue.add((SequenceNumberingSubpartitionView) msg);
+			if (released.contains(partitionQueue.getReceiverId())) {
+				return;
+			}
 
-			if (triggerWrite) {
-				writeAndFlushNextMessageIfPossible(ctx.channel());
+			allQueues.put(partitionQueue.getReceiverId(), partitionQueue);
+			partitionQueue.isWaitingForData = false;
+
+			enqueueIfAvailable(ctx.channel(), partitionQueue);
+		}
+		else if (msg.getClass() == AddCredit.class) {
+			AddCredit addCredit = (AddCredit) msg;
+
+			SequenceNumberingSubpartitionView partitionQueue = allQueues.get(addCredit.receiverId);
+
+			// The partition queue might have been released concurrently
+			if (partitionQueue != null) {
+				partitionQueue.addCredit(addCredit.credit);
+
+				enqueueIfAvailable(ctx.channel(), partitionQueue);
 			}
 		}
 		else if (msg.getClass() == InputChannelID.class) {
@@ -104,25 +135,10 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 			}
 
 			// Cancel the request for the input channel
-			if (currentPartitionQueue != null && currentPartitionQueue.getReceiverId().equals(toCancel)) {
-				currentPartitionQueue.releaseAllResources();
-				markAsReleased(currentPartitionQueue.receiverId);
-				currentPartitionQueue = null;
-			}
-			else {
-				int size = queue.size();
+			SequenceNumberingSubpartitionView partitionQueue = allQueues.get(toCancel);
 
-				for (int i = 0; i < size; i++) {
-					SequenceNumberingSubpartitionView curr = queue.poll();
-
-					if (curr.getReceiverId().equals(toCancel)) {
-						curr.releaseAllResources();
-						markAsReleased(curr.receiverId);
-					}
-					else {
-						queue.add(curr);
-					}
-				}
+			if (partitionQueue != null) {
+				release(partitionQueue);
 			}
 		}
 		else {
@@ -135,6 +151,31 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 		writeAndFlushNextMessageIfPossible(ctx.channel());
 	}
 
+	/**
+	 * Schedules the partition queue for transfer, if its consumer has credit and it is
+	 * neither scheduled already nor waiting for a data notification.
+	 */
+	private void enqueueIfAvailable(Channel channel, SequenceNumberingSubpartitionView partitionQueue) throws IOException {
+		if (partitionQueue.isEnqueued || partitionQueue.isWaitingForData) {
+			return;
+		}
+
+		if (partitionQueue.isReleased()) {
+			// Forward the release even without credit, the queue has nothing left to send
+			handleReleasedQueue(partitionQueue);
+		}
+		else if (partitionQueue.hasCredit()) {
+			boolean triggerWrite = availableQueues.isEmpty();
+
+			partitionQueue.isEnqueued = true;
+			availableQueues.add(partitionQueue);
+
+			if (triggerWrite) {
+				writeAndFlushNextMessageIfPossible(channel);
+			}
+		}
+	}
+
 	private void writeAndFlushNextMessageIfPossible(final Channel channel) throws IOException {
 		if (fatalError) {
 			return;
@@ -144,42 +185,44 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 
 		try {
 			if (channel.isWritable()) {
-				while (true) {
-					if (currentPartitionQueue == null && (currentPartitionQueue = queue.poll()) == null) {
-						return;
-					}
+				SequenceNumberingSubpartitionView partitionQueue;
 
-					buffer = currentPartitionQueue.getNextBuffer();
+				while ((partitionQueue = availableQueues.poll()) != null) {
+					partitionQueue.isEnqueued = false;
+
+					buffer = partitionQueue.getNextBuffer();
 
 					if (buffer == null) {
-						if (currentPartitionQueue.registerListener(null)) {
-							currentPartitionQueue = null;
+						if (partitionQueue.registerListener(null)) {
+							partitionQueue.isWaitingForData = true;
 						}
-						else if (currentPartitionQueue.isReleased()) {
-							markAsReleased(currentPartitionQueue.getReceiverId());
-
-							Throwable cause = currentPartitionQueue.getFailureCause();
-
-							if (cause != null) {
-								ctx.writeAndFlush(new NettyMessage.ErrorResponse(
-										new ProducerFailedException(cause),
-										currentPartitionQueue.receiverId));
-							}
-
-							currentPartitionQueue = null;
+						else if (partitionQueue.isReleased()) {
+							handleReleasedQueue(partitionQueue);
+						}
+						else {
+							// Data has been added concurrently, try again
+							partitionQueue.isEnqueued = true;
+							availableQueues.add(partitionQueue);
 						}
 					}
 					else {
-						BufferResponse resp = new BufferResponse(buffer, currentPartitionQueue.getSequenceNumber(), currentPartitionQueue.getReceiverId());
+						BufferResponse resp = new BufferResponse(
+								buffer,
+								partitionQueue.getSequenceNumber(),
+								partitionQueue.getReceiverId(),
+								partitionQueue.getBuffersInBacklog());
 
 						if (!buffer.isBuffer() &&
 								EventSerializer.fromBuffer(buffer, getClass().getClassLoader()).getClass() == EndOfPartitionEvent.class) {
 
-							currentPartitionQueue.notifySubpartitionConsumed();
-							currentPartitionQueue.releaseAllResources();
-							markAsReleased(currentPartitionQueue.getReceiverId());
-
-							currentPartitionQueue = null;
+							partitionQueue.notifySubpartitionConsumed();
+							release(partitionQueue);
+						}
+						else if (partitionQueue.hasCredit()) {
+							// Schedule the queue again at the end, so that all queues with
+							// credit get their turn on the channel
+							partitionQueue.isEnqueued = true;
+							availableQueues.add(partitionQueue);
 						}
 
 						channel.writeAndFlush(resp).addListener(writeListener);
@@ -198,6 +241,18 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 		}
 	}
 
+	private void handleReleasedQueue(SequenceNumberingSubpartitionView partitionQueue) throws IOException {
+		Throwable cause = partitionQueue.getFailureCause();
+
+		release(partitionQueue);
+
+		if (cause != null) {
+			ctx.writeAndFlush(new NettyMessage.ErrorResponse(
+					new ProducerFailedException(cause),
+					partitionQueue.getReceiverId()));
+		}
+	}
+
 	@Override
 	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
 		releaseAllResources();
@@ -220,17 +275,28 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 	}
 
 	private void releaseAllResources() throws IOException {
-		if (currentPartitionQueue != null) {
-			currentPartitionQueue.releaseAllResources();
-			markAsReleased(currentPartitionQueue.getReceiverId());
+		for (SequenceNumberingSubpartitionView partitionQueue : allQueues.values()) {
+			partitionQueue.releaseAllResources();
 
-			currentPartitionQueue = null;
+			markAsReleased(partitionQueue.getReceiverId());
 		}
 
-		while ((currentPartitionQueue = queue.poll()) != null) {
-			currentPartitionQueue.releaseAllResources();
+		allQueues.clear();
+		availableQueues.clear();
+	}
+
+	/**
+	 * Releases the partition queue and removes it from the scheduled ones.
+	 */
+	private void release(SequenceNumberingSubpartitionView partitionQueue) throws IOException {
+		partitionQueue.releaseAllResources();
+		markAsReleased(partitionQueue.getReceiverId());
 
-			markAsReleased(currentPartitionQueue.getReceiverId());
+		allQueues.remove(partitionQueue.getReceiverId());
+
+		if (partitionQueue.isEnqueued) {
+			availableQueues.remove(partitionQueue);
+			partitionQueue.isEnqueued = false;
 		}
 	}
 
@@ -267,7 +333,11 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 
 	/**
 	 * Simple wrapper for the partition queue iterator, which increments a
-	 * sequence number for each returned buffer and remembers the receiver ID.
+	 * sequence number for each returned buffer, remembers the receiver ID and
+	 * keeps track of the credit announced by the receiver.
+	 *
+	 * <p> Except for {@link #onNotification()}, all methods are only called by
+	 * the network I/O thread.
 	 */
 	private class SequenceNumberingSubpartitionView implements ResultSubpartitionView, NotificationListener {
 
@@ -277,9 +347,21 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 
 		private int sequenceNumber = -1;
 
-		private SequenceNumberingSubpartitionView(ResultSubpartitionView queueIterator, InputChannelID receiverId) {
+		/** The number of data buffers the receiver can currently accept */
+		private int numCreditsAvailable;
+
+		/** Flag indicating whether this queue is scheduled in the available queues */
+		private boolean isEnqueued;
+
+		/** Flag indicating whether this queue waits for a data notification */
+		private boolean isWaitingForData;
+
+		private SequenceNumberingSubpartitionView(ResultSubpartitionView queueIterator, InputChannelID receiverId, int initialCredit) {
+			checkArgument(initialCredit >= 0, "Negative initial credit.");
+
 			this.queueIterator = checkNotNull(queueIterator);
 			this.receiverId = checkNotNull(receiverId);
+			this.numCreditsAvailable = initialCredit;
 		}
 
 		private InputChannelID getReceiverId() {
@@ -290,17 +372,34 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 			return sequenceNumber;
 		}
 
+		private boolean hasCredit() {
+			return numCreditsAvailable > 0;
+		}
+
+		private void addCredit(int credit) {
+			numCreditsAvailable += credit;
+		}
+
 		@Override
 		public Buffer getNextBuffer() throws IOException, InterruptedException {
 			Buffer buffer = queueIterator.getNextBuffer();
 
 			if (buffer != null) {
 				sequenceNumber++;
+
+				if (buffer.isBuffer()) {
+					numCreditsAvailable--;
+				}
 			}
 
 			return buffer;
 		}
 
+		@Override
+		public int getBuffersInBacklog() {
+			return queueIterator.getBuffersInBacklog();
+		}
+
 		@Override
 		public void notifySubpartitionConsumed() throws IOException {
 			queueIterator.notifySubpartitionConsumed();
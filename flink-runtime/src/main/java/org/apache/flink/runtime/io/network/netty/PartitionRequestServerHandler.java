@@ -23,6 +23,7 @@ import io.netty.channel.SimpleChannelInboundHandler;
 import org.apache.flink.runtime.io.network.TaskEventDispatcher;
 import org.apache.flink.runtime.io.network.buffer.BufferPool;
 import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
+import org.apache.flink.runtime.io.network.netty.NettyMessage.AddCredit;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.CancelPartitionRequest;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.CloseRequest;
 import org.apache.flink.runtime.io.network.partition.PartitionNotFoundException;
@@ -100,7 +101,7 @@ class PartitionRequestServerHandler extends SimpleChannelInboundHandler<NettyMes
 									request.queueIndex,
 									bufferPool);
 
-					outboundQueue.enqueue(subpartition, request.receiverId);
+					outboundQueue.enqueue(subpartition, request.receiverId, request.credit);
 				}
 				catch (PartitionNotFoundException notFound) {
 					respondWithError(ctx, notFound, request.receiverId);
@@ -124,6 +125,11 @@ class PartitionRequestServerHandler extends SimpleChannelInboundHandler<NettyMes
 			else if (msgClazz == CloseRequest.class) {
 				outboundQueue.close();
 			}
+			else if (msgClazz == AddCredit.class) {
+				AddCredit request = (AddCredit) msg;
+
+				outboundQueue.addCredit(request.receiverId, request.credit);
+			}
 			else {
 				LOG.warn("Received unexpected client request: {}", msg);
 			}
@@ -47,6 +47,13 @@ class PipelinedSubpartitionView implements ResultSubpartitionView {
 		}
 	}
 
+	@Override
+	public int getBuffersInBacklog() {
+		synchronized (parent.buffers) {
+			return parent.buffers.size();
+		}
+	}
+
 	@Override
 	public boolean registerListener(NotificationListener listener) {
 		return !isReleased.get() && parent.registerListener(listener);
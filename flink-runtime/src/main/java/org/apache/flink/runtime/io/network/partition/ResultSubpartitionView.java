@@ -57,4 +57,14 @@ public interface ResultSubpartitionView {
 
 	Throwable getFailureCause();
 
+	/**
+	 * Returns the number of buffers, which are queued in the subpartition and have not been
+	 * returned by {@link #getNextBuffer()} yet.
+	 * <p>
+	 * The backlog is sent to the consumer together with each buffer, which allows the consumer
+	 * to request buffers for the queued data ahead of time. It is only a hint and does not need
+	 * to be exact.
+	 */
+	int getBuffersInBacklog();
+
 }
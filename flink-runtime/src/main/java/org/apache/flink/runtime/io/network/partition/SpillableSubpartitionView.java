@@ -49,6 +49,9 @@ class SpillableSubpartitionView implements ResultSubpartitionView {
 
 	private long currentBytesRead;
 
+	/** The number of buffers returned by this view, in-memory or spilled. */
+	private int numberOfReturnedBuffers;
+
 	private final AtomicBoolean isReleased = new AtomicBoolean(false);
 
 	public SpillableSubpartitionView(
@@ -86,6 +89,7 @@ class SpillableSubpartitionView implements ResultSubpartitionView {
 					// TODO Fix hard coding of 8 bytes for the header
 					currentBytesRead += buffer.getSize() + 8;
 					currentQueuePosition++;
+					numberOfReturnedBuffers++;
 
 					return buffer;
 				}
@@ -96,7 +100,7 @@ class SpillableSubpartitionView implements ResultSubpartitionView {
 
 		// 2) Spilled
 		if (spilledView != null) {
-			return spilledView.getNextBuffer();
+			return countReturnedBuffer(spilledView.getNextBuffer());
 		}
 
 		// 3) Spilling
@@ -122,7 +126,20 @@ class SpillableSubpartitionView implements ResultSubpartitionView {
 					currentBytesRead);
 		}
 
-		return spilledView.getNextBuffer();
+		return countReturnedBuffer(spilledView.getNextBuffer());
+	}
+
+	private Buffer countReturnedBuffer(Buffer buffer) {
+		if (buffer != null) {
+			numberOfReturnedBuffers++;
+		}
+
+		return buffer;
+	}
+
+	@Override
+	public int getBuffersInBacklog() {
+		return Math.max(0, parent.getTotalNumberOfBuffers() - numberOfReturnedBuffers);
 	}
 
 	@Override
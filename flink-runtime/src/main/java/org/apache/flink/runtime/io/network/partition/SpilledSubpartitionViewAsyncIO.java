@@ -85,6 +85,9 @@ class SpilledSubpartitionViewAsyncIO implements ResultSubpartitionView {
 	/** Spilled file size */
 	private final long fileSize;
 
+	/** The number of buffers returned by this view, only accessed by the consuming thread. */
+	private int numberOfReturnedBuffers;
+
 	SpilledSubpartitionViewAsyncIO(
 			ResultSubpartition parent,
 			BufferProvider bufferProvider,
@@ -140,11 +143,17 @@ class SpilledSubpartitionViewAsyncIO implements ResultSubpartitionView {
 		}
 		else {
 			currentBatchSize.decrementAndGet();
+			numberOfReturnedBuffers++;
 		}
 
 		return buffer;
 	}
 
+	@Override
+	public int getBuffersInBacklog() {
+		return Math.max(0, parent.getTotalNumberOfBuffers() - numberOfReturnedBuffers);
+	}
+
 	@Override
 	public boolean registerListener(NotificationListener listener) throws IOException {
 		checkNotNull(listener);
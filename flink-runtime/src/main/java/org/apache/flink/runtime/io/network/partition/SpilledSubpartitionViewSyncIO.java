@@ -57,6 +57,9 @@ class SpilledSubpartitionViewSyncIO implements ResultSubpartitionView {
 	/** Spilled file size */
 	private final long fileSize;
 
+	/** The number of buffers returned by this view. */
+	private int numberOfReturnedBuffers;
+
 	SpilledSubpartitionViewSyncIO(
 			ResultSubpartition parent,
 			int memorySegmentSize,
@@ -91,9 +94,16 @@ class SpilledSubpartitionViewSyncIO implements ResultSubpartitionView {
 
 		fileReader.readInto(buffer);
 
+		numberOfReturnedBuffers++;
+
 		return buffer;
 	}
 
+	@Override
+	public int getBuffersInBacklog() {
+		return Math.max(0, parent.getTotalNumberOfBuffers() - numberOfReturnedBuffers);
+	}
+
 	@Override
 	public boolean registerListener(NotificationListener listener) throws IOException {
 		return false;
@@ -18,30 +18,49 @@
 
 package org.apache.flink.runtime.io.network.partition.consumer;
 
+import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.runtime.metrics.groups.TaskIOMetricGroup;
 import org.apache.flink.runtime.event.TaskEvent;
 import org.apache.flink.runtime.io.network.ConnectionID;
 import org.apache.flink.runtime.io.network.ConnectionManager;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferProvider;
+import org.apache.flink.runtime.io.network.buffer.BufferRecycler;
 import org.apache.flink.runtime.io.network.netty.PartitionRequestClient;
 import org.apache.flink.runtime.io.network.partition.PartitionNotFoundException;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
+import org.apache.flink.runtime.util.event.EventListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
 import static org.apache.flink.util.Preconditions.checkState;
 
 /**
  * An input channel, which requests a remote partition queue.
+ *
+ * <p> The channel uses credit-based flow control: it owns a fixed number of exclusive buffers
+ * and requests additional floating buffers from the buffer pool of its input gate, depending on
+ * the backlog announced by the producer. Each available buffer is announced as credit to the
+ * producer, which only sends as many data buffers as the channel has credit for. Hence, the
+ * network I/O thread never has to wait for a buffer and a slow channel does not block the
+ * other channels sharing the same TCP connection.
+ *
+ * <p> Note: the buffer pool of the input gate must never be called while holding the lock of
+ * the available buffers, because the buffer pool notifies this channel about recycled floating
+ * buffers while holding its own lock.
  */
-public class RemoteInputChannel extends InputChannel {
+public class RemoteInputChannel extends InputChannel implements BufferRecycler, EventListener<Buffer> {
 
 	private static final Logger LOG = LoggerFactory.getLogger(RemoteInputChannel.class);
 
@@ -75,6 +94,30 @@ public class RemoteInputChannel extends InputChannel {
 	 */
 	private int expectedSequenceNumber = 0;
 
+	/** The number of exclusive buffers, which is the initial credit announced to the producer. */
+	private int initialCredit;
+
+	/**
+	 * The available exclusive and floating buffers to receive data into. Buffers are taken by
+	 * the network I/O thread and returned by the receiving task thread.
+	 */
+	private final AvailableBufferQueue bufferQueue = new AvailableBufferQueue();
+
+	/** The number of available buffers, which have not been announced to the producer yet. */
+	private final AtomicInteger unannouncedCredit = new AtomicInteger(0);
+
+	/**
+	 * The number of buffers this channel should hold, which is the backlog of the producer plus
+	 * the initial credit. Guarded by the buffer queue.
+	 */
+	private int numRequiredBuffers;
+
+	/**
+	 * Flag indicating whether this channel is registered at the buffer pool of the input gate
+	 * to wait for a floating buffer. Guarded by the buffer queue.
+	 */
+	private boolean isWaitingForFloatingBuffers;
+
 	public RemoteInputChannel(
 			SingleInputGate inputGate,
 			int channelIndex,
@@ -103,6 +146,25 @@ public class RemoteInputChannel extends InputChannel {
 		this.connectionManager = checkNotNull(connectionManager);
 	}
 
+	/**
+	 * Assigns the exclusive buffers to this channel. They are returned to the network buffer
+	 * pool, when the channel is released and they have been recycled.
+	 */
+	void assignExclusiveSegments(List<MemorySegment> segments) {
+		checkArgument(!segments.isEmpty(), "The number of exclusive buffers should be larger than 0.");
+		checkState(initialCredit == 0, "Bug in input channel setup logic: exclusive buffers have " +
+				"already been assigned to this input channel.");
+
+		synchronized (bufferQueue) {
+			initialCredit = segments.size();
+			numRequiredBuffers = segments.size();
+
+			for (MemorySegment segment : segments) {
+				bufferQueue.addExclusiveBuffer(new Buffer(segment, this), numRequiredBuffers);
+			}
+		}
+	}
+
 	// ------------------------------------------------------------------------
 	// Consume
 	// ------------------------------------------------------------------------
@@ -175,7 +237,7 @@ public class RemoteInputChannel extends InputChannel {
 	// ------------------------------------------------------------------------
 
 	@Override
-	boolean isReleased() {
+	public boolean isReleased() {
 		return isReleased.get();
 	}
 
@@ -185,11 +247,13 @@ public class RemoteInputChannel extends InputChannel {
 	}
 
 	/**
-	 * Releases all received buffers and closes the partition request client.
+	 * Releases all received and available buffers and closes the partition request client.
 	 */
 	@Override
 	void releaseAllResources() throws IOException {
 		if (isReleased.compareAndSet(false, true)) {
+			// Exclusive buffers of the received ones are returned to the network buffer pool
+			// by recycle(), because the released flag has been set.
 			synchronized (receivedBuffers) {
 				Buffer buffer;
 				while ((buffer = receivedBuffers.poll()) != null) {
@@ -197,6 +261,22 @@ public class RemoteInputChannel extends InputChannel {
 				}
 			}
 
+			final List<MemorySegment> exclusiveSegments = new ArrayList<MemorySegment>();
+			final List<Buffer> floatingBuffers = new ArrayList<Buffer>();
+
+			synchronized (bufferQueue) {
+				bufferQueue.releaseAll(exclusiveSegments, floatingBuffers);
+			}
+
+			// Return the buffers outside of the lock, see the class comment
+			for (Buffer floatingBuffer : floatingBuffers) {
+				floatingBuffer.recycle();
+			}
+
+			if (!exclusiveSegments.isEmpty()) {
+				inputGate.returnExclusiveSegments(exclusiveSegments);
+			}
+
 			// The released flag has to be set before closing the connection to ensure that
 			// buffers received concurrently with closing are properly recycled.
 			if (partitionRequestClient != null) {
@@ -231,12 +311,237 @@ public class RemoteInputChannel extends InputChannel {
 		return id;
 	}
 
-	public BufferProvider getBufferProvider() throws IOException {
-		if (isReleased.get()) {
-			return null;
+	/**
+	 * Returns the initial credit, which is announced to the producer with the partition request.
+	 */
+	public int getInitialCredit() {
+		return initialCredit;
+	}
+
+	/**
+	 * Takes an available buffer to receive a data buffer of the producer.
+	 *
+	 * @return An available buffer or <code>null</code> if the channel has been released.
+	 * @throws IllegalStateException If no buffer is available, because the producer has
+	 * 		sent more buffers than it had credit for.
+	 */
+	public Buffer requestBuffer() {
+		synchronized (bufferQueue) {
+			if (isReleased.get()) {
+				return null;
+			}
+
+			Buffer buffer = bufferQueue.takeBuffer();
+
+			if (buffer == null) {
+				throw new IllegalStateException("No buffer available in credit-based input channel " + this + ".");
+			}
+
+			return buffer;
+		}
+	}
+
+	/**
+	 * Returns the credit, which has not been announced to the producer yet, and resets it.
+	 * This is called by the network I/O thread before announcing the credit.
+	 */
+	public int getAndResetUnannouncedCredit() {
+		return unannouncedCredit.getAndSet(0);
+	}
+
+	/**
+	 * Returns the number of buffers this channel can currently receive data into.
+	 */
+	public int getNumberOfAvailableBuffers() {
+		synchronized (bufferQueue) {
+			return bufferQueue.getAvailableBufferSize();
+		}
+	}
+
+	/**
+	 * Recycles an exclusive buffer. The buffer is either announced as new credit or, if the
+	 * channel already holds enough buffers, a floating buffer is given back to the buffer pool
+	 * instead.
+	 */
+	@Override
+	public void recycle(MemorySegment segment) {
+		final Buffer floatingBuffer;
+
+		synchronized (bufferQueue) {
+			// The released flag has to be checked under the lock, so that no buffer is added
+			// to the queue after it has been released.
+			if (isReleased.get()) {
+				floatingBuffer = null;
+			}
+			else {
+				floatingBuffer = bufferQueue.addExclusiveBuffer(new Buffer(segment, this), numRequiredBuffers);
+				segment = null;
+			}
+		}
+
+		if (segment != null) {
+			try {
+				inputGate.returnExclusiveSegments(Collections.singletonList(segment));
+			}
+			catch (Throwable t) {
+				LOG.error("Failed to return an exclusive buffer of {} to the network buffer pool.", this, t);
+			}
+		}
+		else if (floatingBuffer != null) {
+			floatingBuffer.recycle();
+		}
+		else {
+			addUnannouncedCredit(1);
+		}
+	}
+
+	/**
+	 * Notification of the buffer pool of the input gate about an available floating buffer,
+	 * which is called while holding the lock of the buffer pool.
+	 */
+	@Override
+	public void onEvent(Buffer buffer) {
+		boolean recycleBuffer = buffer != null;
+		boolean needMoreBuffers = false;
+
+		try {
+			synchronized (bufferQueue) {
+				isWaitingForFloatingBuffers = false;
+
+				if (buffer == null || isReleased.get() || bufferQueue.getAvailableBufferSize() >= numRequiredBuffers) {
+					// The buffer pool has been destroyed or the buffer is not needed anymore
+					return;
+				}
+
+				bufferQueue.addFloatingBuffer(buffer);
+				recycleBuffer = false;
+
+				if (bufferQueue.getAvailableBufferSize() < numRequiredBuffers) {
+					isWaitingForFloatingBuffers = true;
+					needMoreBuffers = true;
+				}
+			}
+
+			addUnannouncedCredit(1);
+
+			if (needMoreBuffers && !inputGate.getBufferProvider().addListener(this)) {
+				// There are buffers available in the pool again, they are requested with the
+				// next backlog announcement of the producer
+				synchronized (bufferQueue) {
+					isWaitingForFloatingBuffers = false;
+				}
+			}
+		}
+		finally {
+			if (recycleBuffer) {
+				buffer.recycle();
+			}
+		}
+	}
+
+	/**
+	 * Requests floating buffers from the buffer pool of the input gate, so that the channel
+	 * holds enough buffers for the backlog of the producer. If the buffer pool has no buffer
+	 * available, the channel waits for a buffer notification.
+	 *
+	 * <p> Only called by the network I/O thread.
+	 */
+	void onSenderBacklog(int backlog) throws IOException {
+		final BufferProvider bufferProvider = inputGate.getBufferProvider();
+
+		int numRequestedBuffers = 0;
+
+		while (true) {
+			synchronized (bufferQueue) {
+				numRequiredBuffers = backlog + initialCredit;
+
+				if (isReleased.get() || isWaitingForFloatingBuffers
+						|| bufferQueue.getAvailableBufferSize() >= numRequiredBuffers) {
+					break;
+				}
+
+				// Set before registering the listener, which might be notified right away
+				isWaitingForFloatingBuffers = true;
+			}
+
+			final Buffer buffer;
+
+			try {
+				buffer = bufferProvider.requestBuffer();
+			}
+			catch (IllegalStateException e) {
+				// The input gate has been released concurrently
+				if (bufferProvider.isDestroyed()) {
+					break;
+				}
+
+				throw e;
+			}
+
+			if (buffer == null) {
+				if (bufferProvider.addListener(this)) {
+					break;
+				}
+
+				synchronized (bufferQueue) {
+					isWaitingForFloatingBuffers = false;
+				}
+
+				if (bufferProvider.isDestroyed()) {
+					break;
+				}
+			}
+			else {
+				boolean added = false;
+
+				synchronized (bufferQueue) {
+					isWaitingForFloatingBuffers = false;
+
+					if (!isReleased.get()) {
+						bufferQueue.addFloatingBuffer(buffer);
+						numRequestedBuffers++;
+						added = true;
+					}
+				}
+
+				if (!added) {
+					buffer.recycle();
+				}
+			}
 		}
 
-		return inputGate.getBufferProvider();
+		addUnannouncedCredit(numRequestedBuffers);
+	}
+
+	/**
+	 * Adds available buffers to the unannounced credit and notifies the network I/O thread to
+	 * announce it, unless an announcement is pending already.
+	 */
+	private void addUnannouncedCredit(int credit) {
+		if (credit > 0 && unannouncedCredit.getAndAdd(credit) == 0) {
+			notifyCreditAvailable();
+		}
+	}
+
+	private void notifyCreditAvailable() {
+		final PartitionRequestClient client = partitionRequestClient;
+
+		// Without a client, the credit is announced with the (retriggered) partition request
+		if (client != null && !isReleased.get()) {
+			client.notifyCreditAvailable(this);
+		}
+	}
+
+	public void onBuffer(Buffer buffer, int sequenceNumber, int backlog) throws IOException {
+		onBuffer(buffer, sequenceNumber);
+
+		onSenderBacklog(backlog);
+	}
+
+	public void onEmptyBuffer(int sequenceNumber, int backlog) throws IOException {
+		onEmptyBuffer(sequenceNumber);
+
+		onSenderBacklog(backlog);
 	}
 
 	public void onBuffer(Buffer buffer, int sequenceNumber) {
@@ -287,6 +592,68 @@ public class RemoteInputChannel extends InputChannel {
 		setError(cause);
 	}
 
+	/**
+	 * Manages the exclusive and floating buffers of this channel. Exclusive buffers are taken
+	 * first, because floating buffers are returned to the buffer pool when they are not needed
+	 * anymore.
+	 */
+	private static class AvailableBufferQueue {
+
+		/** The floating buffers requested from the buffer pool of the input gate */
+		private final ArrayDeque<Buffer> floatingBuffers = new ArrayDeque<Buffer>();
+
+		/** The exclusive buffers assigned to the channel */
+		private final ArrayDeque<Buffer> exclusiveBuffers = new ArrayDeque<Buffer>();
+
+		/**
+		 * Adds an exclusive buffer and returns a floating buffer to give back to the buffer
+		 * pool, if the queue holds more buffers than required. Otherwise returns
+		 * <code>null</code>, in which case the number of available buffers has increased.
+		 */
+		Buffer addExclusiveBuffer(Buffer buffer, int numRequiredBuffers) {
+			exclusiveBuffers.add(buffer);
+
+			if (getAvailableBufferSize() > numRequiredBuffers) {
+				return floatingBuffers.poll();
+			}
+
+			return null;
+		}
+
+		void addFloatingBuffer(Buffer buffer) {
+			floatingBuffers.add(buffer);
+		}
+
+		Buffer takeBuffer() {
+			Buffer buffer = exclusiveBuffers.poll();
+
+			if (buffer == null) {
+				buffer = floatingBuffers.poll();
+			}
+
+			return buffer;
+		}
+
+		/**
+		 * Moves the memory segments of the exclusive buffers and the floating buffers to the
+		 * given lists, which are returned to the pools outside of the lock.
+		 */
+		void releaseAll(List<MemorySegment> exclusiveSegments, List<Buffer> floatingBuffersToRecycle) {
+			Buffer buffer;
+			while ((buffer = floatingBuffers.poll()) != null) {
+				floatingBuffersToRecycle.add(buffer);
+			}
+
+			while ((buffer = exclusiveBuffers.poll()) != null) {
+				exclusiveSegments.add(buffer.getMemorySegment());
+			}
+		}
+
+		int getAvailableBufferSize() {
+			return floatingBuffers.size() + exclusiveBuffers.size();
+		}
+	}
+
 	public static class BufferReorderingException extends IOException {
 
 		private static final long serialVersionUID = -888282210356266816L;
@@ -20,6 +20,7 @@ package org.apache.flink.runtime.io.network.partition.consumer;
 
 import com.google.common.collect.Maps;
 import org.apache.flink.api.common.JobID;
+import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.runtime.metrics.groups.TaskIOMetricGroup;
 import org.apache.flink.runtime.taskmanager.TaskActions;
 import org.apache.flink.runtime.deployment.InputChannelDeploymentDescriptor;
@@ -34,6 +35,7 @@ import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferPool;
 import org.apache.flink.runtime.io.network.buffer.BufferProvider;
+import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
 import org.apache.flink.runtime.jobgraph.DistributionPattern;
 import org.apache.flink.runtime.jobgraph.IntermediateDataSetID;
@@ -149,6 +151,12 @@ public class SingleInputGate implements InputGate {
 	 */
 	private BufferPool bufferPool;
 
+	/** Global network buffer pool to request and recycle exclusive buffers of remote channels. */
+	private NetworkBufferPool networkBufferPool;
+
+	/** The number of exclusive buffers of each remote input channel. */
+	private int networkBuffersPerChannel;
+
 	private boolean hasReceivedAllEndOfPartitionEvents;
 
 	/** Flag indicating whether partitions have been requested. */
@@ -228,10 +236,9 @@ public class SingleInputGate implements InputGate {
 
 	public void setBufferPool(BufferPool bufferPool) {
 		// Sanity checks
-		checkArgument(numberOfInputChannels == bufferPool.getNumberOfRequiredMemorySegments(),
+		checkArgument(bufferPool.getNumberOfRequiredMemorySegments() >= 1,
 				"Bug in input gate setup logic: buffer pool has not enough guaranteed buffers " +
-						"for this input gate. Input gates require at least as many buffers as " +
-						"there are input channels.");
+						"for this input gate. Input gates require at least one floating buffer.");
 
 		checkState(this.bufferPool == null, "Bug in input gate setup logic: buffer pool has" +
 				"already been set for this input gate.");
@@ -239,6 +246,40 @@ public class SingleInputGate implements InputGate {
 		this.bufferPool = checkNotNull(bufferPool);
 	}
 
+	/**
+	 * Assigns exclusive buffers to all remote input channels directly for credit-based mode.
+	 * Remote channels, which are created later on by updating an unknown channel, get their
+	 * exclusive buffers from the same network buffer pool.
+	 *
+	 * @param networkBufferPool The global pool to request and recycle exclusive buffers
+	 * @param networkBuffersPerChannel The number of exclusive buffers for each channel
+	 */
+	public void assignExclusiveSegments(NetworkBufferPool networkBufferPool, int networkBuffersPerChannel) throws IOException {
+		checkArgument(networkBuffersPerChannel >= 1, "Remote input channels require at least one exclusive buffer.");
+
+		synchronized (requestLock) {
+			checkState(this.networkBufferPool == null, "Bug in input gate setup logic: global buffer pool has" +
+					"already been set for this input gate.");
+
+			this.networkBufferPool = checkNotNull(networkBufferPool);
+			this.networkBuffersPerChannel = networkBuffersPerChannel;
+
+			for (InputChannel inputChannel : inputChannels.values()) {
+				if (inputChannel instanceof RemoteInputChannel) {
+					((RemoteInputChannel) inputChannel).assignExclusiveSegments(
+							networkBufferPool.requestMemorySegments(networkBuffersPerChannel));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the exclusive buffers of a released remote input channel to the network buffer pool.
+	 */
+	void returnExclusiveSegments(List<MemorySegment> segments) throws IOException {
+		networkBufferPool.recycleMemorySegments(segments);
+	}
+
 	public void setInputChannel(IntermediateResultPartitionID partitionId, InputChannel inputChannel) {
 		synchronized (requestLock) {
 			if (inputChannels.put(checkNotNull(partitionId), checkNotNull(inputChannel)) == null
@@ -273,6 +314,11 @@ public class SingleInputGate implements InputGate {
 				}
 				else if (partitionLocation.isRemote()) {
 					newChannel = unknownChannel.toRemoteInputChannel(partitionLocation.getConnectionId());
+
+					if (networkBufferPool != null) {
+						((RemoteInputChannel) newChannel).assignExclusiveSegments(
+								networkBufferPool.requestMemorySegments(networkBuffersPerChannel));
+					}
 				}
 				else {
 					throw new IllegalStateException("Tried to update unknown channel with unknown channel.");
@@ -18,6 +18,7 @@
 
 package org.apache.flink.runtime.jobgraph.tasks;
 
+import org.apache.flink.runtime.checkpoint.CheckpointDeclineReason;
 import org.apache.flink.runtime.checkpoint.CheckpointMetaData;
 import org.apache.flink.runtime.state.TaskStateHandles;
 
@@ -60,6 +61,19 @@ public interface StatefulTask {
 	 */
 	void triggerCheckpointOnBarrier(CheckpointMetaData checkpointMetaData) throws Exception;
 
+	/**
+	 * This method is called when the alignment of the checkpoint barriers of the input streams
+	 * is aborted, for example because the alignment buffered too much data, or because an upstream
+	 * task cancelled the checkpoint. The checkpoint cannot complete and should be declined. Tasks
+	 * with outputs should also cancel the checkpoint for their downstream tasks.
+	 *
+	 * @param checkpointMetaData Meta data for about this checkpoint
+	 * @param reason The reason why the alignment was aborted
+	 *
+	 * @throws Exception Exceptions thrown while declining the checkpoint are forwarded.
+	 */
+	void abortCheckpointOnBarrier(CheckpointMetaData checkpointMetaData, CheckpointDeclineReason reason) throws Exception;
+
 	/**
 	 * Invoked when a checkpoint has been completed, i.e., when the checkpoint coordinator has received
 	 * the notification from all participating tasks.
@@ -19,6 +19,7 @@
 package org.apache.flink.runtime.messages.checkpoint;
 
 import org.apache.flink.api.common.JobID;
+import org.apache.flink.runtime.checkpoint.CheckpointDeclineReason;
 import org.apache.flink.runtime.executiongraph.ExecutionAttemptID;
 
 /**
@@ -34,9 +35,23 @@ public class DeclineCheckpoint extends AbstractCheckpointMessage implements java
 	/** The timestamp associated with the checkpoint */
 	private final long timestamp;
 
+	/** The reason why the task declined the checkpoint, may be null */
+	private final CheckpointDeclineReason reason;
+
 	public DeclineCheckpoint(JobID job, ExecutionAttemptID taskExecutionId, long checkpointId, long timestamp) {
+		this(job, taskExecutionId, checkpointId, timestamp, null);
+	}
+
+	public DeclineCheckpoint(
+			JobID job,
+			ExecutionAttemptID taskExecutionId,
+			long checkpointId,
+			long timestamp,
+			CheckpointDeclineReason reason) {
+
 		super(job, taskExecutionId, checkpointId);
 		this.timestamp = timestamp;
+		this.reason = reason;
 	}
 
 	// --------------------------------------------------------------------------------------------
@@ -45,6 +60,15 @@ public class DeclineCheckpoint extends AbstractCheckpointMessage implements java
 		return timestamp;
 	}
 
+	/**
+	 * Gets the reason why the task declined the checkpoint.
+	 *
+	 * @return The reason of the decline, or null, if the task did not give a reason.
+	 */
+	public CheckpointDeclineReason getReason() {
+		return reason;
+	}
+
 	// --------------------------------------------------------------------------------------------
 
 	@Override
@@ -59,7 +83,7 @@ public class DeclineCheckpoint extends AbstractCheckpointMessage implements java
 		}
 		else if (o instanceof DeclineCheckpoint) {
 			DeclineCheckpoint that = (DeclineCheckpoint) o;
-			return this.timestamp == that.timestamp && super.equals(o);
+			return this.timestamp == that.timestamp && this.reason == that.reason && super.equals(o);
 		}
 		else {
 			return false;
@@ -68,7 +92,7 @@ public class DeclineCheckpoint extends AbstractCheckpointMessage implements java
 
 	@Override
 	public String toString() {
-		return String.format("Declined Checkpoint %d@%d for (%s/%s)",
-				getCheckpointId(), getTimestamp(), getJob(), getTaskExecutionId());
+		return String.format("Declined Checkpoint %d@%d for (%s/%s): %s",
+				getCheckpointId(), getTimestamp(), getJob(), getTaskExecutionId(), reason);
 	}
 }
@@ -20,10 +20,14 @@ package org.apache.flink.runtime.state;
 
 import org.apache.flink.api.common.ExecutionConfig;
 import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.common.state.AggregatingState;
+import org.apache.flink.api.common.state.AggregatingStateDescriptor;
 import org.apache.flink.api.common.state.FoldingState;
 import org.apache.flink.api.common.state.FoldingStateDescriptor;
 import org.apache.flink.api.common.state.ListState;
 import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
 import org.apache.flink.api.common.state.MergingState;
 import org.apache.flink.api.common.state.ReducingState;
 import org.apache.flink.api.common.state.ReducingStateDescriptor;
@@ -160,6 +164,31 @@ public abstract class AbstractKeyedStateBackend<K>
 	 */
 	protected abstract <N, T, ACC> FoldingState<T, ACC> createFoldingState(TypeSerializer<N> namespaceSerializer, FoldingStateDescriptor<T, ACC> stateDesc) throws Exception;
 
+	/**
+	 * Creates and returns a new {@link AggregatingState}.
+	 *
+	 * @param namespaceSerializer TypeSerializer for the state namespace.
+	 * @param stateDesc The {@code StateDescriptor} that contains the name of the state.
+	 *
+	 * @param <N> The type of the namespace.
+	 * @param <IN> Type of the values added to the state
+	 * @param <ACC> Type of the accumulator in the state
+	 * @param <OUT> Type of the values returned from the state
+	 */
+	protected abstract <N, IN, ACC, OUT> AggregatingState<IN, OUT> createAggregatingState(TypeSerializer<N> namespaceSerializer, AggregatingStateDescriptor<IN, ACC, OUT> stateDesc) throws Exception;
+
+	/**
+	 * Creates and returns a new {@link MapState}.
+	 *
+	 * @param namespaceSerializer TypeSerializer for the state namespace.
+	 * @param stateDesc The {@code StateDescriptor} that contains the name of the state.
+	 *
+	 * @param <N> The type of the namespace.
+	 * @param <UK> Type of the keys in the state
+	 * @param <UV> Type of the values in the state	 *
+	 */
+	protected abstract <N, UK, UV> MapState<UK, UV> createMapState(TypeSerializer<N> namespaceSerializer, MapStateDescriptor<UK, UV> stateDesc) throws Exception;
+
 	/**
 	 * @see KeyedStateBackend
 	 */
@@ -265,6 +294,16 @@ public abstract class AbstractKeyedStateBackend<K>
 				return AbstractKeyedStateBackend.this.createFoldingState(namespaceSerializer, stateDesc);
 			}
 
+			@Override
+			public <IN, ACC, OUT> AggregatingState<IN, OUT> createAggregatingState(AggregatingStateDescriptor<IN, ACC, OUT> stateDesc) throws Exception {
+				return AbstractKeyedStateBackend.this.createAggregatingState(namespaceSerializer, stateDesc);
+			}
+
+			@Override
+			public <UK, UV> MapState<UK, UV> createMapState(MapStateDescriptor<UK, UV> stateDesc) throws Exception {
+				return AbstractKeyedStateBackend.this.createMapState(namespaceSerializer, stateDesc);
+			}
+
 		});
 
 		KvState kvState = (KvState) state;
@@ -312,6 +351,11 @@ public abstract class AbstractKeyedStateBackend<K>
 			if (result != null) {
 				state.add(result);
 			}
+		} else if (stateDescriptor instanceof AggregatingStateDescriptor) {
+			// the accumulators are not accessible through the state, the state merges them itself
+			MergeableKvState<N> state = (MergeableKvState<N>) getPartitionedState(target, namespaceSerializer, stateDescriptor);
+			state.mergeNamespaces(target, sources);
+			state.setCurrentNamespace(target);
 		} else if (stateDescriptor instanceof ListStateDescriptor) {
 			ListState<Object> state = (ListState) getPartitionedState(target, namespaceSerializer, stateDescriptor);
 			KvState kvState = (KvState) state;
@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state;
+
+import org.apache.flink.util.Preconditions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A handle to the keyed state of an incremental snapshot. The state consists of a set of files,
+ * each identified by its name in the local snapshot directory of the backend, plus a meta data
+ * stream that is accessed through the methods of {@link KeyGroupsStateHandle}. The key group
+ * offsets of an incremental snapshot are not meaningful, the files always contain all key groups
+ * of the range of the backend that created the snapshot.
+ *
+ * <p>The files are divided into private files, which belong to this snapshot only, and shared
+ * files, which may also be referenced by other snapshots of the same backend. Shared files are
+ * only discarded through a {@link SharedStateRegistry} once no registered snapshot references
+ * them anymore.
+ *
+ * <p>A handle whose shared state was never registered, for example the snapshot of a declined,
+ * expired or late acknowledged checkpoint, discards the shared files that were created for this
+ * snapshot, because no other snapshot can reference them yet. Shared files that the snapshot
+ * reuses from earlier snapshots are never discarded by an unregistered handle. Once the shared
+ * state is registered, the handle gives up the ownership of its created files to the registry.
+ */
+public class IncrementalKeyGroupsStateHandle extends KeyGroupsStateHandle {
+
+	private static final long serialVersionUID = 4081913652254161489L;
+
+	/** The id of the checkpoint for which the snapshot was taken */
+	private final long checkpointId;
+
+	/** The files that may be shared with other snapshots, by local file name */
+	private final Map<String, StreamStateHandle> sharedState;
+
+	/** The files that belong to this snapshot only, by local file name */
+	private final Map<String, StreamStateHandle> privateState;
+
+	/** The shared files that were created for this snapshot and are owned by no registry yet */
+	private Set<String> createdSharedState;
+
+	/** The registry in which the shared state is registered, null if it is not registered */
+	private transient SharedStateRegistry sharedStateRegistry;
+
+	public IncrementalKeyGroupsStateHandle(
+			KeyGroupRange keyGroupRange,
+			long checkpointId,
+			StreamStateHandle metaStateHandle,
+			Map<String, StreamStateHandle> sharedState,
+			Map<String, StreamStateHandle> privateState) {
+
+		this(keyGroupRange, checkpointId, metaStateHandle, sharedState, privateState,
+				Collections.<String>emptySet());
+	}
+
+	public IncrementalKeyGroupsStateHandle(
+			KeyGroupRange keyGroupRange,
+			long checkpointId,
+			StreamStateHandle metaStateHandle,
+			Map<String, StreamStateHandle> sharedState,
+			Map<String, StreamStateHandle> privateState,
+			Set<String> createdSharedState) {
+
+		super(new KeyGroupRangeOffsets(keyGroupRange), metaStateHandle);
+
+		this.checkpointId = checkpointId;
+		this.sharedState = Preconditions.checkNotNull(sharedState);
+		this.privateState = Preconditions.checkNotNull(privateState);
+
+		Preconditions.checkArgument(sharedState.keySet().containsAll(createdSharedState),
+				"The created shared files must be shared files of the snapshot.");
+		this.createdSharedState = new HashSet<>(createdSharedState);
+	}
+
+	public long getCheckpointId() {
+		return checkpointId;
+	}
+
+	public KeyGroupRange getKeyGroupRange() {
+		return getGroupRangeOffsets().getKeyGroupRange();
+	}
+
+	public StreamStateHandle getMetaStateHandle() {
+		return getDelegateStateHandle();
+	}
+
+	public Map<String, StreamStateHandle> getSharedState() {
+		return sharedState;
+	}
+
+	public Map<String, StreamStateHandle> getPrivateState() {
+		return privateState;
+	}
+
+	/**
+	 * Returns the local names of the shared files that were created for this snapshot and that
+	 * this handle still owns. The set is empty once the shared state was registered.
+	 */
+	public Set<String> getCreatedSharedState() {
+		return Collections.unmodifiableSet(createdSharedState);
+	}
+
+	@Override
+	public IncrementalKeyGroupsStateHandle getKeyGroupIntersection(KeyGroupRange keyGroupRange) {
+		return new IncrementalKeyGroupsStateHandle(
+				getKeyGroupRange().getIntersection(keyGroupRange),
+				checkpointId,
+				getMetaStateHandle(),
+				sharedState,
+				privateState);
+	}
+
+	// ------------------------------------------------------------------------
+	//  shared state
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Registers all shared files of this snapshot in the given registry. Registering again with
+	 * the same registry has no effect. Registering with another registry moves the references to
+	 * the new registry, the previous registry is expected to be no longer used.
+	 *
+	 * <p>From then on, the registry decides when the created shared files are discarded.
+	 *
+	 * @param registry The registry that counts the references to the shared files.
+	 */
+	public void registerSharedState(SharedStateRegistry registry) {
+		Preconditions.checkNotNull(registry);
+
+		if (sharedStateRegistry == registry) {
+			return;
+		}
+
+		for (StreamStateHandle stateHandle : sharedState.values()) {
+			registry.register(stateHandle);
+		}
+
+		sharedStateRegistry = registry;
+		createdSharedState = Collections.emptySet();
+	}
+
+	/**
+	 * Returns whether the shared files of this snapshot are registered in a registry.
+	 */
+	public boolean isSharedStateRegistered() {
+		return sharedStateRegistry != null;
+	}
+
+	/**
+	 * Discards the meta data and the private files of this snapshot. If the shared files are
+	 * registered, their references are released, which discards the shared files that are no
+	 * longer referenced by any snapshot. Otherwise, the shared files that were created for this
+	 * snapshot are discarded.
+	 */
+	@Override
+	public void discardState() throws Exception {
+		List<StateObject> toDiscard = new ArrayList<>(privateState.size() + createdSharedState.size() + 1);
+		toDiscard.add(getMetaStateHandle());
+		toDiscard.addAll(privateState.values());
+
+		if (sharedStateRegistry == null) {
+			for (String fileName : createdSharedState) {
+				toDiscard.add(sharedState.get(fileName));
+			}
+		}
+		createdSharedState = Collections.emptySet();
+
+		Exception exception = null;
+
+		try {
+			StateUtil.bestEffortDiscardAllStateObjects(toDiscard);
+		} catch (Exception e) {
+			exception = e;
+		}
+
+		final SharedStateRegistry registry = sharedStateRegistry;
+		sharedStateRegistry = null;
+
+		if (registry != null) {
+			for (StreamStateHandle stateHandle : sharedState.values()) {
+				try {
+					registry.unregister(stateHandle);
+				} catch (Exception e) {
+					if (exception == null) {
+						exception = new Exception(e);
+					}
+					exception.addSuppressed(e);
+				}
+			}
+		}
+
+		if (exception != null) {
+			throw exception;
+		}
+	}
+
+	@Override
+	public long getStateSize() throws IOException {
+		long size = getMetaStateHandle().getStateSize();
+
+		for (StreamStateHandle stateHandle : sharedState.values()) {
+			size += stateHandle.getStateSize();
+		}
+
+		for (StreamStateHandle stateHandle : privateState.values()) {
+			size += stateHandle.getStateSize();
+		}
+
+		return size;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+
+		if (!(o instanceof IncrementalKeyGroupsStateHandle) || !super.equals(o)) {
+			return false;
+		}
+
+		IncrementalKeyGroupsStateHandle that = (IncrementalKeyGroupsStateHandle) o;
+
+		return checkpointId == that.checkpointId &&
+				sharedState.equals(that.sharedState) &&
+				privateState.equals(that.privateState);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = super.hashCode();
+		result = 31 * result + (int) (checkpointId ^ (checkpointId >>> 32));
+		result = 31 * result + sharedState.hashCode();
+		result = 31 * result + privateState.hashCode();
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "IncrementalKeyGroupsStateHandle{" +
+				"keyGroupRange=" + getKeyGroupRange() +
+				", checkpointId=" + checkpointId +
+				", metaData=" + getMetaStateHandle() +
+				", sharedState=" + sharedState +
+				", privateState=" + privateState +
+				'}';
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state;
+
+import java.util.Collection;
+
+/**
+ * A {@link KvState} that can merge the state of several namespaces by itself.
+ *
+ * <p>This is needed for states whose value as seen by users differs from the value that they
+ * store, like the {@link org.apache.flink.api.common.state.AggregatingState}, which returns the
+ * result of the aggregation but stores the accumulator. Such states cannot be merged through
+ * their user-facing methods.
+ *
+ * @param <N> The type of the namespace.
+ */
+public interface MergeableKvState<N> extends KvState<N> {
+
+	/**
+	 * Merges the state of the current key for the given source namespaces into the state of
+	 * the target namespace, and clears the state of the source namespaces. The current namespace
+	 * is undefined after this call.
+	 *
+	 * @param target The target namespace where the merged state should be stored.
+	 * @param sources The source namespaces whose state should be merged.
+	 *
+	 * @throws Exception The method may forward exception thrown internally (by I/O or functions).
+	 */
+	void mergeNamespaces(N target, Collection<N> sources) throws Exception;
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state;
+
+import org.apache.flink.util.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A registry that counts the references to state handles that are shared between checkpoints,
+ * for example the files of incremental snapshots. A shared state handle is only discarded once
+ * the last checkpoint that references it unregisters it.
+ *
+ * <p>State handles are identified by equality, so a handle that is referenced by several
+ * checkpoints must be equal in all of them.
+ *
+ * <p>This class is thread-safe.
+ */
+public class SharedStateRegistry {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SharedStateRegistry.class);
+
+	/** The number of references to each registered state handle */
+	private final Map<StreamStateHandle, Integer> referenceCounts = new HashMap<>();
+
+	/**
+	 * Registers a reference to the given state handle.
+	 *
+	 * @param stateHandle The shared state handle that is referenced.
+	 * @return The number of references to the handle after the registration.
+	 */
+	public int register(StreamStateHandle stateHandle) {
+		Preconditions.checkNotNull(stateHandle);
+
+		synchronized (referenceCounts) {
+			Integer count = referenceCounts.get(stateHandle);
+			int newCount = count == null ? 1 : count + 1;
+			referenceCounts.put(stateHandle, newCount);
+			return newCount;
+		}
+	}
+
+	/**
+	 * Releases a reference to the given state handle. If this was the last reference, the state
+	 * handle is discarded.
+	 *
+	 * @param stateHandle The shared state handle that is no longer referenced.
+	 * @return The number of references to the handle after the release.
+	 * @throws Exception Thrown if the state handle could not be discarded.
+	 */
+	public int unregister(StreamStateHandle stateHandle) throws Exception {
+		Preconditions.checkNotNull(stateHandle);
+
+		final int newCount;
+
+		synchronized (referenceCounts) {
+			Integer count = referenceCounts.get(stateHandle);
+
+			if (count == null) {
+				LOG.warn("Attempt to unregister the unknown shared state handle {}.", stateHandle);
+				return 0;
+			}
+
+			newCount = count - 1;
+
+			if (newCount == 0) {
+				referenceCounts.remove(stateHandle);
+			} else {
+				referenceCounts.put(stateHandle, newCount);
+			}
+		}
+
+		if (newCount == 0) {
+			stateHandle.discardState();
+		}
+
+		return newCount;
+	}
+
+	/**
+	 * Returns the number of references to the given state handle, 0 if it is not registered.
+	 */
+	public int getReferenceCount(StreamStateHandle stateHandle) {
+		synchronized (referenceCounts) {
+			Integer count = referenceCounts.get(stateHandle);
+			return count == null ? 0 : count;
+		}
+	}
+
+	/**
+	 * Returns the number of distinct state handles that are registered.
+	 */
+	public int getNumberOfRegisteredHandles() {
+		synchronized (referenceCounts) {
+			return referenceCounts.size();
+		}
+	}
+}
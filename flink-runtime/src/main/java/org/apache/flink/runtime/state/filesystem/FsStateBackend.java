@@ -66,6 +66,9 @@ public class FsStateBackend extends AbstractStateBackend {
 
 	/** State below this size will be stored as part of the metadata, rather than in files */
 	private final int fileStateThreshold;
+
+	/** Whether keyed state is snapshotted asynchronously, see {@link HeapKeyedStateBackend} */
+	private final boolean asynchronousSnapshots;
 	
 	/**
 	 * Creates a new state backend that stores its checkpoint data in the file system and location
@@ -143,6 +146,31 @@ public class FsStateBackend extends AbstractStateBackend {
 	 * @throws IOException Thrown, if no file system can be found for the scheme in the URI.
 	 */
 	public FsStateBackend(URI checkpointDataUri, int fileStateSizeThreshold) throws IOException {
+		this(checkpointDataUri, fileStateSizeThreshold, false);
+	}
+
+	/**
+	 * Creates a new state backend that stores its checkpoint data in the file system and location
+	 * defined by the given URI.
+	 *
+	 * <p>A file system for the file system scheme in the URI (e.g., 'file://', 'hdfs://', or 'S3://')
+	 * must be accessible via {@link FileSystem#get(URI)}.
+	 *
+	 * <p>For a state backend targeting HDFS, this means that the URI must either specify the authority
+	 * (host and port), or that the Hadoop configuration that describes that information must be in the
+	 * classpath.
+	 *
+	 * @param checkpointDataUri The URI describing the filesystem (scheme and optionally authority),
+	 *                          and the path to the checkpoint data directory.
+	 * @param fileStateSizeThreshold State up to this size will be stored as part of the metadata,
+	 *                             rather than in files
+	 * @param asynchronousSnapshots Switch to enable asynchronous snapshots of keyed state. The
+	 *                              state is then kept in copy-on-write tables, and written to the
+	 *                              checkpoint files outside of the synchronous part of the checkpoint.
+	 *
+	 * @throws IOException Thrown, if no file system can be found for the scheme in the URI.
+	 */
+	public FsStateBackend(URI checkpointDataUri, int fileStateSizeThreshold, boolean asynchronousSnapshots) throws IOException {
 		if (fileStateSizeThreshold < 0) {
 			throw new IllegalArgumentException("The threshold for file state size must be zero or larger.");
 		}
@@ -151,7 +179,8 @@ public class FsStateBackend extends AbstractStateBackend {
 				MAX_FILE_STATE_THRESHOLD);
 		}
 		this.fileStateThreshold = fileStateSizeThreshold;
-		
+		this.asynchronousSnapshots = asynchronousSnapshots;
+
 		this.basePath = validateAndNormalizeUri(checkpointDataUri);
 	}
 
@@ -165,6 +194,15 @@ public class FsStateBackend extends AbstractStateBackend {
 		return basePath;
 	}
 
+	/**
+	 * Gets whether keyed state is snapshotted asynchronously.
+	 *
+	 * @return True, if keyed state is snapshotted asynchronously.
+	 */
+	public boolean isAsynchronousSnapshots() {
+		return asynchronousSnapshots;
+	}
+
 	// ------------------------------------------------------------------------
 	//  initialization and cleanup
 	// ------------------------------------------------------------------------
@@ -188,7 +226,8 @@ public class FsStateBackend extends AbstractStateBackend {
 				keySerializer,
 				env.getUserClassLoader(),
 				numberOfKeyGroups,
-				keyGroupRange);
+				keyGroupRange,
+				asynchronousSnapshots);
 	}
 
 	@Override
@@ -207,12 +246,13 @@ public class FsStateBackend extends AbstractStateBackend {
 				env.getUserClassLoader(),
 				numberOfKeyGroups,
 				keyGroupRange,
+				asynchronousSnapshots,
 				restoredState);
 	}
 
 	@Override
 	public String toString() {
-		return "File State Backend @ " + basePath;
+		return "File State Backend @ " + basePath + (asynchronousSnapshots ? " (asynchronous snapshots)" : "");
 	}
 
 	/**
@@ -35,13 +35,17 @@ public class FsStateBackendFactory implements StateBackendFactory<FsStateBackend
 	/** The key under which the config stores the threshold for state to be store in memory,
 	 * rather than in files */
 	public static final String MEMORY_THRESHOLD_CONF_KEY = "state.backend.fs.memory-threshold";
-	
+
+	/** The key under which the config stores whether keyed state is snapshotted asynchronously */
+	public static final String ASYNC_SNAPSHOTS_CONF_KEY = "state.backend.fs.async-snapshots";
+
 	
 	@Override
 	public FsStateBackend createFromConfig(Configuration config) throws Exception {
 		String checkpointDirURI = config.getString(CHECKPOINT_DIRECTORY_URI_CONF_KEY, null);
 		int memoryThreshold = config.getInteger(
 			MEMORY_THRESHOLD_CONF_KEY, FsStateBackend.DEFAULT_FILE_STATE_THRESHOLD);
+		boolean asynchronousSnapshots = config.getBoolean(ASYNC_SNAPSHOTS_CONF_KEY, false);
 		
 		if (checkpointDirURI == null) {
 			throw new IllegalConfigurationException(
@@ -51,7 +55,7 @@ public class FsStateBackendFactory implements StateBackendFactory<FsStateBackend
 		
 		try {
 			Path path = new Path(checkpointDirURI);
-			return new FsStateBackend(path.toUri(), memoryThreshold);
+			return new FsStateBackend(path.toUri(), memoryThreshold, asynchronousSnapshots);
 		}
 		catch (IllegalArgumentException e) {
 			throw new Exception("Cannot initialize File System State Backend with URI '"
@@ -29,13 +29,9 @@ import org.apache.flink.runtime.state.KeyedStateBackend;
 import org.apache.flink.runtime.state.KvState;
 import org.apache.flink.util.Preconditions;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
 /**
- * Base class for partitioned {@link ListState} implementations that are backed by a regular
- * heap hash map. The concrete implementations define how the state is checkpointed.
+ * Base class for partitioned {@link ListState} implementations that are backed by a
+ * {@link StateTable} on the heap. The concrete implementations define how the state is accessed.
  * 
  * @param <K> The type of the key.
  * @param <N> The type of the namespace.
@@ -46,7 +42,7 @@ import java.util.concurrent.ConcurrentHashMap;
 public abstract class AbstractHeapState<K, N, SV, S extends State, SD extends StateDescriptor<S, ?>>
 		implements KvState<N>, State {
 
-	/** Map containing the actual key/value pairs */
+	/** Table containing the actual key/value pairs */
 	protected final StateTable<K, N, SV> stateTable;
 
 	/** This holds the name of the state and can create an initial default value for the state. */
@@ -92,30 +88,7 @@ public abstract class AbstractHeapState<K, N, SV, S extends State, SD extends St
 		Preconditions.checkState(currentNamespace != null, "No namespace set.");
 		Preconditions.checkState(backend.getCurrentKey() != null, "No key set.");
 
-		Map<N, Map<K, SV>> namespaceMap =
-				stateTable.get(backend.getCurrentKeyGroupIndex());
-
-		if (namespaceMap == null) {
-			return;
-		}
-
-		Map<K, SV> keyedMap = namespaceMap.get(currentNamespace);
-
-		if (keyedMap == null) {
-			return;
-		}
-
-		SV removed = keyedMap.remove(backend.getCurrentKey());
-
-		if (removed == null) {
-			return;
-		}
-
-		if (!keyedMap.isEmpty()) {
-			return;
-		}
-
-		namespaceMap.remove(currentNamespace);
+		stateTable.remove(backend.getCurrentKey(), backend.getCurrentKeyGroupIndex(), currentNamespace);
 	}
 
 	@Override
@@ -137,20 +110,10 @@ public abstract class AbstractHeapState<K, N, SV, S extends State, SD extends St
 		Preconditions.checkState(namespace != null, "No namespace given.");
 		Preconditions.checkState(key != null, "No key given.");
 
-		Map<N, Map<K, SV>> namespaceMap =
-				stateTable.get(KeyGroupRangeAssignment.assignToKeyGroup(key, backend.getNumberOfKeyGroups()));
-
-		if (namespaceMap == null) {
-			return null;
-		}
-
-		Map<K, SV> keyedMap = namespaceMap.get(currentNamespace);
-
-		if (keyedMap == null) {
-			return null;
-		}
-
-		SV result = keyedMap.get(key);
+		SV result = stateTable.get(
+				key,
+				KeyGroupRangeAssignment.assignToKeyGroup(key, backend.getNumberOfKeyGroups()),
+				namespace);
 
 		if (result == null) {
 			return null;
@@ -162,22 +125,6 @@ public abstract class AbstractHeapState<K, N, SV, S extends State, SD extends St
 		return KvStateRequestSerializer.serializeValue(result, serializer);
 	}
 
-	/**
-	 * Creates a new map for use in Heap based state.
-	 *
-	 * <p>If the state queryable ({@link StateDescriptor#isQueryable()}, this
-	 * will create a concurrent hash map instead of a regular one.
-	 *
-	 * @return A new namespace map.
-	 */
-	protected <MK, MV> Map<MK, MV> createNewMap() {
-		if (stateDesc.isQueryable()) {
-			return new ConcurrentHashMap<>();
-		} else {
-			return new HashMap<>();
-		}
-	}
-
 	/**
 	 * This should only be used for testing.
 	 */
@@ -0,0 +1,655 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.util.MathUtils;
+import org.apache.flink.util.Preconditions;
+
+import java.util.TreeSet;
+
+/**
+ * A {@link StateTable} that keeps one flat open-addressing hash table per key group and supports
+ * asynchronous snapshots through copy-on-write.
+ *
+ * <p>The mappings of a key group are stored in parallel slot arrays (key, namespace, state, hash,
+ * and state version) that are probed linearly, so a mapping costs no entry object and a single
+ * hash lookup. Removals shift the following slots of the probe sequence back, so the table never
+ * contains tombstones. When a table reaches its load factor, a table of twice the capacity is
+ * allocated and the mappings are migrated incrementally, a few slots with every modification,
+ * which keeps the latency of single operations bounded. While migrating, new mappings are only
+ * inserted into the new table, and migrated slots of the old table are marked as moved.
+ *
+ * <p>Taking a snapshot increments the table version and only retains references to the current
+ * slot arrays of each key group, so the synchronous part of a snapshot is O(number of key groups).
+ * As long as a snapshot is not released, the table never modifies anything that the snapshot can
+ * reach:
+ * <ul>
+ *     <li>Slot arrays that were created before the snapshot are copied before their first
+ *     modification.</li>
+ *     <li>State objects that were created before the snapshot are deep-copied with the state
+ *     serializer before they are handed out for access, because the caller may modify them in
+ *     place (for example the lists of a list state).</li>
+ * </ul>
+ *
+ * <p>This class is not thread-safe, except that snapshots may be written and released by another
+ * thread while the table is modified, and that the metrics may be read by another thread.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <S> The type of the state objects.
+ */
+public class CopyOnWriteStateTable<K, N, S> extends StateTable<K, N, S> {
+
+	/** Capacity of the hash table of a key group when it is first created. Must be a power of two. */
+	private static final int MINIMUM_CAPACITY = 4;
+
+	/** Maximum capacity of the hash table of a key group. Must be a power of two. */
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	/** Number of slots that are migrated to the new table with every modification during a rehash */
+	private static final int REHASH_STEPS_PER_MODIFICATION = 8;
+
+	/** Only one out of this number of lookups is timed for the lookup latency metric. Power of two. */
+	private static final int LOOKUP_LATENCY_SAMPLE_INTERVAL = 1024;
+
+	/** Estimated memory of one slot: key, namespace, and state reference, plus hash and version */
+	private static final int BYTES_PER_SLOT = 3 * 4 + 2 * 4;
+
+	/** Marks slots of a table that is being rehashed whose mapping was moved to the new table */
+	private static final Object MOVED = new Object();
+
+	/** The hash tables of the key groups in the range of this table, created lazily */
+	private final KeyGroupTable[] keyGroupTables;
+
+	/** The current version of this table, incremented with each snapshot */
+	private int stateTableVersion;
+
+	/** The versions of all snapshots that were not released yet */
+	private final TreeSet<Integer> snapshotVersions;
+
+	/**
+	 * The highest version of any snapshot that was not released yet, or 0 if there is none.
+	 * Slot arrays and states with a lower version may be referenced by a snapshot and must be
+	 * copied before they are modified. This is written by the thread that releases a snapshot,
+	 * a stale value only causes unnecessary copies.
+	 */
+	private volatile int highestRequiredSnapshotVersion;
+
+	/** Counts the lookups, to sample the lookup latency */
+	private int lookupCounter;
+
+	/** Moving average of the sampled lookup latencies, in nanoseconds */
+	private volatile long averageLookupLatencyNanos;
+
+	public CopyOnWriteStateTable(
+			TypeSerializer<S> stateSerializer,
+			TypeSerializer<N> namespaceSerializer,
+			KeyGroupRange keyGroupRange) {
+
+		super(stateSerializer, namespaceSerializer, keyGroupRange);
+
+		this.keyGroupTables = new KeyGroupTable[keyGroupRange.getNumberOfKeyGroups()];
+		this.snapshotVersions = new TreeSet<>();
+		this.stateTableVersion = 0;
+		this.highestRequiredSnapshotVersion = 0;
+	}
+
+	// ------------------------------------------------------------------------
+	//  access to the state
+	// ------------------------------------------------------------------------
+
+	@Override
+	public S get(K key, int keyGroup, N namespace) {
+		if ((++lookupCounter & (LOOKUP_LATENCY_SAMPLE_INTERVAL - 1)) != 0) {
+			return getState(key, keyGroup, namespace);
+		}
+
+		final long start = System.nanoTime();
+		final S state = getState(key, keyGroup, namespace);
+		final long latency = System.nanoTime() - start;
+
+		final long average = averageLookupLatencyNanos;
+		averageLookupLatencyNanos = average == 0 ? latency : average + ((latency - average) >> 3);
+
+		return state;
+	}
+
+	@SuppressWarnings("unchecked")
+	private S getState(K key, int keyGroup, N namespace) {
+		final KeyGroupTable kgTable = getKeyGroupTable(keyGroup);
+		if (kgTable == null) {
+			return null;
+		}
+
+		final int hash = compositeHash(key, namespace);
+
+		boolean inRehashSource = false;
+		int index = kgTable.primary.indexOf(key, namespace, hash);
+		if (index < 0 && kgTable.rehashSource != null) {
+			index = kgTable.rehashSource.indexOf(key, namespace, hash);
+			inRehashSource = true;
+		}
+
+		if (index < 0) {
+			return null;
+		}
+
+		final int requiredVersion = highestRequiredSnapshotVersion;
+		Slots slots = inRehashSource ? kgTable.rehashSource : kgTable.primary;
+
+		// the state may be shared with a snapshot and the caller may modify it in place
+		if (slots.stateVersions[index] < requiredVersion) {
+			activateSlots(kgTable, requiredVersion);
+			slots = inRehashSource ? kgTable.rehashSource : kgTable.primary;
+
+			slots.states[index] = stateSerializer.copy((S) slots.states[index]);
+			slots.stateVersions[index] = stateTableVersion;
+		}
+
+		return (S) slots.states[index];
+	}
+
+	@Override
+	public boolean containsKey(K key, int keyGroup, N namespace) {
+		final KeyGroupTable kgTable = getKeyGroupTable(keyGroup);
+		if (kgTable == null) {
+			return false;
+		}
+
+		final int hash = compositeHash(key, namespace);
+
+		return kgTable.primary.indexOf(key, namespace, hash) >= 0 ||
+				(kgTable.rehashSource != null && kgTable.rehashSource.indexOf(key, namespace, hash) >= 0);
+	}
+
+	@Override
+	public void put(K key, int keyGroup, N namespace, S state) {
+		putAndGetOld(key, keyGroup, namespace, state);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public S putAndGetOld(K key, int keyGroup, N namespace, S state) {
+		Preconditions.checkNotNull(key, "Key must not be null.");
+		Preconditions.checkNotNull(namespace, "Namespace must not be null.");
+
+		final int offset = indexToOffset(keyGroup);
+
+		KeyGroupTable kgTable = keyGroupTables[offset];
+		if (kgTable == null) {
+			kgTable = new KeyGroupTable(MINIMUM_CAPACITY, stateTableVersion);
+			keyGroupTables[offset] = kgTable;
+		}
+
+		activateSlots(kgTable, highestRequiredSnapshotVersion);
+		rehashIncrementally(kgTable, REHASH_STEPS_PER_MODIFICATION);
+
+		final int hash = compositeHash(key, namespace);
+
+		Slots slots = kgTable.primary;
+		int index = slots.indexOf(key, namespace, hash);
+		if (index < 0 && kgTable.rehashSource != null) {
+			slots = kgTable.rehashSource;
+			index = slots.indexOf(key, namespace, hash);
+		}
+
+		if (index >= 0) {
+			// the old state is not copied, so the caller must not modify it
+			final S oldState = (S) slots.states[index];
+			slots.states[index] = state;
+			slots.stateVersions[index] = stateTableVersion;
+			return oldState;
+		}
+
+		if (kgTable.size >= kgTable.threshold) {
+			if (kgTable.primary.capacity() < MAXIMUM_CAPACITY) {
+				startRehash(kgTable);
+			} else if (kgTable.size >= MAXIMUM_CAPACITY - 1) {
+				// the probe sequences only end at an empty slot, so one slot must always stay empty
+				throw new IllegalStateException("The state table of key group " + keyGroup +
+					" reached its maximum capacity of " + MAXIMUM_CAPACITY + " slots.");
+			}
+		}
+
+		kgTable.primary.insert(key, namespace, state, hash, stateTableVersion);
+		++kgTable.size;
+
+		return null;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public S removeAndGetOld(K key, int keyGroup, N namespace) {
+		final KeyGroupTable kgTable = getKeyGroupTable(keyGroup);
+		if (kgTable == null) {
+			return null;
+		}
+
+		final int hash = compositeHash(key, namespace);
+
+		boolean inRehashSource = false;
+		int index = kgTable.primary.indexOf(key, namespace, hash);
+		if (index < 0 && kgTable.rehashSource != null) {
+			index = kgTable.rehashSource.indexOf(key, namespace, hash);
+			inRehashSource = true;
+		}
+
+		if (index < 0) {
+			return null;
+		}
+
+		activateSlots(kgTable, highestRequiredSnapshotVersion);
+
+		final S removed;
+		if (inRehashSource) {
+			// the probe sequences of the old table must stay intact until the rehash is complete
+			removed = (S) kgTable.rehashSource.states[index];
+			kgTable.rehashSource.markMoved(index);
+		} else {
+			removed = (S) kgTable.primary.states[index];
+			kgTable.primary.removeAt(index);
+		}
+
+		--kgTable.size;
+		rehashIncrementally(kgTable, REHASH_STEPS_PER_MODIFICATION);
+
+		return removed;
+	}
+
+	@Override
+	public int size() {
+		int count = 0;
+		for (KeyGroupTable kgTable : keyGroupTables) {
+			if (kgTable != null) {
+				count += kgTable.size;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Puts all mappings of this table into the given table, which must cover the same key groups.
+	 * The state objects are not copied, so this table must not be used afterwards.
+	 */
+	@SuppressWarnings("unchecked")
+	void transferTo(StateTable<K, N, S> target) {
+		for (int i = 0; i < keyGroupTables.length; ++i) {
+			final KeyGroupTable kgTable = keyGroupTables[i];
+			if (kgTable == null) {
+				continue;
+			}
+
+			final int keyGroup = keyGroupRange.getStartKeyGroup() + i;
+
+			// mappings that were already migrated by a rehash are marked as moved in the source
+			for (Slots slots : new Slots[] {kgTable.primary, kgTable.rehashSource}) {
+				if (slots == null) {
+					continue;
+				}
+
+				for (int index = 0; index < slots.capacity(); ++index) {
+					if (slots.isOccupied(index)) {
+						target.put(
+								(K) slots.keys[index],
+								keyGroup,
+								(N) slots.namespaces[index],
+								(S) slots.states[index]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the hash table of the given key group, or null if the key group has no state or is
+	 * not in the key group range of this table.
+	 */
+	private KeyGroupTable getKeyGroupTable(int keyGroup) {
+		return keyGroupRange.contains(keyGroup) ? keyGroupTables[indexToOffset(keyGroup)] : null;
+	}
+
+	/**
+	 * Copies the slot arrays of the given key group table if they may be referenced by a snapshot,
+	 * so that they can be modified afterwards.
+	 */
+	private void activateSlots(KeyGroupTable kgTable, int requiredVersion) {
+		if (kgTable.tableVersion < requiredVersion) {
+			kgTable.primary = new Slots(kgTable.primary);
+			if (kgTable.rehashSource != null) {
+				kgTable.rehashSource = new Slots(kgTable.rehashSource);
+			}
+			kgTable.tableVersion = stateTableVersion;
+		}
+	}
+
+	/**
+	 * Allocates a table of twice the capacity and starts migrating the mappings to it. A rehash
+	 * that is still in progress is completed first. The slot arrays must be active.
+	 */
+	private void startRehash(KeyGroupTable kgTable) {
+		rehashIncrementally(kgTable, Integer.MAX_VALUE);
+
+		final int newCapacity = kgTable.primary.capacity() * 2;
+
+		kgTable.rehashSource = kgTable.primary;
+		kgTable.rehashIndex = 0;
+		kgTable.primary = new Slots(newCapacity);
+		kgTable.threshold = threshold(newCapacity);
+	}
+
+	/**
+	 * Migrates up to the given number of slots of a rehash in progress to the new table. The slot
+	 * arrays must be active.
+	 */
+	private void rehashIncrementally(KeyGroupTable kgTable, int maxSteps) {
+		final Slots source = kgTable.rehashSource;
+		if (source == null) {
+			return;
+		}
+
+		final Slots target = kgTable.primary;
+		final int capacity = source.capacity();
+
+		int index = kgTable.rehashIndex;
+		final int end = (int) Math.min(capacity, (long) index + maxSteps);
+
+		for (; index < end; ++index) {
+			if (source.isOccupied(index)) {
+				target.insert(
+						source.keys[index],
+						source.namespaces[index],
+						source.states[index],
+						source.hashes[index],
+						source.stateVersions[index]);
+				source.markMoved(index);
+			}
+		}
+
+		if (index == capacity) {
+			kgTable.rehashSource = null;
+			kgTable.rehashIndex = 0;
+		} else {
+			kgTable.rehashIndex = index;
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  metrics
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Returns an estimate of the memory that is occupied by the slot arrays of this table, in
+	 * bytes. This does not include the keys, namespaces, and states themselves, and assumes
+	 * compressed object references. May be called by any thread.
+	 */
+	public long getEstimatedTableMemory() {
+		long slots = 0;
+		for (KeyGroupTable kgTable : keyGroupTables) {
+			if (kgTable != null) {
+				slots += kgTable.primary.capacity();
+
+				final Slots rehashSource = kgTable.rehashSource;
+				if (rehashSource != null) {
+					slots += rehashSource.capacity();
+				}
+			}
+		}
+		return slots * BYTES_PER_SLOT;
+	}
+
+	/**
+	 * Returns the moving average of the sampled latencies of state lookups, in nanoseconds. May be
+	 * called by any thread.
+	 */
+	public long getAverageLookupLatencyNanos() {
+		return averageLookupLatencyNanos;
+	}
+
+	// ------------------------------------------------------------------------
+	//  snapshotting
+	// ------------------------------------------------------------------------
+
+	@Override
+	public CopyOnWriteStateTableSnapshot<K, N, S> createSnapshot(TypeSerializer<K> keySerializer) {
+		return new CopyOnWriteStateTableSnapshot<>(this, keySerializer);
+	}
+
+	@Override
+	public boolean supportsAsynchronousSnapshots() {
+		return true;
+	}
+
+	/**
+	 * Increments the table version and registers a new snapshot for it. From now on, nothing that
+	 * is reachable from the current slot arrays of the key groups is modified until the snapshot
+	 * is released.
+	 *
+	 * @return The version of the new snapshot.
+	 */
+	int snapshotTableVersion() {
+		synchronized (snapshotVersions) {
+			++stateTableVersion;
+			snapshotVersions.add(stateTableVersion);
+			highestRequiredSnapshotVersion = stateTableVersion;
+		}
+		return stateTableVersion;
+	}
+
+	/**
+	 * Returns the current slot arrays of all key groups, at the offsets of the key groups in the
+	 * key group range. For each key group, this contains the slots of the table and, if a rehash
+	 * is in progress, of the table that is being migrated. Key groups without state have null.
+	 */
+	Slots[][] snapshotTableSlots() {
+		final Slots[][] slots = new Slots[keyGroupTables.length][];
+		for (int i = 0; i < keyGroupTables.length; ++i) {
+			final KeyGroupTable kgTable = keyGroupTables[i];
+			if (kgTable != null && kgTable.size > 0) {
+				slots[i] = kgTable.rehashSource == null ?
+						new Slots[] {kgTable.primary} :
+						new Slots[] {kgTable.primary, kgTable.rehashSource};
+			}
+		}
+		return slots;
+	}
+
+	/**
+	 * Releases the snapshot with the given version. This may be called by any thread.
+	 */
+	void releaseSnapshot(int snapshotVersion) {
+		synchronized (snapshotVersions) {
+			Preconditions.checkState(snapshotVersions.remove(snapshotVersion),
+					"Attempt to release unknown snapshot version " + snapshotVersion + ".");
+			highestRequiredSnapshotVersion = snapshotVersions.isEmpty() ? 0 : snapshotVersions.last();
+		}
+	}
+
+	int getStateTableVersion() {
+		return stateTableVersion;
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static int compositeHash(Object key, Object namespace) {
+		// the key groups are assigned with a murmur hash of the key, so we use a different hash
+		// function to spread the keys of one key group over the slots
+		return MathUtils.jenkinsHash(31 * key.hashCode() + namespace.hashCode());
+	}
+
+	private static int threshold(int capacity) {
+		return (capacity >> 1) + (capacity >> 2);
+	}
+
+	/**
+	 * The hash table of one key group.
+	 */
+	private static final class KeyGroupTable {
+
+		/** The slots into which new mappings are inserted */
+		Slots primary;
+
+		/** The slots that are migrated into the primary slots, or null if no rehash is in progress */
+		Slots rehashSource;
+
+		/** The next slot of the rehash source to migrate */
+		int rehashIndex;
+
+		/** The number of mappings in the table */
+		int size;
+
+		/** The number of mappings at which the capacity is doubled */
+		int threshold;
+
+		/** The table version in which the current slot arrays were created */
+		int tableVersion;
+
+		KeyGroupTable(int capacity, int tableVersion) {
+			this.primary = new Slots(capacity);
+			this.rehashSource = null;
+			this.rehashIndex = 0;
+			this.size = 0;
+			this.threshold = threshold(capacity);
+			this.tableVersion = tableVersion;
+		}
+	}
+
+	/**
+	 * The parallel slot arrays of a linear probing hash table. A slot is empty if its key is null,
+	 * and was migrated to another table if its key is {@link #MOVED}. The capacity is always a
+	 * power of two.
+	 */
+	static final class Slots {
+
+		final Object[] keys;
+
+		final Object[] namespaces;
+
+		final Object[] states;
+
+		final int[] hashes;
+
+		/** The table version in which the state object of a slot was last set or copied */
+		final int[] stateVersions;
+
+		Slots(int capacity) {
+			this.keys = new Object[capacity];
+			this.namespaces = new Object[capacity];
+			this.states = new Object[capacity];
+			this.hashes = new int[capacity];
+			this.stateVersions = new int[capacity];
+		}
+
+		Slots(Slots other) {
+			this.keys = other.keys.clone();
+			this.namespaces = other.namespaces.clone();
+			this.states = other.states.clone();
+			this.hashes = other.hashes.clone();
+			this.stateVersions = other.stateVersions.clone();
+		}
+
+		int capacity() {
+			return keys.length;
+		}
+
+		/**
+		 * Returns whether the given slot holds a mapping.
+		 */
+		boolean isOccupied(int index) {
+			final Object key = keys[index];
+			return key != null && key != MOVED;
+		}
+
+		/**
+		 * Returns the slot of the mapping for the composite of key and namespace, or -1.
+		 */
+		int indexOf(Object key, Object namespace, int hash) {
+			final int mask = keys.length - 1;
+
+			for (int index = hash & mask; ; index = (index + 1) & mask) {
+				final Object slotKey = keys[index];
+
+				if (slotKey == null) {
+					return -1;
+				}
+
+				if (hashes[index] == hash && slotKey != MOVED &&
+						key.equals(slotKey) && namespace.equals(namespaces[index])) {
+					return index;
+				}
+			}
+		}
+
+		/**
+		 * Inserts a mapping that is not contained in these slots yet.
+		 */
+		void insert(Object key, Object namespace, Object state, int hash, int stateVersion) {
+			final int mask = keys.length - 1;
+
+			int index = hash & mask;
+			while (keys[index] != null) {
+				index = (index + 1) & mask;
+			}
+
+			keys[index] = key;
+			namespaces[index] = namespace;
+			states[index] = state;
+			hashes[index] = hash;
+			stateVersions[index] = stateVersion;
+		}
+
+		/**
+		 * Removes the mapping in the given slot and shifts the following mappings of the probe
+		 * sequence back, so that all mappings stay reachable from their home slot.
+		 */
+		void removeAt(int index) {
+			final int mask = keys.length - 1;
+
+			int gap = index;
+			for (int i = (index + 1) & mask; keys[i] != null; i = (i + 1) & mask) {
+				final int home = hashes[i] & mask;
+
+				// the mapping can fill the gap if its home slot is not between the gap and itself
+				if (((i - home) & mask) >= ((i - gap) & mask)) {
+					keys[gap] = keys[i];
+					namespaces[gap] = namespaces[i];
+					states[gap] = states[i];
+					hashes[gap] = hashes[i];
+					stateVersions[gap] = stateVersions[i];
+					gap = i;
+				}
+			}
+
+			keys[gap] = null;
+			namespaces[gap] = null;
+			states[gap] = null;
+		}
+
+		/**
+		 * Marks the mapping in the given slot as moved. Unlike {@link #removeAt(int)}, this keeps
+		 * the probe sequences through the slot intact.
+		 */
+		void markMoved(int index) {
+			keys[index] = MOVED;
+			namespaces[index] = null;
+			states[index] = null;
+		}
+	}
+}
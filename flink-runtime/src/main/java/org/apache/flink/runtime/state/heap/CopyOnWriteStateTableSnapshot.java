@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.state.heap.CopyOnWriteStateTable.Slots;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A snapshot of a {@link CopyOnWriteStateTable}. Creating the snapshot only retains the slot
+ * arrays of the key groups, the mappings are serialized lazily in
+ * {@link #writeMappingsInKeyGroup(DataOutputView, int)}, which may happen in another thread than
+ * the one that modifies the table. The snapshot must be {@link #release() released} once it is
+ * no longer needed, so that the table stops copying data on modification.
+ *
+ * <p>This class uses duplicates of the serializers, so that serialization does not interfere
+ * with the serializers that are used concurrently by the owner of the table.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <S> The type of the state objects.
+ */
+public class CopyOnWriteStateTableSnapshot<K, N, S> implements StateTableSnapshot {
+
+	/** The table from which this snapshot was taken */
+	private final CopyOnWriteStateTable<K, N, S> owningTable;
+
+	/** The version of the table at the time of the snapshot */
+	private final int snapshotVersion;
+
+	/** The slot arrays of the key groups at the time of the snapshot, null for empty key groups */
+	private final Slots[][] snapshotData;
+
+	private final TypeSerializer<K> keySerializer;
+
+	private final TypeSerializer<N> namespaceSerializer;
+
+	private final TypeSerializer<S> stateSerializer;
+
+	/** Whether this snapshot was already released */
+	private boolean released;
+
+	CopyOnWriteStateTableSnapshot(CopyOnWriteStateTable<K, N, S> owningTable, TypeSerializer<K> keySerializer) {
+		this.owningTable = owningTable;
+		this.snapshotVersion = owningTable.snapshotTableVersion();
+		this.snapshotData = owningTable.snapshotTableSlots();
+
+		this.keySerializer = keySerializer.duplicate();
+		this.namespaceSerializer = owningTable.getNamespaceSerializer().duplicate();
+		this.stateSerializer = owningTable.getStateSerializer().duplicate();
+		this.released = false;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void writeMappingsInKeyGroup(DataOutputView dov, int keyGroupId) throws IOException {
+		final Slots[] keyGroupSlots =
+				snapshotData[keyGroupId - owningTable.getKeyGroupRange().getStartKeyGroup()];
+
+		if (keyGroupSlots == null) {
+			dov.writeByte(0);
+			return;
+		}
+
+		// group the slots by namespace, as required by the snapshot format
+		final Map<N, List<Long>> byNamespace = new HashMap<>();
+		for (int i = 0; i < keyGroupSlots.length; ++i) {
+			final Slots slots = keyGroupSlots[i];
+			for (int index = 0; index < slots.capacity(); ++index) {
+				if (slots.isOccupied(index)) {
+					final N namespace = (N) slots.namespaces[index];
+					List<Long> indices = byNamespace.get(namespace);
+					if (indices == null) {
+						indices = new ArrayList<>();
+						byNamespace.put(namespace, indices);
+					}
+					// encode which slot arrays the index refers to, there are at most two of them
+					indices.add(((long) index << 1) | i);
+				}
+			}
+		}
+
+		dov.writeByte(1);
+
+		// number of namespaces
+		dov.writeInt(byNamespace.size());
+		for (Map.Entry<N, List<Long>> namespace : byNamespace.entrySet()) {
+			namespaceSerializer.serialize(namespace.getKey(), dov);
+
+			List<Long> indices = namespace.getValue();
+
+			// number of entries
+			dov.writeInt(indices.size());
+			for (long encoded : indices) {
+				final Slots slots = keyGroupSlots[(int) (encoded & 1)];
+				final int index = (int) (encoded >>> 1);
+
+				keySerializer.serialize((K) slots.keys[index], dov);
+				stateSerializer.serialize((S) slots.states[index], dov);
+			}
+		}
+	}
+
+	@Override
+	public void release() {
+		synchronized (this) {
+			if (released) {
+				return;
+			}
+			released = true;
+		}
+		owningTable.releaseSnapshot(snapshotVersion);
+	}
+
+	/**
+	 * Returns the version of the table at the time of this snapshot.
+	 */
+	int getSnapshotVersion() {
+		return snapshotVersion;
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.functions.AggregateFunction;
+import org.apache.flink.api.common.state.AggregatingState;
+import org.apache.flink.api.common.state.AggregatingStateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.runtime.state.KeyedStateBackend;
+import org.apache.flink.runtime.state.MergeableKvState;
+import org.apache.flink.util.Preconditions;
+
+import java.util.Collection;
+
+/**
+ * Heap-backed partitioned {@link AggregatingState} that is snapshotted into files.
+ *
+ * <p>The state table holds the accumulators of the {@link AggregateFunction}. The
+ * accumulators are modified in place, the state table copies them if they are shared with
+ * a running snapshot.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <IN> The type of the values added to the state.
+ * @param <ACC> The type of the accumulator in the state.
+ * @param <OUT> The type of the values returned from the state.
+ */
+public class HeapAggregatingState<K, N, IN, ACC, OUT>
+		extends AbstractHeapState<K, N, ACC, AggregatingState<IN, OUT>, AggregatingStateDescriptor<IN, ACC, OUT>>
+		implements AggregatingState<IN, OUT>, MergeableKvState<N> {
+
+	private final AggregateFunction<IN, ACC, OUT> aggFunction;
+
+	/**
+	 * Creates a new key/value state for the given hash map of key/value pairs.
+	 *
+	 * @param backend The state backend backing that created this state.
+	 * @param stateDesc The state identifier for the state. This contains name
+	 *                           and can create a default state value.
+	 * @param stateTable The state table to use in this kev/value state. May contain initial state.
+	 */
+	public HeapAggregatingState(
+			KeyedStateBackend<K> backend,
+			AggregatingStateDescriptor<IN, ACC, OUT> stateDesc,
+			StateTable<K, N, ACC> stateTable,
+			TypeSerializer<K> keySerializer,
+			TypeSerializer<N> namespaceSerializer) {
+		super(backend, stateDesc, stateTable, keySerializer, namespaceSerializer);
+		this.aggFunction = stateDesc.getAggregateFunction();
+	}
+
+	@Override
+	public OUT get() {
+		Preconditions.checkState(currentNamespace != null, "No namespace set.");
+		Preconditions.checkState(backend.getCurrentKey() != null, "No key set.");
+
+		ACC accumulator = stateTable.get(backend.getCurrentKey(), backend.getCurrentKeyGroupIndex(), currentNamespace);
+		return accumulator == null ? null : aggFunction.getResult(accumulator);
+	}
+
+	@Override
+	public void add(IN value) {
+		Preconditions.checkState(currentNamespace != null, "No namespace set.");
+		Preconditions.checkState(backend.getCurrentKey() != null, "No key set.");
+
+		if (value == null) {
+			clear();
+			return;
+		}
+
+		final K key = backend.getCurrentKey();
+		final int keyGroup = backend.getCurrentKeyGroupIndex();
+
+		ACC accumulator = stateTable.get(key, keyGroup, currentNamespace);
+
+		if (accumulator == null) {
+			accumulator = aggFunction.createAccumulator();
+			aggFunction.add(value, accumulator);
+			stateTable.put(key, keyGroup, currentNamespace, accumulator);
+		} else {
+			aggFunction.add(value, accumulator);
+		}
+	}
+
+	@Override
+	public void mergeNamespaces(N target, Collection<N> sources) {
+		Preconditions.checkState(backend.getCurrentKey() != null, "No key set.");
+
+		if (sources == null || sources.isEmpty()) {
+			return;
+		}
+
+		final K key = backend.getCurrentKey();
+		final int keyGroup = backend.getCurrentKeyGroupIndex();
+
+		ACC merged = null;
+		for (N source : sources) {
+			// get before removing, so that accumulators shared with a snapshot are copied
+			// before the merge modifies them
+			ACC sourceAccumulator = stateTable.get(key, keyGroup, source);
+			if (sourceAccumulator != null) {
+				stateTable.remove(key, keyGroup, source);
+				merged = merged == null ? sourceAccumulator : aggFunction.merge(merged, sourceAccumulator);
+			}
+		}
+
+		if (merged != null) {
+			ACC targetAccumulator = stateTable.get(key, keyGroup, target);
+			stateTable.put(key, keyGroup, target,
+				targetAccumulator == null ? merged : aggFunction.merge(targetAccumulator, merged));
+		}
+	}
+}
@@ -19,12 +19,17 @@
 package org.apache.flink.runtime.state.heap;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.flink.api.common.state.AggregatingState;
+import org.apache.flink.api.common.state.AggregatingStateDescriptor;
 import org.apache.flink.api.common.state.FoldingState;
 import org.apache.flink.api.common.state.FoldingStateDescriptor;
 import org.apache.flink.api.common.state.ListState;
 import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
 import org.apache.flink.api.common.state.ReducingState;
 import org.apache.flink.api.common.state.ReducingStateDescriptor;
+import org.apache.flink.api.common.state.StateDescriptor;
 import org.apache.flink.api.common.state.ValueState;
 import org.apache.flink.api.common.state.ValueStateDescriptor;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
@@ -32,8 +37,11 @@ import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.core.fs.FSDataInputStream;
 import org.apache.flink.core.memory.DataInputView;
 import org.apache.flink.core.memory.DataInputViewStreamWrapper;
-import org.apache.flink.core.memory.DataOutputView;
 import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.runtime.io.async.AbstractAsyncIOCallable;
+import org.apache.flink.runtime.io.async.AsyncStoppableTaskWithCallback;
 import org.apache.flink.runtime.query.TaskKvStateRegistry;
 import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
 import org.apache.flink.runtime.state.ArrayListSerializer;
@@ -52,7 +60,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.RunnableFuture;
 
 /**
@@ -72,9 +82,18 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 	 *
 	 * <p>The actual parameters of StateTable are {@code StateTable<NamespaceT, Map<KeyT, StateT>>}
 	 * but we can't put them here because different key/value states with different types and
-	 * namespace types share this central list of tables.
+	 * namespace types share this central list of tables. The metric gauges read it concurrently.
 	 */
-	private final Map<String, StateTable<K, ?, ?>> stateTables = new HashMap<>();
+	private final Map<String, StateTable<K, ?, ?>> stateTables = new ConcurrentHashMap<>();
+
+	/**
+	 * Whether snapshots are written asynchronously. If true, only the creation of the table
+	 * snapshots happens in the synchronous part of the checkpoint.
+	 */
+	private final boolean asynchronousSnapshots;
+
+	/** The metric group for the state tables, null if no metrics are registered */
+	private MetricGroup metricGroup;
 
 	public HeapKeyedStateBackend(
 			TaskKvStateRegistry kvStateRegistry,
@@ -82,10 +101,23 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			ClassLoader userCodeClassLoader,
 			int numberOfKeyGroups,
 			KeyGroupRange keyGroupRange) {
+		this(kvStateRegistry, keySerializer, userCodeClassLoader, numberOfKeyGroups, keyGroupRange, false);
+	}
+
+	public HeapKeyedStateBackend(
+			TaskKvStateRegistry kvStateRegistry,
+			TypeSerializer<K> keySerializer,
+			ClassLoader userCodeClassLoader,
+			int numberOfKeyGroups,
+			KeyGroupRange keyGroupRange,
+			boolean asynchronousSnapshots) {
 
 		super(kvStateRegistry, keySerializer, userCodeClassLoader, numberOfKeyGroups, keyGroupRange);
 
-		LOG.info("Initializing heap keyed state backend with stream factory.");
+		this.asynchronousSnapshots = asynchronousSnapshots;
+
+		LOG.info("Initializing heap keyed state backend with stream factory (asynchronous snapshots: {}).",
+				asynchronousSnapshots);
 	}
 
 	public HeapKeyedStateBackend(
@@ -95,9 +127,23 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			int numberOfKeyGroups,
 			KeyGroupRange keyGroupRange,
 			Collection<KeyGroupsStateHandle> restoredState) throws Exception {
+		this(kvStateRegistry, keySerializer, userCodeClassLoader, numberOfKeyGroups, keyGroupRange, false, restoredState);
+	}
+
+	public HeapKeyedStateBackend(
+			TaskKvStateRegistry kvStateRegistry,
+			TypeSerializer<K> keySerializer,
+			ClassLoader userCodeClassLoader,
+			int numberOfKeyGroups,
+			KeyGroupRange keyGroupRange,
+			boolean asynchronousSnapshots,
+			Collection<KeyGroupsStateHandle> restoredState) throws Exception {
 		super(kvStateRegistry, keySerializer, userCodeClassLoader, numberOfKeyGroups, keyGroupRange);
 
-		LOG.info("Initializing heap keyed state backend from snapshot.");
+		this.asynchronousSnapshots = asynchronousSnapshots;
+
+		LOG.info("Initializing heap keyed state backend from snapshot (asynchronous snapshots: {}).",
+				asynchronousSnapshots);
 
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("Restoring snapshot from state handles: {}.", restoredState);
@@ -109,142 +155,291 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 	// ------------------------------------------------------------------------
 	//  state backend operations
 	// ------------------------------------------------------------------------
-	@SuppressWarnings("unchecked")
 	@Override
 	public <N, V> ValueState<V> createValueState(TypeSerializer<N> namespaceSerializer, ValueStateDescriptor<V> stateDesc) throws Exception {
-		StateTable<K, N, V> stateTable = (StateTable<K, N, V>) stateTables.get(stateDesc.getName());
-
-		if (stateTable == null) {
-			stateTable = new StateTable<>(stateDesc.getSerializer(), namespaceSerializer, keyGroupRange);
-			stateTables.put(stateDesc.getName(), stateTable);
-		}
+		StateTable<K, N, V> stateTable = getOrCreateStateTable(stateDesc, stateDesc.getSerializer(), namespaceSerializer);
 
 		return new HeapValueState<>(this, stateDesc, stateTable, keySerializer, namespaceSerializer);
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public <N, T> ListState<T> createListState(TypeSerializer<N> namespaceSerializer, ListStateDescriptor<T> stateDesc) throws Exception {
-		StateTable<K, N, ArrayList<T>> stateTable = (StateTable<K, N, ArrayList<T>>) stateTables.get(stateDesc.getName());
-
-		if (stateTable == null) {
-			stateTable = new StateTable<>(new ArrayListSerializer<>(stateDesc.getSerializer()), namespaceSerializer, keyGroupRange);
-			stateTables.put(stateDesc.getName(), stateTable);
-		}
+		StateTable<K, N, ArrayList<T>> stateTable = getOrCreateStateTable(stateDesc, new ArrayListSerializer<>(stateDesc.getSerializer()), namespaceSerializer);
 
 		return new HeapListState<>(this, stateDesc, stateTable, keySerializer, namespaceSerializer);
 	}
-	@SuppressWarnings("unchecked")
 	@Override
 	public <N, T> ReducingState<T> createReducingState(TypeSerializer<N> namespaceSerializer, ReducingStateDescriptor<T> stateDesc) throws Exception {
-		StateTable<K, N, T> stateTable = (StateTable<K, N, T>) stateTables.get(stateDesc.getName());
-
-		if (stateTable == null) {
-			stateTable = new StateTable<>(stateDesc.getSerializer(), namespaceSerializer, keyGroupRange);
-			stateTables.put(stateDesc.getName(), stateTable);
-		}
+		StateTable<K, N, T> stateTable = getOrCreateStateTable(stateDesc, stateDesc.getSerializer(), namespaceSerializer);
 
 		return new HeapReducingState<>(this, stateDesc, stateTable, keySerializer, namespaceSerializer);
 	}
-	@SuppressWarnings("unchecked")
 	@Override
 	protected <N, T, ACC> FoldingState<T, ACC> createFoldingState(TypeSerializer<N> namespaceSerializer, FoldingStateDescriptor<T, ACC> stateDesc) throws Exception {
-		StateTable<K, N, ACC> stateTable = (StateTable<K, N, ACC>) stateTables.get(stateDesc.getName());
+		StateTable<K, N, ACC> stateTable = getOrCreateStateTable(stateDesc, stateDesc.getSerializer(), namespaceSerializer);
+
+		return new HeapFoldingState<>(this, stateDesc, stateTable, keySerializer, namespaceSerializer);
+	}
+
+	@Override
+	protected <N, IN, ACC, OUT> AggregatingState<IN, OUT> createAggregatingState(TypeSerializer<N> namespaceSerializer, AggregatingStateDescriptor<IN, ACC, OUT> stateDesc) throws Exception {
+		StateTable<K, N, ACC> stateTable = getOrCreateStateTable(stateDesc, stateDesc.getSerializer(), namespaceSerializer);
+
+		return new HeapAggregatingState<>(this, stateDesc, stateTable, keySerializer, namespaceSerializer);
+	}
+
+	@Override
+	protected <N, UK, UV> MapState<UK, UV> createMapState(TypeSerializer<N> namespaceSerializer, MapStateDescriptor<UK, UV> stateDesc) throws Exception {
+		StateTable<K, N, Map<UK, UV>> stateTable = getOrCreateStateTable(stateDesc, stateDesc.getSerializer(), namespaceSerializer);
+
+		return new HeapMapState<>(this, stateDesc, stateTable, keySerializer, namespaceSerializer);
+	}
+
+	/**
+	 * Returns the table of the given key/value state, creating it if it does not exist yet.
+	 *
+	 * <p>Tables that were restored from a snapshot are always created as a
+	 * {@link CopyOnWriteStateTable}, because the descriptors of the states are not known during
+	 * the restore. If the state turns out to be queryable, its mappings are moved to a table that
+	 * may be read by the query threads.
+	 */
+	@SuppressWarnings("unchecked")
+	private <N, S> StateTable<K, N, S> getOrCreateStateTable(
+			StateDescriptor<?, ?> stateDesc,
+			TypeSerializer<S> stateSerializer,
+			TypeSerializer<N> namespaceSerializer) {
+
+		StateTable<K, N, S> stateTable = (StateTable<K, N, S>) stateTables.get(stateDesc.getName());
 
 		if (stateTable == null) {
-			stateTable = new StateTable<>(stateDesc.getSerializer(), namespaceSerializer, keyGroupRange);
-			stateTables.put(stateDesc.getName(), stateTable);
+			stateTable = newStateTable(stateDesc, stateSerializer, namespaceSerializer);
+			registerStateTable(stateDesc.getName(), stateTable);
+		} else if (stateDesc.isQueryable() && stateTable instanceof CopyOnWriteStateTable) {
+			StateTable<K, N, S> queryableTable = newStateTable(
+					stateDesc, stateTable.getStateSerializer(), stateTable.getNamespaceSerializer());
+
+			((CopyOnWriteStateTable<K, N, S>) stateTable).transferTo(queryableTable);
+
+			stateTable = queryableTable;
+			registerStateTable(stateDesc.getName(), stateTable);
 		}
 
-		return new HeapFoldingState<>(this, stateDesc, stateTable, keySerializer, namespaceSerializer);
+		return stateTable;
 	}
 
+	/**
+	 * Creates the table for a new key/value state. Queryable state is read concurrently by the
+	 * query threads, so it uses a table of concurrent maps, which can only be snapshotted
+	 * synchronously. All other states use a {@link CopyOnWriteStateTable}.
+	 */
+	private <N, S> StateTable<K, N, S> newStateTable(
+			StateDescriptor<?, ?> stateDesc,
+			TypeSerializer<S> stateSerializer,
+			TypeSerializer<N> namespaceSerializer) {
+
+		if (stateDesc.isQueryable()) {
+			return new NestedMapsStateTable<>(stateSerializer, namespaceSerializer, keyGroupRange, true);
+		} else {
+			return new CopyOnWriteStateTable<>(stateSerializer, namespaceSerializer, keyGroupRange);
+		}
+	}
+
+	private void registerStateTable(String stateName, StateTable<K, ?, ?> stateTable) {
+		stateTables.put(stateName, stateTable);
+
+		if (metricGroup != null) {
+			registerStateTableMetrics(stateName, stateTable);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  metrics
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Registers the metrics of all current and future state tables of this backend in the given
+	 * metric group. For each {@link CopyOnWriteStateTable}, a subgroup named after the state
+	 * reports the number of mappings, the estimated memory of the table structure in bytes, and
+	 * the average latency of sampled lookups in nanoseconds.
+	 *
+	 * @param metricGroup The metric group to register the metrics in, typically a subgroup of the
+	 *                    metric group of the operator.
+	 */
+	public void registerMetrics(MetricGroup metricGroup) {
+		Preconditions.checkState(this.metricGroup == null, "The metrics are already registered.");
+		this.metricGroup = Preconditions.checkNotNull(metricGroup);
+
+		for (Map.Entry<String, StateTable<K, ?, ?>> stateTable : stateTables.entrySet()) {
+			registerStateTableMetrics(stateTable.getKey(), stateTable.getValue());
+		}
+	}
+
+	private void registerStateTableMetrics(final String stateName, StateTable<K, ?, ?> stateTable) {
+		if (!(stateTable instanceof CopyOnWriteStateTable)) {
+			// the other tables cannot be inspected while they are modified
+			return;
+		}
+
+		// the gauges look up the table by name, because a restored table is replaced if the
+		// state turns out to be queryable
+		final MetricGroup stateMetrics = metricGroup.addGroup(stateName);
+
+		stateMetrics.gauge("numEntries", new Gauge<Integer>() {
+			@Override
+			public Integer getValue() {
+				CopyOnWriteStateTable<K, ?, ?> table = getCopyOnWriteStateTable(stateName);
+				return table != null ? table.size() : 0;
+			}
+		});
+
+		stateMetrics.gauge("estimatedTableMemory", new Gauge<Long>() {
+			@Override
+			public Long getValue() {
+				CopyOnWriteStateTable<K, ?, ?> table = getCopyOnWriteStateTable(stateName);
+				return table != null ? table.getEstimatedTableMemory() : 0L;
+			}
+		});
+
+		stateMetrics.gauge("lookupLatencyNanos", new Gauge<Long>() {
+			@Override
+			public Long getValue() {
+				CopyOnWriteStateTable<K, ?, ?> table = getCopyOnWriteStateTable(stateName);
+				return table != null ? table.getAverageLookupLatencyNanos() : 0L;
+			}
+		});
+	}
+
+	private CopyOnWriteStateTable<K, ?, ?> getCopyOnWriteStateTable(String stateName) {
+		StateTable<K, ?, ?> stateTable = stateTables.get(stateName);
+		return stateTable instanceof CopyOnWriteStateTable ? (CopyOnWriteStateTable<K, ?, ?>) stateTable : null;
+	}
+
+	/**
+	 * Triggers a snapshot of all key/value states. The synchronous part of the snapshot only
+	 * creates a {@link StateTableSnapshot} for each state table. If all tables support it, the
+	 * snapshots are then written to the checkpoint stream asynchronously, in the returned future.
+	 * Otherwise, they are written before this method returns.
+	 *
+	 * @param checkpointId The Id of the checkpoint.
+	 * @param timestamp The timestamp of the checkpoint.
+	 * @param streamFactory The factory that we can use for writing our state to streams.
+	 *
+	 * @return Future to the state handle of the snapshot data.
+	 */
 	@Override
-	@SuppressWarnings("unchecked")
 	public RunnableFuture<KeyGroupsStateHandle> snapshot(
-			long checkpointId,
-			long timestamp,
-			CheckpointStreamFactory streamFactory) throws Exception {
+			final long checkpointId,
+			final long timestamp,
+			final CheckpointStreamFactory streamFactory) throws Exception {
 
 		if (stateTables.isEmpty()) {
 			return new DoneFuture<>(null);
 		}
 
-		try (CheckpointStreamFactory.CheckpointStateOutputStream stream = streamFactory.
-				createCheckpointStateOutputStream(checkpointId, timestamp)) {
+		final long syncStartTime = System.currentTimeMillis();
 
-			DataOutputViewStreamWrapper outView = new DataOutputViewStreamWrapper(stream);
+		Preconditions.checkState(stateTables.size() <= Short.MAX_VALUE,
+				"Too many KV-States: " + stateTables.size() +
+						". Currently at most " + Short.MAX_VALUE + " states are supported");
 
-			Preconditions.checkState(stateTables.size() <= Short.MAX_VALUE,
-					"Too many KV-States: " + stateTables.size() +
-							". Currently at most " + Short.MAX_VALUE + " states are supported");
+		// the state tables may change while we write asynchronously, so we take a stable view
+		final int numStates = stateTables.size();
+		final List<String> stateNames = new ArrayList<>(numStates);
+		final List<StateTable<K, ?, ?>> tables = new ArrayList<>(numStates);
+		final List<StateTableSnapshot> tableSnapshots = new ArrayList<>(numStates);
 
-			outView.writeShort(stateTables.size());
+		boolean allTablesSupportAsync = true;
 
-			Map<String, Integer> kVStateToId = new HashMap<>(stateTables.size());
+		for (Map.Entry<String, StateTable<K, ?, ?>> kvState : stateTables.entrySet()) {
+			StateTable<K, ?, ?> stateTable = kvState.getValue();
 
-			for (Map.Entry<String, StateTable<K, ?, ?>> kvState : stateTables.entrySet()) {
+			stateNames.add(kvState.getKey());
+			tables.add(stateTable);
+			tableSnapshots.add(stateTable.createSnapshot(keySerializer));
 
-				outView.writeUTF(kvState.getKey());
+			allTablesSupportAsync &= stateTable.supportsAsynchronousSnapshots();
+		}
 
-				TypeSerializer<?> namespaceSerializer = kvState.getValue().getNamespaceSerializer();
-				TypeSerializer<?> stateSerializer = kvState.getValue().getStateSerializer();
+		final boolean asyncSnapshot = asynchronousSnapshots && allTablesSupportAsync;
 
-				InstantiationUtil.serializeObject(stream, namespaceSerializer);
-				InstantiationUtil.serializeObject(stream, stateSerializer);
+		// implementation of the IO operation, based on FutureTask
+		AbstractAsyncIOCallable<KeyGroupsStateHandle, CheckpointStreamFactory.CheckpointStateOutputStream> ioCallable =
+				new AbstractAsyncIOCallable<KeyGroupsStateHandle, CheckpointStreamFactory.CheckpointStateOutputStream>() {
 
-				kVStateToId.put(kvState.getKey(), kVStateToId.size());
-			}
+					@Override
+					public CheckpointStreamFactory.CheckpointStateOutputStream openIOHandle() throws Exception {
+						CheckpointStreamFactory.CheckpointStateOutputStream stream =
+								streamFactory.createCheckpointStateOutputStream(checkpointId, timestamp);
+						cancelStreamRegistry.registerClosable(stream);
+						return stream;
+					}
 
-			int offsetCounter = 0;
-			long[] keyGroupRangeOffsets = new long[keyGroupRange.getNumberOfKeyGroups()];
+					@Override
+					public KeyGroupsStateHandle performOperation() throws Exception {
+						long asyncStartTime = System.currentTimeMillis();
 
-			for (int keyGroupIndex = keyGroupRange.getStartKeyGroup(); keyGroupIndex <= keyGroupRange.getEndKeyGroup(); keyGroupIndex++) {
-				keyGroupRangeOffsets[offsetCounter++] = stream.getPos();
-				outView.writeInt(keyGroupIndex);
-				for (Map.Entry<String, StateTable<K, ?, ?>> kvState : stateTables.entrySet()) {
-					outView.writeShort(kVStateToId.get(kvState.getKey()));
-					writeStateTableForKeyGroup(outView, kvState.getValue(), keyGroupIndex);
-				}
-			}
+						CheckpointStreamFactory.CheckpointStateOutputStream stream = getIoHandle();
+						try {
+							DataOutputViewStreamWrapper outView = new DataOutputViewStreamWrapper(stream);
 
-			StreamStateHandle streamStateHandle = stream.closeAndGetHandle();
+							outView.writeShort(numStates);
 
-			KeyGroupRangeOffsets offsets = new KeyGroupRangeOffsets(keyGroupRange, keyGroupRangeOffsets);
-			final KeyGroupsStateHandle keyGroupsStateHandle = new KeyGroupsStateHandle(offsets, streamStateHandle);
-			return new DoneFuture<>(keyGroupsStateHandle);
-		}
-	}
+							for (int i = 0; i < numStates; ++i) {
+								outView.writeUTF(stateNames.get(i));
 
-	private <N, S> void writeStateTableForKeyGroup(
-			DataOutputView outView,
-			StateTable<K, N, S> stateTable,
-			int keyGroupIndex) throws IOException {
+								InstantiationUtil.serializeObject(stream, tables.get(i).getNamespaceSerializer());
+								InstantiationUtil.serializeObject(stream, tables.get(i).getStateSerializer());
+							}
 
-		TypeSerializer<N> namespaceSerializer = stateTable.getNamespaceSerializer();
-		TypeSerializer<S> stateSerializer = stateTable.getStateSerializer();
+							int offsetCounter = 0;
+							long[] keyGroupRangeOffsets = new long[keyGroupRange.getNumberOfKeyGroups()];
 
-		Map<N, Map<K, S>> namespaceMap = stateTable.get(keyGroupIndex);
-		if (namespaceMap == null) {
-			outView.writeByte(0);
-		} else {
-			outView.writeByte(1);
+							for (int keyGroupIndex = keyGroupRange.getStartKeyGroup(); keyGroupIndex <= keyGroupRange.getEndKeyGroup(); keyGroupIndex++) {
+								keyGroupRangeOffsets[offsetCounter++] = stream.getPos();
+								outView.writeInt(keyGroupIndex);
+								for (int i = 0; i < numStates; ++i) {
+									outView.writeShort(i);
+									tableSnapshots.get(i).writeMappingsInKeyGroup(outView, keyGroupIndex);
+								}
+							}
 
-			// number of namespaces
-			outView.writeInt(namespaceMap.size());
-			for (Map.Entry<N, Map<K, S>> namespace : namespaceMap.entrySet()) {
-				namespaceSerializer.serialize(namespace.getKey(), outView);
+							StreamStateHandle streamStateHandle = stream.closeAndGetHandle();
 
-				Map<K, S> entryMap = namespace.getValue();
+							if (asyncSnapshot) {
+								LOG.info("Heap backend snapshot ({}, asynchronous part) in thread {} took {} ms.",
+										streamFactory, Thread.currentThread(), (System.currentTimeMillis() - asyncStartTime));
+							}
 
-				// number of entries
-				outView.writeInt(entryMap.size());
-				for (Map.Entry<K, S> entry : entryMap.entrySet()) {
-					keySerializer.serialize(entry.getKey(), outView);
-					stateSerializer.serialize(entry.getValue(), outView);
-				}
+							KeyGroupRangeOffsets offsets = new KeyGroupRangeOffsets(keyGroupRange, keyGroupRangeOffsets);
+							return new KeyGroupsStateHandle(offsets, streamStateHandle);
+						} finally {
+							cancelStreamRegistry.unregisterClosable(stream);
+						}
+					}
+
+					@Override
+					public void done() {
+						for (StateTableSnapshot tableSnapshot : tableSnapshots) {
+							tableSnapshot.release();
+						}
+					}
+				};
+
+		if (!asyncSnapshot) {
+			try {
+				return new DoneFuture<>(ioCallable.call());
+			} finally {
+				ioCallable.done();
+
+				LOG.info("Heap backend snapshot ({}, synchronous) in thread {} took {} ms.",
+						streamFactory, Thread.currentThread(), (System.currentTimeMillis() - syncStartTime));
 			}
 		}
+
+		LOG.info("Heap backend snapshot ({}, synchronous part) in thread {} took {} ms.",
+				streamFactory, Thread.currentThread(), (System.currentTimeMillis() - syncStartTime));
+
+		return AsyncStoppableTaskWithCallback.from(ioCallable);
 	}
 
 	@SuppressWarnings({"unchecked"})
@@ -279,8 +474,8 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 
 					//important: only create a new table we did not already create it previously
 					if (null == stateTable) {
-						stateTable = new StateTable<>(stateSerializer, namespaceSerializer, keyGroupRange);
-						stateTables.put(stateName, stateTable);
+						stateTable = new CopyOnWriteStateTable<>(stateSerializer, namespaceSerializer, keyGroupRange);
+						registerStateTable(stateName, stateTable);
 						kvStatesById.put(numRegisteredKvStates, stateName);
 						++numRegisteredKvStates;
 					}
@@ -323,24 +518,26 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		TypeSerializer<N> namespaceSerializer = stateTable.getNamespaceSerializer();
 		TypeSerializer<S> stateSerializer = stateTable.getStateSerializer();
 
-		Map<N, Map<K, S>> namespaceMap = new HashMap<>();
-		stateTable.set(keyGroupIndex, namespaceMap);
-
 		int numNamespaces = inView.readInt();
 		for (int k = 0; k < numNamespaces; k++) {
 			N namespace = namespaceSerializer.deserialize(inView);
-			Map<K, S> entryMap = new HashMap<>();
-			namespaceMap.put(namespace, entryMap);
 
 			int numEntries = inView.readInt();
 			for (int l = 0; l < numEntries; l++) {
 				K key = keySerializer.deserialize(inView);
 				S state = stateSerializer.deserialize(inView);
-				entryMap.put(key, state);
+				stateTable.put(key, keyGroupIndex, namespace, state);
 			}
 		}
 	}
 
+	/**
+	 * Returns whether this backend writes its snapshots asynchronously.
+	 */
+	public boolean supportsAsynchronousSnapshots() {
+		return asynchronousSnapshots;
+	}
+
 	@Override
 	public String toString() {
 		return "HeapKeyedStateBackend";
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.runtime.state.KeyedStateBackend;
+import org.apache.flink.util.Preconditions;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Heap-backed partitioned {@link MapState} that is snapshotted into files. The user key-value
+ * pairs of each key and namespace are kept in a {@link HashMap} that is stored in the
+ * {@link StateTable}.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <UK> The type of the keys in the state.
+ * @param <UV> The type of the values in the state.
+ */
+public class HeapMapState<K, N, UK, UV>
+		extends AbstractHeapState<K, N, Map<UK, UV>, MapState<UK, UV>, MapStateDescriptor<UK, UV>>
+		implements MapState<UK, UV> {
+
+	/**
+	 * Creates a new key/value state for the given hash map of key/value pairs.
+	 *
+	 * @param backend The state backend backing that created this state.
+	 * @param stateDesc The state identifier for the state. This contains name
+	 *                           and can create a default state value.
+	 * @param stateTable The state tab;e to use in this kev/value state. May contain initial state.
+	 */
+	public HeapMapState(
+			KeyedStateBackend<K> backend,
+			MapStateDescriptor<UK, UV> stateDesc,
+			StateTable<K, N, Map<UK, UV>> stateTable,
+			TypeSerializer<K> keySerializer,
+			TypeSerializer<N> namespaceSerializer) {
+		super(backend, stateDesc, stateTable, keySerializer, namespaceSerializer);
+	}
+
+	@Override
+	public UV get(UK userKey) {
+		Map<UK, UV> userMap = getCurrentMap();
+
+		return userMap == null ? null : userMap.get(userKey);
+	}
+
+	@Override
+	public void put(UK userKey, UV userValue) {
+		getOrCreateCurrentMap().put(userKey, userValue);
+	}
+
+	@Override
+	public void putAll(Map<UK, UV> value) {
+		if (value == null || value.isEmpty()) {
+			return;
+		}
+
+		getOrCreateCurrentMap().putAll(value);
+	}
+
+	@Override
+	public void remove(UK userKey) {
+		Map<UK, UV> userMap = getCurrentMap();
+
+		if (userMap == null) {
+			return;
+		}
+
+		userMap.remove(userKey);
+
+		if (userMap.isEmpty()) {
+			clear();
+		}
+	}
+
+	@Override
+	public boolean contains(UK userKey) {
+		Map<UK, UV> userMap = getCurrentMap();
+
+		return userMap != null && userMap.containsKey(userKey);
+	}
+
+	@Override
+	public Iterable<Map.Entry<UK, UV>> entries() {
+		Map<UK, UV> userMap = getCurrentMap();
+
+		return userMap == null ? Collections.<Map.Entry<UK, UV>>emptySet() : userMap.entrySet();
+	}
+
+	@Override
+	public Iterable<UK> keys() {
+		Map<UK, UV> userMap = getCurrentMap();
+
+		return userMap == null ? Collections.<UK>emptySet() : userMap.keySet();
+	}
+
+	@Override
+	public Iterable<UV> values() {
+		Map<UK, UV> userMap = getCurrentMap();
+
+		return userMap == null ? Collections.<UV>emptyList() : userMap.values();
+	}
+
+	@Override
+	public Iterator<Map.Entry<UK, UV>> iterator() {
+		return entries().iterator();
+	}
+
+	// ------------------------------------------------------------------------
+
+	private Map<UK, UV> getCurrentMap() {
+		Preconditions.checkState(currentNamespace != null, "No namespace set.");
+		Preconditions.checkState(backend.getCurrentKey() != null, "No key set.");
+
+		return stateTable.get(backend.getCurrentKey(), backend.getCurrentKeyGroupIndex(), currentNamespace);
+	}
+
+	private Map<UK, UV> getOrCreateCurrentMap() {
+		Map<UK, UV> userMap = getCurrentMap();
+
+		if (userMap == null) {
+			userMap = new HashMap<>();
+			stateTable.put(backend.getCurrentKey(), backend.getCurrentKeyGroupIndex(), currentNamespace, userMap);
+		}
+
+		return userMap;
+	}
+}
@@ -26,7 +26,6 @@ import org.apache.flink.runtime.state.KeyedStateBackend;
 import org.apache.flink.util.Preconditions;
 
 import java.io.IOException;
-import java.util.Map;
 
 /**
  * Heap-backed partitioned {@link org.apache.flink.api.common.state.ReducingState} that is
@@ -65,20 +64,7 @@ public class HeapReducingState<K, N, V>
 		Preconditions.checkState(currentNamespace != null, "No namespace set.");
 		Preconditions.checkState(backend.getCurrentKey() != null, "No key set.");
 
-		Map<N, Map<K, V>> namespaceMap =
-				stateTable.get(backend.getCurrentKeyGroupIndex());
-
-		if (namespaceMap == null) {
-			return null;
-		}
-
-		Map<K, V> keyedMap = namespaceMap.get(currentNamespace);
-
-		if (keyedMap == null) {
-			return null;
-		}
-
-		return keyedMap.get(backend.<K>getCurrentKey());
+		return stateTable.get(backend.getCurrentKey(), backend.getCurrentKeyGroupIndex(), currentNamespace);
 	}
 
 	@Override
@@ -91,33 +77,22 @@ public class HeapReducingState<K, N, V>
 			return;
 		}
 
-		Map<N, Map<K, V>> namespaceMap =
-				stateTable.get(backend.getCurrentKeyGroupIndex());
-
-		if (namespaceMap == null) {
-			namespaceMap = createNewMap();
-			stateTable.set(backend.getCurrentKeyGroupIndex(), namespaceMap);
-		}
-
-		Map<K, V> keyedMap = namespaceMap.get(currentNamespace);
-
-		if (keyedMap == null) {
-			keyedMap = createNewMap();
-			namespaceMap.put(currentNamespace, keyedMap);
-		}
+		final K key = backend.getCurrentKey();
+		final int keyGroup = backend.getCurrentKeyGroupIndex();
 
-		V currentValue = keyedMap.put(backend.<K>getCurrentKey(), value);
+		V currentValue = stateTable.get(key, keyGroup, currentNamespace);
 
 		if (currentValue == null) {
-			// we're good, just added the new value
+			// nothing to reduce yet, just add the new value
+			stateTable.put(key, keyGroup, currentNamespace, value);
 		} else {
-			V reducedValue = null;
+			V reducedValue;
 			try {
 				reducedValue = reduceFunction.reduce(currentValue, value);
 			} catch (Exception e) {
 				throw new RuntimeException("Could not add value to reducing state.", e);
 			}
-			keyedMap.put(backend.<K>getCurrentKey(), reducedValue);
+			stateTable.put(key, keyGroup, currentNamespace, reducedValue);
 		}
 	}
 }
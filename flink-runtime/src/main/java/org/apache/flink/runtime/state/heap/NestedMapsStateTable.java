@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.state.KeyGroupRange;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link StateTable} that stores the state of each key group in nested maps, first by
+ * namespace and then by key.
+ *
+ * <p>If the table is created as concurrent, all maps are {@link ConcurrentHashMap concurrent
+ * maps}, so that the state can be safely read by other threads, e.g. for queryable state.
+ *
+ * <p>Snapshots of this table are written from the live maps and therefore have to be written
+ * synchronously, before the table is modified again.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <S> The type of the state objects.
+ */
+public class NestedMapsStateTable<K, N, S> extends StateTable<K, N, S> {
+
+	/** Map for holding the actual state objects, one namespace map per key group. */
+	private final Map<N, Map<K, S>>[] state;
+
+	/** Whether to create concurrent maps */
+	private final boolean concurrent;
+
+	public NestedMapsStateTable(
+			TypeSerializer<S> stateSerializer,
+			TypeSerializer<N> namespaceSerializer,
+			KeyGroupRange keyGroupRange) {
+		this(stateSerializer, namespaceSerializer, keyGroupRange, false);
+	}
+
+	@SuppressWarnings("unchecked")
+	public NestedMapsStateTable(
+			TypeSerializer<S> stateSerializer,
+			TypeSerializer<N> namespaceSerializer,
+			KeyGroupRange keyGroupRange,
+			boolean concurrent) {
+
+		super(stateSerializer, namespaceSerializer, keyGroupRange);
+
+		this.concurrent = concurrent;
+		this.state = (Map<N, Map<K, S>>[]) new Map[keyGroupRange.getNumberOfKeyGroups()];
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Returns the namespace map of the given key group, or null if the key group holds no
+	 * state or is not in the key group range of this table.
+	 */
+	public Map<N, Map<K, S>> get(int keyGroup) {
+		return keyGroupRange.contains(keyGroup) ? state[indexToOffset(keyGroup)] : null;
+	}
+
+	@Override
+	public S get(K key, int keyGroup, N namespace) {
+		Map<K, S> keyedMap = getKeyedMap(keyGroup, namespace);
+		return keyedMap == null ? null : keyedMap.get(key);
+	}
+
+	@Override
+	public boolean containsKey(K key, int keyGroup, N namespace) {
+		Map<K, S> keyedMap = getKeyedMap(keyGroup, namespace);
+		return keyedMap != null && keyedMap.containsKey(key);
+	}
+
+	@Override
+	public void put(K key, int keyGroup, N namespace, S value) {
+		putAndGetOld(key, keyGroup, namespace, value);
+	}
+
+	@Override
+	public S putAndGetOld(K key, int keyGroup, N namespace, S value) {
+		final int offset = indexToOffset(keyGroup);
+
+		Map<N, Map<K, S>> namespaceMap = state[offset];
+		if (namespaceMap == null) {
+			namespaceMap = createNewMap();
+			state[offset] = namespaceMap;
+		}
+
+		Map<K, S> keyedMap = namespaceMap.get(namespace);
+		if (keyedMap == null) {
+			keyedMap = createNewMap();
+			namespaceMap.put(namespace, keyedMap);
+		}
+
+		return keyedMap.put(key, value);
+	}
+
+	@Override
+	public S removeAndGetOld(K key, int keyGroup, N namespace) {
+		Map<N, Map<K, S>> namespaceMap = state[indexToOffset(keyGroup)];
+		if (namespaceMap == null) {
+			return null;
+		}
+
+		Map<K, S> keyedMap = namespaceMap.get(namespace);
+		if (keyedMap == null) {
+			return null;
+		}
+
+		S removed = keyedMap.remove(key);
+
+		if (keyedMap.isEmpty()) {
+			namespaceMap.remove(namespace);
+		}
+
+		return removed;
+	}
+
+	@Override
+	public int size() {
+		int count = 0;
+		for (Map<N, Map<K, S>> namespaceMap : state) {
+			if (namespaceMap != null) {
+				for (Map<K, S> keyedMap : namespaceMap.values()) {
+					count += keyedMap.size();
+				}
+			}
+		}
+		return count;
+	}
+
+	private Map<K, S> getKeyedMap(int keyGroup, N namespace) {
+		if (!keyGroupRange.contains(keyGroup)) {
+			return null;
+		}
+
+		Map<N, Map<K, S>> namespaceMap = state[indexToOffset(keyGroup)];
+		return namespaceMap == null ? null : namespaceMap.get(namespace);
+	}
+
+	private <MK, MV> Map<MK, MV> createNewMap() {
+		if (concurrent) {
+			return new ConcurrentHashMap<>();
+		} else {
+			return new HashMap<>();
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  snapshotting
+	// ------------------------------------------------------------------------
+
+	@Override
+	public StateTableSnapshot createSnapshot(final TypeSerializer<K> keySerializer) {
+		return new StateTableSnapshot() {
+
+			@Override
+			public void writeMappingsInKeyGroup(DataOutputView dov, int keyGroupId) throws IOException {
+				Map<N, Map<K, S>> namespaceMap = state[indexToOffset(keyGroupId)];
+
+				if (namespaceMap == null) {
+					dov.writeByte(0);
+					return;
+				}
+
+				dov.writeByte(1);
+
+				// number of namespaces
+				dov.writeInt(namespaceMap.size());
+				for (Map.Entry<N, Map<K, S>> namespace : namespaceMap.entrySet()) {
+					namespaceSerializer.serialize(namespace.getKey(), dov);
+
+					Map<K, S> entryMap = namespace.getValue();
+
+					// number of entries
+					dov.writeInt(entryMap.size());
+					for (Map.Entry<K, S> entry : entryMap.entrySet()) {
+						keySerializer.serialize(entry.getKey(), dov);
+						stateSerializer.serialize(entry.getValue(), dov);
+					}
+				}
+			}
+
+			@Override
+			public void release() {
+				// nothing is retained for this snapshot
+			}
+		};
+	}
+
+	@Override
+	public boolean supportsAsynchronousSnapshots() {
+		return false;
+	}
+}
@@ -19,51 +19,113 @@ package org.apache.flink.runtime.state.heap;
 
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.util.Preconditions;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.Map;
-
-public class StateTable<K, N, ST> {
+/**
+ * Base class for the tables that hold the state of one heap key/value state. A state table maps
+ * a composite (key, namespace) to the state object, partitioned by the key group of the key.
+ *
+ * <p>All methods that take a key also take the key group of that key, so that the table never
+ * has to compute the key group itself.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <S> The type of the state objects.
+ */
+public abstract class StateTable<K, N, S> {
 
 	/** Serializer for the state value. The state value could be a List<V>, for example. */
-	protected final TypeSerializer<ST> stateSerializer;
+	protected final TypeSerializer<S> stateSerializer;
 
 	/** The serializer for the namespace */
 	protected final TypeSerializer<N> namespaceSerializer;
 
-	/** Map for holding the actual state objects. */
-	private final List<Map<N, Map<K, ST>>> state;
-
+	/** The key groups for which this table holds state */
 	protected final KeyGroupRange keyGroupRange;
 
-	public StateTable(
-			TypeSerializer<ST> stateSerializer,
+	protected StateTable(
+			TypeSerializer<S> stateSerializer,
 			TypeSerializer<N> namespaceSerializer,
 			KeyGroupRange keyGroupRange) {
-		this.stateSerializer = stateSerializer;
-		this.namespaceSerializer = namespaceSerializer;
-		this.keyGroupRange = keyGroupRange;
 
-		this.state = Arrays.asList((Map<N, Map<K, ST>>[]) new Map[keyGroupRange.getNumberOfKeyGroups()]);
+		this.stateSerializer = Preconditions.checkNotNull(stateSerializer);
+		this.namespaceSerializer = Preconditions.checkNotNull(namespaceSerializer);
+		this.keyGroupRange = Preconditions.checkNotNull(keyGroupRange);
 	}
 
-	private int indexToOffset(int index) {
-		return index - keyGroupRange.getStartKeyGroup();
-	}
+	// ------------------------------------------------------------------------
+	//  access to the state
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Returns the state for the composite of the given key and namespace, or null if no state
+	 * is mapped. The returned state object may be modified in place by the caller.
+	 */
+	public abstract S get(K key, int keyGroup, N namespace);
+
+	/**
+	 * Returns whether this table contains a mapping for the composite of key and namespace.
+	 */
+	public abstract boolean containsKey(K key, int keyGroup, N namespace);
+
+	/**
+	 * Maps the composite of key and namespace to the given state.
+	 */
+	public abstract void put(K key, int keyGroup, N namespace, S state);
+
+	/**
+	 * Maps the composite of key and namespace to the given state and returns the previously
+	 * mapped state, or null if there was none.
+	 */
+	public abstract S putAndGetOld(K key, int keyGroup, N namespace, S state);
 
-	public Map<N, Map<K, ST>> get(int index) {
-		return keyGroupRange.contains(index) ? state.get(indexToOffset(index)) : null;
+	/**
+	 * Removes the mapping for the composite of key and namespace and returns the removed state,
+	 * or null if there was none. The returned state must not be modified by the caller.
+	 */
+	public abstract S removeAndGetOld(K key, int keyGroup, N namespace);
+
+	/**
+	 * Removes the mapping for the composite of key and namespace, if present.
+	 */
+	public void remove(K key, int keyGroup, N namespace) {
+		removeAndGetOld(key, keyGroup, namespace);
 	}
 
-	public void set(int index, Map<N, Map<K, ST>> map) {
-		if (!keyGroupRange.contains(index)) {
-			throw new RuntimeException("Unexpected key group index. This indicates a bug.");
-		}
-		state.set(indexToOffset(index), map);
+	/**
+	 * Returns the total number of mappings in this table, across all key groups.
+	 */
+	public abstract int size();
+
+	/**
+	 * Returns whether this table contains no mappings.
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
 	}
 
-	public TypeSerializer<ST> getStateSerializer() {
+	// ------------------------------------------------------------------------
+	//  snapshotting
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Creates a snapshot of this table that can be written out per key group.
+	 *
+	 * @param keySerializer The serializer for the keys of this table.
+	 * @return A snapshot of the current table contents.
+	 */
+	public abstract StateTableSnapshot createSnapshot(TypeSerializer<K> keySerializer);
+
+	/**
+	 * Returns true if snapshots of this table may be written by another thread while the table
+	 * continues to be modified. Otherwise, a snapshot has to be written out completely before
+	 * the table is modified again.
+	 */
+	public abstract boolean supportsAsynchronousSnapshots();
+
+	// ------------------------------------------------------------------------
+
+	public TypeSerializer<S> getStateSerializer() {
 		return stateSerializer;
 	}
 
@@ -71,7 +133,18 @@ public class StateTable<K, N, ST> {
 		return namespaceSerializer;
 	}
 
-	public List<Map<N, Map<K, ST>>> getState() {
-		return state;
+	public KeyGroupRange getKeyGroupRange() {
+		return keyGroupRange;
+	}
+
+	/**
+	 * Translates a key group index into the offset of that key group within this table.
+	 */
+	protected int indexToOffset(int keyGroup) {
+		if (!keyGroupRange.contains(keyGroup)) {
+			throw new IllegalArgumentException("Unexpected key group index " + keyGroup +
+					", expected a key group in " + keyGroupRange + ". This indicates a bug.");
+		}
+		return keyGroup - keyGroupRange.getStartKeyGroup();
 	}
 }
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.core.memory.DataOutputView;
+
+import java.io.IOException;
+
+/**
+ * A snapshot of a {@link StateTable} that writes the mappings of the table one key group at a
+ * time. All snapshots write the same format, so that restoring does not depend on the kind of
+ * table that was snapshotted:
+ *
+ * <pre>
+ *     byte: 0 if the key group has no state, 1 otherwise
+ *     int: number of namespaces
+ *     for each namespace:
+ *         namespace
+ *         int: number of mappings
+ *         for each mapping: key, state
+ * </pre>
+ */
+public interface StateTableSnapshot {
+
+	/**
+	 * Writes all mappings of the given key group to the output view.
+	 *
+	 * @param dov The output view to write to.
+	 * @param keyGroupId The key group whose mappings are written.
+	 */
+	void writeMappingsInKeyGroup(DataOutputView dov, int keyGroupId) throws IOException;
+
+	/**
+	 * Releases the snapshot. After this call, the snapshot must not be used anymore. This
+	 * allows the table to stop retaining data for this snapshot.
+	 */
+	void release();
+}
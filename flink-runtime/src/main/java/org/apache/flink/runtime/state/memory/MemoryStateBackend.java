@@ -47,6 +47,9 @@ public class MemoryStateBackend extends AbstractStateBackend {
 	/** The maximal size that the snapshotted memory state may have */
 	private final int maxStateSize;
 
+	/** Whether keyed state is snapshotted asynchronously, see {@link HeapKeyedStateBackend} */
+	private final boolean asynchronousSnapshots;
+
 	/**
 	 * Creates a new memory state backend that accepts states whose serialized forms are
 	 * up to the default state size (5 MB).
@@ -62,7 +65,29 @@ public class MemoryStateBackend extends AbstractStateBackend {
 	 * @param maxStateSize The maximal size of the serialized state
 	 */
 	public MemoryStateBackend(int maxStateSize) {
+		this(maxStateSize, false);
+	}
+
+	/**
+	 * Creates a new memory state backend that accepts states whose serialized forms are
+	 * up to the default state size (5 MB).
+	 *
+	 * @param asynchronousSnapshots Switch to enable asynchronous snapshots of keyed state.
+	 */
+	public MemoryStateBackend(boolean asynchronousSnapshots) {
+		this(DEFAULT_MAX_STATE_SIZE, asynchronousSnapshots);
+	}
+
+	/**
+	 * Creates a new memory state backend that accepts states whose serialized forms are
+	 * up to the given number of bytes.
+	 *
+	 * @param maxStateSize The maximal size of the serialized state
+	 * @param asynchronousSnapshots Switch to enable asynchronous snapshots of keyed state.
+	 */
+	public MemoryStateBackend(int maxStateSize, boolean asynchronousSnapshots) {
 		this.maxStateSize = maxStateSize;
+		this.asynchronousSnapshots = asynchronousSnapshots;
 	}
 
 	@Override
@@ -90,7 +115,8 @@ public class MemoryStateBackend extends AbstractStateBackend {
 				keySerializer,
 				env.getUserClassLoader(),
 				numberOfKeyGroups,
-				keyGroupRange);
+				keyGroupRange,
+				asynchronousSnapshots);
 	}
 
 	@Override
@@ -109,6 +135,7 @@ public class MemoryStateBackend extends AbstractStateBackend {
 				env.getUserClassLoader(),
 				numberOfKeyGroups,
 				keyGroupRange,
+				asynchronousSnapshots,
 				restoredState);
 	}
 
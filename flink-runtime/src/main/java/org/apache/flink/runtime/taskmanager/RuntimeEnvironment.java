@@ -25,6 +25,7 @@ import org.apache.flink.configuration.Configuration;
 import org.apache.flink.core.fs.Path;
 import org.apache.flink.runtime.accumulators.AccumulatorRegistry;
 import org.apache.flink.runtime.broadcast.BroadcastVariableManager;
+import org.apache.flink.runtime.checkpoint.CheckpointDeclineReason;
 import org.apache.flink.runtime.checkpoint.CheckpointMetaData;
 import org.apache.flink.runtime.checkpoint.SubtaskState;
 import org.apache.flink.runtime.execution.Environment;
@@ -253,6 +254,11 @@ public class RuntimeEnvironment implements Environment {
 				checkpointStateHandles);
 	}
 
+	@Override
+	public void declineCheckpoint(CheckpointMetaData checkpointMetaData, CheckpointDeclineReason reason) {
+		checkpointResponder.declineCheckpoint(jobId, executionId, checkpointMetaData, reason);
+	}
+
 	@Override
 	public void failExternally(Throwable cause) {
 		this.containingTask.failExternally(cause);
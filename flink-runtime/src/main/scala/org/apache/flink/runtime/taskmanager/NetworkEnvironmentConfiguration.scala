@@ -18,6 +18,7 @@
 
 package org.apache.flink.runtime.taskmanager
 
+import org.apache.flink.configuration.ConfigConstants
 import org.apache.flink.core.memory.MemoryType
 import org.apache.flink.runtime.io.disk.iomanager.IOManager.IOMode
 import org.apache.flink.runtime.io.network.netty.NettyConfig
@@ -32,4 +33,7 @@ case class NetworkEnvironmentConfiguration(
   queryServerQueryThreads: Int,
   nettyConfig: Option[NettyConfig] = None,
   partitionRequestInitialBackoff: Int = 500,
-  partitinRequestMaxBackoff: Int = 3000)
+  partitinRequestMaxBackoff: Int = 3000,
+  networkBuffersPerChannel: Int = ConfigConstants.DEFAULT_TASK_MANAGER_NETWORK_BUFFERS_PER_CHANNEL,
+  floatingNetworkBuffersPerGate: Int =
+    ConfigConstants.DEFAULT_TASK_MANAGER_NETWORK_FLOATING_BUFFERS_PER_GATE)
@@ -1985,7 +1985,9 @@ object TaskManager {
       kvStateServer,
       netConfig.ioMode,
       netConfig.partitionRequestInitialBackoff,
-      netConfig.partitinRequestMaxBackoff)
+      netConfig.partitinRequestMaxBackoff,
+      netConfig.networkBuffersPerChannel,
+      netConfig.floatingNetworkBuffersPerGate)
 
     network.start()
 
@@ -2198,6 +2200,22 @@ object TaskManager {
 
     checkConfigParameter(numNetworkBuffers > 0, numNetworkBuffers,
       ConfigConstants.TASK_MANAGER_NETWORK_NUM_BUFFERS_KEY)
+
+    val networkBuffersPerChannel = configuration.getInteger(
+      ConfigConstants.TASK_MANAGER_NETWORK_BUFFERS_PER_CHANNEL_KEY,
+      ConfigConstants.DEFAULT_TASK_MANAGER_NETWORK_BUFFERS_PER_CHANNEL)
+
+    checkConfigParameter(networkBuffersPerChannel > 0, networkBuffersPerChannel,
+      ConfigConstants.TASK_MANAGER_NETWORK_BUFFERS_PER_CHANNEL_KEY,
+      "Remote input channels require at least one exclusive buffer.")
+
+    val floatingNetworkBuffersPerGate = configuration.getInteger(
+      ConfigConstants.TASK_MANAGER_NETWORK_FLOATING_BUFFERS_PER_GATE_KEY,
+      ConfigConstants.DEFAULT_TASK_MANAGER_NETWORK_FLOATING_BUFFERS_PER_GATE)
+
+    checkConfigParameter(floatingNetworkBuffersPerGate > 0, floatingNetworkBuffersPerGate,
+      ConfigConstants.TASK_MANAGER_NETWORK_FLOATING_BUFFERS_PER_GATE_KEY,
+      "Input gates require at least one floating buffer.")
     
     val pageSize: Int = configuration.getInteger(
       ConfigConstants.TASK_MANAGER_MEMORY_SEGMENT_SIZE_KEY,
@@ -2281,7 +2299,9 @@ object TaskManager {
       queryServerPort,
       queryServerNetworkThreads,
       queryServerQueryThreads,
-      nettyConfig)
+      nettyConfig,
+      networkBuffersPerChannel = networkBuffersPerChannel,
+      floatingNetworkBuffersPerGate = floatingNetworkBuffersPerGate)
 
     // ----> timeouts, library caching, profiling
 
@@ -38,6 +38,7 @@ import org.apache.flink.runtime.messages.checkpoint.DeclineCheckpoint;
 import org.apache.flink.runtime.messages.checkpoint.NotifyCheckpointComplete;
 import org.apache.flink.runtime.messages.checkpoint.TriggerCheckpoint;
 import org.apache.flink.runtime.state.ChainedStateHandle;
+import org.apache.flink.runtime.state.IncrementalKeyGroupsStateHandle;
 import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
 import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
@@ -59,6 +60,7 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import scala.concurrent.ExecutionContext;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -1895,6 +1897,133 @@ public class CheckpointCoordinatorTest {
 		verifiyStateRestore(jobVertexID2, jobVertex2, keyGroupPartitions2);
 	}
 
+	/**
+	 * Tests that restoring the state does not count the references of recovered checkpoints to
+	 * shared state twice, so that the shared files are deleted once the recovered checkpoints
+	 * are subsumed. Also tests that late messages discard the shared files created for them.
+	 */
+	@Test
+	public void testRestoreAndSubsumeIncrementalCheckpoints() throws Exception {
+		final JobID jid = new JobID();
+		final JobVertexID jobVertexID = new JobVertexID();
+		final ExecutionJobVertex jobVertex = mockExecutionJobVertex(jobVertexID, 1, 1);
+		final ExecutionVertex[] vertices = jobVertex.getTaskVertices();
+
+		// the store recovers copies of its checkpoints, like the ZooKeeper store does
+		CheckpointCoordinator coord = new CheckpointCoordinator(
+				jid,
+				600000,
+				600000,
+				0,
+				Integer.MAX_VALUE,
+				ExternalizedCheckpointSettings.none(),
+				vertices,
+				vertices,
+				vertices,
+				new StandaloneCheckpointIDCounter(),
+				new RecoveringCompletedCheckpointStore(),
+				null,
+				new DisabledCheckpointStatsTracker());
+
+		FileStateHandle file1 = createFileStateHandle();
+		FileStateHandle file2 = createFileStateHandle();
+		FileStateHandle file3 = createFileStateHandle();
+		FileStateHandle lateFile = createFileStateHandle();
+
+		long checkpoint1 = completeIncrementalCheckpoint(
+				coord, jid, jobVertexID, vertices[0],
+				Collections.<String, StreamStateHandle>singletonMap("1.sst", file1), "1.sst");
+
+		Map<JobVertexID, ExecutionJobVertex> tasks = new HashMap<>();
+		tasks.put(jobVertexID, jobVertex);
+		coord.restoreLatestCheckpointedState(tasks, true, true);
+
+		assertEquals(1, coord.getSharedStateRegistry().getReferenceCount(file1));
+
+		// the second checkpoint reuses the file of the first one and subsumes it
+		Map<String, StreamStateHandle> sharedState2 = new HashMap<>();
+		sharedState2.put("1.sst", file1);
+		sharedState2.put("2.sst", file2);
+		completeIncrementalCheckpoint(coord, jid, jobVertexID, vertices[0], sharedState2, "2.sst");
+
+		assertEquals(1, coord.getSharedStateRegistry().getReferenceCount(file1));
+		assertTrue(fileExists(file1));
+
+		// the third checkpoint reuses no file and subsumes the second one
+		completeIncrementalCheckpoint(
+				coord, jid, jobVertexID, vertices[0],
+				Collections.<String, StreamStateHandle>singletonMap("3.sst", file3), "3.sst");
+
+		assertFalse(fileExists(file1));
+		assertFalse(fileExists(file2));
+		assertTrue(fileExists(file3));
+		assertEquals(1, coord.getSharedStateRegistry().getNumberOfRegisteredHandles());
+
+		// a late message discards the files that were created for it, but not the reused ones
+		Map<String, StreamStateHandle> lateSharedState = new HashMap<>();
+		lateSharedState.put("3.sst", file3);
+		lateSharedState.put("4.sst", lateFile);
+		coord.receiveAcknowledgeMessage(new AcknowledgeCheckpoint(
+				jid,
+				vertices[0].getCurrentExecutionAttempt().getAttemptId(),
+				new CheckpointMetaData(checkpoint1, 0L),
+				createIncrementalSubtaskState(jobVertexID, checkpoint1, lateSharedState, "4.sst")));
+
+		assertFalse(fileExists(lateFile));
+		assertTrue(fileExists(file3));
+	}
+
+	private long completeIncrementalCheckpoint(
+			CheckpointCoordinator coord,
+			JobID jid,
+			JobVertexID jobVertexID,
+			ExecutionVertex vertex,
+			Map<String, StreamStateHandle> sharedState,
+			String createdFile) throws Exception {
+
+		assertTrue(coord.triggerCheckpoint(System.currentTimeMillis(), false));
+		long checkpointId = Iterables.getOnlyElement(coord.getPendingCheckpoints().keySet());
+
+		coord.receiveAcknowledgeMessage(new AcknowledgeCheckpoint(
+				jid,
+				vertex.getCurrentExecutionAttempt().getAttemptId(),
+				new CheckpointMetaData(checkpointId, 0L),
+				createIncrementalSubtaskState(jobVertexID, checkpointId, sharedState, createdFile)));
+
+		assertEquals(checkpointId, coord.getCheckpointStore().getLatestCheckpoint().getCheckpointID());
+		return checkpointId;
+	}
+
+	private static SubtaskState createIncrementalSubtaskState(
+			JobVertexID jobVertexID,
+			long checkpointId,
+			Map<String, StreamStateHandle> sharedState,
+			String createdFile) throws IOException {
+
+		IncrementalKeyGroupsStateHandle keyedState = new IncrementalKeyGroupsStateHandle(
+				new KeyGroupRange(0, 0),
+				checkpointId,
+				new ByteStreamStateHandle(String.valueOf(UUID.randomUUID()), new byte[] {1}),
+				sharedState,
+				new HashMap<String, StreamStateHandle>(),
+				Collections.singleton(createdFile));
+
+		return new SubtaskState(
+				generateStateForVertex(jobVertexID, 0),
+				generateChainedPartitionableStateHandle(jobVertexID, 0, 2, 8, false),
+				null,
+				keyedState,
+				null);
+	}
+
+	private FileStateHandle createFileStateHandle() throws IOException {
+		return new FileStateHandle(new Path(tmpFolder.newFile().toURI()), 1L);
+	}
+
+	private static boolean fileExists(FileStateHandle stateHandle) {
+		return new File(stateHandle.getFilePath().toUri().getPath()).exists();
+	}
+
 	/**
 	 * Tests that the checkpoint restoration fails if the max parallelism of the job vertices has
 	 * changed.
@@ -2960,4 +3089,51 @@ public class CheckpointCoordinatorTest {
 
 		coord.shutdown(JobStatus.FINISHED);
 	}
+
+	/**
+	 * A store that retains the latest checkpoint and recovers a serialized copy of it.
+	 */
+	private static class RecoveringCompletedCheckpointStore implements CompletedCheckpointStore {
+
+		private CompletedCheckpoint latest;
+
+		@Override
+		public void recover() throws Exception {
+			if (latest != null) {
+				latest = InstantiationUtil.clone(latest);
+			}
+		}
+
+		@Override
+		public void addCheckpoint(CompletedCheckpoint checkpoint) throws Exception {
+			CompletedCheckpoint previous = latest;
+			latest = checkpoint;
+
+			if (previous != null) {
+				previous.subsume();
+			}
+		}
+
+		@Override
+		public CompletedCheckpoint getLatestCheckpoint() {
+			return latest;
+		}
+
+		@Override
+		public void shutdown(JobStatus jobStatus) throws Exception {
+			latest = null;
+		}
+
+		@Override
+		public List<CompletedCheckpoint> getAllCheckpoints() {
+			return latest == null ?
+					Collections.<CompletedCheckpoint>emptyList() :
+					Collections.singletonList(latest);
+		}
+
+		@Override
+		public int getNumberOfRetainedCheckpoints() {
+			return latest == null ? 0 : 1;
+		}
+	}
 }
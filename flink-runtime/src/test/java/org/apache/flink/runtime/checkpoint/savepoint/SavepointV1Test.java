@@ -22,6 +22,8 @@ import org.apache.flink.runtime.checkpoint.SubtaskState;
 import org.apache.flink.runtime.checkpoint.TaskState;
 import org.apache.flink.runtime.jobgraph.JobVertexID;
 import org.apache.flink.runtime.state.ChainedStateHandle;
+import org.apache.flink.runtime.state.IncrementalKeyGroupsStateHandle;
+import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
 import org.apache.flink.runtime.state.KeyGroupsStateHandle;
 import org.apache.flink.runtime.state.OperatorStateHandle;
@@ -83,6 +85,7 @@ public class SavepointV1Test {
 			int noOperatorStateStreamAtIndex = random.nextInt(chainLength);
 
 			boolean hasKeyedBackend = random.nextInt(4) != 0;
+			boolean hasIncrementalKeyedBackend = random.nextBoolean();
 			boolean hasKeyedStream = random.nextInt(4) != 0;
 
 			for (int subtaskIdx = 0; subtaskIdx < numSubtasksPerTask; subtaskIdx++) {
@@ -123,7 +126,19 @@ public class SavepointV1Test {
 				KeyGroupsStateHandle keyedStateBackend = null;
 				KeyGroupsStateHandle keyedStateStream = null;
 
-				if (hasKeyedBackend) {
+				if (hasKeyedBackend && hasIncrementalKeyedBackend) {
+					Map<String, StreamStateHandle> sharedState = new HashMap<>();
+					sharedState.put("000001.sst", new TestByteStreamStateHandleDeepCompare("e", "Shared".getBytes()));
+					Map<String, StreamStateHandle> privateState = new HashMap<>();
+					privateState.put("CURRENT", new TestByteStreamStateHandleDeepCompare("f", "Private".getBytes()));
+
+					keyedStateBackend = new IncrementalKeyGroupsStateHandle(
+							new KeyGroupRange(1, 1),
+							subtaskIdx,
+							new TestByteStreamStateHandleDeepCompare("c", "Hello".getBytes()),
+							sharedState,
+							privateState);
+				} else if (hasKeyedBackend) {
 					keyedStateBackend = new KeyGroupsStateHandle(
 							new KeyGroupRangeOffsets(1, 1, new long[]{42}),
 							new TestByteStreamStateHandleDeepCompare("c", "Hello".getBytes()));
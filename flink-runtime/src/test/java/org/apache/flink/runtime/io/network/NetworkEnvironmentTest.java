@@ -77,7 +77,9 @@ public class NetworkEnvironmentTest {
 			0,
 			Some.<NettyConfig>empty(),
 			0,
-			0);
+			0,
+			2,
+			8);
 
 		NetworkEnvironment env = new NetworkEnvironment(
 			new NetworkBufferPool(config.numNetworkBuffers(), config.networkBufferSize(), config.memoryType()),
@@ -88,7 +90,9 @@ public class NetworkEnvironmentTest {
 			null,
 			config.ioMode(),
 			config.partitionRequestInitialBackoff(),
-			config.partitinRequestMaxBackoff());
+			config.partitinRequestMaxBackoff(),
+			config.networkBuffersPerChannel(),
+			config.floatingNetworkBuffersPerGate());
 
 		env.start();
 
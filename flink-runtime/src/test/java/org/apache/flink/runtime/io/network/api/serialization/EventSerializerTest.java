@@ -19,6 +19,7 @@
 package org.apache.flink.runtime.io.network.api.serialization;
 
 import org.apache.flink.runtime.event.AbstractEvent;
+import org.apache.flink.runtime.io.network.api.CancelCheckpointMarker;
 import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
 import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
 import org.apache.flink.runtime.io.network.api.EndOfSuperstepEvent;
@@ -39,6 +40,7 @@ public class EventSerializerTest {
 					EndOfPartitionEvent.INSTANCE,
 					EndOfSuperstepEvent.INSTANCE,
 					new CheckpointBarrier(1678L, 4623784L),
+					new CancelCheckpointMarker(287087987329842L),
 					new TestTaskEvent(Math.random(), 12361231273L)
 			};
 			
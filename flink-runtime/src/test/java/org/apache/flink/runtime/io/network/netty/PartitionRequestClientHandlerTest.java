@@ -26,7 +26,7 @@ import io.netty.channel.embedded.EmbeddedChannel;
 import org.apache.flink.core.memory.HeapMemorySegment;
 import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
-import org.apache.flink.runtime.io.network.buffer.BufferProvider;
+import org.apache.flink.runtime.io.network.netty.NettyMessage.AddCredit;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.BufferResponse;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.ErrorResponse;
 import org.apache.flink.runtime.io.network.partition.PartitionNotFoundException;
@@ -35,15 +35,12 @@ import org.apache.flink.runtime.io.network.partition.consumer.InputChannelID;
 import org.apache.flink.runtime.io.network.partition.consumer.RemoteInputChannel;
 import org.apache.flink.runtime.io.network.util.TestBufferFactory;
 import org.apache.flink.runtime.testutils.DiscardingRecycler;
-import org.apache.flink.runtime.util.event.EventListener;
 import org.junit.Test;
-import org.mockito.invocation.InvocationOnMock;
-import org.mockito.stubbing.Answer;
 
 import java.io.IOException;
-import java.util.concurrent.atomic.AtomicReference;
 
-import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
@@ -59,27 +56,20 @@ public class PartitionRequestClientHandlerTest {
 	 *
 	 * <p> FLINK-1627 discovered a race condition, which could lead to an infinite loop when a
 	 * receiver was cancelled during a certain time of decoding a message. The test reproduces the
-	 * input, which lead to the infinite loop: when the handler gets a reference to the buffer
-	 * provider of the receiving input channel, but the respective input channel is released (and
-	 * the corresponding buffer provider destroyed), the handler did not notice this.
+	 * input, which lead to the infinite loop: when the handler requests a buffer of the receiving
+	 * input channel, but the respective input channel is released, the handler did not notice this.
 	 *
 	 * @see <a href="https://issues.apache.org/jira/browse/FLINK-1627">FLINK-1627</a>
 	 */
 	@Test(timeout = 60000)
-	@SuppressWarnings("unchecked")
 	public void testReleaseInputChannelDuringDecode() throws Exception {
 		// Mocks an input channel in a state as it was released during a decode.
-		final BufferProvider bufferProvider = mock(BufferProvider.class);
-		when(bufferProvider.requestBuffer()).thenReturn(null);
-		when(bufferProvider.isDestroyed()).thenReturn(true);
-		when(bufferProvider.addListener(any(EventListener.class))).thenReturn(false);
-
 		final RemoteInputChannel inputChannel = mock(RemoteInputChannel.class);
 		when(inputChannel.getInputChannelId()).thenReturn(new InputChannelID());
-		when(inputChannel.getBufferProvider()).thenReturn(bufferProvider);
+		when(inputChannel.requestBuffer()).thenReturn(null);
 
 		final BufferResponse ReceivedBuffer = createBufferResponse(
-				TestBufferFactory.createBuffer(), 0, inputChannel.getInputChannelId());
+				TestBufferFactory.createBuffer(), 0, inputChannel.getInputChannelId(), 2);
 
 		final PartitionRequestClientHandler client = new PartitionRequestClientHandler();
 		client.addInputChannel(inputChannel);
@@ -95,19 +85,17 @@ public class PartitionRequestClientHandlerTest {
 	@Test
 	public void testReceiveEmptyBuffer() throws Exception {
 		// Minimal mock of a remote input channel
-		final BufferProvider bufferProvider = mock(BufferProvider.class);
-		when(bufferProvider.requestBuffer()).thenReturn(TestBufferFactory.createBuffer());
-
 		final RemoteInputChannel inputChannel = mock(RemoteInputChannel.class);
 		when(inputChannel.getInputChannelId()).thenReturn(new InputChannelID());
-		when(inputChannel.getBufferProvider()).thenReturn(bufferProvider);
+		when(inputChannel.requestBuffer()).thenReturn(TestBufferFactory.createBuffer());
 
 		// An empty buffer of size 0
 		final Buffer emptyBuffer = TestBufferFactory.createBuffer();
 		emptyBuffer.setSize(0);
 
+		final int backlog = 2;
 		final BufferResponse receivedBuffer = createBufferResponse(
-				emptyBuffer, 0, inputChannel.getInputChannelId());
+				emptyBuffer, 0, inputChannel.getInputChannelId(), backlog);
 
 		final PartitionRequestClientHandler client = new PartitionRequestClientHandler();
 		client.addInputChannel(inputChannel);
@@ -117,6 +105,33 @@ public class PartitionRequestClientHandlerTest {
 
 		// This should not throw an exception
 		verify(inputChannel, never()).onError(any(Throwable.class));
+		verify(inputChannel, times(1)).onEmptyBuffer(0, backlog);
+	}
+
+	/**
+	 * Verifies that a received buffer is copied into a buffer of the input channel and handed to
+	 * the input channel together with the backlog of the sender.
+	 */
+	@Test
+	public void testReceiveBuffer() throws Exception {
+		final Buffer channelBuffer = createBuffer(false);
+
+		final RemoteInputChannel inputChannel = mock(RemoteInputChannel.class);
+		when(inputChannel.getInputChannelId()).thenReturn(new InputChannelID());
+		when(inputChannel.requestBuffer()).thenReturn(channelBuffer);
+
+		final int backlog = 5;
+		final BufferResponse receivedBuffer = createBufferResponse(
+				createBuffer(true), 3, inputChannel.getInputChannelId(), backlog);
+
+		final PartitionRequestClientHandler client = new PartitionRequestClientHandler();
+		client.addInputChannel(inputChannel);
+
+		client.channelRead(mock(ChannelHandlerContext.class), receivedBuffer);
+
+		verify(inputChannel, times(1)).onBuffer(channelBuffer, 3, backlog);
+		assertEquals(1024, channelBuffer.getSize());
+		assertEquals((byte) 17, channelBuffer.getMemorySegment().get(17));
 	}
 
 	/**
@@ -126,12 +141,9 @@ public class PartitionRequestClientHandlerTest {
 	@Test
 	public void testReceivePartitionNotFoundException() throws Exception {
 		// Minimal mock of a remote input channel
-		final BufferProvider bufferProvider = mock(BufferProvider.class);
-		when(bufferProvider.requestBuffer()).thenReturn(TestBufferFactory.createBuffer());
-
 		final RemoteInputChannel inputChannel = mock(RemoteInputChannel.class);
 		when(inputChannel.getInputChannelId()).thenReturn(new InputChannelID());
-		when(inputChannel.getBufferProvider()).thenReturn(bufferProvider);
+		when(inputChannel.requestBuffer()).thenReturn(TestBufferFactory.createBuffer());
 
 		final ErrorResponse partitionNotFound = new ErrorResponse(
 				new PartitionNotFoundException(new ResultPartitionID()),
@@ -168,70 +180,55 @@ public class PartitionRequestClientHandlerTest {
 	}
 
 	/**
-	 * Tests that an unsuccessful message decode call for a staged message
-	 * does not leave the channel with auto read set to false.
+	 * Verifies that the unannounced credit of an input channel is sent to the producer after the
+	 * input channel notified the handler, and that each credit is announced only once.
 	 */
 	@Test
-	@SuppressWarnings("unchecked")
-	public void testAutoReadAfterUnsuccessfulStagedMessage() throws Exception {
-		PartitionRequestClientHandler handler = new PartitionRequestClientHandler();
-		EmbeddedChannel channel = new EmbeddedChannel(handler);
-
-		final AtomicReference<EventListener<Buffer>> listener = new AtomicReference<>();
-
-		BufferProvider bufferProvider = mock(BufferProvider.class);
-		when(bufferProvider.addListener(any(EventListener.class))).thenAnswer(new Answer<Boolean>() {
-			@Override
-			@SuppressWarnings("unchecked")
-			public Boolean answer(InvocationOnMock invocation) throws Throwable {
-				listener.set((EventListener<Buffer>) invocation.getArguments()[0]);
-				return true;
-			}
-		});
+	public void testNotifyCreditAvailable() throws Exception {
+		final PartitionRequestClientHandler handler = new PartitionRequestClientHandler();
+		final EmbeddedChannel channel = new EmbeddedChannel(handler);
 
-		when(bufferProvider.requestBuffer()).thenReturn(null);
-
-		InputChannelID channelId = new InputChannelID(0, 0);
-		RemoteInputChannel inputChannel = mock(RemoteInputChannel.class);
+		final InputChannelID channelId = new InputChannelID();
+		final RemoteInputChannel inputChannel = mock(RemoteInputChannel.class);
 		when(inputChannel.getInputChannelId()).thenReturn(channelId);
-
-		// The 3rd staged msg has a null buffer provider
-		when(inputChannel.getBufferProvider()).thenReturn(bufferProvider, bufferProvider, null);
+		when(inputChannel.getAndResetUnannouncedCredit()).thenReturn(2, 0);
 
 		handler.addInputChannel(inputChannel);
 
-		BufferResponse msg = createBufferResponse(createBuffer(true), 0, channelId);
+		handler.notifyCreditAvailable(inputChannel);
+		channel.runPendingTasks();
 
-		// Write 1st buffer msg. No buffer is available, therefore the buffer
-		// should be staged and auto read should be set to false.
-		assertTrue(channel.config().isAutoRead());
-		channel.writeInbound(msg);
+		Object msg = channel.readOutbound();
+		assertTrue(msg instanceof AddCredit);
+		assertEquals(2, ((AddCredit) msg).credit);
+		assertEquals(channelId, ((AddCredit) msg).receiverId);
 
-		// No buffer available, auto read false
-		assertFalse(channel.config().isAutoRead());
+		// The credit has been announced already
+		handler.notifyCreditAvailable(inputChannel);
+		channel.runPendingTasks();
 
-		// Write more buffers... all staged.
-		msg = createBufferResponse(createBuffer(true), 1, channelId);
-		channel.writeInbound(msg);
+		assertNull(channel.readOutbound());
+	}
 
-		msg = createBufferResponse(createBuffer(true), 2, channelId);
-		channel.writeInbound(msg);
+	/**
+	 * Verifies that no credit is announced for released input channels.
+	 */
+	@Test
+	public void testNoCreditAnnouncementForReleasedChannel() throws Exception {
+		final PartitionRequestClientHandler handler = new PartitionRequestClientHandler();
+		final EmbeddedChannel channel = new EmbeddedChannel(handler);
 
-		// Notify about buffer => handle 1st msg
-		Buffer availableBuffer = createBuffer(false);
-		listener.get().onEvent(availableBuffer);
+		final RemoteInputChannel inputChannel = mock(RemoteInputChannel.class);
+		when(inputChannel.getInputChannelId()).thenReturn(new InputChannelID());
+		when(inputChannel.getAndResetUnannouncedCredit()).thenReturn(2);
+		when(inputChannel.isReleased()).thenReturn(true);
 
-		// Start processing of staged buffers (in run pending tasks). Make
-		// sure that the buffer provider acts like it's destroyed.
-		when(bufferProvider.addListener(any(EventListener.class))).thenReturn(false);
-		when(bufferProvider.isDestroyed()).thenReturn(true);
+		handler.addInputChannel(inputChannel);
 
-		// Execute all tasks that are scheduled in the event loop. Further
-		// eventLoop().execute() calls are directly executed, if they are
-		// called in the scope of this call.
+		handler.notifyCreditAvailable(inputChannel);
 		channel.runPendingTasks();
 
-		assertTrue(channel.config().isAutoRead());
+		assertNull(channel.readOutbound());
 	}
 
 	// ---------------------------------------------------------------------------------------------
@@ -252,10 +249,11 @@ public class PartitionRequestClientHandlerTest {
 	private BufferResponse createBufferResponse(
 			Buffer buffer,
 			int sequenceNumber,
-			InputChannelID receivingChannelId) throws IOException {
+			InputChannelID receivingChannelId,
+			int backlog) throws IOException {
 
 		// Mock buffer to serialize
-		BufferResponse resp = new BufferResponse(buffer, sequenceNumber, receivingChannelId);
+		BufferResponse resp = new BufferResponse(buffer, sequenceNumber, receivingChannelId, backlog);
 
 		ByteBuf serialized = resp.write(UnpooledByteBufAllocator.DEFAULT);
 
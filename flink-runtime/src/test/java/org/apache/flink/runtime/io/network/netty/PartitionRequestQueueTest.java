@@ -20,9 +20,13 @@ package org.apache.flink.runtime.io.network.netty;
 
 import io.netty.channel.embedded.EmbeddedChannel;
 import org.apache.flink.runtime.execution.CancelTaskException;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.partition.ResultSubpartitionView;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannelID;
+import org.apache.flink.runtime.io.network.util.TestBufferFactory;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -42,7 +46,7 @@ public class PartitionRequestQueueTest {
 		when(view.getFailureCause()).thenReturn(new RuntimeException("Expected test exception"));
 
 		// Enqueue the erroneous view
-		queue.enqueue(view, new InputChannelID());
+		queue.enqueue(view, new InputChannelID(), 2);
 		ch.runPendingTasks();
 
 		// Read the enqueued msg
@@ -53,4 +57,50 @@ public class PartitionRequestQueueTest {
 		NettyMessage.ErrorResponse err = (NettyMessage.ErrorResponse) msg;
 		assertTrue(err.cause instanceof CancelTaskException);
 	}
+
+	/**
+	 * Tests that a partition queue only sends as many data buffers as the consumer has
+	 * announced credit for, and continues after further credit has been announced.
+	 */
+	@Test
+	public void testSendBuffersOnlyWithCredit() throws Exception {
+		PartitionRequestQueue queue = new PartitionRequestQueue();
+
+		EmbeddedChannel ch = new EmbeddedChannel(queue);
+
+		// An infinite partition queue
+		ResultSubpartitionView view = mock(ResultSubpartitionView.class);
+		when(view.getNextBuffer()).thenAnswer(new Answer<Buffer>() {
+			@Override
+			public Buffer answer(InvocationOnMock invocation) throws Throwable {
+				return TestBufferFactory.createBuffer();
+			}
+		});
+
+		InputChannelID receiverId = new InputChannelID();
+
+		queue.enqueue(view, receiverId, 2);
+		ch.runPendingTasks();
+
+		assertEquals(2, readBufferResponses(ch));
+
+		queue.addCredit(receiverId, 3);
+		ch.runPendingTasks();
+
+		assertEquals(3, readBufferResponses(ch));
+	}
+
+	private static int readBufferResponses(EmbeddedChannel ch) {
+		int numBufferResponses = 0;
+
+		Object msg;
+		while ((msg = ch.readOutbound()) != null) {
+			assertEquals(NettyMessage.BufferResponse.class, msg.getClass());
+			((NettyMessage.BufferResponse) msg).releaseBuffer();
+
+			numBufferResponses++;
+		}
+
+		return numBufferResponses;
+	}
 }
@@ -19,9 +19,14 @@
 package org.apache.flink.runtime.io.network.partition.consumer;
 
 import com.google.common.collect.Lists;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemoryType;
 import org.apache.flink.runtime.execution.CancelTaskException;
 import org.apache.flink.runtime.io.network.ConnectionID;
 import org.apache.flink.runtime.io.network.ConnectionManager;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferPool;
+import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
 import org.apache.flink.runtime.io.network.netty.PartitionRequestClient;
 import org.apache.flink.runtime.io.network.partition.ProducerFailedException;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
@@ -40,6 +45,7 @@ import java.util.concurrent.Future;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -279,6 +285,97 @@ public class RemoteInputChannelTest {
 		ch.getNextBuffer();
 	}
 
+	/**
+	 * Tests that the exclusive buffers are announced as initial credit and that recycled
+	 * exclusive buffers are announced as new credit.
+	 */
+	@Test
+	public void testExclusiveBuffersAndCredit() throws Exception {
+		final NetworkBufferPool networkBufferPool = new NetworkBufferPool(4, 32, MemoryType.HEAP);
+		final PartitionRequestClient client = mock(PartitionRequestClient.class);
+		final SingleInputGate inputGate = mock(SingleInputGate.class);
+
+		try {
+			final RemoteInputChannel inputChannel = createRemoteInputChannel(
+					inputGate, client, new Tuple2<Integer, Integer>(0, 0));
+
+			inputChannel.assignExclusiveSegments(networkBufferPool.requestMemorySegments(2));
+			inputChannel.requestSubpartition(0);
+
+			assertEquals(2, inputChannel.getInitialCredit());
+			assertEquals(2, inputChannel.getNumberOfAvailableBuffers());
+
+			final Buffer first = inputChannel.requestBuffer();
+			final Buffer second = inputChannel.requestBuffer();
+
+			assertEquals(0, inputChannel.getNumberOfAvailableBuffers());
+
+			try {
+				inputChannel.requestBuffer();
+
+				fail("Did not throw expected exception when the producer exceeded its credit.");
+			}
+			catch (IllegalStateException expected) {
+			}
+
+			first.recycle();
+			second.recycle();
+
+			// Only the first credit triggers a notification until the credit is announced
+			verify(client, times(1)).notifyCreditAvailable(inputChannel);
+			assertEquals(2, inputChannel.getNumberOfAvailableBuffers());
+			assertEquals(2, inputChannel.getAndResetUnannouncedCredit());
+			assertEquals(0, inputChannel.getAndResetUnannouncedCredit());
+		}
+		finally {
+			networkBufferPool.destroy();
+		}
+	}
+
+	/**
+	 * Tests that floating buffers are requested for the backlog of the producer and that all
+	 * buffers are given back when the channel is released.
+	 */
+	@Test
+	public void testFloatingBuffersForSenderBacklog() throws Exception {
+		final NetworkBufferPool networkBufferPool = new NetworkBufferPool(12, 32, MemoryType.HEAP);
+		final BufferPool bufferPool = networkBufferPool.createBufferPool(8, false);
+
+		final SingleInputGate inputGate = mock(SingleInputGate.class);
+		when(inputGate.getBufferProvider()).thenReturn(bufferPool);
+
+		try {
+			final RemoteInputChannel inputChannel = createRemoteInputChannel(inputGate);
+
+			inputChannel.assignExclusiveSegments(networkBufferPool.requestMemorySegments(2));
+			inputChannel.requestSubpartition(0);
+
+			// Receive a buffer with a backlog of 3 buffers, which requires 4 floating buffers
+			// in addition to the remaining exclusive buffer
+			inputChannel.onBuffer(inputChannel.requestBuffer(), 0, 3);
+
+			assertEquals(5, inputChannel.getNumberOfAvailableBuffers());
+			assertEquals(4, inputChannel.getAndResetUnannouncedCredit());
+			assertEquals(0, bufferPool.getNumberOfAvailableMemorySegments());
+
+			// A lower backlog does not request further buffers
+			inputChannel.onEmptyBuffer(1, 1);
+
+			assertEquals(5, inputChannel.getNumberOfAvailableBuffers());
+			assertEquals(0, inputChannel.getAndResetUnannouncedCredit());
+
+			inputChannel.releaseAllResources();
+
+			assertEquals(0, inputChannel.getNumberOfAvailableBuffers());
+			assertEquals(4, bufferPool.getNumberOfAvailableMemorySegments());
+			verify(inputGate, times(2)).returnExclusiveSegments(anyListOf(MemorySegment.class));
+		}
+		finally {
+			bufferPool.lazyDestroy();
+			networkBufferPool.destroy();
+		}
+	}
+
 	// ---------------------------------------------------------------------------------------------
 
 	private RemoteInputChannel createRemoteInputChannel(SingleInputGate inputGate)
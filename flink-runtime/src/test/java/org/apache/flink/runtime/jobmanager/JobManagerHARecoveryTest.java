@@ -32,6 +32,7 @@ import org.apache.flink.runtime.akka.AkkaUtils;
 import org.apache.flink.runtime.akka.ListeningBehaviour;
 import org.apache.flink.runtime.blob.BlobServer;
 import org.apache.flink.runtime.checkpoint.CheckpointIDCounter;
+import org.apache.flink.runtime.checkpoint.CheckpointDeclineReason;
 import org.apache.flink.runtime.checkpoint.CheckpointMetaData;
 import org.apache.flink.runtime.checkpoint.CheckpointRecoveryFactory;
 import org.apache.flink.runtime.checkpoint.CompletedCheckpoint;
@@ -479,6 +480,11 @@ public class JobManagerHARecoveryTest {
 			throw new UnsupportedOperationException("should not be called!");
 		}
 
+		@Override
+		public void abortCheckpointOnBarrier(CheckpointMetaData checkpointMetaData, CheckpointDeclineReason reason) throws Exception {
+			throw new UnsupportedOperationException("should not be called!");
+		}
+
 		@Override
 		public void notifyCheckpointComplete(long checkpointId) {
 			if (completedCheckpoints++ > NUM_CHECKPOINTS_TO_COMPLETE) {
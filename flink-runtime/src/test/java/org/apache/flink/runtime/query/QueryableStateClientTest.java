@@ -37,7 +37,7 @@ import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.VoidNamespace;
 import org.apache.flink.runtime.state.VoidNamespaceSerializer;
 import org.apache.flink.runtime.state.heap.HeapValueState;
-import org.apache.flink.runtime.state.heap.StateTable;
+import org.apache.flink.runtime.state.heap.NestedMapsStateTable;
 import org.apache.flink.runtime.state.memory.MemoryStateBackend;
 import org.apache.flink.util.MathUtils;
 import org.junit.AfterClass;
@@ -272,7 +272,7 @@ public class QueryableStateClientTest {
 				HeapValueState<Integer, VoidNamespace, Integer> kvState = new HeapValueState<>(
 						keyedStateBackend,
 						new ValueStateDescriptor<>("any", IntSerializer.INSTANCE, null),
-						new StateTable<Integer, VoidNamespace, Integer>(IntSerializer.INSTANCE, VoidNamespaceSerializer.INSTANCE,  new KeyGroupRange(0, 1)),
+						new NestedMapsStateTable<Integer, VoidNamespace, Integer>(IntSerializer.INSTANCE, VoidNamespaceSerializer.INSTANCE,  new KeyGroupRange(0, 1)),
 						IntSerializer.INSTANCE,
 						VoidNamespaceSerializer.INSTANCE);
 
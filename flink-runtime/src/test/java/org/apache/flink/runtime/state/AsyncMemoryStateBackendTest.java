@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.state.ListState;
+import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.runtime.state.heap.AbstractHeapState;
+import org.apache.flink.runtime.state.heap.CopyOnWriteStateTable;
+import org.apache.flink.runtime.state.memory.MemoryStateBackend;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RunnableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link org.apache.flink.runtime.state.memory.MemoryStateBackend} with
+ * asynchronous snapshots of keyed state.
+ */
+public class AsyncMemoryStateBackendTest extends StateBackendTestBase<MemoryStateBackend> {
+
+	@Override
+	protected MemoryStateBackend getStateBackend() throws Exception {
+		return new MemoryStateBackend(true);
+	}
+
+	// disable these because the verification does not work for this state backend
+	@Override
+	@Test
+	public void testValueStateRestoreWithWrongSerializers() {}
+
+	@Override
+	@Test
+	public void testListStateRestoreWithWrongSerializers() {}
+
+	@Override
+	@Test
+	public void testReducingStateRestoreWithWrongSerializers() {}
+
+	@Test
+	public void testConcurrentMapIfQueryable() throws Exception {
+		super.testConcurrentMapIfQueryable();
+	}
+
+	@Test
+	public void testConcurrentMapIfQueryableAfterRestore() throws Exception {
+		super.testConcurrentMapIfQueryableAfterRestore();
+	}
+
+	/**
+	 * Tests that modifications after the synchronous part of a snapshot are not visible in the
+	 * snapshot, even if the snapshot is written after the modifications.
+	 */
+	@Test
+	public void testModificationsDuringAsyncSnapshot() throws Exception {
+		CheckpointStreamFactory streamFactory = createStreamFactory();
+		AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+
+		ValueStateDescriptor<String> valueId = new ValueStateDescriptor<>("value", String.class, null);
+		valueId.initializeSerializerUnlessSet(new ExecutionConfig());
+		ListStateDescriptor<String> listId = new ListStateDescriptor<>("list", String.class);
+		listId.initializeSerializerUnlessSet(new ExecutionConfig());
+
+		ValueState<String> valueState = backend.getPartitionedState(
+				VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, valueId);
+		ListState<String> listState = backend.getPartitionedState(
+				VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, listId);
+
+		assertTrue(((AbstractHeapState<?, ?, ?, ?, ?>) valueState).getStateTable() instanceof CopyOnWriteStateTable);
+
+		for (int key = 0; key < 100; ++key) {
+			backend.setCurrentKey(key);
+			valueState.update("v" + key);
+			listState.add("l" + key);
+		}
+
+		RunnableFuture<KeyGroupsStateHandle> snapshotFuture = backend.snapshot(1L, 1L, streamFactory);
+		assertFalse(snapshotFuture.isDone());
+
+		// modify the state before the snapshot is written
+		for (int key = 0; key < 100; ++key) {
+			backend.setCurrentKey(key);
+			if (key % 2 == 0) {
+				valueState.clear();
+			} else {
+				valueState.update("u" + key);
+			}
+			listState.add("m" + key);
+		}
+		for (int key = 100; key < 200; ++key) {
+			backend.setCurrentKey(key);
+			valueState.update("v" + key);
+		}
+
+		snapshotFuture.run();
+		KeyGroupsStateHandle snapshot = snapshotFuture.get();
+
+		// the live state has all modifications
+		backend.setCurrentKey(1);
+		assertEquals("u1", valueState.value());
+		assertEquals(listOf("l1", "m1"), toList(listState.get()));
+
+		backend.dispose();
+		backend = restoreKeyedBackend(IntSerializer.INSTANCE, snapshot);
+
+		ValueState<String> restoredValueState = backend.getPartitionedState(
+				VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, valueId);
+		ListState<String> restoredListState = backend.getPartitionedState(
+				VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, listId);
+
+		for (int key = 0; key < 100; ++key) {
+			backend.setCurrentKey(key);
+			assertEquals("v" + key, restoredValueState.value());
+			assertEquals(listOf("l" + key), toList(restoredListState.get()));
+		}
+		for (int key = 100; key < 200; ++key) {
+			backend.setCurrentKey(key);
+			assertNull(restoredValueState.value());
+		}
+
+		snapshot.discardState();
+		backend.dispose();
+	}
+
+	private static List<String> listOf(String... values) {
+		List<String> list = new ArrayList<>();
+		for (String value : values) {
+			list.add(value);
+		}
+		return list;
+	}
+
+	private static List<String> toList(Iterable<String> iterable) {
+		List<String> list = new ArrayList<>();
+		for (String value : iterable) {
+			list.add(value);
+		}
+		return list;
+	}
+}
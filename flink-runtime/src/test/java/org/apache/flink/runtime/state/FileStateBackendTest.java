@@ -208,4 +208,9 @@ public class FileStateBackendTest extends StateBackendTestBase<FsStateBackend> {
 		super.testConcurrentMapIfQueryable();
 	}
 
+	@Test
+	public void testConcurrentMapIfQueryableAfterRestore() throws Exception {
+		super.testConcurrentMapIfQueryableAfterRestore();
+	}
+
 }
@@ -150,4 +150,9 @@ public class MemoryStateBackendTest extends StateBackendTestBase<MemoryStateBack
 	public void testConcurrentMapIfQueryable() throws Exception {
 		super.testConcurrentMapIfQueryable();
 	}
+
+	@Test
+	public void testConcurrentMapIfQueryableAfterRestore() throws Exception {
+		super.testConcurrentMapIfQueryableAfterRestore();
+	}
 }
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state;
+
+import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
+import org.apache.flink.util.InstantiationUtil;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link SharedStateRegistry} and the shared state of {@link IncrementalKeyGroupsStateHandle}.
+ */
+public class SharedStateRegistryTest {
+
+	/**
+	 * Tests that a shared state handle is only discarded once its last reference is released.
+	 */
+	@Test
+	public void testReferenceCounting() throws Exception {
+		SharedStateRegistry registry = new SharedStateRegistry();
+		StreamStateHandle stateHandle = mock(StreamStateHandle.class);
+
+		assertEquals(1, registry.register(stateHandle));
+		assertEquals(2, registry.register(stateHandle));
+		assertEquals(2, registry.getReferenceCount(stateHandle));
+
+		assertEquals(1, registry.unregister(stateHandle));
+		verify(stateHandle, never()).discardState();
+
+		assertEquals(0, registry.unregister(stateHandle));
+		verify(stateHandle, times(1)).discardState();
+		assertEquals(0, registry.getNumberOfRegisteredHandles());
+
+		// releasing an unknown handle does not discard it
+		assertEquals(0, registry.unregister(stateHandle));
+		verify(stateHandle, times(1)).discardState();
+	}
+
+	/**
+	 * Tests that equal state handles of different snapshots share one reference count.
+	 */
+	@Test
+	public void testEqualHandlesAreShared() throws Exception {
+		SharedStateRegistry registry = new SharedStateRegistry();
+
+		ByteStreamStateHandle sharedFile = spy(new ByteStreamStateHandle("shared", new byte[] {1, 2, 3}));
+		ByteStreamStateHandle otherSharedFile = spy(new ByteStreamStateHandle("other", new byte[] {4}));
+
+		IncrementalKeyGroupsStateHandle snapshot1 = createStateHandle(1L, sharedFile);
+		IncrementalKeyGroupsStateHandle snapshot2 = createStateHandle(2L, sharedFile, otherSharedFile);
+
+		snapshot1.registerSharedState(registry);
+		snapshot2.registerSharedState(registry);
+
+		// registering again has no effect
+		snapshot2.registerSharedState(registry);
+		assertTrue(snapshot2.isSharedStateRegistered());
+		assertEquals(2, registry.getReferenceCount(sharedFile));
+		assertEquals(1, registry.getReferenceCount(otherSharedFile));
+
+		snapshot1.discardState();
+		assertFalse(snapshot1.isSharedStateRegistered());
+		verify(sharedFile, never()).discardState();
+		verify(snapshot1.getMetaStateHandle(), times(1)).discardState();
+
+		snapshot2.discardState();
+		verify(sharedFile, times(1)).discardState();
+		verify(otherSharedFile, times(1)).discardState();
+		assertEquals(0, registry.getNumberOfRegisteredHandles());
+	}
+
+	/**
+	 * Tests that a snapshot whose shared state is not registered discards the shared files that
+	 * were created for it, but not the shared files that it reuses.
+	 */
+	@Test
+	public void testUnregisteredSnapshotDiscardsCreatedSharedState() throws Exception {
+		StreamStateHandle reusedFile = mock(StreamStateHandle.class);
+		StreamStateHandle createdFile = mock(StreamStateHandle.class);
+		StreamStateHandle privateFile = mock(StreamStateHandle.class);
+
+		Map<String, StreamStateHandle> sharedState = new HashMap<>();
+		sharedState.put("000001.sst", reusedFile);
+		sharedState.put("000002.sst", createdFile);
+		Map<String, StreamStateHandle> privateState = new HashMap<>();
+		privateState.put("MANIFEST-000001", privateFile);
+
+		IncrementalKeyGroupsStateHandle snapshot = new IncrementalKeyGroupsStateHandle(
+				new KeyGroupRange(0, 9), 1L, mock(StreamStateHandle.class), sharedState, privateState,
+				Collections.singleton("000002.sst"));
+
+		snapshot.discardState();
+
+		verify(privateFile, times(1)).discardState();
+		verify(createdFile, times(1)).discardState();
+		verify(reusedFile, never()).discardState();
+
+		// discarding again does not discard the created files twice
+		snapshot.discardState();
+		verify(createdFile, times(1)).discardState();
+	}
+
+	/**
+	 * Tests that a registered snapshot leaves its created shared files to the registry, also in
+	 * copies that are taken after the registration, such as recovered checkpoints.
+	 */
+	@Test
+	public void testRegisteredSnapshotReleasesCreatedSharedState() throws Exception {
+		SharedStateRegistry registry = new SharedStateRegistry();
+		ByteStreamStateHandle createdFile = new ByteStreamStateHandle("created", new byte[] {1, 2, 3});
+
+		IncrementalKeyGroupsStateHandle snapshot = new IncrementalKeyGroupsStateHandle(
+				new KeyGroupRange(0, 9),
+				1L,
+				new ByteStreamStateHandle("meta", new byte[] {4}),
+				Collections.<String, StreamStateHandle>singletonMap("000001.sst", createdFile),
+				new HashMap<String, StreamStateHandle>(),
+				Collections.singleton("000001.sst"));
+
+		snapshot.registerSharedState(registry);
+		assertTrue(snapshot.getCreatedSharedState().isEmpty());
+
+		IncrementalKeyGroupsStateHandle copy = InstantiationUtil.clone(snapshot);
+		assertFalse(copy.isSharedStateRegistered());
+		assertTrue(copy.getCreatedSharedState().isEmpty());
+
+		// the copy replaces the snapshot in a new registry
+		SharedStateRegistry newRegistry = new SharedStateRegistry();
+		copy.registerSharedState(newRegistry);
+		assertEquals(1, newRegistry.getReferenceCount(createdFile));
+
+		copy.discardState();
+		assertEquals(0, newRegistry.getNumberOfRegisteredHandles());
+	}
+
+	/**
+	 * Tests that registering with another registry moves the references to that registry.
+	 */
+	@Test
+	public void testRegisterWithAnotherRegistry() throws Exception {
+		SharedStateRegistry registry = new SharedStateRegistry();
+		SharedStateRegistry newRegistry = new SharedStateRegistry();
+		StreamStateHandle sharedFile = mock(StreamStateHandle.class);
+
+		IncrementalKeyGroupsStateHandle snapshot = createStateHandle(1L, sharedFile);
+		snapshot.registerSharedState(registry);
+		snapshot.registerSharedState(newRegistry);
+
+		assertEquals(1, newRegistry.getReferenceCount(sharedFile));
+
+		snapshot.discardState();
+		verify(sharedFile, times(1)).discardState();
+		assertEquals(0, newRegistry.getNumberOfRegisteredHandles());
+		assertEquals(1, registry.getReferenceCount(sharedFile));
+	}
+
+	private static IncrementalKeyGroupsStateHandle createStateHandle(
+			long checkpointId, StreamStateHandle... sharedFiles) {
+
+		Map<String, StreamStateHandle> sharedState = new HashMap<>();
+		for (int i = 0; i < sharedFiles.length; ++i) {
+			sharedState.put(i + ".sst", sharedFiles[i]);
+		}
+
+		return new IncrementalKeyGroupsStateHandle(
+				new KeyGroupRange(0, 9),
+				checkpointId,
+				mock(StreamStateHandle.class),
+				sharedState,
+				new HashMap<String, StreamStateHandle>());
+	}
+}
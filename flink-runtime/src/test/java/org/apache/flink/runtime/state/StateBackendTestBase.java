@@ -22,12 +22,17 @@ import com.google.common.base.Joiner;
 import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.apache.flink.api.common.ExecutionConfig;
 import org.apache.flink.api.common.JobID;
+import org.apache.flink.api.common.functions.AggregateFunction;
 import org.apache.flink.api.common.functions.FoldFunction;
 import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.common.state.AggregatingState;
+import org.apache.flink.api.common.state.AggregatingStateDescriptor;
 import org.apache.flink.api.common.state.FoldingState;
 import org.apache.flink.api.common.state.FoldingStateDescriptor;
 import org.apache.flink.api.common.state.ListState;
 import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
 import org.apache.flink.api.common.state.ReducingState;
 import org.apache.flink.api.common.state.ReducingStateDescriptor;
 import org.apache.flink.api.common.state.ValueState;
@@ -37,6 +42,7 @@ import org.apache.flink.api.common.typeutils.base.FloatSerializer;
 import org.apache.flink.api.common.typeutils.base.IntSerializer;
 import org.apache.flink.api.common.typeutils.base.LongSerializer;
 import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.api.common.typeutils.base.array.LongPrimitiveArraySerializer;
 import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
 import org.apache.flink.runtime.checkpoint.StateAssignmentOperation;
 import org.apache.flink.runtime.execution.Environment;
@@ -46,12 +52,16 @@ import org.apache.flink.runtime.query.KvStateRegistry;
 import org.apache.flink.runtime.query.KvStateRegistryListener;
 import org.apache.flink.runtime.query.netty.message.KvStateRequestSerializer;
 import org.apache.flink.runtime.state.heap.AbstractHeapState;
-import org.apache.flink.runtime.state.heap.StateTable;
+import org.apache.flink.runtime.state.heap.NestedMapsStateTable;
 import org.apache.flink.types.IntValue;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.RunnableFuture;
@@ -455,6 +465,133 @@ public abstract class StateBackendTestBase<B extends AbstractStateBackend> {
 		}
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testMapState() throws Exception {
+		CheckpointStreamFactory streamFactory = createStreamFactory();
+		AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+
+		MapStateDescriptor<Integer, String> kvId = new MapStateDescriptor<>("id", Integer.class, String.class);
+		kvId.initializeSerializerUnlessSet(new ExecutionConfig());
+
+		TypeSerializer<Integer> keySerializer = IntSerializer.INSTANCE;
+		TypeSerializer<VoidNamespace> namespaceSerializer = VoidNamespaceSerializer.INSTANCE;
+		TypeSerializer<Map<Integer, String>> valueSerializer = kvId.getSerializer();
+
+		MapState<Integer, String> state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+		KvState<VoidNamespace> kvState = (KvState<VoidNamespace>) state;
+
+		// some modifications to the state
+		backend.setCurrentKey(1);
+		assertNull(state.get(1));
+		assertFalse(state.contains(1));
+		assertFalse(state.iterator().hasNext());
+		assertNull(getSerializedValue(kvState, 1, keySerializer, VoidNamespace.INSTANCE, namespaceSerializer, valueSerializer));
+		state.put(1, "1");
+		state.put(2, null);
+		backend.setCurrentKey(2);
+		assertNull(state.get(2));
+		state.put(2, "2");
+		backend.setCurrentKey(1);
+		assertEquals("1", state.get(1));
+		assertTrue(state.contains(2));
+		assertNull(state.get(2));
+		assertEquals(mapOf(1, "1", 2, null), toMap(state.entries()));
+		assertEquals(mapOf(1, "1", 2, null), getSerializedValue(kvState, 1, keySerializer, VoidNamespace.INSTANCE, namespaceSerializer, valueSerializer));
+
+		// draw a snapshot
+		KeyGroupsStateHandle snapshot1 = runSnapshot(backend.snapshot(682375462378L, 2, streamFactory));
+
+		// make some more modifications
+		backend.setCurrentKey(1);
+		state.put(1, "101");
+		state.remove(2);
+		backend.setCurrentKey(2);
+		state.putAll(mapOf(102, "u102", 103, "u103"));
+		backend.setCurrentKey(3);
+		for (int i = 0; i < 1000; ++i) {
+			state.put(i, "u" + i);
+		}
+
+		// draw another snapshot
+		KeyGroupsStateHandle snapshot2 = runSnapshot(backend.snapshot(682375462379L, 4, streamFactory));
+
+		// modify the state through the iterators
+		backend.setCurrentKey(2);
+		for (Map.Entry<Integer, String> entry : state.entries()) {
+			entry.setValue(entry.getValue() + "x");
+		}
+		assertEquals(mapOf(2, "2x", 102, "u102x", 103, "u103x"), toMap(state.entries()));
+
+		backend.setCurrentKey(3);
+		int count = 0;
+		for (Iterator<Map.Entry<Integer, String>> iterator = state.iterator(); iterator.hasNext(); ) {
+			Map.Entry<Integer, String> entry = iterator.next();
+			assertEquals("u" + entry.getKey(), entry.getValue());
+			if (entry.getKey() % 2 == 0) {
+				iterator.remove();
+			}
+			++count;
+		}
+		assertEquals(1000, count);
+
+		count = 0;
+		for (Integer userKey : state.keys()) {
+			assertTrue(userKey % 2 == 1);
+			++count;
+		}
+		assertEquals(500, count);
+		assertFalse(state.contains(10));
+		assertEquals("u11", state.get(11));
+
+		state.clear();
+		assertFalse(state.iterator().hasNext());
+		assertFalse(state.values().iterator().hasNext());
+		assertNull(getSerializedValue(kvState, 3, keySerializer, VoidNamespace.INSTANCE, namespaceSerializer, valueSerializer));
+
+		backend.setCurrentKey(1);
+		assertEquals(mapOf(1, "101"), toMap(state.entries()));
+		state.remove(1);
+		assertNull(state.get(1));
+		assertFalse(state.iterator().hasNext());
+
+		backend.dispose();
+		// restore the first snapshot and validate it
+		backend = restoreKeyedBackend(IntSerializer.INSTANCE, snapshot1);
+		snapshot1.discardState();
+
+		MapState<Integer, String> restored1 = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+		KvState<VoidNamespace> restoredKvState1 = (KvState<VoidNamespace>) restored1;
+
+		backend.setCurrentKey(1);
+		assertEquals(mapOf(1, "1", 2, null), toMap(restored1.entries()));
+		assertEquals(mapOf(1, "1", 2, null), getSerializedValue(restoredKvState1, 1, keySerializer, VoidNamespace.INSTANCE, namespaceSerializer, valueSerializer));
+		backend.setCurrentKey(2);
+		assertEquals(mapOf(2, "2"), toMap(restored1.entries()));
+		backend.setCurrentKey(3);
+		assertFalse(restored1.iterator().hasNext());
+
+		backend.dispose();
+		// restore the second snapshot and validate it
+		backend = restoreKeyedBackend(IntSerializer.INSTANCE, snapshot2);
+		snapshot2.discardState();
+
+		MapState<Integer, String> restored2 = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+
+		backend.setCurrentKey(1);
+		assertEquals(mapOf(1, "101"), toMap(restored2.entries()));
+		backend.setCurrentKey(2);
+		assertEquals(mapOf(2, "2", 102, "u102", 103, "u103"), toMap(restored2.entries()));
+		backend.setCurrentKey(3);
+		Map<Integer, String> expected = new HashMap<>();
+		for (int i = 0; i < 1000; ++i) {
+			expected.put(i, "u" + i);
+		}
+		assertEquals(expected, toMap(restored2.entries()));
+
+		backend.dispose();
+	}
+
 	@Test
 	@SuppressWarnings("unchecked")
 	public void testReducingState() {
@@ -658,6 +795,151 @@ public abstract class StateBackendTestBase<B extends AbstractStateBackend> {
 		}
 	}
 
+	@Test
+	public void testAggregatingState() throws Exception {
+		CheckpointStreamFactory streamFactory = createStreamFactory();
+		AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+
+		AggregatingStateDescriptor<Long, long[], Long> kvId =
+				new AggregatingStateDescriptor<>("id", new SumAggregate(), LongPrimitiveArraySerializer.INSTANCE);
+
+		AggregatingState<Long, Long> state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+
+		// some modifications to the state
+		backend.setCurrentKey(1);
+		assertNull(state.get());
+		state.add(1L);
+		backend.setCurrentKey(2);
+		assertNull(state.get());
+		state.add(2L);
+		backend.setCurrentKey(1);
+		assertEquals(1L, (long) state.get());
+
+		// draw a snapshot
+		KeyGroupsStateHandle snapshot1 = runSnapshot(backend.snapshot(682375462378L, 2, streamFactory));
+
+		// make some more modifications, the accumulators of the snapshot must not change
+		backend.setCurrentKey(1);
+		state.add(10L);
+		backend.setCurrentKey(2);
+		state.add(20L);
+		backend.setCurrentKey(3);
+		state.add(30L);
+
+		// draw another snapshot
+		KeyGroupsStateHandle snapshot2 = runSnapshot(backend.snapshot(682375462379L, 4, streamFactory));
+
+		// validate the original state
+		backend.setCurrentKey(1);
+		assertEquals(11L, (long) state.get());
+		backend.setCurrentKey(2);
+		assertEquals(22L, (long) state.get());
+		backend.setCurrentKey(3);
+		assertEquals(30L, (long) state.get());
+		state.clear();
+		assertNull(state.get());
+
+		// adding null clears the state
+		backend.setCurrentKey(2);
+		state.add(null);
+		assertNull(state.get());
+
+		backend.dispose();
+		// restore the first snapshot and validate it
+		backend = restoreKeyedBackend(IntSerializer.INSTANCE, snapshot1);
+		snapshot1.discardState();
+
+		AggregatingState<Long, Long> restored1 = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+
+		backend.setCurrentKey(1);
+		assertEquals(1L, (long) restored1.get());
+		backend.setCurrentKey(2);
+		assertEquals(2L, (long) restored1.get());
+		backend.setCurrentKey(3);
+		assertNull(restored1.get());
+
+		backend.dispose();
+		// restore the second snapshot and validate it
+		backend = restoreKeyedBackend(IntSerializer.INSTANCE, snapshot2);
+		snapshot2.discardState();
+
+		AggregatingState<Long, Long> restored2 = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+
+		backend.setCurrentKey(1);
+		assertEquals(11L, (long) restored2.get());
+		backend.setCurrentKey(2);
+		assertEquals(22L, (long) restored2.get());
+		backend.setCurrentKey(3);
+		assertEquals(30L, (long) restored2.get());
+
+		backend.dispose();
+	}
+
+	@Test
+	public void testMergingAggregatingState() throws Exception {
+		CheckpointStreamFactory streamFactory = createStreamFactory();
+		AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+
+		AggregatingStateDescriptor<Long, long[], Long> kvId =
+				new AggregatingStateDescriptor<>("id", new SumAggregate(), LongPrimitiveArraySerializer.INSTANCE);
+
+		AggregatingState<Long, Long> state = backend.getPartitionedState(1, IntSerializer.INSTANCE, kvId);
+		@SuppressWarnings("unchecked")
+		KvState<Integer> kvState = (KvState<Integer>) state;
+
+		backend.setCurrentKey(1);
+		kvState.setCurrentNamespace(1);
+		state.add(1L);
+		kvState.setCurrentNamespace(2);
+		state.add(2L);
+		kvState.setCurrentNamespace(3);
+		state.add(3L);
+
+		backend.setCurrentKey(2);
+		kvState.setCurrentNamespace(1);
+		state.add(100L);
+
+		// the snapshot shares the accumulators with the state table of heap backends
+		KeyGroupsStateHandle snapshot = runSnapshot(backend.snapshot(682375462378L, 2, streamFactory));
+
+		// merge two namespaces into a third one, which has state
+		backend.setCurrentKey(1);
+		backend.mergePartitionedStates(3, Arrays.asList(1, 2), IntSerializer.INSTANCE, kvId);
+
+		state = backend.getPartitionedState(3, IntSerializer.INSTANCE, kvId);
+		assertEquals(6L, (long) state.get());
+		kvState.setCurrentNamespace(1);
+		assertNull(state.get());
+		kvState.setCurrentNamespace(2);
+		assertNull(state.get());
+
+		// merge into an empty namespace
+		backend.mergePartitionedStates(4, Arrays.asList(3, 5), IntSerializer.INSTANCE, kvId);
+		state = backend.getPartitionedState(4, IntSerializer.INSTANCE, kvId);
+		assertEquals(6L, (long) state.get());
+
+		// the state of other keys is not merged
+		backend.setCurrentKey(2);
+		state = backend.getPartitionedState(1, IntSerializer.INSTANCE, kvId);
+		assertEquals(100L, (long) state.get());
+
+		backend.dispose();
+		// the merge did not modify the snapshot
+		backend = restoreKeyedBackend(IntSerializer.INSTANCE, snapshot);
+		snapshot.discardState();
+
+		AggregatingState<Long, Long> restored = backend.getPartitionedState(1, IntSerializer.INSTANCE, kvId);
+
+		backend.setCurrentKey(1);
+		assertEquals(1L, (long) restored.get());
+		restored = backend.getPartitionedState(2, IntSerializer.INSTANCE, kvId);
+		assertEquals(2L, (long) restored.get());
+		restored = backend.getPartitionedState(3, IntSerializer.INSTANCE, kvId);
+		assertEquals(3L, (long) restored.get());
+
+		backend.dispose();
+	}
+
 	/**
 	 * This test verifies that state is correctly assigned to key groups and that restore
 	 * restores the relevant key groups in the backend.
@@ -1002,7 +1284,7 @@ public abstract class StateBackendTestBase<B extends AbstractStateBackend> {
 			state.update(121818273);
 
 			int keyGroupIndex = KeyGroupRangeAssignment.assignToKeyGroup(1, numberOfKeyGroups);
-			StateTable stateTable = ((AbstractHeapState) kvState).getStateTable();
+			NestedMapsStateTable stateTable = (NestedMapsStateTable) ((AbstractHeapState) kvState).getStateTable();
 			assertNotNull("State not set", stateTable.get(keyGroupIndex));
 			assertTrue(stateTable.get(keyGroupIndex) instanceof ConcurrentHashMap);
 			assertTrue(stateTable.get(keyGroupIndex).get(VoidNamespace.INSTANCE) instanceof ConcurrentHashMap);
@@ -1028,7 +1310,7 @@ public abstract class StateBackendTestBase<B extends AbstractStateBackend> {
 			state.add(121818273);
 
 			int keyGroupIndex = KeyGroupRangeAssignment.assignToKeyGroup(1, numberOfKeyGroups);
-			StateTable stateTable = ((AbstractHeapState) kvState).getStateTable();
+			NestedMapsStateTable stateTable = (NestedMapsStateTable) ((AbstractHeapState) kvState).getStateTable();
 			assertNotNull("State not set", stateTable.get(keyGroupIndex));
 			assertTrue(stateTable.get(keyGroupIndex) instanceof ConcurrentHashMap);
 			assertTrue(stateTable.get(keyGroupIndex).get(VoidNamespace.INSTANCE) instanceof ConcurrentHashMap);
@@ -1059,7 +1341,7 @@ public abstract class StateBackendTestBase<B extends AbstractStateBackend> {
 			state.add(121818273);
 
 			int keyGroupIndex = KeyGroupRangeAssignment.assignToKeyGroup(1, numberOfKeyGroups);
-			StateTable stateTable = ((AbstractHeapState) kvState).getStateTable();
+			NestedMapsStateTable stateTable = (NestedMapsStateTable) ((AbstractHeapState) kvState).getStateTable();
 			assertNotNull("State not set", stateTable.get(keyGroupIndex));
 			assertTrue(stateTable.get(keyGroupIndex) instanceof ConcurrentHashMap);
 			assertTrue(stateTable.get(keyGroupIndex).get(VoidNamespace.INSTANCE) instanceof ConcurrentHashMap);
@@ -1090,7 +1372,7 @@ public abstract class StateBackendTestBase<B extends AbstractStateBackend> {
 			state.add(121818273);
 
 			int keyGroupIndex = KeyGroupRangeAssignment.assignToKeyGroup(1, numberOfKeyGroups);
-			StateTable stateTable = ((AbstractHeapState) kvState).getStateTable();
+			NestedMapsStateTable stateTable = (NestedMapsStateTable) ((AbstractHeapState) kvState).getStateTable();
 			assertNotNull("State not set", stateTable.get(keyGroupIndex));
 			assertTrue(stateTable.get(keyGroupIndex) instanceof ConcurrentHashMap);
 			assertTrue(stateTable.get(keyGroupIndex).get(VoidNamespace.INSTANCE) instanceof ConcurrentHashMap);
@@ -1099,6 +1381,70 @@ public abstract class StateBackendTestBase<B extends AbstractStateBackend> {
 		backend.dispose();
 	}
 
+	/**
+	 * Tests that {@link AbstractHeapState} instances of queryable states that are restored from
+	 * a snapshot use concurrent internal state structures and can be queried.
+	 */
+	@SuppressWarnings("unchecked")
+	protected void testConcurrentMapIfQueryableAfterRestore() throws Exception {
+		CheckpointStreamFactory streamFactory = createStreamFactory();
+		AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+
+		ValueStateDescriptor<String> desc = new ValueStateDescriptor<>("value-state", String.class, null);
+		desc.setQueryable("my-query");
+		desc.initializeSerializerUnlessSet(new ExecutionConfig());
+
+		TypeSerializer<Integer> keySerializer = IntSerializer.INSTANCE;
+		TypeSerializer<VoidNamespace> namespaceSerializer = VoidNamespaceSerializer.INSTANCE;
+		TypeSerializer<String> valueSerializer = desc.getSerializer();
+
+		ValueState<String> state = backend.getPartitionedState(VoidNamespace.INSTANCE, namespaceSerializer, desc);
+
+		backend.setCurrentKey(1);
+		state.update("1");
+		backend.setCurrentKey(2);
+		state.update("2");
+
+		KeyGroupsStateHandle snapshot = runSnapshot(backend.snapshot(682375462378L, 2, streamFactory));
+		backend.dispose();
+
+		backend = restoreKeyedBackend(IntSerializer.INSTANCE, snapshot);
+		snapshot.discardState();
+
+		ValueState<String> restoredState = backend.getPartitionedState(VoidNamespace.INSTANCE, namespaceSerializer, desc);
+		KvState<VoidNamespace> restoredKvState = (KvState<VoidNamespace>) restoredState;
+		assertTrue(restoredKvState instanceof AbstractHeapState);
+
+		NestedMapsStateTable stateTable = (NestedMapsStateTable) ((AbstractHeapState) restoredKvState).getStateTable();
+		int keyGroupIndex = KeyGroupRangeAssignment.assignToKeyGroup(1, backend.getNumberOfKeyGroups());
+		assertTrue(stateTable.get(keyGroupIndex) instanceof ConcurrentHashMap);
+		assertTrue(stateTable.get(keyGroupIndex).get(VoidNamespace.INSTANCE) instanceof ConcurrentHashMap);
+
+		// the restored state can be queried and modified
+		assertEquals("1", getSerializedValue(restoredKvState, 1, keySerializer, VoidNamespace.INSTANCE, namespaceSerializer, valueSerializer));
+		assertEquals("2", getSerializedValue(restoredKvState, 2, keySerializer, VoidNamespace.INSTANCE, namespaceSerializer, valueSerializer));
+
+		backend.setCurrentKey(3);
+		restoredState.update("3");
+		assertEquals("3", getSerializedValue(restoredKvState, 3, keySerializer, VoidNamespace.INSTANCE, namespaceSerializer, valueSerializer));
+
+		// the moved mappings are part of the next snapshot
+		snapshot = runSnapshot(backend.snapshot(682375462379L, 4, streamFactory));
+		backend.dispose();
+
+		backend = restoreKeyedBackend(IntSerializer.INSTANCE, snapshot);
+		snapshot.discardState();
+
+		restoredState = backend.getPartitionedState(VoidNamespace.INSTANCE, namespaceSerializer, desc);
+		restoredKvState = (KvState<VoidNamespace>) restoredState;
+
+		assertEquals("1", getSerializedValue(restoredKvState, 1, keySerializer, VoidNamespace.INSTANCE, namespaceSerializer, valueSerializer));
+		assertEquals("2", getSerializedValue(restoredKvState, 2, keySerializer, VoidNamespace.INSTANCE, namespaceSerializer, valueSerializer));
+		assertEquals("3", getSerializedValue(restoredKvState, 3, keySerializer, VoidNamespace.INSTANCE, namespaceSerializer, valueSerializer));
+
+		backend.dispose();
+	}
+
 	/**
 	 * Tests registration with the KvStateRegistry.
 	 */
@@ -1178,6 +1524,31 @@ public abstract class StateBackendTestBase<B extends AbstractStateBackend> {
 		}
 	}
 
+	private static class SumAggregate implements AggregateFunction<Long, long[], Long> {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public long[] createAccumulator() {
+			return new long[1];
+		}
+
+		@Override
+		public void add(Long value, long[] accumulator) {
+			accumulator[0] += value;
+		}
+
+		@Override
+		public Long getResult(long[] accumulator) {
+			return accumulator[0];
+		}
+
+		@Override
+		public long[] merge(long[] a, long[] b) {
+			a[0] += b[0];
+			return a;
+		}
+	}
+
 	private static class AppendingFold implements FoldFunction<Integer, String> {
 		private static final long serialVersionUID = 1L;
 
@@ -1235,7 +1606,23 @@ public abstract class StateBackendTestBase<B extends AbstractStateBackend> {
 		}
 	}
 
-	private KeyGroupsStateHandle runSnapshot(RunnableFuture<KeyGroupsStateHandle> snapshotRunnableFuture) throws Exception {
+	private static <K, V> Map<K, V> toMap(Iterable<Map.Entry<K, V>> entries) {
+		Map<K, V> map = new HashMap<>();
+		for (Map.Entry<K, V> entry : entries) {
+			map.put(entry.getKey(), entry.getValue());
+		}
+		return map;
+	}
+
+	private static Map<Integer, String> mapOf(Object... keysAndValues) {
+		Map<Integer, String> map = new HashMap<>();
+		for (int i = 0; i < keysAndValues.length; i += 2) {
+			map.put((Integer) keysAndValues[i], (String) keysAndValues[i + 1]);
+		}
+		return map;
+	}
+
+	protected KeyGroupsStateHandle runSnapshot(RunnableFuture<KeyGroupsStateHandle> snapshotRunnableFuture) throws Exception {
 		if(!snapshotRunnableFuture.isDone()) {
 			Thread runner = new Thread(snapshotRunnableFuture);
 			runner.start();
@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.runtime.state.ArrayListSerializer;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.util.DataInputDeserializer;
+import org.apache.flink.runtime.util.DataOutputSerializer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link CopyOnWriteStateTable}.
+ */
+public class CopyOnWriteStateTableTest {
+
+	private static final int NUM_KEY_GROUPS = 8;
+
+	private static final KeyGroupRange KEY_GROUP_RANGE = new KeyGroupRange(0, NUM_KEY_GROUPS - 1);
+
+	/**
+	 * Tests the basic map operations against a reference map, with random operations that also
+	 * exercise the rehashing of the key group tables.
+	 */
+	@Test
+	public void testPutGetRemoveAgainstReference() {
+		CopyOnWriteStateTable<Integer, Integer, ArrayList<Integer>> table = createTable();
+		Map<Tuple2<Integer, Integer>, ArrayList<Integer>> reference = new HashMap<>();
+
+		Random random = new Random(42);
+
+		for (int i = 0; i < 100_000; ++i) {
+			int key = random.nextInt(2000);
+			int namespace = random.nextInt(4);
+			int keyGroup = keyGroup(key);
+			Tuple2<Integer, Integer> compositeKey = new Tuple2<>(key, namespace);
+
+			switch (random.nextInt(4)) {
+				case 0:
+					ArrayList<Integer> state = new ArrayList<>();
+					state.add(i);
+					assertEquals(reference.put(compositeKey, state), table.putAndGetOld(key, keyGroup, namespace, state));
+					break;
+				case 1:
+					assertEquals(reference.remove(compositeKey), table.removeAndGetOld(key, keyGroup, namespace));
+					break;
+				case 2:
+					assertEquals(reference.containsKey(compositeKey), table.containsKey(key, keyGroup, namespace));
+					break;
+				default:
+					ArrayList<Integer> expected = reference.get(compositeKey);
+					ArrayList<Integer> actual = table.get(key, keyGroup, namespace);
+					assertEquals(expected, actual);
+					if (actual != null) {
+						// modify in place, like the list state does
+						actual.add(-i);
+						expected.add(-i);
+					}
+			}
+
+			assertEquals(reference.size(), table.size());
+		}
+	}
+
+	/**
+	 * Tests that a snapshot is not affected by modifications of the table after the snapshot
+	 * was taken, including in-place modifications of the state objects.
+	 */
+	@Test
+	public void testSnapshotIsolation() throws Exception {
+		CopyOnWriteStateTable<Integer, Integer, ArrayList<Integer>> table = createTable();
+		Map<Tuple2<Integer, Integer>, ArrayList<Integer>> reference = new HashMap<>();
+
+		Random random = new Random(17);
+
+		for (int round = 0; round < 5; ++round) {
+
+			for (int i = 0; i < 10_000; ++i) {
+				int key = random.nextInt(5000);
+				int namespace = random.nextInt(2);
+				applyRandomModification(table, reference, key, namespace, random);
+			}
+
+			Map<Tuple2<Integer, Integer>, ArrayList<Integer>> expectedSnapshot = deepCopy(reference);
+			CopyOnWriteStateTableSnapshot<Integer, Integer, ArrayList<Integer>> snapshot =
+					table.createSnapshot(IntSerializer.INSTANCE);
+
+			// modify the table while the snapshot was not written
+			for (int i = 0; i < 10_000; ++i) {
+				int key = random.nextInt(5000);
+				int namespace = random.nextInt(2);
+				applyRandomModification(table, reference, key, namespace, random);
+			}
+
+			assertEquals(expectedSnapshot, readSnapshot(snapshot));
+			snapshot.release();
+
+			assertEquals(reference.size(), table.size());
+		}
+	}
+
+	/**
+	 * Tests that multiple concurrent snapshots each see their own version of the table.
+	 */
+	@Test
+	public void testMultipleSnapshots() throws Exception {
+		CopyOnWriteStateTable<Integer, Integer, ArrayList<Integer>> table = createTable();
+
+		table.put(1, keyGroup(1), 0, listOf(1));
+		CopyOnWriteStateTableSnapshot<Integer, Integer, ArrayList<Integer>> snapshot1 =
+				table.createSnapshot(IntSerializer.INSTANCE);
+
+		table.get(1, keyGroup(1), 0).add(2);
+		table.put(2, keyGroup(2), 0, listOf(3));
+		CopyOnWriteStateTableSnapshot<Integer, Integer, ArrayList<Integer>> snapshot2 =
+				table.createSnapshot(IntSerializer.INSTANCE);
+
+		table.remove(1, keyGroup(1), 0);
+		table.get(2, keyGroup(2), 0).add(4);
+
+		Map<Tuple2<Integer, Integer>, ArrayList<Integer>> expected1 = new HashMap<>();
+		expected1.put(new Tuple2<>(1, 0), listOf(1));
+
+		Map<Tuple2<Integer, Integer>, ArrayList<Integer>> expected2 = new HashMap<>();
+		expected2.put(new Tuple2<>(1, 0), listOf(1, 2));
+		expected2.put(new Tuple2<>(2, 0), listOf(3));
+
+		assertEquals(expected2, readSnapshot(snapshot2));
+		assertEquals(expected1, readSnapshot(snapshot1));
+		snapshot1.release();
+		snapshot2.release();
+
+		assertNull(table.get(1, keyGroup(1), 0));
+		assertEquals(listOf(3, 4), table.get(2, keyGroup(2), 0));
+		assertFalse(table.containsKey(1, keyGroup(1), 0));
+		assertTrue(table.containsKey(2, keyGroup(2), 0));
+	}
+
+	/**
+	 * Tests that the memory estimate follows the growth of the table and that lookups are sampled
+	 * for the latency metric.
+	 */
+	@Test
+	public void testMetrics() {
+		CopyOnWriteStateTable<Integer, Integer, ArrayList<Integer>> table = createTable();
+		assertEquals(0, table.getEstimatedTableMemory());
+		assertEquals(0, table.getAverageLookupLatencyNanos());
+
+		table.put(1, keyGroup(1), 0, listOf(1));
+		long initialMemory = table.getEstimatedTableMemory();
+		assertTrue(initialMemory > 0);
+
+		for (int key = 0; key < 10_000; ++key) {
+			table.put(key, keyGroup(key), 0, listOf(key));
+		}
+		assertTrue(table.getEstimatedTableMemory() > initialMemory);
+
+		for (int key = 0; key < 10_000; ++key) {
+			assertEquals(listOf(key), table.get(key, keyGroup(key), 0));
+		}
+		assertTrue(table.getAverageLookupLatencyNanos() > 0);
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static CopyOnWriteStateTable<Integer, Integer, ArrayList<Integer>> createTable() {
+		return new CopyOnWriteStateTable<>(
+				new ArrayListSerializer<>(IntSerializer.INSTANCE),
+				IntSerializer.INSTANCE,
+				KEY_GROUP_RANGE);
+	}
+
+	private static int keyGroup(int key) {
+		return KeyGroupRangeAssignment.assignToKeyGroup(key, NUM_KEY_GROUPS);
+	}
+
+	private static void applyRandomModification(
+			CopyOnWriteStateTable<Integer, Integer, ArrayList<Integer>> table,
+			Map<Tuple2<Integer, Integer>, ArrayList<Integer>> reference,
+			int key,
+			int namespace,
+			Random random) {
+
+		int keyGroup = keyGroup(key);
+		Tuple2<Integer, Integer> compositeKey = new Tuple2<>(key, namespace);
+
+		switch (random.nextInt(3)) {
+			case 0:
+				ArrayList<Integer> state = listOf(random.nextInt());
+				table.put(key, keyGroup, namespace, state);
+				reference.put(compositeKey, new ArrayList<>(state));
+				break;
+			case 1:
+				table.remove(key, keyGroup, namespace);
+				reference.remove(compositeKey);
+				break;
+			default:
+				ArrayList<Integer> actual = table.get(key, keyGroup, namespace);
+				if (actual != null) {
+					int value = random.nextInt();
+					actual.add(value);
+					reference.get(compositeKey).add(value);
+				}
+		}
+	}
+
+	private static Map<Tuple2<Integer, Integer>, ArrayList<Integer>> readSnapshot(
+			StateTableSnapshot snapshot) throws Exception {
+
+		ArrayListSerializer<Integer> stateSerializer = new ArrayListSerializer<>(IntSerializer.INSTANCE);
+		Map<Tuple2<Integer, Integer>, ArrayList<Integer>> result = new HashMap<>();
+
+		for (int keyGroup = 0; keyGroup < NUM_KEY_GROUPS; ++keyGroup) {
+			DataOutputSerializer out = new DataOutputSerializer(64);
+			snapshot.writeMappingsInKeyGroup(out, keyGroup);
+
+			DataInputDeserializer in = new DataInputDeserializer(out.getByteArray(), 0, out.length());
+			if (in.readByte() == 0) {
+				continue;
+			}
+
+			int numNamespaces = in.readInt();
+			for (int i = 0; i < numNamespaces; ++i) {
+				int namespace = IntSerializer.INSTANCE.deserialize(in);
+				int numEntries = in.readInt();
+				for (int j = 0; j < numEntries; ++j) {
+					int key = IntSerializer.INSTANCE.deserialize(in);
+					assertEquals(keyGroup, keyGroup(key));
+					result.put(new Tuple2<>(key, namespace), stateSerializer.deserialize(in));
+				}
+			}
+		}
+
+		return result;
+	}
+
+	private static Map<Tuple2<Integer, Integer>, ArrayList<Integer>> deepCopy(
+			Map<Tuple2<Integer, Integer>, ArrayList<Integer>> map) {
+
+		Map<Tuple2<Integer, Integer>, ArrayList<Integer>> copy = new HashMap<>();
+		for (Map.Entry<Tuple2<Integer, Integer>, ArrayList<Integer>> entry : map.entrySet()) {
+			copy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+		}
+		return copy;
+	}
+
+	private static ArrayList<Integer> listOf(Integer... values) {
+		ArrayList<Integer> list = new ArrayList<>();
+		for (Integer value : values) {
+			list.add(value);
+		}
+		return list;
+	}
+}
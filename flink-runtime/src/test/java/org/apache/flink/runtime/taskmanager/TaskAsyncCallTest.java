@@ -24,6 +24,7 @@ import org.apache.flink.configuration.Configuration;
 import org.apache.flink.core.testutils.OneShotLatch;
 import org.apache.flink.runtime.blob.BlobKey;
 import org.apache.flink.runtime.broadcast.BroadcastVariableManager;
+import org.apache.flink.runtime.checkpoint.CheckpointDeclineReason;
 import org.apache.flink.runtime.checkpoint.CheckpointMetaData;
 import org.apache.flink.runtime.deployment.InputGateDeploymentDescriptor;
 import org.apache.flink.runtime.deployment.ResultPartitionDeploymentDescriptor;
@@ -236,6 +237,11 @@ public class TaskAsyncCallTest {
 			throw new UnsupportedOperationException("Should not be called");
 		}
 
+		@Override
+		public void abortCheckpointOnBarrier(CheckpointMetaData checkpointMetaData, CheckpointDeclineReason reason) throws Exception {
+			throw new UnsupportedOperationException("Should not be called");
+		}
+
 		@Override
 		public void notifyCheckpointComplete(long checkpointId) {
 			if (checkpointId != lastCheckpointId && this.error == null) {
@@ -105,7 +105,7 @@ public class TaskManagerComponentsStartupShutdownTest {
 
 			final NetworkEnvironmentConfiguration netConf = new NetworkEnvironmentConfiguration(
 					32, BUFFER_SIZE, MemoryType.HEAP, IOManager.IOMode.SYNC, 0, 0, 0,
-					Option.<NettyConfig>empty(), 0, 0);
+					Option.<NettyConfig>empty(), 0, 0, 2, 8);
 
 			ResourceID taskManagerId = ResourceID.generate();
 			
@@ -122,7 +122,9 @@ public class TaskManagerComponentsStartupShutdownTest {
 				null,
 				netConf.ioMode(),
 				netConf.partitionRequestInitialBackoff(),
-				netConf.partitinRequestMaxBackoff());
+				netConf.partitinRequestMaxBackoff(),
+				netConf.networkBuffersPerChannel(),
+				netConf.floatingNetworkBuffersPerGate());
 
 			network.start();
 
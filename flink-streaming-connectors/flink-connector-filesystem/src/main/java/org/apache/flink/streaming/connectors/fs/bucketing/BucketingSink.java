@@ -24,6 +24,7 @@ import org.apache.flink.api.java.typeutils.InputTypeConfigurable;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.runtime.fs.hdfs.HadoopFileSystem;
 import org.apache.flink.runtime.state.CheckpointListener;
+import org.apache.flink.runtime.util.ExecutorThreadFactory;
 import org.apache.flink.streaming.api.checkpoint.Checkpointed;
 import org.apache.flink.streaming.api.functions.sink.RichSinkFunction;
 import org.apache.flink.streaming.api.operators.StreamingRuntimeContext;
@@ -54,6 +55,10 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Sink that emits its input elements to {@link org.apache.hadoop.fs.FileSystem} files within
@@ -80,7 +85,20 @@ import java.util.Iterator;
  * {@code "part"} but this can be configured using {@link #setPartPrefix(String)}. When a part file
  * becomes bigger than the batch size the current part file is closed, the part counter is increased and
  * a new part file is created. The batch size defaults to {@code 384MB}, this can be configured
- * using {@link #setBatchSize(long)}.
+ * using {@link #setBatchSize(long)}. Part files can also be rolled after they have been open for
+ * a certain time, configured by {@link #setBatchRolloverInterval(long)}.
+ *
+ * <p>
+ * For buckets that receive more data than a single part file can take at the throughput of the
+ * file system, the sink can write to several part files of a bucket at the same time, configured
+ * by {@link #setWritersPerBucket(int)}. The elements of a bucket are then spread round-robin over
+ * its part files.
+ *
+ * <p>
+ * Closing a part file and moving it to the pending state can take a while on a loaded file system.
+ * With {@link #setAsyncCloseThreads(int)}, part files are closed and moved to pending by background
+ * threads, so that the sink does not block while rolling files. Checkpoints wait for the files that
+ * are still being closed, so that they are pending when the checkpoint is taken.
  *
  * <p>
  * In some scenarios, the buckets being written to change over time. In these cases, the sink needs to
@@ -166,6 +184,29 @@ public class BucketingSink<T>
 	 */
 	private final long DEFAULT_INACTIVE_BUCKET_THRESHOLD_MS = 60 * 1000L;
 
+	/**
+	 * The default time after which part files are rolled, regardless of their size.
+	 * Part files are only rolled by size per default.
+	 */
+	private final long DEFAULT_BATCH_ROLLOVER_INTERVAL_MS = Long.MAX_VALUE;
+
+	/**
+	 * The default number of part files that are written at the same time per bucket.
+	 */
+	private final int DEFAULT_WRITERS_PER_BUCKET = 1;
+
+	/**
+	 * The default number of threads that close part files in the background. With zero
+	 * threads the part files are closed synchronously.
+	 */
+	private final int DEFAULT_ASYNC_CLOSE_THREADS = 0;
+
+	/**
+	 * Separates the bucket path and the index of the writer in the keys of the bucket states
+	 * of the additional writers of a bucket.
+	 */
+	private static final String WRITER_INDEX_SEPARATOR = "#";
+
 	/**
 	 * This is used for part files that we are writing to but which where not yet confirmed
 	 * by a checkpoint.
@@ -240,6 +281,9 @@ public class BucketingSink<T>
 	private long batchSize = DEFAULT_BATCH_SIZE;
 	private long inactiveBucketCheckInterval = DEFAULT_INACTIVE_BUCKET_CHECK_INTERVAL_MS;
 	private long inactiveBucketThreshold = DEFAULT_INACTIVE_BUCKET_THRESHOLD_MS;
+	private long batchRolloverInterval = DEFAULT_BATCH_ROLLOVER_INTERVAL_MS;
+	private int writersPerBucket = DEFAULT_WRITERS_PER_BUCKET;
+	private int asyncCloseThreads = DEFAULT_ASYNC_CLOSE_THREADS;
 
 	// These are the actually configured prefixes/suffixes
 	private String inProgressSuffix = DEFAULT_IN_PROGRESS_SUFFIX;
@@ -287,6 +331,26 @@ public class BucketingSink<T>
 
 	private transient ProcessingTimeService processingTimeService;
 
+	/**
+	 * The executor that closes part files in the background, or null if they are closed synchronously.
+	 */
+	private transient ExecutorService closeExecutor;
+
+	/**
+	 * Guards the number of part files that are being closed in the background.
+	 */
+	private transient Object pendingClosesLock;
+
+	/**
+	 * The number of part files that are being closed in the background.
+	 */
+	private transient int numPendingCloses;
+
+	/**
+	 * The first exception that occurred while closing a part file in the background.
+	 */
+	private transient volatile Throwable asyncCloseException;
+
 	/**
 	 * Creates a new {@code BucketingSink} that writes files to the given base directory.
 	 *
@@ -323,6 +387,18 @@ public class BucketingSink<T>
 		FileSystem fs = baseDirectory.getFileSystem(hadoopConf);
 		refTruncate = reflectTruncate(fs);
 
+		pendingClosesLock = new Object();
+		if (asyncCloseThreads > 0) {
+			// when all threads are busy and the queue is full, the task thread closes the
+			// part file itself, which back-pressures the sink
+			closeExecutor = new ThreadPoolExecutor(
+				asyncCloseThreads, asyncCloseThreads,
+				0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(asyncCloseThreads),
+				ExecutorThreadFactory.INSTANCE,
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		}
+
 		processingTimeService =
 				((StreamingRuntimeContext) getRuntimeContext()).getProcessingTimeService();
 
@@ -371,24 +447,43 @@ public class BucketingSink<T>
 
 	@Override
 	public void close() throws Exception {
-		for (Map.Entry<String, BucketState<T>> entry : state.bucketStates.entrySet()) {
-			closeCurrentPartFile(entry.getValue());
+		try {
+			for (Map.Entry<String, BucketState<T>> entry : state.bucketStates.entrySet()) {
+				closeCurrentPartFile(entry.getValue());
+			}
+			waitForPendingCloses();
+		} finally {
+			if (closeExecutor != null) {
+				closeExecutor.shutdownNow();
+			}
 		}
 	}
 
 	@Override
 	public void invoke(T value) throws Exception {
+		if (asyncCloseException != null) {
+			throw new Exception("Failed to close a part file in the background.", asyncCloseException);
+		}
+
 		Path bucketPath = bucketer.getBucketPath(clock, new Path(basePath), value);
 
 		long currentProcessingTime = processingTimeService.getCurrentProcessingTime();
 
-		if (!state.hasBucketState(bucketPath)) {
-			state.addBucketState(bucketPath, new BucketState<T>(currentProcessingTime));
-		}
+		String bucketKey = bucketPath.toString();
+		BucketState<T> bucketState = getOrCreateBucketState(bucketKey, currentProcessingTime);
 
-		BucketState<T> bucketState = state.getBucketState(bucketPath);
+		if (writersPerBucket > 1) {
+			// the state of the first writer keeps track of the round-robin over the writers
+			int writerIndex = bucketState.nextWriterIndex;
+			bucketState.nextWriterIndex = (writerIndex + 1) % writersPerBucket;
 
-		if (shouldRoll(bucketState)) {
+			if (writerIndex > 0) {
+				bucketState = getOrCreateBucketState(
+					bucketKey + WRITER_INDEX_SEPARATOR + writerIndex, currentProcessingTime);
+			}
+		}
+
+		if (shouldRoll(bucketState, currentProcessingTime)) {
 			openNewPartFile(bucketPath, bucketState);
 		}
 
@@ -396,13 +491,21 @@ public class BucketingSink<T>
 		bucketState.lastWrittenToTime = currentProcessingTime;
 	}
 
+	private BucketState<T> getOrCreateBucketState(String bucketKey, long currentProcessingTime) {
+		if (!state.hasBucketState(bucketKey)) {
+			state.addBucketState(bucketKey, new BucketState<T>(currentProcessingTime));
+		}
+		return state.getBucketState(bucketKey);
+	}
+
 	/**
 	 * Determines whether we should change the file we are writing to within a given bucket.
 	 *
 	 * <p>
-	 * This will roll if no file was created yet or if the file size is larger than the specified size.
+	 * This will roll if no file was created yet, if the file size is larger than the specified size,
+	 * or if the file has been open for longer than the rollover interval.
 	 */
-	private boolean shouldRoll(BucketState<T> bucketState) throws IOException {
+	private boolean shouldRoll(BucketState<T> bucketState, long currentProcessingTime) throws IOException {
 		boolean shouldRoll = false;
 		if (!bucketState.isWriterOpen) {
 			shouldRoll = true;
@@ -416,6 +519,12 @@ public class BucketingSink<T>
 					subtaskIndex,
 					writePosition,
 					batchSize);
+			} else if (currentProcessingTime - bucketState.creationTime > batchRolloverInterval) {
+				shouldRoll = true;
+				LOG.debug(
+					"BucketingSink {} starting new bucket because file is older than the rollover interval {}.",
+					subtaskIndex,
+					batchRolloverInterval);
 			}
 		}
 		return shouldRoll;
@@ -432,19 +541,32 @@ public class BucketingSink<T>
 
 	/**
 	 * Checks for inactive buckets, and closes them. This enables in-progress files to be moved to
-	 * the pending state and finalised on the next checkpoint.
+	 * the pending state and finalised on the next checkpoint. Part files that have been open for
+	 * longer than the rollover interval are closed as well.
 	 */
 	private void checkForInactiveBuckets(long currentProcessingTime) throws Exception {
 
+		List<BucketState<T>> bucketsToClose = new ArrayList<>();
 		synchronized (state.bucketStates) {
 			for (Map.Entry<String, BucketState<T>> entry : state.bucketStates.entrySet()) {
-				if (entry.getValue().lastWrittenToTime < currentProcessingTime - inactiveBucketThreshold) {
+				BucketState<T> bucketState = entry.getValue();
+				if (bucketState.lastWrittenToTime < currentProcessingTime - inactiveBucketThreshold) {
 					LOG.debug("BucketingSink {} closing bucket due to inactivity of over {} ms.",
 						subtaskIndex, inactiveBucketThreshold);
-					closeCurrentPartFile(entry.getValue());
+					bucketsToClose.add(bucketState);
+				} else if (bucketState.isWriterOpen &&
+						bucketState.creationTime < currentProcessingTime - batchRolloverInterval) {
+					LOG.debug("BucketingSink {} closing bucket because its part file is older than the rollover interval {}.",
+						subtaskIndex, batchRolloverInterval);
+					bucketsToClose.add(bucketState);
 				}
 			}
 		}
+
+		// close outside of the lock, so that files closed in the background can become pending meanwhile
+		for (BucketState<T> bucketState : bucketsToClose) {
+			closeCurrentPartFile(bucketState);
+		}
 	}
 
 	/**
@@ -472,7 +594,11 @@ public class BucketingSink<T>
 
 		// This should work since there is only one parallel subtask that tries names with
 		// our subtask id. Otherwise we would run into concurrency issues here.
-		while (fs.exists(partPath) || fs.exists(new Path(partPath.getParent(), pendingPrefix + partPath.getName()).suffix(pendingSuffix))) {
+		// Other writers of the bucket may still write to the in-progress file with that name, or
+		// move it to pending in the background, so we check the in-progress path before the pending path.
+		while (fs.exists(new Path(partPath.getParent(), inProgressPrefix + partPath.getName()).suffix(inProgressSuffix)) ||
+				fs.exists(new Path(partPath.getParent(), pendingPrefix + partPath.getName()).suffix(pendingSuffix)) ||
+				fs.exists(partPath)) {
 			bucketState.partCounter++;
 			partPath = new Path(bucketPath, partPrefix + "-" + subtaskIndex + "-" + bucketState.partCounter);
 		}
@@ -492,6 +618,7 @@ public class BucketingSink<T>
 
 		bucketState.writer.open(fs, inProgressPath);
 		bucketState.isWriterOpen = true;
+		bucketState.creationTime = processingTimeService.getCurrentProcessingTime();
 	}
 
 	/**
@@ -499,16 +626,41 @@ public class BucketingSink<T>
 	 *
 	 * <p>
 	 * This moves the current in-progress part file to a pending file and adds it to the list
-	 * of pending files in our bucket state.
+	 * of pending files in our bucket state. If part files are closed asynchronously, this happens
+	 * in the background, and the bucket continues with a new writer.
 	 */
 	private void closeCurrentPartFile(BucketState<T> bucketState) throws Exception {
+		Writer<T> writer = null;
 		if (bucketState.isWriterOpen) {
-			bucketState.writer.close();
+			writer = bucketState.writer;
 			bucketState.isWriterOpen = false;
 		}
 
-		if (bucketState.currentFile != null) {
-			Path currentPartPath = new Path(bucketState.currentFile);
+		String partFile = bucketState.currentFile;
+		bucketState.currentFile = null;
+
+		if (closeExecutor == null) {
+			moveToPending(writer, partFile);
+			if (partFile != null) {
+				bucketState.pendingFiles.add(partFile);
+			}
+		} else if (writer != null || partFile != null) {
+			// the writer is closed in the background, the next part file needs a new one
+			bucketState.writer = null;
+			closeInBackground(bucketState, writer, partFile);
+		}
+	}
+
+	/**
+	 * Closes the given writer (if any) and moves the given in-progress part file (if any) to pending.
+	 */
+	private void moveToPending(Writer<T> writer, String partFile) throws Exception {
+		if (writer != null) {
+			writer.close();
+		}
+
+		if (partFile != null) {
+			Path currentPartPath = new Path(partFile);
 			Path inProgressPath = new Path(currentPartPath.getParent(), inProgressPrefix + currentPartPath.getName()).suffix(inProgressSuffix);
 			Path pendingPath = new Path(currentPartPath.getParent(), pendingPrefix + currentPartPath.getName()).suffix(pendingSuffix);
 			FileSystem fs = inProgressPath.getFileSystem(hadoopConf);
@@ -516,8 +668,73 @@ public class BucketingSink<T>
 			LOG.debug("Moving in-progress bucket {} to pending file {}",
 				inProgressPath,
 				pendingPath);
-			bucketState.pendingFiles.add(currentPartPath.toString());
-			bucketState.currentFile = null;
+		}
+	}
+
+	/**
+	 * Closes the writer and moves the part file to pending with the close executor. The part file
+	 * is added to the pending files of the bucket once it is pending. Until then, the bucket
+	 * counts it as closing, which keeps the bucket state from being removed.
+	 */
+	private void closeInBackground(
+			final BucketState<T> bucketState,
+			final Writer<T> writer,
+			final String partFile) {
+
+		final Map<String, BucketState<T>> bucketStates = state.bucketStates;
+
+		synchronized (bucketStates) {
+			bucketState.numClosingFiles++;
+		}
+		synchronized (pendingClosesLock) {
+			numPendingCloses++;
+		}
+
+		closeExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				Throwable exception = null;
+				try {
+					moveToPending(writer, partFile);
+				} catch (Throwable t) {
+					exception = t;
+				}
+
+				synchronized (bucketStates) {
+					if (exception == null && partFile != null) {
+						bucketState.pendingFiles.add(partFile);
+					}
+					bucketState.numClosingFiles--;
+				}
+
+				synchronized (pendingClosesLock) {
+					if (exception != null && asyncCloseException == null) {
+						LOG.error("Error while closing part file {}.", partFile, exception);
+						asyncCloseException = exception;
+					}
+					numPendingCloses--;
+					pendingClosesLock.notifyAll();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Waits until all part files that are closed in the background are pending.
+	 */
+	private void waitForPendingCloses() throws Exception {
+		if (closeExecutor == null) {
+			return;
+		}
+
+		synchronized (pendingClosesLock) {
+			while (numPendingCloses > 0) {
+				pendingClosesLock.wait();
+			}
+		}
+
+		if (asyncCloseException != null) {
+			throw new Exception("Failed to close a part file in the background.", asyncCloseException);
 		}
 	}
 
@@ -599,7 +816,8 @@ public class BucketingSink<T>
 							checkpointsToRemove.add(pastCheckpointId);
 						}
 					}
-					if (!bucketState.isWriterOpen && bucketState.pendingFiles.isEmpty()) {
+					if (!bucketState.isWriterOpen && bucketState.pendingFiles.isEmpty() &&
+							bucketState.numClosingFiles == 0) {
 						// We've dealt with all the pending files and the writer for this bucket is not currently open.
 						// Therefore this bucket is currently inactive and we can remove it from our state.
 						it.remove();
@@ -615,6 +833,10 @@ public class BucketingSink<T>
 
 	@Override
 	public State<T> snapshotState(long checkpointId, long checkpointTimestamp) throws Exception {
+		// the files that are closed in the background have to be pending before the checkpoint,
+		// so that they are moved to their final location when the checkpoint completes
+		waitForPendingCloses();
+
 		synchronized (state.bucketStates) {
 			for (BucketState<T> bucketState : state.bucketStates.values()) {
 				if (bucketState.isWriterOpen) {
@@ -845,6 +1067,50 @@ public class BucketingSink<T>
 		return this;
 	}
 
+	/**
+	 * Sets the time after which part files are rolled, regardless of their size. Part files that
+	 * have been open for longer are also closed by the check for inactive buckets, configured by
+	 * {@link #setInactiveBucketCheckInterval(long)}.
+	 *
+	 * @param batchRolloverInterval The rollover interval, in milliseconds.
+	 */
+	public BucketingSink<T> setBatchRolloverInterval(long batchRolloverInterval) {
+		if (batchRolloverInterval <= 0) {
+			throw new IllegalArgumentException("The rollover interval must be positive.");
+		}
+		this.batchRolloverInterval = batchRolloverInterval;
+		return this;
+	}
+
+	/**
+	 * Sets the number of part files that are written at the same time per bucket. The elements of
+	 * a bucket are spread round-robin over them. The default is {@code 1}.
+	 *
+	 * @param writersPerBucket The number of part files per bucket.
+	 */
+	public BucketingSink<T> setWritersPerBucket(int writersPerBucket) {
+		if (writersPerBucket <= 0) {
+			throw new IllegalArgumentException("The number of writers per bucket must be positive.");
+		}
+		this.writersPerBucket = writersPerBucket;
+		return this;
+	}
+
+	/**
+	 * Sets the number of threads that close part files and move them to pending in the background.
+	 * If the threads cannot keep up, the sink closes part files synchronously, which back-pressures
+	 * the input. The default is {@code 0}, which closes all part files synchronously.
+	 *
+	 * @param asyncCloseThreads The number of threads that close part files.
+	 */
+	public BucketingSink<T> setAsyncCloseThreads(int asyncCloseThreads) {
+		if (asyncCloseThreads < 0) {
+			throw new IllegalArgumentException("The number of threads that close part files must not be negative.");
+		}
+		this.asyncCloseThreads = asyncCloseThreads;
+		return this;
+	}
+
 	/**
 	 * Sets the {@link Bucketer} to use for determining the bucket files to write to.
 	 *
@@ -955,25 +1221,27 @@ public class BucketingSink<T>
 		private static final long serialVersionUID = 1L;
 
 		/**
-		 * For every bucket directory (key), we maintain a bucket state (value).
+		 * For every bucket directory (key), we maintain a bucket state (value). If a bucket has
+		 * several writers, the states of the additional writers are keyed by the bucket directory
+		 * and the index of the writer.
 		 */
 		final Map<String, BucketState<T>> bucketStates = new HashMap<>();
 
-		boolean hasBucketState(Path bucketPath) {
+		boolean hasBucketState(String bucketKey) {
 			synchronized (bucketStates) {
-				return bucketStates.containsKey(bucketPath.toString());
+				return bucketStates.containsKey(bucketKey);
 			}
 		}
 
-		void addBucketState(Path bucketPath, BucketState<T> state) {
+		void addBucketState(String bucketKey, BucketState<T> state) {
 			synchronized (bucketStates) {
-				bucketStates.put(bucketPath.toString(), state);
+				bucketStates.put(bucketKey, state);
 			}
 		}
 
-		BucketState<T> getBucketState(Path bucketPath) {
+		BucketState<T> getBucketState(String bucketKey) {
 			synchronized (bucketStates) {
-				return bucketStates.get(bucketPath.toString());
+				return bucketStates.get(bucketKey);
 			}
 		}
 	}
@@ -1028,6 +1296,21 @@ public class BucketingSink<T>
 		 */
 		private transient Writer<T> writer;
 
+		/**
+		 * The time the current part file was created.
+		 */
+		private transient long creationTime;
+
+		/**
+		 * The number of part files of this bucket that are closed in the background and not pending yet.
+		 */
+		private transient int numClosingFiles;
+
+		/**
+		 * The index of the writer that gets the next element, if the bucket has several writers.
+		 */
+		private transient int nextWriterIndex;
+
 		public BucketState(long lastWrittenToTime) {
 			this.lastWrittenToTime = lastWrittenToTime;
 		}
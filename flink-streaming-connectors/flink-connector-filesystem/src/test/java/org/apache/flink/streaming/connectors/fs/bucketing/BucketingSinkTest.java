@@ -57,8 +57,12 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class BucketingSinkTest {
 	@ClassRule
@@ -497,4 +501,126 @@ public class BucketingSinkTest {
 		Assert.assertEquals(4, numFiles);
 		Assert.assertEquals(2, numInProgress);
 	}
+
+	/**
+	 * This tests that part files are rolled when they are older than the rollover interval,
+	 * also if the bucket is still being written to.
+	 */
+	@Test
+	public void testRolloverInterval() throws Exception {
+		File dataDir = tempFolder.newFolder();
+
+		BucketingSink<String> sink = new BucketingSink<String>(dataDir.getAbsolutePath())
+			.setBucketer(new BasePathBucketer<String>())
+			.setWriter(new StringWriter<String>())
+			.setPartPrefix("part")
+			.setPendingPrefix("")
+			.setPendingSuffix(".pending")
+			.setInactiveBucketCheckInterval(60 * 1000L)
+			.setInactiveBucketThreshold(5 * 60 * 1000L)
+			.setBatchRolloverInterval(2 * 60 * 1000L);
+
+		OneInputStreamOperatorTestHarness<String, Object> testHarness = createTestSink(sink);
+
+		testHarness.setProcessingTime(0L);
+
+		testHarness.setup();
+		testHarness.open();
+
+		testHarness.processElement(new StreamRecord<>("test1"));
+
+		// the part file is not old enough to be rolled yet
+		testHarness.setProcessingTime(60 * 1000L);
+		testHarness.processElement(new StreamRecord<>("test2"));
+		Assert.assertEquals(0, countFiles(dataDir, ".pending"));
+
+		// the check for inactive buckets closes the part file that has been open for too long
+		testHarness.setProcessingTime(3 * 60 * 1000L);
+		Assert.assertEquals(1, countFiles(dataDir, ".pending"));
+		Assert.assertEquals(0, countFiles(dataDir, "in-progress"));
+
+		testHarness.processElement(new StreamRecord<>("test3"));
+		Assert.assertEquals(1, countFiles(dataDir, "in-progress"));
+
+		// the next part file is rolled after the interval as well
+		testHarness.setProcessingTime(5 * 60 * 1000L + 1);
+		testHarness.processElement(new StreamRecord<>("test4"));
+		Assert.assertEquals(2, countFiles(dataDir, ".pending"));
+		Assert.assertEquals(1, countFiles(dataDir, "in-progress"));
+
+		testHarness.close();
+
+		Assert.assertEquals(3, countFiles(dataDir, ".pending"));
+	}
+
+	/**
+	 * This tests that all elements end up exactly once in the finished part files when
+	 * part files are closed in the background and each bucket has several writers.
+	 */
+	@Test
+	public void testAsyncClosingWithMultipleWritersPerBucket() throws Exception {
+		File dataDir = tempFolder.newFolder();
+
+		final int numElements = 200;
+
+		BucketingSink<String> sink = new BucketingSink<String>(dataDir.getAbsolutePath())
+			.setBucketer(new BasePathBucketer<String>())
+			.setWriter(new StringWriter<String>())
+			.setPartPrefix("part")
+			.setPendingPrefix("")
+			.setPendingSuffix(".pending")
+			.setInactiveBucketCheckInterval(5 * 60 * 1000L)
+			.setInactiveBucketThreshold(5 * 60 * 1000L)
+			.setBatchSize(50L)
+			.setWritersPerBucket(3)
+			.setAsyncCloseThreads(2);
+
+		OneInputStreamOperatorTestHarness<String, Object> testHarness = createTestSink(sink);
+
+		testHarness.setProcessingTime(0L);
+
+		testHarness.setup();
+		testHarness.open();
+
+		for (int i = 0; i < numElements; i++) {
+			testHarness.processElement(new StreamRecord<>("element-" + i));
+		}
+
+		// the checkpoint waits for the files that are closed in the background
+		testHarness.snapshotLegacy(0, 0);
+		testHarness.notifyOfCompletedCheckpoint(0);
+
+		Assert.assertEquals(0, countFiles(dataDir, ".pending"));
+		Assert.assertEquals(3, countFiles(dataDir, "in-progress"));
+
+		testHarness.close();
+
+		Assert.assertEquals(0, countFiles(dataDir, "in-progress"));
+		Assert.assertEquals(3, countFiles(dataDir, ".pending"));
+
+		List<String> lines = new ArrayList<>();
+		for (File file: FileUtils.listFiles(dataDir, null, true)) {
+			if (file.getName().startsWith("part") && !file.getName().endsWith("crc")) {
+				lines.addAll(FileUtils.readLines(file));
+			}
+		}
+
+		Set<String> expected = new HashSet<>();
+		for (int i = 0; i < numElements; i++) {
+			expected.add("element-" + i);
+		}
+
+		Assert.assertEquals(numElements, lines.size());
+		Assert.assertEquals(expected, new HashSet<>(lines));
+	}
+
+	private static int countFiles(File dataDir, String pattern) {
+		int numFiles = 0;
+		for (File file: FileUtils.listFiles(dataDir, null, true)) {
+			if (!file.getName().endsWith("crc") && file.getName().contains(pattern)) {
+				numFiles++;
+			}
+		}
+		return numFiles;
+	}
 }
@@ -78,6 +78,14 @@ public class FlinkKafkaConsumer09<T> extends FlinkKafkaConsumerBase<T> {
 	 * available. If 0, returns immediately with any records that are available now. */
 	public static final long DEFAULT_POLL_TIMEOUT = 100L;
 
+	/** Configuration key to change the maximum number of records that are emitted under
+	 * one acquisition of the checkpoint lock **/
+	public static final String KEY_MAX_EMIT_BATCH_SIZE = "flink.max-emit-batch-size";
+
+	/** The default maximum number of records emitted under one acquisition of the checkpoint
+	 * lock. Larger batches reduce the locking overhead, smaller ones the checkpoint latency. */
+	public static final int DEFAULT_MAX_EMIT_BATCH_SIZE = 500;
+
 	// ------------------------------------------------------------------------
 
 	/** User-supplied properties for Kafka **/
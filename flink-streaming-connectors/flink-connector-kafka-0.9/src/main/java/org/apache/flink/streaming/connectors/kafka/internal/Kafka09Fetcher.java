@@ -22,6 +22,7 @@ import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.streaming.api.functions.AssignerWithPeriodicWatermarks;
 import org.apache.flink.streaming.api.functions.AssignerWithPunctuatedWatermarks;
 import org.apache.flink.streaming.api.functions.source.SourceFunction.SourceContext;
+import org.apache.flink.streaming.connectors.kafka.FlinkKafkaConsumer09;
 import org.apache.flink.streaming.connectors.kafka.internals.AbstractFetcher;
 import org.apache.flink.streaming.connectors.kafka.internals.ExceptionProxy;
 import org.apache.flink.streaming.connectors.kafka.internals.KafkaTopicPartition;
@@ -72,6 +73,9 @@ public class Kafka09Fetcher<T> extends AbstractFetcher<T, TopicPartition> implem
 	/** The maximum number of milliseconds to wait for a fetch batch */
 	private final long pollTimeout;
 
+	/** The maximum number of records to emit under one acquisition of the checkpoint lock */
+	private final int maxEmitBatchSize;
+
 	/** The next offsets that the main thread should commit */
 	private final AtomicReference<Map<TopicPartition, OffsetAndMetadata>> nextOffsetsToCommit;
 	
@@ -127,6 +131,7 @@ public class Kafka09Fetcher<T> extends AbstractFetcher<T, TopicPartition> implem
 		this.deserializer = deserializer;
 		this.kafkaProperties = kafkaProperties;
 		this.pollTimeout = pollTimeout;
+		this.maxEmitBatchSize = getMaxEmitBatchSize(kafkaProperties);
 		this.nextOffsetsToCommit = new AtomicReference<>();
 		this.offsetCommitCallback = new CommitCallback();
 		this.taskNameWithSubtasks = taskNameWithSubtasks;
@@ -243,6 +248,11 @@ public class Kafka09Fetcher<T> extends AbstractFetcher<T, TopicPartition> implem
 			// from now on, external operations may call the consumer
 			this.consumer = consumer;
 
+			// the reused buffers for the batches of records to emit
+			final List<T> batchRecords = new ArrayList<>(maxEmitBatchSize);
+			final long[] batchOffsets = new long[maxEmitBatchSize];
+			final long[] batchTimestamps = new long[maxEmitBatchSize];
+
 			// main fetch loop
 			while (running) {
 
@@ -264,7 +274,9 @@ public class Kafka09Fetcher<T> extends AbstractFetcher<T, TopicPartition> implem
 					continue;
 				}
 
-				// get the records for each topic partition
+				// get the records for each topic partition. the records are deserialized
+				// outside the checkpoint lock and then emitted in batches, each batch under
+				// a single acquisition of the lock
 				for (KafkaTopicPartitionState<TopicPartition> partition : subscribedPartitions()) {
 					
 					List<ConsumerRecord<byte[], byte[]>> partitionRecords = records.records(partition.getKafkaPartitionHandle());
@@ -280,10 +292,19 @@ public class Kafka09Fetcher<T> extends AbstractFetcher<T, TopicPartition> implem
 							break;
 						}
 
-						// emit the actual record. this also update offset state atomically
-						// and deals with timestamps and watermark generation
-						emitRecord(value, partition, record.offset(), record);
+						final int pos = batchRecords.size();
+						batchRecords.add(value);
+						batchOffsets[pos] = record.offset();
+						batchTimestamps[pos] = getRecordTimestamp(record);
+
+						if (pos + 1 == maxEmitBatchSize) {
+							emitBatch(batchRecords, batchOffsets, batchTimestamps, partition);
+						}
 					}
+
+					// emit the remaining records of the partition. this also updates the offset
+					// state atomically and deals with timestamps and watermark generation
+					emitBatch(batchRecords, batchOffsets, batchTimestamps, partition);
 				}
 			}
 			// end main fetch loop
@@ -306,10 +327,21 @@ public class Kafka09Fetcher<T> extends AbstractFetcher<T, TopicPartition> implem
 		}
 	}
 
-	// Kafka09Fetcher ignores the timestamp, Kafka010Fetcher is extracting the timestamp and passing it to the emitRecord() method.
-	protected void emitRecord(T record, KafkaTopicPartitionState<TopicPartition> partition, long offset, ConsumerRecord consumerRecord) throws Exception {
-		emitRecord(record, partition, offset, Long.MIN_VALUE);
+	private void emitBatch(
+			List<T> batchRecords, long[] batchOffsets, long[] batchTimestamps,
+			KafkaTopicPartitionState<TopicPartition> partition) throws Exception
+	{
+		if (!batchRecords.isEmpty()) {
+			emitRecords(batchRecords, batchOffsets, batchTimestamps, partition);
+			batchRecords.clear();
+		}
+	}
+
+	// Kafka09Fetcher ignores the timestamp, Kafka010Fetcher is extracting the timestamp and passing it to the emitRecords() method.
+	protected long getRecordTimestamp(ConsumerRecord<?, ?> consumerRecord) {
+		return Long.MIN_VALUE;
 	}
+
 	/**
 	 * Protected method to make the partition assignment pluggable, for different Kafka versions.
 	 */
@@ -362,6 +394,23 @@ public class Kafka09Fetcher<T> extends AbstractFetcher<T, TopicPartition> implem
 	//  Utilities
 	// ------------------------------------------------------------------------
 
+	private static int getMaxEmitBatchSize(Properties kafkaProperties) {
+		final int maxEmitBatchSize;
+		try {
+			maxEmitBatchSize = Integer.parseInt(kafkaProperties.getProperty(
+					FlinkKafkaConsumer09.KEY_MAX_EMIT_BATCH_SIZE,
+					String.valueOf(FlinkKafkaConsumer09.DEFAULT_MAX_EMIT_BATCH_SIZE)));
+		}
+		catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Cannot parse the maximum emit batch size for '" +
+					FlinkKafkaConsumer09.KEY_MAX_EMIT_BATCH_SIZE + '\'', e);
+		}
+		if (maxEmitBatchSize <= 0) {
+			throw new IllegalArgumentException("The maximum emit batch size must be positive.");
+		}
+		return maxEmitBatchSize;
+	}
+
 	public static List<TopicPartition> convertKafkaPartitions(KafkaTopicPartitionState<TopicPartition>[] partitions) {
 		ArrayList<TopicPartition> result = new ArrayList<>(partitions.length);
 		for (KafkaTopicPartitionState<TopicPartition> p : partitions) {
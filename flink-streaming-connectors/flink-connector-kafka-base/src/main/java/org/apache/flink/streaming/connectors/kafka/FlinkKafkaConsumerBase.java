@@ -98,6 +98,10 @@ public abstract class FlinkKafkaConsumerBase<T> extends RichParallelSourceFuncti
 	 * The assigner is kept in serialized form, to deserialize it into multiple copies */
 	private SerializedValue<AssignerWithPunctuatedWatermarks<T>> punctuatedWatermarkAssigner;
 
+	/** The time in milliseconds after which a partition without records is considered idle,
+	 * or a non-positive value, if partitions never become idle */
+	private long partitionIdleTimeout = -1L;
+
 	private transient ListState<Tuple2<KafkaTopicPartition, Long>> offsetsStateForCheckpoint;
 
 	// ------------------------------------------------------------------------
@@ -215,6 +219,27 @@ public abstract class FlinkKafkaConsumerBase<T> extends RichParallelSourceFuncti
 		}
 	}
 
+	/**
+	 * Sets the time after which a Kafka partition that did not deliver any records is
+	 * considered idle. Idle partitions do not hold back the watermark of the other partitions,
+	 * and the consumer marks itself as temporarily idle once all of its partitions are idle,
+	 * so that downstream operators can advance their watermarks without waiting for it.
+	 * A partition becomes active again as soon as it delivers records.
+	 *
+	 * <p>This only has an effect if the consumer runs a per-partition watermark assigner, see
+	 * {@link #assignTimestampsAndWatermarks(AssignerWithPeriodicWatermarks)} and
+	 * {@link #assignTimestampsAndWatermarks(AssignerWithPunctuatedWatermarks)}. By default,
+	 * partitions never become idle.
+	 *
+	 * @param partitionIdleTimeout The idle timeout in milliseconds.
+	 * @return The consumer object, to allow function chaining.
+	 */
+	public FlinkKafkaConsumerBase<T> setPartitionIdleTimeout(long partitionIdleTimeout) {
+		checkArgument(partitionIdleTimeout > 0, "The partition idle timeout must be positive.");
+		this.partitionIdleTimeout = partitionIdleTimeout;
+		return this;
+	}
+
 	// ------------------------------------------------------------------------
 	//  Work methods
 	// ------------------------------------------------------------------------
@@ -239,6 +264,10 @@ public abstract class FlinkKafkaConsumerBase<T> extends RichParallelSourceFuncti
 				fetcher.restoreOffsets(restoreToOffset);
 			}
 
+			if (partitionIdleTimeout > 0) {
+				fetcher.setPartitionIdleTimeout(partitionIdleTimeout);
+			}
+
 			// publish the reference, for snapshot-, commit-, and cancel calls
 			// IMPORTANT: We can only do that now, because only now will calls to
 			//            the fetchers 'snapshotCurrentState()' method return at least
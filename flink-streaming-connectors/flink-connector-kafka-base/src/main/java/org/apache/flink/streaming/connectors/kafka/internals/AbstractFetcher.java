@@ -33,7 +33,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
 
 /**
  * Base class for all fetchers, which implement the connections to Kafka brokers and
@@ -42,6 +44,10 @@ import static org.apache.flink.util.Preconditions.checkNotNull;
  * <p>This fetcher base class implements the logic around emitting records and tracking offsets,
  * as well as around the optional timestamp assignment and watermark generation. 
  * 
+ * <p>If a partition idle timeout is set, partitions whose offsets do not advance within the
+ * timeout are excluded from the cross-partition watermark, and the source context is marked
+ * as temporarily idle once all partitions are idle.
+ * 
  * @param <T> The type of elements deserialized from Kafka's byte records, and emitted into
  *            the Flink data streams.
  * @param <KPH> The type of topic/partition identifier used by Kafka in the specific version.
@@ -70,6 +76,15 @@ public abstract class AbstractFetcher<T, KPH> {
 	/** Flag whether to register metrics for the fetcher */
 	protected final boolean useMetrics;
 
+	/** The service used to register the timers for watermark emission and idleness checks */
+	private final ProcessingTimeService processingTimeProvider;
+
+	/** Only relevant for periodic watermarks: The emitter of the periodic watermarks */
+	private PeriodicWatermarkEmitter periodicEmitter;
+
+	/** The time after which a partition without records is idle, or -1, if partitions never become idle */
+	private long partitionIdleTimeout = -1L;
+
 	/** Only relevant for punctuated watermarks: The current cross partition watermark */
 	private volatile long maxWatermarkSoFar = Long.MIN_VALUE;
 
@@ -87,6 +102,7 @@ public abstract class AbstractFetcher<T, KPH> {
 	{
 		this.sourceContext = checkNotNull(sourceContext);
 		this.checkpointLock = sourceContext.getCheckpointLock();
+		this.processingTimeProvider = processingTimeProvider;
 		this.useMetrics = useMetrics;
 		
 		// figure out what we watermark mode we will be using
@@ -118,7 +134,7 @@ public abstract class AbstractFetcher<T, KPH> {
 			KafkaTopicPartitionStateWithPeriodicWatermarks<?, ?>[] parts = 
 					(KafkaTopicPartitionStateWithPeriodicWatermarks<?, ?>[]) allPartitions;
 			
-			PeriodicWatermarkEmitter periodicEmitter = 
+			periodicEmitter = 
 					new PeriodicWatermarkEmitter(parts, sourceContext, processingTimeProvider, autoWatermarkInterval);
 			periodicEmitter.start();
 		}
@@ -137,6 +153,30 @@ public abstract class AbstractFetcher<T, KPH> {
 		return allPartitions;
 	}
 
+	/**
+	 * Sets the time after which a partition that did not deliver any records is considered
+	 * idle. Idle partitions are excluded from the cross-partition watermark, and the source
+	 * is marked as temporarily idle when all partitions are idle. This has no effect if the
+	 * fetcher does not generate watermarks.
+	 *
+	 * <p>This method must be called at most once, before the fetch loop is started.
+	 *
+	 * @param partitionIdleTimeout The idle timeout in milliseconds.
+	 */
+	public void setPartitionIdleTimeout(long partitionIdleTimeout) {
+		checkArgument(partitionIdleTimeout > 0, "The partition idle timeout must be positive.");
+		checkState(this.partitionIdleTimeout == -1L, "The partition idle timeout has already been set.");
+		this.partitionIdleTimeout = partitionIdleTimeout;
+
+		if (timestampWatermarkMode == PERIODIC_WATERMARKS) {
+			// the periodic emitter checks for idleness whenever it computes the watermark
+			periodicEmitter.setPartitionIdleTimeout(partitionIdleTimeout);
+		}
+		else if (timestampWatermarkMode == PUNCTUATED_WATERMARKS) {
+			new PunctuatedIdlenessChecker(processingTimeProvider, partitionIdleTimeout).start();
+		}
+	}
+
 	// ------------------------------------------------------------------------
 	//  Core fetcher work methods
 	// ------------------------------------------------------------------------
@@ -300,28 +340,136 @@ public abstract class AbstractFetcher<T, KPH> {
 		}
 	}
 
+	/**
+	 * Emits a batch of records that were fetched from the same Kafka partition. Compared to
+	 * calling {@link #emitRecord(Object, KafkaTopicPartitionState, long, long)} for each record,
+	 * this acquires the checkpoint lock only once for the whole batch: the records, the offset of
+	 * the last record, and a new watermark are emitted under a single lock acquisition. With
+	 * periodic watermarks, the timestamps are extracted under the same lock acquisition, so that
+	 * no watermark can be emitted between the extraction and the emission of the records.
+	 *
+	 * <p>The checkpoint lock is held while the whole batch is emitted, so callers should bound
+	 * the size of the batches to keep the checkpoint latency predictable.
+	 *
+	 * @param records The records to emit, in the order of their offsets
+	 * @param offsets The offsets of the records
+	 * @param kafkaTimestamps The Kafka timestamps of the records (or Long.MIN_VALUE, if the records
+	 *                        have no timestamps). Overwritten with the extracted timestamps.
+	 * @param partitionState The state of the Kafka partition from which the records were fetched
+	 */
+	protected void emitRecords(
+			List<T> records, long[] offsets, long[] kafkaTimestamps,
+			KafkaTopicPartitionState<KPH> partitionState) throws Exception
+	{
+		final int numRecords = records.size();
+		if (numRecords == 0) {
+			return;
+		}
+
+		if (timestampWatermarkMode == NO_TIMESTAMPS_WATERMARKS) {
+			synchronized (checkpointLock) {
+				for (int i = 0; i < numRecords; i++) {
+					if (kafkaTimestamps[i] != Long.MIN_VALUE) {
+						// this case is true for Kafka 0.10
+						sourceContext.collectWithTimestamp(records.get(i), kafkaTimestamps[i]);
+					} else {
+						sourceContext.collect(records.get(i));
+					}
+				}
+				partitionState.setOffset(offsets[numRecords - 1]);
+			}
+		}
+		else if (timestampWatermarkMode == PERIODIC_WATERMARKS) {
+			@SuppressWarnings("unchecked")
+			final KafkaTopicPartitionStateWithPeriodicWatermarks<T, KPH> withWatermarksState =
+					(KafkaTopicPartitionStateWithPeriodicWatermarks<T, KPH>) partitionState;
+
+			// the timestamps must be extracted under the same checkpoint lock acquisition that
+			// emits the records. otherwise the periodic emitter could run in between, see the
+			// maximum timestamp of the batch, and emit a watermark that makes the records late.
+			synchronized (checkpointLock) {
+				// the partition state lock guards the assigner against the periodic emitter
+				//noinspection SynchronizationOnLocalVariableOrMethodParameter
+				synchronized (withWatermarksState) {
+					for (int i = 0; i < numRecords; i++) {
+						kafkaTimestamps[i] = withWatermarksState.getTimestampForRecord(records.get(i), kafkaTimestamps[i]);
+					}
+				}
+
+				for (int i = 0; i < numRecords; i++) {
+					sourceContext.collectWithTimestamp(records.get(i), kafkaTimestamps[i]);
+				}
+				partitionState.setOffset(offsets[numRecords - 1]);
+			}
+		}
+		else {
+			@SuppressWarnings("unchecked")
+			final KafkaTopicPartitionStateWithPunctuatedWatermarks<T, KPH> withWatermarksState =
+					(KafkaTopicPartitionStateWithPunctuatedWatermarks<T, KPH>) partitionState;
+
+			// the per-partition watermarks only increase, so the last new watermark of the
+			// batch is the only one that can advance the cross-partition watermark. emitting it
+			// after the whole batch is safe, none of the records becomes late that way.
+			Watermark newWatermark = null;
+			for (int i = 0; i < numRecords; i++) {
+				final T record = records.get(i);
+				final long timestamp = withWatermarksState.getTimestampForRecord(record, kafkaTimestamps[i]);
+				final Watermark watermark = withWatermarksState.checkAndGetNewWatermark(record, timestamp);
+				if (watermark != null) {
+					newWatermark = watermark;
+				}
+				kafkaTimestamps[i] = timestamp;
+			}
+
+			synchronized (checkpointLock) {
+				for (int i = 0; i < numRecords; i++) {
+					sourceContext.collectWithTimestamp(records.get(i), kafkaTimestamps[i]);
+				}
+				partitionState.setOffset(offsets[numRecords - 1]);
+
+				// re-entering the lock in here is cheap, compared to acquiring it again
+				if (newWatermark != null) {
+					updateMinPunctuatedWatermark(newWatermark);
+				}
+			}
+		}
+	}
+
 	/**
 	 *Checks whether a new per-partition watermark is also a new cross-partition watermark.
 	 */
 	private void updateMinPunctuatedWatermark(Watermark nextWatermark) {
 		if (nextWatermark.getTimestamp() > maxWatermarkSoFar) {
-			long newMin = Long.MAX_VALUE;
-			
-			for (KafkaTopicPartitionState<?> state : allPartitions) {
-				@SuppressWarnings("unchecked")
-				final KafkaTopicPartitionStateWithPunctuatedWatermarks<T, KPH> withWatermarksState =
-						(KafkaTopicPartitionStateWithPunctuatedWatermarks<T, KPH>) state;
-				
-				newMin = Math.min(newMin, withWatermarksState.getCurrentPartitionWatermark());
+			emitMinPunctuatedWatermark();
+		}
+	}
+
+	/**
+	 * Emits the minimum watermark across all non-idle partitions, if it advanced.
+	 */
+	private void emitMinPunctuatedWatermark() {
+		long newMin = Long.MAX_VALUE;
+		boolean hasActivePartitions = false;
+
+		for (KafkaTopicPartitionState<?> state : allPartitions) {
+			if (state.isIdle()) {
+				continue;
 			}
-			
-			// double-check locking pattern
-			if (newMin > maxWatermarkSoFar) {
-				synchronized (checkpointLock) {
-					if (newMin > maxWatermarkSoFar) {
-						maxWatermarkSoFar = newMin;
-						sourceContext.emitWatermark(new Watermark(newMin));
-					}
+			hasActivePartitions = true;
+
+			@SuppressWarnings("unchecked")
+			final KafkaTopicPartitionStateWithPunctuatedWatermarks<T, KPH> withWatermarksState =
+					(KafkaTopicPartitionStateWithPunctuatedWatermarks<T, KPH>) state;
+
+			newMin = Math.min(newMin, withWatermarksState.getCurrentPartitionWatermark());
+		}
+
+		// double-check locking pattern
+		if (hasActivePartitions && newMin > maxWatermarkSoFar) {
+			synchronized (checkpointLock) {
+				if (newMin > maxWatermarkSoFar) {
+					maxWatermarkSoFar = newMin;
+					sourceContext.emitWatermark(new Watermark(newMin));
 				}
 			}
 		}
@@ -472,6 +620,8 @@ public abstract class AbstractFetcher<T, KPH> {
 		private final long interval;
 		
 		private long lastWatermarkTimestamp;
+
+		private volatile long partitionIdleTimeout = -1L;
 		
 		//-------------------------------------------------
 
@@ -493,12 +643,26 @@ public abstract class AbstractFetcher<T, KPH> {
 		public void start() {
 			timerService.registerTimer(timerService.getCurrentProcessingTime() + interval, this);
 		}
+
+		public void setPartitionIdleTimeout(long partitionIdleTimeout) {
+			this.partitionIdleTimeout = partitionIdleTimeout;
+		}
 		
 		@Override
 		public void onProcessingTime(long timestamp) throws Exception {
+			final long idleTimeout = partitionIdleTimeout;
+			final boolean checkIdleness = idleTimeout > 0;
+			final long now = timerService.getCurrentProcessingTime();
 
 			long minAcrossAll = Long.MAX_VALUE;
+			boolean allIdle = checkIdleness;
 			for (KafkaTopicPartitionStateWithPeriodicWatermarks<?, ?> state : allPartitions) {
+
+				// idle partitions do not hold back the watermark of the other partitions
+				if (checkIdleness && state.checkIdle(now, idleTimeout)) {
+					continue;
+				}
+				allIdle = false;
 				
 				// we access the current watermark for the periodic assigners under the state
 				// lock, to prevent concurrent modification to any internal variables
@@ -511,8 +675,12 @@ public abstract class AbstractFetcher<T, KPH> {
 				minAcrossAll = Math.min(minAcrossAll, curr);
 			}
 			
-			// emit next watermark, if there is one
-			if (minAcrossAll > lastWatermarkTimestamp) {
+			if (allIdle) {
+				// the source becomes active again with the next emitted record
+				emitter.markAsTemporarilyIdle();
+			}
+			else if (minAcrossAll > lastWatermarkTimestamp) {
+				// emit next watermark, if there is one
 				lastWatermarkTimestamp = minAcrossAll;
 				emitter.emitWatermark(new Watermark(minAcrossAll));
 			}
@@ -521,4 +689,55 @@ public abstract class AbstractFetcher<T, KPH> {
 			timerService.registerTimer(timerService.getCurrentProcessingTime() + interval, this);
 		}
 	}
+
+	/**
+	 * Periodically checks the partitions for idleness, if punctuated watermarks are used. When a
+	 * partition becomes idle, the cross-partition watermark is recomputed without it, and when
+	 * all partitions are idle, the source is marked as temporarily idle.
+	 */
+	private class PunctuatedIdlenessChecker implements ProcessingTimeCallback {
+
+		private final ProcessingTimeService timerService;
+
+		private final long idleTimeout;
+
+		/** The interval between checks, so that idleness is detected at most half a timeout late */
+		private final long interval;
+
+		PunctuatedIdlenessChecker(ProcessingTimeService timerService, long idleTimeout) {
+			this.timerService = checkNotNull(timerService);
+			this.idleTimeout = idleTimeout;
+			this.interval = Math.max(1L, idleTimeout / 2);
+		}
+
+		public void start() {
+			timerService.registerTimer(timerService.getCurrentProcessingTime() + interval, this);
+		}
+
+		@Override
+		public void onProcessingTime(long timestamp) throws Exception {
+			final long now = timerService.getCurrentProcessingTime();
+
+			boolean allIdle = true;
+			boolean newlyIdle = false;
+			for (KafkaTopicPartitionState<KPH> state : allPartitions) {
+				final boolean wasIdle = state.isIdle();
+				final boolean isIdle = state.checkIdle(now, idleTimeout);
+
+				allIdle &= isIdle;
+				newlyIdle |= isIdle && !wasIdle;
+			}
+
+			if (allIdle) {
+				// the source becomes active again with the next emitted record
+				sourceContext.markAsTemporarilyIdle();
+			}
+			else if (newlyIdle) {
+				// the partitions that became idle may have held back the watermark
+				emitMinPunctuatedWatermark();
+			}
+
+			timerService.registerTimer(timerService.getCurrentProcessingTime() + interval, this);
+		}
+	}
 }
@@ -47,6 +47,15 @@ public class KafkaTopicPartitionState<KPH> {
 	/** The offset of the Kafka partition that has been committed */
 	private volatile long committedOffset;
 
+	/** Flag whether the partition did not deliver records within the idle timeout */
+	private volatile boolean idle;
+
+	/** The offset at the last idleness check, only accessed by the thread that checks idleness */
+	private long offsetAtLastIdleCheck = OFFSET_NOT_SET;
+
+	/** The last time at which the partition was seen active, or Long.MIN_VALUE before the first check */
+	private long lastActiveTime = Long.MIN_VALUE;
+
 	// ------------------------------------------------------------------------
 	
 	public KafkaTopicPartitionState(KafkaTopicPartition partition, KPH kafkaPartitionHandle) {
@@ -107,6 +116,36 @@ public class KafkaTopicPartitionState<KPH> {
 		return committedOffset;
 	}
 
+	/**
+	 * Checks whether the partition is idle, meaning that its offset did not advance during the
+	 * given timeout. A partition becomes active again as soon as its offset advances. The
+	 * method must always be called from the same thread, and the first call only starts the
+	 * timeout.
+	 *
+	 * @param currentTime The current processing time.
+	 * @param idleTimeout The time after which a partition without records is idle.
+	 * @return True, if the partition is idle, false otherwise.
+	 */
+	public final boolean checkIdle(long currentTime, long idleTimeout) {
+		final long currentOffset = offset;
+		if (lastActiveTime == Long.MIN_VALUE || currentOffset != offsetAtLastIdleCheck) {
+			offsetAtLastIdleCheck = currentOffset;
+			lastActiveTime = currentTime;
+			idle = false;
+		}
+		else if (!idle && currentTime - lastActiveTime >= idleTimeout) {
+			idle = true;
+		}
+		return idle;
+	}
+
+	/**
+	 * Whether the partition was found idle by the last call to {@link #checkIdle(long, long)}.
+	 */
+	public final boolean isIdle() {
+		return idle;
+	}
+
 	
 	// ------------------------------------------------------------------------
 
@@ -30,7 +30,9 @@ import org.apache.flink.util.SerializedValue;
 import org.junit.Test;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
@@ -191,6 +193,268 @@ public class AbstractFetcherTimestampsTest {
 		assertTrue(watermarkTs >= 13L && watermarkTs <= 15L);
 	}
 
+	@Test
+	public void testBatchedPunctuatedWatermarks() throws Exception {
+		final String testTopic = "test topic name";
+		List<KafkaTopicPartition> originalPartitions = Arrays.asList(
+				new KafkaTopicPartition(testTopic, 7),
+				new KafkaTopicPartition(testTopic, 13));
+
+		TestSourceContext<Long> sourceContext = new TestSourceContext<>();
+
+		TestFetcher<Long> fetcher = new TestFetcher<>(
+				sourceContext,
+				originalPartitions,
+				null, /* periodic watermark assigner */
+				new SerializedValue<AssignerWithPunctuatedWatermarks<Long>>(new PunctuatedTestExtractor()),
+				new TestProcessingTimeService(),
+				0);
+
+		final KafkaTopicPartitionState<Object> part1 = fetcher.subscribedPartitions()[0];
+		final KafkaTopicPartitionState<Object> part2 = fetcher.subscribedPartitions()[1];
+
+		// elements generate a watermark if the timestamp is a multiple of three
+
+		emitBatch(fetcher, part1, new long[] {1L, 2L, 3L, 4L}, new long[] {10L, 11L, 12L, 13L});
+		assertEquals(4L, sourceContext.getLatestElement().getValue().longValue());
+		assertEquals(4L, sourceContext.getLatestElement().getTimestamp());
+		assertEquals(13L, part1.getOffset());
+		assertFalse(sourceContext.hasWatermark());
+
+		// the last watermark of the batch advances the cross-partition watermark
+		emitBatch(fetcher, part2, new long[] {6L, 8L, 9L, 10L}, new long[] {1L, 2L, 3L, 4L});
+		assertEquals(10L, sourceContext.getLatestElement().getValue().longValue());
+		assertEquals(4L, part2.getOffset());
+		assertTrue(sourceContext.hasWatermark());
+		assertEquals(3L, sourceContext.getLatestWatermark().getTimestamp());
+
+		emitBatch(fetcher, part1, new long[] {15L, 21L}, new long[] {14L, 15L});
+		assertTrue(sourceContext.hasWatermark());
+		assertEquals(9L, sourceContext.getLatestWatermark().getTimestamp());
+	}
+
+	@Test
+	public void testBatchedPeriodicWatermarks() throws Exception {
+		final String testTopic = "test topic name";
+		List<KafkaTopicPartition> originalPartitions = Arrays.asList(
+				new KafkaTopicPartition(testTopic, 7),
+				new KafkaTopicPartition(testTopic, 13));
+
+		TestSourceContext<Long> sourceContext = new TestSourceContext<>();
+
+		TestProcessingTimeService processingTimeService = new TestProcessingTimeService();
+
+		TestFetcher<Long> fetcher = new TestFetcher<>(
+				sourceContext,
+				originalPartitions,
+				new SerializedValue<AssignerWithPeriodicWatermarks<Long>>(new PeriodicTestExtractor()),
+				null, /* punctuated watermarks assigner*/
+				processingTimeService,
+				10);
+
+		final KafkaTopicPartitionState<Object> part1 = fetcher.subscribedPartitions()[0];
+		final KafkaTopicPartitionState<Object> part2 = fetcher.subscribedPartitions()[1];
+
+		emitBatch(fetcher, part1, new long[] {1L, 2L, 3L}, new long[] {1L, 2L, 3L});
+		assertEquals(3L, sourceContext.getLatestElement().getValue().longValue());
+		assertEquals(3L, sourceContext.getLatestElement().getTimestamp());
+		assertEquals(3L, part1.getOffset());
+
+		emitBatch(fetcher, part2, new long[] {12L, 13L}, new long[] {1L, 2L});
+		assertEquals(13L, sourceContext.getLatestElement().getValue().longValue());
+		assertEquals(2L, part2.getOffset());
+
+		processingTimeService.setCurrentTime(10);
+
+		// this blocks until the periodic thread emitted the watermark
+		assertEquals(3L, sourceContext.getLatestWatermark().getTimestamp());
+	}
+
+	/**
+	 * Fires the periodic watermark timer while a batch is being emitted, from another thread that
+	 * holds the checkpoint lock like the timer thread of the task. None of the records of the
+	 * batch may become late.
+	 */
+	@Test
+	public void testPeriodicWatermarkDuringBatch() throws Exception {
+		List<KafkaTopicPartition> originalPartitions =
+				Collections.singletonList(new KafkaTopicPartition("test topic name", 7));
+
+		final TestSourceContext<Long> sourceContext = new TestSourceContext<>();
+		final TestProcessingTimeService processingTimeService = new TestProcessingTimeService();
+
+		TestFetcher<Long> fetcher = new TestFetcher<>(
+				sourceContext,
+				originalPartitions,
+				new SerializedValue<AssignerWithPeriodicWatermarks<Long>>(new TimerFiringPeriodicTestExtractor()),
+				null, /* punctuated watermarks assigner*/
+				processingTimeService,
+				10);
+
+		final KafkaTopicPartitionState<Object> part = fetcher.subscribedPartitions()[0];
+
+		final Thread timerThread = new Thread("timer") {
+			@Override
+			public void run() {
+				synchronized (sourceContext.getCheckpointLock()) {
+					try {
+						processingTimeService.setCurrentTime(10);
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+				}
+			}
+		};
+
+		// fire the timer once the timestamp of the last record was extracted, and give it
+		// some time to emit its watermark before the batch continues
+		TimerFiringPeriodicTestExtractor.onLastRecord = new Runnable() {
+			@Override
+			public void run() {
+				timerThread.start();
+				try {
+					timerThread.join(100);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+
+		try {
+			emitBatch(fetcher, part, new long[] {1L, 2L, TimerFiringPeriodicTestExtractor.LAST_RECORD},
+					new long[] {1L, 2L, 3L});
+			timerThread.join();
+		} finally {
+			TimerFiringPeriodicTestExtractor.onLastRecord = null;
+		}
+
+		assertEquals(TimerFiringPeriodicTestExtractor.LAST_RECORD, sourceContext.getLatestWatermark().getTimestamp());
+		assertEquals(0, sourceContext.getNumLateElements());
+	}
+
+	@Test
+	public void testPeriodicWatermarksWithIdlePartitions() throws Exception {
+		final String testTopic = "test topic name";
+		List<KafkaTopicPartition> originalPartitions = Arrays.asList(
+				new KafkaTopicPartition(testTopic, 7),
+				new KafkaTopicPartition(testTopic, 13));
+
+		TestSourceContext<Long> sourceContext = new TestSourceContext<>();
+
+		TestProcessingTimeService processingTimeService = new TestProcessingTimeService();
+
+		TestFetcher<Long> fetcher = new TestFetcher<>(
+				sourceContext,
+				originalPartitions,
+				new SerializedValue<AssignerWithPeriodicWatermarks<Long>>(new PeriodicTestExtractor()),
+				null, /* punctuated watermarks assigner*/
+				processingTimeService,
+				10);
+		fetcher.setPartitionIdleTimeout(15);
+
+		final KafkaTopicPartitionState<Object> part1 = fetcher.subscribedPartitions()[0];
+		final KafkaTopicPartitionState<Object> part2 = fetcher.subscribedPartitions()[1];
+
+		fetcher.emitRecord(5L, part1, 1L, Long.MIN_VALUE);
+		fetcher.emitRecord(20L, part2, 1L, Long.MIN_VALUE);
+
+		processingTimeService.setCurrentTime(10);
+		assertEquals(5L, sourceContext.getLatestWatermark().getTimestamp());
+
+		// partition 1 holds back the watermark until it is idle
+		fetcher.emitRecord(30L, part2, 2L, Long.MIN_VALUE);
+		processingTimeService.setCurrentTime(20);
+		assertFalse(sourceContext.hasWatermark());
+
+		fetcher.emitRecord(40L, part2, 3L, Long.MIN_VALUE);
+		processingTimeService.setCurrentTime(30);
+		assertTrue(part1.isIdle());
+		assertEquals(40L, sourceContext.getLatestWatermark().getTimestamp());
+		assertFalse(sourceContext.isTemporarilyIdle());
+
+		// once all partitions are idle, the source is idle
+		processingTimeService.setCurrentTime(40);
+		assertFalse(sourceContext.isTemporarilyIdle());
+		processingTimeService.setCurrentTime(50);
+		assertTrue(part2.isIdle());
+		assertTrue(sourceContext.isTemporarilyIdle());
+		assertFalse(sourceContext.hasWatermark());
+
+		// a new record makes the partition and the source active again
+		fetcher.emitRecord(45L, part1, 2L, Long.MIN_VALUE);
+		assertFalse(sourceContext.isTemporarilyIdle());
+		processingTimeService.setCurrentTime(60);
+		assertFalse(part1.isIdle());
+		assertEquals(45L, sourceContext.getLatestWatermark().getTimestamp());
+	}
+
+	@Test
+	public void testPunctuatedWatermarksWithIdlePartitions() throws Exception {
+		final String testTopic = "test topic name";
+		List<KafkaTopicPartition> originalPartitions = Arrays.asList(
+				new KafkaTopicPartition(testTopic, 7),
+				new KafkaTopicPartition(testTopic, 13));
+
+		TestSourceContext<Long> sourceContext = new TestSourceContext<>();
+
+		TestProcessingTimeService processingTimeService = new TestProcessingTimeService();
+
+		TestFetcher<Long> fetcher = new TestFetcher<>(
+				sourceContext,
+				originalPartitions,
+				null, /* periodic watermark assigner */
+				new SerializedValue<AssignerWithPunctuatedWatermarks<Long>>(new PunctuatedTestExtractor()),
+				processingTimeService,
+				0);
+		// the partitions are checked every 5 milliseconds
+		fetcher.setPartitionIdleTimeout(10);
+
+		final KafkaTopicPartitionState<Object> part1 = fetcher.subscribedPartitions()[0];
+		final KafkaTopicPartitionState<Object> part2 = fetcher.subscribedPartitions()[1];
+
+		// elements generate a watermark if the timestamp is a multiple of three
+
+		fetcher.emitRecord(3L, part1, 1L, Long.MIN_VALUE);
+		processingTimeService.setCurrentTime(5);
+		assertFalse(sourceContext.hasWatermark());
+
+		fetcher.emitRecord(6L, part1, 2L, Long.MIN_VALUE);
+		processingTimeService.setCurrentTime(10);
+		assertFalse(sourceContext.hasWatermark());
+
+		// partition 2 becomes idle and does not hold back the watermark any more
+		processingTimeService.setCurrentTime(15);
+		assertTrue(part2.isIdle());
+		assertFalse(part1.isIdle());
+		assertEquals(6L, sourceContext.getLatestWatermark().getTimestamp());
+
+		fetcher.emitRecord(9L, part1, 3L, Long.MIN_VALUE);
+		assertEquals(9L, sourceContext.getLatestWatermark().getTimestamp());
+
+		processingTimeService.setCurrentTime(20);
+		processingTimeService.setCurrentTime(25);
+		assertFalse(sourceContext.isTemporarilyIdle());
+
+		// once all partitions are idle, the source is idle
+		processingTimeService.setCurrentTime(30);
+		assertTrue(part1.isIdle());
+		assertTrue(sourceContext.isTemporarilyIdle());
+		assertFalse(sourceContext.hasWatermark());
+	}
+
+	private static void emitBatch(
+			TestFetcher<Long> fetcher, KafkaTopicPartitionState<Object> partition,
+			long[] values, long[] offsets) throws Exception
+	{
+		List<Long> records = new ArrayList<>(values.length);
+		long[] timestamps = new long[values.length];
+		for (int i = 0; i < values.length; i++) {
+			records.add(values[i]);
+			timestamps[i] = Long.MIN_VALUE;
+		}
+		fetcher.emitRecords(records, offsets, timestamps, partition);
+	}
+
 	// ------------------------------------------------------------------------
 	//  Test mocks
 	// ------------------------------------------------------------------------
@@ -238,6 +502,11 @@ public class AbstractFetcherTimestampsTest {
 
 		private volatile StreamRecord<T> latestElement;
 		private volatile Watermark currentWatermark;
+		private volatile boolean temporarilyIdle;
+
+		/** The highest watermark emitted so far, and the number of elements behind it */
+		private volatile long maxWatermark = Long.MIN_VALUE;
+		private volatile int numLateElements;
 
 		@Override
 		public void collect(T element) {
@@ -246,17 +515,28 @@ public class AbstractFetcherTimestampsTest {
 
 		@Override
 		public void collectWithTimestamp(T element, long timestamp) {
+			if (timestamp < maxWatermark) {
+				numLateElements++;
+			}
 			this.latestElement = new StreamRecord<>(element, timestamp);
+			this.temporarilyIdle = false;
 		}
 
 		@Override
 		public void emitWatermark(Watermark mark) {
 			synchronized (watermarkLock) {
+				temporarilyIdle = false;
 				currentWatermark = mark;
+				maxWatermark = Math.max(maxWatermark, mark.getTimestamp());
 				watermarkLock.notifyAll();
 			}
 		}
 
+		@Override
+		public void markAsTemporarilyIdle() {
+			this.temporarilyIdle = true;
+		}
+
 		@Override
 		public Object getCheckpointLock() {
 			return checkpointLock;
@@ -272,6 +552,14 @@ public class AbstractFetcherTimestampsTest {
 		public boolean hasWatermark() {
 			return currentWatermark != null;
 		}
+
+		public boolean isTemporarilyIdle() {
+			return temporarilyIdle;
+		}
+
+		public int getNumLateElements() {
+			return numLateElements;
+		}
 		
 		public Watermark getLatestWatermark() throws InterruptedException {
 			synchronized (watermarkLock) {
@@ -304,6 +592,27 @@ public class AbstractFetcherTimestampsTest {
 		}
 	}
 
+	/**
+	 * A periodic extractor that runs a hook after extracting the timestamp of the last record of
+	 * a batch. The hook is static, because the extractor is serialized.
+	 */
+	private static class TimerFiringPeriodicTestExtractor extends PeriodicTestExtractor {
+
+		static final long LAST_RECORD = 3L;
+
+		static volatile Runnable onLastRecord;
+
+		@Override
+		public long extractTimestamp(Long element, long previousElementTimestamp) {
+			long timestamp = super.extractTimestamp(element, previousElementTimestamp);
+			Runnable hook = onLastRecord;
+			if (element == LAST_RECORD && hook != null) {
+				hook.run();
+			}
+			return timestamp;
+		}
+	}
+
 	private static class PunctuatedTestExtractor implements AssignerWithPunctuatedWatermarks<Long> {
 
 		@Override
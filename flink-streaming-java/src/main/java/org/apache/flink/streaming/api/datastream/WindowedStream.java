@@ -20,10 +20,12 @@ package org.apache.flink.streaming.api.datastream;
 
 import org.apache.flink.annotation.PublicEvolving;
 import org.apache.flink.annotation.Public;
+import org.apache.flink.api.common.functions.AggregateFunction;
 import org.apache.flink.api.common.functions.FoldFunction;
 import org.apache.flink.api.common.functions.Function;
 import org.apache.flink.api.common.functions.ReduceFunction;
 import org.apache.flink.api.common.functions.RichFunction;
+import org.apache.flink.api.common.state.AggregatingStateDescriptor;
 import org.apache.flink.api.common.state.FoldingStateDescriptor;
 import org.apache.flink.api.common.state.ListStateDescriptor;
 import org.apache.flink.api.common.state.ReducingStateDescriptor;
@@ -36,17 +38,21 @@ import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
 import org.apache.flink.streaming.api.functions.aggregation.AggregationFunction;
 import org.apache.flink.streaming.api.functions.aggregation.ComparableAggregator;
 import org.apache.flink.streaming.api.functions.aggregation.SumAggregator;
+import org.apache.flink.streaming.api.functions.windowing.AggregateApplyWindowFunction;
 import org.apache.flink.streaming.api.functions.windowing.FoldApplyWindowFunction;
+import org.apache.flink.streaming.api.functions.windowing.InvertibleReduceFunction;
 import org.apache.flink.streaming.api.functions.windowing.PassThroughWindowFunction;
 import org.apache.flink.streaming.api.functions.windowing.ReduceApplyWindowFunction;
 import org.apache.flink.streaming.api.functions.windowing.WindowFunction;
 import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
 import org.apache.flink.streaming.api.windowing.assigners.MergingWindowAssigner;
+import org.apache.flink.streaming.api.windowing.assigners.SlidingEventTimeWindows;
 import org.apache.flink.streaming.api.windowing.assigners.SlidingProcessingTimeWindows;
 import org.apache.flink.streaming.api.windowing.assigners.TumblingProcessingTimeWindows;
 import org.apache.flink.streaming.api.windowing.assigners.WindowAssigner;
 import org.apache.flink.streaming.api.windowing.evictors.Evictor;
 import org.apache.flink.streaming.api.windowing.time.Time;
+import org.apache.flink.streaming.api.windowing.triggers.EventTimeTrigger;
 import org.apache.flink.streaming.api.windowing.triggers.ProcessingTimeTrigger;
 import org.apache.flink.streaming.api.windowing.triggers.Trigger;
 import org.apache.flink.streaming.api.windowing.windows.TimeWindow;
@@ -54,12 +60,17 @@ import org.apache.flink.streaming.api.windowing.windows.Window;
 import org.apache.flink.streaming.runtime.operators.windowing.AccumulatingProcessingTimeWindowOperator;
 import org.apache.flink.streaming.runtime.operators.windowing.AggregatingProcessingTimeWindowOperator;
 import org.apache.flink.streaming.runtime.operators.windowing.EvictingWindowOperator;
+import org.apache.flink.streaming.runtime.operators.windowing.InvertibleEvictingWindowOperator;
+import org.apache.flink.streaming.runtime.operators.windowing.PanedSlidingWindowOperator;
+import org.apache.flink.streaming.runtime.operators.windowing.functions.InternalWindowFunction;
 import org.apache.flink.streaming.runtime.operators.windowing.functions.InternalIterableWindowFunction;
 import org.apache.flink.streaming.runtime.operators.windowing.functions.InternalSingleValueWindowFunction;
 import org.apache.flink.streaming.runtime.operators.windowing.WindowOperator;
 import org.apache.flink.streaming.runtime.streamrecord.StreamElementSerializer;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
 /**
  * A {@code WindowedStream} represents a data stream where elements are grouped by
  * key, and for each key, the stream of elements is split into windows based on a
@@ -103,6 +114,9 @@ public class WindowedStream<T, K, W extends Window> {
 	/** The user-specified allowed lateness. */
 	private long allowedLateness = 0L;
 
+	/** Whether reductions of sliding windows are pre-aggregated in panes, see {@link #aggregatePanes()} */
+	private boolean aggregatePanes = false;
+
 	@PublicEvolving
 	public WindowedStream(KeyedStream<T, K> input,
 			WindowAssigner<? super T, W> windowAssigner) {
@@ -149,7 +163,9 @@ public class WindowedStream<T, K, W extends Window> {
 	 *
 	 * <p>
 	 * Note: When using an evictor window performance will degrade significantly, since
-	 * incremental aggregation of window results cannot be used.
+	 * incremental aggregation of window results cannot be used. The exception are reductions
+	 * with an {@link InvertibleReduceFunction}, which remove the evicted elements from a running
+	 * aggregate.
 	 */
 	@PublicEvolving
 	public WindowedStream<T, K, W> evictor(Evictor<? super T, ? super W> evictor) {
@@ -160,6 +176,32 @@ public class WindowedStream<T, K, W extends Window> {
 		return this;
 	}
 
+	/**
+	 * Pre-aggregates the elements of sliding event-time windows in panes of the length of the
+	 * slide. Each element is reduced into exactly one pane instead of into every window that
+	 * contains it, and a window is computed from its panes when it fires.
+	 * See {@link PanedSlidingWindowOperator}.
+	 *
+	 * <p>This only affects reductions, i.e., {@code reduce()} and
+	 * {@code apply(ReduceFunction, WindowFunction)}. It requires {@link SlidingEventTimeWindows}
+	 * whose size is a multiple of the slide, the default trigger and no evictor.
+	 *
+	 * <p><b>IMPORTANT:</b> The {@code ReduceFunction} must be associative, because the
+	 * pre-aggregated panes are combined in a different grouping than the elements of a regular
+	 * window. Also, the panes are stored in a different state than the windows, so a savepoint
+	 * cannot be restored after this setting was changed.
+	 */
+	@PublicEvolving
+	public WindowedStream<T, K, W> aggregatePanes() {
+		if (!(windowAssigner instanceof SlidingEventTimeWindows) ||
+				!PanedSlidingWindowOperator.isPaneable((SlidingEventTimeWindows) windowAssigner)) {
+			throw new UnsupportedOperationException("Pane pre-aggregation requires sliding event-time " +
+				"windows whose size is a multiple of the slide.");
+		}
+		this.aggregatePanes = true;
+		return this;
+	}
+
 
 	// ------------------------------------------------------------------------
 	//  Operations on the keyed windows
@@ -239,6 +281,201 @@ public class WindowedStream<T, K, W extends Window> {
 		return apply(initialValue, function, new PassThroughWindowFunction<K, W, R>(), resultType);
 	}
 
+	/**
+	 * Applies the given {@code AggregateFunction} to each window. The AggregateFunction
+	 * aggregates all elements of a window into a single result element. The stream of these
+	 * result elements (one per window) is interpreted as a regular non-windowed stream.
+	 *
+	 * <p>
+	 * The elements are added to an accumulator as they arrive, so only one accumulator is stored
+	 * per key and window. Unlike with {@link #fold(Object, FoldFunction)}, the accumulators of
+	 * windows are merged when windows merge, which makes the aggregation incremental for merging
+	 * window assigners like session windows.
+	 *
+	 * @param function The aggregation function.
+	 * @return The data stream that is the result of applying the aggregate function to the window.
+	 *
+	 * @param <ACC> The type of the AggregateFunction's accumulator
+	 * @param <R> The type of the elements in the resulting stream, equal to the
+	 *            AggregateFunction's result type
+	 */
+	@PublicEvolving
+	public <ACC, R> SingleOutputStreamOperator<R> aggregate(AggregateFunction<T, ACC, R> function) {
+		checkNotNull(function, "function");
+
+		if (function instanceof RichFunction) {
+			throw new UnsupportedOperationException("This aggregation function cannot be a RichFunction.");
+		}
+
+		TypeInformation<ACC> accumulatorType = TypeExtractor.getAggregateFunctionAccumulatorType(
+				function, input.getType(), null, false);
+
+		TypeInformation<R> resultType = TypeExtractor.getAggregateFunctionReturnType(
+				function, input.getType(), null, false);
+
+		return aggregate(function, accumulatorType, resultType);
+	}
+
+	/**
+	 * Applies the given {@code AggregateFunction} to each window. The AggregateFunction
+	 * aggregates all elements of a window into a single result element. The stream of these
+	 * result elements (one per window) is interpreted as a regular non-windowed stream.
+	 *
+	 * @param function The aggregation function.
+	 * @param accumulatorType Type information for the internal accumulator type of the aggregation function
+	 * @param resultType Type information for the result type of the aggregation function
+	 * @return The data stream that is the result of applying the aggregate function to the window.
+	 *
+	 * @param <ACC> The type of the AggregateFunction's accumulator
+	 * @param <R> The type of the elements in the resulting stream, equal to the
+	 *            AggregateFunction's result type
+	 */
+	@PublicEvolving
+	public <ACC, R> SingleOutputStreamOperator<R> aggregate(
+			AggregateFunction<T, ACC, R> function,
+			TypeInformation<ACC> accumulatorType,
+			TypeInformation<R> resultType) {
+
+		checkNotNull(function, "function");
+		checkNotNull(accumulatorType, "accumulatorType");
+		checkNotNull(resultType, "resultType");
+
+		if (function instanceof RichFunction) {
+			throw new UnsupportedOperationException("This aggregation function cannot be a RichFunction.");
+		}
+
+		return aggregate(function, new PassThroughWindowFunction<K, W, R>(),
+			accumulatorType, resultType, resultType);
+	}
+
+	/**
+	 * Applies the given window function to each window. The window function is called for each
+	 * evaluation of the window for each key individually. The output of the window function is
+	 * interpreted as a regular non-windowed stream.
+	 *
+	 * <p>
+	 * Arriving data is incrementally aggregated using the given aggregate function. This means
+	 * that the window function typically has only a single value to process when called.
+	 *
+	 * @param aggFunction The aggregate function that is used for incremental aggregation.
+	 * @param windowFunction The window function.
+	 * @return The data stream that is the result of applying the window function to the window.
+	 *
+	 * @param <ACC> The type of the AggregateFunction's accumulator
+	 * @param <V> The type of AggregateFunction's result, and the WindowFunction's input
+	 * @param <R> The type of the elements in the resulting stream, equal to the
+	 *            WindowFunction's result type
+	 */
+	@PublicEvolving
+	public <ACC, V, R> SingleOutputStreamOperator<R> aggregate(
+			AggregateFunction<T, ACC, V> aggFunction,
+			WindowFunction<V, R, K, W> windowFunction) {
+
+		checkNotNull(aggFunction, "aggFunction");
+		checkNotNull(windowFunction, "windowFunction");
+
+		TypeInformation<ACC> accumulatorType = TypeExtractor.getAggregateFunctionAccumulatorType(
+				aggFunction, input.getType(), null, false);
+
+		TypeInformation<V> aggResultType = TypeExtractor.getAggregateFunctionReturnType(
+				aggFunction, input.getType(), null, false);
+
+		TypeInformation<R> resultType = TypeExtractor.getUnaryOperatorReturnType(
+				windowFunction, WindowFunction.class, true, true, aggResultType, null, false);
+
+		return aggregate(aggFunction, windowFunction, accumulatorType, aggResultType, resultType);
+	}
+
+	/**
+	 * Applies the given window function to each window. The window function is called for each
+	 * evaluation of the window for each key individually. The output of the window function is
+	 * interpreted as a regular non-windowed stream.
+	 *
+	 * <p>
+	 * Arriving data is incrementally aggregated using the given aggregate function. This means
+	 * that the window function typically has only a single value to process when called.
+	 *
+	 * @param aggFunction The aggregate function that is used for incremental aggregation.
+	 * @param windowFunction The window function.
+	 * @param accumulatorType Type information for the internal accumulator type of the aggregation function
+	 * @param aggregateResultType Type information for the result type of the aggregation function
+	 * @param resultType Type information for the result type of the window function
+	 * @return The data stream that is the result of applying the window function to the window.
+	 *
+	 * @param <ACC> The type of the AggregateFunction's accumulator
+	 * @param <V> The type of AggregateFunction's result, and the WindowFunction's input
+	 * @param <R> The type of the elements in the resulting stream, equal to the
+	 *            WindowFunction's result type
+	 */
+	@PublicEvolving
+	public <ACC, V, R> SingleOutputStreamOperator<R> aggregate(
+			AggregateFunction<T, ACC, V> aggFunction,
+			WindowFunction<V, R, K, W> windowFunction,
+			TypeInformation<ACC> accumulatorType,
+			TypeInformation<V> aggregateResultType,
+			TypeInformation<R> resultType) {
+
+		checkNotNull(aggFunction, "aggFunction");
+		checkNotNull(windowFunction, "windowFunction");
+		checkNotNull(accumulatorType, "accumulatorType");
+		checkNotNull(aggregateResultType, "aggregateResultType");
+		checkNotNull(resultType, "resultType");
+
+		if (aggFunction instanceof RichFunction) {
+			throw new UnsupportedOperationException("This aggregate function cannot be a RichFunction.");
+		}
+
+		//clean the closures
+		windowFunction = input.getExecutionEnvironment().clean(windowFunction);
+		aggFunction = input.getExecutionEnvironment().clean(aggFunction);
+
+		String callLocation = Utils.getCallLocationName();
+		String udfName = "WindowedStream." + callLocation;
+
+		String opName;
+		KeySelector<T, K> keySel = input.getKeySelector();
+
+		OneInputStreamOperator<T, R> operator;
+
+		if (evictor != null) {
+			@SuppressWarnings({"unchecked", "rawtypes"})
+			TypeSerializer<StreamRecord<T>> streamRecordSerializer =
+					(TypeSerializer<StreamRecord<T>>) new StreamElementSerializer(input.getType().createSerializer(getExecutionEnvironment().getConfig()));
+
+			ListStateDescriptor<StreamRecord<T>> stateDesc =
+					new ListStateDescriptor<>("window-contents", streamRecordSerializer);
+
+			opName = "TriggerWindow(" + windowAssigner + ", " + stateDesc + ", " + trigger + ", " + evictor + ", " + udfName + ")";
+
+			operator = new EvictingWindowOperator<>(windowAssigner,
+				windowAssigner.getWindowSerializer(getExecutionEnvironment().getConfig()),
+				keySel,
+				input.getKeyType().createSerializer(getExecutionEnvironment().getConfig()),
+				stateDesc,
+				new InternalIterableWindowFunction<>(new AggregateApplyWindowFunction<>(aggFunction, windowFunction)),
+				trigger,
+				evictor,
+				allowedLateness);
+
+		} else {
+			AggregatingStateDescriptor<T, ACC, V> stateDesc = new AggregatingStateDescriptor<>("window-contents",
+				aggFunction, accumulatorType.createSerializer(getExecutionEnvironment().getConfig()));
+
+			opName = "TriggerWindow(" + windowAssigner + ", " + stateDesc + ", " + trigger + ", " + udfName + ")";
+
+			operator = new WindowOperator<>(windowAssigner,
+				windowAssigner.getWindowSerializer(getExecutionEnvironment().getConfig()),
+				keySel,
+				input.getKeyType().createSerializer(getExecutionEnvironment().getConfig()),
+				stateDesc,
+				new InternalSingleValueWindowFunction<>(windowFunction),
+				trigger,
+				allowedLateness);
+		}
+
+		return input.transform(opName, resultType, operator);
+	}
+
 	/**
 	 * Applies the given window function to each window. The window function is called for each
 	 * evaluation of the window for each key individually. The output of the window function is
@@ -382,7 +619,27 @@ public class WindowedStream<T, K, W extends Window> {
 
 		OneInputStreamOperator<T, R> operator;
 
-		if (evictor != null) {
+		if (aggregatePanes && (evictor != null || !(trigger instanceof EventTimeTrigger))) {
+			throw new UnsupportedOperationException("Pane pre-aggregation cannot be used with a custom trigger or an evictor.");
+		}
+
+		if (evictor != null && reduceFunction instanceof InvertibleReduceFunction) {
+			// the evicted elements are removed from a running aggregate
+			opName = "TriggerWindow(" + windowAssigner + ", " + reduceFunction + ", " + trigger + ", " + evictor + ", " + udfName + ")";
+
+			operator =
+				new InvertibleEvictingWindowOperator<>(windowAssigner,
+					windowAssigner.getWindowSerializer(getExecutionEnvironment().getConfig()),
+					keySel,
+					input.getKeyType().createSerializer(getExecutionEnvironment().getConfig()),
+					input.getType().createSerializer(getExecutionEnvironment().getConfig()),
+					(InvertibleReduceFunction<T>) reduceFunction,
+					new InternalSingleValueWindowFunction<>(function),
+					trigger,
+					evictor,
+					allowedLateness);
+
+		} else if (evictor != null) {
 			@SuppressWarnings({"unchecked", "rawtypes"})
 			TypeSerializer<StreamRecord<T>> streamRecordSerializer =
 					(TypeSerializer<StreamRecord<T>>) new StreamElementSerializer(input.getType().createSerializer(getExecutionEnvironment().getConfig()));
@@ -404,21 +661,39 @@ public class WindowedStream<T, K, W extends Window> {
 					allowedLateness);
 
 		} else {
-			ReducingStateDescriptor<T> stateDesc = new ReducingStateDescriptor<>("window-contents",
+			// the panes live in a state of their own, they are not compatible with window contents
+			ReducingStateDescriptor<T> stateDesc = new ReducingStateDescriptor<>(
+				aggregatePanes ? PanedSlidingWindowOperator.PANE_STATE_NAME : "window-contents",
 				reduceFunction,
 				input.getType().createSerializer(getExecutionEnvironment().getConfig()));
 
 			opName = "TriggerWindow(" + windowAssigner + ", " + stateDesc + ", " + trigger + ", " + udfName + ")";
 
-			operator =
-				new WindowOperator<>(windowAssigner,
-					windowAssigner.getWindowSerializer(getExecutionEnvironment().getConfig()),
-					keySel,
-					input.getKeyType().createSerializer(getExecutionEnvironment().getConfig()),
-					stateDesc,
-					new InternalSingleValueWindowFunction<>(function),
-					trigger,
-					allowedLateness);
+			if (aggregatePanes) {
+				@SuppressWarnings("unchecked")
+				InternalWindowFunction<T, R, K, TimeWindow> windowFunction =
+					(InternalWindowFunction<T, R, K, TimeWindow>) new InternalSingleValueWindowFunction<>(function);
+
+				operator =
+					new PanedSlidingWindowOperator<>((SlidingEventTimeWindows) windowAssigner,
+						new TimeWindow.Serializer(),
+						keySel,
+						input.getKeyType().createSerializer(getExecutionEnvironment().getConfig()),
+						stateDesc,
+						windowFunction,
+						(EventTimeTrigger) trigger,
+						allowedLateness);
+			} else {
+				operator =
+					new WindowOperator<>(windowAssigner,
+						windowAssigner.getWindowSerializer(getExecutionEnvironment().getConfig()),
+						keySel,
+						input.getKeyType().createSerializer(getExecutionEnvironment().getConfig()),
+						stateDesc,
+						new InternalSingleValueWindowFunction<>(function),
+						trigger,
+						allowedLateness);
+			}
 		}
 
 		return input.transform(opName, resultType, operator);
@@ -60,6 +60,7 @@ import org.apache.flink.streaming.api.functions.source.FileReadFunction;
 import org.apache.flink.streaming.api.functions.source.FromElementsFunction;
 import org.apache.flink.streaming.api.functions.source.FromIteratorFunction;
 import org.apache.flink.streaming.api.functions.source.FromSplittableIteratorFunction;
+import org.apache.flink.streaming.api.functions.source.IncrementalFileDiscovery;
 import org.apache.flink.streaming.api.functions.source.InputFormatSourceFunction;
 import org.apache.flink.streaming.api.functions.source.ParallelSourceFunction;
 import org.apache.flink.streaming.api.functions.source.SocketTextStreamFunction;
@@ -1146,7 +1147,92 @@ public abstract class StreamExecutionEnvironment {
 		Preconditions.checkNotNull(filePath.isEmpty(), "The file path must not be empty.");
 
 		inputFormat.setFilePath(filePath);
-		return createFileInput(inputFormat, typeInformation, "Custom File Source", watchType, interval);
+		return createFileInput(inputFormat, typeInformation, "Custom File Source", watchType, interval, 1, null);
+	}
+
+	/**
+	 * Reads the contents of the user-specified {@code filePath} based on the given {@link FileInputFormat},
+	 * like {@link #readFile(FileInputFormat, String, FileProcessingMode, long, TypeInformation)}, but each
+	 * parallel instance of the {@link ContinuousFileReaderOperator reader} reads up to {@code numReaderThreads}
+	 * splits concurrently. This helps to saturate the bandwidth of file systems with a high latency, like
+	 * object stores, or to read many small (compressed) files.
+	 *
+	 * <p>
+	 * The records of splits that are read concurrently are interleaved in the output of the reader.
+	 *
+	 * @param inputFormat
+	 * 		The input format used to create the data stream
+	 * @param filePath
+	 * 		The path of the file, as a URI (e.g., "file:///some/local/file" or "hdfs://host:port/file/path")
+	 * @param watchType
+	 * 		The mode in which the source should operate, i.e. monitor path and react to new data, or process once and exit
+	 * @param interval
+	 * 		In the case of periodic path monitoring, this specifies the interval (in millis) between consecutive path scans
+	 * @param typeInformation
+	 * 		Information on the type of the elements in the output stream
+	 * @param numReaderThreads
+	 * 		The number of threads that each parallel reader uses to read splits
+	 * @param <OUT>
+	 * 		The type of the returned data stream
+	 * @return The data stream that represents the data read from the given file
+	 */
+	@PublicEvolving
+	public <OUT> DataStreamSource<OUT> readFile(FileInputFormat<OUT> inputFormat,
+												String filePath,
+												FileProcessingMode watchType,
+												long interval,
+												TypeInformation<OUT> typeInformation,
+												int numReaderThreads) {
+
+		Preconditions.checkNotNull(inputFormat, "InputFormat must not be null.");
+		Preconditions.checkNotNull(filePath, "The file path must not be null.");
+		Preconditions.checkArgument(numReaderThreads > 0, "The number of reader threads must be at least 1.");
+
+		inputFormat.setFilePath(filePath);
+		return createFileInput(inputFormat, typeInformation, "Custom File Source", watchType, interval, numReaderThreads, null);
+	}
+
+	/**
+	 * Continuously monitors the user-specified {@code filePath} and reads the contents of new files based
+	 * on the given {@link FileInputFormat}. Contrary to
+	 * {@link #readFile(FileInputFormat, String, FileProcessingMode, long, TypeInformation)}, which only
+	 * processes files with a modification time after the most recent one seen so far, the source keeps a
+	 * checkpointed index of the processed files, as configured by the given {@link IncrementalFileDiscovery}.
+	 * This also picks up files that arrive late, with an older modification time, as long as it lies within
+	 * the retention time of the discovery. The sub-directories of the path are listed in parallel, and
+	 * partitions older than the retention time can be skipped while listing.
+	 *
+	 * <p>
+	 * Files that are modified after they have been processed are processed again as a whole.
+	 *
+	 * @param inputFormat
+	 * 		The input format used to create the data stream
+	 * @param filePath
+	 * 		The path of the file, as a URI (e.g., "file:///some/local/file" or "hdfs://host:port/file/path")
+	 * @param interval
+	 * 		The interval (in millis) between consecutive path scans
+	 * @param typeInformation
+	 * 		Information on the type of the elements in the output stream
+	 * @param discovery
+	 * 		The configuration of the incremental file discovery
+	 * @param <OUT>
+	 * 		The type of the returned data stream
+	 * @return The data stream that represents the data read from the given file
+	 */
+	@PublicEvolving
+	public <OUT> DataStreamSource<OUT> readFile(FileInputFormat<OUT> inputFormat,
+												String filePath,
+												long interval,
+												TypeInformation<OUT> typeInformation,
+												IncrementalFileDiscovery discovery) {
+
+		Preconditions.checkNotNull(inputFormat, "InputFormat must not be null.");
+		Preconditions.checkNotNull(filePath, "The file path must not be null.");
+		Preconditions.checkNotNull(discovery, "The incremental file discovery must not be null.");
+
+		inputFormat.setFilePath(filePath);
+		return createFileInput(inputFormat, typeInformation, "Custom File Source",
+				FileProcessingMode.PROCESS_CONTINUOUSLY, interval, 1, discovery);
 	}
 
 	/**
@@ -1323,7 +1409,7 @@ public abstract class StreamExecutionEnvironment {
 			FileInputFormat<OUT> format = (FileInputFormat<OUT>) inputFormat;
 
 			source = createFileInput(format, typeInfo, "Custom File source",
-					FileProcessingMode.PROCESS_ONCE, -1);
+					FileProcessingMode.PROCESS_ONCE, -1, 1, null);
 		} else {
 			source = createInput(inputFormat, typeInfo, "Custom Source");
 		}
@@ -1342,7 +1428,9 @@ public abstract class StreamExecutionEnvironment {
 														TypeInformation<OUT> typeInfo,
 														String sourceName,
 														FileProcessingMode monitoringMode,
-														long interval) {
+														long interval,
+														int numReaderThreads,
+														IncrementalFileDiscovery discovery) {
 
 		Preconditions.checkNotNull(inputFormat, "Unspecified file input format.");
 		Preconditions.checkNotNull(typeInfo, "Unspecified output type information.");
@@ -1357,8 +1445,12 @@ public abstract class StreamExecutionEnvironment {
 		ContinuousFileMonitoringFunction<OUT> monitoringFunction = new ContinuousFileMonitoringFunction<>(
 				inputFormat, inputFormat.getFilePath().toString(),
 				monitoringMode, getParallelism(), interval);
+		if (discovery != null) {
+			monitoringFunction.setIncrementalDiscovery(discovery);
+		}
 
-		ContinuousFileReaderOperator<OUT, ?> reader = new ContinuousFileReaderOperator<>(inputFormat);
+		ContinuousFileReaderOperator<OUT, ?> reader =
+			new ContinuousFileReaderOperator<>(inputFormat, numReaderThreads);
 
 		SingleOutputStreamOperator<OUT> source = addSource(monitoringFunction, sourceName)
 				.transform("FileSplitReader_" + sourceName, typeInfo, reader);
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.streaming.api.functions.async;
+
+import org.apache.flink.annotation.PublicEvolving;
+import org.apache.flink.api.common.functions.Function;
+import org.apache.flink.streaming.api.functions.async.collector.AsyncCollector;
+
+import java.io.Serializable;
+
+/**
+ * A function to trigger asynchronous I/O operations.
+ *
+ * <p>For each input element, {@link #asyncInvoke(Object, AsyncCollector)} is called once. The
+ * method starts the asynchronous operation, for example a request to an external key-value store,
+ * and returns without waiting for its result. Once the result is available, it is handed to the
+ * {@link AsyncCollector}, usually from a callback of the client library. This way, a single
+ * parallel instance can have many requests in flight at the same time.
+ *
+ * <p>The number of concurrent requests and the order in which results are emitted are configured
+ * when the function is applied with
+ * {@link org.apache.flink.streaming.api.datastream.AsyncDataStream}.
+ *
+ * <pre>{@code
+ * public class HBaseAsyncFunc implements AsyncFunction<String, String> {
+ *
+ *   public void asyncInvoke(String row, final AsyncCollector<String> collector) throws Exception {
+ *     HBaseCallback cb = new HBaseCallback(collector);
+ *     Get get = new Get(Bytes.toBytes(row));
+ *     hbase.asyncGet(get, cb);
+ *   }
+ * }
+ * }</pre>
+ *
+ * @param <IN> The type of the input elements.
+ * @param <OUT> The type of the returned elements.
+ */
+@PublicEvolving
+public interface AsyncFunction<IN, OUT> extends Function, Serializable {
+
+	/**
+	 * Trigger async operation for each stream input.
+	 *
+	 * @param input element coming from an upstream task
+	 * @param collector to collect the result data
+	 * @throws Exception in case of a user code error. An exception will make the task fail and
+	 * trigger fail-over process.
+	 */
+	void asyncInvoke(IN input, AsyncCollector<OUT> collector) throws Exception;
+}
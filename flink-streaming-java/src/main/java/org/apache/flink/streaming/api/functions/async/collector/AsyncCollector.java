@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.streaming.api.functions.async.collector;
+
+import org.apache.flink.annotation.PublicEvolving;
+
+import java.util.Collection;
+
+/**
+ * {@code AsyncCollector} collects the results of an asynchronous operation, which is started by
+ * {@link org.apache.flink.streaming.api.functions.async.AsyncFunction#asyncInvoke(Object, AsyncCollector)}.
+ *
+ * <p>Each collector must be completed exactly once, either with a collection of results or with
+ * an error. The collector may be completed by any thread, typically a callback thread of the
+ * client that issued the request.
+ *
+ * @param <OUT> Type of the results.
+ */
+@PublicEvolving
+public interface AsyncCollector<OUT> {
+
+	/**
+	 * Completes the collector with a collection of result objects. An empty collection means
+	 * that the input element does not produce any output.
+	 *
+	 * @param result A collection of results.
+	 */
+	void collect(Collection<OUT> result);
+
+	/**
+	 * Completes the collector with an error. The error fails the operator and may trigger
+	 * recovery.
+	 *
+	 * @param error A Throwable object.
+	 */
+	void collect(Throwable error);
+}
@@ -27,20 +27,31 @@ import org.apache.flink.core.fs.FileSystem;
 import org.apache.flink.core.fs.Path;
 import org.apache.flink.runtime.JobException;
 import org.apache.flink.streaming.api.checkpoint.Checkpointed;
+import org.apache.flink.util.InstantiationUtil;
 import org.apache.flink.util.Preconditions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.net.URI;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * This is the single (non-parallel) task which takes a {@link FileInputFormat} and is responsible for
@@ -50,10 +61,15 @@ import java.util.Map;
  * depends on the user-provided {@link FileProcessingMode} and the {@link FilePathFilter}.
  * The splits of the files to be read are then forwarded to the downstream
  * {@link ContinuousFileReaderOperator} which can have parallelism greater than one.
+ *
+ * <p>By default, the function forwards only the files that were modified after the most recent
+ * modification time it has seen so far. If an {@link IncrementalFileDiscovery} is set, it instead keeps
+ * a {@link FileDiscoveryIndex} of the processed files, which allows it to also discover files that
+ * arrive late, and lists the path without holding the checkpoint lock.
  */
 @Internal
 public class ContinuousFileMonitoringFunction<OUT>
-	extends RichSourceFunction<FileInputSplit> implements Checkpointed<Long> {
+	extends RichSourceFunction<FileInputSplit> implements Checkpointed<Serializable> {
 
 	private static final long serialVersionUID = 1L;
 
@@ -82,6 +98,18 @@ public class ContinuousFileMonitoringFunction<OUT>
 
 	private Long globalModificationTime;
 
+	/** The configuration of the incremental file discovery, or null to only track the modification time */
+	private IncrementalFileDiscovery discovery;
+
+	/** The index of the processed files, if the files are discovered incrementally */
+	private FileDiscoveryIndex discoveryIndex;
+
+	/** The format of the partition directories, or null if the path is not partitioned by date */
+	private transient SimpleDateFormat partitionFormat;
+
+	/** The number of directory levels of the partition directories */
+	private transient int partitionDepth;
+
 	private transient Object checkpointLock;
 
 	private volatile boolean isRunning = true;
@@ -104,6 +132,14 @@ public class ContinuousFileMonitoringFunction<OUT>
 		this.globalModificationTime = Long.MIN_VALUE;
 	}
 
+	/**
+	 * Enables the incremental discovery of files with the given configuration.
+	 * This has to be called before the function is restored or opened.
+	 */
+	public void setIncrementalDiscovery(IncrementalFileDiscovery discovery) {
+		this.discovery = Preconditions.checkNotNull(discovery, "Unspecified incremental file discovery.");
+	}
+
 	@Override
 	@SuppressWarnings("unchecked")
 	public void open(Configuration parameters) throws Exception {
@@ -111,6 +147,26 @@ public class ContinuousFileMonitoringFunction<OUT>
 
 		super.open(parameters);
 		format.configure(parameters);
+
+		if (discovery != null) {
+			if (discoveryIndex == null) {
+				discoveryIndex = new FileDiscoveryIndex(discovery.getRetentionTime());
+				if (globalModificationTime != Long.MIN_VALUE) {
+					// restored from a checkpoint that only tracked the modification time
+					discoveryIndex.markProcessedUntil(globalModificationTime);
+				}
+			} else {
+				discoveryIndex.setRetentionTime(discovery.getRetentionTime());
+			}
+
+			String pattern = discovery.getPartitionPattern();
+			if (pattern != null) {
+				partitionFormat = new SimpleDateFormat(pattern);
+				partitionFormat.setLenient(false);
+				partitionFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+				partitionDepth = getDepth(pattern);
+			}
+		}
 	}
 
 	@Override
@@ -118,6 +174,11 @@ public class ContinuousFileMonitoringFunction<OUT>
 		FileSystem fileSystem = FileSystem.get(new URI(path));
 
 		checkpointLock = context.getCheckpointLock();
+		if (discovery != null) {
+			runIncrementally(fileSystem, context);
+			return;
+		}
+
 		switch (watchType) {
 			case PROCESS_CONTINUOUSLY:
 				while (isRunning) {
@@ -146,6 +207,219 @@ public class ContinuousFileMonitoringFunction<OUT>
 		}
 	}
 
+	private void runIncrementally(FileSystem fileSystem, SourceContext<FileInputSplit> context) throws Exception {
+		ExecutorService listingExecutor = Executors.newFixedThreadPool(discovery.getListingParallelism());
+		try {
+			switch (watchType) {
+				case PROCESS_CONTINUOUSLY:
+					while (isRunning) {
+						discoverAndForwardSplits(fileSystem, listingExecutor, context);
+						Thread.sleep(interval);
+					}
+					break;
+				case PROCESS_ONCE:
+					discoverAndForwardSplits(fileSystem, listingExecutor, context);
+					synchronized (checkpointLock) {
+						markAllProcessed();
+					}
+					break;
+				default:
+					isRunning = false;
+					throw new RuntimeException("Unknown WatchType" + watchType);
+			}
+		} finally {
+			listingExecutor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Lists the files that are not in the {@link FileDiscoveryIndex} yet and forwards their splits.
+	 * Listing the files and creating their splits happens without holding the checkpoint lock; only
+	 * the forwarding of the splits and the update of the index are done under the lock, so that a
+	 * checkpoint covers either all or none of the files found by a scan.
+	 */
+	private void discoverAndForwardSplits(
+			FileSystem fileSystem,
+			ExecutorService listingExecutor,
+			SourceContext<FileInputSplit> context) throws Exception {
+
+		// only the source thread modifies the index, so we can read it without the lock
+		List<FileStatus> newFiles = listNewFiles(fileSystem, listingExecutor);
+		if (newFiles.isEmpty()) {
+			return;
+		}
+
+		// a single copy of the format serves the whole scan, only its path changes per file
+		FileInputFormat<OUT> scanFormat = copyFormat();
+
+		Map<Long, List<FileInputSplit>> splitsByModTime = new HashMap<>();
+		int splitNumber = 0;
+		for (FileStatus file : newFiles) {
+			List<FileInputSplit> splits = splitsByModTime.get(file.getModificationTime());
+			if (splits == null) {
+				splits = new LinkedList<>();
+				splitsByModTime.put(file.getModificationTime(), splits);
+			}
+
+			for (FileInputSplit split : createInputSplits(scanFormat, file)) {
+				splits.add(new FileInputSplit(splitNumber++, split.getPath(),
+					split.getStart(), split.getLength(), split.getHostnames()));
+			}
+		}
+
+		synchronized (checkpointLock) {
+			if (!isRunning) {
+				return;
+			}
+
+			for (Tuple2<Long, List<FileInputSplit>> splits : sortOnModTime(splitsByModTime)) {
+				for (FileInputSplit split : splits.f1) {
+					processSplit(split, context);
+				}
+			}
+
+			for (FileStatus file : newFiles) {
+				discoveryIndex.add(file.getPath(), file.getModificationTime());
+			}
+			discoveryIndex.prune();
+			globalModificationTime = discoveryIndex.getMaxModificationTime();
+
+			LOG.debug("Forwarded {} new files, {}.", newFiles.size(), discoveryIndex);
+		}
+	}
+
+	/**
+	 * Lists the files below the monitored path that have not been processed yet. The directories
+	 * of each level are listed in parallel. Sub-directories are only listed if the nested file
+	 * enumeration of the format is enabled, and partitions before the retention horizon are skipped.
+	 */
+	private List<FileStatus> listNewFiles(final FileSystem fileSystem, ExecutorService listingExecutor) throws Exception {
+		final long horizon = discoveryIndex.getHorizon();
+		final FilePathFilter filesFilter = format.getFilesFilter();
+
+		List<FileStatus> newFiles = new ArrayList<>();
+
+		List<Tuple2<Path, String>> directories = new ArrayList<>();
+		directories.add(new Tuple2<>(new Path(path), ""));
+
+		while (!directories.isEmpty()) {
+			List<Future<FileStatus[]>> listings = new ArrayList<>(directories.size());
+			for (final Tuple2<Path, String> directory : directories) {
+				listings.add(listingExecutor.submit(new Callable<FileStatus[]>() {
+					@Override
+					public FileStatus[] call() throws Exception {
+						return fileSystem.listStatus(directory.f0);
+					}
+				}));
+			}
+
+			List<Tuple2<Path, String>> subDirectories = new ArrayList<>();
+			for (int i = 0; i < directories.size(); i++) {
+				final FileStatus[] statuses;
+				try {
+					statuses = listings.get(i).get();
+				} catch (ExecutionException e) {
+					// we may run into an IOException if files are moved while listing their status
+					// the files of this directory are picked up by the next scan
+					LOG.debug("Could not list directory " + directories.get(i).f0 + '.', e.getCause());
+					continue;
+				}
+
+				if (statuses == null) {
+					if (i == 0 && directories.get(i).f1.isEmpty()) {
+						LOG.warn("Path does not exist: {}", path);
+					}
+					continue;
+				}
+
+				for (FileStatus status : statuses) {
+					Path filePath = status.getPath();
+					String name = filePath.getName();
+					if (name.startsWith("_") || name.startsWith(".") || filesFilter.filterPath(filePath)) {
+						continue;
+					}
+
+					if (status.isDir()) {
+						String relativePath = directories.get(i).f1.isEmpty() ?
+							name : directories.get(i).f1 + Path.SEPARATOR + name;
+
+						if (format.getNestedFileEnumeration() && !isExpiredPartition(relativePath, horizon)) {
+							subDirectories.add(new Tuple2<>(filePath, relativePath));
+						}
+					} else if (!discoveryIndex.isProcessed(filePath, status.getModificationTime())) {
+						newFiles.add(status);
+					}
+				}
+			}
+			directories = subDirectories;
+		}
+		return newFiles;
+	}
+
+	/**
+	 * Returns {@code true} if the given directory is a partition whose date lies before the horizon.
+	 */
+	private boolean isExpiredPartition(String relativePath, long horizon) {
+		if (partitionFormat == null || getDepth(relativePath) != partitionDepth) {
+			return false;
+		}
+
+		ParsePosition position = new ParsePosition(0);
+		Date partitionDate = partitionFormat.parse(relativePath, position);
+		if (partitionDate == null || position.getIndex() != relativePath.length()) {
+			return false;
+		}
+
+		boolean expired = partitionDate.getTime() < horizon;
+		if (expired) {
+			LOG.debug("Skipping partition {} before the horizon {}.", relativePath, horizon);
+		}
+		return expired;
+	}
+
+	/**
+	 * Returns the number of directory levels of the given relative path.
+	 */
+	private static int getDepth(String relativePath) {
+		int depth = 1;
+		for (int i = 0; i < relativePath.length(); i++) {
+			if (relativePath.charAt(i) == Path.SEPARATOR_CHAR) {
+				depth++;
+			}
+		}
+		return depth;
+	}
+
+	/**
+	 * Creates a copy of the format, so that its path can be set to the files of a scan
+	 * without changing the configured format.
+	 */
+	private FileInputFormat<OUT> copyFormat() throws IOException {
+		try {
+			return InstantiationUtil.clone(format, getRuntimeContext().getUserCodeClassLoader());
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Could not copy the file input format.", e);
+		}
+	}
+
+	/**
+	 * Creates the input splits of a single file, with the given copy of the format whose path is set to the file.
+	 */
+	private FileInputSplit[] createInputSplits(FileInputFormat<OUT> scanFormat, FileStatus file) throws IOException {
+		scanFormat.setFilePath(file.getPath());
+		return scanFormat.createInputSplits(1);
+	}
+
+	private void markAllProcessed() {
+		assert (Thread.holdsLock(checkpointLock));
+		globalModificationTime = Long.MAX_VALUE;
+		if (discoveryIndex != null) {
+			discoveryIndex.markProcessedUntil(Long.MAX_VALUE);
+			discoveryIndex.prune();
+		}
+		isRunning = false;
+	}
+
 	private void monitorDirAndForwardSplits(FileSystem fs, SourceContext<FileInputSplit> context) throws IOException, JobException {
 		assert (Thread.holdsLock(checkpointLock));
 
@@ -188,7 +462,10 @@ public class ContinuousFileMonitoringFunction<OUT>
 			return new ArrayList<>();
 		}
 
-		Map<Long, List<FileInputSplit>> splitsToForward = getInputSplits(eligibleFiles);
+		return sortOnModTime(getInputSplits(eligibleFiles));
+	}
+
+	private static List<Tuple2<Long, List<FileInputSplit>>> sortOnModTime(Map<Long, List<FileInputSplit>> splitsToForward) {
 		List<Tuple2<Long, List<FileInputSplit>>> sortedSplitsToForward = new ArrayList<>();
 
 		for (Map.Entry<Long, List<FileInputSplit>> entry : splitsToForward.entrySet()) {
@@ -292,8 +569,7 @@ public class ContinuousFileMonitoringFunction<OUT>
 	public void close() throws Exception {
 		super.close();
 		synchronized (checkpointLock) {
-			globalModificationTime = Long.MAX_VALUE;
-			isRunning = false;
+			markAllProcessed();
 		}
 		LOG.info("Closed File Monitoring Source.");
 	}
@@ -303,11 +579,13 @@ public class ContinuousFileMonitoringFunction<OUT>
 		if (checkpointLock != null) {
 			// this is to cover the case where cancel() is called before the run()
 			synchronized (checkpointLock) {
-				globalModificationTime = Long.MAX_VALUE;
-				isRunning = false;
+				markAllProcessed();
 			}
 		} else {
 			globalModificationTime = Long.MAX_VALUE;
+			if (discoveryIndex != null) {
+				discoveryIndex.markProcessedUntil(Long.MAX_VALUE);
+			}
 			isRunning = false;
 		}
 	}
@@ -315,12 +593,20 @@ public class ContinuousFileMonitoringFunction<OUT>
 	//	---------------------			Checkpointing			--------------------------
 
 	@Override
-	public Long snapshotState(long checkpointId, long checkpointTimestamp) throws Exception {
-		return globalModificationTime;
+	public Serializable snapshotState(long checkpointId, long checkpointTimestamp) throws Exception {
+		return discoveryIndex != null ? discoveryIndex : globalModificationTime;
 	}
 
 	@Override
-	public void restoreState(Long state) throws Exception {
-		this.globalModificationTime = state;
+	public void restoreState(Serializable state) throws Exception {
+		if (state instanceof FileDiscoveryIndex) {
+			FileDiscoveryIndex restoredIndex = (FileDiscoveryIndex) state;
+			this.globalModificationTime = restoredIndex.getMaxModificationTime();
+			if (discovery != null) {
+				this.discoveryIndex = restoredIndex;
+			}
+		} else {
+			this.globalModificationTime = (Long) state;
+		}
 	}
 }
@@ -22,7 +22,7 @@ import org.apache.flink.api.common.io.CheckpointableInputFormat;
 import org.apache.flink.api.common.io.FileInputFormat;
 import org.apache.flink.api.common.typeinfo.TypeInformation;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
-import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.core.fs.FSDataInputStream;
 import org.apache.flink.core.fs.FSDataOutputStream;
@@ -36,18 +36,26 @@ import org.apache.flink.streaming.api.operators.OutputTypeConfigurable;
 import org.apache.flink.streaming.api.operators.StreamSourceContexts;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.util.InstantiationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OptionalDataException;
 import java.io.Serializable;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
+import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkState;
 import static org.apache.flink.util.Preconditions.checkNotNull;
 
@@ -57,10 +65,17 @@ import static org.apache.flink.util.Preconditions.checkNotNull;
  * greater than 1, contrary to the {@link ContinuousFileMonitoringFunction} which has
  * a parallelism of 1.
  * <p/>
- * This operator will receive the split descriptors, put them in a queue, and have another
- * thread read the actual data from the split. This architecture allows the separation of the
- * reading thread, from the one emitting the checkpoint barriers, thus removing any potential
- * back-pressure.
+ * This operator will receive the split descriptors, put them in a queue, and have a configurable
+ * number of reader threads read the actual data from the splits. This architecture allows the
+ * separation of the reading threads, from the one emitting the checkpoint barriers, thus removing
+ * any potential back-pressure. With more than one reader thread, several splits are read
+ * concurrently, which helps saturating the I/O bandwidth of file systems with high latency.
+ * <p/>
+ * The reader threads hand the records they read over to a single emitting thread, in batches
+ * through a bounded queue. The emitting thread emits the batches under the checkpoint lock and
+ * keeps track of the read position of each split, so that checkpoints only contain the
+ * position up to which records were actually emitted. The records of a split are emitted in
+ * order, but the records of splits that are read concurrently are interleaved.
  */
 @Internal
 public class ContinuousFileReaderOperator<OUT, S extends Serializable> extends AbstractStreamOperator<OUT>
@@ -70,20 +85,56 @@ public class ContinuousFileReaderOperator<OUT, S extends Serializable> extends A
 
 	private static final Logger LOG = LoggerFactory.getLogger(ContinuousFileReaderOperator.class);
 
-	/** A value that serves as a kill-pill to stop the reading thread when no more splits remain. */
-	private static final FileInputSplit EOS = new FileInputSplit(-1, null, -1, -1, null);
+	/** The maximum number of records that a reader thread hands over to the emitting thread at once. */
+	private static final int READ_BATCH_SIZE = 64;
+
+	/** The number of batches that can be buffered for each reader thread. */
+	private static final int BATCHES_PER_READER = 4;
 
 	private FileInputFormat<OUT> format;
 	private TypeSerializer<OUT> serializer;
 
+	private final int numReaderThreads;
+
 	private transient Object checkpointLock;
 
-	private transient SplitReader<S, OUT> reader;
 	private transient SourceFunction.SourceContext<OUT> readerContext;
-	private Tuple3<List<FileInputSplit>, FileInputSplit, S> readerState;
+
+	/** The splits that were not picked up by a reader yet, with their restored state, if any. */
+	private transient Queue<Tuple2<FileInputSplit, S>> pendingSplits;
+
+	/** The splits that are currently read, with the state up to which records were emitted. */
+	private transient List<Tuple2<FileInputSplit, S>> splitsInProgress;
+
+	private transient BlockingQueue<SplitBatch<OUT, S>> readBatches;
+
+	private transient List<SplitReader> readers;
+	private transient BatchEmitter emitter;
+
+	private transient Counter completedSplitsCounter;
+
+	/** Flag whether no more splits will arrive, guarded by the checkpoint lock. */
+	private transient boolean noMoreSplits;
+
+	/** The number of reader threads that did not finish yet, guarded by the checkpoint lock. */
+	private transient int numActiveReaders;
+
+	/** Flag whether the emitting thread finished, guarded by the checkpoint lock. */
+	private transient boolean emitterFinished;
+
+	private transient volatile boolean isRunning;
+
+	/** The splits and their states restored from a checkpoint, for open() to find. */
+	private List<Tuple2<FileInputSplit, S>> restoredSplits;
 
 	public ContinuousFileReaderOperator(FileInputFormat<OUT> format) {
+		this(format, 1);
+	}
+
+	public ContinuousFileReaderOperator(FileInputFormat<OUT> format, int numReaderThreads) {
+		checkArgument(numReaderThreads > 0, "The number of reader threads must be at least 1.");
 		this.format = checkNotNull(format);
+		this.numReaderThreads = numReaderThreads;
 	}
 
 	@Override
@@ -95,13 +146,12 @@ public class ContinuousFileReaderOperator<OUT, S extends Serializable> extends A
 	public void open() throws Exception {
 		super.open();
 
-		checkState(this.reader == null, "The reader is already initialized.");
+		checkState(this.readers == null, "The readers are already initialized.");
 		checkState(this.serializer != null, "The serializer has not been set. " +
 			"Probably the setOutputType() was not called. Please report it.");
 
-		this.format.setRuntimeContext(getRuntimeContext());
-		this.format.configure(new Configuration());
 		this.checkpointLock = getContainingTask().getCheckpointLock();
+		this.completedSplitsCounter = getMetricGroup().counter("numSplitsProcessed");
 
 		// set the reader context based on the time characteristic
 		final TimeCharacteristic timeCharacteristic = getOperatorConfig().getTimeCharacteristic();
@@ -109,15 +159,43 @@ public class ContinuousFileReaderOperator<OUT, S extends Serializable> extends A
 		this.readerContext = StreamSourceContexts.getSourceContext(
 			timeCharacteristic, getProcessingTimeService(), checkpointLock, output, watermarkInterval);
 
-		// and initialize the split reading thread
-		this.reader = new SplitReader<>(format, serializer, readerContext, checkpointLock, readerState);
-		this.readerState = null;
-		this.reader.start();
+		this.pendingSplits = new ArrayDeque<>();
+		this.splitsInProgress = new ArrayList<>(numReaderThreads);
+		this.readBatches = new ArrayBlockingQueue<>(numReaderThreads * BATCHES_PER_READER);
+
+		// this is the case where a task recovers from a previous failed attempt,
+		// the splits that were in progress are resumed first
+		if (restoredSplits != null) {
+			pendingSplits.addAll(restoredSplits);
+			restoredSplits = null;
+		}
+
+		// every reader thread needs its own copy of the stateful input format
+		this.readers = new ArrayList<>(numReaderThreads);
+		for (int i = 0; i < numReaderThreads; i++) {
+			FileInputFormat<OUT> readerFormat = i == 0 ?
+				format : InstantiationUtil.clone(format, getUserCodeClassloader());
+			readerFormat.setRuntimeContext(getRuntimeContext());
+			readerFormat.configure(new Configuration());
+
+			readers.add(new SplitReader(readerFormat, i));
+		}
+		this.emitter = new BatchEmitter();
+
+		this.isRunning = true;
+		this.numActiveReaders = numReaderThreads;
+		for (SplitReader reader : readers) {
+			reader.start();
+		}
+		this.emitter.start();
 	}
 
 	@Override
 	public void processElement(StreamRecord<FileInputSplit> element) throws Exception {
-		reader.addSplit(element.getValue());
+		FileInputSplit split = checkNotNull(element.getValue(), "Cannot insert a null value in the pending splits queue.");
+		synchronized (checkpointLock) {
+			pendingSplits.add(new Tuple2<FileInputSplit, S>(split, null));
+		}
 	}
 
 	@Override
@@ -129,35 +207,26 @@ public class ContinuousFileReaderOperator<OUT, S extends Serializable> extends A
 	public void dispose() throws Exception {
 		super.dispose();
 
-		// first try to cancel it properly and
-		// give it some time until it finishes
-		reader.cancel();
-		try {
-			reader.join(200);
-		} catch (InterruptedException e) {
-			// we can ignore this
-		}
-
-		// if the above did not work, then interrupt the thread repeatedly
-		while (reader.isAlive()) {
+		// first try to cancel the threads properly and
+		// give them some time until they finish
+		isRunning = false;
 
-			StringBuilder bld = new StringBuilder();
-			StackTraceElement[] stack = reader.getStackTrace();
-			for (StackTraceElement e : stack) {
-				bld.append(e).append('\n');
-			}
-			LOG.warn("The reader is stuck in method:\n {}", bld.toString());
-
-			reader.interrupt();
-			try {
-				reader.join(50);
-			} catch (InterruptedException e) {
-				// we can ignore this
+		if (readers != null) {
+			for (SplitReader reader : readers) {
+				stopThread(reader);
 			}
 		}
-		reader = null;
+		if (emitter != null) {
+			stopThread(emitter);
+		}
+
+		readers = null;
+		emitter = null;
 		readerContext = null;
-		readerState = null;
+		pendingSplits = null;
+		splitsInProgress = null;
+		readBatches = null;
+		restoredSplits = null;
 		format = null;
 		serializer = null;
 	}
@@ -166,17 +235,16 @@ public class ContinuousFileReaderOperator<OUT, S extends Serializable> extends A
 	public void close() throws Exception {
 		super.close();
 
-		// signal that no more splits will come, wait for the reader to finish
-		// and close the collector. Further cleaning up is handled by the dispose().
-
-		if (reader != null && reader.isAlive() && reader.isRunning()) {
-			// add a dummy element to signal that no more splits will
-			// arrive and wait until the reader finishes
-			reader.addSplit(EOS);
+		// signal that no more splits will come, wait for the readers and the emitter
+		// to finish and close the collector. Further cleaning up is handled by the dispose().
 
+		if (emitter != null) {
 			// we already have the checkpoint lock because close() is
 			// called by the StreamTask while having it.
-			checkpointLock.wait();
+			noMoreSplits = true;
+			while (!emitterFinished) {
+				checkpointLock.wait();
+			}
 		}
 
 		// finally if we are closed normally and we are operating on
@@ -190,197 +258,245 @@ public class ContinuousFileReaderOperator<OUT, S extends Serializable> extends A
 		output.close();
 	}
 
-	private class SplitReader<S extends Serializable, OT> extends Thread {
+	private static void stopThread(Thread thread) {
+		try {
+			thread.join(200);
+		} catch (InterruptedException e) {
+			// we can ignore this
+		}
 
-		private volatile boolean isRunning;
+		// if the above did not work, then interrupt the thread repeatedly
+		while (thread.isAlive()) {
 
-		private final FileInputFormat<OT> format;
-		private final TypeSerializer<OT> serializer;
+			StringBuilder bld = new StringBuilder();
+			StackTraceElement[] stack = thread.getStackTrace();
+			for (StackTraceElement e : stack) {
+				bld.append(e).append('\n');
+			}
+			LOG.warn("The thread {} is stuck in method:\n {}", thread.getName(), bld.toString());
 
-		private final Object checkpointLock;
-		private final SourceFunction.SourceContext<OT> readerContext;
+			thread.interrupt();
+			try {
+				thread.join(50);
+			} catch (InterruptedException e) {
+				// we can ignore this
+			}
+		}
+	}
 
-		private final Queue<FileInputSplit> pendingSplits;
+	/**
+	 * A batch of records read from one split, handed from a reader thread to the emitting thread.
+	 */
+	private static final class SplitBatch<OT, S extends Serializable> {
 
-		private FileInputSplit currentSplit = null;
+		/** The split the records belong to, and the state up to which records were emitted. */
+		final Tuple2<FileInputSplit, S> split;
 
-		private S restoredFormatState = null;
+		final List<OT> records;
 
-		private volatile boolean isSplitOpen = false;
+		/** The state of the format after the last record of the batch. */
+		final S formatState;
 
-		private SplitReader(FileInputFormat<OT> format,
-					TypeSerializer<OT> serializer,
-					SourceFunction.SourceContext<OT> readerContext,
-					Object checkpointLock,
-					Tuple3<List<FileInputSplit>, FileInputSplit, S> restoredState) {
+		/** Flag whether the batch contains the last records of the split. */
+		final boolean splitFinished;
 
+		SplitBatch(Tuple2<FileInputSplit, S> split, List<OT> records, S formatState, boolean splitFinished) {
+			this.split = split;
+			this.records = records;
+			this.formatState = formatState;
+			this.splitFinished = splitFinished;
+		}
+	}
+
+	/**
+	 * A thread that takes splits from the pending splits, reads them with its own copy of the
+	 * input format, and hands the records over to the emitting thread in batches.
+	 */
+	private class SplitReader extends Thread {
+
+		private final FileInputFormat<OUT> format;
+
+		private SplitReader(FileInputFormat<OUT> format, int index) {
+			super("SplitReader " + index + " for " + getContainingTask().getName());
 			this.format = checkNotNull(format, "Unspecified FileInputFormat.");
-			this.serializer = checkNotNull(serializer, "Unspecified Serializer.");
-			this.readerContext = checkNotNull(readerContext, "Unspecified Reader Context.");
-			this.checkpointLock = checkNotNull(checkpointLock, "Unspecified checkpoint lock.");
+		}
+
+		@Override
+		public void run() {
+			Tuple2<FileInputSplit, S> currentSplit = null;
+			try {
+				this.format.openInputFormat();
 
-			this.pendingSplits = new ArrayDeque<>();
-			this.isRunning = true;
+				while (isRunning) {
 
-			// this is the case where a task recovers from a previous failed attempt
-			if (restoredState != null) {
-				List<FileInputSplit> pending = restoredState.f0;
-				FileInputSplit current = restoredState.f1;
-				S formatState = restoredState.f2;
+					synchronized (checkpointLock) {
+						// get the next split to read.
+						currentSplit = pendingSplits.poll();
 
-				for (FileInputSplit split : pending) {
-					pendingSplits.add(split);
+						if (currentSplit == null) {
+							if (noMoreSplits) {
+								break;
+							}
+							checkpointLock.wait(50);
+							continue;
+						}
+						splitsInProgress.add(currentSplit);
+					}
+
+					readSplit(currentSplit);
+					currentSplit = null;
 				}
 
-				this.currentSplit = current;
-				this.restoredFormatState = formatState;
-			}
-		}
+			} catch (Throwable e) {
+
+				getContainingTask().handleAsyncException("Caught exception when processing split: " +
+					(currentSplit == null ? null : currentSplit.f0), e);
+
+			} finally {
+				try {
+					this.format.closeInputFormat();
+				} catch (IOException e) {
+					getContainingTask().handleAsyncException(
+						"Caught exception from " + this.format.getClass().getName() + ".closeInputFormat() : " + e.getMessage(), e);
+				}
 
-		private void addSplit(FileInputSplit split) {
-			checkNotNull(split, "Cannot insert a null value in the pending splits queue.");
-			synchronized (checkpointLock) {
-				this.pendingSplits.add(split);
+				synchronized (checkpointLock) {
+					LOG.info("Reader terminated, and exiting...");
+					numActiveReaders--;
+					checkpointLock.notifyAll();
+				}
 			}
 		}
 
-		public boolean isRunning() {
-			return this.isRunning;
-		}
+		private void readSplit(Tuple2<FileInputSplit, S> split) throws Exception {
+			final FileInputSplit inputSplit = split.f0;
+			final S restoredFormatState = split.f1;
 
-		@Override
-		public void run() {
-			try {
+			if (this.format instanceof CheckpointableInputFormat && restoredFormatState != null) {
 
-				Counter completedSplitsCounter = getMetricGroup().counter("numSplitsProcessed");
-				this.format.openInputFormat();
+				@SuppressWarnings("unchecked")
+				CheckpointableInputFormat<FileInputSplit, S> checkpointableFormat =
+						(CheckpointableInputFormat<FileInputSplit, S>) this.format;
 
-				while (this.isRunning) {
+				checkpointableFormat.reopen(inputSplit, restoredFormatState);
+			} else {
+				if (restoredFormatState != null) {
+					// this is the case of a non-checkpointable input format that will reprocess the last split.
+					LOG.info("Format " + this.format.getClass().getName() + " does not support checkpointing.");
+				}
+				this.format.open(inputSplit);
+			}
 
-					synchronized (checkpointLock) {
+			LOG.info("Reading split: " + inputSplit);
 
-						if (this.currentSplit != null) {
+			try {
+				List<OUT> records = new ArrayList<>(READ_BATCH_SIZE);
+				while (isRunning && !format.reachedEnd()) {
+					// the records are buffered, so they cannot reuse an object
+					OUT nextElement = format.nextRecord(serializer.createInstance());
+					if (nextElement == null) {
+						break;
+					}
 
-							if (currentSplit.equals(EOS)) {
-								isRunning = false;
-								break;
-							}
+					records.add(nextElement);
+					if (records.size() == READ_BATCH_SIZE) {
+						handOver(new SplitBatch<>(split, records, getFormatState(), false));
+						records = new ArrayList<>(READ_BATCH_SIZE);
+					}
+				}
 
-							if (this.format instanceof CheckpointableInputFormat && restoredFormatState != null) {
+				if (isRunning) {
+					handOver(new SplitBatch<>(split, records, null, true));
+				}
+			} finally {
+				this.format.close();
+			}
+		}
 
-								@SuppressWarnings("unchecked")
-								CheckpointableInputFormat<FileInputSplit, S> checkpointableFormat =
-										(CheckpointableInputFormat<FileInputSplit, S>) this.format;
+		private S getFormatState() throws IOException {
+			if (this.format instanceof CheckpointableInputFormat) {
+				@SuppressWarnings("unchecked")
+				CheckpointableInputFormat<FileInputSplit, S> checkpointableFormat =
+						(CheckpointableInputFormat<FileInputSplit, S>) this.format;
+				return checkpointableFormat.getCurrentState();
+			} else {
+				return null;
+			}
+		}
 
-								checkpointableFormat.reopen(currentSplit, restoredFormatState);
-							} else {
-								// this is the case of a non-checkpointable input format that will reprocess the last split.
-								LOG.info("Format " + this.format.getClass().getName() + " does not support checkpointing.");
-								format.open(currentSplit);
-							}
-							// reset the restored state to null for the next iteration
-							this.restoredFormatState = null;
-						} else {
+		private void handOver(SplitBatch<OUT, S> batch) throws InterruptedException {
+			// the queue is bounded, which blocks the reader while the emitter falls behind
+			while (isRunning && !readBatches.offer(batch, 50, TimeUnit.MILLISECONDS)) {
+				// check again whether we are still running
+			}
+		}
+	}
 
-							// get the next split to read.
-							currentSplit = this.pendingSplits.poll();
+	/**
+	 * The thread that emits the batches of records read by the {@link SplitReader SplitReaders},
+	 * and keeps track of the state of the splits that are in progress.
+	 */
+	private class BatchEmitter extends Thread {
 
-							if (currentSplit == null) {
-								checkpointLock.wait(50);
-								continue;
-							}
+		private BatchEmitter() {
+			super("SplitEmitter for " + getContainingTask().getName());
+		}
 
-							if (currentSplit.equals(EOS)) {
-								isRunning = false;
+		@Override
+		public void run() {
+			try {
+				while (isRunning) {
+					SplitBatch<OUT, S> batch = readBatches.poll(50, TimeUnit.MILLISECONDS);
+
+					if (batch == null) {
+						synchronized (checkpointLock) {
+							// the readers only finish after handing over all their batches
+							if (numActiveReaders == 0 && readBatches.isEmpty()) {
 								break;
 							}
-							this.format.open(currentSplit);
 						}
-						this.isSplitOpen = true;
+						continue;
 					}
 
-					LOG.info("Reading split: " + currentSplit);
-
-					try {
-						OT nextElement = serializer.createInstance();
-						while (!format.reachedEnd()) {
-							synchronized (checkpointLock) {
-								nextElement = format.nextRecord(nextElement);
-								if (nextElement != null) {
-									readerContext.collect(nextElement);
-								} else {
-									break;
-								}
-							}
+					// emit the records and update the state of the split atomically,
+					// from the view of taking a checkpoint
+					synchronized (checkpointLock) {
+						for (OUT record : batch.records) {
+							readerContext.collect(record);
 						}
-						completedSplitsCounter.inc();
 
-					} finally {
-						// close and prepare for the next iteration
-						synchronized (checkpointLock) {
-							this.format.close();
-							this.isSplitOpen = false;
-							this.currentSplit = null;
+						if (batch.splitFinished) {
+							removeSplitInProgress(batch.split);
+							completedSplitsCounter.inc();
+						} else {
+							batch.split.f1 = batch.formatState;
 						}
 					}
 				}
 
 			} catch (Throwable e) {
 
-				getContainingTask().handleAsyncException("Caught exception when processing split: " + currentSplit, e);
+				getContainingTask().handleAsyncException("Caught exception when emitting the records of the splits.", e);
 
 			} finally {
 				synchronized (checkpointLock) {
-					LOG.info("Reader terminated, and exiting...");
-
-					try {
-						this.format.closeInputFormat();
-					} catch (IOException e) {
-						getContainingTask().handleAsyncException(
-							"Caught exception from " + this.format.getClass().getName() + ".closeInputFormat() : " + e.getMessage(), e);
-					}
-					this.isSplitOpen = false;
-					this.currentSplit = null;
-					this.isRunning = false;
-
+					LOG.info("Emitter terminated, and exiting...");
+					isRunning = false;
+					emitterFinished = true;
 					checkpointLock.notifyAll();
 				}
 			}
 		}
 
-		private Tuple3<List<FileInputSplit>, FileInputSplit, S> getReaderState() throws IOException {
-			List<FileInputSplit> snapshot = new ArrayList<>(this.pendingSplits.size());
-			for (FileInputSplit split: this.pendingSplits) {
-				snapshot.add(split);
-			}
-
-			// remove the current split from the list if inside.
-			if (this.currentSplit != null && this.currentSplit.equals(pendingSplits.peek())) {
-				this.pendingSplits.remove();
-			}
-
-			if (this.currentSplit != null) {
-				if (this.format instanceof CheckpointableInputFormat) {
-					@SuppressWarnings("unchecked")
-					CheckpointableInputFormat<FileInputSplit, S> checkpointableFormat =
-							(CheckpointableInputFormat<FileInputSplit, S>) this.format;
-
-					S formatState = this.isSplitOpen ?
-							checkpointableFormat.getCurrentState() :
-							restoredFormatState;
-					return new Tuple3<>(snapshot, currentSplit, formatState);
-				} else {
-					LOG.info("The format does not support checkpointing. The current input split will be re-read from start upon recovery.");
-					return new Tuple3<>(snapshot, currentSplit, null);
+		private void removeSplitInProgress(Tuple2<FileInputSplit, S> split) {
+			Iterator<Tuple2<FileInputSplit, S>> iterator = splitsInProgress.iterator();
+			while (iterator.hasNext()) {
+				if (iterator.next() == split) {
+					iterator.remove();
+					return;
 				}
-			} else {
-				return new Tuple3<>(snapshot, null, null);
 			}
 		}
-
-		public void cancel() {
-			this.isRunning = false;
-		}
 	}
 
 	//	---------------------			Checkpointing			--------------------------
@@ -389,20 +505,40 @@ public class ContinuousFileReaderOperator<OUT, S extends Serializable> extends A
 	public void snapshotState(FSDataOutputStream os, long checkpointId, long timestamp) throws Exception {
 		final ObjectOutputStream oos = new ObjectOutputStream(os);
 
-		Tuple3<List<FileInputSplit>, FileInputSplit, S> readerState = this.reader.getReaderState();
-		List<FileInputSplit> pendingSplits = readerState.f0;
-		FileInputSplit currSplit = readerState.f1;
-		S formatState = readerState.f2;
+		// this is called under the checkpoint lock, so the splits in progress do not change.
+		// the pending splits that have a restored state count as being in progress.
+		List<Tuple2<FileInputSplit, S>> inProgress = new ArrayList<>();
+		List<FileInputSplit> pending = new ArrayList<>();
+
+		for (Tuple2<FileInputSplit, S> split : splitsInProgress) {
+			inProgress.add(new Tuple2<>(split.f0, split.f1));
+		}
+		for (Tuple2<FileInputSplit, S> split : pendingSplits) {
+			if (split.f1 != null) {
+				inProgress.add(new Tuple2<>(split.f0, split.f1));
+			} else {
+				pending.add(split.f0);
+			}
+		}
+
+		// the first split in progress is written in the layout of a single current split,
+		// followed by the remaining splits in progress.
+		Tuple2<FileInputSplit, S> currSplit = inProgress.isEmpty() ?
+			new Tuple2<FileInputSplit, S>(null, null) :
+			inProgress.remove(0);
 
 		// write the current split
-		oos.writeObject(currSplit);
-		oos.writeInt(pendingSplits.size());
-		for (FileInputSplit split : pendingSplits) {
+		oos.writeObject(currSplit.f0);
+		oos.writeInt(pending.size());
+		for (FileInputSplit split : pending) {
 			oos.writeObject(split);
 		}
 
 		// write the state of the reading channel
-		oos.writeObject(formatState);
+		oos.writeObject(currSplit.f1);
+
+		// write the remaining splits in progress
+		oos.writeObject(inProgress);
 		oos.flush();
 	}
 
@@ -425,9 +561,28 @@ public class ContinuousFileReaderOperator<OUT, S extends Serializable> extends A
 		@SuppressWarnings("unchecked")
 		S formatState = (S) ois.readObject();
 
+		// read the remaining splits in progress, which
+		// are missing in the state of older versions
+		List<Tuple2<FileInputSplit, S>> otherSplitsInProgress;
+		try {
+			@SuppressWarnings("unchecked")
+			List<Tuple2<FileInputSplit, S>> splits = (List<Tuple2<FileInputSplit, S>>) ois.readObject();
+			otherSplitsInProgress = splits;
+		} catch (EOFException | OptionalDataException e) {
+			otherSplitsInProgress = new ArrayList<>();
+		}
+
 		// set the whole reader state for the open() to find.
-		checkState(this.readerState == null, "The reader state has already been initialized.");
+		checkState(this.restoredSplits == null, "The reader state has already been initialized.");
 
-		this.readerState = new Tuple3<>(pendingSplits, currSplit, formatState);
+		List<Tuple2<FileInputSplit, S>> restored = new ArrayList<>();
+		if (currSplit != null) {
+			restored.add(new Tuple2<>(currSplit, formatState));
+		}
+		restored.addAll(otherSplitsInProgress);
+		for (FileInputSplit split : pendingSplits) {
+			restored.add(new Tuple2<FileInputSplit, S>(split, null));
+		}
+		this.restoredSplits = restored;
 	}
 }
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.functions.source;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.util.Preconditions;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * The index of the files that the {@link ContinuousFileMonitoringFunction} has already forwarded
+ * when it discovers files incrementally (see {@link IncrementalFileDiscovery}).
+ *
+ * <p>The index keeps the path and modification time of every processed file whose modification time
+ * lies within the retention time before the most recent modification time seen so far. Files older than
+ * this <i>retention horizon</i> are considered processed and are dropped from the index, which keeps the
+ * index (and the checkpoints containing it) bounded. Files arriving late, i.e. with a modification time
+ * older than that of already processed files but within the horizon, are therefore still discovered.
+ *
+ * <p>To keep the checkpointed index compact, the file names are grouped by their parent directory, so
+ * the directory part of the paths is stored only once.
+ *
+ * <p>The index is not thread-safe.
+ */
+@Internal
+public class FileDiscoveryIndex implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The processed files within the retention horizon, grouped by parent directory and then by name */
+	private final HashMap<String, HashMap<String, Long>> filesPerDirectory;
+
+	/** How long before the most recent modification time files are tracked individually */
+	private long retentionTime;
+
+	/** The most recent modification time of all processed files */
+	private long maxModificationTime;
+
+	/** All files with a modification time up to (and including) this one count as processed */
+	private long processedUntil;
+
+	/** The number of files in the index */
+	private int numFiles;
+
+	public FileDiscoveryIndex(long retentionTime) {
+		Preconditions.checkArgument(retentionTime >= 0, "The retention time must not be negative.");
+
+		this.filesPerDirectory = new HashMap<>();
+		this.retentionTime = retentionTime;
+		this.maxModificationTime = Long.MIN_VALUE;
+		this.processedUntil = Long.MIN_VALUE;
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Returns the retention horizon. Files with a modification time before the horizon
+	 * are considered processed.
+	 */
+	public long getHorizon() {
+		long horizon = maxModificationTime == Long.MIN_VALUE ?
+			Long.MIN_VALUE : maxModificationTime - retentionTime;
+
+		return processedUntil == Long.MAX_VALUE ?
+			Long.MAX_VALUE : Math.max(horizon, processedUntil + 1);
+	}
+
+	/**
+	 * Checks whether the given file has already been processed. A file counts as processed if
+	 * its modification time lies before the retention horizon, or if it is contained in the
+	 * index with the same modification time. Files that were modified after they have been
+	 * processed are hence processed again.
+	 */
+	public boolean isProcessed(Path file, long modificationTime) {
+		if (modificationTime <= processedUntil || modificationTime < getHorizon()) {
+			return true;
+		}
+
+		HashMap<String, Long> files = filesPerDirectory.get(getDirectory(file));
+		if (files == null) {
+			return false;
+		}
+
+		Long processedModificationTime = files.get(file.getName());
+		return processedModificationTime != null && processedModificationTime == modificationTime;
+	}
+
+	/**
+	 * Adds the given file to the index. This may move the retention horizon forward,
+	 * {@link #prune()} drops the files that fall behind it.
+	 */
+	public void add(Path file, long modificationTime) {
+		String directory = getDirectory(file);
+
+		HashMap<String, Long> files = filesPerDirectory.get(directory);
+		if (files == null) {
+			files = new HashMap<>();
+			filesPerDirectory.put(directory, files);
+		}
+
+		if (files.put(file.getName(), modificationTime) == null) {
+			numFiles++;
+		}
+		maxModificationTime = Math.max(maxModificationTime, modificationTime);
+	}
+
+	/**
+	 * Marks all files with a modification time up to (and including) the given one as processed,
+	 * independent of the retention horizon.
+	 */
+	public void markProcessedUntil(long modificationTime) {
+		processedUntil = Math.max(processedUntil, modificationTime);
+		maxModificationTime = Math.max(maxModificationTime, modificationTime);
+	}
+
+	/**
+	 * Removes all files that lie before the retention horizon from the index.
+	 */
+	public void prune() {
+		final long horizon = getHorizon();
+
+		Iterator<HashMap<String, Long>> directories = filesPerDirectory.values().iterator();
+		while (directories.hasNext()) {
+			HashMap<String, Long> files = directories.next();
+
+			Iterator<Long> modificationTimes = files.values().iterator();
+			while (modificationTimes.hasNext()) {
+				if (modificationTimes.next() < horizon) {
+					modificationTimes.remove();
+					numFiles--;
+				}
+			}
+
+			if (files.isEmpty()) {
+				directories.remove();
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	public long getRetentionTime() {
+		return retentionTime;
+	}
+
+	public void setRetentionTime(long retentionTime) {
+		Preconditions.checkArgument(retentionTime >= 0, "The retention time must not be negative.");
+		this.retentionTime = retentionTime;
+	}
+
+	public long getMaxModificationTime() {
+		return maxModificationTime;
+	}
+
+	public int size() {
+		return numFiles;
+	}
+
+	private static String getDirectory(Path file) {
+		Path parent = file.getParent();
+		return parent == null ? "" : parent.toString();
+	}
+
+	@Override
+	public String toString() {
+		return "FileDiscoveryIndex{" +
+			"numFiles=" + numFiles +
+			", numDirectories=" + filesPerDirectory.size() +
+			", maxModificationTime=" + maxModificationTime +
+			", horizon=" + getHorizon() +
+			'}';
+	}
+}
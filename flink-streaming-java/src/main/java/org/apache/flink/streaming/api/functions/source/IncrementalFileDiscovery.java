@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.functions.source;
+
+import org.apache.flink.annotation.PublicEvolving;
+import org.apache.flink.util.Preconditions;
+
+import java.io.Serializable;
+import java.text.SimpleDateFormat;
+
+/**
+ * Configures the incremental file discovery of the {@link ContinuousFileMonitoringFunction}.
+ *
+ * <p>By default, the monitoring function lists the monitored path on every scan and forwards only the
+ * files that were modified after the most recent modification time it has seen so far. Files that arrive
+ * late, with an older modification time, are skipped. With incremental discovery, the function instead
+ * keeps a checkpointed {@link FileDiscoveryIndex} of the processed files and forwards every file that is not
+ * in the index, as long as its modification time lies within the <i>retention time</i> before the most
+ * recent modification time. The sub-directories of the path (if the nested file enumeration of the
+ * format is enabled) are listed in parallel, and the scan does not block checkpoints while listing.
+ *
+ * <p>For paths that are partitioned by date, a partition pattern can be specified. Partition directories
+ * whose date lies before the retention horizon are then not listed at all.
+ *
+ * <pre>{@code
+ * IncrementalFileDiscovery discovery = new IncrementalFileDiscovery(Time.hours(2).toMilliseconds())
+ *     .setListingParallelism(8)
+ *     .setPartitionPattern("yyyy/MM/dd/HH");
+ * }</pre>
+ */
+@PublicEvolving
+public class IncrementalFileDiscovery implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The default number of threads that list directories in parallel */
+	public static final int DEFAULT_LISTING_PARALLELISM = 4;
+
+	/** How long before the most recent modification time late files are still discovered */
+	private final long retentionTime;
+
+	/** The number of threads that list directories in parallel */
+	private int listingParallelism = DEFAULT_LISTING_PARALLELISM;
+
+	/** The date pattern of the partition directories, relative to the monitored path */
+	private String partitionPattern;
+
+	/**
+	 * Creates the configuration for an incremental file discovery with the given retention time.
+	 *
+	 * @param retentionTime The time (in milliseconds) before the most recent modification time of a
+	 *                      processed file within which late files are still discovered.
+	 */
+	public IncrementalFileDiscovery(long retentionTime) {
+		Preconditions.checkArgument(retentionTime >= 0, "The retention time must not be negative.");
+		this.retentionTime = retentionTime;
+	}
+
+	/**
+	 * Sets the number of threads that list the sub-directories of the monitored path in parallel.
+	 */
+	public IncrementalFileDiscovery setListingParallelism(int listingParallelism) {
+		Preconditions.checkArgument(listingParallelism > 0, "The listing parallelism must be positive.");
+		this.listingParallelism = listingParallelism;
+		return this;
+	}
+
+	/**
+	 * Sets the date pattern (in the format of {@link SimpleDateFormat}) of the partition directories,
+	 * relative to the monitored path. The pattern may span several directory levels, like
+	 * {@code "yyyy/MM/dd"} or {@code "'date='yyyy-MM-dd"}. Dates are interpreted in UTC.
+	 *
+	 * <p>Partitions whose date lies before the retention horizon are not listed. The retention time
+	 * must hence cover the time span of a partition plus the time for which files are still added
+	 * to a partition. Directories that do not match the pattern are always listed.
+	 */
+	public IncrementalFileDiscovery setPartitionPattern(String partitionPattern) {
+		Preconditions.checkNotNull(partitionPattern, "The partition pattern must not be null.");
+		// validate the pattern
+		new SimpleDateFormat(partitionPattern);
+		this.partitionPattern = partitionPattern;
+		return this;
+	}
+
+	public long getRetentionTime() {
+		return retentionTime;
+	}
+
+	public int getListingParallelism() {
+		return listingParallelism;
+	}
+
+	public String getPartitionPattern() {
+		return partitionPattern;
+	}
+
+	@Override
+	public String toString() {
+		return "IncrementalFileDiscovery{" +
+			"retentionTime=" + retentionTime +
+			", listingParallelism=" + listingParallelism +
+			", partitionPattern='" + partitionPattern + '\'' +
+			'}';
+	}
+}
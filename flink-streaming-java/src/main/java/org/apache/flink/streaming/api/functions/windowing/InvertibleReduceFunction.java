@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.functions.windowing;
+
+import org.apache.flink.annotation.PublicEvolving;
+import org.apache.flink.api.common.functions.ReduceFunction;
+
+/**
+ * A {@link ReduceFunction} whose aggregation can be undone: the contribution of a value that
+ * was previously reduced into an aggregate can be removed from it again, like a sum that
+ * subtracts a value.
+ *
+ * <p>
+ * Windows with an {@link org.apache.flink.streaming.api.windowing.evictors.Evictor} use the
+ * inverse to maintain the aggregate of the window incrementally. Evicted elements are removed
+ * from the running aggregate instead of re-aggregating all remaining elements of the window
+ * whenever it fires.
+ *
+ * @param <T> Type of the elements that this function processes.
+ */
+@PublicEvolving
+public interface InvertibleReduceFunction<T> extends ReduceFunction<T> {
+
+	/**
+	 * Removes a value from an aggregate that it was reduced into before. For any aggregate
+	 * {@code a} and value {@code v}, {@code invert(reduce(a, v), v)} must be equal to {@code a}.
+	 *
+	 * @param aggregate The aggregate that contains the value.
+	 * @param value The value to remove from the aggregate.
+	 * @return The aggregate without the value.
+	 *
+	 * @throws Exception This method may throw exceptions. Throwing an exception will cause the operation
+	 *                   to fail and may trigger recovery.
+	 */
+	T invert(T aggregate, T value) throws Exception;
+}
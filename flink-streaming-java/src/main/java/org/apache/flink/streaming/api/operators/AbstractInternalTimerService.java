@@ -0,0 +1,288 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.streaming.runtime.tasks.ProcessingTimeCallback;
+import org.apache.flink.streaming.runtime.tasks.ProcessingTimeService;
+import org.apache.flink.util.Preconditions;
+
+import java.util.concurrent.ScheduledFuture;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Base class for {@link InternalTimerService InternalTimerServices} that keep their timers in
+ * {@link InternalTimerQueue InternalTimerQueues}. This class fires the timers, subclasses decide
+ * where the timers are stored and how they are checkpointed.
+ *
+ * @param <K> Type of the keys to which timers are scoped.
+ * @param <N> Type of the namespace to which timers are scoped.
+ */
+@Internal
+public abstract class AbstractInternalTimerService<K, N> implements InternalTimerService<N>, ProcessingTimeCallback {
+
+	private final ProcessingTimeService processingTimeService;
+
+	private final KeyContext keyContext;
+
+	/**
+	 * The local event time, as denoted by the last received
+	 * {@link org.apache.flink.streaming.api.watermark.Watermark Watermark}.
+	 */
+	private long currentWatermark = Long.MIN_VALUE;
+
+	/**
+	 * The one and only Future (if any) registered to execute the
+	 * next {@link Triggerable} action, when its (processing) time arrives.
+	 * */
+	private ScheduledFuture<?> nextTimer;
+
+	// Variables to be set when the service is started.
+
+	private TypeSerializer<K> keySerializer;
+
+	private TypeSerializer<N> namespaceSerializer;
+
+	private Triggerable<K, N> triggerTarget;
+
+	private volatile boolean isInitialized;
+
+	protected AbstractInternalTimerService(KeyContext keyContext, ProcessingTimeService processingTimeService) {
+		this.keyContext = checkNotNull(keyContext);
+		this.processingTimeService = checkNotNull(processingTimeService);
+	}
+
+	/**
+	 * Returns the queue of the processing time timers. The queue must be available once
+	 * {@link #initializeTimerQueues(TypeSerializer, TypeSerializer)} was called.
+	 */
+	protected abstract InternalTimerQueue<K, N> getProcessingTimeTimersQueue();
+
+	/**
+	 * Returns the queue of the event time timers. The queue must be available once
+	 * {@link #initializeTimerQueues(TypeSerializer, TypeSerializer)} was called.
+	 */
+	protected abstract InternalTimerQueue<K, N> getEventTimeTimersQueue();
+
+	/**
+	 * Prepares the timer queues for the given serializers. This is called once, when the
+	 * service is started.
+	 */
+	protected abstract void initializeTimerQueues(
+			TypeSerializer<K> keySerializer,
+			TypeSerializer<N> namespaceSerializer);
+
+	/**
+	 * Starts the local timer service by:
+	 * <ol>
+	 *     <li>Setting the {@code keySerialized} and {@code namespaceSerializer} for the timers it will contain.</li>
+	 *     <li>Setting the {@code triggerTarget} which contains the action to be performed when a timer fires.</li>
+	 *     <li>Re-registering timers that were retrieved after recoveting from a node failure, if any.</li>
+	 * </ol>
+	 * This method can be called multiple times, as long as it is called with the same serializers.
+	 */
+	public void startTimerService(
+			TypeSerializer<K> keySerializer,
+			TypeSerializer<N> namespaceSerializer,
+			Triggerable<K, N> triggerTarget) {
+
+		if (!isInitialized) {
+
+			if (keySerializer == null || namespaceSerializer == null) {
+				throw new IllegalArgumentException("The TimersService serializers cannot be null.");
+			}
+
+			if (this.keySerializer != null || this.namespaceSerializer != null || this.triggerTarget != null) {
+				throw new IllegalStateException("The TimerService has already been initialized.");
+			}
+
+			initializeTimerQueues(keySerializer, namespaceSerializer);
+
+			this.keySerializer = keySerializer;
+			this.namespaceSerializer = namespaceSerializer;
+
+			this.triggerTarget = Preconditions.checkNotNull(triggerTarget);
+
+			// re-register the restored timers (if any)
+			InternalTimer<K, N> head = getProcessingTimeTimersQueue().peek();
+			if (head != null) {
+				nextTimer = processingTimeService.registerTimer(head.getTimestamp(), this);
+			}
+			this.isInitialized = true;
+		} else {
+			if (!(this.keySerializer.equals(keySerializer) && this.namespaceSerializer.equals(namespaceSerializer))) {
+				throw new IllegalArgumentException("Already initialized Timer Service " +
+					"tried to be initialized with different key and namespace serializers.");
+			}
+		}
+	}
+
+	/**
+	 * Adds the timers of another service, which was restored but not started, to this service.
+	 * This service must already be started.
+	 */
+	void addTimersFrom(AbstractInternalTimerService<K, N> other) {
+		Preconditions.checkState(isInitialized, "The TimerService has not been started.");
+
+		for (InternalTimer<K, N> timer : other.getEventTimeTimersQueue()) {
+			getEventTimeTimersQueue().add(
+				new InternalTimer<>(timer.getTimestamp(), timer.getKey(), timer.getNamespace()));
+		}
+
+		for (InternalTimer<K, N> timer : other.getProcessingTimeTimersQueue()) {
+			getProcessingTimeTimersQueue().add(
+				new InternalTimer<>(timer.getTimestamp(), timer.getKey(), timer.getNamespace()));
+		}
+
+		InternalTimer<K, N> head = getProcessingTimeTimersQueue().peek();
+		if (head != null) {
+			if (nextTimer != null) {
+				nextTimer.cancel(false);
+			}
+			nextTimer = processingTimeService.registerTimer(head.getTimestamp(), this);
+		}
+	}
+
+	protected TypeSerializer<K> getKeySerializer() {
+		return keySerializer;
+	}
+
+	protected TypeSerializer<N> getNamespaceSerializer() {
+		return namespaceSerializer;
+	}
+
+	@Override
+	public long currentProcessingTime() {
+		return processingTimeService.getCurrentProcessingTime();
+	}
+
+	@Override
+	public long currentWatermark() {
+		return currentWatermark;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void registerProcessingTimeTimer(N namespace, long time) {
+		InternalTimer<K, N> timer = new InternalTimer<>(time, (K) keyContext.getCurrentKey(), namespace);
+
+		InternalTimer<K, N> oldHead = getProcessingTimeTimersQueue().peek();
+		long nextTriggerTime = oldHead != null ? oldHead.getTimestamp() : Long.MAX_VALUE;
+
+		// the queue makes sure we only have one timer per key, namespace and timestamp
+		if (getProcessingTimeTimersQueue().add(timer)) {
+
+			// check if we need to re-schedule our timer to earlier
+			if (time < nextTriggerTime) {
+				if (nextTimer != null) {
+					nextTimer.cancel(false);
+				}
+				nextTimer = processingTimeService.registerTimer(time, this);
+			}
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void registerEventTimeTimer(N namespace, long time) {
+		InternalTimer<K, N> timer = new InternalTimer<>(time, (K) keyContext.getCurrentKey(), namespace);
+		getEventTimeTimersQueue().add(timer);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void deleteProcessingTimeTimer(N namespace, long time) {
+		InternalTimer<K, N> timer = new InternalTimer<>(time, (K) keyContext.getCurrentKey(), namespace);
+		getProcessingTimeTimersQueue().remove(timer);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void deleteEventTimeTimer(N namespace, long time) {
+		InternalTimer<K, N> timer = new InternalTimer<>(time, (K) keyContext.getCurrentKey(), namespace);
+		getEventTimeTimersQueue().remove(timer);
+	}
+
+	@Override
+	public void onProcessingTime(long time) throws Exception {
+		// null out the timer in case the Triggerable calls registerProcessingTimeTimer()
+		// inside the callback.
+		nextTimer = null;
+
+		InternalTimerQueue<K, N> queue = getProcessingTimeTimersQueue();
+		InternalTimer<K, N> timer;
+
+		while ((timer = queue.peek()) != null && timer.getTimestamp() <= time) {
+
+			queue.poll();
+
+			keyContext.setCurrentKey(timer.getKey());
+			triggerTarget.onProcessingTime(timer);
+		}
+
+		if (timer != null) {
+			if (nextTimer == null) {
+				nextTimer = processingTimeService.registerTimer(timer.getTimestamp(), this);
+			}
+		}
+	}
+
+	public void advanceWatermark(long time) throws Exception {
+		currentWatermark = time;
+
+		InternalTimerQueue<K, N> queue = getEventTimeTimersQueue();
+		InternalTimer<K, N> timer;
+
+		while ((timer = queue.peek()) != null && timer.getTimestamp() <= time) {
+
+			queue.poll();
+
+			keyContext.setCurrentKey(timer.getKey());
+			triggerTarget.onEventTime(timer);
+		}
+	}
+
+	public int numProcessingTimeTimers() {
+		return getProcessingTimeTimersQueue().size();
+	}
+
+	public int numEventTimeTimers() {
+		return getEventTimeTimersQueue().size();
+	}
+
+	public int numProcessingTimeTimers(N namespace) {
+		return countTimers(getProcessingTimeTimersQueue(), namespace);
+	}
+
+	public int numEventTimeTimers(N namespace) {
+		return countTimers(getEventTimeTimersQueue(), namespace);
+	}
+
+	private int countTimers(InternalTimerQueue<K, N> queue, N namespace) {
+		int count = 0;
+		for (InternalTimer<K, N> timer : queue) {
+			if (timer.getNamespace().equals(namespace)) {
+				count++;
+			}
+		}
+		return count;
+	}
+}
@@ -38,6 +38,7 @@ import org.apache.flink.metrics.Gauge;
 import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.runtime.metrics.groups.OperatorMetricGroup;
 import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
+import org.apache.flink.runtime.state.CheckpointListener;
 import org.apache.flink.runtime.state.CheckpointStreamFactory;
 import org.apache.flink.runtime.state.DefaultKeyedStateStore;
 import org.apache.flink.runtime.state.KeyGroupRange;
@@ -56,6 +57,7 @@ import org.apache.flink.runtime.state.StateSnapshotContextSynchronousImpl;
 import org.apache.flink.runtime.state.StreamStateHandle;
 import org.apache.flink.runtime.state.VoidNamespace;
 import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.runtime.state.heap.HeapKeyedStateBackend;
 import org.apache.flink.streaming.api.graph.StreamConfig;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.tasks.OperatorStateHandles;
@@ -140,7 +142,7 @@ public abstract class AbstractStreamOperator<OUT>
 
 	// ---------------- timers ------------------
 
-	private transient Map<String, HeapInternalTimerService<?, ?>> timerServices;
+	private transient Map<String, AbstractInternalTimerService<?, ?>> timerServices;
 //	private transient Map<String, HeapInternalTimerService<?, ?>> restoredServices;
 
 
@@ -270,6 +272,10 @@ public abstract class AbstractStreamOperator<OUT>
 						container.getEnvironment().getTaskInfo().getNumberOfKeyGroups(),
 						subTaskKeyGroupRange);
 
+				if (keyedStateBackend instanceof HeapKeyedStateBackend) {
+					((HeapKeyedStateBackend<?>) keyedStateBackend).registerMetrics(metrics.addGroup("keyedState"));
+				}
+
 				this.keyedStateStore = new DefaultKeyedStateStore(keyedStateBackend, getExecutionConfig());
 			}
 
@@ -362,14 +368,17 @@ public abstract class AbstractStreamOperator<OUT>
 		if (getKeyedStateBackend() != null) {
 			KeyedStateCheckpointOutputStream out = context.getRawKeyedOperatorStateOutput();
 
+			// the timers of other services are part of the snapshot of the keyed state backend
+			Map<String, HeapInternalTimerService<?, ?>> heapTimerServices = getHeapTimerServices();
+
 			KeyGroupsList allKeyGroups = out.getKeyGroupList();
 			for (int keyGroupIdx : allKeyGroups) {
 				out.startNewKeyGroup(keyGroupIdx);
 
 				DataOutputViewStreamWrapper dov = new DataOutputViewStreamWrapper(out);
-				dov.writeInt(timerServices.size());
+				dov.writeInt(heapTimerServices.size());
 
-				for (Map.Entry<String, HeapInternalTimerService<?, ?>> entry : timerServices.entrySet()) {
+				for (Map.Entry<String, HeapInternalTimerService<?, ?>> entry : heapTimerServices.entrySet()) {
 					String serviceName = entry.getKey();
 					HeapInternalTimerService<?, ?> timerService = entry.getValue();
 
@@ -405,7 +414,8 @@ public abstract class AbstractStreamOperator<OUT>
 				for (int i = 0; i < noOfTimerServices; i++) {
 					String serviceName = div.readUTF();
 
-					HeapInternalTimerService<?, ?> timerService = this.timerServices.get(serviceName);
+					HeapInternalTimerService<?, ?> timerService =
+						(HeapInternalTimerService<?, ?>) this.timerServices.get(serviceName);
 					if (timerService == null) {
 						timerService = new HeapInternalTimerService<>(
 							totalKeyGroups,
@@ -421,7 +431,11 @@ public abstract class AbstractStreamOperator<OUT>
 	}
 
 	@Override
-	public void notifyOfCompletedCheckpoint(long checkpointId) throws Exception {}
+	public void notifyOfCompletedCheckpoint(long checkpointId) throws Exception {
+		if (keyedStateBackend instanceof CheckpointListener) {
+			((CheckpointListener) keyedStateBackend).notifyCheckpointComplete(checkpointId);
+		}
+	}
 
 	// ------------------------------------------------------------------------
 	//  Properties and Services
@@ -780,9 +794,27 @@ public abstract class AbstractStreamOperator<OUT>
 			Triggerable<K, N> triggerable) {
 
 		@SuppressWarnings("unchecked")
-		HeapInternalTimerService<K, N> timerService = (HeapInternalTimerService<K, N>) timerServices.get(name);
-
-		if (timerService == null) {
+		AbstractInternalTimerService<K, N> timerService = (AbstractInternalTimerService<K, N>) timerServices.get(name);
+
+		if (getKeyedStateBackend() instanceof InternalTimerServiceFactory) {
+			if (timerService == null || timerService instanceof HeapInternalTimerService) {
+				// the timers are stored by the backend, move the timers that were restored
+				// from a snapshot of a heap timer service, if any, to the backend
+				AbstractInternalTimerService<K, N> restoredTimerService = timerService;
+
+				timerService = ((InternalTimerServiceFactory) getKeyedStateBackend()).createInternalTimerService(
+					name,
+					this,
+					getRuntimeContext().getProcessingTimeService());
+				timerServices.put(name, timerService);
+
+				timerService.startTimerService(keySerializer, namespaceSerializer, triggerable);
+				if (restoredTimerService != null) {
+					timerService.addTimersFrom(restoredTimerService);
+				}
+				return timerService;
+			}
+		} else if (timerService == null) {
 			timerService = new HeapInternalTimerService<>(
 				getKeyedStateBackend().getNumberOfKeyGroups(),
 				getKeyedStateBackend().getKeyGroupRange(),
@@ -794,8 +826,21 @@ public abstract class AbstractStreamOperator<OUT>
 		return timerService;
 	}
 
+	/**
+	 * Returns the timer services whose timers are checkpointed by this operator.
+	 */
+	private Map<String, HeapInternalTimerService<?, ?>> getHeapTimerServices() {
+		Map<String, HeapInternalTimerService<?, ?>> heapTimerServices = new HashMap<>(timerServices.size());
+		for (Map.Entry<String, AbstractInternalTimerService<?, ?>> entry : timerServices.entrySet()) {
+			if (entry.getValue() instanceof HeapInternalTimerService) {
+				heapTimerServices.put(entry.getKey(), (HeapInternalTimerService<?, ?>) entry.getValue());
+			}
+		}
+		return heapTimerServices;
+	}
+
 	public void processWatermark(Watermark mark) throws Exception {
-		for (HeapInternalTimerService<?, ?> service : timerServices.values()) {
+		for (AbstractInternalTimerService<?, ?> service : timerServices.values()) {
 			service.advanceWatermark(mark.getTimestamp());
 		}
 		output.emitWatermark(mark);
@@ -822,7 +867,7 @@ public abstract class AbstractStreamOperator<OUT>
 	@VisibleForTesting
 	public int numProcessingTimeTimers() {
 		int count = 0;
-		for (HeapInternalTimerService<?, ?> timerService : timerServices.values()) {
+		for (AbstractInternalTimerService<?, ?> timerService : timerServices.values()) {
 			count += timerService.numProcessingTimeTimers();
 		}
 		return count;
@@ -831,7 +876,7 @@ public abstract class AbstractStreamOperator<OUT>
 	@VisibleForTesting
 	public int numEventTimeTimers() {
 		int count = 0;
-		for (HeapInternalTimerService<?, ?> timerService : timerServices.values()) {
+		for (AbstractInternalTimerService<?, ?> timerService : timerServices.values()) {
 			count += timerService.numEventTimeTimers();
 		}
 		return count;
@@ -0,0 +1,325 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.state.KeyGroupsList;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * An {@link InternalTimerQueue} on the Java heap, that is used by the
+ * {@link HeapInternalTimerService}.
+ *
+ * <p>The queue is a binary heap in an array. Each timer stores its position in the array, so
+ * that a timer can be removed in O(log n) instead of the O(n) search of a
+ * {@link java.util.PriorityQueue}. To find the instance of a timer that is contained in the heap,
+ * and to deduplicate timers, the heap keeps a map from each timer to itself per key group. The
+ * maps also give direct access to the timers of a key group for snapshots.
+ *
+ * <p>A timer can only be contained in one heap at a time. This class is not thread-safe.
+ *
+ * @param <K> Type of the keys to which timers are scoped.
+ * @param <N> Type of the namespace to which timers are scoped.
+ */
+@Internal
+public class InternalTimerHeap<K, N> implements InternalTimerQueue<K, N> {
+
+	/** The heap of timers, the head of the queue is at index 0 */
+	private InternalTimer<K, N>[] queue;
+
+	/** The number of timers in the heap */
+	private int size;
+
+	/** The timers of each local key group, mapped to themselves, lazily created */
+	private final HashMap<InternalTimer<K, N>, InternalTimer<K, N>>[] deduplicationMapsByKeyGroup;
+
+	/** The total number of key groups of the job */
+	private final int totalKeyGroups;
+
+	/** The first key group of the local key group range */
+	private final int localKeyGroupRangeStartIdx;
+
+	@SuppressWarnings("unchecked")
+	public InternalTimerHeap(int initialCapacity, KeyGroupsList localKeyGroupRange, int totalKeyGroups) {
+		checkArgument(initialCapacity > 0, "The initial capacity must be positive.");
+		checkNotNull(localKeyGroupRange);
+
+		this.totalKeyGroups = totalKeyGroups;
+
+		// find the starting index of the local key-group range
+		int startIdx = Integer.MAX_VALUE;
+		for (Integer keyGroupIdx : localKeyGroupRange) {
+			startIdx = Math.min(keyGroupIdx, startIdx);
+		}
+		this.localKeyGroupRangeStartIdx = startIdx;
+
+		this.queue = new InternalTimer[initialCapacity];
+		this.deduplicationMapsByKeyGroup = new HashMap[localKeyGroupRange.getNumberOfKeyGroups()];
+	}
+
+	// ------------------------------------------------------------------------
+	//  queue operations
+	// ------------------------------------------------------------------------
+
+	@Override
+	public boolean add(InternalTimer<K, N> timer) {
+		checkArgument(timer.getTimerHeapIndex() == InternalTimer.NOT_CONTAINED,
+			"The timer is already contained in a heap.");
+
+		Map<InternalTimer<K, N>, InternalTimer<K, N>> timers = getOrCreateMapForKeyGroup(keyGroupOf(timer));
+		if (timers.containsKey(timer)) {
+			return false;
+		}
+		timers.put(timer, timer);
+
+		if (size == queue.length) {
+			queue = Arrays.copyOf(queue, queue.length * 2);
+		}
+
+		int index = size++;
+		queue[index] = timer;
+		timer.setTimerHeapIndex(index);
+		siftUp(index);
+		return true;
+	}
+
+	@Override
+	public boolean remove(InternalTimer<K, N> timer) {
+		Map<InternalTimer<K, N>, InternalTimer<K, N>> timers = getMapForKeyGroup(keyGroupOf(timer));
+		if (timers == null) {
+			return false;
+		}
+
+		InternalTimer<K, N> contained = timers.remove(timer);
+		if (contained == null) {
+			return false;
+		}
+
+		removeAtIndex(contained.getTimerHeapIndex());
+		return true;
+	}
+
+	@Override
+	public InternalTimer<K, N> peek() {
+		return size > 0 ? queue[0] : null;
+	}
+
+	@Override
+	public InternalTimer<K, N> poll() {
+		if (size == 0) {
+			return null;
+		}
+
+		InternalTimer<K, N> head = queue[0];
+		getMapForKeyGroup(keyGroupOf(head)).remove(head);
+		removeAtIndex(0);
+		return head;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the timers of the given key group, in no particular order. The returned set is a
+	 * view on the heap that must not be used after the heap was modified.
+	 */
+	public Set<InternalTimer<K, N>> getTimersForKeyGroup(int keyGroupIdx) {
+		Map<InternalTimer<K, N>, InternalTimer<K, N>> timers = getMapForKeyGroup(keyGroupIdx);
+
+		return timers != null ?
+			Collections.unmodifiableSet(timers.keySet()) :
+			Collections.<InternalTimer<K, N>>emptySet();
+	}
+
+	/**
+	 * Returns an iterator over the timers of the heap, in no particular order. The heap must not
+	 * be modified while it is iterated.
+	 */
+	@Override
+	public Iterator<InternalTimer<K, N>> iterator() {
+		return new Iterator<InternalTimer<K, N>>() {
+
+			private int nextIndex;
+
+			@Override
+			public boolean hasNext() {
+				return nextIndex < size;
+			}
+
+			@Override
+			public InternalTimer<K, N> next() {
+				if (nextIndex >= size) {
+					throw new NoSuchElementException();
+				}
+				return queue[nextIndex++];
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Returns the timers of each local key group, or null for key groups that never held a timer.
+	 */
+	@SuppressWarnings("unchecked")
+	Set<InternalTimer<K, N>>[] getTimersPerKeyGroup() {
+		Set<InternalTimer<K, N>>[] result = new Set[deduplicationMapsByKeyGroup.length];
+		for (int i = 0; i < result.length; i++) {
+			if (deduplicationMapsByKeyGroup[i] != null) {
+				result[i] = deduplicationMapsByKeyGroup[i].keySet();
+			}
+		}
+		return result;
+	}
+
+	// ------------------------------------------------------------------------
+	//  heap maintenance
+	// ------------------------------------------------------------------------
+
+	private void removeAtIndex(int index) {
+		InternalTimer<K, N> removed = queue[index];
+		removed.setTimerHeapIndex(InternalTimer.NOT_CONTAINED);
+
+		int lastIndex = --size;
+		InternalTimer<K, N> last = queue[lastIndex];
+		queue[lastIndex] = null;
+
+		if (index != lastIndex) {
+			queue[index] = last;
+			last.setTimerHeapIndex(index);
+
+			// the moved timer may have to go either way
+			if (!siftUp(index)) {
+				siftDown(index);
+			}
+		}
+	}
+
+	/**
+	 * Moves the timer at the given index towards the head of the queue, as far as required.
+	 *
+	 * @return True, if the timer was moved.
+	 */
+	private boolean siftUp(int index) {
+		final InternalTimer<K, N> timer = queue[index];
+		final long timestamp = timer.getTimestamp();
+		final int startIndex = index;
+
+		while (index > 0) {
+			int parentIndex = (index - 1) >>> 1;
+			InternalTimer<K, N> parent = queue[parentIndex];
+			if (parent.getTimestamp() <= timestamp) {
+				break;
+			}
+			queue[index] = parent;
+			parent.setTimerHeapIndex(index);
+			index = parentIndex;
+		}
+
+		queue[index] = timer;
+		timer.setTimerHeapIndex(index);
+		return index != startIndex;
+	}
+
+	/**
+	 * Moves the timer at the given index away from the head of the queue, as far as required.
+	 */
+	private void siftDown(int index) {
+		final InternalTimer<K, N> timer = queue[index];
+		final long timestamp = timer.getTimestamp();
+		final int half = size >>> 1;
+
+		while (index < half) {
+			int childIndex = (index << 1) + 1;
+			InternalTimer<K, N> child = queue[childIndex];
+
+			int rightIndex = childIndex + 1;
+			if (rightIndex < size && queue[rightIndex].getTimestamp() < child.getTimestamp()) {
+				childIndex = rightIndex;
+				child = queue[rightIndex];
+			}
+
+			if (timestamp <= child.getTimestamp()) {
+				break;
+			}
+
+			queue[index] = child;
+			child.setTimerHeapIndex(index);
+			index = childIndex;
+		}
+
+		queue[index] = timer;
+		timer.setTimerHeapIndex(index);
+	}
+
+	// ------------------------------------------------------------------------
+	//  key groups
+	// ------------------------------------------------------------------------
+
+	private int keyGroupOf(InternalTimer<K, N> timer) {
+		return KeyGroupRangeAssignment.assignToKeyGroup(timer.getKey(), totalKeyGroups);
+	}
+
+	private HashMap<InternalTimer<K, N>, InternalTimer<K, N>> getMapForKeyGroup(int keyGroupIdx) {
+		return deduplicationMapsByKeyGroup[getIndexForKeyGroup(keyGroupIdx)];
+	}
+
+	private HashMap<InternalTimer<K, N>, InternalTimer<K, N>> getOrCreateMapForKeyGroup(int keyGroupIdx) {
+		int localIdx = getIndexForKeyGroup(keyGroupIdx);
+		HashMap<InternalTimer<K, N>, InternalTimer<K, N>> timers = deduplicationMapsByKeyGroup[localIdx];
+		if (timers == null) {
+			timers = new HashMap<>();
+			deduplicationMapsByKeyGroup[localIdx] = timers;
+		}
+		return timers;
+	}
+
+	/**
+	 * Computes the index of the requested key-group in the local datastructures, assuming
+	 * that each task is assigned a continuous range of key-groups.
+	 */
+	private int getIndexForKeyGroup(int keyGroupIdx) {
+		int localIdx = keyGroupIdx - localKeyGroupRangeStartIdx;
+		if (localIdx < 0 || localIdx >= deduplicationMapsByKeyGroup.length) {
+			throw new IllegalArgumentException("Key Group " + keyGroupIdx + " does not belong to the local range.");
+		}
+		return localIdx;
+	}
+}
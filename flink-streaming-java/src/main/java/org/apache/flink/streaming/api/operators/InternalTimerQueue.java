@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.annotation.Internal;
+
+/**
+ * A queue of {@link InternalTimer InternalTimers} that is ordered by timestamp and that contains
+ * each timer at most once. The queues hold the timers of an {@link AbstractInternalTimerService}.
+ *
+ * <p>The timers are identified by their timestamp, key and namespace. The order of timers with
+ * the same timestamp is not defined.
+ *
+ * @param <K> Type of the keys to which timers are scoped.
+ * @param <N> Type of the namespace to which timers are scoped.
+ */
+@Internal
+public interface InternalTimerQueue<K, N> extends Iterable<InternalTimer<K, N>> {
+
+	/**
+	 * Adds the timer to the queue, unless an equal timer is already contained.
+	 *
+	 * @return True, if the timer was added, false if an equal timer was already contained.
+	 */
+	boolean add(InternalTimer<K, N> timer);
+
+	/**
+	 * Removes the contained timer that is equal to the given timer, if any.
+	 *
+	 * @return True, if a timer was removed.
+	 */
+	boolean remove(InternalTimer<K, N> timer);
+
+	/**
+	 * Returns the timer with the smallest timestamp, or null if the queue is empty.
+	 */
+	InternalTimer<K, N> peek();
+
+	/**
+	 * Removes and returns the timer with the smallest timestamp, or null if the queue is empty.
+	 */
+	InternalTimer<K, N> poll();
+
+	/**
+	 * Returns the number of timers in the queue.
+	 */
+	int size();
+
+	boolean isEmpty();
+}
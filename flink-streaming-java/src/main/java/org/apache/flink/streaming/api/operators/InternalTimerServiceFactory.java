@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.streaming.runtime.tasks.ProcessingTimeService;
+
+/**
+ * Interface for keyed state backends that store the timers of operators themselves, instead of
+ * the {@link HeapInternalTimerService}. The timers of the created services are part of the
+ * snapshots of the backend, the operator does not checkpoint them.
+ */
+@Internal
+public interface InternalTimerServiceFactory {
+
+	/**
+	 * Creates a timer service whose timers are stored by this backend. The service is started
+	 * by the operator, see {@link AbstractInternalTimerService#startTimerService}.
+	 *
+	 * @param name The name of the timer service, unique within the operator.
+	 * @param keyContext The key context that provides the current key.
+	 * @param processingTimeService The service that fires the processing time timers.
+	 */
+	<K, N> AbstractInternalTimerService<K, N> createInternalTimerService(
+			String name,
+			KeyContext keyContext,
+			ProcessingTimeService processingTimeService);
+}
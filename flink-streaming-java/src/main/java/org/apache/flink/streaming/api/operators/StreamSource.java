@@ -69,7 +69,8 @@ public class StreamSource<OUT, SRC extends SourceFunction<OUT>>
 		final long watermarkInterval = getRuntimeContext().getExecutionConfig().getAutoWatermarkInterval();
 
 		this.ctx = StreamSourceContexts.getSourceContext(
-			timeCharacteristic, getProcessingTimeService(), lockingObject, collector, watermarkInterval);
+			timeCharacteristic, getProcessingTimeService(), lockingObject,
+			getContainingTask().getStreamStatusMaintainer(), collector, watermarkInterval);
 
 		try {
 			userFunction.run(ctx);
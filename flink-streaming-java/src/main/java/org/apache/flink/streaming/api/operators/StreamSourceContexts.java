@@ -22,6 +22,8 @@ import org.apache.flink.streaming.api.functions.source.SourceFunction;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.tasks.ProcessingTimeCallback;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamstatus.StreamStatus;
+import org.apache.flink.streaming.runtime.streamstatus.StreamStatusMaintainer;
 import org.apache.flink.streaming.runtime.tasks.ProcessingTimeService;
 import org.apache.flink.util.Preconditions;
 
@@ -45,13 +47,29 @@ public class StreamSourceContexts {
 			TimeCharacteristic timeCharacteristic, ProcessingTimeService processingTimeService,
 			Object checkpointLock, Output<StreamRecord<OUT>> output, long watermarkInterval) {
 
+		return getSourceContext(timeCharacteristic, processingTimeService,
+				checkpointLock, null, output, watermarkInterval);
+	}
+
+	/**
+	 * Same as {@link #getSourceContext(TimeCharacteristic, ProcessingTimeService, Object, Output, long)},
+	 * but the returned context toggles the stream status of the given {@link StreamStatusMaintainer}
+	 * when the source marks itself as temporarily idle. If the maintainer is {@code null},
+	 * idleness is ignored.
+	 */
+	public static <OUT> SourceFunction.SourceContext<OUT> getSourceContext(
+			TimeCharacteristic timeCharacteristic, ProcessingTimeService processingTimeService,
+			Object checkpointLock, StreamStatusMaintainer streamStatusMaintainer,
+			Output<StreamRecord<OUT>> output, long watermarkInterval) {
+
 		final SourceFunction.SourceContext<OUT> ctx;
 		switch (timeCharacteristic) {
 			case EventTime:
-				ctx = new ManualWatermarkContext<>(checkpointLock, output);
+				ctx = new ManualWatermarkContext<>(checkpointLock, streamStatusMaintainer, output);
 				break;
 			case IngestionTime:
-				ctx = new AutomaticWatermarkContext<>(processingTimeService, checkpointLock, output, watermarkInterval);
+				ctx = new AutomaticWatermarkContext<>(processingTimeService, checkpointLock,
+						streamStatusMaintainer, output, watermarkInterval);
 				break;
 			case ProcessingTime:
 				ctx = new NonTimestampContext<>(checkpointLock, output);
@@ -96,6 +114,11 @@ public class StreamSourceContexts {
 			// do nothing
 		}
 
+		@Override
+		public void markAsTemporarilyIdle() {
+			// do nothing, there are no watermarks that downstream tasks wait for
+		}
+
 		@Override
 		public Object getCheckpointLock() {
 			return lock;
@@ -113,6 +136,7 @@ public class StreamSourceContexts {
 
 		private final ProcessingTimeService timeService;
 		private final Object lock;
+		private final StreamStatusMaintainer streamStatusMaintainer;
 		private final Output<StreamRecord<T>> output;
 		private final StreamRecord<T> reuse;
 
@@ -124,11 +148,13 @@ public class StreamSourceContexts {
 		private AutomaticWatermarkContext(
 			final ProcessingTimeService timeService,
 			final Object checkpointLock,
+			final StreamStatusMaintainer streamStatusMaintainer,
 			final Output<StreamRecord<T>> output,
 			final long watermarkInterval) {
 
 			this.timeService = Preconditions.checkNotNull(timeService, "Time Service cannot be null.");
 			this.lock = Preconditions.checkNotNull(checkpointLock, "The checkpoint lock cannot be null.");
+			this.streamStatusMaintainer = streamStatusMaintainer;
 			this.output = Preconditions.checkNotNull(output, "The output cannot be null.");
 
 			Preconditions.checkArgument(watermarkInterval >= 1L, "The watermark interval cannot be smaller than 1 ms.");
@@ -144,6 +170,8 @@ public class StreamSourceContexts {
 		@Override
 		public void collect(T element) {
 			synchronized (lock) {
+				markActive(streamStatusMaintainer);
+
 				final long currentTime = this.timeService.getCurrentProcessingTime();
 				output.collect(reuse.replace(element, currentTime));
 
@@ -174,6 +202,8 @@ public class StreamSourceContexts {
 			if (mark.getTimestamp() == Long.MAX_VALUE) {
 				// allow it since this is the special end-watermark that for example the Kafka source emits
 				synchronized (lock) {
+					markActive(streamStatusMaintainer);
+
 					nextWatermarkTime = Long.MAX_VALUE;
 					output.emitWatermark(mark);
 				}
@@ -186,6 +216,13 @@ public class StreamSourceContexts {
 			}
 		}
 
+		@Override
+		public void markAsTemporarilyIdle() {
+			synchronized (lock) {
+				markIdle(streamStatusMaintainer);
+			}
+		}
+
 		@Override
 		public Object getCheckpointLock() {
 			return lock;
@@ -225,7 +262,9 @@ public class StreamSourceContexts {
 					final long watermarkTime = currentTime - (currentTime % watermarkInterval);
 
 					synchronized (lock) {
-						if (currentTime > nextWatermarkTime) {
+						// no watermarks are emitted while the source is idle, the
+						// next collected element brings the watermark up to date
+						if (currentTime > nextWatermarkTime && !isIdle(streamStatusMaintainer)) {
 							output.emitWatermark(new Watermark(watermarkTime));
 							nextWatermarkTime = watermarkTime + watermarkInterval;
 						}
@@ -250,11 +289,16 @@ public class StreamSourceContexts {
 	private static class ManualWatermarkContext<T> implements SourceFunction.SourceContext<T> {
 
 		private final Object lock;
+		private final StreamStatusMaintainer streamStatusMaintainer;
 		private final Output<StreamRecord<T>> output;
 		private final StreamRecord<T> reuse;
 
-		private ManualWatermarkContext(Object checkpointLock, Output<StreamRecord<T>> output) {
+		private ManualWatermarkContext(
+				Object checkpointLock,
+				StreamStatusMaintainer streamStatusMaintainer,
+				Output<StreamRecord<T>> output) {
 			this.lock = Preconditions.checkNotNull(checkpointLock, "The checkpoint lock cannot be null.");
+			this.streamStatusMaintainer = streamStatusMaintainer;
 			this.output = Preconditions.checkNotNull(output, "The output cannot be null.");
 			this.reuse = new StreamRecord<>(null);
 		}
@@ -262,6 +306,7 @@ public class StreamSourceContexts {
 		@Override
 		public void collect(T element) {
 			synchronized (lock) {
+				markActive(streamStatusMaintainer);
 				output.collect(reuse.replace(element));
 			}
 		}
@@ -269,6 +314,7 @@ public class StreamSourceContexts {
 		@Override
 		public void collectWithTimestamp(T element, long timestamp) {
 			synchronized (lock) {
+				markActive(streamStatusMaintainer);
 				output.collect(reuse.replace(element, timestamp));
 			}
 		}
@@ -276,10 +322,18 @@ public class StreamSourceContexts {
 		@Override
 		public void emitWatermark(Watermark mark) {
 			synchronized (lock) {
+				markActive(streamStatusMaintainer);
 				output.emitWatermark(mark);
 			}
 		}
 
+		@Override
+		public void markAsTemporarilyIdle() {
+			synchronized (lock) {
+				markIdle(streamStatusMaintainer);
+			}
+		}
+
 		@Override
 		public Object getCheckpointLock() {
 			return lock;
@@ -288,4 +342,24 @@ public class StreamSourceContexts {
 		@Override
 		public void close() {}
 	}
+
+	// ------------------------------------------------------------------------
+	//  stream status utilities, all to be called while holding the checkpoint lock
+	// ------------------------------------------------------------------------
+
+	private static boolean isIdle(StreamStatusMaintainer streamStatusMaintainer) {
+		return streamStatusMaintainer != null && streamStatusMaintainer.getStreamStatus().isIdle();
+	}
+
+	private static void markIdle(StreamStatusMaintainer streamStatusMaintainer) {
+		if (streamStatusMaintainer != null && streamStatusMaintainer.getStreamStatus().isActive()) {
+			streamStatusMaintainer.toggleStreamStatus(StreamStatus.IDLE);
+		}
+	}
+
+	private static void markActive(StreamStatusMaintainer streamStatusMaintainer) {
+		if (isIdle(streamStatusMaintainer)) {
+			streamStatusMaintainer.toggleStreamStatus(StreamStatus.ACTIVE);
+		}
+	}
 }
@@ -0,0 +1,290 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.streaming.api.operators.async;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.state.ListState;
+import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.runtime.state.StateInitializationContext;
+import org.apache.flink.runtime.state.StateSnapshotContext;
+import org.apache.flink.streaming.api.datastream.AsyncDataStream;
+import org.apache.flink.streaming.api.functions.async.AsyncFunction;
+import org.apache.flink.streaming.api.graph.StreamConfig;
+import org.apache.flink.streaming.api.operators.AbstractUdfStreamOperator;
+import org.apache.flink.streaming.api.operators.ChainingStrategy;
+import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
+import org.apache.flink.streaming.api.operators.Output;
+import org.apache.flink.streaming.api.operators.async.queue.OrderedStreamElementQueue;
+import org.apache.flink.streaming.api.operators.async.queue.StreamElementQueue;
+import org.apache.flink.streaming.api.operators.async.queue.StreamElementQueueEntry;
+import org.apache.flink.streaming.api.operators.async.queue.StreamRecordQueueEntry;
+import org.apache.flink.streaming.api.operators.async.queue.UnorderedStreamElementQueue;
+import org.apache.flink.streaming.api.operators.async.queue.WatermarkQueueEntry;
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.streamrecord.StreamElement;
+import org.apache.flink.streaming.runtime.streamrecord.StreamElementSerializer;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.tasks.ProcessingTimeCallback;
+import org.apache.flink.streaming.runtime.tasks.StreamTask;
+import org.apache.flink.util.Preconditions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The {@link AsyncWaitOperator} allows to asynchronously process incoming stream records. For that
+ * the operator creates a {@link StreamRecordQueueEntry} which is passed to the asynchronous
+ * function as its {@link org.apache.flink.streaming.api.functions.async.collector.AsyncCollector}
+ * and is completed with the results of the asynchronous operation.
+ *
+ * <p>The operator keeps the entries of all stream records whose operations are in flight in a
+ * bounded {@link StreamElementQueue}. If the queue is full, the operator waits until an entry was
+ * emitted, which back-pressures the input. An {@link Emitter} thread emits the completed entries,
+ * either in the order of the input ({@link AsyncDataStream.OutputMode#ORDERED}) or in the order
+ * of completion ({@link AsyncDataStream.OutputMode#UNORDERED}). Watermarks are added to the queue
+ * as well and are ordering barriers in both modes: they are emitted after all records that
+ * preceded them, and no record is emitted before a watermark that preceded it.
+ *
+ * <p>Each operation can be given a timeout, after which it is completed with a
+ * {@link TimeoutException}. Failed operations fail the task.
+ *
+ * <p>Upon checkpoints, the stream elements of all entries in the queue, completed or not, are
+ * stored in operator state. When the operator is restored, the elements are processed again,
+ * so that their asynchronous operations are issued once more.
+ *
+ * @param <IN> Input type for the operator.
+ * @param <OUT> Output type for the operator.
+ */
+@Internal
+public class AsyncWaitOperator<IN, OUT>
+		extends AbstractUdfStreamOperator<OUT, AsyncFunction<IN, OUT>>
+		implements OneInputStreamOperator<IN, OUT> {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final String STATE_NAME = "_async_wait_operator_state_";
+
+	/** Capacity of the stream element queue */
+	private final int capacity;
+
+	/** Output mode for this operator */
+	private final AsyncDataStream.OutputMode outputMode;
+
+	/** Timeout for the async collectors in milliseconds, 0 for no timeout */
+	private final long timeout;
+
+	private transient Object checkpointingLock;
+
+	/** Serializer for the stream elements in the operator state */
+	private transient StreamElementSerializer<IN> inStreamElementSerializer;
+
+	/** Recovered input stream elements */
+	private transient ListState<StreamElement> recoveredStreamElements;
+
+	/** Queue to store the currently in-flight stream elements into */
+	private transient StreamElementQueue queue;
+
+	/** Emitter for the completed stream element queue entries */
+	private transient Emitter<OUT> emitter;
+
+	/** Thread running the emitter */
+	private transient Thread emitterThread;
+
+	public AsyncWaitOperator(
+			AsyncFunction<IN, OUT> asyncFunction,
+			long timeout,
+			int capacity,
+			AsyncDataStream.OutputMode outputMode) {
+		super(asyncFunction);
+		chainingStrategy = ChainingStrategy.ALWAYS;
+
+		Preconditions.checkArgument(capacity > 0, "The number of concurrent async operation should be greater than 0.");
+		this.capacity = capacity;
+
+		this.outputMode = Preconditions.checkNotNull(outputMode, "outputMode");
+
+		Preconditions.checkArgument(timeout >= 0L, "The timeout must not be negative.");
+		this.timeout = timeout;
+	}
+
+	@Override
+	public void setup(StreamTask<?, ?> containingTask, StreamConfig config, Output<StreamRecord<OUT>> output) {
+		super.setup(containingTask, config, output);
+
+		this.checkpointingLock = getContainingTask().getCheckpointLock();
+
+		TypeSerializer<IN> inSerializer = getOperatorConfig().getTypeSerializerIn1(getUserCodeClassloader());
+		this.inStreamElementSerializer = new StreamElementSerializer<>(inSerializer);
+
+		switch (outputMode) {
+			case ORDERED:
+				queue = new OrderedStreamElementQueue(capacity, checkpointingLock);
+				break;
+			case UNORDERED:
+				queue = new UnorderedStreamElementQueue(capacity, checkpointingLock);
+				break;
+			default:
+				throw new IllegalStateException("Unknown async mode: " + outputMode + '.');
+		}
+	}
+
+	@Override
+	public void open() throws Exception {
+		super.open();
+
+		// the operators of a chain are opened from tail to head, so the downstream operators are
+		// opened before the emitter starts
+		this.emitter = new Emitter<>(checkpointingLock, output, queue, getContainingTask());
+
+		this.emitterThread = new Thread(emitter, "AsyncIO-Emitter-Thread (" + getOperatorName() + ')');
+		emitterThread.setDaemon(true);
+		emitterThread.start();
+
+		// process the stream elements from the state again, they are removed from the state with
+		// the next checkpoint
+		if (recoveredStreamElements != null) {
+			List<StreamElement> elements = new ArrayList<>();
+			for (StreamElement element : recoveredStreamElements.get()) {
+				elements.add(element);
+			}
+			recoveredStreamElements = null;
+
+			for (StreamElement element : elements) {
+				if (element.isRecord()) {
+					processElement(element.<IN>asRecord());
+				} else if (element.isWatermark()) {
+					processWatermark(element.asWatermark());
+				} else {
+					throw new IllegalStateException("Unknown record type " + element.getClass() +
+						" encountered while opening the operator.");
+				}
+			}
+		}
+	}
+
+	@Override
+	public void processElement(StreamRecord<IN> element) throws Exception {
+		final StreamRecordQueueEntry<OUT> streamRecordBufferEntry = new StreamRecordQueueEntry<>(element, queue);
+
+		if (timeout > 0L) {
+			// register a timeout for this AsyncStreamRecordBufferEntry
+			long timeoutTimestamp = timeout + getProcessingTimeService().getCurrentProcessingTime();
+
+			streamRecordBufferEntry.setTimeoutTimer(getProcessingTimeService().registerTimer(
+				timeoutTimestamp,
+				new ProcessingTimeCallback() {
+					@Override
+					public void onProcessingTime(long timestamp) throws Exception {
+						streamRecordBufferEntry.collect(
+							new TimeoutException("Async function call has timed out."));
+					}
+				}));
+		}
+
+		// the entry is added before the operation is started, the collector may be completed
+		// right away by the function
+		queue.put(streamRecordBufferEntry);
+
+		userFunction.asyncInvoke(element.getValue(), streamRecordBufferEntry);
+	}
+
+	@Override
+	public void processWatermark(Watermark mark) throws Exception {
+		queue.put(new WatermarkQueueEntry(mark));
+	}
+
+	@Override
+	public void snapshotState(StateSnapshotContext context) throws Exception {
+		super.snapshotState(context);
+
+		ListState<StreamElement> partitionableState =
+			getOperatorStateBackend().getOperatorState(new ListStateDescriptor<>(STATE_NAME, inStreamElementSerializer));
+		partitionableState.clear();
+
+		for (StreamElementQueueEntry entry : queue.values()) {
+			partitionableState.add(entry.getStreamElement());
+		}
+	}
+
+	@Override
+	public void initializeState(StateInitializationContext context) throws Exception {
+		super.initializeState(context);
+
+		ListState<StreamElement> state = context.getManagedOperatorStateStore().getOperatorState(
+			new ListStateDescriptor<>(STATE_NAME, inStreamElementSerializer));
+
+		if (context.isRestored()) {
+			recoveredStreamElements = state;
+		}
+	}
+
+	@Override
+	public void close() throws Exception {
+		try {
+			waitInFlightInputsFinished();
+		} finally {
+			stopEmitterThread();
+
+			super.close();
+		}
+	}
+
+	@Override
+	public void dispose() throws Exception {
+		try {
+			stopEmitterThread();
+		} finally {
+			super.dispose();
+		}
+	}
+
+	/**
+	 * Waits until all entries of the queue are emitted, or until the emitter stopped because an
+	 * asynchronous operation failed. Waiting releases the checkpoint lock.
+	 */
+	private void waitInFlightInputsFinished() throws InterruptedException {
+		synchronized (checkpointingLock) {
+			while (!queue.isEmpty() && emitter != null && emitter.isRunning()) {
+				checkpointingLock.wait();
+			}
+		}
+	}
+
+	private void stopEmitterThread() throws InterruptedException {
+		if (emitter != null) {
+			emitter.stop();
+		}
+
+		if (emitterThread != null) {
+			emitterThread.interrupt();
+
+			// the emitter may wait for the checkpoint lock, which the caller may hold
+			if (!Thread.holdsLock(checkpointingLock)) {
+				emitterThread.join();
+			}
+
+			emitterThread = null;
+		}
+	}
+
+	private String getOperatorName() {
+		return getContainingTask().getName();
+	}
+}
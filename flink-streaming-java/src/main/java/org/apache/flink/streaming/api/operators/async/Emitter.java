@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.streaming.api.operators.async;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.streaming.api.operators.Output;
+import org.apache.flink.streaming.api.operators.TimestampedCollector;
+import org.apache.flink.streaming.api.operators.async.queue.StreamElementQueue;
+import org.apache.flink.streaming.api.operators.async.queue.StreamElementQueueEntry;
+import org.apache.flink.streaming.api.operators.async.queue.StreamRecordQueueEntry;
+import org.apache.flink.streaming.api.operators.async.queue.WatermarkQueueEntry;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.tasks.AsyncExceptionHandler;
+import org.apache.flink.util.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+
+/**
+ * Runnable that takes the completed entries from a {@link StreamElementQueue} and emits them.
+ * The entries are emitted while holding the checkpoint lock, so that emitting does not interleave
+ * with the processing of input elements and with checkpoints.
+ *
+ * <p>If an asynchronous operation failed, the emitter reports the error to the
+ * {@link AsyncExceptionHandler} and stops.
+ *
+ * @param <OUT> Type of the emitted elements.
+ */
+@Internal
+public class Emitter<OUT> implements Runnable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(Emitter.class);
+
+	/** Lock to hold before emitting */
+	private final Object checkpointLock;
+
+	/** Output for the watermarks */
+	private final Output<StreamRecord<OUT>> output;
+
+	/** Queue from which the completed entries are taken */
+	private final StreamElementQueue streamElementQueue;
+
+	/** Handler for the errors of the asynchronous operations */
+	private final AsyncExceptionHandler exceptionHandler;
+
+	/** Output for the stream records, with the timestamps of the input records */
+	private final TimestampedCollector<OUT> timestampedCollector;
+
+	private volatile boolean running;
+
+	public Emitter(
+			Object checkpointLock,
+			Output<StreamRecord<OUT>> output,
+			StreamElementQueue streamElementQueue,
+			AsyncExceptionHandler exceptionHandler) {
+
+		this.checkpointLock = Preconditions.checkNotNull(checkpointLock);
+		this.output = Preconditions.checkNotNull(output);
+		this.streamElementQueue = Preconditions.checkNotNull(streamElementQueue);
+		this.exceptionHandler = Preconditions.checkNotNull(exceptionHandler);
+
+		this.timestampedCollector = new TimestampedCollector<>(this.output);
+		this.running = true;
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (running) {
+				synchronized (checkpointLock) {
+					// waiting releases the checkpoint lock until an entry is completed
+					StreamElementQueueEntry entry = streamElementQueue.peekBlockingly();
+
+					if (!output(entry)) {
+						running = false;
+						checkpointLock.notifyAll();
+						break;
+					}
+
+					streamElementQueue.poll();
+				}
+			}
+		} catch (InterruptedException e) {
+			if (running) {
+				exceptionHandler.handleAsyncException("Emitter thread was interrupted.", e);
+			} else {
+				LOG.debug("Emitter thread was interrupted while stopping.", e);
+			}
+		} catch (Throwable t) {
+			exceptionHandler.handleAsyncException("Could not emit the results of the async operations.", t);
+			running = false;
+		}
+	}
+
+	/**
+	 * Emits the given entry.
+	 *
+	 * @return False if the entry holds the error of a failed asynchronous operation.
+	 */
+	private boolean output(StreamElementQueueEntry entry) {
+		if (entry instanceof WatermarkQueueEntry) {
+			output.emitWatermark(((WatermarkQueueEntry) entry).getWatermark());
+			return true;
+		}
+
+		@SuppressWarnings("unchecked")
+		StreamRecordQueueEntry<OUT> recordEntry = (StreamRecordQueueEntry<OUT>) entry;
+
+		Throwable error = recordEntry.getError();
+		if (error != null) {
+			exceptionHandler.handleAsyncException(
+					"An async function call terminated with an exception. Failing the AsyncWaitOperator.",
+					error);
+			return false;
+		}
+
+		timestampedCollector.setTimestamp(recordEntry.getStreamElement().asRecord());
+
+		Collection<OUT> result = recordEntry.getResult();
+		for (OUT value : result) {
+			timestampedCollector.collect(value);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns whether the emitter is still emitting entries. The emitter stops when it is stopped
+	 * or when an asynchronous operation failed.
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Stops the emitter. The emitting thread must be interrupted in addition if it waits for
+	 * completed entries.
+	 */
+	public void stop() {
+		running = false;
+	}
+}
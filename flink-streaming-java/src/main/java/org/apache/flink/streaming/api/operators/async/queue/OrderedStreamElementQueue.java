@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.streaming.api.operators.async.queue;
+
+import org.apache.flink.annotation.Internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * {@link StreamElementQueue} that emits the entries in the order in which they were added. An
+ * entry can only be emitted once it and all entries before it are completed.
+ */
+@Internal
+public class OrderedStreamElementQueue extends StreamElementQueue {
+
+	/** The entries in the order in which they were added */
+	private final ArrayDeque<StreamElementQueueEntry> queue;
+
+	public OrderedStreamElementQueue(int capacity, Object lock) {
+		super(capacity, lock);
+		this.queue = new ArrayDeque<>(capacity);
+	}
+
+	@Override
+	public int size() {
+		return queue.size();
+	}
+
+	@Override
+	public Collection<StreamElementQueueEntry> values() {
+		return new ArrayList<>(queue);
+	}
+
+	@Override
+	protected void addEntry(StreamElementQueueEntry entry) {
+		queue.addLast(entry);
+	}
+
+	@Override
+	protected void onCompleteEntry(StreamElementQueueEntry entry) {
+		// the head of the queue is checked when the next entry is requested
+	}
+
+	@Override
+	protected StreamElementQueueEntry peekCompleted() {
+		StreamElementQueueEntry head = queue.peekFirst();
+		return (head != null && head.isDone()) ? head : null;
+	}
+
+	@Override
+	protected StreamElementQueueEntry pollCompleted() {
+		return peekCompleted() != null ? queue.pollFirst() : null;
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.streaming.api.operators.async.queue;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.util.Preconditions;
+
+import java.util.Collection;
+
+/**
+ * Bounded queue of the {@link StreamElementQueueEntry entries} of an
+ * {@link org.apache.flink.streaming.api.operators.async.AsyncWaitOperator}. The queue holds the
+ * stream elements whose asynchronous operations are in flight, as well as completed elements that
+ * were not yet emitted. Subclasses define the order in which completed entries are emitted.
+ *
+ * <p>All state of the queue is guarded by a lock object, which is the checkpoint lock of the
+ * task. Threads that wait for free capacity or for completed entries wait on the lock, which
+ * releases it in the meantime.
+ */
+@Internal
+public abstract class StreamElementQueue {
+
+	/** The lock that guards the queue and on which waiting threads are notified */
+	protected final Object lock;
+
+	/** The maximum number of entries in the queue */
+	protected final int capacity;
+
+	protected StreamElementQueue(int capacity, Object lock) {
+		Preconditions.checkArgument(capacity > 0, "The capacity must be larger than 0.");
+
+		this.capacity = capacity;
+		this.lock = Preconditions.checkNotNull(lock);
+	}
+
+	/**
+	 * Adds an entry to the queue. If the queue is full, the calling thread waits until an entry
+	 * was removed.
+	 *
+	 * @param entry The entry to add.
+	 * @throws InterruptedException Thrown if the thread was interrupted while waiting.
+	 */
+	public void put(StreamElementQueueEntry entry) throws InterruptedException {
+		synchronized (lock) {
+			while (size() >= capacity) {
+				lock.wait();
+			}
+
+			addEntry(entry);
+
+			if (entry.isDone()) {
+				onCompleteEntry(entry);
+			}
+
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Returns the next entry that can be emitted, without removing it. If there is no such
+	 * entry, the calling thread waits until an entry is completed.
+	 *
+	 * @return The next entry to emit.
+	 * @throws InterruptedException Thrown if the thread was interrupted while waiting.
+	 */
+	public StreamElementQueueEntry peekBlockingly() throws InterruptedException {
+		synchronized (lock) {
+			StreamElementQueueEntry entry;
+			while ((entry = peekCompleted()) == null) {
+				lock.wait();
+			}
+
+			return entry;
+		}
+	}
+
+	/**
+	 * Removes the next entry that can be emitted from the queue.
+	 *
+	 * @return The removed entry, null if no entry can be emitted.
+	 */
+	public StreamElementQueueEntry poll() {
+		synchronized (lock) {
+			StreamElementQueueEntry entry = pollCompleted();
+
+			if (entry != null) {
+				lock.notifyAll();
+			}
+
+			return entry;
+		}
+	}
+
+	/**
+	 * Returns whether the queue holds no entries.
+	 */
+	public boolean isEmpty() {
+		synchronized (lock) {
+			return size() == 0;
+		}
+	}
+
+	/**
+	 * Completes the given entry of this queue with a result or an error. Completing an entry
+	 * more than once has no effect.
+	 */
+	void complete(StreamRecordQueueEntry<?> entry, Collection<?> result, Throwable error) {
+		synchronized (lock) {
+			if (entry.complete(result, error)) {
+				onCompleteEntry(entry);
+				lock.notifyAll();
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  Methods implemented by the concrete queues, always called under the lock
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Returns the number of entries in the queue, including the completed entries that were not
+	 * yet emitted.
+	 */
+	public abstract int size();
+
+	/**
+	 * Returns all entries of the queue, in the order in which they were added.
+	 */
+	public abstract Collection<StreamElementQueueEntry> values();
+
+	/** Adds the entry to the queue. */
+	protected abstract void addEntry(StreamElementQueueEntry entry);
+
+	/** Called when an entry of the queue was completed. */
+	protected abstract void onCompleteEntry(StreamElementQueueEntry entry);
+
+	/** Returns the next entry to emit, or null if no entry can be emitted. */
+	protected abstract StreamElementQueueEntry peekCompleted();
+
+	/** Removes and returns the next entry to emit, or null if no entry can be emitted. */
+	protected abstract StreamElementQueueEntry pollCompleted();
+}
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.streaming.api.operators.async.queue;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.streaming.runtime.streamrecord.StreamElement;
+import org.apache.flink.util.Preconditions;
+
+/**
+ * Entry of a {@link StreamElementQueue}. An entry holds the {@link StreamElement} for which it
+ * was created and is completed once the element can be emitted.
+ */
+@Internal
+public abstract class StreamElementQueueEntry {
+
+	/** The stream element for which the entry was created */
+	private final StreamElement streamElement;
+
+	protected StreamElementQueueEntry(StreamElement streamElement) {
+		this.streamElement = Preconditions.checkNotNull(streamElement);
+	}
+
+	public StreamElement getStreamElement() {
+		return streamElement;
+	}
+
+	/**
+	 * Returns whether the entry is completed and can be emitted. The method must only be called
+	 * while holding the lock of the queue.
+	 */
+	public abstract boolean isDone();
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.streaming.api.operators.async.queue;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.streaming.api.functions.async.collector.AsyncCollector;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.util.Preconditions;
+
+import java.util.Collection;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * {@link StreamElementQueueEntry} for a {@link StreamRecord}. The entry is the
+ * {@link AsyncCollector} that is handed to the asynchronous function, it is completed with the
+ * results of the asynchronous operation or with an error.
+ *
+ * <p>Only the first completion of the collector takes effect, later completions, for example
+ * by a timeout that fires after the result arrived, are ignored.
+ *
+ * @param <OUT> Type of the asynchronous results.
+ */
+@Internal
+public class StreamRecordQueueEntry<OUT> extends StreamElementQueueEntry implements AsyncCollector<OUT> {
+
+	/** The queue that holds the entry and is notified about its completion */
+	private final StreamElementQueue queue;
+
+	/** Whether the entry was completed, guarded by the lock of the queue */
+	private boolean done;
+
+	/** The results of the asynchronous operation */
+	private Collection<OUT> result;
+
+	/** The error of the asynchronous operation */
+	private Throwable error;
+
+	/** The timer that completes the entry with a timeout, null if there is no timeout */
+	private ScheduledFuture<?> timeoutTimer;
+
+	public StreamRecordQueueEntry(StreamRecord<?> streamRecord, StreamElementQueue queue) {
+		super(streamRecord);
+		this.queue = Preconditions.checkNotNull(queue);
+	}
+
+	@Override
+	public void collect(Collection<OUT> result) {
+		queue.complete(this, Preconditions.checkNotNull(result, "The result collection must not be null."), null);
+	}
+
+	@Override
+	public void collect(Throwable error) {
+		queue.complete(this, null, Preconditions.checkNotNull(error, "The error must not be null."));
+	}
+
+	/**
+	 * Sets the timer that completes this entry with a timeout. The timer is cancelled when the
+	 * entry is completed.
+	 */
+	public void setTimeoutTimer(ScheduledFuture<?> timeoutTimer) {
+		this.timeoutTimer = timeoutTimer;
+	}
+
+	@Override
+	public boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * Returns the results of the asynchronous operation, null if it failed.
+	 */
+	public Collection<OUT> getResult() {
+		return result;
+	}
+
+	/**
+	 * Returns the error of the asynchronous operation, null if it succeeded.
+	 */
+	public Throwable getError() {
+		return error;
+	}
+
+	/**
+	 * Completes the entry. Must be called while holding the lock of the queue.
+	 *
+	 * @return True if the entry was completed, false if it had already been completed.
+	 */
+	@SuppressWarnings("unchecked")
+	boolean complete(Collection<?> result, Throwable error) {
+		if (done) {
+			return false;
+		}
+
+		this.done = true;
+		this.result = (Collection<OUT>) result;
+		this.error = error;
+
+		if (timeoutTimer != null) {
+			timeoutTimer.cancel(false);
+			timeoutTimer = null;
+		}
+
+		return true;
+	}
+}
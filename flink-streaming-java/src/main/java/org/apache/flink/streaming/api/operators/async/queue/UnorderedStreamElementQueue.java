@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.streaming.api.operators.async.queue;
+
+import org.apache.flink.annotation.Internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * {@link StreamElementQueue} that emits completed stream records as soon as possible, while
+ * watermarks act as ordering barriers: a record is only emitted after all watermarks that were
+ * added before it, and a watermark is only emitted after all records that were added before it.
+ *
+ * <p>The entries are divided into segments that are separated by watermarks. Only the entries of
+ * the first segment can be emitted, once they are completed they are moved to the queue of
+ * completed entries. When the first segment is empty, the next segment becomes the first one.
+ * Each watermark forms a segment of its own.
+ */
+@Internal
+public class UnorderedStreamElementQueue extends StreamElementQueue {
+
+	/** The segments after the first one, the last of them is {@link #lastSet} */
+	private final ArrayDeque<Set<StreamElementQueueEntry>> uncompletedQueue;
+
+	/** The completed entries of the first segment, in the order of completion */
+	private final ArrayDeque<StreamElementQueueEntry> completedQueue;
+
+	/** The uncompleted entries of the first segment */
+	private Set<StreamElementQueueEntry> firstSet;
+
+	/** The segment to which new stream records are added */
+	private Set<StreamElementQueueEntry> lastSet;
+
+	/** The number of entries in the queue */
+	private int numberEntries;
+
+	public UnorderedStreamElementQueue(int capacity, Object lock) {
+		super(capacity, lock);
+
+		this.uncompletedQueue = new ArrayDeque<>(capacity);
+		this.completedQueue = new ArrayDeque<>(capacity);
+
+		this.firstSet = new LinkedHashSet<>(capacity);
+		this.lastSet = firstSet;
+
+		this.numberEntries = 0;
+	}
+
+	@Override
+	public int size() {
+		return numberEntries;
+	}
+
+	@Override
+	public Collection<StreamElementQueueEntry> values() {
+		ArrayList<StreamElementQueueEntry> values = new ArrayList<>(numberEntries);
+
+		values.addAll(completedQueue);
+		values.addAll(firstSet);
+
+		for (Set<StreamElementQueueEntry> set : uncompletedQueue) {
+			values.addAll(set);
+		}
+
+		return values;
+	}
+
+	@Override
+	protected void addEntry(StreamElementQueueEntry entry) {
+		if (entry instanceof WatermarkQueueEntry) {
+			lastSet = new LinkedHashSet<>(capacity);
+
+			if (firstSet.isEmpty()) {
+				firstSet.add(entry);
+			} else {
+				Set<StreamElementQueueEntry> watermarkSet = new LinkedHashSet<>(1);
+				watermarkSet.add(entry);
+				uncompletedQueue.offer(watermarkSet);
+			}
+
+			uncompletedQueue.offer(lastSet);
+		} else {
+			lastSet.add(entry);
+		}
+
+		numberEntries++;
+	}
+
+	@Override
+	protected void onCompleteEntry(StreamElementQueueEntry entry) {
+		if (firstSet.remove(entry)) {
+			completedQueue.offer(entry);
+
+			while (firstSet.isEmpty() && firstSet != lastSet) {
+				firstSet = uncompletedQueue.poll();
+
+				Iterator<StreamElementQueueEntry> iterator = firstSet.iterator();
+				while (iterator.hasNext()) {
+					StreamElementQueueEntry next = iterator.next();
+
+					if (next.isDone()) {
+						completedQueue.offer(next);
+						iterator.remove();
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	protected StreamElementQueueEntry peekCompleted() {
+		return completedQueue.peek();
+	}
+
+	@Override
+	protected StreamElementQueueEntry pollCompleted() {
+		StreamElementQueueEntry entry = completedQueue.poll();
+
+		if (entry != null) {
+			numberEntries--;
+		}
+
+		return entry;
+	}
+}
@@ -18,26 +18,37 @@
 package org.apache.flink.streaming.runtime.io;
 
 import org.apache.flink.annotation.Internal;
+import org.apache.flink.runtime.checkpoint.CheckpointDeclineReason;
 import org.apache.flink.runtime.checkpoint.CheckpointMetaData;
 import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.io.network.api.CancelCheckpointMarker;
 import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
 import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
 import org.apache.flink.runtime.io.network.partition.consumer.BufferOrEvent;
 import org.apache.flink.runtime.io.network.partition.consumer.InputGate;
 import org.apache.flink.runtime.jobgraph.tasks.StatefulTask;
+import org.apache.flink.runtime.memory.MemoryManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayDeque;
 
+import static org.apache.flink.util.Preconditions.checkArgument;
+
 /**
  * The barrier buffer is {@link CheckpointBarrierHandler} that blocks inputs with barriers until
  * all inputs have received the barrier for a given checkpoint.
  * 
  * <p>To avoid back-pressuring the input streams (which may cause distributed deadlocks), the
  * BarrierBuffer continues receiving buffers from the blocked channels and stores them internally until 
- * the blocks are released.
+ * the blocks are released. The buffers are held in a bounded amount of memory and spilled to disk once
+ * that memory is used up, see {@link BufferBlocker}.
+ *
+ * <p>The amount of data that is buffered during an alignment can be limited. If an alignment exceeds
+ * the limit, the BarrierBuffer releases the blocks and the checkpoint is declined. The task then sends
+ * a {@link CancelCheckpointMarker} downstream, which makes the BarrierBuffers of the downstream tasks
+ * release their blocks for that checkpoint as well.
  */
 @Internal
 public class BarrierBuffer implements CheckpointBarrierHandler {
@@ -53,16 +64,19 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 	/** The total number of channels that this buffer handles data from */
 	private final int totalNumberOfInputChannels;
 
-	/** To utility to write blocked data to a file channel */
-	private final BufferSpiller bufferSpiller;
+	/** The utility to hold the blocked data in memory or in a file channel */
+	private final BufferBlocker bufferBlocker;
+
+	/** The maximum number of bytes to buffer during an alignment, -1 if unlimited */
+	private final long maxBufferedBytes;
 
 	/** The pending blocked buffer/event sequences. Must be consumed before requesting
 	 * further data from the input gate. */
-	private final ArrayDeque<BufferSpiller.SpilledBufferOrEventSequence> queuedBuffered;
+	private final ArrayDeque<BufferOrEventSequence> queuedBuffered;
 
 	/** The sequence of buffers/events that has been unblocked and must now be consumed
 	 * before requesting further data from the input gate */
-	private BufferSpiller.SpilledBufferOrEventSequence currentBuffered;
+	private BufferOrEventSequence currentBuffered;
 
 	/** Handler that receives the checkpoint notifications */
 	private StatefulTask toNotifyOnCheckpoint;
@@ -70,6 +84,9 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 	/** The ID of the checkpoint for which we expect barriers */
 	private long currentCheckpointId = -1L;
 
+	/** The timestamp of the checkpoint for which we expect barriers */
+	private long currentCheckpointTimestamp;
+
 	/** The number of received barriers (= number of blocked/buffered channels) */
 	private int numBarriersReceived;
 
@@ -82,10 +99,15 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 	/** The time (in nanoseconds) that the latest alignment took */
 	private long latestAlignmentDurationNanos;
 
+	/** The number of bytes that were buffered during the latest alignment */
+	private long latestBytesBufferedInAlignment;
+
 	/** Flag to indicate whether we have drawn all available input */
 	private boolean endOfStream;
 
 	/**
+	 * Creates a new barrier buffer, which spills all blocked data and does not limit the
+	 * alignments.
 	 * 
 	 * @param inputGate The input gate to draw the buffers and events from.
 	 * @param ioManager The I/O manager that gives access to the temp directories.
@@ -93,12 +115,42 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 	 * @throws IOException Thrown, when the spilling to temp files cannot be initialized.
 	 */
 	public BarrierBuffer(InputGate inputGate, IOManager ioManager) throws IOException {
+		this(inputGate, ioManager, null, null, 0L, -1L);
+	}
+
+	/**
+	 * Creates a new barrier buffer.
+	 *
+	 * @param inputGate The input gate to draw the buffers and events from.
+	 * @param ioManager The I/O manager that gives access to the temp directories.
+	 * @param memoryManager The memory manager to allocate the memory for blocked data from, may
+	 *                      be null if no memory is used for blocked data.
+	 * @param memoryOwner The owner of the memory for blocked data, usually the task.
+	 * @param maxBufferedBytesInMemory The maximum number of bytes to hold in memory before spilling.
+	 * @param maxBufferedBytes The maximum number of bytes to buffer during an alignment before
+	 *                         the checkpoint is declined, or -1 to not limit the alignments.
+	 *
+	 * @throws IOException Thrown, when the spilling to temp files cannot be initialized.
+	 */
+	public BarrierBuffer(
+			InputGate inputGate,
+			IOManager ioManager,
+			MemoryManager memoryManager,
+			Object memoryOwner,
+			long maxBufferedBytesInMemory,
+			long maxBufferedBytes) throws IOException {
+
+		checkArgument(maxBufferedBytes == -1 || maxBufferedBytes > 0,
+				"The maximum number of buffered bytes must be positive or -1.");
+
 		this.inputGate = inputGate;
 		this.totalNumberOfInputChannels = inputGate.getNumberOfInputChannels();
 		this.blockedChannels = new boolean[this.totalNumberOfInputChannels];
 		
-		this.bufferSpiller = new BufferSpiller(ioManager, inputGate.getPageSize());
-		this.queuedBuffered = new ArrayDeque<BufferSpiller.SpilledBufferOrEventSequence>();
+		this.bufferBlocker = new BufferBlocker(
+				ioManager, memoryManager, memoryOwner, inputGate.getPageSize(), maxBufferedBytesInMemory);
+		this.maxBufferedBytes = maxBufferedBytes;
+		this.queuedBuffered = new ArrayDeque<BufferOrEventSequence>();
 	}
 
 	// ------------------------------------------------------------------------
@@ -124,7 +176,8 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 			if (next != null) {
 				if (isBlocked(next.getChannelIndex())) {
 					// if the channel is blocked we, we just store the BufferOrEvent
-					bufferSpiller.add(next);
+					bufferBlocker.add(next);
+					checkSizeLimit();
 				}
 				else if (next.isBuffer()) {
 					return next;
@@ -135,6 +188,9 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 						processBarrier((CheckpointBarrier) next.getEvent(), next.getChannelIndex());
 					}
 				}
+				else if (next.getEvent().getClass() == CancelCheckpointMarker.class) {
+					processCancellationBarrier((CancelCheckpointMarker) next.getEvent());
+				}
 				else {
 					if (next.getEvent().getClass() == EndOfPartitionEvent.class) {
 						numClosedChannels++;
@@ -181,6 +237,7 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 
 				releaseBlocks();
 				currentCheckpointId = barrierId;
+				currentCheckpointTimestamp = receivedBarrier.getTimestamp();
 				onBarrier(channelIndex);
 
 				if (LOG.isDebugEnabled()) {
@@ -197,6 +254,7 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 		else if (barrierId > currentCheckpointId) {
 			// first barrier of a new checkpoint
 			currentCheckpointId = barrierId;
+			currentCheckpointTimestamp = receivedBarrier.getTimestamp();
 			onBarrier(channelIndex);
 
 			if (LOG.isDebugEnabled()) {
@@ -222,7 +280,7 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 				CheckpointMetaData checkpointMetaData =
 						new CheckpointMetaData(receivedBarrier.getId(), receivedBarrier.getTimestamp());
 				checkpointMetaData.
-						setBytesBufferedInAlignment(bufferSpiller.getBytesWritten()).
+						setBytesBufferedInAlignment(latestBytesBufferedInAlignment).
 						setAlignmentDurationNanos(latestAlignmentDurationNanos);
 
 				toNotifyOnCheckpoint.triggerCheckpointOnBarrier(checkpointMetaData);
@@ -230,6 +288,71 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 		}
 	}
 	
+	/**
+	 * Aborts the alignment for the cancelled checkpoint, if it is the current or a newer one. An
+	 * upstream task sends the marker instead of the barriers of a checkpoint that it aborted,
+	 * so the alignment could never complete. The remaining barriers of the checkpoint are ignored.
+	 */
+	private void processCancellationBarrier(CancelCheckpointMarker cancelMarker) throws Exception {
+		final long cancelledId = cancelMarker.getCheckpointId();
+
+		if (numBarriersReceived > 0) {
+			if (cancelledId == currentCheckpointId) {
+				// cancel the current alignment
+				LOG.debug("Checkpoint {} canceled, aborting alignment", cancelledId);
+
+				releaseBlocks();
+				notifyAbort(cancelledId, currentCheckpointTimestamp, CheckpointDeclineReason.CANCELLED_BY_UPSTREAM_TASK);
+			}
+			else if (cancelledId > currentCheckpointId) {
+				// we did not complete the current checkpoint
+				LOG.warn("Received cancellation barrier for checkpoint {} before completing current checkpoint {}. " +
+						"Skipping current checkpoint.", cancelledId, currentCheckpointId);
+
+				releaseBlocks();
+				currentCheckpointId = cancelledId;
+				currentCheckpointTimestamp = 0L;
+				notifyAbort(cancelledId, 0L, CheckpointDeclineReason.CANCELLED_BY_UPSTREAM_TASK);
+			}
+
+			// else: ignore trailing (cancellation) barrier from an earlier checkpoint
+		}
+		else if (cancelledId > currentCheckpointId) {
+			// first signal for a new checkpoint, which is already cancelled
+			LOG.debug("Checkpoint {} canceled, skipping alignment", cancelledId);
+
+			currentCheckpointId = cancelledId;
+			currentCheckpointTimestamp = 0L;
+			startOfAlignmentTimestamp = 0L;
+			latestAlignmentDurationNanos = 0L;
+
+			notifyAbort(cancelledId, 0L, CheckpointDeclineReason.CANCELLED_BY_UPSTREAM_TASK);
+		}
+
+		// else: trailing cancellation barrier from a checkpoint that was aborted or completed
+	}
+
+	/**
+	 * Aborts the current alignment and declines its checkpoint, if the alignment has buffered
+	 * more data than allowed. The data of the blocked channels is consumed right away and the
+	 * remaining barriers of the checkpoint are ignored.
+	 */
+	private void checkSizeLimit() throws Exception {
+		if (maxBufferedBytes > 0 && bufferBlocker.getBytesBlocked() > maxBufferedBytes) {
+			LOG.info("Checkpoint {} aborted because the alignment buffered more than {} bytes.",
+					currentCheckpointId, maxBufferedBytes);
+
+			releaseBlocks();
+			notifyAbort(currentCheckpointId, currentCheckpointTimestamp, CheckpointDeclineReason.ALIGNMENT_LIMIT_EXCEEDED);
+		}
+	}
+
+	private void notifyAbort(long checkpointId, long timestamp, CheckpointDeclineReason reason) throws Exception {
+		if (toNotifyOnCheckpoint != null) {
+			toNotifyOnCheckpoint.abortCheckpointOnBarrier(new CheckpointMetaData(checkpointId, timestamp), reason);
+		}
+	}
+
 	@Override
 	public void registerCheckpointEventHandler(StatefulTask toNotifyOnCheckpoint) {
 		if (this.toNotifyOnCheckpoint == null) {
@@ -247,11 +370,11 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 
 	@Override
 	public void cleanup() throws IOException {
-		bufferSpiller.close();
+		bufferBlocker.close();
 		if (currentBuffered != null) {
 			currentBuffered.cleanup();
 		}
-		for (BufferSpiller.SpilledBufferOrEventSequence seq : queuedBuffered) {
+		for (BufferOrEventSequence seq : queuedBuffered) {
 			seq.cleanup();
 		}
 	}
@@ -296,10 +419,11 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 			blockedChannels[i] = false;
 		}
 		numBarriersReceived = 0;
+		latestBytesBufferedInAlignment = bufferBlocker.getBytesBlocked();
 
 		if (currentBuffered == null) {
 			// common case: no more buffered data
-			currentBuffered = bufferSpiller.rollOver();
+			currentBuffered = bufferBlocker.rollOver();
 			if (currentBuffered != null) {
 				currentBuffered.open();
 			}
@@ -309,7 +433,7 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 			// push back the pending data, if we have any
 			
 			// since we did not fully drain the previous sequence, we need to allocate a new buffer for this one
-			BufferSpiller.SpilledBufferOrEventSequence bufferedNow = bufferSpiller.rollOverWithNewBuffer();
+			BufferOrEventSequence bufferedNow = bufferBlocker.rollOverWithNewBuffer();
 			if (bufferedNow != null) {
 				bufferedNow.open();
 				queuedBuffered.addFirst(currentBuffered);
@@ -19,7 +19,9 @@
 package org.apache.flink.streaming.runtime.io;
 
 import org.apache.flink.annotation.Internal;
+import org.apache.flink.runtime.checkpoint.CheckpointDeclineReason;
 import org.apache.flink.runtime.checkpoint.CheckpointMetaData;
+import org.apache.flink.runtime.io.network.api.CancelCheckpointMarker;
 import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
 import org.apache.flink.runtime.io.network.partition.consumer.BufferOrEvent;
 import org.apache.flink.runtime.io.network.partition.consumer.InputGate;
@@ -77,12 +79,18 @@ public class BarrierTracker implements CheckpointBarrierHandler {
 			if (next == null) {
 				return null;
 			}
-			else if (next.isBuffer() || next.getEvent().getClass() != CheckpointBarrier.class) {
+			else if (next.isBuffer()) {
 				return next;
 			}
-			else {
+			else if (next.getEvent().getClass() == CheckpointBarrier.class) {
 				processBarrier((CheckpointBarrier) next.getEvent());
 			}
+			else if (next.getEvent().getClass() == CancelCheckpointMarker.class) {
+				processCheckpointAbortBarrier((CancelCheckpointMarker) next.getEvent());
+			}
+			else {
+				return next;
+			}
 		}
 	}
 
@@ -183,6 +191,30 @@ public class BarrierTracker implements CheckpointBarrierHandler {
 		}
 	}
 
+	/**
+	 * Stops tracking the cancelled checkpoint and all older ones, and declines the cancelled
+	 * checkpoint the first time a cancellation barrier for it is received.
+	 */
+	private void processCheckpointAbortBarrier(CancelCheckpointMarker cancelMarker) throws Exception {
+		final long cancelledId = cancelMarker.getCheckpointId();
+
+		// remove all checkpoints up to the cancelled one, they can not complete anymore
+		boolean wasPending = false;
+		while (!pendingCheckpoints.isEmpty() && pendingCheckpoints.peekFirst().checkpointId <= cancelledId) {
+			wasPending |= pendingCheckpoints.pollFirst().checkpointId == cancelledId;
+		}
+
+		// decline the checkpoint if it was pending, or if this is the first signal for it
+		if (wasPending || cancelledId > latestPendingCheckpointID) {
+			latestPendingCheckpointID = Math.max(latestPendingCheckpointID, cancelledId);
+
+			if (toNotifyOnCheckpoint != null) {
+				toNotifyOnCheckpoint.abortCheckpointOnBarrier(
+						new CheckpointMetaData(cancelledId, 0L), CheckpointDeclineReason.CANCELLED_BY_UPSTREAM_TASK);
+			}
+		}
+	}
+
 	// ------------------------------------------------------------------------
 
 	/**
@@ -0,0 +1,426 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.streaming.runtime.io;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferRecycler;
+import org.apache.flink.runtime.io.network.partition.consumer.BufferOrEvent;
+import org.apache.flink.runtime.memory.MemoryAllocationException;
+import org.apache.flink.runtime.memory.MemoryManager;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * The buffer blocker holds the buffers and events of the input channels that are blocked during
+ * a checkpoint alignment. It copies the buffers into a bounded pool of memory pages, so that the
+ * network buffers are recycled right away, and only spills to disk via a {@link BufferSpiller}
+ * once all pages are in use.
+ *
+ * <p>The pages are allocated lazily from the {@link MemoryManager} of the task, so that they count
+ * against the managed memory of the TaskManager and are released together with the task. If the
+ * memory manager has no free pages, the blocker spills. The pages are not taken from the network
+ * buffer pool of the input gate, because the channels that are not blocked need those buffers to
+ * receive their barriers.
+ *
+ * <p>Like the {@link BufferSpiller}, the blocker can "roll over": It presents the elements that were
+ * added since the last roll over as a readable sequence, in the order in which they were added. The
+ * pages of the sequence return to the pool when the consumer recycles the buffers.
+ *
+ * <p>IMPORTANT: The spilled parts of the sequences share the reading memory of the spiller, see
+ * {@link BufferSpiller#rollOver()}.
+ */
+@Internal
+public class BufferBlocker {
+
+	/** The I/O manager that gives access to the temp directories of the spiller */
+	private final IOManager ioManager;
+
+	/** The memory manager that the pages are allocated from, null if all blocked data is spilled */
+	private final MemoryManager memoryManager;
+
+	/** The owner of the allocated pages, usually the task */
+	private final Object memoryOwner;
+
+	/** The size of the network buffers */
+	private final int bufferSize;
+
+	/** The size of the memory pages of the memory manager */
+	private final int pageSize;
+
+	/** The maximum number of memory pages, zero if all blocked data is spilled */
+	private final int maxNumPages;
+
+	/** The pages that are currently not in use, also the lock for the page accounting */
+	private final ArrayDeque<MemorySegment> availablePages;
+
+	/** The recycler of the buffers that are backed by the pages */
+	private final BufferRecycler pageRecycler;
+
+	/** The number of pages allocated from the memory manager, at most the maximum number of pages */
+	private int numAllocatedPages;
+
+	/** Flag to indicate whether the blocker has been closed and does not take back pages */
+	private boolean closed;
+
+	/** The buffers and events that were added to memory since the last roll over */
+	private ArrayDeque<BufferOrEvent> currentCached;
+
+	/** The number of bytes that were added to memory since the last roll over */
+	private long bytesCached;
+
+	/** The spiller for the data that does not fit into memory, created on first use */
+	private BufferSpiller bufferSpiller;
+
+	/** Flag to indicate whether data was spilled since the last roll over. All following data
+	 * is spilled as well, to preserve the order of the buffers and events. */
+	private boolean spilling;
+
+	/**
+	 * Creates a new buffer blocker that spills all blocked data.
+	 *
+	 * @param ioManager The I/O manager for access to the temp directories.
+	 * @param bufferSize The page size of the network buffers.
+	 */
+	public BufferBlocker(IOManager ioManager, int bufferSize) {
+		this(ioManager, null, null, bufferSize, 0L);
+	}
+
+	/**
+	 * Creates a new buffer blocker.
+	 *
+	 * @param ioManager The I/O manager for access to the temp directories.
+	 * @param memoryManager The memory manager to allocate the pages from, may be null if no
+	 *                      memory is used for blocked data.
+	 * @param memoryOwner The owner of the allocated pages, usually the task.
+	 * @param bufferSize The page size of the network buffers.
+	 * @param maxBytesInMemory The maximum number of bytes to hold in memory before spilling.
+	 */
+	public BufferBlocker(
+			IOManager ioManager,
+			MemoryManager memoryManager,
+			Object memoryOwner,
+			int bufferSize,
+			long maxBytesInMemory) {
+
+		checkArgument(bufferSize > 0, "The buffer size must be positive.");
+		checkArgument(maxBytesInMemory >= 0, "The memory for blocked data must not be negative.");
+
+		this.ioManager = checkNotNull(ioManager);
+		this.bufferSize = bufferSize;
+
+		if (maxBytesInMemory > 0) {
+			this.memoryManager = checkNotNull(memoryManager, "The memory manager must not be null.");
+			this.memoryOwner = checkNotNull(memoryOwner, "The memory owner must not be null.");
+			this.pageSize = memoryManager.getPageSize();
+			this.maxNumPages = (int) Math.min(maxBytesInMemory / pageSize, Integer.MAX_VALUE);
+		}
+		else {
+			this.memoryManager = null;
+			this.memoryOwner = null;
+			this.pageSize = bufferSize;
+			this.maxNumPages = 0;
+		}
+
+		this.availablePages = new ArrayDeque<MemorySegment>();
+		this.pageRecycler = new PageRecycler();
+		this.currentCached = new ArrayDeque<BufferOrEvent>();
+	}
+
+	/**
+	 * Adds a buffer or event to the sequence of blocked buffers and events. The buffer of the
+	 * given element is recycled.
+	 *
+	 * @param boe The buffer or event to add.
+	 * @throws IOException Thrown, if the buffer or event could not be spilled.
+	 */
+	public void add(BufferOrEvent boe) throws IOException {
+		if (!spilling) {
+			if (!boe.isBuffer()) {
+				// events are small and kept as they are
+				currentCached.add(boe);
+				return;
+			}
+
+			final Buffer buffer = boe.getBuffer();
+			final int size = buffer.getSize();
+			final MemorySegment page = size <= pageSize ? requestPage() : null;
+
+			if (page != null) {
+				try {
+					buffer.getMemorySegment().copyTo(0, page, 0, size);
+				}
+				finally {
+					buffer.recycle();
+				}
+
+				Buffer cachedBuffer = new Buffer(page, pageRecycler);
+				cachedBuffer.setSize(size);
+
+				currentCached.add(new BufferOrEvent(cachedBuffer, boe.getChannelIndex()));
+				bytesCached += size;
+				return;
+			}
+
+			spilling = true;
+		}
+
+		if (bufferSpiller == null) {
+			bufferSpiller = new BufferSpiller(ioManager, bufferSize);
+		}
+		bufferSpiller.add(boe);
+	}
+
+	/**
+	 * Starts a new sequence of blocked buffers and events and returns the current sequence for
+	 * reading. This method returns {@code null}, if nothing was added since the creation of the
+	 * blocker, or the last call to this method.
+	 *
+	 * @return The readable sequence of blocked buffers and events, or 'null', if nothing was added.
+	 * @throws IOException Thrown, if the spilled part of the sequence could not be created.
+	 *
+	 * @see BufferSpiller#rollOver()
+	 */
+	public BufferOrEventSequence rollOver() throws IOException {
+		return rollOverInternal(false);
+	}
+
+	/**
+	 * Starts a new sequence of blocked buffers and events and returns the current sequence for
+	 * reading. The returned sequence is safe for concurrent consumption with any previously
+	 * returned sequence.
+	 *
+	 * @return The readable sequence of blocked buffers and events, or 'null', if nothing was added.
+	 * @throws IOException Thrown, if the spilled part of the sequence could not be created.
+	 *
+	 * @see BufferSpiller#rollOverWithNewBuffer()
+	 */
+	public BufferOrEventSequence rollOverWithNewBuffer() throws IOException {
+		return rollOverInternal(true);
+	}
+
+	private BufferOrEventSequence rollOverInternal(boolean newBuffer) throws IOException {
+		BufferOrEventSequence cached = currentCached.isEmpty() ? null : new CachedBufferOrEventSequence(currentCached);
+		BufferOrEventSequence spilled = null;
+
+		if (spilling) {
+			spilled = newBuffer ? bufferSpiller.rollOverWithNewBuffer() : bufferSpiller.rollOver();
+		}
+
+		currentCached = new ArrayDeque<BufferOrEvent>();
+		bytesCached = 0L;
+		spilling = false;
+
+		if (cached == null) {
+			return spilled;
+		}
+		else if (spilled == null) {
+			return cached;
+		}
+		else {
+			// the cached elements were added before the spilled ones
+			return new ConcatenatedBufferOrEventSequence(cached, spilled);
+		}
+	}
+
+	/**
+	 * Releases the memory of the blocker and cleans up the spill file. Does not clean up the
+	 * sequences returned by previous roll overs, their pages are released to the memory manager
+	 * when the sequences are consumed or cleaned up.
+	 *
+	 * @throws IOException Thrown if the spill file could not be cleaned up.
+	 */
+	public void close() throws IOException {
+		synchronized (availablePages) {
+			closed = true;
+			if (!availablePages.isEmpty()) {
+				numAllocatedPages -= availablePages.size();
+				// also clears the available pages
+				memoryManager.release(availablePages);
+			}
+		}
+
+		BufferOrEvent boe;
+		while ((boe = currentCached.poll()) != null) {
+			if (boe.isBuffer()) {
+				boe.getBuffer().recycle();
+			}
+		}
+
+		if (bufferSpiller != null) {
+			bufferSpiller.close();
+		}
+	}
+
+	/**
+	 * Gets the number of bytes that were added since the last roll over, in memory and on disk.
+	 *
+	 * @return The number of bytes that were added since the last roll over.
+	 */
+	public long getBytesBlocked() {
+		return bytesCached + (bufferSpiller != null ? bufferSpiller.getBytesWritten() : 0L);
+	}
+
+	// ------------------------------------------------------------------------
+	//  For testing
+	// ------------------------------------------------------------------------
+
+	int getNumberOfAllocatedPages() {
+		synchronized (availablePages) {
+			return numAllocatedPages;
+		}
+	}
+
+	int getNumberOfAvailablePages() {
+		synchronized (availablePages) {
+			return availablePages.size();
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  Utilities
+	// ------------------------------------------------------------------------
+
+	private MemorySegment requestPage() {
+		synchronized (availablePages) {
+			MemorySegment page = availablePages.poll();
+
+			if (page == null && numAllocatedPages < maxNumPages) {
+				try {
+					page = memoryManager.allocatePages(memoryOwner, 1).get(0);
+					numAllocatedPages++;
+				}
+				catch (MemoryAllocationException e) {
+					// the managed memory is used up, the data is spilled
+					return null;
+				}
+			}
+
+			return page;
+		}
+	}
+
+	/**
+	 * Takes back the pages of the recycled buffers for the next alignments, or releases them to
+	 * the memory manager once the blocker is closed.
+	 */
+	private class PageRecycler implements BufferRecycler {
+
+		@Override
+		public void recycle(MemorySegment page) {
+			synchronized (availablePages) {
+				if (!closed) {
+					availablePages.add(page);
+				}
+				else {
+					numAllocatedPages--;
+					memoryManager.release(page);
+				}
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * A sequence of buffers and events, which are held in memory.
+	 */
+	private static class CachedBufferOrEventSequence implements BufferOrEventSequence {
+
+		/** The buffers and events of this sequence */
+		private final ArrayDeque<BufferOrEvent> queuedBuffers;
+
+		CachedBufferOrEventSequence(ArrayDeque<BufferOrEvent> queuedBuffers) {
+			this.queuedBuffers = queuedBuffers;
+		}
+
+		@Override
+		public void open() {}
+
+		@Override
+		public BufferOrEvent getNext() {
+			return queuedBuffers.poll();
+		}
+
+		@Override
+		public void cleanup() {
+			BufferOrEvent boe;
+			while ((boe = queuedBuffers.poll()) != null) {
+				if (boe.isBuffer()) {
+					boe.getBuffer().recycle();
+				}
+			}
+		}
+	}
+
+	/**
+	 * A sequence that consumes a first and then a second sequence.
+	 */
+	private static class ConcatenatedBufferOrEventSequence implements BufferOrEventSequence {
+
+		private final BufferOrEventSequence first;
+
+		private final BufferOrEventSequence second;
+
+		/** Flag to indicate whether the first sequence is exhausted and has been cleaned up */
+		private boolean firstConsumed;
+
+		ConcatenatedBufferOrEventSequence(BufferOrEventSequence first, BufferOrEventSequence second) {
+			this.first = first;
+			this.second = second;
+		}
+
+		@Override
+		public void open() {
+			first.open();
+		}
+
+		@Override
+		public BufferOrEvent getNext() throws IOException {
+			if (!firstConsumed) {
+				BufferOrEvent next = first.getNext();
+				if (next != null) {
+					return next;
+				}
+
+				first.cleanup();
+				firstConsumed = true;
+
+				second.open();
+			}
+
+			return second.getNext();
+		}
+
+		@Override
+		public void cleanup() throws IOException {
+			if (!firstConsumed) {
+				firstConsumed = true;
+				first.cleanup();
+			}
+			second.cleanup();
+		}
+	}
+}
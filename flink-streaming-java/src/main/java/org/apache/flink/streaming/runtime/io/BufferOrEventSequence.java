@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.io;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.runtime.io.network.partition.consumer.BufferOrEvent;
+
+import java.io.IOException;
+
+/**
+ * A sequence of buffers and events, which the {@link BarrierBuffer} held back during a checkpoint
+ * alignment and which are consumed before any further data of the input gate.
+ */
+@Internal
+public interface BufferOrEventSequence {
+
+	/**
+	 * Initializes the sequence for reading.
+	 * This method needs to be called before the first call to {@link #getNext()}. Otherwise
+	 * the results of {@link #getNext()} are not predictable.
+	 */
+	void open();
+
+	/**
+	 * Gets the next BufferOrEvent from the sequence, or {@code null}, if the sequence is exhausted.
+	 *
+	 * @return The next BufferOrEvent from the sequence, or {@code null} (end of sequence).
+	 * @throws IOException Thrown, if the next element could not be read.
+	 */
+	BufferOrEvent getNext() throws IOException;
+
+	/**
+	 * Cleans up all resources held by this sequence.
+	 *
+	 * @throws IOException Thrown, if the resources could not be released.
+	 */
+	void cleanup() throws IOException;
+}
@@ -264,7 +264,7 @@ public class BufferSpiller {
 	 * {@link BufferSpiller}. The sequence of buffers and events can be read back using the
 	 * method {@link #getNext()}.
 	 */
-	public static class SpilledBufferOrEventSequence {
+	public static class SpilledBufferOrEventSequence implements BufferOrEventSequence {
 
 		/** Header is "channel index" (4 bytes) + length (4 bytes) + buffer/event (1 byte) */
 		private static final int HEADER_LENGTH = 9;
@@ -304,6 +304,7 @@ public class BufferSpiller {
 		 * This method needs to be called before the first call to {@link #getNext()}. Otherwise
 		 * the results of {@link #getNext()} are not predictable.
 		 */
+		@Override
 		public void open() {
 			if (!opened) {
 				opened = true;
@@ -319,6 +320,7 @@ public class BufferSpiller {
 		 * @return The next BufferOrEvent from the spilled sequence, or {@code null} (end of sequence).
 		 * @throws IOException Thrown, if the reads failed, of if the byte stream is corrupt.
 		 */
+		@Override
 		public BufferOrEvent getNext() throws IOException {
 			if (buffer.remaining() < HEADER_LENGTH) {
 				buffer.compact();
@@ -412,6 +414,7 @@ public class BufferSpiller {
 		 * 
 		 * @throws IOException Thrown, if file channel closing or file deletion fail. 
 		 */
+		@Override
 		public void cleanup() throws IOException {
 			fileChannel.close();
 			if (!file.delete()) {
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.streaming.runtime.io;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.configuration.ConfigConstants;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.IllegalConfigurationException;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.io.network.partition.consumer.InputGate;
+import org.apache.flink.runtime.memory.MemoryManager;
+import org.apache.flink.streaming.api.CheckpointingMode;
+
+import java.io.IOException;
+
+/**
+ * Utility for creating the {@link CheckpointBarrierHandler} of the stream input processors.
+ */
+@Internal
+public class InputProcessorUtil {
+
+	/**
+	 * Creates the barrier handler for the given checkpointing mode. In exactly-once mode, the
+	 * alignment is configured with {@link ConfigConstants#TASK_CHECKPOINT_ALIGNMENT_MEMORY} and
+	 * {@link ConfigConstants#TASK_CHECKPOINT_ALIGNMENT_MAX_SIZE}.
+	 *
+	 * @param checkpointMode The checkpointing mode of the task.
+	 * @param inputGate The input gate to draw the buffers and events from.
+	 * @param ioManager The I/O manager that gives access to the temp directories.
+	 * @param memoryManager The memory manager to allocate the memory for the alignment from.
+	 * @param memoryOwner The owner of the memory for the alignment, usually the task.
+	 * @param taskManagerConfig The configuration of the task manager.
+	 *
+	 * @throws IOException Thrown, when the spilling to temp files cannot be initialized.
+	 */
+	public static CheckpointBarrierHandler createCheckpointBarrierHandler(
+			CheckpointingMode checkpointMode,
+			InputGate inputGate,
+			IOManager ioManager,
+			MemoryManager memoryManager,
+			Object memoryOwner,
+			Configuration taskManagerConfig) throws IOException {
+
+		if (checkpointMode == CheckpointingMode.EXACTLY_ONCE) {
+			long maxBufferedBytesInMemory = taskManagerConfig.getLong(
+					ConfigConstants.TASK_CHECKPOINT_ALIGNMENT_MEMORY,
+					ConfigConstants.DEFAULT_TASK_CHECKPOINT_ALIGNMENT_MEMORY);
+
+			long maxBufferedBytes = taskManagerConfig.getLong(
+					ConfigConstants.TASK_CHECKPOINT_ALIGNMENT_MAX_SIZE,
+					ConfigConstants.DEFAULT_TASK_CHECKPOINT_ALIGNMENT_MAX_SIZE);
+
+			if (maxBufferedBytesInMemory < 0) {
+				throw new IllegalConfigurationException("Invalid value for '"
+						+ ConfigConstants.TASK_CHECKPOINT_ALIGNMENT_MEMORY + "': " + maxBufferedBytesInMemory
+						+ ". The memory for the checkpoint alignment must not be negative.");
+			}
+			if (maxBufferedBytes != -1 && maxBufferedBytes <= 0) {
+				throw new IllegalConfigurationException("Invalid value for '"
+						+ ConfigConstants.TASK_CHECKPOINT_ALIGNMENT_MAX_SIZE + "': " + maxBufferedBytes
+						+ ". The maximum size of the checkpoint alignment must be positive or -1.");
+			}
+
+			return new BarrierBuffer(
+					inputGate, ioManager, memoryManager, memoryOwner, maxBufferedBytesInMemory, maxBufferedBytes);
+		}
+		else if (checkpointMode == CheckpointingMode.AT_LEAST_ONCE) {
+			return new BarrierTracker(inputGate);
+		}
+		else {
+			throw new IllegalArgumentException("Unrecognized Checkpointing Mode: " + checkpointMode);
+		}
+	}
+
+	/**
+	 * Private constructor to prevent instantiation.
+	 */
+	private InputProcessorUtil() {
+		throw new RuntimeException();
+	}
+}
@@ -30,6 +30,8 @@ import org.apache.flink.streaming.runtime.streamrecord.StreamElement;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamElementSerializer;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamstatus.StreamStatus;
+import org.apache.flink.streaming.runtime.streamstatus.StreamStatusProvider;
 
 import static org.apache.flink.util.Preconditions.checkNotNull;
 
@@ -43,13 +45,17 @@ public class RecordWriterOutput<OUT> implements Output<StreamRecord<OUT>> {
 	
 	private SerializationDelegate<StreamElement> serializationDelegate;
 
+	private final StreamStatusProvider streamStatusProvider;
+
 	
 	@SuppressWarnings("unchecked")
 	public RecordWriterOutput(
 			StreamRecordWriter<SerializationDelegate<StreamRecord<OUT>>> recordWriter,
-			TypeSerializer<OUT> outSerializer) {
+			TypeSerializer<OUT> outSerializer,
+			StreamStatusProvider streamStatusProvider) {
 
 		checkNotNull(recordWriter);
+		this.streamStatusProvider = checkNotNull(streamStatusProvider);
 		
 		// generic hack: cast the writer to generic Object type so we can use it 
 		// with multiplexed records and watermarks
@@ -78,6 +84,12 @@ public class RecordWriterOutput<OUT> implements Output<StreamRecord<OUT>> {
 
 	@Override
 	public void emitWatermark(Watermark mark) {
+		// idle streams do not send watermarks, the downstream tasks ignore them until they
+		// become active again
+		if (streamStatusProvider.getStreamStatus().isIdle()) {
+			return;
+		}
+
 		serializationDelegate.setInstance(mark);
 		
 		try {
@@ -88,6 +100,17 @@ public class RecordWriterOutput<OUT> implements Output<StreamRecord<OUT>> {
 		}
 	}
 
+	public void emitStreamStatus(StreamStatus streamStatus) {
+		serializationDelegate.setInstance(streamStatus);
+
+		try {
+			recordWriter.broadcastEmit(serializationDelegate);
+		}
+		catch (Exception e) {
+			throw new RuntimeException(e.getMessage(), e);
+		}
+	}
+
 	@Override
 	public void emitLatencyMarker(LatencyMarker latencyMarker) {
 		serializationDelegate.setInstance(latencyMarker);
@@ -22,6 +22,7 @@ import java.io.IOException;
 
 import org.apache.flink.annotation.Internal;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.configuration.Configuration;
 import org.apache.flink.metrics.Counter;
 import org.apache.flink.metrics.Gauge;
 import org.apache.flink.runtime.jobgraph.tasks.StatefulTask;
@@ -37,6 +38,7 @@ import org.apache.flink.runtime.io.network.api.serialization.SpillingAdaptiveSpa
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.partition.consumer.BufferOrEvent;
 import org.apache.flink.runtime.io.network.partition.consumer.InputGate;
+import org.apache.flink.runtime.memory.MemoryManager;
 import org.apache.flink.runtime.plugable.DeserializationDelegate;
 import org.apache.flink.runtime.plugable.NonReusingDeserializationDelegate;
 import org.apache.flink.streaming.api.CheckpointingMode;
@@ -45,13 +47,20 @@ import org.apache.flink.streaming.runtime.streamrecord.StreamElement;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamElementSerializer;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamstatus.StatusWatermarkValve;
+import org.apache.flink.streaming.runtime.streamstatus.StreamStatus;
+import org.apache.flink.streaming.runtime.streamstatus.StreamStatusMaintainer;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
 
 /**
  * Input reader for {@link org.apache.flink.streaming.runtime.tasks.OneInputStreamTask}.
  *
  * <p>
  * This also keeps track of {@link Watermark} events and forwards them to event subscribers
- * once the {@link Watermark} from all inputs advances.
+ * once the {@link Watermark} from all inputs advances. Inputs that are marked as idle through
+ * a {@link StreamStatus} are excluded from the watermark, and the task itself becomes idle
+ * once all of its inputs are idle.
  *
  * <p>
  * Forwarding elements or watermarks must be protected by synchronizing on the given lock
@@ -75,8 +84,14 @@ public class StreamInputProcessor<IN> {
 
 	private boolean isFinished;
 
-	private final long[] watermarks;
-	private long lastEmittedWatermark;
+	/** Valve that controls how watermarks and stream statuses are forwarded */
+	private final StatusWatermarkValve statusWatermarkValve;
+
+	private final StreamStatusMaintainer streamStatusMaintainer;
+
+	/** The operator and lock that the valve outputs go to, set for each call of processInput */
+	private OneInputStreamOperator<IN, ?> currentOperator;
+	private Object currentLock;
 
 	private final DeserializationDelegate<StreamElement> deserializationDelegate;
 
@@ -87,20 +102,16 @@ public class StreamInputProcessor<IN> {
 			InputGate[] inputGates,
 			TypeSerializer<IN> inputSerializer,
 			StatefulTask checkpointedTask,
+			StreamStatusMaintainer streamStatusMaintainer,
 			CheckpointingMode checkpointMode,
-			IOManager ioManager) throws IOException {
+			IOManager ioManager,
+			MemoryManager memoryManager,
+			Configuration taskManagerConfig) throws IOException {
 
 		InputGate inputGate = InputGateUtil.createInputGate(inputGates);
 
-		if (checkpointMode == CheckpointingMode.EXACTLY_ONCE) {
-			this.barrierHandler = new BarrierBuffer(inputGate, ioManager);
-		}
-		else if (checkpointMode == CheckpointingMode.AT_LEAST_ONCE) {
-			this.barrierHandler = new BarrierTracker(inputGate);
-		}
-		else {
-			throw new IllegalArgumentException("Unrecognized Checkpointing Mode: " + checkpointMode);
-		}
+		this.barrierHandler = InputProcessorUtil.createCheckpointBarrierHandler(
+				checkpointMode, inputGate, ioManager, memoryManager, checkpointedTask, taskManagerConfig);
 		
 		if (checkpointedTask != null) {
 			this.barrierHandler.registerCheckpointEventHandler(checkpointedTask);
@@ -117,11 +128,9 @@ public class StreamInputProcessor<IN> {
 					ioManager.getSpillingDirectoriesPaths());
 		}
 
-		watermarks = new long[inputGate.getNumberOfInputChannels()];
-		for (int i = 0; i < inputGate.getNumberOfInputChannels(); i++) {
-			watermarks[i] = Long.MIN_VALUE;
-		}
-		lastEmittedWatermark = Long.MIN_VALUE;
+		this.streamStatusMaintainer = checkNotNull(streamStatusMaintainer);
+		this.statusWatermarkValve = new StatusWatermarkValve(
+				inputGate.getNumberOfInputChannels(), new ForwardingValveOutputHandler());
 	}
 
 	@SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
@@ -132,6 +141,8 @@ public class StreamInputProcessor<IN> {
 		if (numRecordsIn == null) {
 			numRecordsIn = ((OperatorMetricGroup) streamOperator.getMetricGroup()).getIOMetricGroup().getNumRecordsInCounter();
 		}
+		currentOperator = streamOperator;
+		currentLock = lock;
 
 		while (true) {
 			if (currentRecordDeserializer != null) {
@@ -146,20 +157,12 @@ public class StreamInputProcessor<IN> {
 					StreamElement recordOrMark = deserializationDelegate.getInstance();
 
 					if (recordOrMark.isWatermark()) {
-						long watermarkMillis = recordOrMark.asWatermark().getTimestamp();
-						if (watermarkMillis > watermarks[currentChannel]) {
-							watermarks[currentChannel] = watermarkMillis;
-							long newMinWatermark = Long.MAX_VALUE;
-							for (long watermark: watermarks) {
-								newMinWatermark = Math.min(watermark, newMinWatermark);
-							}
-							if (newMinWatermark > lastEmittedWatermark) {
-								lastEmittedWatermark = newMinWatermark;
-								synchronized (lock) {
-									streamOperator.processWatermark(new Watermark(lastEmittedWatermark));
-								}
-							}
-						}
+						// handle watermark
+						statusWatermarkValve.inputWatermark(recordOrMark.asWatermark(), currentChannel);
+						continue;
+					} else if (recordOrMark.isStreamStatus()) {
+						// handle stream status
+						statusWatermarkValve.inputStreamStatus(recordOrMark.asStreamStatus(), currentChannel);
 						continue;
 					} else if(recordOrMark.isLatencyMarker()) {
 						// handle latency marker
@@ -220,7 +223,7 @@ public class StreamInputProcessor<IN> {
 		metrics.gauge("currentLowWatermark", new Gauge<Long>() {
 			@Override
 			public Long getValue() {
-				return lastEmittedWatermark;
+				return statusWatermarkValve.getLastOutputWatermark();
 			}
 		});
 
@@ -244,4 +247,27 @@ public class StreamInputProcessor<IN> {
 		// cleanup the barrier handler resources
 		barrierHandler.cleanup();
 	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Forwards the outputs of the {@link StatusWatermarkValve} to the operator and to the
+	 * stream status maintainer of the task.
+	 */
+	private class ForwardingValveOutputHandler implements StatusWatermarkValve.ValveOutputHandler {
+
+		@Override
+		public void handleWatermark(Watermark watermark) throws Exception {
+			synchronized (currentLock) {
+				currentOperator.processWatermark(watermark);
+			}
+		}
+
+		@Override
+		public void handleStreamStatus(StreamStatus streamStatus) {
+			synchronized (currentLock) {
+				streamStatusMaintainer.toggleStreamStatus(streamStatus);
+			}
+		}
+	}
 }
@@ -20,6 +20,7 @@ package org.apache.flink.streaming.runtime.io;
 
 import org.apache.flink.annotation.Internal;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.configuration.Configuration;
 import org.apache.flink.metrics.Gauge;
 import org.apache.flink.runtime.jobgraph.tasks.StatefulTask;
 import org.apache.flink.runtime.metrics.groups.TaskIOMetricGroup;
@@ -33,6 +34,7 @@ import org.apache.flink.runtime.io.network.api.serialization.SpillingAdaptiveSpa
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.partition.consumer.BufferOrEvent;
 import org.apache.flink.runtime.io.network.partition.consumer.InputGate;
+import org.apache.flink.runtime.memory.MemoryManager;
 import org.apache.flink.runtime.plugable.DeserializationDelegate;
 import org.apache.flink.runtime.plugable.NonReusingDeserializationDelegate;
 import org.apache.flink.streaming.api.CheckpointingMode;
@@ -40,17 +42,23 @@ import org.apache.flink.streaming.api.operators.TwoInputStreamOperator;
 import org.apache.flink.streaming.runtime.streamrecord.StreamElement;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamElementSerializer;
+import org.apache.flink.streaming.runtime.streamstatus.StatusWatermarkValve;
+import org.apache.flink.streaming.runtime.streamstatus.StreamStatus;
+import org.apache.flink.streaming.runtime.streamstatus.StreamStatusMaintainer;
 
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.Collection;
 
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
 /**
  * Input reader for {@link org.apache.flink.streaming.runtime.tasks.TwoInputStreamTask}.
  *
  * <p>
  * This also keeps track of {@link org.apache.flink.streaming.api.watermark.Watermark} events and forwards them to event subscribers
  * once the {@link org.apache.flink.streaming.api.watermark.Watermark} from all inputs advances.
+ * Channels that are marked as idle through a {@link StreamStatus} are excluded from the
+ * watermark of their input, and the task itself only becomes idle once both inputs are idle.
  *
  * <p>
  * Forwarding elements or watermarks must be protected by synchronizing on the given lock
@@ -75,11 +83,19 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 
 	private final CheckpointBarrierHandler barrierHandler;
 
-	private final long[] watermarks1;
-	private long lastEmittedWatermark1;
+	/** Valves that control how watermarks and stream statuses of each input are forwarded */
+	private final StatusWatermarkValve statusWatermarkValve1;
+	private final StatusWatermarkValve statusWatermarkValve2;
+
+	/** The last stream status that each of the inputs reported */
+	private StreamStatus streamStatus1 = StreamStatus.ACTIVE;
+	private StreamStatus streamStatus2 = StreamStatus.ACTIVE;
 
-	private final long[] watermarks2;
-	private long lastEmittedWatermark2;
+	private final StreamStatusMaintainer streamStatusMaintainer;
+
+	/** The operator and lock that the valve outputs go to, set for each call of processInput */
+	private TwoInputStreamOperator<IN1, IN2, ?> currentOperator;
+	private Object currentLock;
 
 	private final int numInputChannels1;
 
@@ -93,20 +109,16 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 			TypeSerializer<IN1> inputSerializer1,
 			TypeSerializer<IN2> inputSerializer2,
 			StatefulTask checkpointedTask,
+			StreamStatusMaintainer streamStatusMaintainer,
 			CheckpointingMode checkpointMode,
-			IOManager ioManager) throws IOException {
+			IOManager ioManager,
+			MemoryManager memoryManager,
+			Configuration taskManagerConfig) throws IOException {
 		
 		final InputGate inputGate = InputGateUtil.createInputGate(inputGates1, inputGates2);
 
-		if (checkpointMode == CheckpointingMode.EXACTLY_ONCE) {
-			this.barrierHandler = new BarrierBuffer(inputGate, ioManager);
-		}
-		else if (checkpointMode == CheckpointingMode.AT_LEAST_ONCE) {
-			this.barrierHandler = new BarrierTracker(inputGate);
-		}
-		else {
-			throw new IllegalArgumentException("Unrecognized CheckpointingMode: " + checkpointMode);
-		}
+		this.barrierHandler = InputProcessorUtil.createCheckpointBarrierHandler(
+				checkpointMode, inputGate, ioManager, memoryManager, checkpointedTask, taskManagerConfig);
 		
 		if (checkpointedTask != null) {
 			this.barrierHandler.registerCheckpointEventHandler(checkpointedTask);
@@ -135,13 +147,9 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 		this.numInputChannels1 = numInputChannels1;
 		int numInputChannels2 = inputGate.getNumberOfInputChannels() - numInputChannels1;
 
-		watermarks1 = new long[numInputChannels1];
-		Arrays.fill(watermarks1, Long.MIN_VALUE);
-		lastEmittedWatermark1 = Long.MIN_VALUE;
-
-		watermarks2 = new long[numInputChannels2];
-		Arrays.fill(watermarks2, Long.MIN_VALUE);
-		lastEmittedWatermark2 = Long.MIN_VALUE;
+		this.streamStatusMaintainer = checkNotNull(streamStatusMaintainer);
+		this.statusWatermarkValve1 = new StatusWatermarkValve(numInputChannels1, new ForwardingValveOutputHandler1());
+		this.statusWatermarkValve2 = new StatusWatermarkValve(numInputChannels2, new ForwardingValveOutputHandler2());
 	}
 
 	@SuppressWarnings("unchecked")
@@ -149,6 +157,8 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 		if (isFinished) {
 			return false;
 		}
+		currentOperator = streamOperator;
+		currentLock = lock;
 
 		while (true) {
 			if (currentRecordDeserializer != null) {
@@ -168,7 +178,11 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 					if (currentChannel < numInputChannels1) {
 						StreamElement recordOrWatermark = deserializationDelegate1.getInstance();
 						if (recordOrWatermark.isWatermark()) {
-							handleWatermark(streamOperator, recordOrWatermark.asWatermark(), currentChannel, lock);
+							statusWatermarkValve1.inputWatermark(recordOrWatermark.asWatermark(), currentChannel);
+							continue;
+						}
+						else if (recordOrWatermark.isStreamStatus()) {
+							statusWatermarkValve1.inputStreamStatus(recordOrWatermark.asStreamStatus(), currentChannel);
 							continue;
 						}
 						else if (recordOrWatermark.isLatencyMarker()) {
@@ -189,7 +203,11 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 					else {
 						StreamElement recordOrWatermark = deserializationDelegate2.getInstance();
 						if (recordOrWatermark.isWatermark()) {
-							handleWatermark(streamOperator, recordOrWatermark.asWatermark(), currentChannel, lock);
+							statusWatermarkValve2.inputWatermark(recordOrWatermark.asWatermark(), currentChannel - numInputChannels1);
+							continue;
+						}
+						else if (recordOrWatermark.isStreamStatus()) {
+							statusWatermarkValve2.inputStreamStatus(recordOrWatermark.asStreamStatus(), currentChannel - numInputChannels1);
 							continue;
 						}
 						else if (recordOrWatermark.isLatencyMarker()) {
@@ -235,41 +253,6 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 		}
 	}
 
-	private void handleWatermark(TwoInputStreamOperator<IN1, IN2, ?> operator, Watermark mark, int channelIndex, Object lock) throws Exception {
-		if (channelIndex < numInputChannels1) {
-			long watermarkMillis = mark.getTimestamp();
-			if (watermarkMillis > watermarks1[channelIndex]) {
-				watermarks1[channelIndex] = watermarkMillis;
-				long newMinWatermark = Long.MAX_VALUE;
-				for (long wm : watermarks1) {
-					newMinWatermark = Math.min(wm, newMinWatermark);
-				}
-				if (newMinWatermark > lastEmittedWatermark1) {
-					lastEmittedWatermark1 = newMinWatermark;
-					synchronized (lock) {
-						operator.processWatermark1(new Watermark(lastEmittedWatermark1));
-					}
-				}
-			}
-		} else {
-			channelIndex = channelIndex - numInputChannels1;
-			long watermarkMillis = mark.getTimestamp();
-			if (watermarkMillis > watermarks2[channelIndex]) {
-				watermarks2[channelIndex] = watermarkMillis;
-				long newMinWatermark = Long.MAX_VALUE;
-				for (long wm : watermarks2) {
-					newMinWatermark = Math.min(wm, newMinWatermark);
-				}
-				if (newMinWatermark > lastEmittedWatermark2) {
-					lastEmittedWatermark2 = newMinWatermark;
-					synchronized (lock) {
-						operator.processWatermark2(new Watermark(lastEmittedWatermark2));
-					}
-				}
-			}
-		}
-	}
-	
 	public void setReporter(AccumulatorRegistry.Reporter reporter) {
 		for (RecordDeserializer<?> deserializer : recordDeserializers) {
 			deserializer.setReporter(reporter);
@@ -285,7 +268,7 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 		metrics.gauge("currentLowWatermark", new Gauge<Long>() {
 			@Override
 			public Long getValue() {
-				return Math.min(lastEmittedWatermark1, lastEmittedWatermark2);
+				return Math.min(statusWatermarkValve1.getLastOutputWatermark(), statusWatermarkValve2.getLastOutputWatermark());
 			}
 		});
 
@@ -309,4 +292,62 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 		// cleanup the barrier handler resources
 		barrierHandler.cleanup();
 	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Toggles the stream status of the task, which is idle only if both inputs are idle.
+	 * Must be called while holding the lock.
+	 */
+	private void updateStreamStatus(StreamStatus newStatus1, StreamStatus newStatus2) {
+		boolean wasIdle = streamStatus1.isIdle() && streamStatus2.isIdle();
+		boolean isIdle = newStatus1.isIdle() && newStatus2.isIdle();
+
+		streamStatus1 = newStatus1;
+		streamStatus2 = newStatus2;
+
+		if (wasIdle != isIdle) {
+			streamStatusMaintainer.toggleStreamStatus(isIdle ? StreamStatus.IDLE : StreamStatus.ACTIVE);
+		}
+	}
+
+	/**
+	 * Forwards the outputs of the {@link StatusWatermarkValve} of the first input.
+	 */
+	private class ForwardingValveOutputHandler1 implements StatusWatermarkValve.ValveOutputHandler {
+
+		@Override
+		public void handleWatermark(Watermark watermark) throws Exception {
+			synchronized (currentLock) {
+				currentOperator.processWatermark1(watermark);
+			}
+		}
+
+		@Override
+		public void handleStreamStatus(StreamStatus streamStatus) {
+			synchronized (currentLock) {
+				updateStreamStatus(streamStatus, streamStatus2);
+			}
+		}
+	}
+
+	/**
+	 * Forwards the outputs of the {@link StatusWatermarkValve} of the second input.
+	 */
+	private class ForwardingValveOutputHandler2 implements StatusWatermarkValve.ValveOutputHandler {
+
+		@Override
+		public void handleWatermark(Watermark watermark) throws Exception {
+			synchronized (currentLock) {
+				currentOperator.processWatermark2(watermark);
+			}
+		}
+
+		@Override
+		public void handleStreamStatus(StreamStatus streamStatus) {
+			synchronized (currentLock) {
+				updateStreamStatus(streamStatus1, streamStatus);
+			}
+		}
+	}
 }
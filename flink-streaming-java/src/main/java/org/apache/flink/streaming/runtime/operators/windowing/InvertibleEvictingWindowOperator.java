@@ -0,0 +1,326 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.operators.windowing;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.base.LongSerializer;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.api.java.typeutils.runtime.TupleSerializer;
+import org.apache.flink.streaming.api.functions.windowing.InvertibleReduceFunction;
+import org.apache.flink.streaming.api.operators.InternalTimer;
+import org.apache.flink.streaming.api.windowing.assigners.MergingWindowAssigner;
+import org.apache.flink.streaming.api.windowing.assigners.WindowAssigner;
+import org.apache.flink.streaming.api.windowing.evictors.Evictor;
+import org.apache.flink.streaming.api.windowing.triggers.Trigger;
+import org.apache.flink.streaming.api.windowing.triggers.TriggerResult;
+import org.apache.flink.streaming.api.windowing.windows.Window;
+import org.apache.flink.streaming.runtime.operators.windowing.functions.InternalWindowFunction;
+import org.apache.flink.streaming.runtime.streamrecord.StreamElementSerializer;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+
+import java.util.AbstractList;
+import java.util.Collection;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * A {@link WindowOperator} with an {@link Evictor} that aggregates the elements of each window
+ * incrementally with an {@link InvertibleReduceFunction}.
+ *
+ * <p>
+ * Unlike the {@link EvictingWindowOperator}, which re-aggregates all elements of a window
+ * whenever it fires, this operator keeps a running aggregate per window. When a
+ * {@link Trigger} fires, the elements that the {@code Evictor} evicts are removed from the
+ * aggregate with {@link InvertibleReduceFunction#invert(Object, Object)}, and they are removed
+ * from the window state as well. The state of a window therefore only holds the elements that
+ * may still be evicted later, in the order of their arrival, keyed by a sequence number.
+ *
+ * <p>
+ * Merging window assigners are not supported, just as with the {@code EvictingWindowOperator}.
+ *
+ * @param <K> The type of key returned by the {@code KeySelector}.
+ * @param <IN> The type of the incoming elements.
+ * @param <OUT> The type of elements emitted by the {@code InternalWindowFunction}.
+ * @param <W> The type of {@code Window} that the {@code WindowAssigner} assigns.
+ */
+@Internal
+public class InvertibleEvictingWindowOperator<K, IN, OUT, W extends Window> extends WindowOperator<K, IN, IN, OUT, W> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Evictor<? super IN, ? super W> evictor;
+
+	private final InvertibleReduceFunction<IN> reduceFunction;
+
+	private final TypeSerializer<IN> inputSerializer;
+
+	/** The elements of a window by their sequence number */
+	private final MapStateDescriptor<Long, StreamRecord<IN>> contentsStateDescriptor;
+
+	/** The sequence numbers of the first element and the next element of a window */
+	private final ValueStateDescriptor<Tuple2<Long, Long>> boundsStateDescriptor;
+
+	/** The aggregate of the elements of a window */
+	private final ValueStateDescriptor<IN> aggregateStateDescriptor;
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public InvertibleEvictingWindowOperator(WindowAssigner<? super IN, W> windowAssigner,
+		TypeSerializer<W> windowSerializer,
+		KeySelector<IN, K> keySelector,
+		TypeSerializer<K> keySerializer,
+		TypeSerializer<IN> inputSerializer,
+		InvertibleReduceFunction<IN> reduceFunction,
+		InternalWindowFunction<IN, OUT, K, W> windowFunction,
+		Trigger<? super IN, ? super W> trigger,
+		Evictor<? super IN, ? super W> evictor,
+		long allowedLateness) {
+
+		super(windowAssigner, windowSerializer, keySelector,
+			keySerializer, null, windowFunction, trigger, allowedLateness);
+
+		checkArgument(!(windowAssigner instanceof MergingWindowAssigner),
+			"Merging window assigners cannot be used with an evictor.");
+
+		this.evictor = checkNotNull(evictor);
+		this.reduceFunction = checkNotNull(reduceFunction);
+		this.inputSerializer = checkNotNull(inputSerializer);
+
+		this.contentsStateDescriptor = new MapStateDescriptor<>("window-contents",
+			LongSerializer.INSTANCE,
+			(TypeSerializer<StreamRecord<IN>>) new StreamElementSerializer(inputSerializer));
+
+		this.boundsStateDescriptor = new ValueStateDescriptor<>("window-bounds",
+			new TupleSerializer<>((Class) Tuple2.class, new TypeSerializer[] {LongSerializer.INSTANCE, LongSerializer.INSTANCE}),
+			null);
+
+		this.aggregateStateDescriptor = new ValueStateDescriptor<>("window-aggregate", inputSerializer, null);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void processElement(StreamRecord<IN> element) throws Exception {
+		Collection<W> elementWindows = windowAssigner.assignWindows(
+				element.getValue(),
+				element.getTimestamp(),
+				windowAssignerContext);
+
+		final K key = (K) getKeyedStateBackend().getCurrentKey();
+
+		for (W window : elementWindows) {
+
+			// check if the window is already inactive
+			if (isLate(window)) {
+				continue;
+			}
+
+			ValueState<Tuple2<Long, Long>> boundsState = getPartitionedState(
+				window, windowSerializer, boundsStateDescriptor);
+
+			Tuple2<Long, Long> bounds = boundsState.value();
+			if (bounds == null) {
+				bounds = new Tuple2<>(0L, 0L);
+			}
+
+			getPartitionedState(window, windowSerializer, contentsStateDescriptor).put(bounds.f1, element);
+			bounds.f1 = bounds.f1 + 1;
+			boundsState.update(bounds);
+
+			ValueState<IN> aggregateState = getPartitionedState(
+				window, windowSerializer, aggregateStateDescriptor);
+
+			IN aggregate = aggregateState.value();
+			aggregateState.update(aggregate == null ?
+				inputSerializer.copy(element.getValue()) :
+				reduceFunction.reduce(aggregate, element.getValue()));
+
+			context.key = key;
+			context.window = window;
+
+			TriggerResult triggerResult = context.onElement(element);
+
+			if (triggerResult.isFire()) {
+				fire(window);
+			}
+
+			if (triggerResult.isPurge()) {
+				cleanup(window);
+			} else {
+				registerCleanupTimer(window);
+			}
+		}
+	}
+
+	@Override
+	public void onEventTime(InternalTimer<K, W> timer) throws Exception {
+		context.key = timer.getKey();
+		context.window = timer.getNamespace();
+
+		if (getPartitionedState(context.window, windowSerializer, boundsStateDescriptor).value() == null) {
+			// if we have no state, there is nothing to do
+			return;
+		}
+
+		TriggerResult triggerResult = context.onEventTime(timer.getTimestamp());
+		if (triggerResult.isFire()) {
+			fire(context.window);
+		}
+
+		if (triggerResult.isPurge() || (windowAssigner.isEventTime() && isCleanupTime(context.window, timer.getTimestamp()))) {
+			cleanup(context.window);
+		}
+	}
+
+	@Override
+	public void onProcessingTime(InternalTimer<K, W> timer) throws Exception {
+		context.key = timer.getKey();
+		context.window = timer.getNamespace();
+
+		if (getPartitionedState(context.window, windowSerializer, boundsStateDescriptor).value() == null) {
+			// if we have no state, there is nothing to do
+			return;
+		}
+
+		TriggerResult triggerResult = context.onProcessingTime(timer.getTimestamp());
+		if (triggerResult.isFire()) {
+			fire(context.window);
+		}
+
+		if (triggerResult.isPurge() || (!windowAssigner.isEventTime() && isCleanupTime(context.window, timer.getTimestamp()))) {
+			cleanup(context.window);
+		}
+	}
+
+	/**
+	 * Evicts elements from the window, removes them from the aggregate, and emits the aggregate
+	 * of the remaining elements. The caller must ensure that the correct key is set in the state
+	 * backend and the context object.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private void fire(W window) throws Exception {
+		ValueState<Tuple2<Long, Long>> boundsState = getPartitionedState(
+			window, windowSerializer, boundsStateDescriptor);
+		Tuple2<Long, Long> bounds = boundsState.value();
+		if (bounds == null) {
+			return;
+		}
+
+		MapState<Long, StreamRecord<IN>> contentsState = getPartitionedState(
+			window, windowSerializer, contentsStateDescriptor);
+		ValueState<IN> aggregateState = getPartitionedState(
+			window, windowSerializer, aggregateStateDescriptor);
+
+		int size = (int) (bounds.f1 - bounds.f0);
+
+		// Work around type system restrictions...
+		int toEvict = evictor.evict((Iterable) new WindowContents<>(contentsState, bounds.f0, size), size, window);
+
+		IN aggregate = aggregateState.value();
+		if (toEvict > 0) {
+			toEvict = Math.min(toEvict, size);
+			for (int i = 0; i < toEvict; i++) {
+				aggregate = reduceFunction.invert(aggregate, contentsState.get(bounds.f0).getValue());
+				contentsState.remove(bounds.f0);
+				bounds.f0 = bounds.f0 + 1;
+			}
+
+			if (toEvict == size) {
+				// all elements are evicted, there is nothing to emit and no state to keep,
+				// later timers of the window find no bounds and would not clear the trigger
+				cleanup(window);
+				return;
+			}
+
+			boundsState.update(bounds);
+			aggregateState.update(aggregate);
+		}
+
+		timestampedCollector.setAbsoluteTimestamp(window.maxTimestamp());
+		userFunction.apply(context.key, context.window, aggregate, timestampedCollector);
+	}
+
+	private void cleanup(W window) throws Exception {
+		getPartitionedState(window, windowSerializer, contentsStateDescriptor).clear();
+		getPartitionedState(window, windowSerializer, boundsStateDescriptor).clear();
+		getPartitionedState(window, windowSerializer, aggregateStateDescriptor).clear();
+		context.clear();
+	}
+
+	// ------------------------------------------------------------------------
+	// Getters for testing
+	// ------------------------------------------------------------------------
+
+	@VisibleForTesting
+	public Evictor<? super IN, ? super W> getEvictor() {
+		return evictor;
+	}
+
+	@VisibleForTesting
+	public InvertibleReduceFunction<IN> getReduceFunction() {
+		return reduceFunction;
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * A read-only view of the elements of a window for the {@code Evictor}. The elements are
+	 * looked up individually, so that evictors which only look at a few elements, like the
+	 * {@link org.apache.flink.streaming.api.windowing.evictors.CountEvictor}, do not read the
+	 * whole window.
+	 */
+	private static final class WindowContents<T> extends AbstractList<StreamRecord<T>> {
+
+		private final MapState<Long, StreamRecord<T>> contentsState;
+
+		private final long first;
+
+		private final int size;
+
+		WindowContents(MapState<Long, StreamRecord<T>> contentsState, long first, int size) {
+			this.contentsState = contentsState;
+			this.first = first;
+			this.size = size;
+		}
+
+		@Override
+		public StreamRecord<T> get(int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			}
+
+			try {
+				return contentsState.get(first + index);
+			} catch (Exception e) {
+				throw new RuntimeException("Could not retrieve the elements of the window.", e);
+			}
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+}
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.operators.windowing;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.common.state.ReducingState;
+import org.apache.flink.api.common.state.ReducingStateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.streaming.api.operators.InternalTimer;
+import org.apache.flink.streaming.api.windowing.assigners.SlidingEventTimeWindows;
+import org.apache.flink.streaming.api.windowing.triggers.EventTimeTrigger;
+import org.apache.flink.streaming.api.windowing.windows.TimeWindow;
+import org.apache.flink.streaming.runtime.operators.windowing.functions.InternalWindowFunction;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * A {@link WindowOperator} for sliding event-time windows whose size is a multiple of the slide,
+ * with a {@link ReduceFunction} and the default {@link EventTimeTrigger}.
+ *
+ * <p>
+ * Instead of adding every element to each of the {@code size / slide} windows it belongs to,
+ * the operator keeps one pre-aggregated pane per key and slide interval in keyed state. Each
+ * window consists of {@code size / slide} consecutive panes, and the panes are combined with
+ * the reduce function when the window fires. This reduces the state and the work per element
+ * by the ratio of window size to slide. The reduce function must be associative, because the
+ * elements of a window are combined pane by pane rather than in the order of their arrival.
+ *
+ * <p>
+ * The windows fire and are cleaned up at the same times as with the {@code WindowOperator}:
+ * a window fires when the watermark passes its end, and again for every late element that
+ * arrives within the allowed lateness. A pane is dropped when the last window that contains it
+ * is cleaned up.
+ *
+ * <p>
+ * The panes are kept in the state {@link #PANE_STATE_NAME}, which holds pane namespaces and is
+ * therefore separate from the {@code "window-contents"} state of the {@code WindowOperator}.
+ * The version suffix of the name must be bumped whenever the layout of the panes changes, so
+ * that such state is never restored into an incompatible operator.
+ *
+ * @param <K> The type of key returned by the {@code KeySelector}.
+ * @param <IN> The type of the incoming elements.
+ * @param <OUT> The type of elements emitted by the {@code InternalWindowFunction}.
+ */
+@Internal
+public class PanedSlidingWindowOperator<K, IN, OUT> extends WindowOperator<K, IN, IN, OUT, TimeWindow> {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The name of the versioned state that holds the pre-aggregated panes */
+	public static final String PANE_STATE_NAME = "window-panes-v1";
+
+	private final ReducingStateDescriptor<IN> paneStateDescriptor;
+
+	/** The size of the windows, a multiple of the slide */
+	private final long size;
+
+	/** The slide of the windows, which is the size of the panes */
+	private final long slide;
+
+	/** The offset of the window starts */
+	private final long offset;
+
+	public PanedSlidingWindowOperator(
+			SlidingEventTimeWindows windowAssigner,
+			TypeSerializer<TimeWindow> windowSerializer,
+			KeySelector<IN, K> keySelector,
+			TypeSerializer<K> keySerializer,
+			ReducingStateDescriptor<IN> paneStateDescriptor,
+			InternalWindowFunction<IN, OUT, K, TimeWindow> windowFunction,
+			EventTimeTrigger trigger,
+			long allowedLateness) {
+
+		super(windowAssigner, windowSerializer, keySelector,
+			keySerializer, paneStateDescriptor, windowFunction, trigger, allowedLateness);
+
+		checkArgument(isPaneable(windowAssigner),
+			"The window size must be a multiple of the slide.");
+		checkArgument(PANE_STATE_NAME.equals(paneStateDescriptor.getName()),
+			"The pane state must be named " + PANE_STATE_NAME + '.');
+
+		this.paneStateDescriptor = paneStateDescriptor;
+		this.size = windowAssigner.getSize();
+		this.slide = windowAssigner.getSlide();
+		this.offset = windowAssigner.getOffset();
+	}
+
+	/**
+	 * Checks whether the windows of the given assigner consist of whole panes, so that the
+	 * assigner can be used with this operator.
+	 */
+	public static boolean isPaneable(SlidingEventTimeWindows windowAssigner) {
+		return windowAssigner.getSize() > windowAssigner.getSlide() &&
+			windowAssigner.getSize() % windowAssigner.getSlide() == 0;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void processElement(StreamRecord<IN> element) throws Exception {
+		final long timestamp = element.getTimestamp();
+		if (timestamp == Long.MIN_VALUE) {
+			// let the assigner report the missing timestamp
+			windowAssigner.assignWindows(element.getValue(), timestamp, windowAssignerContext);
+		}
+
+		final long paneStart = TimeWindow.getWindowStartWithOffset(timestamp, offset, slide);
+		final TimeWindow pane = new TimeWindow(paneStart, paneStart + slide);
+
+		// the last window that contains the pane is the one that starts with it
+		final TimeWindow lastWindow = new TimeWindow(paneStart, paneStart + size);
+
+		// drop if all windows of the element are already late
+		if (isLate(lastWindow)) {
+			return;
+		}
+
+		context.key = (K) getKeyedStateBackend().getCurrentKey();
+
+		ReducingState<IN> paneState = getPartitionedState(pane, windowSerializer, paneStateDescriptor);
+		final boolean newPane = paneState.get() == null;
+		paneState.add(element.getValue());
+
+		final long currentWatermark = context.getCurrentWatermark();
+
+		// the timers of all windows are registered by the first element of a pane, the windows
+		// only need to be looked at individually if the watermark passed the end of one of them
+		if (!newPane && pane.maxTimestamp() > currentWatermark) {
+			return;
+		}
+
+		for (long windowEnd = pane.getEnd(); windowEnd <= lastWindow.getEnd(); windowEnd += slide) {
+			TimeWindow window = new TimeWindow(windowEnd - size, windowEnd);
+			if (isLate(window)) {
+				continue;
+			}
+
+			context.window = window;
+
+			if (window.maxTimestamp() <= currentWatermark) {
+				// the watermark is already past the window, fire immediately
+				fire(window);
+			} else if (newPane) {
+				context.registerEventTimeTimer(window.maxTimestamp());
+			}
+		}
+
+		if (newPane) {
+			context.window = lastWindow;
+			registerCleanupTimer(lastWindow);
+		}
+	}
+
+	@Override
+	public void onEventTime(InternalTimer<K, TimeWindow> timer) throws Exception {
+		context.key = timer.getKey();
+		context.window = timer.getNamespace();
+
+		if (timer.getTimestamp() == context.window.maxTimestamp()) {
+			fire(context.window);
+		}
+
+		if (isCleanupTime(context.window, timer.getTimestamp())) {
+			// the first pane of the window is not part of any later window
+			long paneStart = context.window.getStart();
+			getPartitionedState(new TimeWindow(paneStart, paneStart + slide), windowSerializer, paneStateDescriptor)
+				.clear();
+		}
+	}
+
+	@Override
+	public void onProcessingTime(InternalTimer<K, TimeWindow> timer) throws Exception {
+		// the event-time trigger does not register processing-time timers
+	}
+
+	/**
+	 * Combines the panes of the given window and emits the result. The caller must ensure that
+	 * the correct key is set in the state backend and the context object.
+	 */
+	private void fire(TimeWindow window) throws Exception {
+		ReduceFunction<IN> reduceFunction = paneStateDescriptor.getReduceFunction();
+		TypeSerializer<IN> serializer = paneStateDescriptor.getSerializer();
+
+		IN result = null;
+		for (long paneStart = window.getStart(); paneStart < window.getEnd(); paneStart += slide) {
+			ReducingState<IN> paneState = getPartitionedState(
+				new TimeWindow(paneStart, paneStart + slide), windowSerializer, paneStateDescriptor);
+
+			IN paneResult = paneState.get();
+			if (paneResult == null) {
+				continue;
+			}
+
+			// copy the first pane, the reduce function may modify its first argument
+			result = result == null ? serializer.copy(paneResult) : reduceFunction.reduce(result, paneResult);
+		}
+
+		if (result != null) {
+			timestampedCollector.setAbsoluteTimestamp(window.maxTimestamp());
+			userFunction.apply(context.key, window, result, timestampedCollector);
+		}
+	}
+}
@@ -20,9 +20,10 @@ package org.apache.flink.streaming.runtime.streamrecord;
 
 import org.apache.flink.annotation.Internal;
 import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.streamstatus.StreamStatus;
 
 /**
- * An element in a data stream. Can be a record or a Watermark.
+ * An element in a data stream. Can be a record, a Watermark, a LatencyMarker or a StreamStatus.
  */
 @Internal
 public abstract class StreamElement {
@@ -51,6 +52,14 @@ public abstract class StreamElement {
 		return getClass() == LatencyMarker.class;
 	}
 
+	/**
+	 * Checks whether this element is a stream status.
+	 * @return True, if this element is a stream status, false otherwise.
+	 */
+	public final boolean isStreamStatus() {
+		return getClass() == StreamStatus.class;
+	}
+
 	/**
 	 * Casts this element into a StreamRecord.
 	 * @return This element as a stream record.
@@ -70,6 +79,15 @@ public abstract class StreamElement {
 		return (Watermark) this;
 	}
 
+	/**
+	 * Casts this element into a StreamStatus.
+	 * @return This element as a StreamStatus.
+	 * @throws java.lang.ClassCastException Thrown, if this element is actually not a StreamStatus.
+	 */
+	public final StreamStatus asStreamStatus() {
+		return (StreamStatus) this;
+	}
+
 	/**
 	 * Casts this element into a LatencyMarker.
 	 * @return This element as a LatencyMarker.
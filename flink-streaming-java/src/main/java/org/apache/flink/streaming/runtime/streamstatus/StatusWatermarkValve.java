@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.streamstatus;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.streaming.api.watermark.Watermark;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * A {@code StatusWatermarkValve} merges the {@link Watermark} and {@link StreamStatus} inputs
+ * of several input channels into one watermark and stream status output.
+ *
+ * <p>The output watermark is the minimum of the watermarks of all active input channels. Idle
+ * channels are excluded. A channel that becomes active again is only included again once its
+ * watermark has caught up with the last output watermark, so the output watermark never
+ * regresses. The output stream status is idle if all input channels are idle, and active
+ * otherwise.
+ */
+@Internal
+public class StatusWatermarkValve {
+
+	/**
+	 * Usage of the {@link StatusWatermarkValve} should implement a {@link ValveOutputHandler}
+	 * to handle watermark and stream status outputs from the valve.
+	 */
+	public interface ValveOutputHandler {
+		void handleWatermark(Watermark watermark) throws Exception;
+		void handleStreamStatus(StreamStatus streamStatus) throws Exception;
+	}
+
+	private final ValveOutputHandler outputHandler;
+
+	/** The last watermark of each input channel */
+	private final long[] channelWatermarks;
+
+	/** Whether each input channel is currently idle */
+	private final boolean[] channelIdle;
+
+	/** Whether the watermark of each input channel has caught up with the last output watermark */
+	private final boolean[] channelAligned;
+
+	/** The number of currently idle input channels */
+	private int numIdleChannels;
+
+	private long lastOutputWatermark;
+
+	public StatusWatermarkValve(int numInputChannels, ValveOutputHandler outputHandler) {
+		checkArgument(numInputChannels > 0);
+		this.outputHandler = checkNotNull(outputHandler);
+
+		this.channelWatermarks = new long[numInputChannels];
+		this.channelIdle = new boolean[numInputChannels];
+		this.channelAligned = new boolean[numInputChannels];
+		for (int i = 0; i < numInputChannels; i++) {
+			channelWatermarks[i] = Long.MIN_VALUE;
+			channelAligned[i] = true;
+		}
+
+		this.lastOutputWatermark = Long.MIN_VALUE;
+	}
+
+	/**
+	 * Feeds a {@link Watermark} into the valve. If the input triggers the valve to output a new
+	 * watermark, {@link ValveOutputHandler#handleWatermark(Watermark)} is called.
+	 *
+	 * @param watermark the watermark to feed to the valve
+	 * @param channelIndex the index of the channel that the fed watermark belongs to
+	 */
+	public void inputWatermark(Watermark watermark, int channelIndex) throws Exception {
+		// idle channels do not send watermarks, ignore them if they still arrive
+		if (channelIdle[channelIndex]) {
+			return;
+		}
+
+		long watermarkMillis = watermark.getTimestamp();
+		if (watermarkMillis > channelWatermarks[channelIndex]) {
+			channelWatermarks[channelIndex] = watermarkMillis;
+
+			if (!channelAligned[channelIndex] && watermarkMillis >= lastOutputWatermark) {
+				channelAligned[channelIndex] = true;
+			}
+
+			findAndOutputNewMinWatermark();
+		}
+	}
+
+	/**
+	 * Feeds a {@link StreamStatus} into the valve. This may trigger the valve to output either
+	 * a new stream status, for when all channels became idle or the first channel became active
+	 * again, or a new watermark, for when the channel that held back the watermark became idle.
+	 *
+	 * @param streamStatus the stream status to feed to the valve
+	 * @param channelIndex the index of the channel that the fed stream status belongs to
+	 */
+	public void inputStreamStatus(StreamStatus streamStatus, int channelIndex) throws Exception {
+		if (streamStatus.isIdle() && !channelIdle[channelIndex]) {
+			channelIdle[channelIndex] = true;
+			channelAligned[channelIndex] = false;
+			numIdleChannels++;
+
+			if (numIdleChannels == channelIdle.length) {
+				outputHandler.handleStreamStatus(StreamStatus.IDLE);
+			} else {
+				// the channel may have held back the watermark of the remaining channels
+				findAndOutputNewMinWatermark();
+			}
+		}
+		else if (streamStatus.isActive() && channelIdle[channelIndex]) {
+			channelIdle[channelIndex] = false;
+			channelAligned[channelIndex] = channelWatermarks[channelIndex] >= lastOutputWatermark;
+
+			if (numIdleChannels-- == channelIdle.length) {
+				outputHandler.handleStreamStatus(StreamStatus.ACTIVE);
+			}
+		}
+	}
+
+	/**
+	 * Returns the last watermark that was output by the valve.
+	 */
+	public long getLastOutputWatermark() {
+		return lastOutputWatermark;
+	}
+
+	private void findAndOutputNewMinWatermark() throws Exception {
+		long newMinWatermark = Long.MAX_VALUE;
+		boolean hasAlignedChannels = false;
+
+		for (int i = 0; i < channelWatermarks.length; i++) {
+			if (channelAligned[i]) {
+				hasAlignedChannels = true;
+				newMinWatermark = Math.min(channelWatermarks[i], newMinWatermark);
+			}
+		}
+
+		if (hasAlignedChannels && newMinWatermark > lastOutputWatermark) {
+			lastOutputWatermark = newMinWatermark;
+			outputHandler.handleWatermark(new Watermark(lastOutputWatermark));
+		}
+	}
+}
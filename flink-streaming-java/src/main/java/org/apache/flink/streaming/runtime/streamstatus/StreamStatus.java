@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.streamstatus;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.streaming.runtime.streamrecord.StreamElement;
+
+/**
+ * A Stream Status element informs stream tasks whether or not they should continue to expect
+ * watermarks from the input stream that sent it. There are two possible states: {@link #IDLE}
+ * and {@link #ACTIVE}.
+ *
+ * <p>A stream is idle when it temporarily does not produce any data, for example a source that
+ * reads from Kafka partitions that currently have no new records. While a stream is idle, its
+ * sender does not emit watermarks, and the receiving tasks ignore the channels of the stream
+ * when they merge the watermarks of their inputs. That way, an idle stream does not hold back
+ * event time for the whole topology. A stream becomes active again as soon as it emits records
+ * or watermarks.
+ *
+ * <p>Stream tasks forward the status: a task becomes idle when all of its inputs are idle, and
+ * active again as soon as one of its inputs becomes active.
+ */
+@Internal
+public final class StreamStatus extends StreamElement {
+
+	public static final int IDLE_STATUS = -1;
+	public static final int ACTIVE_STATUS = 0;
+
+	public static final StreamStatus IDLE = new StreamStatus(IDLE_STATUS);
+	public static final StreamStatus ACTIVE = new StreamStatus(ACTIVE_STATUS);
+
+	/** The status code, either {@link #IDLE_STATUS} or {@link #ACTIVE_STATUS} */
+	private final int status;
+
+	public StreamStatus(int status) {
+		if (status != IDLE_STATUS && status != ACTIVE_STATUS) {
+			throw new IllegalArgumentException("Invalid status value for StreamStatus; " +
+				"allowed values are " + ACTIVE_STATUS + " (for ACTIVE) and " + IDLE_STATUS + " (for IDLE).");
+		}
+
+		this.status = status;
+	}
+
+	public boolean isIdle() {
+		return this.status == IDLE_STATUS;
+	}
+
+	public boolean isActive() {
+		return !isIdle();
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	// ------------------------------------------------------------------------
+
+	@Override
+	public boolean equals(Object o) {
+		return this == o ||
+				o != null && o.getClass() == StreamStatus.class && ((StreamStatus) o).status == this.status;
+	}
+
+	@Override
+	public int hashCode() {
+		return status;
+	}
+
+	@Override
+	public String toString() {
+		return "StreamStatus(" + (isIdle() ? "IDLE" : "ACTIVE") + ")";
+	}
+}
@@ -43,9 +43,12 @@ public class OneInputStreamTask<IN, OUT> extends StreamTask<OUT, OneInputStreamO
 		if (numberOfInputs > 0) {
 			InputGate[] inputGates = getEnvironment().getAllInputGates();
 			inputProcessor = new StreamInputProcessor<IN>(inputGates, inSerializer,
-					this, 
+					this,
+					getStreamStatusMaintainer(),
 					configuration.getCheckpointMode(),
-					getEnvironment().getIOManager());
+					getEnvironment().getIOManager(),
+					getEnvironment().getMemoryManager(),
+					getEnvironment().getTaskManagerInfo().getConfiguration());
 
 			// make sure that stream tasks report their I/O statistics
 			AccumulatorRegistry registry = getEnvironment().getAccumulatorRegistry();
@@ -30,6 +30,7 @@ import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.metrics.Counter;
 import org.apache.flink.runtime.accumulators.AccumulatorRegistry;
 import org.apache.flink.runtime.execution.Environment;
+import org.apache.flink.runtime.io.network.api.CancelCheckpointMarker;
 import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
 import org.apache.flink.runtime.io.network.api.writer.ResultPartitionWriter;
 import org.apache.flink.runtime.metrics.groups.OperatorMetricGroup;
@@ -48,6 +49,9 @@ import org.apache.flink.streaming.runtime.io.StreamRecordWriter;
 import org.apache.flink.streaming.runtime.partitioner.StreamPartitioner;
 import org.apache.flink.streaming.runtime.streamrecord.LatencyMarker;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamstatus.StreamStatus;
+import org.apache.flink.streaming.runtime.streamstatus.StreamStatusMaintainer;
+import org.apache.flink.streaming.runtime.streamstatus.StreamStatusProvider;
 
 import org.apache.flink.util.XORShiftRandom;
 import org.slf4j.Logger;
@@ -57,12 +61,15 @@ import org.slf4j.LoggerFactory;
 /**
  * The {@code OperatorChain} contains all operators that are executed as one chain within a single
  * {@link StreamTask}.
+ *
+ * <p>The chain also maintains the {@link StreamStatus} of the task, and forwards status
+ * changes to the downstream tasks through its stream outputs.
  * 
  * @param <OUT> The type of elements accepted by the chain, i.e., the input type of the chain's
  *              head operator.
  */
 @Internal
-public class OperatorChain<OUT, OP extends StreamOperator<OUT>> {
+public class OperatorChain<OUT, OP extends StreamOperator<OUT>> implements StreamStatusMaintainer {
 	
 	private static final Logger LOG = LoggerFactory.getLogger(OperatorChain.class);
 	
@@ -74,6 +81,14 @@ public class OperatorChain<OUT, OP extends StreamOperator<OUT>> {
 
 	private final OP headOperator;
 
+	/**
+	 * Current status of the input stream of the operator chain.
+	 * Watermarks explicitly generated by operators in the chain (i.e. timestamp
+	 * assigner / watermark extractors), will be blocked and not forwarded if
+	 * this value is {@link StreamStatus#IDLE}.
+	 */
+	private StreamStatus streamStatus = StreamStatus.ACTIVE;
+
 	public OperatorChain(StreamTask<OUT, OP> containingTask, AccumulatorRegistry.Reporter reporter) {
 		
 		final ClassLoader userCodeClassloader = containingTask.getUserCodeClassLoader();
@@ -99,7 +114,7 @@ public class OperatorChain<OUT, OP extends StreamOperator<OUT>> {
 				
 				RecordWriterOutput<?> streamOutput = createStreamOutput(
 						outEdge, chainedConfigs.get(outEdge.getSourceId()), i,
-						containingTask.getEnvironment(), reporter, containingTask.getName());
+						this, containingTask.getEnvironment(), reporter, containingTask.getName());
 	
 				this.streamOutputs[i] = streamOutput;
 				streamOutputMap.put(outEdge, streamOutput);
@@ -143,7 +158,31 @@ public class OperatorChain<OUT, OP extends StreamOperator<OUT>> {
 			streamOutput.broadcastEvent(barrier);
 		}
 	}
+
+	public void broadcastCheckpointCancelMarker(long id) throws IOException, InterruptedException {
+		CancelCheckpointMarker marker = new CancelCheckpointMarker(id);
+		for (RecordWriterOutput<?> streamOutput : streamOutputs) {
+			streamOutput.broadcastEvent(marker);
+		}
+	}
 	
+	@Override
+	public StreamStatus getStreamStatus() {
+		return streamStatus;
+	}
+
+	@Override
+	public void toggleStreamStatus(StreamStatus status) {
+		if (!status.equals(this.streamStatus)) {
+			this.streamStatus = status;
+
+			// try and forward the stream status change to all outgoing connections
+			for (RecordWriterOutput<?> streamOutput : streamOutputs) {
+				streamOutput.emitStreamStatus(status);
+			}
+		}
+	}
+
 	public RecordWriterOutput<?>[] getStreamOutputs() {
 		return streamOutputs;
 	}
@@ -305,6 +344,7 @@ public class OperatorChain<OUT, OP extends StreamOperator<OUT>> {
 	
 	private static <T> RecordWriterOutput<T> createStreamOutput(
 			StreamEdge edge, StreamConfig upStreamConfig, int outputIndex,
+			StreamStatusProvider streamStatusProvider,
 			Environment taskEnvironment,
 			AccumulatorRegistry.Reporter reporter, String taskName)
 	{
@@ -322,7 +362,7 @@ public class OperatorChain<OUT, OP extends StreamOperator<OUT>> {
 		output.setReporter(reporter);
 		output.setMetricGroup(taskEnvironment.getMetricGroup().getIOMetricGroup());
 		
-		return new RecordWriterOutput<>(output, outSerializer);
+		return new RecordWriterOutput<>(output, outSerializer, streamStatusProvider);
 	}
 	
 	// ------------------------------------------------------------------------
@@ -24,6 +24,7 @@ import org.apache.flink.configuration.ConfigConstants;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.configuration.IllegalConfigurationException;
 import org.apache.flink.metrics.Gauge;
+import org.apache.flink.runtime.checkpoint.CheckpointDeclineReason;
 import org.apache.flink.runtime.checkpoint.CheckpointMetaData;
 import org.apache.flink.runtime.checkpoint.SubtaskState;
 import org.apache.flink.runtime.execution.CancelTaskException;
@@ -54,6 +55,7 @@ import org.apache.flink.streaming.api.operators.StreamCheckpointedOperator;
 import org.apache.flink.streaming.api.operators.StreamOperator;
 import org.apache.flink.streaming.runtime.io.RecordWriterOutput;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.streamstatus.StreamStatusMaintainer;
 import org.apache.flink.util.CollectionUtil;
 import org.apache.flink.util.FutureUtil;
 import org.apache.flink.util.Preconditions;
@@ -481,6 +483,15 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 		return configuration;
 	}
 
+	/**
+	 * Gets the maintainer of the {@link org.apache.flink.streaming.runtime.streamstatus.StreamStatus}
+	 * of this task. Sources use it to mark the task as idle and active again.
+	 * @return The stream status maintainer, or null, if the operator chain is not yet created.
+	 */
+	public StreamStatusMaintainer getStreamStatusMaintainer() {
+		return operatorChain;
+	}
+
 	public Map<String, Accumulator<?, ?>> getAccumulatorMap() {
 		return accumulatorMap;
 	}
@@ -534,6 +545,22 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 		}
 	}
 
+	@Override
+	public void abortCheckpointOnBarrier(CheckpointMetaData checkpointMetaData, CheckpointDeclineReason reason) throws Exception {
+		LOG.info("Declining checkpoint {} on task {}: {}",
+				checkpointMetaData.getCheckpointId(), getName(), reason.message());
+
+		getEnvironment().declineCheckpoint(checkpointMetaData, reason);
+
+		// the downstream tasks will never receive the barriers of this checkpoint from us, so we
+		// tell them to stop aligning for it
+		synchronized (lock) {
+			if (isRunning) {
+				operatorChain.broadcastCheckpointCancelMarker(checkpointMetaData.getCheckpointId());
+			}
+		}
+	}
+
 	private boolean performCheckpoint(CheckpointMetaData checkpointMetaData) throws Exception {
 
 		LOG.debug("Starting checkpoint {} on task {}", checkpointMetaData.getCheckpointId(), getName());
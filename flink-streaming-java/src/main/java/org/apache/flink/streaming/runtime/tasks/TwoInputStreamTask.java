@@ -69,8 +69,11 @@ public class TwoInputStreamTask<IN1, IN2, OUT> extends StreamTask<OUT, TwoInputS
 		this.inputProcessor = new StreamTwoInputProcessor<IN1, IN2>(inputList1, inputList2,
 				inputDeserializer1, inputDeserializer2,
 				this,
+				getStreamStatusMaintainer(),
 				configuration.getCheckpointMode(),
-				getEnvironment().getIOManager());
+				getEnvironment().getIOManager(),
+				getEnvironment().getMemoryManager(),
+				getEnvironment().getTaskManagerInfo().getConfiguration());
 
 		// make sure that stream tasks report their I/O statistics
 		AccumulatorRegistry registry = getEnvironment().getAccumulatorRegistry();
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.functions.source;
+
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.util.InstantiationUtil;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link FileDiscoveryIndex}.
+ */
+public class FileDiscoveryIndexTest {
+
+	@Test
+	public void testProcessedFiles() {
+		FileDiscoveryIndex index = new FileDiscoveryIndex(100L);
+
+		Path file1 = new Path("hdfs://host:1234/data/2017-01-01/file1");
+		Path file2 = new Path("hdfs://host:1234/data/2017-01-01/file2");
+		Path file3 = new Path("hdfs://host:1234/data/2017-01-02/file1");
+
+		assertFalse(index.isProcessed(file1, 1000L));
+
+		index.add(file1, 1000L);
+		index.add(file3, 1000L);
+		assertEquals(2, index.size());
+
+		assertTrue(index.isProcessed(file1, 1000L));
+		assertTrue(index.isProcessed(file3, 1000L));
+		assertFalse(index.isProcessed(file2, 1000L));
+
+		// a late file within the retention time
+		assertFalse(index.isProcessed(file2, 950L));
+
+		// a modified file is processed again
+		assertFalse(index.isProcessed(file1, 1010L));
+
+		// files before the horizon count as processed
+		assertEquals(900L, index.getHorizon());
+		assertTrue(index.isProcessed(file2, 899L));
+	}
+
+	@Test
+	public void testPruning() {
+		FileDiscoveryIndex index = new FileDiscoveryIndex(100L);
+
+		for (int i = 0; i < 10; i++) {
+			index.add(new Path("file:///data/dir" + (i % 3) + "/file" + i), 1000L + i * 20);
+		}
+		assertEquals(10, index.size());
+		assertEquals(1180L, index.getMaxModificationTime());
+
+		index.prune();
+
+		// files 4 to 9 lie within the retention time
+		assertEquals(6, index.size());
+		for (int i = 0; i < 10; i++) {
+			assertTrue(index.isProcessed(new Path("file:///data/dir" + (i % 3) + "/file" + i), 1000L + i * 20));
+		}
+
+		// the file is added again after a modification
+		index.add(new Path("file:///data/dir0/file9"), 1200L);
+		index.prune();
+		assertEquals(5, index.size());
+	}
+
+	@Test
+	public void testMarkProcessedUntil() {
+		FileDiscoveryIndex index = new FileDiscoveryIndex(1000L);
+		index.markProcessedUntil(5000L);
+
+		assertEquals(5001L, index.getHorizon());
+		assertTrue(index.isProcessed(new Path("file:///data/file"), 5000L));
+		assertFalse(index.isProcessed(new Path("file:///data/file"), 5001L));
+
+		index.add(new Path("file:///data/file"), 7000L);
+		assertEquals(6000L, index.getHorizon());
+
+		index.markProcessedUntil(Long.MAX_VALUE);
+		index.prune();
+		assertEquals(0, index.size());
+		assertTrue(index.isProcessed(new Path("file:///data/other"), Long.MAX_VALUE));
+	}
+
+	@Test
+	public void testSerialization() throws Exception {
+		FileDiscoveryIndex index = new FileDiscoveryIndex(100L);
+		index.add(new Path("file:///data/dir/file1"), 1000L);
+		index.add(new Path("file:///data/dir/file2"), 1050L);
+
+		FileDiscoveryIndex copy = InstantiationUtil.clone(index);
+
+		assertEquals(2, copy.size());
+		assertEquals(1050L, copy.getMaxModificationTime());
+		assertTrue(copy.isProcessed(new Path("file:///data/dir/file1"), 1000L));
+		assertFalse(copy.isProcessed(new Path("file:///data/dir/file3"), 1000L));
+	}
+}
@@ -224,6 +224,11 @@ public class InputFormatSourceFunctionTest {
 			throw new UnsupportedOperationException();
 		}
 
+		@Override
+		public void markAsTemporarilyIdle() {
+			throw new UnsupportedOperationException();
+		}
+
 		@Override
 		public Object getCheckpointLock() {
 			return null;
@@ -285,6 +285,9 @@ public class SocketTextStreamFunctionTest {
 					@Override
 					public void emitWatermark(Watermark mark) {}
 
+					@Override
+					public void markAsTemporarilyIdle() {}
+
 					@Override
 					public Object getCheckpointLock() {
 						return lock;
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link InternalTimerHeap}.
+ */
+public class InternalTimerHeapTest {
+
+	private static final int NUM_KEY_GROUPS = 16;
+
+	/**
+	 * Tests adding, removing and polling timers against a reference, with random operations
+	 * that also exercise the growth of the heap.
+	 */
+	@Test
+	public void testAddRemovePollAgainstReference() {
+		InternalTimerHeap<Integer, String> heap = createHeap();
+
+		// count the timers per timestamp, to check the order of polled timers
+		TreeMap<Long, Integer> timestamps = new TreeMap<>();
+		Set<InternalTimer<Integer, String>> reference = new HashSet<>();
+
+		Random random = new Random(42);
+
+		for (int i = 0; i < 100_000; ++i) {
+			InternalTimer<Integer, String> timer =
+				new InternalTimer<>(random.nextInt(1000), random.nextInt(100), random.nextBoolean() ? "a" : "b");
+
+			switch (random.nextInt(3)) {
+				case 0:
+					boolean added = reference.add(timer);
+					assertEquals(added, heap.add(timer));
+					if (added) {
+						increment(timestamps, timer.getTimestamp(), 1);
+					}
+					break;
+				case 1:
+					boolean removed = reference.remove(timer);
+					assertEquals(removed, heap.remove(timer));
+					if (removed) {
+						increment(timestamps, timer.getTimestamp(), -1);
+					}
+					break;
+				default:
+					InternalTimer<Integer, String> head = heap.poll();
+					if (reference.isEmpty()) {
+						assertNull(head);
+					} else {
+						assertEquals((long) timestamps.firstKey(), head.getTimestamp());
+						assertTrue(reference.remove(head));
+						increment(timestamps, head.getTimestamp(), -1);
+					}
+			}
+
+			assertEquals(reference.size(), heap.size());
+		}
+
+		// drain the heap in order
+		long lastTimestamp = Long.MIN_VALUE;
+		InternalTimer<Integer, String> timer;
+		while ((timer = heap.poll()) != null) {
+			assertTrue(timer.getTimestamp() >= lastTimestamp);
+			assertTrue(reference.remove(timer));
+			lastTimestamp = timer.getTimestamp();
+		}
+
+		assertTrue(reference.isEmpty());
+		assertTrue(heap.isEmpty());
+	}
+
+	/**
+	 * Tests that the timers of a key group are tracked through additions and removals.
+	 */
+	@Test
+	public void testTimersForKeyGroup() {
+		InternalTimerHeap<Integer, String> heap = createHeap();
+
+		Set<InternalTimer<Integer, String>> expected = new HashSet<>();
+		int keyGroup = keyGroup(7);
+
+		for (int key = 0; key < 100; ++key) {
+			InternalTimer<Integer, String> timer = new InternalTimer<>(100 - key, key, "ns");
+			assertTrue(heap.add(timer));
+			assertFalse(heap.add(new InternalTimer<>(100 - key, key, "ns")));
+			if (keyGroup(key) == keyGroup) {
+				expected.add(timer);
+			}
+		}
+
+		assertEquals(expected, heap.getTimersForKeyGroup(keyGroup));
+
+		int removed = 0;
+		for (InternalTimer<Integer, String> timer : new HashSet<>(expected)) {
+			if (timer.getKey() % 2 == 0) {
+				assertTrue(heap.remove(new InternalTimer<>(timer.getTimestamp(), timer.getKey(), "ns")));
+				expected.remove(timer);
+				removed++;
+			}
+		}
+
+		assertEquals(expected, heap.getTimersForKeyGroup(keyGroup));
+		assertEquals(100 - removed, heap.size());
+	}
+
+	/**
+	 * Tests that a key group outside of the local range is rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testKeyGroupOutsideOfRange() {
+		InternalTimerHeap<Integer, String> heap =
+			new InternalTimerHeap<>(4, new KeyGroupRange(0, NUM_KEY_GROUPS / 2 - 1), NUM_KEY_GROUPS);
+
+		heap.getTimersForKeyGroup(NUM_KEY_GROUPS - 1);
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static InternalTimerHeap<Integer, String> createHeap() {
+		// start small to test the growth of the heap
+		return new InternalTimerHeap<>(4, new KeyGroupRange(0, NUM_KEY_GROUPS - 1), NUM_KEY_GROUPS);
+	}
+
+	private static int keyGroup(int key) {
+		return KeyGroupRangeAssignment.assignToKeyGroup(key, NUM_KEY_GROUPS);
+	}
+
+	private static void increment(TreeMap<Long, Integer> counts, long timestamp, int delta) {
+		Integer count = counts.get(timestamp);
+		int newCount = (count == null ? 0 : count) + delta;
+		if (newCount == 0) {
+			counts.remove(timestamp);
+		} else {
+			counts.put(timestamp, newCount);
+		}
+	}
+}
@@ -0,0 +1,291 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.streaming.api.operators.async;
+
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.streaming.api.datastream.AsyncDataStream;
+import org.apache.flink.streaming.api.functions.async.AsyncFunction;
+import org.apache.flink.streaming.api.functions.async.collector.AsyncCollector;
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.tasks.OperatorStateHandles;
+import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+import org.apache.flink.streaming.util.TestHarnessUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link AsyncWaitOperator}. These tests verify the ordering of the results in the
+ * ordered and unordered modes, the timeouts, and the replay of in-flight elements on restore.
+ */
+public class AsyncWaitOperatorTest {
+
+	private static final long TIMEOUT = 1000L;
+
+	private static ExecutorService executorService;
+
+	@BeforeClass
+	public static void setupExecutor() {
+		executorService = Executors.newFixedThreadPool(8);
+	}
+
+	@AfterClass
+	public static void shutdownExecutor() {
+		executorService.shutdownNow();
+	}
+
+	/**
+	 * Test the AsyncWaitOperator with ordered mode and event time.
+	 */
+	@Test
+	public void testOrderedWait() throws Exception {
+		OneInputStreamOperatorTestHarness<Integer, Integer> testHarness =
+				createTestHarness(new DelayedAsyncFunction(), TIMEOUT, 2, AsyncDataStream.OutputMode.ORDERED);
+
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+
+		synchronized (testHarness.getCheckpointLock()) {
+			testHarness.open();
+
+			for (int i = 1; i <= 10; ++i) {
+				testHarness.processElement(new StreamRecord<>(i, i));
+				expectedOutput.add(new StreamRecord<>(2 * i, i));
+
+				if (i % 3 == 0) {
+					testHarness.processWatermark(new Watermark(i));
+					expectedOutput.add(new Watermark(i));
+				}
+			}
+
+			testHarness.close();
+		}
+
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+	}
+
+	/**
+	 * Test the AsyncWaitOperator with unordered mode and event time. The records between two
+	 * watermarks may be emitted in any order, but the watermarks must separate them.
+	 */
+	@Test
+	public void testUnorderedWait() throws Exception {
+		OneInputStreamOperatorTestHarness<Integer, Integer> testHarness =
+				createTestHarness(new DelayedAsyncFunction(), TIMEOUT, 3, AsyncDataStream.OutputMode.UNORDERED);
+
+		List<Set<Object>> expectedSegments = new ArrayList<>();
+		Set<Object> segment = new HashSet<>();
+
+		synchronized (testHarness.getCheckpointLock()) {
+			testHarness.open();
+
+			for (int i = 1; i <= 10; ++i) {
+				testHarness.processElement(new StreamRecord<>(i, i));
+				segment.add(new StreamRecord<>(2 * i, i));
+
+				if (i % 3 == 0) {
+					testHarness.processWatermark(new Watermark(i));
+					expectedSegments.add(segment);
+					expectedSegments.add(Collections.<Object>singleton(new Watermark(i)));
+					segment = new HashSet<>();
+				}
+			}
+			expectedSegments.add(segment);
+
+			testHarness.close();
+		}
+
+		List<Set<Object>> actualSegments = new ArrayList<>();
+		segment = new HashSet<>();
+		for (Object element : testHarness.getOutput()) {
+			if (element instanceof Watermark) {
+				actualSegments.add(segment);
+				actualSegments.add(Collections.singleton(element));
+				segment = new HashSet<>();
+			} else {
+				segment.add(element);
+			}
+		}
+		actualSegments.add(segment);
+
+		assertEquals(expectedSegments, actualSegments);
+	}
+
+	/**
+	 * Tests that an asynchronous operation that does not complete in time fails the operator.
+	 */
+	@Test
+	public void testTimeout() throws Exception {
+		CollectorCapturingAsyncFunction function = new CollectorCapturingAsyncFunction();
+
+		OneInputStreamOperatorTestHarness<Integer, Integer> testHarness =
+				createTestHarness(function, 10L, 2, AsyncDataStream.OutputMode.ORDERED);
+
+		synchronized (testHarness.getCheckpointLock()) {
+			testHarness.open();
+			testHarness.setProcessingTime(0L);
+			testHarness.processElement(new StreamRecord<>(1, 1L));
+		}
+
+		testHarness.setProcessingTime(20L);
+
+		long deadline = System.currentTimeMillis() + 10000L;
+		while (!testHarness.wasFailedExternally() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10L);
+		}
+
+		assertTrue(testHarness.wasFailedExternally());
+		assertTrue(testHarness.getOutput().isEmpty());
+
+		// a result that arrives after the timeout is ignored
+		function.collectors.get(0).collect(Collections.singletonList(2));
+
+		synchronized (testHarness.getCheckpointLock()) {
+			testHarness.close();
+		}
+
+		assertTrue(testHarness.getOutput().isEmpty());
+	}
+
+	/**
+	 * Tests that the in-flight elements are stored in the operator state and processed again
+	 * when the operator is restored.
+	 */
+	@Test
+	public void testStateSnapshotAndRestore() throws Exception {
+		CollectorCapturingAsyncFunction function = new CollectorCapturingAsyncFunction();
+
+		OneInputStreamOperatorTestHarness<Integer, Integer> testHarness =
+				createTestHarness(function, TIMEOUT, 10, AsyncDataStream.OutputMode.ORDERED);
+
+		OperatorStateHandles snapshot;
+
+		synchronized (testHarness.getCheckpointLock()) {
+			testHarness.open();
+
+			testHarness.processElement(new StreamRecord<>(1, 1L));
+			testHarness.processElement(new StreamRecord<>(2, 2L));
+			testHarness.processWatermark(new Watermark(2L));
+			testHarness.processElement(new StreamRecord<>(3, 3L));
+
+			snapshot = testHarness.snapshot(1L, 1L);
+
+			// complete the operations of the original operator
+			for (AsyncCollector<Integer> collector : function.collectors) {
+				collector.collect(Collections.<Integer>emptyList());
+			}
+
+			testHarness.close();
+		}
+
+		OneInputStreamOperatorTestHarness<Integer, Integer> restoredTestHarness =
+				createTestHarness(new DelayedAsyncFunction(), TIMEOUT, 10, AsyncDataStream.OutputMode.ORDERED);
+
+		synchronized (restoredTestHarness.getCheckpointLock()) {
+			restoredTestHarness.initializeState(snapshot);
+			restoredTestHarness.open();
+
+			restoredTestHarness.processElement(new StreamRecord<>(4, 4L));
+
+			restoredTestHarness.close();
+		}
+
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+		expectedOutput.add(new StreamRecord<>(2, 1L));
+		expectedOutput.add(new StreamRecord<>(4, 2L));
+		expectedOutput.add(new Watermark(2L));
+		expectedOutput.add(new StreamRecord<>(6, 3L));
+		expectedOutput.add(new StreamRecord<>(8, 4L));
+
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, restoredTestHarness.getOutput());
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static OneInputStreamOperatorTestHarness<Integer, Integer> createTestHarness(
+			AsyncFunction<Integer, Integer> function,
+			long timeout,
+			int capacity,
+			AsyncDataStream.OutputMode outputMode) throws Exception {
+
+		AsyncWaitOperator<Integer, Integer> operator = new AsyncWaitOperator<>(function, timeout, capacity, outputMode);
+
+		OneInputStreamOperatorTestHarness<Integer, Integer> testHarness = new OneInputStreamOperatorTestHarness<>(operator);
+		testHarness.getStreamConfig().setTypeSerializerIn1(IntSerializer.INSTANCE);
+
+		return testHarness;
+	}
+
+	/**
+	 * Function that doubles its input after a random delay.
+	 */
+	private static class DelayedAsyncFunction implements AsyncFunction<Integer, Integer> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Random random = new Random();
+
+		@Override
+		public void asyncInvoke(final Integer input, final AsyncCollector<Integer> collector) throws Exception {
+			final long delay = random.nextInt(10);
+
+			executorService.submit(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						TimeUnit.MILLISECONDS.sleep(delay);
+					} catch (InterruptedException e) {
+						collector.collect(e);
+						return;
+					}
+
+					collector.collect(Collections.singletonList(2 * input));
+				}
+			});
+		}
+	}
+
+	/**
+	 * Function that keeps the collectors without completing them.
+	 */
+	private static class CollectorCapturingAsyncFunction implements AsyncFunction<Integer, Integer> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<AsyncCollector<Integer>> collectors = Collections.synchronizedList(
+				new ArrayList<AsyncCollector<Integer>>());
+
+		@Override
+		public void asyncInvoke(Integer input, AsyncCollector<Integer> collector) throws Exception {
+			collectors.add(collector);
+		}
+	}
+}
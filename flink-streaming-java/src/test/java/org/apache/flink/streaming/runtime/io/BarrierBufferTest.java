@@ -19,15 +19,19 @@
 package org.apache.flink.streaming.runtime.io;
 
 import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.core.memory.MemoryType;
+import org.apache.flink.runtime.checkpoint.CheckpointDeclineReason;
 import org.apache.flink.runtime.checkpoint.CheckpointMetaData;
 import org.apache.flink.runtime.io.disk.iomanager.IOManager;
 import org.apache.flink.runtime.io.disk.iomanager.IOManagerAsync;
+import org.apache.flink.runtime.io.network.api.CancelCheckpointMarker;
 import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
 import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
 import org.apache.flink.runtime.io.network.partition.consumer.BufferOrEvent;
 import org.apache.flink.runtime.jobgraph.tasks.StatefulTask;
+import org.apache.flink.runtime.memory.MemoryManager;
 import org.apache.flink.runtime.state.ChainedStateHandle;
 import org.apache.flink.runtime.state.KeyGroupsStateHandle;
 import org.apache.flink.runtime.state.OperatorStateHandle;
@@ -38,6 +42,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -54,6 +59,9 @@ import static org.junit.Assert.fail;
 public class BarrierBufferTest {
 
 	private static final int PAGE_SIZE = 512;
+
+	/** The page size of the memory manager, which holds several network buffers */
+	private static final int MEMORY_PAGE_SIZE = 4096;
 	
 	private static int SIZE_COUNTER = 0;
 	
@@ -898,6 +906,269 @@ public class BarrierBufferTest {
 		}
 	}
 
+	/**
+	 * Validates that the blocked data is held in memory up to the configured amount, and
+	 * spilled afterwards, without changing the order of the buffers.
+	 */
+	@Test
+	public void testAlignmentInMemoryAndSpilled() throws Exception {
+		BufferOrEvent[] sequence = {
+				createBuffer(0), createBarrier(1, 0),
+				createBuffer(0), createBuffer(0), createBuffer(0),
+				createBuffer(1), createBarrier(1, 1),
+				createBuffer(0), createEndOfPartition(0), createEndOfPartition(1)
+		};
+
+		MemoryManager memoryManager = createMemoryManager();
+		MockInputGate gate = new MockInputGate(PAGE_SIZE, 2, Arrays.asList(sequence));
+		BarrierBuffer buffer = new BarrierBuffer(
+				gate, IO_MANAGER, memoryManager, new Object(), 2 * MEMORY_PAGE_SIZE, -1L);
+
+		ValidatingCheckpointHandler handler = new ValidatingCheckpointHandler();
+		buffer.registerCheckpointEventHandler(handler);
+		handler.setNextExpectedCheckpointId(1L);
+
+		check(sequence[0], buffer.getNextNonBlocked());
+		check(sequence[5], buffer.getNextNonBlocked());
+		check(sequence[2], buffer.getNextNonBlocked());
+		assertEquals(2L, handler.getNextExpectedCheckpointId());
+		assertTrue(handler.getLastReportedBytesBufferedInAlignment() >=
+				sequence[2].getBuffer().getSize() + sequence[3].getBuffer().getSize() + sequence[4].getBuffer().getSize());
+
+		check(sequence[3], buffer.getNextNonBlocked());
+		check(sequence[4], buffer.getNextNonBlocked());
+		check(sequence[7], buffer.getNextNonBlocked());
+		check(sequence[8], buffer.getNextNonBlocked());
+		check(sequence[9], buffer.getNextNonBlocked());
+
+		assertNull(buffer.getNextNonBlocked());
+		assertNull(buffer.getNextNonBlocked());
+
+		buffer.cleanup();
+
+		checkNoTempFilesRemain();
+		memoryManager.shutdown();
+	}
+
+	/**
+	 * Validates that an alignment that buffers more than the configured maximum is aborted,
+	 * that its checkpoint is declined, and that the following checkpoint proceeds normally.
+	 */
+	@Test
+	public void testAbortAlignmentOnSizeLimit() throws Exception {
+		BufferOrEvent[] sequence = {
+				// checkpoint 1, exceeds the limit
+				createBuffer(0), createBarrier(1, 0),
+				createBuffer(0), createBuffer(0),
+				createBuffer(1), createBarrier(1, 1),
+
+				// checkpoint 2, within the limit
+				createBuffer(0), createBarrier(2, 0),
+				createBuffer(1), createBarrier(2, 1),
+
+				createBuffer(0), createEndOfPartition(0), createEndOfPartition(1)
+		};
+
+		final long maxBufferedBytes =
+				sequence[2].getBuffer().getSize() + sequence[3].getBuffer().getSize() - 1;
+
+		MockInputGate gate = new MockInputGate(PAGE_SIZE, 2, Arrays.asList(sequence));
+		BarrierBuffer buffer = new BarrierBuffer(
+				gate, IO_MANAGER, createMemoryManager(), new Object(), 1024 * PAGE_SIZE, maxBufferedBytes);
+
+		ValidatingCheckpointHandler handler = new ValidatingCheckpointHandler();
+		buffer.registerCheckpointEventHandler(handler);
+		handler.setNextExpectedCheckpointId(2L);
+
+		check(sequence[0], buffer.getNextNonBlocked());
+
+		// the alignment of checkpoint 1 is aborted and the blocked data is released
+		check(sequence[2], buffer.getNextNonBlocked());
+		assertEquals(1L, handler.getLastAbortedCheckpointId());
+		assertEquals(CheckpointDeclineReason.ALIGNMENT_LIMIT_EXCEEDED, handler.getLastAbortReason());
+		check(sequence[3], buffer.getNextNonBlocked());
+		check(sequence[4], buffer.getNextNonBlocked());
+
+		// the trailing barrier of checkpoint 1 is ignored
+		check(sequence[6], buffer.getNextNonBlocked());
+		check(sequence[8], buffer.getNextNonBlocked());
+		check(sequence[10], buffer.getNextNonBlocked());
+		assertEquals(3L, handler.getNextExpectedCheckpointId());
+		assertEquals(1L, handler.getLastAbortedCheckpointId());
+
+		check(sequence[11], buffer.getNextNonBlocked());
+		check(sequence[12], buffer.getNextNonBlocked());
+
+		assertNull(buffer.getNextNonBlocked());
+
+		buffer.cleanup();
+
+		checkNoTempFilesRemain();
+	}
+
+	/**
+	 * Validates that a cancellation barrier aborts the current alignment, that the blocked data
+	 * is released, and that the remaining barriers of the cancelled checkpoint are ignored.
+	 */
+	@Test
+	public void testAbortAlignmentOnCancellationBarrier() throws Exception {
+		BufferOrEvent[] sequence = {
+				// checkpoint 1, cancelled by the upstream task of channel 1
+				createBuffer(0), createBarrier(1, 0),
+				createBuffer(0), createBuffer(2),
+				createCancellationBarrier(1, 1),
+				createBarrier(1, 2), createCancellationBarrier(1, 2),
+				createBuffer(1),
+
+				// checkpoint 2, cancelled before any barrier arrived
+				createCancellationBarrier(2, 0), createBuffer(0),
+				createBarrier(2, 1), createBarrier(2, 2), createBuffer(1),
+
+				// checkpoint 3, regular
+				createBarrier(3, 0), createBarrier(3, 1), createBarrier(3, 2),
+
+				createBuffer(0), createEndOfPartition(0), createEndOfPartition(1), createEndOfPartition(2)
+		};
+
+		MockInputGate gate = new MockInputGate(PAGE_SIZE, 3, Arrays.asList(sequence));
+		BarrierBuffer buffer = new BarrierBuffer(gate, IO_MANAGER);
+
+		ValidatingCheckpointHandler handler = new ValidatingCheckpointHandler();
+		buffer.registerCheckpointEventHandler(handler);
+		handler.setNextExpectedCheckpointId(3L);
+
+		check(sequence[0], buffer.getNextNonBlocked());
+		check(sequence[3], buffer.getNextNonBlocked());
+
+		// the alignment of checkpoint 1 is aborted and the blocked data is released
+		check(sequence[2], buffer.getNextNonBlocked());
+		assertEquals(1L, handler.getLastAbortedCheckpointId());
+		assertEquals(CheckpointDeclineReason.CANCELLED_BY_UPSTREAM_TASK, handler.getLastAbortReason());
+
+		// the trailing barrier and cancellation barrier of checkpoint 1 are ignored
+		check(sequence[7], buffer.getNextNonBlocked());
+
+		// checkpoint 2 is declined right away, its barriers do not block any channel
+		check(sequence[9], buffer.getNextNonBlocked());
+		assertEquals(2L, handler.getLastAbortedCheckpointId());
+		check(sequence[12], buffer.getNextNonBlocked());
+
+		// checkpoint 3 completes normally
+		check(sequence[16], buffer.getNextNonBlocked());
+		assertEquals(4L, handler.getNextExpectedCheckpointId());
+		assertEquals(2L, handler.getLastAbortedCheckpointId());
+
+		check(sequence[17], buffer.getNextNonBlocked());
+		check(sequence[18], buffer.getNextNonBlocked());
+		check(sequence[19], buffer.getNextNonBlocked());
+
+		assertNull(buffer.getNextNonBlocked());
+
+		buffer.cleanup();
+
+		checkNoTempFilesRemain();
+	}
+
+	/**
+	 * Validates that an alignment that is aborted because of the size limit also releases the
+	 * alignment of the downstream task. The first stage forwards barriers and cancellation
+	 * barriers like the stream task does. Its output is the first input channel of the second
+	 * stage, whose other channel has already delivered the barrier of the aborted checkpoint.
+	 */
+	@Test
+	public void testAbortedAlignmentReleasesDownstreamAlignment() throws Exception {
+		BufferOrEvent[] firstStageInput = {
+				// checkpoint 1, exceeds the limit
+				createBuffer(0), createBarrier(1, 0),
+				createBuffer(0), createBuffer(0),
+				createBuffer(1), createBarrier(1, 1),
+
+				// checkpoint 2, within the limit
+				createBarrier(2, 0), createBarrier(2, 1),
+
+				createBuffer(0), createEndOfPartition(0), createEndOfPartition(1)
+		};
+
+		final long maxBufferedBytes =
+				firstStageInput[2].getBuffer().getSize() + firstStageInput[3].getBuffer().getSize() - 1;
+
+		// run the first stage
+
+		List<BufferOrEvent> firstStageOutput = new ArrayList<>();
+
+		BarrierBuffer firstStage = new BarrierBuffer(
+				new MockInputGate(PAGE_SIZE, 2, Arrays.asList(firstStageInput)),
+				IO_MANAGER, createMemoryManager(), new Object(), 1024 * PAGE_SIZE, maxBufferedBytes);
+
+		ForwardingCheckpointHandler firstStageHandler = new ForwardingCheckpointHandler(firstStageOutput, 0);
+		firstStage.registerCheckpointEventHandler(firstStageHandler);
+		firstStageHandler.setNextExpectedCheckpointId(2L);
+
+		BufferOrEvent next;
+		while ((next = firstStage.getNextNonBlocked()) != null) {
+			if (next.isBuffer()) {
+				firstStageOutput.add(new BufferOrEvent(next.getBuffer(), 0));
+			}
+		}
+		firstStage.cleanup();
+
+		assertEquals(1L, firstStageHandler.getLastAbortedCheckpointId());
+		assertEquals(3L, firstStageHandler.getNextExpectedCheckpointId());
+
+		// run the second stage
+
+		List<BufferOrEvent> secondStageInput = new ArrayList<>();
+
+		BufferOrEvent[] otherInputBefore = {
+				createBarrier(1, 1), createBuffer(1), createBuffer(1)
+		};
+		BufferOrEvent[] otherInputAfter = {
+				createBarrier(2, 1), createBuffer(1)
+		};
+
+		secondStageInput.addAll(Arrays.asList(otherInputBefore));
+		secondStageInput.addAll(firstStageOutput);
+		secondStageInput.addAll(Arrays.asList(otherInputAfter));
+		secondStageInput.add(createEndOfPartition(0));
+		secondStageInput.add(createEndOfPartition(1));
+
+		BarrierBuffer secondStage = new BarrierBuffer(
+				new MockInputGate(PAGE_SIZE, 2, secondStageInput), IO_MANAGER);
+
+		ValidatingCheckpointHandler secondStageHandler = new ValidatingCheckpointHandler();
+		secondStage.registerCheckpointEventHandler(secondStageHandler);
+		secondStageHandler.setNextExpectedCheckpointId(2L);
+
+		// the output of the first stage: buffer, cancellation barrier 1, released buffers, barrier 2, buffer
+		assertEquals(7, firstStageOutput.size());
+		assertEquals(new CancelCheckpointMarker(1L), firstStageOutput.get(1).getEvent());
+
+		check(firstStageOutput.get(0), secondStage.getNextNonBlocked());
+
+		// the cancellation barrier releases the data that was blocked for checkpoint 1
+		check(otherInputBefore[1], secondStage.getNextNonBlocked());
+		assertEquals(1L, secondStageHandler.getLastAbortedCheckpointId());
+		assertEquals(CheckpointDeclineReason.CANCELLED_BY_UPSTREAM_TASK, secondStageHandler.getLastAbortReason());
+		check(otherInputBefore[2], secondStage.getNextNonBlocked());
+
+		check(firstStageOutput.get(2), secondStage.getNextNonBlocked());
+		check(firstStageOutput.get(3), secondStage.getNextNonBlocked());
+		check(firstStageOutput.get(4), secondStage.getNextNonBlocked());
+
+		// checkpoint 2 completes in the second stage as well
+		check(firstStageOutput.get(6), secondStage.getNextNonBlocked());
+		assertEquals(3L, secondStageHandler.getNextExpectedCheckpointId());
+		check(otherInputAfter[1], secondStage.getNextNonBlocked());
+
+		check(createEndOfPartition(0), secondStage.getNextNonBlocked());
+		check(createEndOfPartition(1), secondStage.getNextNonBlocked());
+		assertNull(secondStage.getNextNonBlocked());
+
+		secondStage.cleanup();
+
+		checkNoTempFilesRemain();
+	}
+
 	@Test
 	public void testEndOfStreamWhileCheckpoint() {
 		
@@ -911,6 +1182,14 @@ public class BarrierBufferTest {
 		return new BufferOrEvent(new CheckpointBarrier(id, System.currentTimeMillis()), channel);
 	}
 
+	private static BufferOrEvent createCancellationBarrier(long id, int channel) {
+		return new BufferOrEvent(new CancelCheckpointMarker(id), channel);
+	}
+
+	private static MemoryManager createMemoryManager() {
+		return new MemoryManager(16 * MEMORY_PAGE_SIZE, 1, MEMORY_PAGE_SIZE, MemoryType.HEAP, false);
+	}
+
 	private static BufferOrEvent createBuffer(int channel) {
 		// since we have no access to the contents, we need to use the size as an
 		// identifier to validate correctness here
@@ -965,6 +1244,12 @@ public class BarrierBufferTest {
 		
 		private long nextExpectedCheckpointId = -1L;
 
+		private long lastReportedBytesBufferedInAlignment = -1L;
+
+		private long lastAbortedCheckpointId = -1L;
+
+		private CheckpointDeclineReason lastAbortReason;
+
 		public void setNextExpectedCheckpointId(long nextExpectedCheckpointId) {
 			this.nextExpectedCheckpointId = nextExpectedCheckpointId;
 		}
@@ -973,6 +1258,18 @@ public class BarrierBufferTest {
 			return nextExpectedCheckpointId;
 		}
 
+		public long getLastReportedBytesBufferedInAlignment() {
+			return lastReportedBytesBufferedInAlignment;
+		}
+
+		public long getLastAbortedCheckpointId() {
+			return lastAbortedCheckpointId;
+		}
+
+		public CheckpointDeclineReason getLastAbortReason() {
+			return lastAbortReason;
+		}
+
 		@Override
 		public void setInitialState(TaskStateHandles taskStateHandles) throws Exception {
 			throw new UnsupportedOperationException("should never be called");
@@ -991,12 +1288,49 @@ public class BarrierBufferTest {
 			assertTrue(checkpointMetaData.getBytesBufferedInAlignment() >= 0);
 			assertTrue(checkpointMetaData.getAlignmentDurationNanos() >= 0);
 
+			lastReportedBytesBufferedInAlignment = checkpointMetaData.getBytesBufferedInAlignment();
 			nextExpectedCheckpointId++;
 		}
 
+		@Override
+		public void abortCheckpointOnBarrier(CheckpointMetaData checkpointMetaData, CheckpointDeclineReason reason) throws Exception {
+			lastAbortedCheckpointId = checkpointMetaData.getCheckpointId();
+			lastAbortReason = reason;
+		}
+
 		@Override
 		public void notifyCheckpointComplete(long checkpointId) throws Exception {
 			throw new UnsupportedOperationException("should never be called");
 		}
 	}
+
+	/**
+	 * Checkpoint handler that emits barriers and cancellation barriers into an output sequence,
+	 * like the stream task does, so that the output can be fed into a downstream barrier buffer.
+	 */
+	private static class ForwardingCheckpointHandler extends ValidatingCheckpointHandler {
+
+		private final List<BufferOrEvent> output;
+
+		private final int outputChannel;
+
+		ForwardingCheckpointHandler(List<BufferOrEvent> output, int outputChannel) {
+			this.output = output;
+			this.outputChannel = outputChannel;
+		}
+
+		@Override
+		public void triggerCheckpointOnBarrier(CheckpointMetaData checkpointMetaData) throws Exception {
+			super.triggerCheckpointOnBarrier(checkpointMetaData);
+			output.add(new BufferOrEvent(
+					new CheckpointBarrier(checkpointMetaData.getCheckpointId(), checkpointMetaData.getTimestamp()),
+					outputChannel));
+		}
+
+		@Override
+		public void abortCheckpointOnBarrier(CheckpointMetaData checkpointMetaData, CheckpointDeclineReason reason) throws Exception {
+			super.abortCheckpointOnBarrier(checkpointMetaData, reason);
+			output.add(new BufferOrEvent(new CancelCheckpointMarker(checkpointMetaData.getCheckpointId()), outputChannel));
+		}
+	}
 }
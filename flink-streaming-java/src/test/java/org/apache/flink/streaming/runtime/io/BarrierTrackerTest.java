@@ -19,7 +19,9 @@
 package org.apache.flink.streaming.runtime.io;
 
 import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.checkpoint.CheckpointDeclineReason;
 import org.apache.flink.runtime.checkpoint.CheckpointMetaData;
+import org.apache.flink.runtime.io.network.api.CancelCheckpointMarker;
 import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
@@ -339,6 +341,46 @@ public class BarrierTrackerTest {
 		}
 	}
 
+	/**
+	 * This test validates that cancellation barriers decline the cancelled checkpoint once and
+	 * that the remaining barriers of the cancelled checkpoint are ignored.
+	 */
+	@Test
+	public void testCancellationBarriers() throws Exception {
+		BufferOrEvent[] sequence = {
+				// checkpoint 1, cancelled after some barriers
+				createBuffer(0), createBarrier(1, 0),
+				createBuffer(1), createBarrier(1, 1),
+				createBuffer(2), createCancellationBarrier(1, 2),
+
+				// checkpoint 2, cancelled before any barrier
+				createCancellationBarrier(2, 0), createBuffer(1),
+				createBarrier(2, 1), createCancellationBarrier(2, 1), createBarrier(2, 2),
+
+				// checkpoint 3, regular
+				createBuffer(0), createBarrier(3, 0), createBarrier(3, 1),
+				createBuffer(2), createBarrier(3, 2),
+
+				createBuffer(1)
+		};
+
+		MockInputGate gate = new MockInputGate(PAGE_SIZE, 3, Arrays.asList(sequence));
+		BarrierTracker tracker = new BarrierTracker(gate);
+
+		// negative ids stand for declined checkpoints
+		CheckpointSequenceValidator validator = new CheckpointSequenceValidator(-1, -2, 3);
+		tracker.registerCheckpointEventHandler(validator);
+
+		for (BufferOrEvent boe : sequence) {
+			if (boe.isBuffer()) {
+				assertEquals(boe, tracker.getNextNonBlocked());
+			}
+		}
+
+		assertNull(tracker.getNextNonBlocked());
+		assertNull(tracker.getNextNonBlocked());
+	}
+
 	// ------------------------------------------------------------------------
 	//  Utils
 	// ------------------------------------------------------------------------
@@ -347,6 +389,10 @@ public class BarrierTrackerTest {
 		return new BufferOrEvent(new CheckpointBarrier(id, System.currentTimeMillis()), channel);
 	}
 
+	private static BufferOrEvent createCancellationBarrier(long id, int channel) {
+		return new BufferOrEvent(new CancelCheckpointMarker(id), channel);
+	}
+
 	private static BufferOrEvent createBuffer(int channel) {
 		return new BufferOrEvent(
 				new Buffer(MemorySegmentFactory.wrap(new byte[]{1, 2}), FreeingBufferRecycler.INSTANCE), channel);
@@ -385,6 +431,14 @@ public class BarrierTrackerTest {
 			assertTrue(checkpointMetaData.getTimestamp() > 0);
 		}
 
+		@Override
+		public void abortCheckpointOnBarrier(CheckpointMetaData checkpointMetaData, CheckpointDeclineReason reason) throws Exception {
+
+			assertTrue("More checkpoints than expected", i < checkpointIDs.length);
+			assertEquals("wrong checkpoint id", checkpointIDs[i++], -checkpointMetaData.getCheckpointId());
+			assertEquals(CheckpointDeclineReason.CANCELLED_BY_UPSTREAM_TASK, reason);
+		}
+
 		@Override
 		public void notifyCheckpointComplete(long checkpointId) throws Exception {
 			throw new UnsupportedOperationException("should never be called");
@@ -0,0 +1,340 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.io;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.core.memory.MemoryType;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.io.disk.iomanager.IOManagerAsync;
+import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferRecycler;
+import org.apache.flink.runtime.io.network.partition.consumer.BufferOrEvent;
+import org.apache.flink.runtime.memory.MemoryManager;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the {@link BufferBlocker}.
+ */
+public class BufferBlockerTest {
+
+	private static final int PAGE_SIZE = 4096;
+
+	private static IOManager IO_MANAGER;
+
+	/** The memory manager of the task, with memory for 8 pages */
+	private final MemoryManager memoryManager =
+			new MemoryManager(8 * PAGE_SIZE, 1, PAGE_SIZE, MemoryType.HEAP, false);
+
+	/** The owner of the memory */
+	private final Object task = new Object();
+
+	private BufferBlocker blocker;
+
+	@BeforeClass
+	public static void setupIOManager() {
+		IO_MANAGER = new IOManagerAsync();
+	}
+
+	@AfterClass
+	public static void shutdownIOManager() {
+		IO_MANAGER.shutdown();
+	}
+
+	@After
+	public void closeBlocker() throws Exception {
+		if (blocker != null) {
+			blocker.close();
+		}
+
+		checkNoTempFilesRemain();
+
+		assertTrue("Not all pages were released to the memory manager.", memoryManager.verifyEmpty());
+		memoryManager.shutdown();
+	}
+
+	// ------------------------------------------------------------------------
+	//  Tests
+	// ------------------------------------------------------------------------
+
+	@Test
+	public void testRollOverEmptySequences() throws Exception {
+		blocker = new BufferBlocker(IO_MANAGER, memoryManager, task, PAGE_SIZE, 4 * PAGE_SIZE);
+
+		assertNull(blocker.rollOver());
+		assertNull(blocker.rollOverWithNewBuffer());
+		assertEquals(0L, blocker.getBytesBlocked());
+	}
+
+	/**
+	 * Tests that the buffers are copied into memory and that the network buffers are recycled
+	 * right away.
+	 */
+	@Test
+	public void testBlockInMemory() throws Exception {
+		blocker = new BufferBlocker(IO_MANAGER, memoryManager, task, PAGE_SIZE, 4 * PAGE_SIZE);
+
+		List<BufferOrEvent> expected = new ArrayList<>();
+		List<CountingRecycler> recyclers = new ArrayList<>();
+
+		for (int i = 0; i < 4; i++) {
+			CountingRecycler recycler = new CountingRecycler();
+			recyclers.add(recycler);
+
+			BufferOrEvent boe = createBuffer(100 + i, i % 2, recycler);
+			expected.add(boe);
+			blocker.add(boe);
+
+			if (i == 1) {
+				BufferOrEvent event = new BufferOrEvent(new CheckpointBarrier(1L, 2L), 1);
+				expected.add(event);
+				blocker.add(event);
+			}
+		}
+
+		for (CountingRecycler recycler : recyclers) {
+			assertEquals(1, recycler.numRecycled);
+		}
+
+		assertEquals(100 + 101 + 102 + 103, blocker.getBytesBlocked());
+		assertEquals(4, blocker.getNumberOfAllocatedPages());
+		checkNoTempFilesRemain();
+
+		BufferOrEventSequence seq = blocker.rollOver();
+		assertNotNull(seq);
+		assertEquals(0L, blocker.getBytesBlocked());
+
+		seq.open();
+		for (BufferOrEvent boe : expected) {
+			BufferOrEvent next = seq.getNext();
+			validate(boe, next);
+
+			if (next.isBuffer()) {
+				next.getBuffer().recycle();
+			}
+		}
+		assertNull(seq.getNext());
+		seq.cleanup();
+
+		// all pages are available for the next alignment
+		assertEquals(4, blocker.getNumberOfAvailablePages());
+		assertFalse(memoryManager.verifyEmpty());
+	}
+
+	/**
+	 * Tests that the buffers are spilled once the memory is used up, and that the sequence
+	 * presents all buffers in the order in which they were added.
+	 */
+	@Test
+	public void testSpillWhenMemoryIsUsedUp() throws Exception {
+		blocker = new BufferBlocker(IO_MANAGER, memoryManager, task, PAGE_SIZE, 2 * PAGE_SIZE);
+
+		List<BufferOrEvent> expected = new ArrayList<>();
+
+		for (int i = 0; i < 6; i++) {
+			BufferOrEvent boe = createBuffer(200 + i, i % 3, new CountingRecycler());
+			expected.add(boe);
+			blocker.add(boe);
+
+			if (i == 2) {
+				// an event after spilling started
+				BufferOrEvent event = new BufferOrEvent(new CheckpointBarrier(3L, 4L), 2);
+				expected.add(event);
+				blocker.add(event);
+			}
+		}
+
+		assertEquals(2, blocker.getNumberOfAllocatedPages());
+		assertTrue(blocker.getBytesBlocked() > 200 + 201);
+
+		BufferOrEventSequence seq = blocker.rollOver();
+		assertNotNull(seq);
+
+		// the pages are reused by the following alignment, while the spilled part is read
+		BufferOrEvent nextAlignment = createBuffer(300, 0, new CountingRecycler());
+		blocker.add(nextAlignment);
+
+		seq.open();
+		for (BufferOrEvent boe : expected) {
+			BufferOrEvent next = seq.getNext();
+			validate(boe, next);
+
+			if (next.isBuffer()) {
+				next.getBuffer().recycle();
+			}
+		}
+		assertNull(seq.getNext());
+		seq.cleanup();
+
+		BufferOrEventSequence nextSeq = blocker.rollOverWithNewBuffer();
+		assertNotNull(nextSeq);
+		nextSeq.open();
+		validate(nextAlignment, nextSeq.getNext());
+		assertNull(nextSeq.getNext());
+		nextSeq.cleanup();
+
+		assertEquals(2, blocker.getNumberOfAllocatedPages());
+	}
+
+	/**
+	 * Tests that a blocker without memory spills all data.
+	 */
+	@Test
+	public void testSpillWithoutMemory() throws Exception {
+		blocker = new BufferBlocker(IO_MANAGER, PAGE_SIZE);
+
+		BufferOrEvent boe = createBuffer(500, 0, new CountingRecycler());
+		blocker.add(boe);
+
+		assertEquals(0, blocker.getNumberOfAllocatedPages());
+		assertTrue(blocker.getBytesBlocked() > 500);
+
+		BufferOrEventSequence seq = blocker.rollOver();
+		seq.open();
+		validate(boe, seq.getNext());
+		assertNull(seq.getNext());
+		seq.cleanup();
+	}
+
+	/**
+	 * Tests that the blocker spills when the memory manager has no free pages, even if the
+	 * configured memory for blocked data is not used up.
+	 */
+	@Test
+	public void testSpillWhenMemoryManagerIsExhausted() throws Exception {
+		List<MemorySegment> otherPages = memoryManager.allocatePages(new Object(), 7);
+		blocker = new BufferBlocker(IO_MANAGER, memoryManager, task, PAGE_SIZE, 4 * PAGE_SIZE);
+
+		List<BufferOrEvent> expected = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			BufferOrEvent boe = createBuffer(100 + i, i, new CountingRecycler());
+			expected.add(boe);
+			blocker.add(boe);
+		}
+
+		assertEquals(1, blocker.getNumberOfAllocatedPages());
+
+		BufferOrEventSequence seq = blocker.rollOver();
+		seq.open();
+		for (BufferOrEvent boe : expected) {
+			BufferOrEvent next = seq.getNext();
+			validate(boe, next);
+			next.getBuffer().recycle();
+		}
+		assertNull(seq.getNext());
+		seq.cleanup();
+
+		memoryManager.release(otherPages);
+	}
+
+	/**
+	 * Tests that the pages of a sequence that is consumed after the blocker was closed are
+	 * released to the memory manager.
+	 */
+	@Test
+	public void testReleasePagesAfterClose() throws Exception {
+		blocker = new BufferBlocker(IO_MANAGER, memoryManager, task, PAGE_SIZE, 4 * PAGE_SIZE);
+
+		blocker.add(createBuffer(100, 0, new CountingRecycler()));
+		blocker.add(createBuffer(101, 1, new CountingRecycler()));
+		BufferOrEventSequence seq = blocker.rollOver();
+
+		// pages of elements that are not rolled over are released right away
+		blocker.add(createBuffer(102, 0, new CountingRecycler()));
+		blocker.close();
+		assertEquals(2, blocker.getNumberOfAllocatedPages());
+
+		seq.open();
+		seq.getNext().getBuffer().recycle();
+		assertEquals(1, blocker.getNumberOfAllocatedPages());
+
+		seq.cleanup();
+		assertEquals(0, blocker.getNumberOfAllocatedPages());
+		blocker = null;
+	}
+
+	// ------------------------------------------------------------------------
+	//  Utils
+	// ------------------------------------------------------------------------
+
+	private static BufferOrEvent createBuffer(int size, int channelIndex, BufferRecycler recycler) {
+		MemorySegment seg = MemorySegmentFactory.allocateUnpooledSegment(PAGE_SIZE);
+		for (int i = 0; i < size; i++) {
+			seg.put(i, (byte) (channelIndex + i));
+		}
+
+		Buffer buf = new Buffer(seg, recycler);
+		buf.setSize(size);
+		return new BufferOrEvent(buf, channelIndex);
+	}
+
+	private static void validate(BufferOrEvent expected, BufferOrEvent present) {
+		assertNotNull(present);
+		assertEquals(expected.getChannelIndex(), present.getChannelIndex());
+		assertEquals(expected.isBuffer(), present.isBuffer());
+
+		if (expected.isBuffer()) {
+			Buffer buffer = present.getBuffer();
+			assertEquals(expected.getBuffer().getSize(), buffer.getSize());
+
+			MemorySegment seg = buffer.getMemorySegment();
+			for (int i = 0; i < buffer.getSize(); i++) {
+				assertEquals((byte) (present.getChannelIndex() + i), seg.get(i));
+			}
+		}
+		else {
+			assertEquals(expected.getEvent(), present.getEvent());
+		}
+	}
+
+	private static void checkNoTempFilesRemain() {
+		// validate that all temp files have been removed
+		for (File dir : IO_MANAGER.getSpillingDirectories()) {
+			for (String file : dir.list()) {
+				if (file != null && !(file.equals(".") || file.equals(".."))) {
+					fail("barrier buffer did not clean up temp files. remaining file: " + file);
+				}
+			}
+		}
+	}
+
+	private static class CountingRecycler implements BufferRecycler {
+
+		private int numRecycled;
+
+		@Override
+		public void recycle(MemorySegment memorySegment) {
+			numRecycled++;
+		}
+	}
+}
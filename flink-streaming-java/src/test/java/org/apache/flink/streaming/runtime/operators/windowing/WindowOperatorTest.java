@@ -20,8 +20,10 @@ package org.apache.flink.streaming.runtime.operators.windowing;
 import com.google.common.base.Joiner;
 import com.google.common.collect.Iterables;
 import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.functions.AggregateFunction;
 import org.apache.flink.api.common.functions.FoldFunction;
 import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.common.state.AggregatingStateDescriptor;
 import org.apache.flink.api.common.state.FoldingStateDescriptor;
 import org.apache.flink.api.common.state.ListStateDescriptor;
 import org.apache.flink.api.common.state.ReducingStateDescriptor;
@@ -76,6 +78,7 @@ import org.junit.Test;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Random;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -500,6 +503,73 @@ public class WindowOperatorTest extends TestLogger {
 		testHarness.close();
 	}
 
+	/**
+	 * This tests whether merging session windows combines the accumulators of an
+	 * {@code AggregateFunction}, before and after restoring from a snapshot.
+	 */
+	@Test
+	public void testAggregateSessionWindows() throws Exception {
+		closeCalled.set(0);
+
+		final int SESSION_SIZE = 3;
+
+		TypeInformation<Tuple2<String, Integer>> inputType = TypeInfoParser.parse("Tuple2<String, Integer>");
+
+		AggregatingStateDescriptor<Tuple2<String, Integer>, Tuple2<String, Integer>, Tuple2<String, Integer>> stateDesc =
+				new AggregatingStateDescriptor<>("window-contents", new SumAggregator(), inputType.createSerializer(new ExecutionConfig()));
+
+		WindowOperator<String, Tuple2<String, Integer>, Tuple2<String, Integer>, Tuple3<String, Long, Long>, TimeWindow> operator = new WindowOperator<>(
+				EventTimeSessionWindows.withGap(Time.seconds(SESSION_SIZE)),
+				new TimeWindow.Serializer(),
+				new TupleKeySelector(),
+				BasicTypeInfo.STRING_TYPE_INFO.createSerializer(new ExecutionConfig()),
+				stateDesc,
+				new InternalSingleValueWindowFunction<>(new ReducedSessionWindowFunction()),
+				EventTimeTrigger.create(),
+				0);
+
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple3<String, Long, Long>> testHarness =
+				new KeyedOneInputStreamOperatorTestHarness<>(operator, new TupleKeySelector(), BasicTypeInfo.STRING_TYPE_INFO);
+
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+
+		testHarness.open();
+
+		// add elements out-of-order
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key2", 1), 0));
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key2", 2), 1000));
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key2", 3), 2500));
+
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key1", 1), 10));
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key1", 2), 5000));
+
+		// do a snapshot, close and restore again
+		OperatorStateHandles snapshot = testHarness.snapshot(0L, 0L);
+		testHarness.close();
+		testHarness.setup();
+		testHarness.initializeState(snapshot);
+		testHarness.open();
+
+		// bridges the two sessions of key1
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key1", 3), 2500));
+
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key2", 4), 5501));
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key2", 5), 6000));
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key2", 5), 6000));
+		testHarness.processElement(new StreamRecord<>(new Tuple2<>("key2", 6), 6050));
+
+		testHarness.processWatermark(new Watermark(12000));
+
+		expectedOutput.add(new StreamRecord<>(new Tuple3<>("key1-6", 10L, 8000L), 7999));
+		expectedOutput.add(new StreamRecord<>(new Tuple3<>("key2-6", 0L, 5500L), 5499));
+		expectedOutput.add(new StreamRecord<>(new Tuple3<>("key2-20", 5501L, 9050L), 9049));
+		expectedOutput.add(new Watermark(12000));
+
+		TestHarnessUtil.assertOutputEqualsSorted("Output was not correct.", expectedOutput, testHarness.getOutput(), new Tuple3ResultSortComparator());
+
+		testHarness.close();
+	}
+
 	/**
 	 * This tests whether merging works correctly with the CountTrigger.
 	 * @throws Exception
@@ -1363,6 +1433,127 @@ public class WindowOperatorTest extends TestLogger {
 		testHarness.close();
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testPanedSlidingEventTimeWindowsReduce() throws Exception {
+		closeCalled.set(0);
+
+		final int WINDOW_SIZE = 3;
+		final int WINDOW_SLIDE = 1;
+
+		TypeInformation<Tuple2<String, Integer>> inputType = TypeInfoParser.parse("Tuple2<String, Integer>");
+
+		ReducingStateDescriptor<Tuple2<String, Integer>> stateDesc = new ReducingStateDescriptor<>(PanedSlidingWindowOperator.PANE_STATE_NAME,
+				new SumReducer(),
+				inputType.createSerializer(new ExecutionConfig()));
+
+		PanedSlidingWindowOperator<String, Tuple2<String, Integer>, Tuple2<String, Integer>> operator = new PanedSlidingWindowOperator<>(
+				SlidingEventTimeWindows.of(Time.of(WINDOW_SIZE, TimeUnit.SECONDS), Time.of(WINDOW_SLIDE, TimeUnit.SECONDS)),
+				new TimeWindow.Serializer(),
+				new TupleKeySelector(),
+				BasicTypeInfo.STRING_TYPE_INFO.createSerializer(new ExecutionConfig()),
+				stateDesc,
+				new InternalSingleValueWindowFunction<>(new PassThroughWindowFunction<String, TimeWindow, Tuple2<String, Integer>>()),
+				EventTimeTrigger.create(),
+				0);
+
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> testHarness =
+				new KeyedOneInputStreamOperatorTestHarness<>(operator, new TupleKeySelector(), BasicTypeInfo.STRING_TYPE_INFO);
+
+		testHarness.setup();
+		testHarness.open();
+
+		testSlidingEventTimeWindows(testHarness);
+
+		testHarness.close();
+	}
+
+	/**
+	 * Verifies that the pane-based operator for sliding windows emits the same results as the
+	 * regular {@link WindowOperator}, for out-of-order elements, late elements within and
+	 * beyond the allowed lateness, and window offsets.
+	 */
+	@Test
+	public void testPanedSlidingEventTimeWindowsMatchWindowOperator() throws Exception {
+		final long WINDOW_SIZE = 2000;
+		final long WINDOW_SLIDE = 500;
+		final long OFFSET = 100;
+		final long LATENESS = 700;
+
+		SlidingEventTimeWindows windowAssigner = SlidingEventTimeWindows.of(
+			Time.milliseconds(WINDOW_SIZE), Time.milliseconds(WINDOW_SLIDE), Time.milliseconds(OFFSET));
+
+		TypeInformation<Tuple2<String, Integer>> inputType = TypeInfoParser.parse("Tuple2<String, Integer>");
+
+		ReducingStateDescriptor<Tuple2<String, Integer>> stateDesc = new ReducingStateDescriptor<>("window-contents",
+				new SumReducer(),
+				inputType.createSerializer(new ExecutionConfig()));
+
+		WindowOperator<String, Tuple2<String, Integer>, Tuple2<String, Integer>, Tuple2<String, Integer>, TimeWindow> windowOperator =
+			new WindowOperator<>(
+				windowAssigner,
+				new TimeWindow.Serializer(),
+				new TupleKeySelector(),
+				BasicTypeInfo.STRING_TYPE_INFO.createSerializer(new ExecutionConfig()),
+				stateDesc,
+				new InternalSingleValueWindowFunction<>(new PassThroughWindowFunction<String, TimeWindow, Tuple2<String, Integer>>()),
+				EventTimeTrigger.create(),
+				LATENESS);
+
+		ReducingStateDescriptor<Tuple2<String, Integer>> paneStateDesc = new ReducingStateDescriptor<>(PanedSlidingWindowOperator.PANE_STATE_NAME,
+				new SumReducer(),
+				inputType.createSerializer(new ExecutionConfig()));
+
+		PanedSlidingWindowOperator<String, Tuple2<String, Integer>, Tuple2<String, Integer>> panedOperator =
+			new PanedSlidingWindowOperator<>(
+				windowAssigner,
+				new TimeWindow.Serializer(),
+				new TupleKeySelector(),
+				BasicTypeInfo.STRING_TYPE_INFO.createSerializer(new ExecutionConfig()),
+				paneStateDesc,
+				new InternalSingleValueWindowFunction<>(new PassThroughWindowFunction<String, TimeWindow, Tuple2<String, Integer>>()),
+				EventTimeTrigger.create(),
+				LATENESS);
+
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> expectedHarness =
+			new KeyedOneInputStreamOperatorTestHarness<>(windowOperator, new TupleKeySelector(), BasicTypeInfo.STRING_TYPE_INFO);
+
+		OneInputStreamOperatorTestHarness<Tuple2<String, Integer>, Tuple2<String, Integer>> panedHarness =
+			new KeyedOneInputStreamOperatorTestHarness<>(panedOperator, new TupleKeySelector(), BasicTypeInfo.STRING_TYPE_INFO);
+
+		expectedHarness.open();
+		panedHarness.open();
+
+		Random random = new Random(42);
+		long watermark = 0;
+
+		for (int i = 0; i < 2000; i++) {
+			// elements are up to two seconds behind the watermark, so some of them are late
+			long timestamp = Math.max(0, watermark + random.nextInt(3000) - 2000);
+			StreamRecord<Tuple2<String, Integer>> record =
+				new StreamRecord<>(new Tuple2<>("key" + random.nextInt(3), random.nextInt(10)), timestamp);
+
+			expectedHarness.processElement(record);
+			panedHarness.processElement(record.copy(record.getValue().copy()));
+
+			if (i % 10 == 0) {
+				watermark += random.nextInt(200);
+				expectedHarness.processWatermark(new Watermark(watermark));
+				panedHarness.processWatermark(new Watermark(watermark));
+			}
+		}
+
+		expectedHarness.processWatermark(new Watermark(Long.MAX_VALUE));
+		panedHarness.processWatermark(new Watermark(Long.MAX_VALUE));
+
+		assertTrue(expectedHarness.getOutput().size() > 0);
+		TestHarnessUtil.assertOutputEqualsSorted("Output was not correct.",
+			expectedHarness.getOutput(), panedHarness.getOutput(), new Tuple2ResultSortComparator());
+
+		expectedHarness.close();
+		panedHarness.close();
+	}
+
 	@Test
 	public void testDropDueToLatenessSessionZeroLatenessPurgingTrigger() throws Exception {
 		final int GAP_SIZE = 3;
@@ -2252,6 +2443,32 @@ public class WindowOperatorTest extends TestLogger {
 	}
 
 
+	public static class SumAggregator implements AggregateFunction<Tuple2<String, Integer>, Tuple2<String, Integer>, Tuple2<String, Integer>> {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Tuple2<String, Integer> createAccumulator() {
+			return new Tuple2<>("", 0);
+		}
+
+		@Override
+		public void add(Tuple2<String, Integer> value, Tuple2<String, Integer> accumulator) {
+			accumulator.f0 = value.f0;
+			accumulator.f1 += value.f1;
+		}
+
+		@Override
+		public Tuple2<String, Integer> getResult(Tuple2<String, Integer> accumulator) {
+			return accumulator;
+		}
+
+		@Override
+		public Tuple2<String, Integer> merge(Tuple2<String, Integer> a, Tuple2<String, Integer> b) {
+			a.f1 += b.f1;
+			return a;
+		}
+	}
+
 	public static class RichSumReducer<W extends Window> extends RichWindowFunction<Tuple2<String, Integer>, Tuple2<String, Integer>, String, W> {
 		private static final long serialVersionUID = 1L;
 
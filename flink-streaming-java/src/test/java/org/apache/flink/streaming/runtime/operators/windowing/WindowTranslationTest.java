@@ -17,11 +17,14 @@
  */
 package org.apache.flink.streaming.runtime.operators.windowing;
 
+import org.apache.flink.api.common.functions.AggregateFunction;
 import org.apache.flink.api.common.functions.FoldFunction;
 import org.apache.flink.api.common.functions.ReduceFunction;
 import org.apache.flink.api.common.functions.RichReduceFunction;
+import org.apache.flink.api.common.state.AggregatingStateDescriptor;
 import org.apache.flink.api.common.state.ListStateDescriptor;
 import org.apache.flink.api.common.state.ReducingStateDescriptor;
+import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
 import org.apache.flink.api.java.functions.KeySelector;
 import org.apache.flink.api.java.tuple.Tuple;
 import org.apache.flink.api.java.tuple.Tuple2;
@@ -30,10 +33,12 @@ import org.apache.flink.streaming.api.datastream.DataStream;
 import org.apache.flink.streaming.api.datastream.WindowedStream;
 import org.apache.flink.streaming.api.environment.LocalStreamEnvironment;
 import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+import org.apache.flink.streaming.api.functions.windowing.InvertibleReduceFunction;
 import org.apache.flink.streaming.api.functions.windowing.WindowFunction;
 import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
 import org.apache.flink.streaming.api.transformations.OneInputTransformation;
 import org.apache.flink.streaming.api.windowing.assigners.EventTimeSessionWindows;
+import org.apache.flink.streaming.api.windowing.assigners.GlobalWindows;
 import org.apache.flink.streaming.api.windowing.assigners.SlidingEventTimeWindows;
 import org.apache.flink.streaming.api.windowing.assigners.TumblingEventTimeWindows;
 import org.apache.flink.streaming.api.windowing.evictors.CountEvictor;
@@ -135,6 +140,72 @@ public class WindowTranslationTest {
 		Assert.assertTrue(winOperator2.getStateDescriptor() instanceof ListStateDescriptor);
 	}
 
+	/**
+	 * Verifies that reductions of sliding event-time windows are only pre-aggregated in panes
+	 * when this was requested, and that the panes are kept in a state of their own.
+	 */
+	@Test
+	@SuppressWarnings("rawtypes")
+	public void testPanedSlidingEventTime() throws Exception {
+		StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
+
+		DataStream<Tuple2<String, Integer>> source = env.fromElements(Tuple2.of("hello", 1), Tuple2.of("hello", 2));
+		env.setStreamTimeCharacteristic(TimeCharacteristic.IngestionTime);
+
+		DummyReducer reducer = new DummyReducer();
+
+		DataStream<Tuple2<String, Integer>> window1 = source
+				.keyBy(0)
+				.window(SlidingEventTimeWindows.of(Time.of(1, TimeUnit.SECONDS), Time.of(100, TimeUnit.MILLISECONDS)))
+				.aggregatePanes()
+				.reduce(reducer);
+
+		OneInputTransformation<Tuple2<String, Integer>, Tuple2<String, Integer>> transform1 = (OneInputTransformation<Tuple2<String, Integer>, Tuple2<String, Integer>>) window1.getTransformation();
+		OneInputStreamOperator<Tuple2<String, Integer>, Tuple2<String, Integer>> operator1 = transform1.getOperator();
+		Assert.assertTrue(operator1 instanceof PanedSlidingWindowOperator);
+		WindowOperator winOperator1 = (WindowOperator) operator1;
+		Assert.assertTrue(winOperator1.getTrigger() instanceof EventTimeTrigger);
+		Assert.assertTrue(winOperator1.getWindowAssigner() instanceof SlidingEventTimeWindows);
+		Assert.assertTrue(winOperator1.getStateDescriptor() instanceof ReducingStateDescriptor);
+		Assert.assertEquals(PanedSlidingWindowOperator.PANE_STATE_NAME, winOperator1.getStateDescriptor().getName());
+
+		DataStream<Tuple2<String, Integer>> window2 = source
+				.keyBy(0)
+				.window(SlidingEventTimeWindows.of(Time.of(1, TimeUnit.SECONDS), Time.of(100, TimeUnit.MILLISECONDS)))
+				.reduce(reducer);
+
+		OneInputTransformation<Tuple2<String, Integer>, Tuple2<String, Integer>> transform2 = (OneInputTransformation<Tuple2<String, Integer>, Tuple2<String, Integer>>) window2.getTransformation();
+		OneInputStreamOperator<Tuple2<String, Integer>, Tuple2<String, Integer>> operator2 = transform2.getOperator();
+		Assert.assertFalse(operator2 instanceof PanedSlidingWindowOperator);
+		Assert.assertEquals("window-contents", ((WindowOperator) operator2).getStateDescriptor().getName());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testPanedFailWithUnalignedSlide() throws Exception {
+		StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
+
+		DataStream<Tuple2<String, Integer>> source = env.fromElements(Tuple2.of("hello", 1), Tuple2.of("hello", 2));
+
+		source
+			.keyBy(0)
+			.window(SlidingEventTimeWindows.of(Time.of(1, TimeUnit.SECONDS), Time.of(300, TimeUnit.MILLISECONDS)))
+			.aggregatePanes();
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testPanedFailWithCustomTrigger() throws Exception {
+		StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
+
+		DataStream<Tuple2<String, Integer>> source = env.fromElements(Tuple2.of("hello", 1), Tuple2.of("hello", 2));
+
+		source
+			.keyBy(0)
+			.window(SlidingEventTimeWindows.of(Time.of(1, TimeUnit.SECONDS), Time.of(100, TimeUnit.MILLISECONDS)))
+			.aggregatePanes()
+			.trigger(CountTrigger.of(100))
+			.reduce(new DummyReducer());
+	}
+
 	@Test
 	@SuppressWarnings("rawtypes")
 	public void testNonEvicting() throws Exception {
@@ -236,6 +307,93 @@ public class WindowTranslationTest {
 		Assert.assertTrue(winOperator2.getStateDescriptor() instanceof ListStateDescriptor);
 	}
 
+	/**
+	 * Evicting windows with an {@link InvertibleReduceFunction} aggregate incrementally.
+	 */
+	@Test
+	@SuppressWarnings("rawtypes")
+	public void testEvictingWithInvertibleReducer() throws Exception {
+		StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
+
+		DataStream<Tuple2<String, Integer>> source = env.fromElements(Tuple2.of("hello", 1), Tuple2.of("hello", 2));
+
+		DataStream<Tuple2<String, Integer>> window1 = source
+				.keyBy(0)
+				.window(GlobalWindows.create())
+				.trigger(CountTrigger.of(10))
+				.evictor(CountEvictor.of(100))
+				.reduce(new InvertibleReduceFunction<Tuple2<String, Integer>>() {
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					public Tuple2<String, Integer> reduce(Tuple2<String, Integer> value1, Tuple2<String, Integer> value2) {
+						return new Tuple2<>(value1.f0, value1.f1 + value2.f1);
+					}
+
+					@Override
+					public Tuple2<String, Integer> invert(Tuple2<String, Integer> aggregate, Tuple2<String, Integer> value) {
+						return new Tuple2<>(aggregate.f0, aggregate.f1 - value.f1);
+					}
+				});
+
+		OneInputTransformation<Tuple2<String, Integer>, Tuple2<String, Integer>> transform1 = (OneInputTransformation<Tuple2<String, Integer>, Tuple2<String, Integer>>) window1.getTransformation();
+		OneInputStreamOperator<Tuple2<String, Integer>, Tuple2<String, Integer>> operator1 = transform1.getOperator();
+		Assert.assertTrue(operator1 instanceof InvertibleEvictingWindowOperator);
+		InvertibleEvictingWindowOperator winOperator1 = (InvertibleEvictingWindowOperator) operator1;
+		Assert.assertTrue(winOperator1.getTrigger() instanceof CountTrigger);
+		Assert.assertTrue(winOperator1.getWindowAssigner() instanceof GlobalWindows);
+		Assert.assertTrue(winOperator1.getEvictor() instanceof CountEvictor);
+	}
+
+	/**
+	 * Aggregations work with merging windows, the accumulators of merged windows are merged.
+	 */
+	@Test
+	@SuppressWarnings("rawtypes")
+	public void testSessionWithAggregate() throws Exception {
+		StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
+
+		DataStream<Tuple2<String, Integer>> source = env.fromElements(Tuple2.of("hello", 1), Tuple2.of("hello", 2));
+
+		DataStream<Double> window1 = source
+				.keyBy(0)
+				.window(EventTimeSessionWindows.withGap(Time.seconds(5)))
+				.aggregate(new AggregateFunction<Tuple2<String, Integer>, Tuple2<Long, Long>, Double>() {
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					public Tuple2<Long, Long> createAccumulator() {
+						return new Tuple2<>(0L, 0L);
+					}
+
+					@Override
+					public void add(Tuple2<String, Integer> value, Tuple2<Long, Long> accumulator) {
+						accumulator.f0 += value.f1;
+						accumulator.f1++;
+					}
+
+					@Override
+					public Double getResult(Tuple2<Long, Long> accumulator) {
+						return accumulator.f0 / (double) accumulator.f1;
+					}
+
+					@Override
+					public Tuple2<Long, Long> merge(Tuple2<Long, Long> a, Tuple2<Long, Long> b) {
+						return new Tuple2<>(a.f0 + b.f0, a.f1 + b.f1);
+					}
+				});
+
+		Assert.assertEquals(BasicTypeInfo.DOUBLE_TYPE_INFO, window1.getType());
+
+		OneInputTransformation<Tuple2<String, Integer>, Double> transform1 = (OneInputTransformation<Tuple2<String, Integer>, Double>) window1.getTransformation();
+		OneInputStreamOperator<Tuple2<String, Integer>, Double> operator1 = transform1.getOperator();
+		Assert.assertTrue(operator1 instanceof WindowOperator);
+		WindowOperator winOperator1 = (WindowOperator) operator1;
+		Assert.assertTrue(winOperator1.getTrigger() instanceof EventTimeTrigger);
+		Assert.assertTrue(winOperator1.getWindowAssigner() instanceof EventTimeSessionWindows);
+		Assert.assertTrue(winOperator1.getStateDescriptor() instanceof AggregatingStateDescriptor);
+	}
+
 	@Test
 	public void testSessionWithFold() throws Exception {
 		// verify that fold does not work with merging windows
@@ -24,6 +24,7 @@ import org.apache.flink.api.common.typeutils.base.StringSerializer;
 import org.apache.flink.runtime.util.DataInputDeserializer;
 import org.apache.flink.runtime.util.DataOutputSerializer;
 import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.streamstatus.StreamStatus;
 
 import org.junit.Test;
 
@@ -87,6 +88,9 @@ public class StreamElementSerializerTest {
 
 		Watermark negativeWatermark = new Watermark(-4647654567676555876L);
 		assertEquals(negativeWatermark, serializeAndDeserialize(negativeWatermark, serializer));
+
+		assertEquals(StreamStatus.IDLE, serializeAndDeserialize(StreamStatus.IDLE, serializer));
+		assertEquals(StreamStatus.ACTIVE, serializeAndDeserialize(StreamStatus.ACTIVE, serializer));
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.streamstatus;
+
+import org.apache.flink.streaming.api.watermark.Watermark;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link StatusWatermarkValve}.
+ */
+public class StatusWatermarkValveTest {
+
+	@Test
+	public void testMinWatermarkAcrossChannels() throws Exception {
+		BufferedValveOutputHandler output = new BufferedValveOutputHandler();
+		StatusWatermarkValve valve = new StatusWatermarkValve(3, output);
+
+		valve.inputWatermark(new Watermark(10), 0);
+		valve.inputWatermark(new Watermark(12), 1);
+		assertTrue(output.isEmpty());
+
+		valve.inputWatermark(new Watermark(5), 2);
+		assertEquals(new Watermark(5), output.poll());
+
+		// a decreasing watermark of a channel is ignored
+		valve.inputWatermark(new Watermark(3), 2);
+		assertTrue(output.isEmpty());
+
+		valve.inputWatermark(new Watermark(15), 2);
+		assertEquals(new Watermark(10), output.poll());
+		assertTrue(output.isEmpty());
+		assertEquals(10, valve.getLastOutputWatermark());
+	}
+
+	@Test
+	public void testIdleChannelDoesNotHoldBackWatermark() throws Exception {
+		BufferedValveOutputHandler output = new BufferedValveOutputHandler();
+		StatusWatermarkValve valve = new StatusWatermarkValve(2, output);
+
+		valve.inputWatermark(new Watermark(10), 0);
+		assertTrue(output.isEmpty());
+
+		// the channel that holds back the watermark becomes idle
+		valve.inputStreamStatus(StreamStatus.IDLE, 1);
+		assertEquals(new Watermark(10), output.poll());
+
+		valve.inputWatermark(new Watermark(20), 0);
+		assertEquals(new Watermark(20), output.poll());
+		assertTrue(output.isEmpty());
+	}
+
+	@Test
+	public void testReactivatedChannelIsOnlyAlignedOnceCaughtUp() throws Exception {
+		BufferedValveOutputHandler output = new BufferedValveOutputHandler();
+		StatusWatermarkValve valve = new StatusWatermarkValve(2, output);
+
+		valve.inputStreamStatus(StreamStatus.IDLE, 1);
+		valve.inputWatermark(new Watermark(20), 0);
+		assertEquals(new Watermark(20), output.poll());
+
+		// the channel becomes active again, but is behind the output watermark
+		valve.inputStreamStatus(StreamStatus.ACTIVE, 1);
+		valve.inputWatermark(new Watermark(15), 1);
+		valve.inputWatermark(new Watermark(30), 0);
+		assertEquals(new Watermark(30), output.poll());
+
+		// once caught up, the channel holds back the watermark again
+		valve.inputWatermark(new Watermark(35), 1);
+		valve.inputWatermark(new Watermark(40), 0);
+		assertEquals(new Watermark(35), output.poll());
+		assertTrue(output.isEmpty());
+	}
+
+	@Test
+	public void testStreamStatusOutput() throws Exception {
+		BufferedValveOutputHandler output = new BufferedValveOutputHandler();
+		StatusWatermarkValve valve = new StatusWatermarkValve(2, output);
+
+		valve.inputStreamStatus(StreamStatus.IDLE, 0);
+		assertTrue(output.isEmpty());
+
+		// repeated status inputs have no effect
+		valve.inputStreamStatus(StreamStatus.IDLE, 0);
+		valve.inputStreamStatus(StreamStatus.ACTIVE, 1);
+		assertTrue(output.isEmpty());
+
+		valve.inputStreamStatus(StreamStatus.IDLE, 1);
+		assertEquals(StreamStatus.IDLE, output.poll());
+
+		// watermarks of idle channels are ignored
+		valve.inputWatermark(new Watermark(10), 1);
+		assertTrue(output.isEmpty());
+
+		valve.inputStreamStatus(StreamStatus.ACTIVE, 1);
+		assertEquals(StreamStatus.ACTIVE, output.poll());
+
+		valve.inputStreamStatus(StreamStatus.ACTIVE, 0);
+		assertTrue(output.isEmpty());
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static class BufferedValveOutputHandler implements StatusWatermarkValve.ValveOutputHandler {
+
+		private final Queue<Object> outputs = new ArrayDeque<>();
+
+		@Override
+		public void handleWatermark(Watermark watermark) {
+			outputs.add(watermark);
+		}
+
+		@Override
+		public void handleStreamStatus(StreamStatus streamStatus) {
+			outputs.add(streamStatus);
+		}
+
+		Object poll() {
+			return outputs.poll();
+		}
+
+		boolean isEmpty() {
+			return outputs.isEmpty();
+		}
+	}
+}
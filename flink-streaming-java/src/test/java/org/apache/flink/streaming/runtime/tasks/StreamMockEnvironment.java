@@ -27,6 +27,7 @@ import org.apache.flink.core.fs.Path;
 import org.apache.flink.core.memory.MemorySegmentFactory;
 import org.apache.flink.runtime.accumulators.AccumulatorRegistry;
 import org.apache.flink.runtime.broadcast.BroadcastVariableManager;
+import org.apache.flink.runtime.checkpoint.CheckpointDeclineReason;
 import org.apache.flink.runtime.checkpoint.CheckpointMetaData;
 import org.apache.flink.runtime.checkpoint.SubtaskState;
 import org.apache.flink.runtime.event.AbstractEvent;
@@ -321,6 +322,10 @@ public class StreamMockEnvironment implements Environment {
 			CheckpointMetaData checkpointMetaData, SubtaskState subtaskState) {
 	}
 
+	@Override
+	public void declineCheckpoint(CheckpointMetaData checkpointMetaData, CheckpointDeclineReason reason) {
+	}
+
 	@Override
 	public void failExternally(Throwable cause) {
 		this.wasFailedExternally = true;
@@ -198,6 +198,10 @@ public class AbstractStreamOperatorTestHarness<OUT> {
 		return mockTask.getCheckpointLock();
 	}
 
+	public StreamConfig getStreamConfig() {
+		return config;
+	}
+
 	public Environment getEnvironment() {
 		return this.mockTask.getEnvironment();
 	}
@@ -560,6 +560,69 @@ class StreamExecutionEnvironment(javaEnv: JavaEnv) {
     asScalaStream(javaEnv.readFile(inputFormat, filePath, watchType, interval, typeInfo))
   }
 
+  /**
+    * Reads the contents of the user-specified path based on the given [[FileInputFormat]],
+    * like [[readFile(FileInputFormat, String, FileProcessingMode, Long)]], but each
+    * parallel instance of the [[ContinuousFileReaderOperator reader]] reads up to
+    * `numReaderThreads` splits concurrently. The records of splits that are read
+    * concurrently are interleaved in the output of the reader.
+    *
+    * @param inputFormat
+    *          The input format used to create the data stream
+    * @param filePath
+    *          The path of the file, as a URI (e.g., "file:///some/local/file" or
+    *          "hdfs://host:port/file/path")
+    * @param watchType
+    *          The mode in which the source should operate, i.e. monitor path and react
+    *          to new data, or process once and exit
+    * @param interval
+    *          In the case of periodic path monitoring, this specifies the interval (in millis)
+    *          between consecutive path scans
+    * @param numReaderThreads
+    *          The number of threads that each parallel reader uses to read splits
+    * @return The data stream that represents the data read from the given file
+    */
+  @PublicEvolving
+  def readFile[T: TypeInformation](
+      inputFormat: FileInputFormat[T],
+      filePath: String,
+      watchType: FileProcessingMode,
+      interval: Long,
+      numReaderThreads: Int): DataStream[T] = {
+    val typeInfo = implicitly[TypeInformation[T]]
+    asScalaStream(
+      javaEnv.readFile(inputFormat, filePath, watchType, interval, typeInfo, numReaderThreads))
+  }
+
+  /**
+    * Continuously monitors the user-specified `filePath` and reads the contents of new files
+    * based on the given [[FileInputFormat]]. Contrary to the other `readFile` methods, which
+    * only process files with a modification time after the most recent one seen so far, the
+    * source keeps a checkpointed index of the processed files, as configured by the given
+    * [[IncrementalFileDiscovery]]. This also picks up files that arrive late, as long as their
+    * modification time lies within the retention time of the discovery.
+    *
+    * @param inputFormat
+    *          The input format used to create the data stream
+    * @param filePath
+    *          The path of the file, as a URI (e.g., "file:///some/local/file" or
+    *          "hdfs://host:port/file/path")
+    * @param interval
+    *          The interval (in millis) between consecutive path scans
+    * @param discovery
+    *          The configuration of the incremental file discovery
+    * @return The data stream that represents the data read from the given file
+    */
+  @PublicEvolving
+  def readFile[T: TypeInformation](
+      inputFormat: FileInputFormat[T],
+      filePath: String,
+      interval: Long,
+      discovery: IncrementalFileDiscovery): DataStream[T] = {
+    val typeInfo = implicitly[TypeInformation[T]]
+    asScalaStream(javaEnv.readFile(inputFormat, filePath, interval, typeInfo, discovery))
+  }
+
   /**
    * Creates a new DataStream that contains the strings received infinitely
    * from socket. Received strings are decoded by the system's default
@@ -94,6 +94,19 @@ class WindowedStream[T, K, W <: Window](javaStream: JavaWStream[T, K, W]) {
     this
   }
 
+  /**
+   * Pre-aggregates the elements of sliding event-time windows in panes of the length of the
+   * slide, see [[org.apache.flink.streaming.api.datastream.WindowedStream#aggregatePanes()]].
+   *
+   * The reduce function must be associative, and a savepoint cannot be restored after this
+   * setting was changed.
+   */
+  @PublicEvolving
+  def aggregatePanes(): WindowedStream[T, K, W] = {
+    javaStream.aggregatePanes()
+    this
+  }
+
   // ------------------------------------------------------------------------
   //  Operations on the keyed windows
   // ------------------------------------------------------------------------